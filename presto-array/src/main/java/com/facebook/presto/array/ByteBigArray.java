@@ -13,7 +13,6 @@
  */
 package com.facebook.presto.array;
 
-import io.airlift.slice.SizeOf;
 import org.openjdk.jol.info.ClassLayout;
 
 import java.util.Arrays;
@@ -22,6 +21,8 @@ import static com.facebook.presto.array.BigArrays.INITIAL_SEGMENTS;
 import static com.facebook.presto.array.BigArrays.SEGMENT_SIZE;
 import static com.facebook.presto.array.BigArrays.offset;
 import static com.facebook.presto.array.BigArrays.segment;
+import static com.facebook.presto.array.OffHeapMemory.unsafe;
+import static io.airlift.slice.SizeOf.sizeOf;
 import static io.airlift.slice.SizeOf.sizeOfByteArray;
 
 // Note: this code was forked from fastutil (http://fastutil.di.unimi.it/)
@@ -32,8 +33,11 @@ public final class ByteBigArray
     private static final long SIZE_OF_SEGMENT = sizeOfByteArray(SEGMENT_SIZE);
 
     private final byte initialValue;
+    private final boolean offHeap;
 
     private byte[][] array;
+    // addresses of the segments of an off-heap array, which has no on-heap segments
+    private long[] segmentAddresses;
     private int capacity;
     private int segments;
 
@@ -46,9 +50,26 @@ public final class ByteBigArray
     }
 
     public ByteBigArray(byte initialValue)
+    {
+        this(initialValue, false);
+    }
+
+    /**
+     * Creates a new big array containing one initial segment filled with the specified default value.
+     * The segments of an off-heap array are allocated outside of the Java heap, and are only freed
+     * when the array is closed.
+     */
+    public ByteBigArray(byte initialValue, boolean offHeap)
     {
         this.initialValue = initialValue;
-        array = new byte[INITIAL_SEGMENTS][];
+        this.offHeap = offHeap;
+        if (offHeap) {
+            array = new byte[0][];
+            segmentAddresses = new long[1];
+        }
+        else {
+            array = new byte[INITIAL_SEGMENTS][];
+        }
         allocateNewSegment();
     }
 
@@ -57,7 +78,10 @@ public final class ByteBigArray
      */
     public long sizeOf()
     {
-        return INSTANCE_SIZE + SizeOf.sizeOf(array) + (segments * SIZE_OF_SEGMENT);
+        if (offHeap) {
+            return INSTANCE_SIZE + sizeOf(array) + sizeOf(segmentAddresses) + (long) segments * SEGMENT_SIZE;
+        }
+        return INSTANCE_SIZE + sizeOf(array) + (segments * SIZE_OF_SEGMENT);
     }
 
     /**
@@ -68,6 +92,9 @@ public final class ByteBigArray
      */
     public byte get(long index)
     {
+        if (offHeap) {
+            return unsafe.getByte(address(index));
+        }
         return array[segment(index)][offset(index)];
     }
 
@@ -78,6 +105,10 @@ public final class ByteBigArray
      */
     public void set(long index, byte value)
     {
+        if (offHeap) {
+            unsafe.putByte(address(index), value);
+            return;
+        }
         array[segment(index)][offset(index)] = value;
     }
 
@@ -100,7 +131,12 @@ public final class ByteBigArray
         int requiredSegments = segment(length) + 1;
 
         // grow base array if necessary
-        if (array.length < requiredSegments) {
+        if (offHeap) {
+            if (segmentAddresses.length < requiredSegments) {
+                segmentAddresses = Arrays.copyOf(segmentAddresses, requiredSegments);
+            }
+        }
+        else if (array.length < requiredSegments) {
             array = Arrays.copyOf(array, requiredSegments);
         }
 
@@ -112,6 +148,17 @@ public final class ByteBigArray
 
     private void allocateNewSegment()
     {
+        if (offHeap) {
+            long address = OffHeapMemory.allocate(SEGMENT_SIZE);
+            if (initialValue != 0) {
+                unsafe.setMemory(address, SEGMENT_SIZE, initialValue);
+            }
+            segmentAddresses[segments] = address;
+            capacity += SEGMENT_SIZE;
+            segments++;
+            return;
+        }
+
         byte[] newSegment = new byte[SEGMENT_SIZE];
         if (initialValue != 0) {
             Arrays.fill(newSegment, initialValue);
@@ -120,4 +167,26 @@ public final class ByteBigArray
         capacity += SEGMENT_SIZE;
         segments++;
     }
+
+    /**
+     * Frees the segments of an off-heap array. The array must not be used after it is closed.
+     */
+    public void close()
+    {
+        if (!offHeap) {
+            return;
+        }
+        for (int segment = 0; segment < segments; segment++) {
+            OffHeapMemory.free(segmentAddresses[segment]);
+        }
+        // any later access fails on the empty address array, instead of reading freed memory
+        segmentAddresses = new long[0];
+        capacity = 0;
+        segments = 0;
+    }
+
+    private long address(long index)
+    {
+        return segmentAddresses[segment(index)] + offset(index);
+    }
 }
@@ -13,7 +13,6 @@
  */
 package com.facebook.presto.array;
 
-import io.airlift.slice.SizeOf;
 import org.openjdk.jol.info.ClassLayout;
 
 import java.util.Arrays;
@@ -22,6 +21,8 @@ import static com.facebook.presto.array.BigArrays.INITIAL_SEGMENTS;
 import static com.facebook.presto.array.BigArrays.SEGMENT_SIZE;
 import static com.facebook.presto.array.BigArrays.offset;
 import static com.facebook.presto.array.BigArrays.segment;
+import static com.facebook.presto.array.OffHeapMemory.unsafe;
+import static io.airlift.slice.SizeOf.sizeOf;
 import static io.airlift.slice.SizeOf.sizeOfIntArray;
 
 // Note: this code was forked from fastutil (http://fastutil.di.unimi.it/)
@@ -32,8 +33,11 @@ public final class IntBigArray
     private static final long SIZE_OF_SEGMENT = sizeOfIntArray(SEGMENT_SIZE);
 
     private final int initialValue;
+    private final boolean offHeap;
 
     private int[][] array;
+    // addresses of the segments of an off-heap array, which has no on-heap segments
+    private long[] segmentAddresses;
     private int capacity;
     private int segments;
 
@@ -49,14 +53,34 @@ public final class IntBigArray
      * Creates a new big array containing one initial segment filled with the specified default value
      */
     public IntBigArray(int initialValue)
+    {
+        this(initialValue, false);
+    }
+
+    /**
+     * Creates a new big array containing one initial segment filled with the specified default value.
+     * The segments of an off-heap array are allocated outside of the Java heap, and are only freed
+     * when the array is closed.
+     */
+    public IntBigArray(int initialValue, boolean offHeap)
     {
         this.initialValue = initialValue;
-        array = new int[INITIAL_SEGMENTS][];
+        this.offHeap = offHeap;
+        if (offHeap) {
+            array = new int[0][];
+            segmentAddresses = new long[1];
+        }
+        else {
+            array = new int[INITIAL_SEGMENTS][];
+        }
         allocateNewSegment();
     }
 
     public int[][] getSegments()
     {
+        if (offHeap) {
+            throw new UnsupportedOperationException("Off-heap array has no on-heap segments");
+        }
         return array;
     }
 
@@ -65,7 +89,10 @@ public final class IntBigArray
      */
     public long sizeOf()
     {
-        return INSTANCE_SIZE + SizeOf.sizeOf(array) + (segments * SIZE_OF_SEGMENT);
+        if (offHeap) {
+            return INSTANCE_SIZE + sizeOf(array) + sizeOf(segmentAddresses) + ((long) segments * SEGMENT_SIZE << 2);
+        }
+        return INSTANCE_SIZE + sizeOf(array) + (segments * SIZE_OF_SEGMENT);
     }
 
     /**
@@ -76,6 +103,9 @@ public final class IntBigArray
      */
     public int get(long index)
     {
+        if (offHeap) {
+            return unsafe.getInt(address(index));
+        }
         return array[segment(index)][offset(index)];
     }
 
@@ -86,6 +116,10 @@ public final class IntBigArray
      */
     public void set(long index, int value)
     {
+        if (offHeap) {
+            unsafe.putInt(address(index), value);
+            return;
+        }
         array[segment(index)][offset(index)] = value;
     }
 
@@ -96,6 +130,11 @@ public final class IntBigArray
      */
     public void increment(long index)
     {
+        if (offHeap) {
+            long address = address(index);
+            unsafe.putInt(address, unsafe.getInt(address) + 1);
+            return;
+        }
         array[segment(index)][offset(index)]++;
     }
 
@@ -107,6 +146,11 @@ public final class IntBigArray
      */
     public void add(long index, int value)
     {
+        if (offHeap) {
+            long address = address(index);
+            unsafe.putInt(address, unsafe.getInt(address) + value);
+            return;
+        }
         array[segment(index)][offset(index)] += value;
     }
 
@@ -125,6 +169,15 @@ public final class IntBigArray
 
     public void fill(int value)
     {
+        if (offHeap) {
+            for (int segment = 0; segment < segments; segment++) {
+                long address = segmentAddresses[segment];
+                for (int i = 0; i < SEGMENT_SIZE; i++) {
+                    unsafe.putInt(address + ((long) i << 2), value);
+                }
+            }
+            return;
+        }
         for (int[] ints : array) {
             if (ints == null) {
                 return;
@@ -139,7 +192,12 @@ public final class IntBigArray
         int requiredSegments = segment(length) + 1;
 
         // grow base array if necessary
-        if (array.length < requiredSegments) {
+        if (offHeap) {
+            if (segmentAddresses.length < requiredSegments) {
+                segmentAddresses = Arrays.copyOf(segmentAddresses, requiredSegments);
+            }
+        }
+        else if (array.length < requiredSegments) {
             array = Arrays.copyOf(array, requiredSegments);
         }
 
@@ -151,6 +209,19 @@ public final class IntBigArray
 
     private void allocateNewSegment()
     {
+        if (offHeap) {
+            long address = OffHeapMemory.allocate((long) SEGMENT_SIZE << 2);
+            if (initialValue != 0) {
+                for (int i = 0; i < SEGMENT_SIZE; i++) {
+                    unsafe.putInt(address + ((long) i << 2), initialValue);
+                }
+            }
+            segmentAddresses[segments] = address;
+            capacity += SEGMENT_SIZE;
+            segments++;
+            return;
+        }
+
         int[] newSegment = new int[SEGMENT_SIZE];
         if (initialValue != 0) {
             Arrays.fill(newSegment, initialValue);
@@ -162,6 +233,31 @@ public final class IntBigArray
 
     public void sort(int from, int to, IntComparator comparator)
     {
+        if (offHeap) {
+            throw new UnsupportedOperationException("Off-heap array can not be sorted");
+        }
         IntBigArrays.quickSort(array, from, to, comparator);
     }
+
+    /**
+     * Frees the segments of an off-heap array. The array must not be used after it is closed.
+     */
+    public void close()
+    {
+        if (!offHeap) {
+            return;
+        }
+        for (int segment = 0; segment < segments; segment++) {
+            OffHeapMemory.free(segmentAddresses[segment]);
+        }
+        // any later access fails on the empty address array, instead of reading freed memory
+        segmentAddresses = new long[0];
+        capacity = 0;
+        segments = 0;
+    }
+
+    private long address(long index)
+    {
+        return segmentAddresses[segment(index)] + ((long) offset(index) << 2);
+    }
 }
@@ -13,7 +13,6 @@
  */
 package com.facebook.presto.array;
 
-import io.airlift.slice.SizeOf;
 import org.openjdk.jol.info.ClassLayout;
 
 import java.util.Arrays;
@@ -22,6 +21,8 @@ import static com.facebook.presto.array.BigArrays.INITIAL_SEGMENTS;
 import static com.facebook.presto.array.BigArrays.SEGMENT_SIZE;
 import static com.facebook.presto.array.BigArrays.offset;
 import static com.facebook.presto.array.BigArrays.segment;
+import static com.facebook.presto.array.OffHeapMemory.unsafe;
+import static io.airlift.slice.SizeOf.sizeOf;
 import static io.airlift.slice.SizeOf.sizeOfLongArray;
 
 // Note: this code was forked from fastutil (http://fastutil.di.unimi.it/)
@@ -32,8 +33,11 @@ public final class LongBigArray
     private static final long SIZE_OF_SEGMENT = sizeOfLongArray(SEGMENT_SIZE);
 
     private final long initialValue;
+    private final boolean offHeap;
 
     private long[][] array;
+    // addresses of the segments of an off-heap array, which has no on-heap segments
+    private long[] segmentAddresses;
     private int capacity;
     private int segments;
 
@@ -49,9 +53,26 @@ public final class LongBigArray
      * Creates a new big array containing one initial segment filled with the specified default value
      */
     public LongBigArray(long initialValue)
+    {
+        this(initialValue, false);
+    }
+
+    /**
+     * Creates a new big array containing one initial segment filled with the specified default value.
+     * The segments of an off-heap array are allocated outside of the Java heap, and are only freed
+     * when the array is closed.
+     */
+    public LongBigArray(long initialValue, boolean offHeap)
     {
         this.initialValue = initialValue;
-        array = new long[INITIAL_SEGMENTS][];
+        this.offHeap = offHeap;
+        if (offHeap) {
+            array = new long[0][];
+            segmentAddresses = new long[1];
+        }
+        else {
+            array = new long[INITIAL_SEGMENTS][];
+        }
         allocateNewSegment();
     }
 
@@ -60,7 +81,10 @@ public final class LongBigArray
      */
     public long sizeOf()
     {
-        return INSTANCE_SIZE + SizeOf.sizeOf(array) + (segments * SIZE_OF_SEGMENT);
+        if (offHeap) {
+            return INSTANCE_SIZE + sizeOf(array) + sizeOf(segmentAddresses) + ((long) segments * SEGMENT_SIZE << 3);
+        }
+        return INSTANCE_SIZE + sizeOf(array) + (segments * SIZE_OF_SEGMENT);
     }
 
     /**
@@ -71,6 +95,9 @@ public final class LongBigArray
      */
     public long get(long index)
     {
+        if (offHeap) {
+            return unsafe.getLong(address(index));
+        }
         return array[segment(index)][offset(index)];
     }
 
@@ -81,6 +108,10 @@ public final class LongBigArray
      */
     public void set(long index, long value)
     {
+        if (offHeap) {
+            unsafe.putLong(address(index), value);
+            return;
+        }
         array[segment(index)][offset(index)] = value;
     }
 
@@ -91,6 +122,11 @@ public final class LongBigArray
      */
     public void increment(long index)
     {
+        if (offHeap) {
+            long address = address(index);
+            unsafe.putLong(address, unsafe.getLong(address) + 1);
+            return;
+        }
         array[segment(index)][offset(index)]++;
     }
 
@@ -102,6 +138,11 @@ public final class LongBigArray
      */
     public void add(long index, long value)
     {
+        if (offHeap) {
+            long address = address(index);
+            unsafe.putLong(address, unsafe.getLong(address) + value);
+            return;
+        }
         array[segment(index)][offset(index)] += value;
     }
 
@@ -124,7 +165,12 @@ public final class LongBigArray
         int requiredSegments = segment(length) + 1;
 
         // grow base array if necessary
-        if (array.length < requiredSegments) {
+        if (offHeap) {
+            if (segmentAddresses.length < requiredSegments) {
+                segmentAddresses = Arrays.copyOf(segmentAddresses, requiredSegments);
+            }
+        }
+        else if (array.length < requiredSegments) {
             array = Arrays.copyOf(array, requiredSegments);
         }
 
@@ -136,6 +182,19 @@ public final class LongBigArray
 
     private void allocateNewSegment()
     {
+        if (offHeap) {
+            long address = OffHeapMemory.allocate((long) SEGMENT_SIZE << 3);
+            if (initialValue != 0) {
+                for (int i = 0; i < SEGMENT_SIZE; i++) {
+                    unsafe.putLong(address + ((long) i << 3), initialValue);
+                }
+            }
+            segmentAddresses[segments] = address;
+            capacity += SEGMENT_SIZE;
+            segments++;
+            return;
+        }
+
         long[] newSegment = new long[SEGMENT_SIZE];
         if (initialValue != 0) {
             Arrays.fill(newSegment, initialValue);
@@ -144,4 +203,26 @@ public final class LongBigArray
         capacity += SEGMENT_SIZE;
         segments++;
     }
+
+    /**
+     * Frees the segments of an off-heap array. The array must not be used after it is closed.
+     */
+    public void close()
+    {
+        if (!offHeap) {
+            return;
+        }
+        for (int segment = 0; segment < segments; segment++) {
+            OffHeapMemory.free(segmentAddresses[segment]);
+        }
+        // any later access fails on the empty address array, instead of reading freed memory
+        segmentAddresses = new long[0];
+        capacity = 0;
+        segments = 0;
+    }
+
+    private long address(long index)
+    {
+        return segmentAddresses[segment(index)] + ((long) offset(index) << 3);
+    }
 }
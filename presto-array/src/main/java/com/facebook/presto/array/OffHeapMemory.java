@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.array;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+
+/**
+ * Allocates the segments of off-heap big arrays. Off-heap memory is not scanned
+ * or moved by the garbage collector, so it must be freed explicitly.
+ */
+final class OffHeapMemory
+{
+    static final Unsafe unsafe;
+
+    static {
+        try {
+            // fetch theUnsafe object
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = (Unsafe) field.get(null);
+            if (unsafe == null) {
+                throw new RuntimeException("Unsafe access not available");
+            }
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private OffHeapMemory() {}
+
+    /**
+     * Allocates the specified number of bytes, initialized to zero.
+     */
+    public static long allocate(long bytes)
+    {
+        long address = unsafe.allocateMemory(bytes);
+        unsafe.setMemory(address, bytes, (byte) 0);
+        return address;
+    }
+
+    public static void free(long address)
+    {
+        unsafe.freeMemory(address);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.array;
+
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.array.BigArrays.SEGMENT_SIZE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestOffHeapBigArrays
+{
+    private static final int CAPACITY = SEGMENT_SIZE * 3 + 17;
+
+    @Test
+    public void testLongBigArray()
+    {
+        LongBigArray onHeap = new LongBigArray(-1, false);
+        LongBigArray offHeap = new LongBigArray(-1, true);
+        onHeap.ensureCapacity(CAPACITY);
+        offHeap.ensureCapacity(CAPACITY);
+
+        for (int i = 0; i < CAPACITY; i += 3) {
+            onHeap.set(i, i * 31L);
+            offHeap.set(i, i * 31L);
+            onHeap.add(i + 1, i);
+            offHeap.add(i + 1, i);
+            onHeap.increment(i + 2);
+            offHeap.increment(i + 2);
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(offHeap.get(i), onHeap.get(i));
+        }
+        assertTrue(offHeap.sizeOf() >= 4L * SEGMENT_SIZE * Long.BYTES);
+        offHeap.close();
+    }
+
+    @Test(expectedExceptions = ArrayIndexOutOfBoundsException.class)
+    public void testAccessAfterClose()
+    {
+        LongBigArray array = new LongBigArray(0, true);
+        array.set(0, 1);
+        array.close();
+        array.get(0);
+    }
+
+    @Test
+    public void testIntBigArray()
+    {
+        IntBigArray onHeap = new IntBigArray(7, false);
+        IntBigArray offHeap = new IntBigArray(7, true);
+        onHeap.ensureCapacity(CAPACITY);
+        offHeap.ensureCapacity(CAPACITY);
+
+        for (int i = 0; i < CAPACITY; i += 2) {
+            onHeap.set(i, -i);
+            offHeap.set(i, -i);
+            onHeap.add(i + 1, i);
+            offHeap.add(i + 1, i);
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(offHeap.get(i), onHeap.get(i));
+        }
+
+        onHeap.fill(-1);
+        offHeap.fill(-1);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(offHeap.get(i), -1);
+        }
+        offHeap.close();
+    }
+
+    @Test
+    public void testByteBigArray()
+    {
+        ByteBigArray onHeap = new ByteBigArray((byte) 3, false);
+        ByteBigArray offHeap = new ByteBigArray((byte) 3, true);
+        onHeap.ensureCapacity(CAPACITY);
+        offHeap.ensureCapacity(CAPACITY);
+
+        for (int i = 0; i < CAPACITY; i += 5) {
+            onHeap.set(i, (byte) i);
+            offHeap.set(i, (byte) i);
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(offHeap.get(i), onHeap.get(i));
+        }
+        offHeap.close();
+    }
+}
@@ -91,6 +91,7 @@ public class HashBuildAndJoinBenchmark
                 Optional.empty(),
                 Optional.empty(),
                 ImmutableList.of(),
+                Optional.empty(),
                 1_500_000,
                 1,
                 new PagesIndex.TestingFactory(false),
@@ -65,6 +65,7 @@ public class HashBuildBenchmark
                 Optional.empty(),
                 Optional.empty(),
                 ImmutableList.of(),
+                Optional.empty(),
                 1_500_000,
                 1,
                 new PagesIndex.TestingFactory(false),
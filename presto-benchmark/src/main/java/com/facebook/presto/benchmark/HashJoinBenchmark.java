@@ -74,6 +74,7 @@ public class HashJoinBenchmark
                     Optional.empty(),
                     Optional.empty(),
                     ImmutableList.of(),
+                    Optional.empty(),
                     1_500_000,
                     1,
                     new PagesIndex.TestingFactory(false),
@@ -0,0 +1,250 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockEncoding;
+import com.facebook.presto.spi.block.BlockEncodingFactory;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.facebook.presto.spi.block.ByteArrayBlockEncoding;
+import com.facebook.presto.spi.block.DictionaryBlockEncoding;
+import com.facebook.presto.spi.block.FixedWidthBlockEncoding;
+import com.facebook.presto.spi.block.IntArrayBlockEncoding;
+import com.facebook.presto.spi.block.LongArrayBlockEncoding;
+import com.facebook.presto.spi.block.RunLengthBlockEncoding;
+import com.facebook.presto.spi.block.ShortArrayBlockEncoding;
+import com.facebook.presto.spi.block.VariableWidthBlockEncoding;
+import com.facebook.presto.spi.type.SqlDate;
+import com.facebook.presto.spi.type.SqlDecimal;
+import com.facebook.presto.spi.type.SqlVarbinary;
+import com.facebook.presto.spi.type.StandardTypes;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spi.type.TypeSignature;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.SliceOutput;
+import io.airlift.slice.Slices;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.CharType.createCharType;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.DecimalType.createDecimalType;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.RealType.REAL;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.primitives.Ints.saturatedCast;
+import static java.lang.Math.toIntExact;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Binary result format, in which the rows of a response are sent as pages of blocks
+ * in the encoding used between workers instead of as JSON values. A client asks for
+ * the format with the {@link PrestoHeaders#PRESTO_RESULT_FORMAT} header, and the
+ * server only uses it when every result column has one of the types below. These are
+ * encoded with flat blocks, so the client can decode them without a type registry.
+ */
+public final class BinaryResults
+{
+    public static final String BINARY_RESULT_FORMAT = "binary";
+    public static final String BINARY_RESULTS_MEDIA_TYPE = "application/x-presto-binary-results";
+
+    private static final Set<String> SUPPORTED_TYPES = ImmutableSet.of(
+            StandardTypes.BOOLEAN,
+            StandardTypes.TINYINT,
+            StandardTypes.SMALLINT,
+            StandardTypes.INTEGER,
+            StandardTypes.BIGINT,
+            StandardTypes.REAL,
+            StandardTypes.DOUBLE,
+            StandardTypes.DECIMAL,
+            StandardTypes.VARCHAR,
+            StandardTypes.CHAR,
+            StandardTypes.VARBINARY,
+            StandardTypes.DATE);
+
+    private static final BlockEncodingSerde BLOCK_ENCODING_SERDE = new FlatBlockEncodingSerde();
+
+    private BinaryResults() {}
+
+    public static boolean isSupportedType(TypeSignature signature)
+    {
+        return SUPPORTED_TYPES.contains(signature.getBase());
+    }
+
+    public static byte[] serializePages(List<Page> pages)
+    {
+        long sizeInBytes = pages.stream()
+                .mapToLong(Page::getSizeInBytes)
+                .sum();
+        DynamicSliceOutput output = new DynamicSliceOutput(saturatedCast(sizeInBytes + 64));
+
+        output.writeInt(pages.size());
+        for (Page page : pages) {
+            output.writeInt(page.getPositionCount());
+            output.writeInt(page.getChannelCount());
+            for (Block block : page.getBlocks()) {
+                BlockEncoding encoding = block.getEncoding();
+                BLOCK_ENCODING_SERDE.writeBlockEncoding(output, encoding);
+                encoding.writeBlock(output, block);
+            }
+        }
+        return output.slice().getBytes();
+    }
+
+    public static List<Page> deserializePages(byte[] data)
+    {
+        SliceInput input = Slices.wrappedBuffer(data).getInput();
+
+        int pageCount = input.readInt();
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int i = 0; i < pageCount; i++) {
+            int positionCount = input.readInt();
+            Block[] blocks = new Block[input.readInt()];
+            for (int channel = 0; channel < blocks.length; channel++) {
+                BlockEncoding encoding = BLOCK_ENCODING_SERDE.readBlockEncoding(input);
+                blocks[channel] = encoding.readBlock(input);
+            }
+            pages.add(new Page(positionCount, blocks));
+        }
+        return pages.build();
+    }
+
+    public static Type getType(TypeSignature signature)
+    {
+        switch (signature.getBase()) {
+            case StandardTypes.BOOLEAN:
+                return BOOLEAN;
+            case StandardTypes.TINYINT:
+                return TINYINT;
+            case StandardTypes.SMALLINT:
+                return SMALLINT;
+            case StandardTypes.INTEGER:
+                return INTEGER;
+            case StandardTypes.BIGINT:
+                return BIGINT;
+            case StandardTypes.REAL:
+                return REAL;
+            case StandardTypes.DOUBLE:
+                return DOUBLE;
+            case StandardTypes.VARCHAR:
+                // the length of a varchar does not change how its values are read
+                return VARCHAR;
+            case StandardTypes.VARBINARY:
+                return VARBINARY;
+            case StandardTypes.DATE:
+                return DATE;
+            case StandardTypes.CHAR:
+                return createCharType(getLongParameter(signature, 0));
+            case StandardTypes.DECIMAL:
+                return createDecimalType(toIntExact(getLongParameter(signature, 0)), toIntExact(getLongParameter(signature, 1)));
+        }
+        throw new IllegalArgumentException("Type is not supported by the binary result format: " + signature);
+    }
+
+    public static List<Type> getTypes(List<Column> columns)
+    {
+        return columns.stream()
+                .map(column -> getType(parseTypeSignature(column.getType())))
+                .collect(toImmutableList());
+    }
+
+    /**
+     * Returns the value at the position of the block as the same Java object the client
+     * produces for the JSON encoding of the value.
+     */
+    public static Object getValue(Type type, Block block, int position)
+    {
+        // none of the supported types use the session to produce their values
+        Object value = type.getObjectValue(null, block, position);
+        if (value instanceof SqlVarbinary) {
+            return ((SqlVarbinary) value).getBytes();
+        }
+        if ((value instanceof SqlDate) || (value instanceof SqlDecimal)) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    private static long getLongParameter(TypeSignature signature, int index)
+    {
+        checkArgument(signature.getParameters().size() > index, "Type %s is missing parameter %s", signature, index);
+        return signature.getParameters().get(index).getLongLiteral();
+    }
+
+    private static class FlatBlockEncodingSerde
+            implements BlockEncodingSerde
+    {
+        private final Map<String, BlockEncodingFactory<?>> blockEncodings;
+
+        public FlatBlockEncodingSerde()
+        {
+            ImmutableMap.Builder<String, BlockEncodingFactory<?>> blockEncodings = ImmutableMap.builder();
+            for (BlockEncodingFactory<?> factory : ImmutableList.of(
+                    VariableWidthBlockEncoding.FACTORY,
+                    FixedWidthBlockEncoding.FACTORY,
+                    ByteArrayBlockEncoding.FACTORY,
+                    ShortArrayBlockEncoding.FACTORY,
+                    IntArrayBlockEncoding.FACTORY,
+                    LongArrayBlockEncoding.FACTORY,
+                    DictionaryBlockEncoding.FACTORY,
+                    RunLengthBlockEncoding.FACTORY)) {
+                blockEncodings.put(factory.getName(), factory);
+            }
+            this.blockEncodings = blockEncodings.build();
+        }
+
+        @Override
+        public BlockEncoding readBlockEncoding(SliceInput input)
+        {
+            int length = input.readInt();
+            String encodingName = input.readSlice(length).toString(UTF_8);
+
+            BlockEncodingFactory<?> blockEncoding = blockEncodings.get(encodingName);
+            checkArgument(blockEncoding != null, "Unknown block encoding %s", encodingName);
+
+            // flat encodings do not reference types, so no type manager is needed to read them
+            return blockEncoding.readEncoding(null, this, input);
+        }
+
+        @Override
+        public void writeBlockEncoding(SliceOutput output, BlockEncoding encoding)
+        {
+            String encodingName = encoding.getName();
+            checkArgument(blockEncodings.containsKey(encodingName), "Block encoding %s is not supported by the binary result format", encodingName);
+
+            byte[] nameBytes = encodingName.getBytes(UTF_8);
+            output.writeInt(nameBytes.length);
+            output.writeBytes(nameBytes);
+
+            BlockEncodingFactory<BlockEncoding> blockEncoding = encoding.getFactory();
+            blockEncoding.writeEncoding(this, output, encoding);
+        }
+    }
+}
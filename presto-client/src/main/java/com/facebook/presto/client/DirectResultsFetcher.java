@@ -0,0 +1,231 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.presto.client.OkHttpUtil.NullCallback;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.facebook.presto.client.BinaryResults.deserializePages;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_DIRECT_RESULTS_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_SIZE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.net.HttpHeaders.USER_AGENT;
+import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Reads the rows of a query directly from the output buffers of the workers, with a
+ * thread for each buffer. The pages of a response are queued until the client reads
+ * them, and a buffer is not read ahead while the queue is full.
+ */
+@ThreadSafe
+class DirectResultsFetcher
+        implements Closeable
+{
+    private static final String MAX_RESPONSE_SIZE = "1MB";
+    private static final int MAX_QUEUED_RESPONSES = 16;
+
+    private final OkHttpClient httpClient;
+    private final String userAgent;
+    private final List<Type> types;
+    private final long requestTimeoutNanos;
+    private final ExecutorService executor = newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("direct-results-%s")
+            .setDaemon(true)
+            .build());
+
+    private final BlockingQueue<List<ResultPage>> responses = new ArrayBlockingQueue<>(MAX_QUEUED_RESPONSES);
+    private final Map<URI, BufferFetcher> buffers = new ConcurrentHashMap<>();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public DirectResultsFetcher(OkHttpClient httpClient, String userAgent, List<Type> types, long requestTimeoutNanos)
+    {
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        this.userAgent = requireNonNull(userAgent, "userAgent is null");
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.requestTimeoutNanos = requestTimeoutNanos;
+    }
+
+    /**
+     * Starts reading the buffers at new locations. The token of a location already being
+     * read is replaced, since the coordinator signs the locations again in every response.
+     */
+    public void update(List<ResultLocation> locations)
+    {
+        for (ResultLocation location : locations) {
+            BufferFetcher buffer = buffers.get(location.getUri());
+            if (buffer != null) {
+                buffer.setLocation(location);
+                continue;
+            }
+            buffer = new BufferFetcher(location);
+            buffers.put(location.getUri(), buffer);
+            executor.execute(buffer);
+        }
+    }
+
+    /**
+     * Returns the pages of the next response, or null if none arrived before the timeout.
+     */
+    public List<ResultPage> poll(long timeout, TimeUnit unit)
+            throws InterruptedException
+    {
+        checkFailure();
+        List<ResultPage> pages = responses.poll(timeout, unit);
+        if (pages == null) {
+            checkFailure();
+        }
+        return pages;
+    }
+
+    /**
+     * Returns true when every known buffer has been read completely. All pages of these
+     * buffers have been queued at this point, but may not have been polled yet.
+     */
+    public boolean isFinished()
+    {
+        return buffers.values().stream().allMatch(BufferFetcher::isFinished);
+    }
+
+    @Override
+    public void close()
+    {
+        if (!closed.getAndSet(true)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void checkFailure()
+    {
+        RuntimeException exception = failure.get();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private class BufferFetcher
+            implements Runnable
+    {
+        private final AtomicReference<ResultLocation> location;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        public BufferFetcher(ResultLocation location)
+        {
+            this.location = new AtomicReference<>(requireNonNull(location, "location is null"));
+        }
+
+        public void setLocation(ResultLocation location)
+        {
+            this.location.set(location);
+        }
+
+        public boolean isFinished()
+        {
+            return finished.get();
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                long token = 0;
+                long lastSuccess = System.nanoTime();
+                while (!closed.get()) {
+                    ResultLocation currentLocation = location.get();
+                    Request request = prepareRequest(currentLocation, HttpUrl.get(currentLocation.getUri()).newBuilder().addPathSegment(String.valueOf(token)).build())
+                            .header(PRESTO_MAX_SIZE, MAX_RESPONSE_SIZE)
+                            .build();
+
+                    try (Response response = httpClient.newCall(request).execute()) {
+                        if (response.code() == HTTP_UNAVAILABLE) {
+                            throw new IOException("Server returned HTTP " + response.code());
+                        }
+                        if (response.code() != HTTP_OK) {
+                            throw new RuntimeException(format("Error fetching results at %s returned HTTP %s", request.url(), response.code()));
+                        }
+
+                        String nextToken = response.header(PRESTO_PAGE_NEXT_TOKEN);
+                        if (nextToken == null) {
+                            throw new RuntimeException(format("Error fetching results at %s returned a response without %s", request.url(), PRESTO_PAGE_NEXT_TOKEN));
+                        }
+                        List<ResultPage> pages = deserializePages(response.body().bytes()).stream()
+                                .map(page -> new ResultPage(types, page))
+                                .collect(toImmutableList());
+                        if (!pages.isEmpty()) {
+                            responses.put(pages);
+                        }
+                        token = Long.parseLong(nextToken);
+
+                        if (Boolean.parseBoolean(response.header(PRESTO_BUFFER_COMPLETE))) {
+                            // the buffer is destroyed once it is read, which lets the query finish
+                            httpClient.newCall(prepareRequest(currentLocation, HttpUrl.get(currentLocation.getUri())).delete().build()).enqueue(new NullCallback());
+                            finished.set(true);
+                            return;
+                        }
+                        lastSuccess = System.nanoTime();
+                    }
+                    catch (IOException e) {
+                        // the same token is requested again, which returns the same pages
+                        if ((System.nanoTime() - lastSuccess) > requestTimeoutNanos) {
+                            throw new RuntimeException(format("Error fetching results at %s", request.url()), e);
+                        }
+                        MILLISECONDS.sleep(100);
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private Request.Builder prepareRequest(ResultLocation location, HttpUrl url)
+    {
+        return new Request.Builder()
+                .addHeader(USER_AGENT, userAgent)
+                .addHeader(PRESTO_DIRECT_RESULTS_TOKEN, location.getToken())
+                .url(url);
+    }
+}
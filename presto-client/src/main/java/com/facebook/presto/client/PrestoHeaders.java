@@ -34,6 +34,9 @@ public final class PrestoHeaders
     public static final String PRESTO_CLEAR_TRANSACTION_ID = "X-Presto-Clear-Transaction-Id";
     public static final String PRESTO_CLIENT_INFO = "X-Presto-Client-Info";
     public static final String PRESTO_CLIENT_TAGS = "X-Presto-Client-Tags";
+    public static final String PRESTO_RESULT_FORMAT = "X-Presto-Result-Format";
+    public static final String PRESTO_DIRECT_RESULTS = "X-Presto-Direct-Results";
+    public static final String PRESTO_DIRECT_RESULTS_TOKEN = "X-Presto-Direct-Results-Token";
 
     public static final String PRESTO_CURRENT_STATE = "X-Presto-Current-State";
     public static final String PRESTO_MAX_WAIT = "X-Presto-Max-Wait";
@@ -13,9 +13,21 @@
  */
 package com.facebook.presto.client;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 
 public interface QueryData
 {
+    /**
+     * Returns the rows of the data when it was sent as JSON.
+     */
+    @Nullable
     Iterable<List<Object>> getData();
+
+    /**
+     * Returns the pages of the data when it was sent in the binary result format.
+     */
+    @Nullable
+    List<ResultPage> getResultPages();
 }
@@ -15,11 +15,13 @@ package com.facebook.presto.client;
 
 import com.facebook.presto.spi.type.NamedTypeSignature;
 import com.facebook.presto.spi.type.ParameterKind;
+import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeSignature;
 import com.facebook.presto.spi.type.TypeSignatureParameter;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nonnull;
@@ -35,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.facebook.presto.client.BinaryResults.getTypes;
 import static com.facebook.presto.spi.type.StandardTypes.ARRAY;
 import static com.facebook.presto.spi.type.StandardTypes.BIGINT;
 import static com.facebook.presto.spi.type.StandardTypes.BOOLEAN;
@@ -60,6 +63,7 @@ import static com.facebook.presto.spi.type.StandardTypes.VARCHAR;
 import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Suppliers.memoize;
 import static com.google.common.collect.Iterables.unmodifiableIterable;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
@@ -75,6 +79,9 @@ public class QueryResults
     private final URI nextUri;
     private final List<Column> columns;
     private final Iterable<List<Object>> data;
+    private final byte[] binaryData;
+    private final Supplier<List<ResultPage>> resultPages;
+    private final List<ResultLocation> resultLocations;
     private final StatementStats stats;
     private final QueryError error;
     private final String updateType;
@@ -91,9 +98,11 @@ public class QueryResults
             @JsonProperty("stats") StatementStats stats,
             @JsonProperty("error") QueryError error,
             @JsonProperty("updateType") String updateType,
-            @JsonProperty("updateCount") Long updateCount)
+            @JsonProperty("updateCount") Long updateCount,
+            @JsonProperty("binaryData") byte[] binaryData,
+            @JsonProperty("resultLocations") List<ResultLocation> resultLocations)
     {
-        this(id, infoUri, partialCancelUri, nextUri, columns, fixData(columns, data), stats, error, updateType, updateCount);
+        this(id, infoUri, partialCancelUri, nextUri, columns, fixData(columns, data), stats, error, updateType, updateCount, binaryData, resultLocations);
     }
 
     public QueryResults(
@@ -107,6 +116,23 @@ public class QueryResults
             QueryError error,
             String updateType,
             Long updateCount)
+    {
+        this(id, infoUri, partialCancelUri, nextUri, columns, data, stats, error, updateType, updateCount, null, null);
+    }
+
+    public QueryResults(
+            String id,
+            URI infoUri,
+            URI partialCancelUri,
+            URI nextUri,
+            List<Column> columns,
+            Iterable<List<Object>> data,
+            StatementStats stats,
+            QueryError error,
+            String updateType,
+            Long updateCount,
+            byte[] binaryData,
+            List<ResultLocation> resultLocations)
     {
         this.id = requireNonNull(id, "id is null");
         this.infoUri = requireNonNull(infoUri, "infoUri is null");
@@ -115,6 +141,13 @@ public class QueryResults
         this.columns = (columns != null) ? ImmutableList.copyOf(columns) : null;
         this.data = (data != null) ? unmodifiableIterable(data) : null;
         checkArgument(data == null || columns != null, "data present without columns");
+        checkArgument(binaryData == null || columns != null, "binary data present without columns");
+        checkArgument(data == null || binaryData == null, "data present in both formats");
+        this.binaryData = binaryData;
+        // binary data is decoded when it is first read
+        this.resultPages = memoize(() -> (binaryData != null) ? toResultPages(columns, binaryData) : null);
+        this.resultLocations = (resultLocations != null) ? ImmutableList.copyOf(resultLocations) : null;
+        checkArgument(resultLocations == null || columns != null, "result locations present without columns");
         this.stats = requireNonNull(stats, "stats is null");
         this.error = error;
         this.updateType = updateType;
@@ -169,6 +202,31 @@ public class QueryResults
         return data;
     }
 
+    @Nullable
+    @JsonProperty
+    public byte[] getBinaryData()
+    {
+        return binaryData;
+    }
+
+    @Nullable
+    @Override
+    public List<ResultPage> getResultPages()
+    {
+        return resultPages.get();
+    }
+
+    /**
+     * Returns the locations of the output buffers the rows of the query are read from,
+     * when the client asked to read them directly from the workers.
+     */
+    @Nullable
+    @JsonProperty
+    public List<ResultLocation> getResultLocations()
+    {
+        return resultLocations;
+    }
+
     @Nonnull
     @JsonProperty
     @Override
@@ -211,6 +269,8 @@ public class QueryResults
                 .add("nextUri", nextUri)
                 .add("columns", columns)
                 .add("hasData", data != null)
+                .add("hasBinaryData", binaryData != null)
+                .add("resultLocations", resultLocations)
                 .add("stats", stats)
                 .add("error", error)
                 .add("updateType", updateType)
@@ -218,6 +278,14 @@ public class QueryResults
                 .toString();
     }
 
+    private static List<ResultPage> toResultPages(List<Column> columns, byte[] binaryData)
+    {
+        List<Type> types = getTypes(columns);
+        return BinaryResults.deserializePages(binaryData).stream()
+                .map(page -> new ResultPage(types, page))
+                .collect(toList());
+    }
+
     @VisibleForTesting
     static Iterable<List<Object>> fixData(List<Column> columns, List<List<Object>> data)
     {
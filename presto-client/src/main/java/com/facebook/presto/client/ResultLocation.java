@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.annotation.concurrent.Immutable;
+
+import java.net.URI;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The location of an output buffer a client reads rows from directly, with the token
+ * the client sends in the {@link PrestoHeaders#PRESTO_DIRECT_RESULTS_TOKEN} header to
+ * read it. The token is not part of the location, so it does not end up in request logs.
+ */
+@Immutable
+public class ResultLocation
+{
+    private final URI uri;
+    private final String token;
+
+    @JsonCreator
+    public ResultLocation(
+            @JsonProperty("uri") URI uri,
+            @JsonProperty("token") String token)
+    {
+        this.uri = requireNonNull(uri, "uri is null");
+        this.token = requireNonNull(token, "token is null");
+    }
+
+    @JsonProperty
+    public URI getUri()
+    {
+        return uri;
+    }
+
+    @JsonProperty
+    public String getToken()
+    {
+        return token;
+    }
+
+    @Override
+    public String toString()
+    {
+        // the token is a credential
+        return toStringHelper(this)
+                .add("uri", uri)
+                .toString();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Page of rows received in the binary result format. Values are decoded from
+ * the blocks of the page when they are read.
+ */
+public class ResultPage
+{
+    private final List<Type> types;
+    private final Page page;
+
+    public ResultPage(List<Type> types, Page page)
+    {
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.page = requireNonNull(page, "page is null");
+        checkArgument(types.size() == page.getChannelCount(), "page has %s channels but there are %s types", page.getChannelCount(), types.size());
+    }
+
+    public int getPositionCount()
+    {
+        return page.getPositionCount();
+    }
+
+    public int getChannelCount()
+    {
+        return page.getChannelCount();
+    }
+
+    public Object getValue(int channel, int position)
+    {
+        return BinaryResults.getValue(types.get(channel), page.getBlock(channel), position);
+    }
+
+    /**
+     * Returns a view of the row at the position. The values are decoded on each access.
+     */
+    public List<Object> getRow(int position)
+    {
+        return new AbstractList<Object>()
+        {
+            @Override
+            public Object get(int channel)
+            {
+                return getValue(channel, position);
+            }
+
+            @Override
+            public int size()
+            {
+                return page.getChannelCount();
+            }
+        };
+    }
+}
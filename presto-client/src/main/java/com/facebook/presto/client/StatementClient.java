@@ -43,8 +43,11 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.facebook.presto.client.BinaryResults.BINARY_RESULT_FORMAT;
+import static com.facebook.presto.client.BinaryResults.getTypes;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_ADDED_PREPARE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CATALOG;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLEAR_SESSION;
@@ -52,8 +55,10 @@ import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLEAR_TRANSACTION_
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLIENT_INFO;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLIENT_TAGS;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_DEALLOCATED_PREPARE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_DIRECT_RESULTS;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_LANGUAGE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PREPARED_STATEMENT;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_RESULT_FORMAT;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SCHEMA;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SESSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SET_CATALOG;
@@ -68,6 +73,7 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.net.HttpHeaders.USER_AGENT;
 import static io.airlift.json.JsonCodec.jsonCodec;
+import static java.lang.Math.max;
 import static java.lang.String.format;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
@@ -75,6 +81,7 @@ import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 @ThreadSafe
 public class StatementClient
@@ -82,6 +89,7 @@ public class StatementClient
 {
     private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json; charset=utf-8");
     private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+    private static final long STATUS_INTERVAL_NANOS = SECONDS.toNanos(1);
 
     private static final Splitter SESSION_HEADER_SPLITTER = Splitter.on('=').limit(2).trimResults();
     private static final String USER_AGENT_VALUE = StatementClient.class.getSimpleName() +
@@ -92,6 +100,9 @@ public class StatementClient
     private final boolean debug;
     private final String query;
     private final AtomicReference<QueryResults> currentResults = new AtomicReference<>();
+    private final AtomicReference<QueryData> currentData = new AtomicReference<>();
+    private final AtomicReference<DirectResultsFetcher> directResultsFetcher = new AtomicReference<>();
+    private final AtomicLong nextStatusRequestNanos = new AtomicLong();
     private final AtomicReference<String> setCatalog = new AtomicReference<>();
     private final AtomicReference<String> setSchema = new AtomicReference<>();
     private final Map<String, String> setSessionProperties = new ConcurrentHashMap<>();
@@ -108,6 +119,15 @@ public class StatementClient
     private final String user;
 
     public StatementClient(OkHttpClient httpClient, ClientSession session, String query)
+    {
+        this(httpClient, session, query, false, false);
+    }
+
+    /**
+     * @param binaryResults request the rows in the binary result format
+     * @param directResults request the rows to be read directly from the workers, which requires the binary result format
+     */
+    public StatementClient(OkHttpClient httpClient, ClientSession session, String query, boolean binaryResults, boolean directResults)
     {
         requireNonNull(httpClient, "httpClient is null");
         requireNonNull(session, "session is null");
@@ -120,7 +140,7 @@ public class StatementClient
         this.requestTimeoutNanos = session.getClientRequestTimeout().roundTo(NANOSECONDS);
         this.user = session.getUser();
 
-        Request request = buildQueryRequest(session, query);
+        Request request = buildQueryRequest(session, query, binaryResults || directResults, directResults);
 
         JsonResponse<QueryResults> response = JsonResponse.execute(QUERY_RESULTS_CODEC, httpClient, request);
         if ((response.getStatusCode() != HTTP_OK) || !response.hasValue()) {
@@ -130,7 +150,7 @@ public class StatementClient
         processResponse(response.getHeaders(), response.getValue());
     }
 
-    private Request buildQueryRequest(ClientSession session, String query)
+    private Request buildQueryRequest(ClientSession session, String query, boolean binaryResults, boolean directResults)
     {
         HttpUrl url = HttpUrl.get(session.getServer());
         if (url == null) {
@@ -173,6 +193,13 @@ public class StatementClient
 
         builder.addHeader(PRESTO_TRANSACTION_ID, session.getTransactionId() == null ? "NONE" : session.getTransactionId());
 
+        if (binaryResults) {
+            builder.addHeader(PRESTO_RESULT_FORMAT, BINARY_RESULT_FORMAT);
+        }
+        if (directResults) {
+            builder.addHeader(PRESTO_DIRECT_RESULTS, "true");
+        }
+
         return builder.build();
     }
 
@@ -220,7 +247,7 @@ public class StatementClient
     public QueryData currentData()
     {
         checkState(isValid(), "current position is not valid (cursor past end)");
-        return currentResults.get();
+        return currentData.get();
     }
 
     public QueryStatusInfo finalStatusInfo()
@@ -285,6 +312,33 @@ public class StatementClient
 
     public boolean advance()
     {
+        DirectResultsFetcher fetcher = directResultsFetcher.get();
+        while ((fetcher != null) && !isClosed()) {
+            // rows read from the workers are returned while the status of the query is requested once per interval
+            URI nextUri = currentResults.get().getNextUri();
+            boolean finished = fetcher.isFinished();
+            long waitNanos = 0;
+            if (!finished) {
+                waitNanos = (nextUri == null) ? STATUS_INTERVAL_NANOS : max(0, nextStatusRequestNanos.get() - System.nanoTime());
+            }
+
+            List<ResultPage> pages = pollDirectResults(fetcher, waitNanos);
+            if (pages != null) {
+                currentData.set(new DirectQueryData(pages));
+                return true;
+            }
+
+            if (nextUri == null) {
+                // the buffers of a failed query are never completed
+                if (finished || isFailed()) {
+                    break;
+                }
+            }
+            else if (System.nanoTime() >= nextStatusRequestNanos.get()) {
+                break;
+            }
+        }
+
         URI nextUri = currentStatusInfo().getNextUri();
         if (isClosed() || (nextUri == null)) {
             valid.set(false);
@@ -373,6 +427,37 @@ public class StatementClient
         }
 
         currentResults.set(results);
+        currentData.set(results);
+        nextStatusRequestNanos.set(System.nanoTime() + STATUS_INTERVAL_NANOS);
+
+        if (results.getResultLocations() != null) {
+            DirectResultsFetcher fetcher = directResultsFetcher.get();
+            if (fetcher == null) {
+                fetcher = new DirectResultsFetcher(httpClient, USER_AGENT_VALUE, getTypes(results.getColumns()), requestTimeoutNanos);
+                directResultsFetcher.set(fetcher);
+            }
+            fetcher.update(results.getResultLocations());
+        }
+    }
+
+    private List<ResultPage> pollDirectResults(DirectResultsFetcher fetcher, long waitNanos)
+    {
+        try {
+            return fetcher.poll(waitNanos, NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            try {
+                close();
+            }
+            finally {
+                Thread.currentThread().interrupt();
+            }
+            throw new RuntimeException("StatementClient thread was interrupted");
+        }
+        catch (RuntimeException e) {
+            gone.set(true);
+            throw e;
+        }
     }
 
     private RuntimeException requestFailedException(String task, Request request, JsonResponse<QueryResults> response)
@@ -406,6 +491,10 @@ public class StatementClient
     public void close()
     {
         if (!closed.getAndSet(true)) {
+            DirectResultsFetcher fetcher = directResultsFetcher.get();
+            if (fetcher != null) {
+                fetcher.close();
+            }
             URI uri = currentResults.get().getNextUri();
             if (uri != null) {
                 httpDelete(uri);
@@ -421,6 +510,29 @@ public class StatementClient
         httpClient.newCall(request).enqueue(new NullCallback());
     }
 
+    private static class DirectQueryData
+            implements QueryData
+    {
+        private final List<ResultPage> resultPages;
+
+        public DirectQueryData(List<ResultPage> resultPages)
+        {
+            this.resultPages = requireNonNull(resultPages, "resultPages is null");
+        }
+
+        @Override
+        public Iterable<List<Object>> getData()
+        {
+            return null;
+        }
+
+        @Override
+        public List<ResultPage> getResultPages()
+        {
+            return resultPages;
+        }
+    }
+
     private static String urlEncode(String value)
     {
         try {
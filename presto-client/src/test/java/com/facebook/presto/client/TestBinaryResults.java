@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.json.JsonCodec;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.List;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.CharType.createCharType;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.DecimalType.createDecimalType;
+import static com.facebook.presto.spi.type.Decimals.encodeUnscaledValue;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.RealType.REAL;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.spi.type.VarcharType.createVarcharType;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.slice.Slices.wrappedBuffer;
+import static java.lang.Float.floatToRawIntBits;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestBinaryResults
+{
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+
+    @Test
+    public void testValues()
+    {
+        assertValue(BIGINT, "bigint", blockOf(BIGINT, 1000L), 1000L);
+        assertValue(INTEGER, "integer", blockOf(INTEGER, 100L), 100);
+        assertValue(SMALLINT, "smallint", blockOf(SMALLINT, 10L), (short) 10);
+        assertValue(TINYINT, "tinyint", blockOf(TINYINT, 1L), (byte) 1);
+        assertValue(BOOLEAN, "boolean", blockOf(BOOLEAN, true), true);
+        assertValue(DOUBLE, "double", blockOf(DOUBLE, 100.23456), 100.23456);
+        assertValue(REAL, "real", blockOf(REAL, (long) floatToRawIntBits(100.23456f)), 100.23456f);
+        assertValue(DATE, "date", blockOf(DATE, 17348L), "2017-07-01");
+        assertValue(VARCHAR, "varchar", blockOf(VARCHAR, utf8Slice("teststring")), "teststring");
+        assertValue(createVarcharType(20), "varchar(20)", blockOf(createVarcharType(20), utf8Slice("teststring")), "teststring");
+        assertValue(createCharType(5), "char(5)", blockOf(createCharType(5), utf8Slice("abc")), "abc  ");
+        assertValue(VARBINARY, "varbinary", blockOf(VARBINARY, wrappedBuffer(new byte[] {1, 2, 3})), new byte[] {1, 2, 3});
+        assertValue(createDecimalType(3, 2), "decimal(3,2)", blockOf(createDecimalType(3, 2), 215L), "2.15");
+        assertValue(
+                createDecimalType(30, 3),
+                "decimal(30,3)",
+                blockOf(createDecimalType(30, 3), encodeUnscaledValue(new BigInteger("12345678901234567890123"))),
+                "12345678901234567890.123");
+        assertValue(BIGINT, "bigint", blockOf(BIGINT, null), null);
+    }
+
+    @Test
+    public void testEncodings()
+    {
+        Block dictionary = blockOf(VARCHAR, utf8Slice("a"), utf8Slice("b"));
+        Page page = new Page(
+                new DictionaryBlock(dictionary, new int[] {1, 0, 1}),
+                new RunLengthEncodedBlock(blockOf(BIGINT, 7L), 3));
+
+        List<ResultPage> pages = roundTrip(ImmutableList.of("varchar", "bigint"), ImmutableList.of(page));
+        assertEquals(pages.size(), 1);
+        ResultPage resultPage = pages.get(0);
+        assertEquals(resultPage.getPositionCount(), 3);
+        assertEquals(resultPage.getRow(0), ImmutableList.of("b", 7L));
+        assertEquals(resultPage.getRow(1), ImmutableList.of("a", 7L));
+        assertEquals(resultPage.getRow(2), ImmutableList.of("b", 7L));
+    }
+
+    @Test
+    public void testSupportedTypes()
+    {
+        assertTrue(BinaryResults.isSupportedType(createDecimalType(30, 3).getTypeSignature()));
+        assertTrue(BinaryResults.isSupportedType(createVarcharType(20).getTypeSignature()));
+        assertFalse(BinaryResults.isSupportedType(TIMESTAMP.getTypeSignature()));
+    }
+
+    private static void assertValue(Type type, String typeName, Block block, Object expected)
+    {
+        List<ResultPage> pages = roundTrip(ImmutableList.of(typeName), ImmutableList.of(new Page(block)));
+        assertEquals(pages.size(), 1);
+        assertEquals(pages.get(0).getPositionCount(), 1);
+        Object value = pages.get(0).getValue(0, 0);
+        if (expected == null) {
+            assertNull(value, type.toString());
+        }
+        else {
+            assertEquals(value, expected, type.toString());
+        }
+    }
+
+    private static List<ResultPage> roundTrip(List<String> types, List<Page> pages)
+    {
+        ImmutableList.Builder<Column> columns = ImmutableList.builder();
+        for (int i = 0; i < types.size(); i++) {
+            String type = types.get(i);
+            columns.add(new Column("column" + i, type, new ClientTypeSignature(parseTypeSignature(type))));
+        }
+
+        QueryResults results = new QueryResults(
+                "test",
+                URI.create("http://localhost/query.html?test"),
+                null,
+                null,
+                columns.build(),
+                null,
+                new StatementStats("FINISHED", false, true, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, null),
+                null,
+                null,
+                null,
+                BinaryResults.serializePages(pages),
+                null);
+
+        QueryResults decoded = QUERY_RESULTS_CODEC.fromJson(QUERY_RESULTS_CODEC.toJson(results));
+        assertNull(decoded.getData());
+        return decoded.getResultPages();
+    }
+
+    private static Block blockOf(Type type, Object... values)
+    {
+        BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), values.length);
+        for (Object value : values) {
+            if (value == null) {
+                blockBuilder.appendNull();
+            }
+            else if (value instanceof Boolean) {
+                type.writeBoolean(blockBuilder, (Boolean) value);
+            }
+            else if (value instanceof Long) {
+                type.writeLong(blockBuilder, (Long) value);
+            }
+            else if (value instanceof Double) {
+                type.writeDouble(blockBuilder, (Double) value);
+            }
+            else {
+                type.writeSlice(blockBuilder, (Slice) value);
+            }
+        }
+        return blockBuilder.build();
+    }
+}
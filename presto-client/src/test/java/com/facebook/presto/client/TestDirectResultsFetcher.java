@@ -0,0 +1,494 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.presto.client.BinaryResults.serializePages;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_DIRECT_RESULTS_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(singleThreaded = true)
+public class TestDirectResultsFetcher
+{
+    private static final long REQUEST_TIMEOUT_NANOS = SECONDS.toNanos(10);
+
+    private MockWebServer server;
+    private TestingBuffers buffers;
+    private OkHttpClient httpClient;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        buffers = new TestingBuffers();
+        server = new MockWebServer();
+        server.setDispatcher(buffers);
+        server.start();
+        httpClient = new OkHttpClient();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        server.close();
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+    @Test
+    public void testMultipleBuffers()
+            throws Exception
+    {
+        TestingBuffer first = buffers.add("/v1/results/query.1.0/0", createPage(0, 10), createPage(10, 10), createPage(20, 10));
+        TestingBuffer second = buffers.add("/v1/results/query.1.1/0", createPage(100, 5), createPage(105, 5));
+        first.setComplete();
+        second.setComplete();
+
+        try (DirectResultsFetcher fetcher = createFetcher(REQUEST_TIMEOUT_NANOS)) {
+            fetcher.update(ImmutableList.of(createLocation(first, "first-token"), createLocation(second, "second-token")));
+            assertEquals(readAll(fetcher), ImmutableMultiset.copyOf(concat(values(0, 30), values(100, 10))));
+        }
+
+        // every buffer is read with its own token, and deleted once it is complete
+        first.assertDeleted("first-token");
+        second.assertDeleted("second-token");
+        assertEquals(first.getTokens(), ImmutableList.of("first-token"));
+        assertEquals(second.getTokens(), ImmutableList.of("second-token"));
+    }
+
+    @Test
+    public void testEmptyBuffer()
+            throws Exception
+    {
+        TestingBuffer buffer = buffers.add("/v1/results/query.1.0/0");
+        buffer.setComplete();
+
+        try (DirectResultsFetcher fetcher = createFetcher(REQUEST_TIMEOUT_NANOS)) {
+            assertTrue(fetcher.isFinished());
+            fetcher.update(ImmutableList.of(createLocation(buffer, "token")));
+            assertEquals(readAll(fetcher), ImmutableMultiset.of());
+            assertTrue(fetcher.isFinished());
+        }
+        buffer.assertDeleted("token");
+    }
+
+    @Test
+    public void testRetryServiceUnavailable()
+            throws Exception
+    {
+        TestingBuffer buffer = buffers.add("/v1/results/query.1.0/0", createPage(0, 10), createPage(10, 10));
+        buffer.setComplete();
+        buffer.failNextRequests(3, 503);
+
+        try (DirectResultsFetcher fetcher = createFetcher(REQUEST_TIMEOUT_NANOS)) {
+            fetcher.update(ImmutableList.of(createLocation(buffer, "token")));
+            assertEquals(readAll(fetcher), ImmutableMultiset.copyOf(values(0, 20)));
+        }
+
+        // the first token is requested again until it succeeds, and no page is read twice
+        assertEquals(buffer.getRequestedTokens(), ImmutableList.of(0L, 0L, 0L, 0L, 1L, 2L));
+        buffer.assertDeleted("token");
+    }
+
+    @Test
+    public void testServiceUnavailableTimeout()
+            throws Exception
+    {
+        TestingBuffer buffer = buffers.add("/v1/results/query.1.0/0", createPage(0, 10));
+        buffer.setComplete();
+        buffer.failNextRequests(Integer.MAX_VALUE, 503);
+
+        try (DirectResultsFetcher fetcher = createFetcher(MILLISECONDS.toNanos(500))) {
+            fetcher.update(ImmutableList.of(createLocation(buffer, "token")));
+            assertFailure(fetcher, "Error fetching results at " + server.url(buffer.getPath()) + "/0");
+            assertFalse(fetcher.isFinished());
+        }
+    }
+
+    @Test
+    public void testFailure()
+            throws Exception
+    {
+        TestingBuffer failed = buffers.add("/v1/results/query.1.0/0", createPage(0, 10));
+        TestingBuffer other = buffers.add("/v1/results/query.1.1/0", createPage(10, 10));
+        failed.failNextRequests(1, 403);
+
+        try (DirectResultsFetcher fetcher = createFetcher(REQUEST_TIMEOUT_NANOS)) {
+            fetcher.update(ImmutableList.of(createLocation(failed, "token"), createLocation(other, "token")));
+            // a failed buffer fails the whole read, even while other buffers still return rows
+            assertFailure(fetcher, "Error fetching results at " + server.url(failed.getPath()) + "/0 returned HTTP 403");
+            assertFalse(fetcher.isFinished());
+        }
+
+        // a failed buffer is not retried
+        assertEquals(failed.getRequestedTokens(), ImmutableList.of(0L));
+        assertFalse(failed.isDeleted());
+    }
+
+    @Test
+    public void testLateBufferLocations()
+            throws Exception
+    {
+        TestingBuffer first = buffers.add("/v1/results/query.1.0/0", createPage(0, 10));
+        TestingBuffer second = buffers.add("/v1/results/query.1.1/0", createPage(10, 10));
+        first.setComplete();
+        second.setComplete();
+
+        try (DirectResultsFetcher fetcher = createFetcher(REQUEST_TIMEOUT_NANOS)) {
+            fetcher.update(ImmutableList.of(createLocation(first, "token")));
+            assertEquals(readAll(fetcher), ImmutableMultiset.copyOf(values(0, 10)));
+            assertTrue(fetcher.isFinished());
+
+            // the coordinator sends the locations of all buffers in every response, and a location already read is not read again
+            fetcher.update(ImmutableList.of(createLocation(first, "token"), createLocation(second, "token")));
+            assertEquals(readAll(fetcher), ImmutableMultiset.copyOf(values(10, 10)));
+            assertTrue(fetcher.isFinished());
+        }
+
+        assertEquals(first.getRequestedTokens(), ImmutableList.of(0L, 1L));
+        assertEquals(second.getRequestedTokens(), ImmutableList.of(0L, 1L));
+    }
+
+    @Test
+    public void testRefreshedToken()
+            throws Exception
+    {
+        TestingBuffer buffer = buffers.add("/v1/results/query.1.0/0", createPage(0, 10));
+
+        try (DirectResultsFetcher fetcher = createFetcher(REQUEST_TIMEOUT_NANOS)) {
+            fetcher.update(ImmutableList.of(createLocation(buffer, "old-token")));
+            assertEquals(readPages(fetcher, 1), ImmutableMultiset.copyOf(values(0, 10)));
+            assertFalse(fetcher.isFinished());
+
+            // the location is signed again in every response of the coordinator
+            fetcher.update(ImmutableList.of(createLocation(buffer, "new-token")));
+            buffer.waitForToken("new-token");
+            buffer.setComplete();
+            assertEquals(readAll(fetcher), ImmutableMultiset.of());
+        }
+
+        assertEquals(buffer.getTokens().get(0), "old-token");
+        assertEquals(buffer.getTokens().get(buffer.getTokens().size() - 1), "new-token");
+        buffer.assertDeleted("new-token");
+    }
+
+    @Test
+    public void testClose()
+            throws Exception
+    {
+        TestingBuffer buffer = buffers.add("/v1/results/query.1.0/0", createPage(0, 10));
+
+        DirectResultsFetcher fetcher = createFetcher(REQUEST_TIMEOUT_NANOS);
+        fetcher.update(ImmutableList.of(createLocation(buffer, "token")));
+        assertEquals(readPages(fetcher, 1), ImmutableMultiset.copyOf(values(0, 10)));
+
+        fetcher.close();
+        // closing twice is a no-op
+        fetcher.close();
+
+        // the buffer is no longer polled once the current request returns
+        MILLISECONDS.sleep(500);
+        int requestCount = buffer.getRequestedTokens().size();
+        MILLISECONDS.sleep(500);
+        assertEquals(buffer.getRequestedTokens().size(), requestCount);
+
+        // the buffer of an abandoned read is not deleted, since the query is canceled through the coordinator
+        assertFalse(fetcher.isFinished());
+        assertFalse(buffer.isDeleted());
+    }
+
+    private DirectResultsFetcher createFetcher(long requestTimeoutNanos)
+    {
+        return new DirectResultsFetcher(httpClient, "test", ImmutableList.of(BIGINT), requestTimeoutNanos);
+    }
+
+    private ResultLocation createLocation(TestingBuffer buffer, String token)
+    {
+        return new ResultLocation(server.url(buffer.getPath()).uri(), token);
+    }
+
+    private static Multiset<Object> readAll(DirectResultsFetcher fetcher)
+            throws InterruptedException
+    {
+        ImmutableMultiset.Builder<Object> values = ImmutableMultiset.builder();
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            boolean finished = fetcher.isFinished();
+            List<ResultPage> pages = fetcher.poll(10, MILLISECONDS);
+            if (pages != null) {
+                addValues(values, pages);
+            }
+            else if (finished) {
+                // all pages of finished buffers are queued before they are finished
+                return values.build();
+            }
+        }
+        fail("buffers are not finished");
+        return null;
+    }
+
+    private static Multiset<Object> readPages(DirectResultsFetcher fetcher, int responseCount)
+            throws InterruptedException
+    {
+        ImmutableMultiset.Builder<Object> values = ImmutableMultiset.builder();
+        for (int i = 0; i < responseCount; i++) {
+            List<ResultPage> pages = fetcher.poll(10, SECONDS);
+            if (pages == null) {
+                fail("no response was read");
+            }
+            addValues(values, pages);
+        }
+        return values.build();
+    }
+
+    private static void addValues(ImmutableMultiset.Builder<Object> values, List<ResultPage> pages)
+    {
+        for (ResultPage page : pages) {
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                values.add(page.getValue(0, position));
+            }
+        }
+    }
+
+    private static void assertFailure(DirectResultsFetcher fetcher, String message)
+            throws InterruptedException
+    {
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            try {
+                fetcher.poll(10, MILLISECONDS);
+            }
+            catch (RuntimeException e) {
+                assertEquals(e.getMessage(), message);
+                // the failure is reported to every later poll
+                try {
+                    fetcher.poll(0, MILLISECONDS);
+                    fail("expected RuntimeException");
+                }
+                catch (RuntimeException again) {
+                    assertEquals(again, e);
+                }
+                return;
+            }
+        }
+        fail("failure was not reported");
+    }
+
+    private static Page createPage(long start, int length)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), length);
+        for (long value : values(start, length)) {
+            BIGINT.writeLong(blockBuilder, value);
+        }
+        return new Page(blockBuilder.build());
+    }
+
+    private static List<Long> values(long start, int length)
+    {
+        ImmutableList.Builder<Long> values = ImmutableList.builder();
+        for (long value = start; value < start + length; value++) {
+            values.add(value);
+        }
+        return values.build();
+    }
+
+    private static List<Long> concat(List<Long> first, List<Long> second)
+    {
+        return ImmutableList.<Long>builder()
+                .addAll(first)
+                .addAll(second)
+                .build();
+    }
+
+    /**
+     * Serves output buffers the way workers do, one page per response.
+     */
+    private static class TestingBuffers
+            extends Dispatcher
+    {
+        private final Map<String, TestingBuffer> buffers = new ConcurrentHashMap<>();
+
+        public TestingBuffer add(String path, Page... pages)
+        {
+            TestingBuffer buffer = new TestingBuffer(path, ImmutableList.copyOf(pages));
+            buffers.put(path, buffer);
+            return buffer;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request)
+        {
+            URI uri = request.getRequestUrl().uri();
+            String path = uri.getPath();
+            if (request.getMethod().equals("DELETE")) {
+                TestingBuffer buffer = buffers.get(path);
+                if (buffer == null) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                buffer.delete(request.getHeader(PRESTO_DIRECT_RESULTS_TOKEN));
+                return new MockResponse().setResponseCode(204);
+            }
+
+            int separator = path.lastIndexOf('/');
+            TestingBuffer buffer = buffers.get(path.substring(0, separator));
+            if (buffer == null) {
+                return new MockResponse().setResponseCode(404);
+            }
+            return buffer.get(Long.parseLong(path.substring(separator + 1)), request.getHeader(PRESTO_DIRECT_RESULTS_TOKEN));
+        }
+    }
+
+    private static class TestingBuffer
+    {
+        private final String path;
+        private final List<Page> pages;
+        private final List<Long> requestedTokens = new CopyOnWriteArrayList<>();
+        private final List<String> tokens = new CopyOnWriteArrayList<>();
+        private final AtomicInteger remainingFailures = new AtomicInteger();
+        private volatile int failureCode;
+        private volatile boolean complete;
+        private volatile String deleteToken;
+
+        public TestingBuffer(String path, List<Page> pages)
+        {
+            this.path = path;
+            this.pages = pages;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        public void setComplete()
+        {
+            complete = true;
+        }
+
+        public void failNextRequests(int count, int code)
+        {
+            failureCode = code;
+            remainingFailures.set(count);
+        }
+
+        public List<Long> getRequestedTokens()
+        {
+            return ImmutableList.copyOf(requestedTokens);
+        }
+
+        /**
+         * Returns the distinct tokens the buffer was read with, in the order they were first sent.
+         */
+        public List<String> getTokens()
+        {
+            return tokens.stream()
+                    .distinct()
+                    .collect(ImmutableList.toImmutableList());
+        }
+
+        public boolean isDeleted()
+        {
+            return deleteToken != null;
+        }
+
+        public void waitForToken(String token)
+                throws InterruptedException
+        {
+            long deadline = System.nanoTime() + SECONDS.toNanos(10);
+            while (!tokens.contains(token)) {
+                assertTrue(System.nanoTime() < deadline, "token was not sent: " + token);
+                MILLISECONDS.sleep(10);
+            }
+        }
+
+        public void assertDeleted(String token)
+                throws InterruptedException
+        {
+            // the buffer is deleted asynchronously
+            long deadline = System.nanoTime() + SECONDS.toNanos(10);
+            while (deleteToken == null) {
+                assertTrue(System.nanoTime() < deadline, "buffer was not deleted: " + path);
+                MILLISECONDS.sleep(10);
+            }
+            assertEquals(deleteToken, token);
+        }
+
+        public void delete(String token)
+        {
+            deleteToken = token;
+        }
+
+        public MockResponse get(long token, String authToken)
+        {
+            requestedTokens.add(token);
+            tokens.add(String.valueOf(authToken));
+
+            if (remainingFailures.getAndUpdate(remaining -> Math.max(remaining - 1, 0)) > 0) {
+                return new MockResponse().setResponseCode(failureCode);
+            }
+
+            if (token < pages.size()) {
+                return createResponse(token, token + 1, ImmutableList.of(pages.get((int) token)), false);
+            }
+            if (complete) {
+                return createResponse(token, token, ImmutableList.of(), true);
+            }
+            // workers wait for pages before they return an empty response
+            return createResponse(token, token, ImmutableList.of(), false)
+                    .setBodyDelay(50, MILLISECONDS);
+        }
+
+        private static MockResponse createResponse(long token, long nextToken, List<Page> pages, boolean complete)
+        {
+            return new MockResponse()
+                    .addHeader(PRESTO_PAGE_TOKEN, token)
+                    .addHeader(PRESTO_PAGE_NEXT_TOKEN, nextToken)
+                    .addHeader(PRESTO_BUFFER_COMPLETE, complete)
+                    .setBody(new Buffer().write(serializePages(pages)));
+        }
+    }
+}
@@ -253,6 +253,7 @@ public class BackgroundHiveSplitLoader
                         0,
                         file.getLen(),
                         file.getLen(),
+                        file.getModificationTime(),
                         files.getSchema(),
                         files.getPartitionKeys(),
                         splittable,
@@ -344,6 +345,7 @@ public class BackgroundHiveSplitLoader
                         0,
                         file.getLen(),
                         file.getLen(),
+                        file.getModificationTime(),
                         iterator.getSchema(),
                         iterator.getPartitionKeys(),
                         splittable,
@@ -375,6 +377,7 @@ public class BackgroundHiveSplitLoader
                         0,
                         file.getLen(),
                         file.getLen(),
+                        file.getModificationTime(),
                         iterator.getSchema(),
                         iterator.getPartitionKeys(),
                         splittable,
@@ -414,6 +417,7 @@ public class BackgroundHiveSplitLoader
                     split.getStart(),
                     split.getLength(),
                     file.getLen(),
+                    file.getModificationTime(),
                     schema,
                     partitionKeys,
                     false,
@@ -488,6 +492,7 @@ public class BackgroundHiveSplitLoader
             long start,
             long length,
             long fileSize,
+            long fileModifiedTime,
             Properties schema,
             List<HivePartitionKey> partitionKeys,
             boolean splittable,
@@ -541,6 +546,7 @@ public class BackgroundHiveSplitLoader
                 start,
                 start + length,
                 fileSize,
+                fileModifiedTime,
                 schema,
                 partitionKeys,
                 blocks,
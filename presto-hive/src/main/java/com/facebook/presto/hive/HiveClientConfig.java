@@ -23,6 +23,7 @@ import io.airlift.configuration.DefunctConfig;
 import io.airlift.configuration.LegacyConfig;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
+import io.airlift.units.MaxDataSize;
 import io.airlift.units.MinDataSize;
 import io.airlift.units.MinDuration;
 import org.joda.time.DateTimeZone;
@@ -30,10 +31,12 @@ import org.joda.time.DateTimeZone;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import java.io.File;
 import java.util.List;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 @DefunctConfig({
@@ -104,6 +107,10 @@ public class HiveClientConfig
     private DataSize orcStreamBufferSize = new DataSize(8, MEGABYTE);
     private DataSize orcMaxReadBlockSize = new DataSize(16, MEGABYTE);
     private boolean orcLazyReadSmallRanges = true;
+    private boolean orcStripePrefetchEnabled;
+    private DataSize orcStripePrefetchMaxMemory = new DataSize(64, MEGABYTE);
+    private DataSize orcFileTailCacheSize = new DataSize(16, MEGABYTE);
+    private DataSize orcStripeFooterCacheSize = new DataSize(16, MEGABYTE);
     private boolean orcOptimizedWriterEnabled;
 
     private boolean rcfileOptimizedWriterEnabled = true;
@@ -123,6 +130,12 @@ public class HiveClientConfig
     private boolean writesToNonManagedTablesEnabled;
     private boolean tableStatisticsEnabled = true;
 
+    private boolean dataCacheEnabled;
+    private File dataCacheDirectory;
+    private DataSize dataCacheMaxMemorySize = new DataSize(256, MEGABYTE);
+    private DataSize dataCacheMaxDiskSize = new DataSize(100, GIGABYTE);
+    private DataSize dataCacheBlockSize = new DataSize(1, MEGABYTE);
+
     public int getMaxInitialSplits()
     {
         return maxInitialSplits;
@@ -730,6 +743,61 @@ public class HiveClientConfig
         return this;
     }
 
+    public boolean isOrcStripePrefetchEnabled()
+    {
+        return orcStripePrefetchEnabled;
+    }
+
+    @Config("hive.orc.stripe-prefetch.enabled")
+    @ConfigDescription("Read the next ORC stripe in the background while the current stripe is processed")
+    public HiveClientConfig setOrcStripePrefetchEnabled(boolean orcStripePrefetchEnabled)
+    {
+        this.orcStripePrefetchEnabled = orcStripePrefetchEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getOrcStripePrefetchMaxMemory()
+    {
+        return orcStripePrefetchMaxMemory;
+    }
+
+    @Config("hive.orc.stripe-prefetch.max-memory")
+    @ConfigDescription("Maximum memory of an ORC reader including the prefetched stripe; larger stripes are not prefetched")
+    public HiveClientConfig setOrcStripePrefetchMaxMemory(DataSize orcStripePrefetchMaxMemory)
+    {
+        this.orcStripePrefetchMaxMemory = orcStripePrefetchMaxMemory;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getOrcFileTailCacheSize()
+    {
+        return orcFileTailCacheSize;
+    }
+
+    @Config("hive.orc.file-tail-cache-size")
+    @ConfigDescription("Maximum size of the cache of parsed ORC file footers shared by all splits on a worker")
+    public HiveClientConfig setOrcFileTailCacheSize(DataSize orcFileTailCacheSize)
+    {
+        this.orcFileTailCacheSize = orcFileTailCacheSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getOrcStripeFooterCacheSize()
+    {
+        return orcStripeFooterCacheSize;
+    }
+
+    @Config("hive.orc.stripe-footer-cache-size")
+    @ConfigDescription("Maximum size of the cache of parsed ORC stripe footers shared by all splits on a worker")
+    public HiveClientConfig setOrcStripeFooterCacheSize(DataSize orcStripeFooterCacheSize)
+    {
+        this.orcStripeFooterCacheSize = orcStripeFooterCacheSize;
+        return this;
+    }
+
     public boolean isOrcBloomFiltersEnabled()
     {
         return orcBloomFiltersEnabled;
@@ -951,4 +1019,71 @@ public class HiveClientConfig
     {
         return tableStatisticsEnabled;
     }
+
+    public boolean isDataCacheEnabled()
+    {
+        return dataCacheEnabled;
+    }
+
+    @Config("hive.data-cache.enabled")
+    @ConfigDescription("Cache byte ranges of remote files on the worker")
+    public HiveClientConfig setDataCacheEnabled(boolean dataCacheEnabled)
+    {
+        this.dataCacheEnabled = dataCacheEnabled;
+        return this;
+    }
+
+    public File getDataCacheDirectory()
+    {
+        return dataCacheDirectory;
+    }
+
+    @Config("hive.data-cache.directory")
+    @ConfigDescription("Local directory for cached file blocks. Only the memory tier is used when not set")
+    public HiveClientConfig setDataCacheDirectory(File dataCacheDirectory)
+    {
+        this.dataCacheDirectory = dataCacheDirectory;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getDataCacheMaxMemorySize()
+    {
+        return dataCacheMaxMemorySize;
+    }
+
+    @Config("hive.data-cache.max-memory-size")
+    public HiveClientConfig setDataCacheMaxMemorySize(DataSize dataCacheMaxMemorySize)
+    {
+        this.dataCacheMaxMemorySize = dataCacheMaxMemorySize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getDataCacheMaxDiskSize()
+    {
+        return dataCacheMaxDiskSize;
+    }
+
+    @Config("hive.data-cache.max-disk-size")
+    public HiveClientConfig setDataCacheMaxDiskSize(DataSize dataCacheMaxDiskSize)
+    {
+        this.dataCacheMaxDiskSize = dataCacheMaxDiskSize;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("4kB")
+    @MaxDataSize("64MB")
+    public DataSize getDataCacheBlockSize()
+    {
+        return dataCacheBlockSize;
+    }
+
+    @Config("hive.data-cache.block-size")
+    public HiveClientConfig setDataCacheBlockSize(DataSize dataCacheBlockSize)
+    {
+        this.dataCacheBlockSize = dataCacheBlockSize;
+        return this;
+    }
 }
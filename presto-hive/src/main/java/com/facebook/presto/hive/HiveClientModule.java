@@ -13,12 +13,14 @@
  */
 package com.facebook.presto.hive;
 
+import com.facebook.presto.hive.cache.HiveDataCache;
 import com.facebook.presto.hive.metastore.SemiTransactionalHiveMetastore;
 import com.facebook.presto.hive.orc.DwrfPageSourceFactory;
 import com.facebook.presto.hive.orc.OrcPageSourceFactory;
 import com.facebook.presto.hive.parquet.ParquetPageSourceFactory;
 import com.facebook.presto.hive.parquet.ParquetRecordCursorProvider;
 import com.facebook.presto.hive.rcfile.RcFilePageSourceFactory;
+import com.facebook.presto.orc.OrcMetadataCache;
 import com.facebook.presto.spi.NodeManager;
 import com.facebook.presto.spi.PageIndexerFactory;
 import com.facebook.presto.spi.connector.ConnectorNodePartitioningProvider;
@@ -110,6 +112,11 @@ public class HiveClientModule
         binder.bind(FileFormatDataSourceStats.class).in(Scopes.SINGLETON);
         newExporter(binder).export(FileFormatDataSourceStats.class).as(generatedNameOf(FileFormatDataSourceStats.class, connectorId));
 
+        newExporter(binder).export(OrcMetadataCache.class).as(generatedNameOf(OrcMetadataCache.class, connectorId));
+
+        binder.bind(HiveDataCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(HiveDataCache.class).as(generatedNameOf(HiveDataCache.class, connectorId));
+
         Multibinder<HivePageSourceFactory> pageSourceFactoryBinder = newSetBinder(binder, HivePageSourceFactory.class);
         pageSourceFactoryBinder.addBinding().to(OrcPageSourceFactory.class).in(Scopes.SINGLETON);
         pageSourceFactoryBinder.addBinding().to(DwrfPageSourceFactory.class).in(Scopes.SINGLETON);
@@ -129,6 +136,13 @@ public class HiveClientModule
         return newCachedThreadPool(daemonThreadsNamed("hive-" + hiveClientId + "-%s"));
     }
 
+    @Singleton
+    @Provides
+    public OrcMetadataCache createOrcMetadataCache(HiveClientConfig hiveClientConfig)
+    {
+        return new OrcMetadataCache(hiveClientConfig.getOrcFileTailCacheSize(), hiveClientConfig.getOrcStripeFooterCacheSize());
+    }
+
     @ForCachingHiveMetastore
     @Singleton
     @Provides
@@ -35,6 +35,8 @@ public final class HiveSessionProperties
     private static final String ORC_STREAM_BUFFER_SIZE = "orc_stream_buffer_size";
     private static final String ORC_MAX_READ_BLOCK_SIZE = "orc_max_read_block_size";
     private static final String ORC_LAZY_READ_SMALL_RANGES = "orc_lazy_read_small_ranges";
+    private static final String ORC_STRIPE_PREFETCH_ENABLED = "orc_stripe_prefetch_enabled";
+    private static final String ORC_STRIPE_PREFETCH_MAX_MEMORY = "orc_stripe_prefetch_max_memory";
     private static final String ORC_OPTIMIZED_WRITER_ENABLED = "orc_optimized_writer_enabled";
     private static final String ORC_OPTIMIZED_WRITER_VALIDATE = "orc_optimized_writer_validate";
     private static final String PARQUET_PREDICATE_PUSHDOWN_ENABLED = "parquet_predicate_pushdown_enabled";
@@ -91,6 +93,16 @@ public final class HiveSessionProperties
                         "Experimental: ORC: Read small file segments lazily",
                         config.isOrcLazyReadSmallRanges(),
                         false),
+                booleanSessionProperty(
+                        ORC_STRIPE_PREFETCH_ENABLED,
+                        "Experimental: ORC: Read the next stripe in the background",
+                        config.isOrcStripePrefetchEnabled(),
+                        false),
+                dataSizeSessionProperty(
+                        ORC_STRIPE_PREFETCH_MAX_MEMORY,
+                        "Experimental: ORC: Maximum memory of a reader including the prefetched stripe",
+                        config.getOrcStripePrefetchMaxMemory(),
+                        false),
                 booleanSessionProperty(
                         ORC_OPTIMIZED_WRITER_ENABLED,
                         "Experimental: ORC: Enable optimized writer",
@@ -188,6 +200,16 @@ public final class HiveSessionProperties
         return session.getProperty(ORC_LAZY_READ_SMALL_RANGES, Boolean.class);
     }
 
+    public static boolean isOrcStripePrefetchEnabled(ConnectorSession session)
+    {
+        return session.getProperty(ORC_STRIPE_PREFETCH_ENABLED, Boolean.class);
+    }
+
+    public static DataSize getOrcStripePrefetchMaxMemory(ConnectorSession session)
+    {
+        return session.getProperty(ORC_STRIPE_PREFETCH_MAX_MEMORY, DataSize.class);
+    }
+
     public static boolean isOrcOptimizedWriterEnabled(ConnectorSession session)
     {
         return session.getProperty(ORC_OPTIMIZED_WRITER_ENABLED, Boolean.class);
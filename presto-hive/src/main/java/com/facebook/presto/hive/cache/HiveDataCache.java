@@ -0,0 +1,382 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.cache;
+
+import com.facebook.presto.hive.HiveClientConfig;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.weakref.jmx.Managed;
+
+import javax.inject.Inject;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.cache.RemovalCause.REPLACED;
+import static com.google.common.hash.Hashing.sha256;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Worker local cache of byte ranges of remote files. Files are cached in
+ * aligned blocks keyed by the file path and modification time, so a file
+ * which is rewritten in place is never served from stale blocks. Recently
+ * used blocks are kept in memory, and every block fetched from the remote
+ * file system is also written to the local cache directory when one is
+ * configured. Both tiers are evicted in least recently used order once
+ * their maximum size is reached.
+ */
+public class HiveDataCache
+{
+    private static final Logger log = Logger.get(HiveDataCache.class);
+
+    private static final String BLOCK_FILE_SUFFIX = ".block";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private final boolean enabled;
+    private final Optional<File> directory;
+    private final int blockSize;
+    private final Cache<BlockKey, byte[]> memoryBlocks;
+    private final Cache<BlockKey, DiskBlock> diskBlocks;
+
+    private final AtomicLong blockRequests = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong remoteBytesRead = new AtomicLong();
+
+    @Inject
+    public HiveDataCache(HiveClientConfig config)
+    {
+        this(
+                config.isDataCacheEnabled(),
+                Optional.ofNullable(config.getDataCacheDirectory()),
+                config.getDataCacheMaxMemorySize(),
+                config.getDataCacheMaxDiskSize(),
+                config.getDataCacheBlockSize());
+    }
+
+    public HiveDataCache(boolean enabled, Optional<File> directory, DataSize maxMemorySize, DataSize maxDiskSize, DataSize blockSize)
+    {
+        requireNonNull(directory, "directory is null");
+        requireNonNull(maxMemorySize, "maxMemorySize is null");
+        requireNonNull(maxDiskSize, "maxDiskSize is null");
+        requireNonNull(blockSize, "blockSize is null");
+        checkArgument(blockSize.toBytes() > 0, "blockSize must be greater than zero");
+
+        this.enabled = enabled;
+        this.directory = directory;
+        this.blockSize = toIntExact(blockSize.toBytes());
+        this.memoryBlocks = CacheBuilder.newBuilder()
+                .maximumWeight(maxMemorySize.toBytes())
+                .weigher((BlockKey key, byte[] block) -> block.length)
+                .build();
+        this.diskBlocks = CacheBuilder.newBuilder()
+                .maximumWeight(maxDiskSize.toBytes())
+                .weigher((BlockKey key, DiskBlock block) -> block.getLength())
+                .removalListener(HiveDataCache::deleteBlockFile)
+                .build();
+
+        if (enabled && directory.isPresent()) {
+            initializeDirectory(directory.get());
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Wraps an input stream of the specified file so that positioned reads are
+     * served from this cache. Sequential reads are passed through unchanged.
+     */
+    public FSDataInputStream open(Path path, long fileSize, long modificationTime, FSDataInputStream inputStream)
+    {
+        if (!enabled) {
+            return inputStream;
+        }
+        return new FSDataInputStream(new CachingInputStream(this, path.toString(), fileSize, modificationTime, inputStream));
+    }
+
+    void readFully(String path, long fileSize, long modificationTime, long position, byte[] buffer, int offset, int length, PositionedReadable remote)
+            throws IOException
+    {
+        if (position < 0 || position + length > fileSize) {
+            throw new EOFException(format("Read of %s bytes at position %s is outside of file %s of size %s", length, position, path, fileSize));
+        }
+
+        while (length > 0) {
+            long blockIndex = position / blockSize;
+            long blockStart = blockIndex * blockSize;
+            int blockLength = toIntExact(min(blockSize, fileSize - blockStart));
+            byte[] block = getBlock(new BlockKey(path, modificationTime, blockIndex), blockStart, blockLength, remote);
+
+            int blockOffset = toIntExact(position - blockStart);
+            int chunkLength = min(length, block.length - blockOffset);
+            System.arraycopy(block, blockOffset, buffer, offset, chunkLength);
+
+            position += chunkLength;
+            offset += chunkLength;
+            length -= chunkLength;
+            bytesRead.addAndGet(chunkLength);
+        }
+    }
+
+    private byte[] getBlock(BlockKey key, long blockStart, int blockLength, PositionedReadable remote)
+            throws IOException
+    {
+        blockRequests.incrementAndGet();
+        try {
+            // concurrent requests for the same block share a single load
+            return memoryBlocks.get(key, () -> loadBlock(key, blockStart, blockLength, remote));
+        }
+        catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            // the loader throws IOException for failed reads, which the callers translate into Hive errors
+            Throwable cause = e.getCause();
+            throwIfInstanceOf(cause, IOException.class);
+            throwIfUnchecked(cause);
+            throw new IOException(cause);
+        }
+    }
+
+    private byte[] loadBlock(BlockKey key, long blockStart, int blockLength, PositionedReadable remote)
+            throws IOException
+    {
+        DiskBlock diskBlock = diskBlocks.getIfPresent(key);
+        if (diskBlock != null) {
+            try {
+                byte[] block = Files.readAllBytes(diskBlock.getFile().toPath());
+                if (block.length == blockLength) {
+                    diskHits.incrementAndGet();
+                    return block;
+                }
+            }
+            catch (InterruptedIOException e) {
+                throw e;
+            }
+            catch (IOException e) {
+                log.warn(e, "Failed to read cached block %s", diskBlock.getFile());
+            }
+            // the local copy is unusable, so fall back to the remote file
+            diskBlocks.invalidate(key);
+        }
+
+        misses.incrementAndGet();
+        byte[] block = new byte[blockLength];
+        remote.readFully(blockStart, block, 0, blockLength);
+        remoteBytesRead.addAndGet(blockLength);
+
+        if (directory.isPresent()) {
+            writeBlock(key, block, directory.get());
+        }
+        return block;
+    }
+
+    private void writeBlock(BlockKey key, byte[] block, File directory)
+    {
+        File file = new File(directory, key.getFileName());
+        File temporaryFile = new File(directory, key.getFileName() + TEMPORARY_FILE_SUFFIX);
+        try {
+            Files.write(temporaryFile.toPath(), block);
+            Files.move(temporaryFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+            diskBlocks.put(key, new DiskBlock(file, block.length));
+        }
+        catch (IOException e) {
+            // the cache is best effort, so a full or failing disk only costs remote reads
+            log.warn(e, "Failed to write cached block %s", file);
+            temporaryFile.delete();
+        }
+    }
+
+    private static void deleteBlockFile(RemovalNotification<BlockKey, DiskBlock> notification)
+    {
+        // a replaced block is stored in the same file as its replacement
+        if (notification.getCause() != REPLACED) {
+            notification.getValue().getFile().delete();
+        }
+    }
+
+    private static void initializeDirectory(File directory)
+    {
+        if (!directory.mkdirs() && !directory.isDirectory()) {
+            throw new IllegalArgumentException("Cannot create data cache directory: " + directory);
+        }
+
+        // the in-memory index is not persisted, so blocks left by a previous run can not be found again
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IllegalArgumentException("Cannot list data cache directory: " + directory);
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isFile() && (name.endsWith(BLOCK_FILE_SUFFIX) || name.endsWith(TEMPORARY_FILE_SUFFIX))) {
+                file.delete();
+            }
+        }
+    }
+
+    @Managed
+    public long getMemoryHitCount()
+    {
+        return blockRequests.get() - diskHits.get() - misses.get();
+    }
+
+    @Managed
+    public long getDiskHitCount()
+    {
+        return diskHits.get();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    @Managed
+    public double getHitRate()
+    {
+        long requests = blockRequests.get();
+        if (requests == 0) {
+            return 0;
+        }
+        return (requests - misses.get()) / (double) requests;
+    }
+
+    @Managed
+    public long getBytesRead()
+    {
+        return bytesRead.get();
+    }
+
+    @Managed
+    public long getRemoteBytesRead()
+    {
+        return remoteBytesRead.get();
+    }
+
+    @Managed
+    public long getMemoryBlockCount()
+    {
+        return memoryBlocks.size();
+    }
+
+    @Managed
+    public long getDiskBlockCount()
+    {
+        return diskBlocks.size();
+    }
+
+    private static final class BlockKey
+    {
+        private final String path;
+        private final long modificationTime;
+        private final long blockIndex;
+
+        public BlockKey(String path, long modificationTime, long blockIndex)
+        {
+            this.path = requireNonNull(path, "path is null");
+            this.modificationTime = modificationTime;
+            this.blockIndex = blockIndex;
+        }
+
+        public String getFileName()
+        {
+            return sha256().newHasher()
+                    .putString(path, UTF_8)
+                    .putLong(modificationTime)
+                    .putLong(blockIndex)
+                    .hash()
+                    .toString() + BLOCK_FILE_SUFFIX;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BlockKey that = (BlockKey) o;
+            return modificationTime == that.modificationTime &&
+                    blockIndex == that.blockIndex &&
+                    Objects.equals(path, that.path);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(path, modificationTime, blockIndex);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("path", path)
+                    .add("modificationTime", modificationTime)
+                    .add("blockIndex", blockIndex)
+                    .toString();
+        }
+    }
+
+    private static final class DiskBlock
+    {
+        private final File file;
+        private final int length;
+
+        public DiskBlock(File file, int length)
+        {
+            this.file = requireNonNull(file, "file is null");
+            this.length = length;
+        }
+
+        public File getFile()
+        {
+            return file;
+        }
+
+        public int getLength()
+        {
+            return length;
+        }
+    }
+}
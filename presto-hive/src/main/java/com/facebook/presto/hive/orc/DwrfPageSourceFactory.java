@@ -38,6 +38,7 @@ import static com.facebook.presto.hive.HiveSessionProperties.getOrcMaxBufferSize
 import static com.facebook.presto.hive.HiveSessionProperties.getOrcMaxMergeDistance;
 import static com.facebook.presto.hive.HiveSessionProperties.getOrcMaxReadBlockSize;
 import static com.facebook.presto.hive.HiveSessionProperties.getOrcStreamBufferSize;
+import static com.facebook.presto.hive.HiveSessionProperties.getOrcStripePrefetchMaxMemory;
 import static com.facebook.presto.hive.HiveUtil.isDeserializerClass;
 import static com.facebook.presto.hive.orc.OrcPageSourceFactory.createOrcPageSource;
 import static java.util.Objects.requireNonNull;
@@ -64,6 +65,7 @@ public class DwrfPageSourceFactory
             long start,
             long length,
             long fileSize,
+            long fileModifiedTime,
             Properties schema,
             List<HiveColumnHandle> columns,
             TupleDomain<HiveColumnHandle> effectivePredicate,
@@ -82,6 +84,7 @@ public class DwrfPageSourceFactory
                 start,
                 length,
                 fileSize,
+                fileModifiedTime,
                 columns,
                 false,
                 effectivePredicate,
@@ -93,6 +96,10 @@ public class DwrfPageSourceFactory
                 getOrcMaxReadBlockSize(session),
                 getOrcLazyReadSmallRanges(session),
                 false,
+                Optional.empty(),
+                getOrcStripePrefetchMaxMemory(session),
+                Optional.empty(),
+                Optional.empty(),
                 stats));
     }
 }
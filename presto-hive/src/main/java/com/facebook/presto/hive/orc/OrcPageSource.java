@@ -30,10 +30,12 @@ import com.facebook.presto.spi.block.LazyBlockLoader;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.facebook.presto.hive.HiveColumnHandle.ColumnType.REGULAR;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_BAD_DATA;
@@ -41,6 +43,7 @@ import static com.facebook.presto.hive.HiveErrorCode.HIVE_CURSOR_ERROR;
 import static com.facebook.presto.orc.OrcReader.MAX_BATCH_SIZE;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.concurrent.MoreFutures.toCompletableFuture;
 import static java.util.Objects.requireNonNull;
 
 public class OrcPageSource
@@ -127,6 +130,19 @@ public class OrcPageSource
         return closed;
     }
 
+    @Override
+    public CompletableFuture<?> isBlocked()
+    {
+        if (closed) {
+            return NOT_BLOCKED;
+        }
+        ListenableFuture<?> blocked = recordReader.isBlocked();
+        if (blocked.isDone()) {
+            return NOT_BLOCKED;
+        }
+        return toCompletableFuture(blocked);
+    }
+
     @Override
     public Page getNextPage()
     {
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.hive.parquet;
 
+import com.facebook.presto.hive.cache.HiveDataCache;
 import com.facebook.presto.spi.PrestoException;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
@@ -20,6 +21,7 @@ import org.apache.hadoop.fs.Path;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Optional;
 
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_CANNOT_OPEN_SPLIT;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_FILESYSTEM_ERROR;
@@ -91,9 +93,17 @@ public class HdfsParquetDataSource
     }
 
     public static HdfsParquetDataSource buildHdfsParquetDataSource(FileSystem fileSystem, Path path, long start, long length, long fileSize)
+    {
+        return buildHdfsParquetDataSource(fileSystem, path, start, length, fileSize, 0, Optional.empty());
+    }
+
+    public static HdfsParquetDataSource buildHdfsParquetDataSource(FileSystem fileSystem, Path path, long start, long length, long fileSize, long fileModifiedTime, Optional<HiveDataCache> dataCache)
     {
         try {
             FSDataInputStream inputStream = fileSystem.open(path);
+            if (dataCache.isPresent()) {
+                inputStream = dataCache.get().open(path, fileSize, fileModifiedTime, inputStream);
+            }
             return new HdfsParquetDataSource(path, fileSize, inputStream);
         }
         catch (Exception e) {
@@ -25,6 +25,7 @@ import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
@@ -86,6 +87,10 @@ public class TestHiveClientConfig
                 .setOrcStreamBufferSize(new DataSize(8, Unit.MEGABYTE))
                 .setOrcMaxReadBlockSize(new DataSize(16, Unit.MEGABYTE))
                 .setOrcLazyReadSmallRanges(true)
+                .setOrcStripePrefetchEnabled(false)
+                .setOrcStripePrefetchMaxMemory(new DataSize(64, Unit.MEGABYTE))
+                .setOrcFileTailCacheSize(new DataSize(16, Unit.MEGABYTE))
+                .setOrcStripeFooterCacheSize(new DataSize(16, Unit.MEGABYTE))
                 .setRcfileOptimizedWriterEnabled(true)
                 .setRcfileWriterValidate(false)
                 .setOrcOptimizedWriterEnabled(false)
@@ -97,6 +102,11 @@ public class TestHiveClientConfig
                 .setBucketWritingEnabled(true)
                 .setFileSystemMaxCacheSize(1000)
                 .setTableStatisticsEnabled(true)
+                .setDataCacheEnabled(false)
+                .setDataCacheDirectory(null)
+                .setDataCacheMaxMemorySize(new DataSize(256, Unit.MEGABYTE))
+                .setDataCacheMaxDiskSize(new DataSize(100, Unit.GIGABYTE))
+                .setDataCacheBlockSize(new DataSize(1, Unit.MEGABYTE))
                 .setWritesToNonManagedTablesEnabled(false));
     }
 
@@ -153,6 +163,10 @@ public class TestHiveClientConfig
                 .put("hive.orc.stream-buffer-size", "55kB")
                 .put("hive.orc.max-read-block-size", "66kB")
                 .put("hive.orc.lazy-read-small-ranges", "false")
+                .put("hive.orc.stripe-prefetch.enabled", "true")
+                .put("hive.orc.stripe-prefetch.max-memory", "32MB")
+                .put("hive.orc.file-tail-cache-size", "32MB")
+                .put("hive.orc.stripe-footer-cache-size", "8MB")
                 .put("hive.rcfile-optimized-writer.enabled", "false")
                 .put("hive.rcfile.writer.validate", "true")
                 .put("hive.orc.optimized-writer.enabled", "true")
@@ -165,6 +179,11 @@ public class TestHiveClientConfig
                 .put("hive.fs.cache.max-size", "1010")
                 .put("hive.table-statistics-enabled", "false")
                 .put("hive.non-managed-table-writes-enabled", "true")
+                .put("hive.data-cache.enabled", "true")
+                .put("hive.data-cache.directory", "/mnt/ssd/hive-cache")
+                .put("hive.data-cache.max-memory-size", "1GB")
+                .put("hive.data-cache.max-disk-size", "200GB")
+                .put("hive.data-cache.block-size", "4MB")
                 .build();
 
         HiveClientConfig expected = new HiveClientConfig()
@@ -217,6 +236,10 @@ public class TestHiveClientConfig
                 .setOrcStreamBufferSize(new DataSize(55, Unit.KILOBYTE))
                 .setOrcMaxReadBlockSize(new DataSize(66, Unit.KILOBYTE))
                 .setOrcLazyReadSmallRanges(false)
+                .setOrcStripePrefetchEnabled(true)
+                .setOrcStripePrefetchMaxMemory(new DataSize(32, Unit.MEGABYTE))
+                .setOrcFileTailCacheSize(new DataSize(32, Unit.MEGABYTE))
+                .setOrcStripeFooterCacheSize(new DataSize(8, Unit.MEGABYTE))
                 .setRcfileOptimizedWriterEnabled(false)
                 .setRcfileWriterValidate(true)
                 .setOrcOptimizedWriterEnabled(true)
@@ -228,6 +251,11 @@ public class TestHiveClientConfig
                 .setBucketWritingEnabled(false)
                 .setFileSystemMaxCacheSize(1010)
                 .setTableStatisticsEnabled(false)
+                .setDataCacheEnabled(true)
+                .setDataCacheDirectory(new File("/mnt/ssd/hive-cache"))
+                .setDataCacheMaxMemorySize(new DataSize(1, Unit.GIGABYTE))
+                .setDataCacheMaxDiskSize(new DataSize(200, Unit.GIGABYTE))
+                .setDataCacheBlockSize(new DataSize(4, Unit.MEGABYTE))
                 .setWritesToNonManagedTablesEnabled(true);
 
         ConfigAssertions.assertFullMapping(properties, expected);
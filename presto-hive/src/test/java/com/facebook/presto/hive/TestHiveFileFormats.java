@@ -674,6 +674,7 @@ public class TestHiveFileFormats
                 split.getStart(),
                 split.getLength(),
                 split.getLength(),
+                0,
                 splitProperties,
                 TupleDomain.all(),
                 getColumnHandles(testColumns),
@@ -718,6 +719,7 @@ public class TestHiveFileFormats
                 split.getStart(),
                 split.getLength(),
                 split.getLength(),
+                0,
                 splitProperties,
                 TupleDomain.all(),
                 columnHandles,
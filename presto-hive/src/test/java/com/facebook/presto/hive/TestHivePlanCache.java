@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.tests.AbstractTestQueryFramework;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.hive.HiveQueryRunner.createQueryRunner;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Verifies that queries served from the plan cache of the coordinator see the
+ * data and the definitions of the tables and views as of their own transaction.
+ */
+@Test(singleThreaded = true)
+public class TestHivePlanCache
+        extends AbstractTestQueryFramework
+{
+    public TestHivePlanCache()
+    {
+        super(() -> createQueryRunner(
+                ImmutableList.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of("plan-cache.enabled", "true"),
+                "sql-standard",
+                ImmutableMap.of()));
+    }
+
+    @Test
+    public void testInsertIntoPartitionedTable()
+    {
+        assertUpdate("CREATE TABLE test_plan_cache_insert (value bigint, ds varchar) WITH (partitioned_by = ARRAY['ds'])");
+        assertUpdate("INSERT INTO test_plan_cache_insert VALUES (1, '2017-01-01')", 1);
+
+        @Language("SQL") String all = "SELECT count(*), sum(value) FROM test_plan_cache_insert";
+        @Language("SQL") String pruned = "SELECT count(*), sum(value) FROM test_plan_cache_insert WHERE ds >= '2017-01-01'";
+        assertRow(all, 1L, 1L);
+        assertRow(all, 1L, 1L);
+        assertRow(pruned, 1L, 1L);
+        assertRow(pruned, 1L, 1L);
+
+        // a new partition changes the partitions of the cached layouts
+        assertUpdate("INSERT INTO test_plan_cache_insert VALUES (10, '2017-01-02')", 1);
+        assertRow(all, 2L, 11L);
+        assertRow(pruned, 2L, 11L);
+
+        // new files in an existing partition do not
+        assertUpdate("INSERT INTO test_plan_cache_insert VALUES (100, '2017-01-02')", 1);
+        assertRow(all, 3L, 111L);
+        assertRow(pruned, 3L, 111L);
+
+        assertUpdate("DROP TABLE test_plan_cache_insert");
+    }
+
+    @Test
+    public void testRecreateTable()
+    {
+        assertUpdate("CREATE TABLE test_plan_cache_recreate AS SELECT BIGINT '1' value", 1);
+
+        @Language("SQL") String sql = "SELECT count(*), sum(value) FROM test_plan_cache_recreate";
+        assertRow(sql, 1L, 1L);
+        assertRow(sql, 1L, 1L);
+
+        assertUpdate("DROP TABLE test_plan_cache_recreate");
+        assertUpdate("CREATE TABLE test_plan_cache_recreate AS SELECT * FROM (VALUES BIGINT '2', BIGINT '3') t(value)", 2);
+        assertRow(sql, 2L, 5L);
+
+        assertUpdate("DROP TABLE test_plan_cache_recreate");
+    }
+
+    @Test
+    public void testReplaceView()
+    {
+        assertUpdate("CREATE TABLE test_plan_cache_view_base AS SELECT * FROM (VALUES BIGINT '1', BIGINT '2') t(value)", 2);
+        assertUpdate("CREATE VIEW test_plan_cache_view AS SELECT value FROM test_plan_cache_view_base WHERE value = 1");
+
+        @Language("SQL") String sql = "SELECT count(*), sum(value) FROM test_plan_cache_view";
+        assertRow(sql, 1L, 1L);
+        assertRow(sql, 1L, 1L);
+
+        assertUpdate("CREATE OR REPLACE VIEW test_plan_cache_view AS SELECT value FROM test_plan_cache_view_base");
+        assertRow(sql, 2L, 3L);
+
+        assertUpdate("DROP VIEW test_plan_cache_view");
+        assertUpdate("DROP TABLE test_plan_cache_view_base");
+    }
+
+    private void assertRow(@Language("SQL") String sql, Object... expected)
+    {
+        assertEquals(getOnlyElement(computeActual(sql).getMaterializedRows()).getFields(), ImmutableList.copyOf(expected));
+    }
+}
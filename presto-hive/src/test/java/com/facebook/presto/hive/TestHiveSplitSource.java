@@ -217,6 +217,7 @@ public class TestHiveSplitSource
                 0,
                 100,
                 100,
+                0,
                 new Properties(),
                 ImmutableList.of(new HivePartitionKey("pk_col", "pk_value")),
                 ImmutableList.of(new InternalHiveBlock(0, 100, ImmutableList.of(HostAddress.fromString("localhost")))),
@@ -272,6 +273,7 @@ public class TestHiveSplitSource
                     0,
                     100,
                     100,
+                    0,
                     properties("id", String.valueOf(id)),
                     ImmutableList.of(),
                     ImmutableList.of(new InternalHiveBlock(0, 100, ImmutableList.of())),
@@ -468,6 +468,7 @@ public class TestOrcPageSourceMemoryTracking
                     fileSplit.getStart(),
                     fileSplit.getLength(),
                     fileSplit.getLength(),
+                    0,
                     schema,
                     TupleDomain.all(),
                     columns,
@@ -0,0 +1,266 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.cache;
+
+import com.google.common.io.Files;
+import io.airlift.units.DataSize;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestHiveDataCache
+{
+    private static final String PATH = "hdfs://namenode/table/file.orc";
+    private static final DataSize BLOCK_SIZE = new DataSize(100, BYTE);
+
+    private final byte[] data = createData(1050);
+    private File tempDir;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        tempDir = Files.createTempDir();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(tempDir.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testMemoryTier()
+            throws IOException
+    {
+        HiveDataCache cache = new HiveDataCache(true, Optional.empty(), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), BLOCK_SIZE);
+        CountingRemoteFile remote = new CountingRemoteFile(data);
+
+        // the read spans three blocks
+        assertRead(cache, remote, 0, 50, 200);
+        assertEquals(remote.getReadCount(), 3);
+        assertEquals(cache.getMissCount(), 3);
+
+        // the same read is served from memory
+        assertRead(cache, remote, 0, 50, 200);
+        assertEquals(remote.getReadCount(), 3);
+        assertEquals(cache.getMemoryHitCount(), 3);
+        assertEquals(cache.getBytesRead(), 400);
+        assertEquals(cache.getRemoteBytesRead(), 300);
+        assertEquals(cache.getHitRate(), 0.5);
+
+        // the last block of the file is shorter than the block size
+        assertRead(cache, remote, 0, 1020, 30);
+        assertEquals(remote.getReadCount(), 4);
+        assertEquals(cache.getRemoteBytesRead(), 350);
+    }
+
+    @Test
+    public void testDiskTier()
+            throws IOException
+    {
+        HiveDataCache cache = new HiveDataCache(true, Optional.of(tempDir), new DataSize(0, BYTE), new DataSize(1, MEGABYTE), BLOCK_SIZE);
+        CountingRemoteFile remote = new CountingRemoteFile(data);
+
+        assertRead(cache, remote, 0, 250, 200);
+        assertEquals(remote.getReadCount(), 3);
+        assertEquals(cache.getDiskBlockCount(), 3);
+
+        // the memory tier holds nothing, so the blocks are read from local disk
+        assertRead(cache, remote, 0, 250, 200);
+        assertEquals(remote.getReadCount(), 3);
+        assertEquals(cache.getDiskHitCount(), 3);
+
+        // a block file which disappears is read from the remote file again
+        for (File file : tempDir.listFiles()) {
+            file.delete();
+        }
+        assertRead(cache, remote, 0, 250, 200);
+        assertEquals(remote.getReadCount(), 6);
+    }
+
+    @Test
+    public void testModifiedFileIsNotServedFromCache()
+            throws IOException
+    {
+        HiveDataCache cache = new HiveDataCache(true, Optional.of(tempDir), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), BLOCK_SIZE);
+        CountingRemoteFile remote = new CountingRemoteFile(data);
+
+        assertRead(cache, remote, 0, 10, 50);
+        assertRead(cache, remote, 1, 10, 50);
+        assertEquals(remote.getReadCount(), 2);
+    }
+
+    @Test
+    public void testDiskEviction()
+            throws IOException
+    {
+        HiveDataCache cache = new HiveDataCache(true, Optional.of(tempDir), new DataSize(0, BYTE), new DataSize(300, BYTE), BLOCK_SIZE);
+        CountingRemoteFile remote = new CountingRemoteFile(data);
+
+        assertRead(cache, remote, 0, 0, 1000);
+        assertTrue(cache.getDiskBlockCount() <= 3);
+
+        // evicted blocks are removed from the cache directory
+        assertEquals(tempDir.listFiles().length, cache.getDiskBlockCount());
+    }
+
+    @Test
+    public void testStaleFilesRemovedOnStartup()
+            throws IOException
+    {
+        File staleBlock = new File(tempDir, "stale.block");
+        File otherFile = new File(tempDir, "other.txt");
+        Files.write(new byte[10], staleBlock);
+        Files.write(new byte[10], otherFile);
+
+        new HiveDataCache(true, Optional.of(tempDir), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), BLOCK_SIZE);
+
+        assertFalse(staleBlock.exists());
+        assertEquals(tempDir.listFiles(), new File[] {otherFile});
+    }
+
+    @Test
+    public void testRemoteReadFailure()
+    {
+        HiveDataCache cache = new HiveDataCache(true, Optional.of(tempDir), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), BLOCK_SIZE);
+
+        // failures of the remote reads are not wrapped by the cache loading the block
+        IOException ioException = new IOException("remote read failed");
+        assertReadFails(cache, new FailingRemoteFile(ioException), ioException);
+        IllegalStateException uncheckedException = new IllegalStateException("remote read failed");
+        assertReadFails(cache, new FailingRemoteFile(uncheckedException), uncheckedException);
+
+        // failed reads are not cached
+        assertEquals(cache.getDiskBlockCount(), 0);
+    }
+
+    private void assertReadFails(HiveDataCache cache, PositionedReadable remote, Exception expected)
+    {
+        try {
+            cache.readFully(PATH, data.length, 0, 0, new byte[10], 0, 10, remote);
+            fail("expected exception");
+        }
+        catch (IOException | RuntimeException e) {
+            assertSame(e, expected);
+        }
+    }
+
+    private void assertRead(HiveDataCache cache, PositionedReadable remote, long modificationTime, int position, int length)
+            throws IOException
+    {
+        byte[] buffer = new byte[length + 2];
+        cache.readFully(PATH, data.length, modificationTime, position, buffer, 1, length, remote);
+        assertEquals(Arrays.copyOfRange(buffer, 1, length + 1), Arrays.copyOfRange(data, position, position + length));
+    }
+
+    private static byte[] createData(int size)
+    {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static class CountingRemoteFile
+            implements PositionedReadable
+    {
+        private final byte[] data;
+        private int readCount;
+
+        public CountingRemoteFile(byte[] data)
+        {
+            this.data = data;
+        }
+
+        public int getReadCount()
+        {
+            return readCount;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length)
+        {
+            readFully(position, buffer, offset, length);
+            return length;
+        }
+
+        @Override
+        public void readFully(long position, byte[] buffer, int offset, int length)
+        {
+            readCount++;
+            System.arraycopy(data, (int) position, buffer, offset, length);
+        }
+
+        @Override
+        public void readFully(long position, byte[] buffer)
+        {
+            readFully(position, buffer, 0, buffer.length);
+        }
+    }
+
+    private static class FailingRemoteFile
+            implements PositionedReadable
+    {
+        private final Exception failure;
+
+        public FailingRemoteFile(Exception failure)
+        {
+            this.failure = failure;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length)
+                throws IOException
+        {
+            readFully(position, buffer, offset, length);
+            return length;
+        }
+
+        @Override
+        public void readFully(long position, byte[] buffer, int offset, int length)
+                throws IOException
+        {
+            throwIfInstanceOf(failure, IOException.class);
+            throwIfUnchecked(failure);
+            throw new AssertionError(failure);
+        }
+
+        @Override
+        public void readFully(long position, byte[] buffer)
+                throws IOException
+        {
+            readFully(position, buffer, 0, buffer.length);
+        }
+    }
+}
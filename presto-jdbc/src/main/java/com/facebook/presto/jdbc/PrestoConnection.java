@@ -74,6 +74,8 @@ public class PrestoConnection
     private final URI jdbcUri;
     private final URI httpUri;
     private final String user;
+    private final boolean binaryResults;
+    private final boolean directResults;
     private final Map<String, String> clientInfo = new ConcurrentHashMap<>();
     private final Map<String, String> sessionProperties = new ConcurrentHashMap<>();
     private final Map<String, String> preparedStatements = new ConcurrentHashMap<>();
@@ -89,6 +91,8 @@ public class PrestoConnection
         this.schema.set(uri.getSchema());
         this.catalog.set(uri.getCatalog());
         this.user = uri.getUser();
+        this.binaryResults = uri.isBinaryResults();
+        this.directResults = uri.isDirectResults();
 
         this.queryExecutor = requireNonNull(queryExecutor, "queryExecutor is null");
 
@@ -642,7 +646,7 @@ public class PrestoConnection
                 false,
                 new Duration(2, MINUTES));
 
-        return queryExecutor.startQuery(session, sql);
+        return queryExecutor.startQuery(session, sql, binaryResults, directResults);
     }
 
     void updateSession(StatementClient client)
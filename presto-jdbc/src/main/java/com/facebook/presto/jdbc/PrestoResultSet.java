@@ -16,8 +16,10 @@ package com.facebook.presto.jdbc;
 import com.facebook.presto.client.Column;
 import com.facebook.presto.client.IntervalDayTime;
 import com.facebook.presto.client.IntervalYearMonth;
+import com.facebook.presto.client.QueryData;
 import com.facebook.presto.client.QueryError;
 import com.facebook.presto.client.QueryStatusInfo;
+import com.facebook.presto.client.ResultPage;
 import com.facebook.presto.client.StatementClient;
 import com.facebook.presto.jdbc.ColumnInfo.Nullable;
 import com.google.common.collect.AbstractIterator;
@@ -51,6 +53,7 @@ import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.AbstractList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -1767,10 +1770,14 @@ public class PrestoResultSet
 
                 QueryStatusInfo results = client.currentStatusInfo();
                 progressCallback.accept(QueryStats.create(results.getId(), results.getStats()));
-                Iterable<List<Object>> data = client.currentData().getData();
+                QueryData queryData = client.currentData();
                 client.advance();
-                if (data != null) {
-                    return data;
+                List<ResultPage> pages = queryData.getResultPages();
+                if (pages != null) {
+                    return () -> new ResultPageRowIterator(pages.iterator());
+                }
+                if (queryData.getData() != null) {
+                    return queryData.getData();
                 }
             }
 
@@ -1785,6 +1792,55 @@ public class PrestoResultSet
         }
     }
 
+    /**
+     * Iterates the rows of binary result pages through a single row view which is
+     * moved from row to row, so reading the results allocates no object per row.
+     */
+    private static class ResultPageRowIterator
+            extends AbstractIterator<List<Object>>
+    {
+        private final Iterator<ResultPage> pages;
+        private final PageRow row = new PageRow();
+
+        private ResultPageRowIterator(Iterator<ResultPage> pages)
+        {
+            this.pages = requireNonNull(pages, "pages is null");
+        }
+
+        @Override
+        protected List<Object> computeNext()
+        {
+            while ((row.page == null) || (row.position + 1 >= row.page.getPositionCount())) {
+                if (!pages.hasNext()) {
+                    return endOfData();
+                }
+                row.page = pages.next();
+                row.position = -1;
+            }
+            row.position++;
+            return row;
+        }
+    }
+
+    private static class PageRow
+            extends AbstractList<Object>
+    {
+        private ResultPage page;
+        private int position;
+
+        @Override
+        public Object get(int channel)
+        {
+            return page.getValue(channel, position);
+        }
+
+        @Override
+        public int size()
+        {
+            return page.getChannelCount();
+        }
+    }
+
     static SQLException resultsException(QueryStatusInfo results)
     {
         QueryError error = requireNonNull(results.getError());
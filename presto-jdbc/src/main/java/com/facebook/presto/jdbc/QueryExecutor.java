@@ -40,9 +40,9 @@ class QueryExecutor
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
     }
 
-    public StatementClient startQuery(ClientSession session, String query)
+    public StatementClient startQuery(ClientSession session, String query, boolean binaryResults, boolean directResults)
     {
-        return new StatementClient(httpClient, session, query);
+        return new StatementClient(httpClient, session, query, binaryResults, directResults);
     }
 
     public ServerInfo getServerInfo(URI server)
@@ -35,6 +35,7 @@ import static java.lang.String.format;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
@@ -128,6 +129,44 @@ public class TestJdbcResultSet
         }
     }
 
+    @Test
+    public void testBinaryResults()
+            throws Exception
+    {
+        String sql = "SELECT 123, 12300000000, REAL '123.45', 0.1, true, 'hello', cast('foo' as char(5)), " +
+                "DECIMAL '0.1', DECIMAL '12345678901234567890.123', DATE '2017-07-01', X'0102', CAST(NULL AS bigint)";
+        try (Connection connection = createConnection("binaryResults=true");
+                Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery(sql)) {
+                assertEquals(rs.getMetaData().getColumnCount(), 12);
+
+                assertTrue(rs.next());
+                assertEquals(rs.getObject(1), 123);
+                assertEquals(rs.getObject(2), 12300000000L);
+                assertEquals(rs.getObject(3), 123.45f);
+                assertEquals(rs.getObject(4), 0.1);
+                assertEquals(rs.getObject(5), true);
+                assertEquals(rs.getObject(6), "hello");
+                assertEquals(rs.getObject(7), "foo  ");
+                assertEquals(rs.getObject(8), new BigDecimal("0.1"));
+                assertEquals(rs.getObject(9), new BigDecimal("12345678901234567890.123"));
+                assertEquals(rs.getString(10), "2017-07-01");
+                assertEquals(rs.getBytes(11), new byte[] {1, 2});
+                assertNull(rs.getObject(12));
+                assertTrue(rs.wasNull());
+                assertFalse(rs.next());
+            }
+
+            try (ResultSet rs = statement.executeQuery("SELECT * FROM (VALUES (1), (2), (3), (4), (5), (6), (7)) AS x (a)")) {
+                for (int i = 1; i <= 7; i++) {
+                    assertTrue(rs.next());
+                    assertEquals(rs.getInt(1), i);
+                }
+                assertFalse(rs.next());
+            }
+        }
+    }
+
     @Test
     public void testStatsExtraction()
             throws Exception
@@ -239,6 +278,13 @@ public class TestJdbcResultSet
         return DriverManager.getConnection(url, "test", null);
     }
 
+    private Connection createConnection(String parameters)
+            throws SQLException
+    {
+        String url = format("jdbc:presto://%s?%s", server.getAddress(), parameters);
+        return DriverManager.getConnection(url, "test", null);
+    }
+
     private static long countRows(ResultSet rs)
             throws SQLException
     {
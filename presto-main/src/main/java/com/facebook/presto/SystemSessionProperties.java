@@ -15,6 +15,7 @@ package com.facebook.presto;
 
 import com.facebook.presto.execution.QueryManagerConfig;
 import com.facebook.presto.execution.TaskManagerConfig;
+import com.facebook.presto.execution.buffer.ExchangeCompressionCodec;
 import com.facebook.presto.memory.MemoryManagerConfig;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.StandardErrorCode;
@@ -26,16 +27,22 @@ import io.airlift.units.Duration;
 
 import javax.inject.Inject;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static com.facebook.presto.spi.session.PropertyMetadata.booleanSessionProperty;
+import static com.facebook.presto.spi.session.PropertyMetadata.doubleSessionProperty;
 import static com.facebook.presto.spi.session.PropertyMetadata.integerSessionProperty;
 import static com.facebook.presto.spi.session.PropertyMetadata.stringSessionProperty;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.sql.planner.iterative.rule.ReorderJoins.MAX_REORDERED_JOINS_LIMIT;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+import static java.util.stream.Collectors.joining;
 
 public final class SystemSessionProperties
 {
@@ -66,12 +73,16 @@ public final class SystemSessionProperties
     public static final String FAST_INEQUALITY_JOINS = "fast_inequality_joins";
     public static final String QUERY_PRIORITY = "query_priority";
     public static final String SPILL_ENABLED = "spill_enabled";
+    public static final String SPILL_ORDER_BY = "spill_order_by";
+    public static final String SPILL_WINDOW_OPERATOR = "spill_window_operator";
     public static final String AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT = "aggregation_operator_unspill_memory_limit";
+    public static final String JOIN_OPERATOR_UNSPILL_MEMORY_LIMIT = "join_operator_unspill_memory_limit";
     public static final String OPTIMIZE_DISTINCT_AGGREGATIONS = "optimize_mixed_distinct_aggregations";
     public static final String LEGACY_ORDER_BY = "legacy_order_by";
     public static final String ITERATIVE_OPTIMIZER = "iterative_optimizer_enabled";
     public static final String ITERATIVE_OPTIMIZER_TIMEOUT = "iterative_optimizer_timeout";
     public static final String EXCHANGE_COMPRESSION = "exchange_compression";
+    public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
     public static final String ENABLE_INTERMEDIATE_AGGREGATIONS = "enable_intermediate_aggregations";
     public static final String PUSH_AGGREGATION_THROUGH_JOIN = "push_aggregation_through_join";
     public static final String PUSH_PARTIAL_AGGREGATION_THROUGH_JOIN = "push_partial_aggregation_through_join";
@@ -79,6 +90,17 @@ public final class SystemSessionProperties
     public static final String FORCE_SINGLE_NODE_OUTPUT = "force_single_node_output";
     public static final String FILTER_AND_PROJECT_MIN_OUTPUT_PAGE_SIZE = "filter_and_project_min_output_page_size";
     public static final String FILTER_AND_PROJECT_MIN_OUTPUT_PAGE_ROW_COUNT = "filter_and_project_min_output_page_row_count";
+    public static final String ENABLE_DYNAMIC_FILTERING = "enable_dynamic_filtering";
+    public static final String COST_BASED_JOIN_REORDERING = "cost_based_join_reordering";
+    public static final String MAX_REORDERED_JOINS = "max_reordered_joins";
+    public static final String AUTOMATIC_JOIN_DISTRIBUTION_TYPE = "automatic_join_distribution_type";
+    public static final String JOIN_MAX_BROADCAST_TABLE_SIZE = "join_max_broadcast_table_size";
+    public static final String DISTRIBUTED_SORT = "distributed_sort";
+    public static final String OFF_HEAP_GROUP_BY_HASH = "off_heap_group_by_hash";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION = "adaptive_partial_aggregation";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS = "adaptive_partial_aggregation_min_rows";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD = "adaptive_partial_aggregation_unique_rows_ratio_threshold";
+    public static final String OPTIMIZE_COMMON_SUB_EXPRESSIONS = "optimize_common_sub_expressions";
 
     private final List<PropertyMetadata<?>> sessionProperties;
 
@@ -286,6 +308,16 @@ public final class SystemSessionProperties
                             return spillEnabled;
                         },
                         value -> value),
+                booleanSessionProperty(
+                        SPILL_ORDER_BY,
+                        "Spill in OrderBy if spill_enabled is also set",
+                        featuresConfig.isSpillOrderBy(),
+                        false),
+                booleanSessionProperty(
+                        SPILL_WINDOW_OPERATOR,
+                        "Spill in WindowOperator if spill_enabled is also set",
+                        featuresConfig.isSpillWindowOperator(),
+                        false),
                 new PropertyMetadata<>(
                         AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT,
                         "Experimental: How much memory can should be allocated per aggragation operator in unspilling process",
@@ -295,6 +327,15 @@ public final class SystemSessionProperties
                         false,
                         value -> DataSize.valueOf((String) value),
                         DataSize::toString),
+                new PropertyMetadata<>(
+                        JOIN_OPERATOR_UNSPILL_MEMORY_LIMIT,
+                        "Experimental: Size of a spilled join partition above which it is unspilled in multiple parts",
+                        VARCHAR,
+                        DataSize.class,
+                        featuresConfig.getJoinOperatorUnspillMemoryLimit(),
+                        false,
+                        value -> DataSize.valueOf((String) value),
+                        DataSize::toString),
                 booleanSessionProperty(
                         OPTIMIZE_DISTINCT_AGGREGATIONS,
                         "Optimize mixed non-distinct and distinct aggregations",
@@ -324,6 +365,27 @@ public final class SystemSessionProperties
                         "Enable compression in exchanges",
                         featuresConfig.isExchangeCompressionEnabled(),
                         false),
+                new PropertyMetadata<>(
+                        EXCHANGE_COMPRESSION_CODEC,
+                        format("Codec used to compress pages in exchanges. Options are %s",
+                                Stream.of(ExchangeCompressionCodec.values())
+                                        .map(ExchangeCompressionCodec::name)
+                                        .collect(joining(","))),
+                        VARCHAR,
+                        ExchangeCompressionCodec.class,
+                        featuresConfig.getExchangeCompressionCodec(),
+                        false,
+                        value -> {
+                            try {
+                                return ExchangeCompressionCodec.valueOf(((String) value).toUpperCase(ENGLISH));
+                            }
+                            catch (IllegalArgumentException e) {
+                                throw new PrestoException(
+                                        StandardErrorCode.INVALID_SESSION_PROPERTY,
+                                        format("%s must be one of %s: %s", EXCHANGE_COMPRESSION_CODEC, Arrays.toString(ExchangeCompressionCodec.values()), value));
+                            }
+                        },
+                        ExchangeCompressionCodec::name),
                 booleanSessionProperty(
                         ENABLE_INTERMEDIATE_AGGREGATIONS,
                         "Enable the use of intermediate aggregations",
@@ -362,6 +424,77 @@ public final class SystemSessionProperties
                         FILTER_AND_PROJECT_MIN_OUTPUT_PAGE_ROW_COUNT,
                         "Experimental: Minimum output page row count for filter and project operators",
                         featuresConfig.getFilterAndProjectMinOutputPageRowCount(),
+                        false),
+                booleanSessionProperty(
+                        ENABLE_DYNAMIC_FILTERING,
+                        "Experimental: Prune probe side scans of joins using the values of the build side join keys",
+                        featuresConfig.isDynamicFilteringEnabled(),
+                        false),
+                booleanSessionProperty(
+                        COST_BASED_JOIN_REORDERING,
+                        "Experimental: Reorder joins and choose their distribution type based on estimated cost",
+                        featuresConfig.isCostBasedJoinReorderingEnabled(),
+                        false),
+                new PropertyMetadata<>(
+                        MAX_REORDERED_JOINS,
+                        "Experimental: Maximum number of joined relations reordered at once by the cost based join reordering",
+                        BIGINT,
+                        Integer.class,
+                        featuresConfig.getMaxReorderedJoins(),
+                        false,
+                        value -> {
+                            int maxReorderedJoins = ((Number) value).intValue();
+                            if (maxReorderedJoins < 2 || maxReorderedJoins > MAX_REORDERED_JOINS_LIMIT) {
+                                throw new PrestoException(
+                                        StandardErrorCode.INVALID_SESSION_PROPERTY,
+                                        format("%s must be between 2 and %s: %s", MAX_REORDERED_JOINS, MAX_REORDERED_JOINS_LIMIT, maxReorderedJoins));
+                            }
+                            return maxReorderedJoins;
+                        },
+                        value -> value),
+                booleanSessionProperty(
+                        AUTOMATIC_JOIN_DISTRIBUTION_TYPE,
+                        "Experimental: Choose between replicated and partitioned joins based on the estimated size of the build side",
+                        featuresConfig.isAutomaticJoinDistributionType(),
+                        false),
+                new PropertyMetadata<>(
+                        JOIN_MAX_BROADCAST_TABLE_SIZE,
+                        "Experimental: Maximum estimated size of the build side of a replicated join",
+                        VARCHAR,
+                        DataSize.class,
+                        featuresConfig.getJoinMaxBroadcastTableSize(),
+                        false,
+                        value -> DataSize.valueOf((String) value),
+                        DataSize::toString),
+                booleanSessionProperty(
+                        DISTRIBUTED_SORT,
+                        "Parallelize sort across multiple nodes",
+                        featuresConfig.isDistributedSortEnabled(),
+                        false),
+                booleanSessionProperty(
+                        OFF_HEAP_GROUP_BY_HASH,
+                        "Experimental: Allocate the hash tables of hash aggregations outside of the Java heap",
+                        featuresConfig.isOffHeapGroupByHashEnabled(),
+                        false),
+                booleanSessionProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION,
+                        "Experimental: Stop partial aggregation when it does not reduce the number of rows",
+                        featuresConfig.isAdaptivePartialAggregationEnabled(),
+                        false),
+                integerSessionProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS,
+                        "Experimental: Number of input rows a partial aggregation processes before deciding whether to stop aggregating",
+                        featuresConfig.getAdaptivePartialAggregationMinRows(),
+                        false),
+                doubleSessionProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD,
+                        "Experimental: Ratio of groups to input rows above which partial aggregation is stopped",
+                        featuresConfig.getAdaptivePartialAggregationUniqueRowsRatioThreshold(),
+                        false),
+                booleanSessionProperty(
+                        OPTIMIZE_COMMON_SUB_EXPRESSIONS,
+                        "Evaluate the subexpressions shared by the projections of a filter and project once per batch",
+                        featuresConfig.isOptimizeCommonSubExpressions(),
                         false));
     }
 
@@ -507,6 +640,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(SPILL_ENABLED, Boolean.class);
     }
 
+    public static boolean isSpillOrderBy(Session session)
+    {
+        return session.getSystemProperty(SPILL_ORDER_BY, Boolean.class);
+    }
+
+    public static boolean isSpillWindowOperator(Session session)
+    {
+        return session.getSystemProperty(SPILL_WINDOW_OPERATOR, Boolean.class);
+    }
+
     public static DataSize getAggregationOperatorUnspillMemoryLimit(Session session)
     {
         DataSize memoryLimitForMerge = session.getSystemProperty(AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT, DataSize.class);
@@ -514,6 +657,13 @@ public final class SystemSessionProperties
         return memoryLimitForMerge;
     }
 
+    public static DataSize getJoinOperatorUnspillMemoryLimit(Session session)
+    {
+        DataSize memoryLimit = session.getSystemProperty(JOIN_OPERATOR_UNSPILL_MEMORY_LIMIT, DataSize.class);
+        checkArgument(memoryLimit.toBytes() > 0, "%s must be positive", JOIN_OPERATOR_UNSPILL_MEMORY_LIMIT);
+        return memoryLimit;
+    }
+
     public static boolean isOptimizeDistinctAggregationEnabled(Session session)
     {
         return session.getSystemProperty(OPTIMIZE_DISTINCT_AGGREGATIONS, Boolean.class);
@@ -539,6 +689,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(EXCHANGE_COMPRESSION, Boolean.class);
     }
 
+    public static ExchangeCompressionCodec getExchangeCompressionCodec(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_COMPRESSION_CODEC, ExchangeCompressionCodec.class);
+    }
+
     public static boolean isEnableIntermediateAggregations(Session session)
     {
         return session.getSystemProperty(ENABLE_INTERMEDIATE_AGGREGATIONS, Boolean.class);
@@ -573,4 +728,59 @@ public final class SystemSessionProperties
     {
         return session.getSystemProperty(FILTER_AND_PROJECT_MIN_OUTPUT_PAGE_ROW_COUNT, Integer.class);
     }
+
+    public static boolean isEnableDynamicFiltering(Session session)
+    {
+        return session.getSystemProperty(ENABLE_DYNAMIC_FILTERING, Boolean.class);
+    }
+
+    public static boolean isCostBasedJoinReorderingEnabled(Session session)
+    {
+        return session.getSystemProperty(COST_BASED_JOIN_REORDERING, Boolean.class);
+    }
+
+    public static int getMaxReorderedJoins(Session session)
+    {
+        return session.getSystemProperty(MAX_REORDERED_JOINS, Integer.class);
+    }
+
+    public static boolean isAutomaticJoinDistributionType(Session session)
+    {
+        return session.getSystemProperty(AUTOMATIC_JOIN_DISTRIBUTION_TYPE, Boolean.class);
+    }
+
+    public static DataSize getJoinMaxBroadcastTableSize(Session session)
+    {
+        return session.getSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, DataSize.class);
+    }
+
+    public static boolean isDistributedSortEnabled(Session session)
+    {
+        return session.getSystemProperty(DISTRIBUTED_SORT, Boolean.class);
+    }
+
+    public static boolean isOffHeapGroupByHashEnabled(Session session)
+    {
+        return session.getSystemProperty(OFF_HEAP_GROUP_BY_HASH, Boolean.class);
+    }
+
+    public static boolean isAdaptivePartialAggregationEnabled(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION, Boolean.class);
+    }
+
+    public static int getAdaptivePartialAggregationMinRows(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS, Integer.class);
+    }
+
+    public static double getAdaptivePartialAggregationUniqueRowsRatioThreshold(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD, Double.class);
+    }
+
+    public static boolean isOptimizeCommonSubExpressions(Session session)
+    {
+        return session.getSystemProperty(OPTIMIZE_COMMON_SUB_EXPRESSIONS, Boolean.class);
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.iterative.GroupReference;
+import com.facebook.presto.sql.planner.iterative.Lookup;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Computes statistics of a plan bottom up, remembering the statistics of every
+ * node instance it has seen, so that alternative plans sharing subtrees are
+ * only estimated once.
+ */
+public class CachingStatsProvider
+        implements StatsProvider
+{
+    private final StatsCalculator statsCalculator;
+    private final Lookup lookup;
+    private final Session session;
+    private final Map<Symbol, Type> types;
+
+    private final Map<PlanNode, PlanNodeStatsEstimate> cache = new IdentityHashMap<>();
+
+    public CachingStatsProvider(StatsCalculator statsCalculator, Lookup lookup, Session session, Map<Symbol, Type> types)
+    {
+        this.statsCalculator = requireNonNull(statsCalculator, "statsCalculator is null");
+        this.lookup = requireNonNull(lookup, "lookup is null");
+        this.session = requireNonNull(session, "session is null");
+        this.types = requireNonNull(types, "types is null");
+    }
+
+    @Override
+    public PlanNodeStatsEstimate getStats(PlanNode node)
+    {
+        requireNonNull(node, "node is null");
+
+        PlanNodeStatsEstimate stats = cache.get(node);
+        if (stats == null) {
+            PlanNode resolved = node instanceof GroupReference ? lookup.resolve(node) : node;
+            stats = statsCalculator.calculateStats(resolved, this, lookup, session, types);
+            cache.put(node, stats);
+        }
+        return stats;
+    }
+}
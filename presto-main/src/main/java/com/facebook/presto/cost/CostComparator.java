@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.Comparator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Orders cost estimates by a weighted sum of their components. Estimates with
+ * unknown components can not be compared.
+ */
+public class CostComparator
+        implements Comparator<PlanNodeCostEstimate>
+{
+    private static final double DEFAULT_CPU_WEIGHT = 75;
+    private static final double DEFAULT_MEMORY_WEIGHT = 10;
+    private static final double DEFAULT_NETWORK_WEIGHT = 15;
+
+    private final double cpuWeight;
+    private final double memoryWeight;
+    private final double networkWeight;
+
+    public CostComparator()
+    {
+        this(DEFAULT_CPU_WEIGHT, DEFAULT_MEMORY_WEIGHT, DEFAULT_NETWORK_WEIGHT);
+    }
+
+    @VisibleForTesting
+    public CostComparator(double cpuWeight, double memoryWeight, double networkWeight)
+    {
+        checkArgument(cpuWeight >= 0, "cpuWeight can not be negative");
+        checkArgument(memoryWeight >= 0, "memoryWeight can not be negative");
+        checkArgument(networkWeight >= 0, "networkWeight can not be negative");
+        this.cpuWeight = cpuWeight;
+        this.memoryWeight = memoryWeight;
+        this.networkWeight = networkWeight;
+    }
+
+    @Override
+    public int compare(PlanNodeCostEstimate left, PlanNodeCostEstimate right)
+    {
+        requireNonNull(left, "left is null");
+        requireNonNull(right, "right is null");
+        checkArgument(!left.hasUnknownComponents() && !right.hasUnknownComponents(), "can not compare unknown costs");
+
+        return Double.compare(weightedCost(left), weightedCost(right));
+    }
+
+    private double weightedCost(PlanNodeCostEstimate cost)
+    {
+        return cost.getCpuCost() * cpuWeight + cost.getMemoryCost() * memoryWeight + cost.getNetworkCost() * networkWeight;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.predicate.DiscreteValues;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.Ranges;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.DomainTranslator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.tree.BooleanLiteral;
+import com.facebook.presto.sql.tree.Expression;
+
+import java.util.Map;
+import java.util.OptionalDouble;
+
+import static com.facebook.presto.cost.StatsUtil.toStatsRepresentation;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.lang.Double.isNaN;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Estimates the statistics of rows matching a predicate. The part of the predicate
+ * that can be expressed as a {@link TupleDomain} is estimated from the statistics of
+ * each symbol, assuming values are distributed uniformly and symbols are independent.
+ */
+public class FilterStatsCalculator
+{
+    static final double UNKNOWN_FILTER_COEFFICIENT = 0.5;
+
+    private final Metadata metadata;
+
+    public FilterStatsCalculator(Metadata metadata)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+    }
+
+    public PlanNodeStatsEstimate filterStats(PlanNodeStatsEstimate inputStats, Expression predicate, Session session, Map<Symbol, Type> types)
+    {
+        DomainTranslator.ExtractionResult extractionResult = DomainTranslator.fromPredicate(metadata, session, predicate, types);
+        TupleDomain<Symbol> tupleDomain = extractionResult.getTupleDomain();
+
+        PlanNodeStatsEstimate.Builder outputStats = PlanNodeStatsEstimate.buildFrom(inputStats);
+        if (tupleDomain.isNone()) {
+            return outputStats.setOutputRowCount(0).build();
+        }
+
+        double selectivity = 1.0;
+        for (Map.Entry<Symbol, Domain> entry : tupleDomain.getDomains().get().entrySet()) {
+            DomainEstimate estimate = estimateDomain(entry.getValue(), inputStats.getSymbolStatistics(entry.getKey()));
+            selectivity *= estimate.getSelectivity();
+            outputStats.addSymbolStatistics(entry.getKey(), estimate.getStatistics());
+        }
+        if (!extractionResult.getRemainingExpression().equals(BooleanLiteral.TRUE_LITERAL)) {
+            selectivity *= UNKNOWN_FILTER_COEFFICIENT;
+        }
+
+        double outputRowCount = inputStats.getOutputRowCount() * selectivity;
+        PlanNodeStatsEstimate filtered = outputStats.setOutputRowCount(outputRowCount).build();
+        return capDistinctValuesCounts(filtered);
+    }
+
+    static PlanNodeStatsEstimate capDistinctValuesCounts(PlanNodeStatsEstimate stats)
+    {
+        if (stats.isOutputRowCountUnknown()) {
+            return stats;
+        }
+        PlanNodeStatsEstimate.Builder result = PlanNodeStatsEstimate.buildFrom(stats);
+        stats.getSymbolStatistics().forEach((symbol, symbolStats) ->
+                result.addSymbolStatistics(symbol, symbolStats.mapDistinctValuesCount(count -> min(count, stats.getOutputRowCount()))));
+        return result.build();
+    }
+
+    private static DomainEstimate estimateDomain(Domain domain, SymbolStatsEstimate stats)
+    {
+        if (domain.isNone()) {
+            return new DomainEstimate(0, stats);
+        }
+
+        double nullsFraction = isNaN(stats.getNullsFraction()) ? 0 : stats.getNullsFraction();
+        DomainEstimate valuesEstimate = domain.getValues().getValuesProcessor().transform(
+                ranges -> estimateRanges(domain.getType(), ranges, stats),
+                discreteValues -> estimateDiscreteValues(discreteValues, stats),
+                allOrNone -> new DomainEstimate(allOrNone.isAll() ? 1 : 0, stats));
+
+        double nonNullSelectivity = valuesEstimate.getSelectivity() * (1 - nullsFraction);
+        double nullSelectivity = domain.isNullAllowed() ? nullsFraction : 0;
+        double selectivity = nonNullSelectivity + nullSelectivity;
+
+        SymbolStatsEstimate statistics = SymbolStatsEstimate.buildFrom(valuesEstimate.getStatistics())
+                .setNullsFraction(selectivity == 0 ? 0 : nullSelectivity / selectivity)
+                .build();
+        return new DomainEstimate(selectivity, statistics);
+    }
+
+    private static DomainEstimate estimateRanges(Type type, Ranges ranges, SymbolStatsEstimate stats)
+    {
+        double distinctValuesCount = stats.getDistinctValuesCount();
+
+        double selectivity = 0;
+        double outputDistinctValuesCount = 0;
+        double outputLowValue = POSITIVE_INFINITY;
+        double outputHighValue = NEGATIVE_INFINITY;
+        for (Range range : ranges.getOrderedRanges()) {
+            double rangeLow = range.getLow().isLowerUnbounded() ? NEGATIVE_INFINITY : toDouble(type, range.getLow().getValue());
+            double rangeHigh = range.getHigh().isUpperUnbounded() ? POSITIVE_INFINITY : toDouble(type, range.getHigh().getValue());
+            boolean rangeComparable = !isNaN(rangeLow) && !isNaN(rangeHigh);
+
+            if (rangeComparable && stats.hasFiniteRange() && (rangeHigh < stats.getLowValue() || rangeLow > stats.getHighValue())) {
+                // range does not overlap with the values of the symbol
+                continue;
+            }
+
+            double rangeSelectivity;
+            if (range.isSingleValue()) {
+                rangeSelectivity = isNaN(distinctValuesCount) ? UNKNOWN_FILTER_COEFFICIENT : 1 / max(distinctValuesCount, 1);
+                outputDistinctValuesCount += 1;
+            }
+            else if (rangeComparable && stats.hasFiniteRange()) {
+                double overlapLow = max(rangeLow, stats.getLowValue());
+                double overlapHigh = min(rangeHigh, stats.getHighValue());
+                double width = stats.getHighValue() - stats.getLowValue();
+                rangeSelectivity = width == 0 ? 1 : (overlapHigh - overlapLow) / width;
+                outputDistinctValuesCount += rangeSelectivity * distinctValuesCount;
+            }
+            else {
+                rangeSelectivity = UNKNOWN_FILTER_COEFFICIENT;
+                outputDistinctValuesCount += rangeSelectivity * distinctValuesCount;
+            }
+            selectivity += rangeSelectivity;
+
+            outputLowValue = min(outputLowValue, rangeComparable ? max(rangeLow, stats.getLowValue()) : stats.getLowValue());
+            outputHighValue = max(outputHighValue, rangeComparable ? min(rangeHigh, stats.getHighValue()) : stats.getHighValue());
+        }
+
+        SymbolStatsEstimate statistics = SymbolStatsEstimate.buildFrom(stats)
+                .setDistinctValuesCount(min(outputDistinctValuesCount, distinctValuesCount))
+                .setLowValue(selectivity == 0 ? stats.getLowValue() : outputLowValue)
+                .setHighValue(selectivity == 0 ? stats.getHighValue() : outputHighValue)
+                .build();
+        return new DomainEstimate(min(selectivity, 1), statistics);
+    }
+
+    private static DomainEstimate estimateDiscreteValues(DiscreteValues discreteValues, SymbolStatsEstimate stats)
+    {
+        double distinctValuesCount = stats.getDistinctValuesCount();
+        int valuesCount = discreteValues.getValues().size();
+        if (isNaN(distinctValuesCount)) {
+            return new DomainEstimate(UNKNOWN_FILTER_COEFFICIENT, stats);
+        }
+
+        double matchingValuesCount = discreteValues.isWhiteList() ? min(valuesCount, distinctValuesCount) : max(distinctValuesCount - valuesCount, 0);
+        SymbolStatsEstimate statistics = SymbolStatsEstimate.buildFrom(stats)
+                .setDistinctValuesCount(matchingValuesCount)
+                .build();
+        return new DomainEstimate(matchingValuesCount / max(distinctValuesCount, 1), statistics);
+    }
+
+    private static double toDouble(Type type, Object value)
+    {
+        OptionalDouble result = toStatsRepresentation(type, value);
+        return result.isPresent() ? result.getAsDouble() : Double.NaN;
+    }
+
+    private static class DomainEstimate
+    {
+        private final double selectivity;
+        private final SymbolStatsEstimate statistics;
+
+        public DomainEstimate(double selectivity, SymbolStatsEstimate statistics)
+        {
+            this.selectivity = selectivity;
+            this.statistics = requireNonNull(statistics, "statistics is null");
+        }
+
+        public double getSelectivity()
+        {
+            return selectivity;
+        }
+
+        public SymbolStatsEstimate getStatistics()
+        {
+            return statistics;
+        }
+    }
+}
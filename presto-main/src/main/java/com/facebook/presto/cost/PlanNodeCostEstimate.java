@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.lang.Double.NaN;
+import static java.lang.Double.isNaN;
+
+/**
+ * Estimated resources needed to execute a plan node, as CPU, memory and network
+ * components measured in bytes processed, retained and transferred. Unknown
+ * components are {@link Double#NaN}.
+ */
+public final class PlanNodeCostEstimate
+{
+    public static final PlanNodeCostEstimate UNKNOWN_COST = new PlanNodeCostEstimate(NaN, NaN, NaN);
+    public static final PlanNodeCostEstimate ZERO_COST = new PlanNodeCostEstimate(0, 0, 0);
+
+    private final double cpuCost;
+    private final double memoryCost;
+    private final double networkCost;
+
+    public PlanNodeCostEstimate(double cpuCost, double memoryCost, double networkCost)
+    {
+        this.cpuCost = cpuCost;
+        this.memoryCost = memoryCost;
+        this.networkCost = networkCost;
+    }
+
+    public double getCpuCost()
+    {
+        return cpuCost;
+    }
+
+    public double getMemoryCost()
+    {
+        return memoryCost;
+    }
+
+    public double getNetworkCost()
+    {
+        return networkCost;
+    }
+
+    public boolean hasUnknownComponents()
+    {
+        return isNaN(cpuCost) || isNaN(memoryCost) || isNaN(networkCost);
+    }
+
+    public PlanNodeCostEstimate add(PlanNodeCostEstimate other)
+    {
+        return new PlanNodeCostEstimate(
+                cpuCost + other.cpuCost,
+                memoryCost + other.memoryCost,
+                networkCost + other.networkCost);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("cpu", cpuCost)
+                .add("memory", memoryCost)
+                .add("network", networkCost)
+                .toString();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PlanNodeCostEstimate that = (PlanNodeCostEstimate) o;
+        return Double.compare(cpuCost, that.cpuCost) == 0 &&
+                Double.compare(memoryCost, that.memoryCost) == 0 &&
+                Double.compare(networkCost, that.networkCost) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(cpuCost, memoryCost, networkCost);
+    }
+}
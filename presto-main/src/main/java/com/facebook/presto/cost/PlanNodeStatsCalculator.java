@@ -0,0 +1,399 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.Constraint;
+import com.facebook.presto.spi.statistics.ColumnStatistics;
+import com.facebook.presto.spi.statistics.RangeColumnStatistics;
+import com.facebook.presto.spi.statistics.TableStatistics;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.LiteralInterpreter;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.iterative.Lookup;
+import com.facebook.presto.sql.planner.plan.AggregationNode;
+import com.facebook.presto.sql.planner.plan.EnforceSingleRowNode;
+import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.LimitNode;
+import com.facebook.presto.sql.planner.plan.OutputNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanVisitor;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.SemiJoinNode;
+import com.facebook.presto.sql.planner.plan.SortNode;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.planner.plan.TopNNode;
+import com.facebook.presto.sql.planner.plan.UnionNode;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.Literal;
+import com.facebook.presto.sql.tree.NullLiteral;
+import com.facebook.presto.sql.tree.SymbolReference;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+import static com.facebook.presto.cost.FilterStatsCalculator.capDistinctValuesCounts;
+import static com.facebook.presto.cost.PlanNodeStatsEstimate.UNKNOWN_STATS_ESTIMATE;
+import static com.facebook.presto.cost.StatsUtil.toStatsRepresentation;
+import static com.facebook.presto.cost.SymbolStatsEstimate.UNKNOWN_STATS;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.lang.Double.isNaN;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Propagates statistics through a plan, starting from the table statistics provided
+ * by connectors. Row counts, distinct values counts, null fractions, value ranges and
+ * data sizes are estimated through filters, projections, joins and aggregations;
+ * other nodes either pass the statistics of their source through or report unknown
+ * statistics.
+ */
+@ThreadSafe
+public class PlanNodeStatsCalculator
+        implements StatsCalculator
+{
+    private final Metadata metadata;
+    private final FilterStatsCalculator filterStatsCalculator;
+
+    public PlanNodeStatsCalculator(Metadata metadata)
+    {
+        this.metadata = requireNonNull(metadata, "metadata is null");
+        this.filterStatsCalculator = new FilterStatsCalculator(metadata);
+    }
+
+    @Override
+    public PlanNodeStatsEstimate calculateStats(PlanNode node, StatsProvider sourceStats, Lookup lookup, Session session, Map<Symbol, Type> types)
+    {
+        return node.accept(new Visitor(sourceStats, session, types), null);
+    }
+
+    private class Visitor
+            extends PlanVisitor<PlanNodeStatsEstimate, Void>
+    {
+        private final StatsProvider sourceStats;
+        private final Session session;
+        private final Map<Symbol, Type> types;
+
+        public Visitor(StatsProvider sourceStats, Session session, Map<Symbol, Type> types)
+        {
+            this.sourceStats = requireNonNull(sourceStats, "sourceStats is null");
+            this.session = requireNonNull(session, "session is null");
+            this.types = requireNonNull(types, "types is null");
+        }
+
+        @Override
+        protected PlanNodeStatsEstimate visitPlan(PlanNode node, Void context)
+        {
+            return UNKNOWN_STATS_ESTIMATE;
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitOutput(OutputNode node, Void context)
+        {
+            return sourceStats.getStats(node.getSource());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitSort(SortNode node, Void context)
+        {
+            return sourceStats.getStats(node.getSource());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitTableScan(TableScanNode node, Void context)
+        {
+            Constraint<ColumnHandle> constraint = new Constraint<>(node.getCurrentConstraint(), bindings -> true);
+            TableStatistics tableStatistics = metadata.getTableStatistics(session, node.getTable(), constraint);
+
+            double rowCount = tableStatistics.getRowCount().getValue();
+            PlanNodeStatsEstimate.Builder stats = PlanNodeStatsEstimate.builder()
+                    .setOutputRowCount(rowCount);
+            for (Map.Entry<Symbol, ColumnHandle> entry : node.getAssignments().entrySet()) {
+                ColumnStatistics columnStatistics = tableStatistics.getColumnStatistics().get(entry.getValue());
+                if (columnStatistics != null) {
+                    stats.addSymbolStatistics(entry.getKey(), toSymbolStatistics(rowCount, columnStatistics, types.get(entry.getKey())));
+                }
+            }
+            return stats.build();
+        }
+
+        private SymbolStatsEstimate toSymbolStatistics(double rowCount, ColumnStatistics columnStatistics, Type type)
+        {
+            RangeColumnStatistics rangeStatistics = columnStatistics.getOnlyRangeColumnStatistics();
+            double nullsFraction = columnStatistics.getNullsFraction().getValue();
+            double nonNullRowCount = rowCount * (1.0 - (isNaN(nullsFraction) ? 0 : nullsFraction));
+            OptionalDouble lowValue = rangeStatistics.getLowValue().map(value -> toStatsRepresentation(type, value)).orElse(OptionalDouble.empty());
+            OptionalDouble highValue = rangeStatistics.getHighValue().map(value -> toStatsRepresentation(type, value)).orElse(OptionalDouble.empty());
+            return SymbolStatsEstimate.builder()
+                    .setNullsFraction(nullsFraction)
+                    .setDistinctValuesCount(rangeStatistics.getDistinctValuesCount().getValue())
+                    .setAverageRowSize(nonNullRowCount == 0 ? 0 : rangeStatistics.getDataSize().getValue() / nonNullRowCount)
+                    .setLowValue(lowValue.orElse(NEGATIVE_INFINITY))
+                    .setHighValue(highValue.orElse(POSITIVE_INFINITY))
+                    .build();
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitFilter(FilterNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSource());
+            return filterStatsCalculator.filterStats(sourceStats, node.getPredicate(), session, types);
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitProject(ProjectNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSource());
+            PlanNodeStatsEstimate.Builder stats = PlanNodeStatsEstimate.builder()
+                    .setOutputRowCount(sourceStats.getOutputRowCount());
+            for (Map.Entry<Symbol, Expression> entry : node.getAssignments().entrySet()) {
+                Expression expression = entry.getValue();
+                if (expression instanceof SymbolReference) {
+                    stats.addSymbolStatistics(entry.getKey(), sourceStats.getSymbolStatistics(Symbol.from(expression)));
+                }
+                else if (expression instanceof Literal) {
+                    stats.addSymbolStatistics(entry.getKey(), literalStatistics((Literal) expression, types.get(entry.getKey())));
+                }
+            }
+            return stats.build();
+        }
+
+        private SymbolStatsEstimate literalStatistics(Literal literal, Type type)
+        {
+            if (literal instanceof NullLiteral) {
+                return SymbolStatsEstimate.builder()
+                        .setNullsFraction(1)
+                        .setDistinctValuesCount(0)
+                        .build();
+            }
+            OptionalDouble value = toStatsRepresentation(type, LiteralInterpreter.evaluate(metadata, session.toConnectorSession(), literal));
+            return SymbolStatsEstimate.builder()
+                    .setNullsFraction(0)
+                    .setDistinctValuesCount(1)
+                    .setLowValue(value.orElse(NEGATIVE_INFINITY))
+                    .setHighValue(value.orElse(POSITIVE_INFINITY))
+                    .build();
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitJoin(JoinNode node, Void context)
+        {
+            PlanNodeStatsEstimate leftStats = sourceStats.getStats(node.getLeft());
+            PlanNodeStatsEstimate rightStats = sourceStats.getStats(node.getRight());
+
+            PlanNodeStatsEstimate crossJoinStats = PlanNodeStatsEstimate.builder()
+                    .setOutputRowCount(leftStats.getOutputRowCount() * rightStats.getOutputRowCount())
+                    .addSymbolStatistics(leftStats.getSymbolStatistics())
+                    .addSymbolStatistics(rightStats.getSymbolStatistics())
+                    .build();
+
+            PlanNodeStatsEstimate innerJoinStats = filterByCriteria(crossJoinStats, node.getCriteria(), leftStats, rightStats);
+            if (node.getFilter().isPresent()) {
+                innerJoinStats = filterStatsCalculator.filterStats(innerJoinStats, node.getFilter().get(), session, types);
+            }
+
+            double innerRowCount = innerJoinStats.getOutputRowCount();
+            double outputRowCount;
+            switch (node.getType()) {
+                case INNER:
+                    outputRowCount = innerRowCount;
+                    break;
+                case LEFT:
+                    outputRowCount = max(innerRowCount, leftStats.getOutputRowCount());
+                    break;
+                case RIGHT:
+                    outputRowCount = max(innerRowCount, rightStats.getOutputRowCount());
+                    break;
+                case FULL:
+                    outputRowCount = max(innerRowCount, leftStats.getOutputRowCount() + rightStats.getOutputRowCount());
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unsupported join type: " + node.getType());
+            }
+
+            PlanNodeStatsEstimate.Builder stats = PlanNodeStatsEstimate.builder()
+                    .setOutputRowCount(outputRowCount);
+            for (Symbol symbol : node.getOutputSymbols()) {
+                stats.addSymbolStatistics(symbol, innerJoinStats.getSymbolStatistics(symbol));
+            }
+            return capDistinctValuesCounts(stats.build());
+        }
+
+        /**
+         * Each equi-join clause keeps the matching fraction of the cross product, assuming
+         * the values of the side with fewer distinct values are all present on the other side.
+         */
+        private PlanNodeStatsEstimate filterByCriteria(PlanNodeStatsEstimate crossJoinStats, List<JoinNode.EquiJoinClause> criteria, PlanNodeStatsEstimate leftStats, PlanNodeStatsEstimate rightStats)
+        {
+            PlanNodeStatsEstimate.Builder stats = PlanNodeStatsEstimate.buildFrom(crossJoinStats);
+            double rowCount = crossJoinStats.getOutputRowCount();
+            for (JoinNode.EquiJoinClause clause : criteria) {
+                SymbolStatsEstimate leftSymbolStats = leftStats.getSymbolStatistics(clause.getLeft());
+                SymbolStatsEstimate rightSymbolStats = rightStats.getSymbolStatistics(clause.getRight());
+
+                // without distinct values counts, assume the keys are unique
+                double leftDistinctValues = isNaN(leftSymbolStats.getDistinctValuesCount()) ? leftStats.getOutputRowCount() : leftSymbolStats.getDistinctValuesCount();
+                double rightDistinctValues = isNaN(rightSymbolStats.getDistinctValuesCount()) ? rightStats.getOutputRowCount() : rightSymbolStats.getDistinctValuesCount();
+                double leftNonNullFraction = 1 - (isNaN(leftSymbolStats.getNullsFraction()) ? 0 : leftSymbolStats.getNullsFraction());
+                double rightNonNullFraction = 1 - (isNaN(rightSymbolStats.getNullsFraction()) ? 0 : rightSymbolStats.getNullsFraction());
+
+                rowCount *= leftNonNullFraction * rightNonNullFraction / max(max(leftDistinctValues, rightDistinctValues), 1);
+
+                SymbolStatsEstimate keyStats = SymbolStatsEstimate.builder()
+                        .setNullsFraction(0)
+                        .setDistinctValuesCount(min(leftDistinctValues, rightDistinctValues))
+                        .setLowValue(max(leftSymbolStats.getLowValue(), rightSymbolStats.getLowValue()))
+                        .setHighValue(min(leftSymbolStats.getHighValue(), rightSymbolStats.getHighValue()))
+                        .build();
+                stats.addSymbolStatistics(clause.getLeft(), SymbolStatsEstimate.buildFrom(keyStats).setAverageRowSize(leftSymbolStats.getAverageRowSize()).build());
+                stats.addSymbolStatistics(clause.getRight(), SymbolStatsEstimate.buildFrom(keyStats).setAverageRowSize(rightSymbolStats.getAverageRowSize()).build());
+            }
+            return stats.setOutputRowCount(rowCount).build();
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitSemiJoin(SemiJoinNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSource());
+            return PlanNodeStatsEstimate.buildFrom(sourceStats)
+                    .addSymbolStatistics(node.getSemiJoinOutput(), UNKNOWN_STATS)
+                    .build();
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitAggregation(AggregationNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSource());
+            if (node.getGroupingSets().size() != 1) {
+                return UNKNOWN_STATS_ESTIMATE;
+            }
+
+            PlanNodeStatsEstimate.Builder stats = PlanNodeStatsEstimate.builder();
+            double rowCount = 1;
+            for (Symbol groupingKey : node.getGroupingKeys()) {
+                SymbolStatsEstimate symbolStats = sourceStats.getSymbolStatistics(groupingKey);
+                double nullGroup = isNaN(symbolStats.getNullsFraction()) || symbolStats.getNullsFraction() > 0 ? 1 : 0;
+                rowCount *= symbolStats.getDistinctValuesCount() + nullGroup;
+                stats.addSymbolStatistics(groupingKey, symbolStats);
+            }
+            if (!node.getGroupingKeys().isEmpty()) {
+                // there can not be more groups than input rows; if the number of groups is unknown, assume all rows are distinct
+                rowCount = isNaN(rowCount) ? sourceStats.getOutputRowCount() : min(rowCount, sourceStats.getOutputRowCount());
+            }
+            return capDistinctValuesCounts(stats.setOutputRowCount(rowCount).build());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitUnion(UnionNode node, Void context)
+        {
+            double rowCount = 0;
+            PlanNodeStatsEstimate.Builder stats = PlanNodeStatsEstimate.builder();
+            for (int i = 0; i < node.getSources().size(); i++) {
+                PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSources().get(i));
+                rowCount += sourceStats.getOutputRowCount();
+                for (Map.Entry<Symbol, SymbolReference> entry : node.sourceSymbolMap(i).entrySet()) {
+                    SymbolStatsEstimate symbolStats = sourceStats.getSymbolStatistics(Symbol.from(entry.getValue()));
+                    if (i == 0) {
+                        stats.addSymbolStatistics(entry.getKey(), symbolStats);
+                    }
+                    else {
+                        stats.addSymbolStatistics(entry.getKey(), addUnionedStatistics(stats.build().getSymbolStatistics(entry.getKey()), symbolStats));
+                    }
+                }
+            }
+            return capDistinctValuesCounts(stats.setOutputRowCount(rowCount).build());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitExchange(ExchangeNode node, Void context)
+        {
+            double rowCount = 0;
+            PlanNodeStatsEstimate.Builder stats = PlanNodeStatsEstimate.builder();
+            for (int i = 0; i < node.getSources().size(); i++) {
+                PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSources().get(i));
+                rowCount += sourceStats.getOutputRowCount();
+                List<Symbol> inputs = node.getInputs().get(i);
+                for (int j = 0; j < node.getOutputSymbols().size(); j++) {
+                    Symbol output = node.getOutputSymbols().get(j);
+                    SymbolStatsEstimate symbolStats = sourceStats.getSymbolStatistics(inputs.get(j));
+                    if (i == 0) {
+                        stats.addSymbolStatistics(output, symbolStats);
+                    }
+                    else {
+                        stats.addSymbolStatistics(output, addUnionedStatistics(stats.build().getSymbolStatistics(output), symbolStats));
+                    }
+                }
+            }
+            return capDistinctValuesCounts(stats.setOutputRowCount(rowCount).build());
+        }
+
+        private SymbolStatsEstimate addUnionedStatistics(SymbolStatsEstimate left, SymbolStatsEstimate right)
+        {
+            // null fractions and row sizes are not weighted, as it is good enough for planning
+            return SymbolStatsEstimate.builder()
+                    .setLowValue(min(left.getLowValue(), right.getLowValue()))
+                    .setHighValue(max(left.getHighValue(), right.getHighValue()))
+                    .setDistinctValuesCount(left.getDistinctValuesCount() + right.getDistinctValuesCount())
+                    .setNullsFraction((left.getNullsFraction() + right.getNullsFraction()) / 2)
+                    .setAverageRowSize((left.getAverageRowSize() + right.getAverageRowSize()) / 2)
+                    .build();
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitLimit(LimitNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSource());
+            return capDistinctValuesCounts(sourceStats.mapOutputRowCount(rowCount -> limitRowCount(rowCount, node.getCount())));
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitTopN(TopNNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSource());
+            return capDistinctValuesCounts(sourceStats.mapOutputRowCount(rowCount -> limitRowCount(rowCount, node.getCount())));
+        }
+
+        private double limitRowCount(double rowCount, long limit)
+        {
+            return isNaN(rowCount) ? limit : min(rowCount, limit);
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitValues(ValuesNode node, Void context)
+        {
+            return PlanNodeStatsEstimate.builder()
+                    .setOutputRowCount(node.getRows().size())
+                    .build();
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitEnforceSingleRow(EnforceSingleRowNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = this.sourceStats.getStats(node.getSource());
+            return PlanNodeStatsEstimate.buildFrom(sourceStats)
+                    .setOutputRowCount(1)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.spi.type.FixedWidthType;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.Symbol;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static com.facebook.presto.cost.SymbolStatsEstimate.UNKNOWN_STATS;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.lang.Double.NaN;
+import static java.lang.Double.isNaN;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Estimated statistics of the output of a plan node. An unknown row count is
+ * represented as {@link Double#NaN}, and symbols without statistics are reported
+ * with {@link SymbolStatsEstimate#UNKNOWN_STATS}.
+ */
+public class PlanNodeStatsEstimate
+{
+    public static final PlanNodeStatsEstimate UNKNOWN_STATS_ESTIMATE = builder().build();
+
+    // used when the average size of a variable width value is not known
+    private static final double DEFAULT_DATA_SIZE_PER_COLUMN = 50;
+
+    private final double outputRowCount;
+    private final Map<Symbol, SymbolStatsEstimate> symbolStatistics;
+
+    private PlanNodeStatsEstimate(double outputRowCount, Map<Symbol, SymbolStatsEstimate> symbolStatistics)
+    {
+        this.outputRowCount = outputRowCount;
+        this.symbolStatistics = ImmutableMap.copyOf(requireNonNull(symbolStatistics, "symbolStatistics is null"));
+    }
+
+    public double getOutputRowCount()
+    {
+        return outputRowCount;
+    }
+
+    public boolean isOutputRowCountUnknown()
+    {
+        return isNaN(outputRowCount);
+    }
+
+    public Map<Symbol, SymbolStatsEstimate> getSymbolStatistics()
+    {
+        return symbolStatistics;
+    }
+
+    public SymbolStatsEstimate getSymbolStatistics(Symbol symbol)
+    {
+        return symbolStatistics.getOrDefault(symbol, UNKNOWN_STATS);
+    }
+
+    /**
+     * Estimates the size of the output, counting only the given symbols.
+     */
+    public double getOutputSizeInBytes(Collection<Symbol> outputSymbols, Map<Symbol, Type> types)
+    {
+        double outputSizeInBytes = 0;
+        for (Symbol symbol : outputSymbols) {
+            SymbolStatsEstimate symbolStatistics = getSymbolStatistics(symbol);
+            double nonNullRowCount = outputRowCount * (1.0 - (isNaN(symbolStatistics.getNullsFraction()) ? 0 : symbolStatistics.getNullsFraction()));
+
+            Type type = types.get(symbol);
+            if (type instanceof FixedWidthType) {
+                outputSizeInBytes += nonNullRowCount * ((FixedWidthType) type).getFixedSize();
+            }
+            else if (!isNaN(symbolStatistics.getAverageRowSize())) {
+                outputSizeInBytes += nonNullRowCount * symbolStatistics.getAverageRowSize();
+            }
+            else {
+                outputSizeInBytes += nonNullRowCount * DEFAULT_DATA_SIZE_PER_COLUMN;
+            }
+        }
+        return outputSizeInBytes;
+    }
+
+    public PlanNodeStatsEstimate mapOutputRowCount(Function<Double, Double> mappingFunction)
+    {
+        return buildFrom(this).setOutputRowCount(mappingFunction.apply(outputRowCount)).build();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("outputRowCount", outputRowCount)
+                .add("symbolStatistics", symbolStatistics)
+                .toString();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PlanNodeStatsEstimate that = (PlanNodeStatsEstimate) o;
+        return Double.compare(outputRowCount, that.outputRowCount) == 0 &&
+                Objects.equals(symbolStatistics, that.symbolStatistics);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(outputRowCount, symbolStatistics);
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static Builder buildFrom(PlanNodeStatsEstimate other)
+    {
+        return builder()
+                .setOutputRowCount(other.getOutputRowCount())
+                .addSymbolStatistics(other.getSymbolStatistics());
+    }
+
+    public static final class Builder
+    {
+        private double outputRowCount = NaN;
+        private final Map<Symbol, SymbolStatsEstimate> symbolStatistics = new HashMap<>();
+
+        public Builder setOutputRowCount(double outputRowCount)
+        {
+            this.outputRowCount = outputRowCount;
+            return this;
+        }
+
+        public Builder addSymbolStatistics(Symbol symbol, SymbolStatsEstimate statistics)
+        {
+            symbolStatistics.put(symbol, statistics);
+            return this;
+        }
+
+        public Builder addSymbolStatistics(Map<Symbol, SymbolStatsEstimate> statistics)
+        {
+            symbolStatistics.putAll(statistics);
+            return this;
+        }
+
+        public Builder removeSymbolStatistics(Symbol symbol)
+        {
+            symbolStatistics.remove(symbol);
+            return this;
+        }
+
+        public PlanNodeStatsEstimate build()
+        {
+            return new PlanNodeStatsEstimate(outputRowCount, symbolStatistics);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.spi.type.BigintType;
+import com.facebook.presto.spi.type.DateType;
+import com.facebook.presto.spi.type.DecimalType;
+import com.facebook.presto.spi.type.DoubleType;
+import com.facebook.presto.spi.type.IntegerType;
+import com.facebook.presto.spi.type.RealType;
+import com.facebook.presto.spi.type.SmallintType;
+import com.facebook.presto.spi.type.TimestampType;
+import com.facebook.presto.spi.type.TinyintType;
+import com.facebook.presto.spi.type.Type;
+
+import java.util.OptionalDouble;
+
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Math.toIntExact;
+
+final class StatsUtil
+{
+    private StatsUtil() {}
+
+    /**
+     * Maps a value in the native representation of the type onto a line of doubles
+     * preserving the order of values, so that ranges of values can be compared.
+     */
+    static OptionalDouble toStatsRepresentation(Type type, Object value)
+    {
+        if (value == null) {
+            return OptionalDouble.empty();
+        }
+        if (type instanceof BigintType || type instanceof IntegerType || type instanceof SmallintType || type instanceof TinyintType
+                || type instanceof DateType || type instanceof TimestampType) {
+            return OptionalDouble.of((long) value);
+        }
+        if (type instanceof DoubleType) {
+            return OptionalDouble.of((double) value);
+        }
+        if (type instanceof RealType) {
+            return OptionalDouble.of(intBitsToFloat(toIntExact((long) value)));
+        }
+        if (type instanceof DecimalType && ((DecimalType) type).isShort()) {
+            return OptionalDouble.of((long) value / Math.pow(10, ((DecimalType) type).getScale()));
+        }
+        return OptionalDouble.empty();
+    }
+}
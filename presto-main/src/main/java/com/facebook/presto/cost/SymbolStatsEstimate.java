@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.NaN;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.lang.Double.isNaN;
+
+/**
+ * Estimated statistics of the values of a single symbol. Unknown statistics are
+ * represented as {@link Double#NaN}; unknown bounds of the value range are infinite.
+ * Low and high values are only tracked for types with a numeric representation.
+ */
+public class SymbolStatsEstimate
+{
+    public static final SymbolStatsEstimate UNKNOWN_STATS = builder().build();
+
+    private final double lowValue;
+    private final double highValue;
+    private final double nullsFraction;
+    private final double averageRowSize;
+    private final double distinctValuesCount;
+
+    private SymbolStatsEstimate(double lowValue, double highValue, double nullsFraction, double averageRowSize, double distinctValuesCount)
+    {
+        this.lowValue = lowValue;
+        this.highValue = highValue;
+        this.nullsFraction = nullsFraction;
+        this.averageRowSize = averageRowSize;
+        this.distinctValuesCount = distinctValuesCount;
+    }
+
+    public double getLowValue()
+    {
+        return lowValue;
+    }
+
+    public double getHighValue()
+    {
+        return highValue;
+    }
+
+    public boolean hasFiniteRange()
+    {
+        return !Double.isInfinite(lowValue) && !Double.isInfinite(highValue) && !isNaN(lowValue) && !isNaN(highValue);
+    }
+
+    public double getNullsFraction()
+    {
+        return nullsFraction;
+    }
+
+    public double getAverageRowSize()
+    {
+        return averageRowSize;
+    }
+
+    public double getDistinctValuesCount()
+    {
+        return distinctValuesCount;
+    }
+
+    public SymbolStatsEstimate mapDistinctValuesCount(Function<Double, Double> mappingFunction)
+    {
+        return buildFrom(this).setDistinctValuesCount(mappingFunction.apply(distinctValuesCount)).build();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("lowValue", lowValue)
+                .add("highValue", highValue)
+                .add("nullsFraction", nullsFraction)
+                .add("averageRowSize", averageRowSize)
+                .add("distinctValuesCount", distinctValuesCount)
+                .toString();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SymbolStatsEstimate that = (SymbolStatsEstimate) o;
+        return Double.compare(lowValue, that.lowValue) == 0 &&
+                Double.compare(highValue, that.highValue) == 0 &&
+                Double.compare(nullsFraction, that.nullsFraction) == 0 &&
+                Double.compare(averageRowSize, that.averageRowSize) == 0 &&
+                Double.compare(distinctValuesCount, that.distinctValuesCount) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(lowValue, highValue, nullsFraction, averageRowSize, distinctValuesCount);
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public static Builder buildFrom(SymbolStatsEstimate other)
+    {
+        return builder()
+                .setLowValue(other.getLowValue())
+                .setHighValue(other.getHighValue())
+                .setNullsFraction(other.getNullsFraction())
+                .setAverageRowSize(other.getAverageRowSize())
+                .setDistinctValuesCount(other.getDistinctValuesCount());
+    }
+
+    public static final class Builder
+    {
+        private double lowValue = NEGATIVE_INFINITY;
+        private double highValue = POSITIVE_INFINITY;
+        private double nullsFraction = NaN;
+        private double averageRowSize = NaN;
+        private double distinctValuesCount = NaN;
+
+        public Builder setLowValue(double lowValue)
+        {
+            this.lowValue = lowValue;
+            return this;
+        }
+
+        public Builder setHighValue(double highValue)
+        {
+            this.highValue = highValue;
+            return this;
+        }
+
+        public Builder setNullsFraction(double nullsFraction)
+        {
+            this.nullsFraction = nullsFraction;
+            return this;
+        }
+
+        public Builder setAverageRowSize(double averageRowSize)
+        {
+            this.averageRowSize = averageRowSize;
+            return this;
+        }
+
+        public Builder setDistinctValuesCount(double distinctValuesCount)
+        {
+            this.distinctValuesCount = distinctValuesCount;
+            return this;
+        }
+
+        public SymbolStatsEstimate build()
+        {
+            return new SymbolStatsEstimate(lowValue, highValue, nullsFraction, averageRowSize, distinctValuesCount);
+        }
+    }
+}
@@ -42,6 +42,7 @@ import com.facebook.presto.spi.eventlistener.SplitCompletedEvent;
 import com.facebook.presto.spi.eventlistener.SplitFailureInfo;
 import com.facebook.presto.spi.eventlistener.SplitStatistics;
 import com.facebook.presto.spi.eventlistener.StageCpuDistribution;
+import com.facebook.presto.sql.planner.OptimizerStats;
 import com.facebook.presto.transaction.TransactionId;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -191,6 +192,16 @@ public class QueryMonitor
                 operatorSummaries.add(objectMapper.writeValueAsString(summary));
             }
 
+            ImmutableList.Builder<String> optimizerSummaries = ImmutableList.builder();
+            for (OptimizerStats summary : queryInfo.getQueryStats().getOptimizerSummaries()) {
+                optimizerSummaries.add(objectMapper.writeValueAsString(summary));
+            }
+
+            ImmutableList.Builder<String> ruleSummaries = ImmutableList.builder();
+            for (OptimizerStats summary : queryInfo.getQueryStats().getRuleSummaries()) {
+                ruleSummaries.add(objectMapper.writeValueAsString(summary));
+            }
+
             Optional<String> plan = Optional.empty();
             if (queryInfo.getPlan().isPresent()) {
                 plan = Optional.of(objectMapper.writeValueAsString(queryInfo.getPlan().get()));
@@ -212,6 +223,7 @@ public class QueryMonitor
                                     ofMillis(queryStats.getQueuedTime().toMillis()),
                                     Optional.ofNullable(queryStats.getAnalysisTime()).map(duration -> ofMillis(duration.toMillis())),
                                     Optional.ofNullable(queryStats.getDistributedPlanningTime()).map(duration -> ofMillis(duration.toMillis())),
+                                    Optional.ofNullable(queryStats.getLogicalPlanningTime()).map(duration -> ofMillis(duration.toMillis())),
                                     queryStats.getPeakMemoryReservation().toBytes(),
                                     queryStats.getRawInputDataSize().toBytes(),
                                     queryStats.getRawInputPositions(),
@@ -223,7 +235,9 @@ public class QueryMonitor
                                     queryStats.getCompletedDrivers(),
                                     queryInfo.isCompleteInfo(),
                                     getCpuDistributions(queryInfo),
-                                    operatorSummaries.build()),
+                                    operatorSummaries.build(),
+                                    optimizerSummaries.build(),
+                                    ruleSummaries.build()),
                             new QueryContext(
                                     queryInfo.getSession().getUser(),
                                     queryInfo.getSession().getPrincipal(),
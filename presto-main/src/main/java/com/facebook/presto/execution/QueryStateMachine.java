@@ -28,6 +28,8 @@ import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.QueryId;
 import com.facebook.presto.spi.resourceGroups.ResourceGroupId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.OptimizerStats;
+import com.facebook.presto.sql.planner.OptimizerStatsRecorder;
 import com.facebook.presto.sql.planner.PlanFragment;
 import com.facebook.presto.sql.planner.plan.TableScanNode;
 import com.facebook.presto.transaction.TransactionId;
@@ -112,6 +114,9 @@ public class QueryStateMachine
     private final AtomicReference<Duration> queuedTime = new AtomicReference<>();
     private final AtomicReference<Duration> analysisTime = new AtomicReference<>();
     private final AtomicReference<Duration> distributedPlanningTime = new AtomicReference<>();
+    private final AtomicReference<Duration> logicalPlanningTime = new AtomicReference<>();
+    private final AtomicReference<List<OptimizerStats>> optimizerSummaries = new AtomicReference<>(ImmutableList.of());
+    private final AtomicReference<List<OptimizerStats>> ruleSummaries = new AtomicReference<>(ImmutableList.of());
 
     private final AtomicReference<Long> finishingStartNanos = new AtomicReference<>();
     private final AtomicReference<Duration> finishingTime = new AtomicReference<>();
@@ -398,6 +403,7 @@ public class QueryStateMachine
                 queuedTime.get(),
                 analysisTime.get(),
                 distributedPlanningTime.get(),
+                logicalPlanningTime.get(),
                 totalPlanningTime.get(),
                 finishingTime.get(),
 
@@ -430,7 +436,9 @@ public class QueryStateMachine
                 processedInputPositions,
                 succinctBytes(outputDataSize),
                 outputPositions,
-                operatorStatsSummary.build());
+                operatorStatsSummary.build(),
+                optimizerSummaries.get(),
+                ruleSummaries.get());
 
         return new QueryInfo(queryId,
                 session.toSessionRepresentation(),
@@ -756,6 +764,13 @@ public class QueryStateMachine
         analysisTime.compareAndSet(null, nanosSince(analysisStart).convertToMostSuccinctTimeUnit());
     }
 
+    public void recordLogicalPlanning(long logicalPlanningStart, OptimizerStatsRecorder optimizerStats)
+    {
+        logicalPlanningTime.compareAndSet(null, nanosSince(logicalPlanningStart).convertToMostSuccinctTimeUnit());
+        optimizerSummaries.set(optimizerStats.getOptimizerStats());
+        ruleSummaries.set(optimizerStats.getRuleStats());
+    }
+
     public void recordDistributedPlanningTime(long distributedPlanningStart)
     {
         distributedPlanningTime.compareAndSet(null, nanosSince(distributedPlanningStart).convertToMostSuccinctTimeUnit());
@@ -846,6 +861,7 @@ public class QueryStateMachine
                 queryStats.getQueuedTime(),
                 queryStats.getAnalysisTime(),
                 queryStats.getDistributedPlanningTime(),
+                queryStats.getLogicalPlanningTime(),
                 queryStats.getTotalPlanningTime(),
                 queryStats.getFinishingTime(),
                 queryStats.getTotalTasks(),
@@ -872,7 +888,9 @@ public class QueryStateMachine
                 queryStats.getProcessedInputPositions(),
                 queryStats.getOutputDataSize(),
                 queryStats.getOutputPositions(),
-                ImmutableList.of()); // Remove the operator summaries as OperatorInfo (especially ExchangeClientStatus) can hold onto a large amount of memory
+                ImmutableList.of(), // Remove the operator summaries as OperatorInfo (especially ExchangeClientStatus) can hold onto a large amount of memory
+                queryStats.getOptimizerSummaries(),
+                queryStats.getRuleSummaries());
     }
 
     private long tickerNanos()
@@ -16,6 +16,7 @@ package com.facebook.presto.execution;
 import com.facebook.presto.operator.BlockedReason;
 import com.facebook.presto.operator.OperatorStats;
 import com.facebook.presto.operator.TableWriterOperator;
+import com.facebook.presto.sql.planner.OptimizerStats;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.annotations.VisibleForTesting;
@@ -48,6 +49,7 @@ public class QueryStats
     private final Duration queuedTime;
     private final Duration analysisTime;
     private final Duration distributedPlanningTime;
+    private final Duration logicalPlanningTime;
     private final Duration totalPlanningTime;
     private final Duration finishingTime;
 
@@ -84,6 +86,9 @@ public class QueryStats
 
     private final List<OperatorStats> operatorSummaries;
 
+    private final List<OptimizerStats> optimizerSummaries;
+    private final List<OptimizerStats> ruleSummaries;
+
     @VisibleForTesting
     public QueryStats()
     {
@@ -95,6 +100,7 @@ public class QueryStats
         this.queuedTime = null;
         this.analysisTime = null;
         this.distributedPlanningTime = null;
+        this.logicalPlanningTime = null;
         this.totalPlanningTime = null;
         this.finishingTime = null;
         this.totalTasks = 0;
@@ -122,6 +128,8 @@ public class QueryStats
         this.outputDataSize = null;
         this.outputPositions = 0;
         this.operatorSummaries = null;
+        this.optimizerSummaries = null;
+        this.ruleSummaries = null;
     }
 
     @JsonCreator
@@ -135,6 +143,7 @@ public class QueryStats
             @JsonProperty("queuedTime") Duration queuedTime,
             @JsonProperty("analysisTime") Duration analysisTime,
             @JsonProperty("distributedPlanningTime") Duration distributedPlanningTime,
+            @JsonProperty("logicalPlanningTime") Duration logicalPlanningTime,
             @JsonProperty("totalPlanningTime") Duration totalPlanningTime,
             @JsonProperty("finishingTime") Duration finishingTime,
 
@@ -169,7 +178,10 @@ public class QueryStats
             @JsonProperty("outputDataSize") DataSize outputDataSize,
             @JsonProperty("outputPositions") long outputPositions,
 
-            @JsonProperty("operatorSummaries") List<OperatorStats> operatorSummaries)
+            @JsonProperty("operatorSummaries") List<OperatorStats> operatorSummaries,
+
+            @JsonProperty("optimizerSummaries") List<OptimizerStats> optimizerSummaries,
+            @JsonProperty("ruleSummaries") List<OptimizerStats> ruleSummaries)
     {
         this.createTime = requireNonNull(createTime, "createTime is null");
         this.executionStartTime = executionStartTime;
@@ -180,6 +192,7 @@ public class QueryStats
         this.queuedTime = queuedTime;
         this.analysisTime = analysisTime;
         this.distributedPlanningTime = distributedPlanningTime;
+        this.logicalPlanningTime = logicalPlanningTime;
         this.totalPlanningTime = totalPlanningTime;
         this.finishingTime = finishingTime;
 
@@ -224,6 +237,9 @@ public class QueryStats
         checkArgument(outputPositions >= 0, "outputPositions is negative");
         this.outputPositions = outputPositions;
         this.operatorSummaries = ImmutableList.copyOf(requireNonNull(operatorSummaries, "operatorSummaries is null"));
+
+        this.optimizerSummaries = ImmutableList.copyOf(requireNonNull(optimizerSummaries, "optimizerSummaries is null"));
+        this.ruleSummaries = ImmutableList.copyOf(requireNonNull(ruleSummaries, "ruleSummaries is null"));
     }
 
     @JsonProperty
@@ -288,6 +304,15 @@ public class QueryStats
         return distributedPlanningTime;
     }
 
+    /**
+     * Time spent in the logical planner and the optimizers, which is part of the analysis time.
+     */
+    @JsonProperty
+    public Duration getLogicalPlanningTime()
+    {
+        return logicalPlanningTime;
+    }
+
     @JsonProperty
     public Duration getTotalPlanningTime()
     {
@@ -469,6 +494,18 @@ public class QueryStats
         return operatorSummaries;
     }
 
+    @JsonProperty
+    public List<OptimizerStats> getOptimizerSummaries()
+    {
+        return optimizerSummaries;
+    }
+
+    @JsonProperty
+    public List<OptimizerStats> getRuleSummaries()
+    {
+        return ruleSummaries;
+    }
+
     @JsonProperty
     public OptionalDouble getProgressPercentage()
     {
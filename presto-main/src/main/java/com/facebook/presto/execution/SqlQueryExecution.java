@@ -44,9 +44,11 @@ import com.facebook.presto.sql.planner.DistributedExecutionPlanner;
 import com.facebook.presto.sql.planner.InputExtractor;
 import com.facebook.presto.sql.planner.LogicalPlanner;
 import com.facebook.presto.sql.planner.NodePartitioningManager;
+import com.facebook.presto.sql.planner.OptimizerStatsRecorder;
 import com.facebook.presto.sql.planner.OutputExtractor;
 import com.facebook.presto.sql.planner.PartitioningHandle;
 import com.facebook.presto.sql.planner.Plan;
+import com.facebook.presto.sql.planner.PlanCache;
 import com.facebook.presto.sql.planner.PlanFragmenter;
 import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
 import com.facebook.presto.sql.planner.PlanOptimizers;
@@ -122,6 +124,7 @@ public final class SqlQueryExecution
     private final NodePartitioningManager nodePartitioningManager;
     private final NodeScheduler nodeScheduler;
     private final List<PlanOptimizer> planOptimizers;
+    private final PlanCache planCache;
     private final RemoteTaskFactory remoteTaskFactory;
     private final LocationFactory locationFactory;
     private final int scheduleSplitBatchSize;
@@ -152,6 +155,7 @@ public final class SqlQueryExecution
             NodeScheduler nodeScheduler,
             CostCalculator costCalculator,
             List<PlanOptimizer> planOptimizers,
+            PlanCache planCache,
             RemoteTaskFactory remoteTaskFactory,
             LocationFactory locationFactory,
             int scheduleSplitBatchSize,
@@ -174,6 +178,7 @@ public final class SqlQueryExecution
             this.nodeScheduler = requireNonNull(nodeScheduler, "nodeScheduler is null");
             this.costCalculator = requireNonNull(costCalculator, "costCalculator is null");
             this.planOptimizers = requireNonNull(planOptimizers, "planOptimizers is null");
+            this.planCache = requireNonNull(planCache, "planCache is null");
             this.locationFactory = requireNonNull(locationFactory, "locationFactory is null");
             this.queryExecutor = requireNonNull(queryExecutor, "queryExecutor is null");
             this.failureDetector = requireNonNull(failureDetector, "failureDetector is null");
@@ -357,10 +362,15 @@ public final class SqlQueryExecution
 
         stateMachine.setUpdateType(analysis.getUpdateType());
 
-        // plan query
-        PlanNodeIdAllocator idAllocator = new PlanNodeIdAllocator();
-        LogicalPlanner logicalPlanner = new LogicalPlanner(stateMachine.getSession(), planOptimizers, idAllocator, metadata, sqlParser, costCalculator);
-        Plan plan = logicalPlanner.plan(analysis);
+        // plan query, unless the plan of the same query is cached
+        long logicalPlanningStart = System.nanoTime();
+        OptimizerStatsRecorder optimizerStats = new OptimizerStatsRecorder();
+        Plan plan = planCache.getPlan(stateMachine.getSession(), analysis, () -> {
+            PlanNodeIdAllocator idAllocator = new PlanNodeIdAllocator();
+            LogicalPlanner logicalPlanner = new LogicalPlanner(stateMachine.getSession(), planOptimizers, idAllocator, metadata, sqlParser, costCalculator, optimizerStats);
+            return logicalPlanner.plan(analysis);
+        });
+        stateMachine.recordLogicalPlanning(logicalPlanningStart, optimizerStats);
         queryPlan.set(plan);
 
         // extract inputs
@@ -628,6 +638,7 @@ public final class SqlQueryExecution
         private final NodeScheduler nodeScheduler;
         private final CostCalculator costCalculator;
         private final List<PlanOptimizer> planOptimizers;
+        private final PlanCache planCache;
         private final RemoteTaskFactory remoteTaskFactory;
         private final TransactionManager transactionManager;
         private final QueryExplainer queryExplainer;
@@ -650,6 +661,7 @@ public final class SqlQueryExecution
                 NodeScheduler nodeScheduler,
                 CostCalculator costCalculator,
                 PlanOptimizers planOptimizers,
+                PlanCache planCache,
                 RemoteTaskFactory remoteTaskFactory,
                 TransactionManager transactionManager,
                 @ForQueryExecution ExecutorService executor,
@@ -671,6 +683,7 @@ public final class SqlQueryExecution
             this.nodePartitioningManager = requireNonNull(nodePartitioningManager, "nodePartitioningManager is null");
             this.nodeScheduler = requireNonNull(nodeScheduler, "nodeScheduler is null");
             requireNonNull(planOptimizers, "planOptimizers is null");
+            this.planCache = requireNonNull(planCache, "planCache is null");
             this.remoteTaskFactory = requireNonNull(remoteTaskFactory, "remoteTaskFactory is null");
             this.transactionManager = requireNonNull(transactionManager, "transactionManager is null");
             requireNonNull(featuresConfig, "featuresConfig is null");
@@ -707,6 +720,7 @@ public final class SqlQueryExecution
                     nodeScheduler,
                     costCalculator,
                     planOptimizers,
+                    planCache,
                     remoteTaskFactory,
                     locationFactory,
                     scheduleSplitBatchSize,
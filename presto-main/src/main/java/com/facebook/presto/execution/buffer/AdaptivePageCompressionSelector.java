@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.presto.execution.buffer.PageCompression.LZ4;
+import static com.facebook.presto.execution.buffer.PageCompression.SNAPPY;
+import static com.facebook.presto.execution.buffer.PageCompression.UNCOMPRESSED;
+import static com.facebook.presto.execution.buffer.PagesSerde.MINIMUM_COMPRESSION_RATIO;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Compresses the first pages with each codec in turn, and then uses the codec
+ * with the best compression ratio for the remaining pages. A codec whose ratio is
+ * within {@link #RATIO_TOLERANCE} of the best one is preferred if it is faster.
+ * If no codec reduces the data enough, the remaining pages are not compressed.
+ */
+@ThreadSafe
+public class AdaptivePageCompressionSelector
+        implements PageCompressionSelector
+{
+    private static final List<PageCompression> CANDIDATES = ImmutableList.of(LZ4, SNAPPY);
+    private static final int DEFAULT_SAMPLE_PAGES_PER_CODEC = 8;
+    private static final double RATIO_TOLERANCE = 0.05;
+
+    private final int samplePagesPerCodec;
+    private final AtomicInteger sampledPages = new AtomicInteger();
+
+    @GuardedBy("this")
+    private final long[] uncompressedBytes = new long[CANDIDATES.size()];
+    @GuardedBy("this")
+    private final long[] compressedBytes = new long[CANDIDATES.size()];
+    @GuardedBy("this")
+    private final long[] compressionNanos = new long[CANDIDATES.size()];
+    @GuardedBy("this")
+    private int recordedPages;
+
+    private volatile PageCompression selectedCompression;
+
+    public AdaptivePageCompressionSelector()
+    {
+        this(DEFAULT_SAMPLE_PAGES_PER_CODEC);
+    }
+
+    @VisibleForTesting
+    AdaptivePageCompressionSelector(int samplePagesPerCodec)
+    {
+        checkArgument(samplePagesPerCodec > 0, "samplePagesPerCodec must be positive");
+        this.samplePagesPerCodec = samplePagesPerCodec;
+    }
+
+    @Override
+    public PageCompression getCompression()
+    {
+        PageCompression compression = selectedCompression;
+        if (compression != null) {
+            return compression;
+        }
+        // pages requested before the samples of other drivers are recorded are sampled as well
+        return CANDIDATES.get(sampledPages.getAndIncrement() % CANDIDATES.size());
+    }
+
+    @Override
+    public synchronized void recordCompression(PageCompression compression, int uncompressedSize, int compressedSize, long compressionNanos)
+    {
+        int index = CANDIDATES.indexOf(compression);
+        if (selectedCompression != null || index < 0) {
+            return;
+        }
+        uncompressedBytes[index] += uncompressedSize;
+        compressedBytes[index] += compressedSize;
+        this.compressionNanos[index] += compressionNanos;
+        recordedPages++;
+
+        if (recordedPages >= samplePagesPerCodec * CANDIDATES.size()) {
+            selectedCompression = selectCompression();
+        }
+    }
+
+    @GuardedBy("this")
+    private PageCompression selectCompression()
+    {
+        PageCompression best = UNCOMPRESSED;
+        double bestRatio = MINIMUM_COMPRESSION_RATIO;
+        double bestNanosPerByte = Double.MAX_VALUE;
+        for (int i = 0; i < CANDIDATES.size(); i++) {
+            if (uncompressedBytes[i] == 0) {
+                continue;
+            }
+            double ratio = 1.0 * compressedBytes[i] / uncompressedBytes[i];
+            double nanosPerByte = 1.0 * compressionNanos[i] / uncompressedBytes[i];
+            if (ratio > MINIMUM_COMPRESSION_RATIO) {
+                continue;
+            }
+            boolean smaller = ratio < bestRatio - RATIO_TOLERANCE;
+            boolean similarAndFaster = ratio <= bestRatio + RATIO_TOLERANCE && nanosPerByte < bestNanosPerByte;
+            if (best == UNCOMPRESSED || smaller || similarAndFaster) {
+                best = CANDIDATES.get(i);
+                bestRatio = ratio;
+                bestNanosPerByte = nanosPerByte;
+            }
+        }
+        return best;
+    }
+
+    @VisibleForTesting
+    PageCompression getSelectedCompression()
+    {
+        return selectedCompression;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.TaskId;
+import io.airlift.units.DataSize;
+
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Request for the pages of one output buffer, as sent in a multiplexed results request.
+ * The max size is the number of bytes the requester is willing to accept for this buffer.
+ */
+public class BufferRequest
+{
+    private final TaskId taskId;
+    private final OutputBufferId bufferId;
+    private final long token;
+    private final DataSize maxSize;
+
+    public BufferRequest(TaskId taskId, OutputBufferId bufferId, long token, DataSize maxSize)
+    {
+        this.taskId = requireNonNull(taskId, "taskId is null");
+        this.bufferId = requireNonNull(bufferId, "bufferId is null");
+        this.token = token;
+        this.maxSize = requireNonNull(maxSize, "maxSize is null");
+    }
+
+    public TaskId getTaskId()
+    {
+        return taskId;
+    }
+
+    public OutputBufferId getBufferId()
+    {
+        return bufferId;
+    }
+
+    public long getToken()
+    {
+        return token;
+    }
+
+    public DataSize getMaxSize()
+    {
+        return maxSize;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BufferRequest that = (BufferRequest) o;
+        return token == that.token &&
+                Objects.equals(taskId, that.taskId) &&
+                Objects.equals(bufferId, that.bufferId) &&
+                Objects.equals(maxSize, that.maxSize);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(taskId, bufferId, token, maxSize);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("taskId", taskId)
+                .add("bufferId", bufferId)
+                .add("token", token)
+                .add("maxSize", maxSize)
+                .toString();
+    }
+}
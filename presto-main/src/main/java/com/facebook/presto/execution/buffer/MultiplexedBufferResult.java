@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import java.util.Optional;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Outcome of one buffer of a multiplexed results request. A buffer whose read
+ * failed carries the failure message instead of a result, so the failure is
+ * reported only to the client of that buffer and not to the whole request.
+ */
+public class MultiplexedBufferResult
+{
+    private final Optional<BufferResult> result;
+    private final Optional<String> failure;
+
+    public static MultiplexedBufferResult success(BufferResult result)
+    {
+        return new MultiplexedBufferResult(Optional.of(requireNonNull(result, "result is null")), Optional.empty());
+    }
+
+    public static MultiplexedBufferResult failure(String failure)
+    {
+        return new MultiplexedBufferResult(Optional.empty(), Optional.of(requireNonNull(failure, "failure is null")));
+    }
+
+    private MultiplexedBufferResult(Optional<BufferResult> result, Optional<String> failure)
+    {
+        this.result = result;
+        this.failure = failure;
+    }
+
+    public boolean isFailed()
+    {
+        return failure.isPresent();
+    }
+
+    public BufferResult getResult()
+    {
+        checkState(result.isPresent(), "buffer failed: %s", failure);
+        return result.get();
+    }
+
+    public String getFailure()
+    {
+        checkState(failure.isPresent(), "buffer did not fail");
+        return failure.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .omitNullValues()
+                .add("result", result.orElse(null))
+                .add("failure", failure.orElse(null))
+                .toString();
+    }
+}
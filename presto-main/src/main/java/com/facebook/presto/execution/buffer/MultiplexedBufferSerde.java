@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.TaskId;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.SliceOutput;
+
+import java.util.List;
+
+import static com.facebook.presto.execution.buffer.PagesSerdeUtil.readSerializedPage;
+import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writeSerializedPage;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.units.DataSize.succinctBytes;
+
+/**
+ * Binary encoding of multiplexed results requests and responses. A request is a
+ * list of buffer requests, and the response carries one frame per requested
+ * buffer, in the same order, each holding either the serialized pages of that
+ * buffer or the message of the failure reading it.
+ */
+public final class MultiplexedBufferSerde
+{
+    private MultiplexedBufferSerde() {}
+
+    public static void writeBufferRequests(SliceOutput output, List<BufferRequest> requests)
+    {
+        output.writeInt(requests.size());
+        for (BufferRequest request : requests) {
+            writeString(output, request.getTaskId().toString());
+            writeString(output, request.getBufferId().toString());
+            output.writeLong(request.getToken());
+            output.writeLong(request.getMaxSize().toBytes());
+        }
+    }
+
+    public static List<BufferRequest> readBufferRequests(SliceInput input)
+    {
+        int count = input.readInt();
+        ImmutableList.Builder<BufferRequest> requests = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            TaskId taskId = TaskId.valueOf(readString(input));
+            OutputBufferId bufferId = OutputBufferId.fromString(readString(input));
+            long token = input.readLong();
+            long maxSize = input.readLong();
+            requests.add(new BufferRequest(taskId, bufferId, token, succinctBytes(maxSize)));
+        }
+        return requests.build();
+    }
+
+    public static void writeBufferResults(SliceOutput output, List<MultiplexedBufferResult> results)
+    {
+        output.writeInt(results.size());
+        for (MultiplexedBufferResult multiplexedResult : results) {
+            output.writeBoolean(multiplexedResult.isFailed());
+            if (multiplexedResult.isFailed()) {
+                writeString(output, multiplexedResult.getFailure());
+                continue;
+            }
+            BufferResult result = multiplexedResult.getResult();
+            writeString(output, result.getTaskInstanceId());
+            output.writeLong(result.getToken());
+            output.writeLong(result.getNextToken());
+            output.writeBoolean(result.isBufferComplete());
+            output.writeInt(result.getSerializedPages().size());
+            for (SerializedPage page : result.getSerializedPages()) {
+                writeSerializedPage(output, page);
+            }
+        }
+    }
+
+    public static List<MultiplexedBufferResult> readBufferResults(SliceInput input)
+    {
+        int count = input.readInt();
+        ImmutableList.Builder<MultiplexedBufferResult> results = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            boolean failed = input.readBoolean();
+            if (failed) {
+                results.add(MultiplexedBufferResult.failure(readString(input)));
+                continue;
+            }
+            String taskInstanceId = readString(input);
+            long token = input.readLong();
+            long nextToken = input.readLong();
+            boolean bufferComplete = input.readBoolean();
+            int pageCount = input.readInt();
+            ImmutableList.Builder<SerializedPage> pages = ImmutableList.builder();
+            for (int page = 0; page < pageCount; page++) {
+                pages.add(readSerializedPage(input));
+            }
+            results.add(MultiplexedBufferResult.success(new BufferResult(taskInstanceId, token, nextToken, bufferComplete, pages.build())));
+        }
+        return results.build();
+    }
+
+    private static void writeString(SliceOutput output, String value)
+    {
+        Slice slice = utf8Slice(value);
+        output.writeInt(slice.length());
+        output.writeBytes(slice);
+    }
+
+    private static String readString(SliceInput input)
+    {
+        int length = input.readInt();
+        return input.readSlice(length).toStringUtf8();
+    }
+}
@@ -14,13 +14,24 @@
 package com.facebook.presto.execution.buffer;
 
 import com.facebook.presto.spi.PrestoException;
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.snappy.SnappyCompressor;
+import io.airlift.compress.snappy.SnappyDecompressor;
 
 import static com.facebook.presto.spi.StandardErrorCode.CORRUPT_PAGE;
 
+/**
+ * Codec of a serialized page. The marker is written with every page, so a reader
+ * can decompress pages regardless of the codec the writer was configured with.
+ */
 public enum PageCompression
 {
     UNCOMPRESSED((byte) 0),
-    COMPRESSED((byte) 1);
+    LZ4((byte) 1),
+    SNAPPY((byte) 2);
 
     private final byte marker;
 
@@ -34,11 +45,37 @@ public enum PageCompression
         return marker;
     }
 
+    public Compressor createCompressor()
+    {
+        switch (this) {
+            case LZ4:
+                return new Lz4Compressor();
+            case SNAPPY:
+                return new SnappyCompressor();
+            default:
+                throw new IllegalStateException("No compressor for " + this);
+        }
+    }
+
+    public Decompressor createDecompressor()
+    {
+        switch (this) {
+            case LZ4:
+                return new Lz4Decompressor();
+            case SNAPPY:
+                return new SnappyDecompressor();
+            default:
+                throw new IllegalStateException("No decompressor for " + this);
+        }
+    }
+
     public static PageCompression lookupCodecFromMarker(byte marker)
     {
-        if (marker != UNCOMPRESSED.getMarker() && marker != COMPRESSED.getMarker()) {
-            throw new PrestoException(CORRUPT_PAGE, "Page marker did not contain expected value");
+        for (PageCompression compression : values()) {
+            if (compression.getMarker() == marker) {
+                return compression;
+            }
         }
-        return UNCOMPRESSED.getMarker() == marker ? UNCOMPRESSED : COMPRESSED;
+        throw new PrestoException(CORRUPT_PAGE, "Page marker did not contain expected value");
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Chooses the codec each page is compressed with. A selector may be shared by
+ * the serdes of all drivers of an operator, and must be thread safe.
+ */
+public interface PageCompressionSelector
+{
+    PageCompression getCompression();
+
+    /**
+     * Records the result of compressing a page with the given codec, including pages
+     * which are sent uncompressed because the codec did not reduce them enough.
+     */
+    default void recordCompression(PageCompression compression, int uncompressedSize, int compressedSize, long compressionNanos)
+    {
+    }
+
+    static PageCompressionSelector fixedCompression(PageCompression compression)
+    {
+        requireNonNull(compression, "compression is null");
+        return () -> compression;
+    }
+}
@@ -18,77 +18,174 @@ import com.facebook.presto.spi.block.BlockEncodingSerde;
 import io.airlift.compress.Compressor;
 import io.airlift.compress.Decompressor;
 import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
 import io.airlift.slice.SliceOutput;
 import io.airlift.slice.Slices;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
-import java.util.Optional;
+import java.util.EnumMap;
+import java.util.Map;
 
-import static com.facebook.presto.execution.buffer.PageCompression.COMPRESSED;
 import static com.facebook.presto.execution.buffer.PageCompression.UNCOMPRESSED;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.readRawPage;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writeRawPage;
+import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writeSerializedPage;
+import static com.facebook.presto.spi.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
-import static io.airlift.compress.lz4.Lz4RawCompressor.maxCompressedLength;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
-
+import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
+
+/**
+ * Serializes pages for exchanges and spilling. Pages are written into a buffer
+ * which is reused for all pages of this serde, and compressed from there into a
+ * second reused buffer, so a serialized page costs a single allocation and copy
+ * of exactly its serialized size, or no copy at all when it is written directly
+ * to an output. Deserialization decompresses straight from the received bytes.
+ * <p>
+ * The codec of each page is chosen by the {@link PageCompressionSelector}, and
+ * pages of any codec can be deserialized.
+ */
 @NotThreadSafe
 public class PagesSerde
 {
-    private static final double MINIMUM_COMPRESSION_RATIO = 0.8;
+    static final double MINIMUM_COMPRESSION_RATIO = 0.8;
+
+    // buffers which grew past this size for an unusually large page are not kept
+    private static final int MAX_RETAINED_BUFFER_SIZE = 4 * DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
 
     private final BlockEncodingSerde blockEncodingSerde;
-    private final Optional<Compressor> compressor;
-    private final Optional<Decompressor> decompressor;
+    private final PageCompressionSelector compressionSelector;
+    private final Map<PageCompression, Compressor> compressors = new EnumMap<>(PageCompression.class);
+    private final Map<PageCompression, Decompressor> decompressors = new EnumMap<>(PageCompression.class);
+
+    private DynamicSliceOutput serializationBuffer;
+    private byte[] compressionBuffer;
 
-    public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<Compressor> compressor, Optional<Decompressor> decompressor)
+    public PagesSerde(BlockEncodingSerde blockEncodingSerde, PageCompressionSelector compressionSelector)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
-        this.compressor = requireNonNull(compressor, "compressor is null");
-        this.decompressor = requireNonNull(decompressor, "decompressor is null");
-        checkArgument(compressor.isPresent() == decompressor.isPresent(), "compressor and decompressor must both be present or both be absent");
+        this.compressionSelector = requireNonNull(compressionSelector, "compressionSelector is null");
     }
 
     public SerializedPage serialize(Page page)
     {
-        SliceOutput serializationBuffer = new DynamicSliceOutput(toIntExact((page.getSizeInBytes() + Integer.BYTES))); // block length is an int
+        try {
+            SerializedPage serializedPage = serializeToScratchBuffer(page);
+            return new SerializedPage(
+                    Slices.copyOf(serializedPage.getSlice()),
+                    serializedPage.getCompression(),
+                    serializedPage.getPositionCount(),
+                    serializedPage.getUncompressedSizeInBytes());
+        }
+        finally {
+            releaseLargeBuffers();
+        }
+    }
+
+    /**
+     * Serializes the page directly into the output, in the format of {@link PagesSerdeUtil#writeSerializedPage},
+     * without materializing a {@link SerializedPage}.
+     *
+     * @return the size of the serialized page data
+     */
+    public long serialize(Page page, SliceOutput output)
+    {
+        try {
+            SerializedPage serializedPage = serializeToScratchBuffer(page);
+            writeSerializedPage(output, serializedPage);
+            return serializedPage.getSizeInBytes();
+        }
+        finally {
+            releaseLargeBuffers();
+        }
+    }
+
+    /**
+     * The returned page references the scratch buffers of this serde, and is only valid until the next page is serialized.
+     */
+    private SerializedPage serializeToScratchBuffer(Page page)
+    {
+        if (serializationBuffer == null) {
+            serializationBuffer = new DynamicSliceOutput(toIntExact((page.getSizeInBytes() + Integer.BYTES))); // block length is an int
+        }
+        else {
+            serializationBuffer.reset();
+        }
+
         writeRawPage(page, serializationBuffer, blockEncodingSerde);
+        Slice serialized = serializationBuffer.slice();
+        int uncompressedSize = serialized.length();
 
-        if (!compressor.isPresent()) {
-            return new SerializedPage(serializationBuffer.slice(), UNCOMPRESSED, page.getPositionCount(), serializationBuffer.size());
+        PageCompression compression = compressionSelector.getCompression();
+        if (compression == UNCOMPRESSED || uncompressedSize == 0) {
+            return new SerializedPage(serialized, UNCOMPRESSED, page.getPositionCount(), uncompressedSize);
         }
 
-        int maxCompressedLength = maxCompressedLength(serializationBuffer.size());
-        byte[] compressionBuffer = new byte[maxCompressedLength];
-        int actualCompressedLength = compressor.get().compress(serializationBuffer.slice().getBytes(), 0, serializationBuffer.size(), compressionBuffer, 0, maxCompressedLength);
+        Compressor compressor = compressors.computeIfAbsent(compression, PageCompression::createCompressor);
+        int maxCompressedLength = compressor.maxCompressedLength(uncompressedSize);
+        if (compressionBuffer == null || compressionBuffer.length < maxCompressedLength) {
+            compressionBuffer = new byte[maxCompressedLength];
+        }
+        long start = System.nanoTime();
+        int actualCompressedLength = compressor.compress(byteArray(serialized), byteArrayOffset(serialized), uncompressedSize, compressionBuffer, 0, maxCompressedLength);
+        compressionSelector.recordCompression(compression, uncompressedSize, actualCompressedLength, System.nanoTime() - start);
 
-        if (((1.0 * actualCompressedLength) / serializationBuffer.size()) > MINIMUM_COMPRESSION_RATIO) {
-            return new SerializedPage(serializationBuffer.slice(), UNCOMPRESSED, page.getPositionCount(), serializationBuffer.size());
+        if (((1.0 * actualCompressedLength) / uncompressedSize) > MINIMUM_COMPRESSION_RATIO) {
+            return new SerializedPage(serialized, UNCOMPRESSED, page.getPositionCount(), uncompressedSize);
         }
 
         return new SerializedPage(
-                Slices.copyOf(Slices.wrappedBuffer(compressionBuffer, 0, actualCompressedLength)),
-                COMPRESSED,
+                Slices.wrappedBuffer(compressionBuffer, 0, actualCompressedLength),
+                compression,
                 page.getPositionCount(),
-                serializationBuffer.size());
+                uncompressedSize);
     }
 
     public Page deserialize(SerializedPage serializedPage)
     {
         checkArgument(serializedPage != null, "serializedPage is null");
 
-        if (!decompressor.isPresent() || serializedPage.getCompression() == UNCOMPRESSED) {
+        if (serializedPage.getCompression() == UNCOMPRESSED) {
             return readRawPage(serializedPage.getPositionCount(), serializedPage.getSlice().getInput(), blockEncodingSerde);
         }
 
+        // the decompressed blocks may reference the output, so it can not be reused
+        Decompressor decompressor = decompressors.computeIfAbsent(serializedPage.getCompression(), PageCompression::createDecompressor);
+        Slice slice = serializedPage.getSlice();
         int uncompressedSize = serializedPage.getUncompressedSizeInBytes();
         byte[] decompressed = new byte[uncompressedSize];
-        int actualUncompressedSize = decompressor.get().decompress(serializedPage.getSlice().getBytes(), 0, serializedPage.getSlice().length(), decompressed, 0, uncompressedSize);
+        int actualUncompressedSize;
+        if (slice.getBase() instanceof byte[]) {
+            actualUncompressedSize = decompressor.decompress(byteArray(slice), byteArrayOffset(slice), slice.length(), decompressed, 0, uncompressedSize);
+        }
+        else {
+            actualUncompressedSize = decompressor.decompress(slice.getBytes(), 0, slice.length(), decompressed, 0, uncompressedSize);
+        }
         checkState(uncompressedSize == actualUncompressedSize);
 
         return readRawPage(serializedPage.getPositionCount(), Slices.wrappedBuffer(decompressed, 0, uncompressedSize).getInput(), blockEncodingSerde);
     }
+
+    private void releaseLargeBuffers()
+    {
+        if (serializationBuffer != null && serializationBuffer.getRetainedSize() > MAX_RETAINED_BUFFER_SIZE) {
+            serializationBuffer = null;
+        }
+        if (compressionBuffer != null && compressionBuffer.length > MAX_RETAINED_BUFFER_SIZE) {
+            compressionBuffer = null;
+        }
+    }
+
+    private static byte[] byteArray(Slice slice)
+    {
+        return (byte[]) slice.getBase();
+    }
+
+    private static int byteArrayOffset(Slice slice)
+    {
+        return toIntExact(slice.getAddress() - ARRAY_BYTE_BASE_OFFSET);
+    }
 }
@@ -14,30 +14,46 @@
 package com.facebook.presto.execution.buffer;
 
 import com.facebook.presto.spi.block.BlockEncodingSerde;
-import io.airlift.compress.lz4.Lz4Compressor;
-import io.airlift.compress.lz4.Lz4Decompressor;
-
-import java.util.Optional;
 
+import static com.facebook.presto.execution.buffer.ExchangeCompressionCodec.LZ4;
+import static com.facebook.presto.execution.buffer.PageCompressionSelector.fixedCompression;
 import static java.util.Objects.requireNonNull;
 
 public class PagesSerdeFactory
 {
     private final BlockEncodingSerde blockEncodingSerde;
-    private final boolean compressionEnabled;
+    private final PageCompressionSelector compressionSelector;
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled)
+    {
+        this(blockEncodingSerde, compressionEnabled, LZ4);
+    }
+
+    public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled, ExchangeCompressionCodec compressionCodec)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
-        this.compressionEnabled = compressionEnabled;
+        requireNonNull(compressionCodec, "compressionCodec is null");
+
+        // the selector is shared by all serdes of this factory, so an adaptive selector learns from the pages of all drivers
+        this.compressionSelector = compressionEnabled ? createCompressionSelector(compressionCodec) : fixedCompression(PageCompression.UNCOMPRESSED);
     }
 
     public PagesSerde createPagesSerde()
     {
-        if (compressionEnabled) {
-            return new PagesSerde(blockEncodingSerde, Optional.of(new Lz4Compressor()), Optional.of(new Lz4Decompressor()));
-        }
+        return new PagesSerde(blockEncodingSerde, compressionSelector);
+    }
 
-        return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty());
+    private static PageCompressionSelector createCompressionSelector(ExchangeCompressionCodec compressionCodec)
+    {
+        switch (compressionCodec) {
+            case LZ4:
+                return fixedCompression(PageCompression.LZ4);
+            case SNAPPY:
+                return fixedCompression(PageCompression.SNAPPY);
+            case ADAPTIVE:
+                return new AdaptivePageCompressionSelector();
+            default:
+                throw new IllegalArgumentException("Unsupported compression codec: " + compressionCodec);
+        }
     }
 }
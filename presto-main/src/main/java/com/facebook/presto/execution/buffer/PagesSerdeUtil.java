@@ -65,7 +65,7 @@ public class PagesSerdeUtil
         output.writeBytes(page.getSlice());
     }
 
-    private static SerializedPage readSerializedPage(SliceInput sliceInput)
+    public static SerializedPage readSerializedPage(SliceInput sliceInput)
     {
         int positionCount = sliceInput.readInt();
         byte codecMarker = sliceInput.readByte();
@@ -97,7 +97,7 @@ public class PagesSerdeUtil
         long size = 0;
         while (pages.hasNext()) {
             Page page = pages.next();
-            writeSerializedPage(sliceOutput, serde.serialize(page));
+            serde.serialize(page, sliceOutput);
             size += page.getSizeInBytes();
         }
         return size;
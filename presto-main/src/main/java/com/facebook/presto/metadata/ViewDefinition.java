@@ -19,6 +19,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -77,6 +78,29 @@ public final class ViewDefinition
         return owner;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ViewDefinition that = (ViewDefinition) o;
+        return Objects.equals(originalSql, that.originalSql) &&
+                Objects.equals(catalog, that.catalog) &&
+                Objects.equals(schema, that.schema) &&
+                Objects.equals(columns, that.columns) &&
+                Objects.equals(owner, that.owner);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(originalSql, catalog, schema, columns, owner);
+    }
+
     @Override
     public String toString()
     {
@@ -116,6 +140,26 @@ public final class ViewDefinition
             return type;
         }
 
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ViewColumn that = (ViewColumn) o;
+            return Objects.equals(name, that.name) &&
+                    Objects.equals(type, that.type);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(name, type);
+        }
+
         @Override
         public String toString()
         {
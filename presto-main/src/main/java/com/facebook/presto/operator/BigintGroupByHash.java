@@ -51,6 +51,7 @@ public class BigintGroupByHash
 
     private final int hashChannel;
     private final boolean outputRawHash;
+    private final boolean offHeap;
 
     private int hashCapacity;
     private int maxFill;
@@ -75,24 +76,25 @@ public class BigintGroupByHash
     private long preallocatedMemoryInBytes;
     private long currentPageSizeInBytes;
 
-    public BigintGroupByHash(int hashChannel, boolean outputRawHash, int expectedSize, UpdateMemory updateMemory)
+    public BigintGroupByHash(int hashChannel, boolean outputRawHash, int expectedSize, boolean offHeap, UpdateMemory updateMemory)
     {
         checkArgument(hashChannel >= 0, "hashChannel must be at least zero");
         checkArgument(expectedSize > 0, "expectedSize must be greater than zero");
 
         this.hashChannel = hashChannel;
         this.outputRawHash = outputRawHash;
+        this.offHeap = offHeap;
 
         hashCapacity = arraySize(expectedSize, FILL_RATIO);
 
         maxFill = calculateMaxFill(hashCapacity);
         mask = hashCapacity - 1;
-        values = new LongBigArray();
+        values = new LongBigArray(0, offHeap);
         values.ensureCapacity(hashCapacity);
-        groupIds = new IntBigArray(-1);
+        groupIds = new IntBigArray(-1, offHeap);
         groupIds.ensureCapacity(hashCapacity);
 
-        valuesByGroupId = new LongBigArray();
+        valuesByGroupId = new LongBigArray(0, offHeap);
         valuesByGroupId.ensureCapacity(hashCapacity);
 
         // This interface is used for actively reserving memory (push model) for rehash.
@@ -210,6 +212,14 @@ public class BigintGroupByHash
         return hashCapacity;
     }
 
+    @Override
+    public void close()
+    {
+        values.close();
+        groupIds.close();
+        valuesByGroupId.close();
+    }
+
     private int putIfAbsent(int position, Block block)
     {
         if (block.isNull(position)) {
@@ -279,9 +289,9 @@ public class BigintGroupByHash
         expectedHashCollisions += estimateNumberOfHashCollisions(getGroupCount(), hashCapacity);
 
         int newMask = newCapacity - 1;
-        LongBigArray newValues = new LongBigArray();
+        LongBigArray newValues = new LongBigArray(0, offHeap);
         newValues.ensureCapacity(newCapacity);
-        IntBigArray newGroupIds = new IntBigArray(-1);
+        IntBigArray newGroupIds = new IntBigArray(-1, offHeap);
         newGroupIds.ensureCapacity(newCapacity);
 
         for (int groupId = 0; groupId < nextGroupId; groupId++) {
@@ -305,7 +315,9 @@ public class BigintGroupByHash
         mask = newMask;
         hashCapacity = newCapacity;
         maxFill = calculateMaxFill(hashCapacity);
+        values.close();
         values = newValues;
+        groupIds.close();
         groupIds = newGroupIds;
 
         this.valuesByGroupId.ensureCapacity(maxFill);
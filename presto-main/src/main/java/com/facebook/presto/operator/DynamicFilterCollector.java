@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.RealType.REAL;
+import static com.facebook.presto.spi.type.TypeUtils.readNativeValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Summarizes the join key values of a hash build as a {@link TupleDomain} over the
+ * probe side columns they are compared with. The distinct values of each key are
+ * retained up to a limit, after which only their range is kept for orderable types.
+ * Nulls are ignored, as they never match in an equi-join.
+ */
+public class DynamicFilterCollector
+{
+    private final List<ChannelCollector> collectors;
+
+    public DynamicFilterCollector(List<Integer> channels, List<Type> types, List<ColumnHandle> columns, int maxDistinctValues)
+    {
+        requireNonNull(channels, "channels is null");
+        requireNonNull(types, "types is null");
+        requireNonNull(columns, "columns is null");
+        checkArgument(channels.size() == types.size() && channels.size() == columns.size(), "channels, types and columns do not match");
+        checkArgument(maxDistinctValues >= 0, "maxDistinctValues is negative");
+
+        ImmutableList.Builder<ChannelCollector> collectors = ImmutableList.builder();
+        for (int i = 0; i < channels.size(); i++) {
+            collectors.add(new ChannelCollector(channels.get(i), types.get(i), columns.get(i), maxDistinctValues));
+        }
+        this.collectors = collectors.build();
+    }
+
+    public void addPage(Page page)
+    {
+        for (ChannelCollector collector : collectors) {
+            collector.addBlock(page.getBlock(collector.getChannel()));
+        }
+    }
+
+    public TupleDomain<ColumnHandle> getTupleDomain()
+    {
+        Map<ColumnHandle, Domain> domains = new HashMap<>();
+        for (ChannelCollector collector : collectors) {
+            domains.merge(collector.getColumn(), collector.getDomain(), Domain::intersect);
+        }
+        return TupleDomain.withColumnDomains(domains);
+    }
+
+    private static class ChannelCollector
+    {
+        private final int channel;
+        private final Type type;
+        private final ColumnHandle column;
+        private final int maxDistinctValues;
+        private final boolean collectRange;
+
+        private Set<Object> distinctValues;
+        private boolean hasNonNullValue;
+        private Block min;
+        private Block max;
+
+        public ChannelCollector(int channel, Type type, ColumnHandle column, int maxDistinctValues)
+        {
+            this.channel = channel;
+            this.type = requireNonNull(type, "type is null");
+            this.column = requireNonNull(column, "column is null");
+            this.maxDistinctValues = maxDistinctValues;
+            // NaN does not fit in a range or a set of values, so floating point keys are only summarized as not null
+            boolean floatingPoint = type.equals(DOUBLE) || type.equals(REAL);
+            this.collectRange = type.isOrderable() && !floatingPoint;
+            if (type.isComparable() && !floatingPoint && isSupportedJavaType(type.getJavaType())) {
+                distinctValues = new HashSet<>();
+            }
+        }
+
+        public int getChannel()
+        {
+            return channel;
+        }
+
+        public ColumnHandle getColumn()
+        {
+            return column;
+        }
+
+        public void addBlock(Block block)
+        {
+            if (hasNonNullValue && distinctValues == null && !collectRange) {
+                // nothing more can be learned about this column
+                return;
+            }
+
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                if (block.isNull(position)) {
+                    continue;
+                }
+                hasNonNullValue = true;
+
+                if (distinctValues != null) {
+                    distinctValues.add(readNativeValue(type, block, position));
+                    if (distinctValues.size() > maxDistinctValues) {
+                        distinctValues = null;
+                    }
+                }
+                if (collectRange) {
+                    if (min == null || type.compareTo(block, position, min, 0) < 0) {
+                        min = block.getSingleValueBlock(position);
+                    }
+                    if (max == null || type.compareTo(block, position, max, 0) > 0) {
+                        max = block.getSingleValueBlock(position);
+                    }
+                }
+            }
+        }
+
+        public Domain getDomain()
+        {
+            if (!hasNonNullValue) {
+                return Domain.none(type);
+            }
+            if (distinctValues != null) {
+                return Domain.multipleValues(type, ImmutableList.copyOf(distinctValues));
+            }
+            if (collectRange) {
+                Range range = Range.range(type, readNativeValue(type, min, 0), true, readNativeValue(type, max, 0), true);
+                return Domain.create(ValueSet.ofRanges(range), false);
+            }
+            return Domain.notNull(type);
+        }
+
+        private static boolean isSupportedJavaType(Class<?> javaType)
+        {
+            return javaType == long.class || javaType == boolean.class || javaType == Slice.class;
+        }
+    }
+}
@@ -31,16 +31,18 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import java.io.Closeable;
 import java.net.URI;
-import java.util.ArrayList;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.execution.buffer.PageCompression.UNCOMPRESSED;
@@ -49,6 +51,13 @@ import static com.google.common.collect.Sets.newConcurrentHashSet;
 import static io.airlift.slice.Slices.EMPTY_SLICE;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Buffers the pages fetched from all upstream tasks of an exchange. Adding and
+ * polling pages, and waiting for pages, do not take the lock of this client,
+ * so a large number of page buffer clients can deliver pages concurrently with
+ * the consuming drivers. The lock is only held while adding locations,
+ * scheduling requests and closing.
+ */
 @ThreadSafe
 public class ExchangeClient
         implements Closeable
@@ -61,30 +70,27 @@ public class ExchangeClient
     private final Duration minErrorDuration;
     private final Duration maxErrorDuration;
     private final HttpClient httpClient;
+    private final Optional<MultiplexedPageTransport> multiplexedTransport;
     private final ScheduledExecutorService executor;
 
-    @GuardedBy("this")
-    private boolean noMoreLocations;
+    private volatile boolean noMoreLocations;
 
     private final ConcurrentMap<URI, HttpPageBufferClient> allClients = new ConcurrentHashMap<>();
 
+    // modified only while holding the lock, but checked for emptiness without it
     @GuardedBy("this")
-    private final Deque<HttpPageBufferClient> queuedClients = new LinkedList<>();
+    private final Deque<HttpPageBufferClient> queuedClients = new ConcurrentLinkedDeque<>();
 
     private final Set<HttpPageBufferClient> completedClients = newConcurrentHashSet();
-    private final LinkedBlockingDeque<SerializedPage> pageBuffer = new LinkedBlockingDeque<>();
+    private final Deque<SerializedPage> pageBuffer = new ConcurrentLinkedDeque<>();
 
-    @GuardedBy("this")
-    private final List<SettableFuture<?>> blockedCallers = new ArrayList<>();
+    private final Queue<SettableFuture<?>> blockedCallers = new ConcurrentLinkedQueue<>();
 
-    @GuardedBy("this")
-    private long bufferBytes;
-    @GuardedBy("this")
-    private long maxBufferBytes;
-    @GuardedBy("this")
-    private long successfulRequests;
-    @GuardedBy("this")
-    private long averageBytesPerRequest;
+    // a page is accounted for by the thread that adds it to the buffer and by the thread that removes it
+    private final AtomicLong bufferBytes = new AtomicLong();
+    private final AtomicLong maxBufferBytes = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong successfulRequests = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
 
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicReference<Throwable> failure = new AtomicReference<>();
@@ -102,6 +108,20 @@ public class ExchangeClient
             HttpClient httpClient,
             ScheduledExecutorService executor,
             SystemMemoryUsageListener systemMemoryUsageListener)
+    {
+        this(bufferCapacity, maxResponseSize, concurrentRequestMultiplier, minErrorDuration, maxErrorDuration, httpClient, Optional.empty(), executor, systemMemoryUsageListener);
+    }
+
+    public ExchangeClient(
+            DataSize bufferCapacity,
+            DataSize maxResponseSize,
+            int concurrentRequestMultiplier,
+            Duration minErrorDuration,
+            Duration maxErrorDuration,
+            HttpClient httpClient,
+            Optional<MultiplexedPageTransport> multiplexedTransport,
+            ScheduledExecutorService executor,
+            SystemMemoryUsageListener systemMemoryUsageListener)
     {
         this.bufferCapacity = bufferCapacity.toBytes();
         this.maxResponseSize = maxResponseSize;
@@ -109,9 +129,9 @@ public class ExchangeClient
         this.minErrorDuration = minErrorDuration;
         this.maxErrorDuration = maxErrorDuration;
         this.httpClient = httpClient;
+        this.multiplexedTransport = requireNonNull(multiplexedTransport, "multiplexedTransport is null");
         this.executor = executor;
         this.systemMemoryUsageListener = systemMemoryUsageListener;
-        this.maxBufferBytes = Long.MIN_VALUE;
     }
 
     public ExchangeClientStatus getStatus()
@@ -124,13 +144,18 @@ public class ExchangeClient
             pageBufferClientStatusBuilder.add(client.getStatus());
         }
         List<PageBufferClientStatus> pageBufferClientStatus = pageBufferClientStatusBuilder.build();
-        synchronized (this) {
-            int bufferedPages = pageBuffer.size();
-            if (bufferedPages > 0 && pageBuffer.peekLast() == NO_MORE_PAGES) {
-                bufferedPages--;
-            }
-            return new ExchangeClientStatus(bufferBytes, maxBufferBytes, averageBytesPerRequest, successfulRequests, bufferedPages, noMoreLocations, pageBufferClientStatus);
+        int bufferedPages = pageBuffer.size();
+        if (bufferedPages > 0 && pageBuffer.peekLast() == NO_MORE_PAGES) {
+            bufferedPages--;
         }
+        return new ExchangeClientStatus(
+                bufferBytes.get(),
+                maxBufferBytes.get(),
+                getAverageBytesPerRequest(),
+                successfulRequests.get(),
+                bufferedPages,
+                noMoreLocations,
+                pageBufferClientStatus);
     }
 
     public synchronized void addLocation(URI location)
@@ -150,8 +175,10 @@ public class ExchangeClient
 
         checkState(!noMoreLocations, "No more locations already set");
 
+        // locations which do not address a task output buffer are polled with requests of their own
         HttpPageBufferClient client = new HttpPageBufferClient(
                 httpClient,
+                multiplexedTransport.filter(transport -> MultiplexedPageTransport.isSupported(location)),
                 maxResponseSize,
                 minErrorDuration,
                 maxErrorDuration,
@@ -203,16 +230,16 @@ public class ExchangeClient
             return null;
         }
 
-        synchronized (this) {
-            if (!closed.get()) {
-                bufferBytes -= page.getRetainedSizeInBytes();
-                systemMemoryUsageListener.updateSystemMemoryUsage(-page.getRetainedSizeInBytes());
-                if (pageBuffer.peek() == NO_MORE_PAGES) {
-                    close();
-                }
-            }
+        bufferBytes.addAndGet(-page.getRetainedSizeInBytes());
+        systemMemoryUsageListener.updateSystemMemoryUsage(-page.getRetainedSizeInBytes());
+        if (pageBuffer.peek() == NO_MORE_PAGES) {
+            close();
+        }
+
+        // only queued clients can be scheduled, and the end of the stream is detected when a client finishes
+        if (!queuedClients.isEmpty()) {
+            scheduleRequestIfNecessary();
         }
-        scheduleRequestIfNecessary();
         return page;
     }
 
@@ -238,13 +265,24 @@ public class ExchangeClient
         for (HttpPageBufferClient client : allClients.values()) {
             closeQuietly(client);
         }
-        pageBuffer.clear();
-        systemMemoryUsageListener.updateSystemMemoryUsage(-bufferBytes);
-        bufferBytes = 0;
+        discardBufferedPages();
+        notifyBlockedCallers();
+    }
+
+    private void discardBufferedPages()
+    {
+        long discardedBytes = 0;
+        SerializedPage page;
+        while ((page = pageBuffer.poll()) != null) {
+            if (page != NO_MORE_PAGES) {
+                discardedBytes += page.getRetainedSizeInBytes();
+            }
+        }
+        bufferBytes.addAndGet(-discardedBytes);
+        systemMemoryUsageListener.updateSystemMemoryUsage(-discardedBytes);
         if (pageBuffer.peekLast() != NO_MORE_PAGES) {
             checkState(pageBuffer.add(NO_MORE_PAGES), "Could not add no more pages marker");
         }
-        notifyBlockedCallers();
     }
 
     public synchronized void scheduleRequestIfNecessary()
@@ -265,12 +303,12 @@ public class ExchangeClient
             return;
         }
 
-        long neededBytes = bufferCapacity - bufferBytes;
+        long neededBytes = bufferCapacity - bufferBytes.get();
         if (neededBytes <= 0) {
             return;
         }
 
-        int clientCount = (int) ((1.0 * neededBytes / averageBytesPerRequest) * concurrentRequestMultiplier);
+        int clientCount = (int) ((1.0 * neededBytes / getAverageBytesPerRequest()) * concurrentRequestMultiplier);
         clientCount = Math.max(clientCount, 1);
 
         int pendingClients = allClients.size() - queuedClients.size() - completedClients.size();
@@ -286,54 +324,76 @@ public class ExchangeClient
         }
     }
 
-    public synchronized ListenableFuture<?> isBlocked()
+    public ListenableFuture<?> isBlocked()
     {
-        if (isClosed() || isFailed() || pageBuffer.peek() != null) {
+        if (isReadyForPoll()) {
             return Futures.immediateFuture(true);
         }
         SettableFuture<?> future = SettableFuture.create();
         blockedCallers.add(future);
+
+        // pages may have been added before the future was registered
+        if (isReadyForPoll()) {
+            notifyBlockedCallers();
+        }
         return future;
     }
 
-    private synchronized boolean addPages(List<SerializedPage> pages)
+    private boolean isReadyForPoll()
+    {
+        return isClosed() || isFailed() || pageBuffer.peek() != null;
+    }
+
+    private boolean addPages(List<SerializedPage> pages)
     {
         if (isClosed() || isFailed()) {
             return false;
         }
 
-        pageBuffer.addAll(pages);
-
-        if (!pages.isEmpty()) {
-            // notify all blocked callers
-            notifyBlockedCallers();
-        }
-
         long memorySize = pages.stream()
                 .mapToLong(SerializedPage::getRetainedSizeInBytes)
                 .sum();
 
-        bufferBytes += memorySize;
-        maxBufferBytes = Math.max(maxBufferBytes, bufferBytes);
+        // account for the pages before they are visible, so a concurrent poll can never make the buffer size negative
+        long newBufferBytes = bufferBytes.addAndGet(memorySize);
+        maxBufferBytes.accumulateAndGet(newBufferBytes, Math::max);
         systemMemoryUsageListener.updateSystemMemoryUsage(memorySize);
-        successfulRequests++;
+        pageBuffer.addAll(pages);
+
+        if (isClosed()) {
+            // the client was closed while the pages were added, so they will never be polled
+            discardBufferedPages();
+        }
 
         long responseSize = pages.stream()
                 .mapToLong(SerializedPage::getSizeInBytes)
                 .sum();
-        // AVG_n = AVG_(n-1) * (n-1)/n + VALUE_n / n
-        averageBytesPerRequest = (long) (1.0 * averageBytesPerRequest * (successfulRequests - 1) / successfulRequests + responseSize / successfulRequests);
+        responseBytes.addAndGet(responseSize);
+        successfulRequests.incrementAndGet();
 
+        if (!pages.isEmpty()) {
+            // notify all blocked callers
+            notifyBlockedCallers();
+        }
         return true;
     }
 
-    private synchronized void notifyBlockedCallers()
+    private long getAverageBytesPerRequest()
+    {
+        long requests = successfulRequests.get();
+        if (requests == 0) {
+            return 0;
+        }
+        return responseBytes.get() / requests;
+    }
+
+    private void notifyBlockedCallers()
     {
-        List<SettableFuture<?>> callers = ImmutableList.copyOf(blockedCallers);
-        blockedCallers.clear();
-        for (SettableFuture<?> blockedCaller : callers) {
+        SettableFuture<?> blockedCaller;
+        while ((blockedCaller = blockedCallers.poll()) != null) {
             // Notify callers in a separate thread to avoid callbacks while holding a lock
-            executor.execute(() -> blockedCaller.set(null));
+            SettableFuture<?> caller = blockedCaller;
+            executor.execute(() -> caller.set(null));
         }
     }
 
@@ -352,7 +412,7 @@ public class ExchangeClient
         scheduleRequestIfNecessary();
     }
 
-    private synchronized void clientFailed(Throwable cause)
+    private void clientFailed(Throwable cause)
     {
         // TODO: properly handle the failed vs closed state
         // it is important not to treat failures as a successful close
@@ -14,6 +14,7 @@
 package com.facebook.presto.operator;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
@@ -34,6 +35,19 @@ public class ExchangeClientConfig
     private Duration maxErrorDuration = new Duration(5, TimeUnit.MINUTES);
     private DataSize maxResponseSize = new HttpClientConfig().getMaxContentLength();
     private int clientThreads = 25;
+    private ExchangeTransport transport = ExchangeTransport.HTTP;
+
+    public enum ExchangeTransport
+    {
+        /**
+         * Each output buffer is polled with requests of its own.
+         */
+        HTTP,
+        /**
+         * Requests for all output buffers on the same node are combined.
+         */
+        MULTIPLEXED
+    }
 
     @NotNull
     public DataSize getMaxBufferSize()
@@ -115,4 +129,18 @@ public class ExchangeClientConfig
         this.clientThreads = clientThreads;
         return this;
     }
+
+    @NotNull
+    public ExchangeTransport getTransport()
+    {
+        return transport;
+    }
+
+    @Config("exchange.transport")
+    @ConfigDescription("Transport used to fetch pages from remote tasks")
+    public ExchangeClientConfig setTransport(ExchangeTransport transport)
+    {
+        this.transport = transport;
+        return this;
+    }
 }
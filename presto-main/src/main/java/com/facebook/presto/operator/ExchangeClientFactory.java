@@ -20,8 +20,10 @@ import io.airlift.units.Duration;
 
 import javax.inject.Inject;
 
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
 
+import static com.facebook.presto.operator.ExchangeClientConfig.ExchangeTransport.MULTIPLEXED;
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.util.Objects.requireNonNull;
@@ -35,6 +37,7 @@ public class ExchangeClientFactory
     private final Duration maxErrorDuration;
     private final HttpClient httpClient;
     private final DataSize maxResponseSize;
+    private final Optional<MultiplexedPageTransport> multiplexedTransport;
     private final ScheduledExecutorService executor;
 
     @Inject
@@ -49,6 +52,7 @@ public class ExchangeClientFactory
                 config.getConcurrentRequestMultiplier(),
                 config.getMinErrorDuration(),
                 config.getMaxErrorDuration(),
+                config.getTransport() == MULTIPLEXED,
                 httpClient,
                 executor);
     }
@@ -61,6 +65,19 @@ public class ExchangeClientFactory
             Duration maxErrorDuration,
             HttpClient httpClient,
             ScheduledExecutorService executor)
+    {
+        this(maxBufferedBytes, maxResponseSize, concurrentRequestMultiplier, minErrorDuration, maxErrorDuration, false, httpClient, executor);
+    }
+
+    public ExchangeClientFactory(
+            DataSize maxBufferedBytes,
+            DataSize maxResponseSize,
+            int concurrentRequestMultiplier,
+            Duration minErrorDuration,
+            Duration maxErrorDuration,
+            boolean multiplexedTransport,
+            HttpClient httpClient,
+            ScheduledExecutorService executor)
     {
         this.maxBufferedBytes = requireNonNull(maxBufferedBytes, "maxBufferedBytes is null");
         this.concurrentRequestMultiplier = concurrentRequestMultiplier;
@@ -76,6 +93,14 @@ public class ExchangeClientFactory
 
         this.executor = requireNonNull(executor, "executor is null");
 
+        // a single transport is shared by all exchanges of this node, so requests to the same node are combined across queries
+        if (multiplexedTransport) {
+            this.multiplexedTransport = Optional.of(new MultiplexedPageTransport(httpClient, this.maxResponseSize, executor));
+        }
+        else {
+            this.multiplexedTransport = Optional.empty();
+        }
+
         checkArgument(maxBufferedBytes.toBytes() > 0, "maxBufferSize must be at least 1 byte: %s", maxBufferedBytes);
         checkArgument(maxResponseSize.toBytes() > 0, "maxResponseSize must be at least 1 byte: %s", maxResponseSize);
         checkArgument(concurrentRequestMultiplier > 0, "concurrentRequestMultiplier must be at least 1: %s", concurrentRequestMultiplier);
@@ -83,14 +108,29 @@ public class ExchangeClientFactory
 
     @Override
     public ExchangeClient get(SystemMemoryUsageListener systemMemoryUsageListener)
+    {
+        return createExchangeClient(maxBufferedBytes, systemMemoryUsageListener);
+    }
+
+    @Override
+    public ExchangeClient get(SystemMemoryUsageListener systemMemoryUsageListener, int clientCount)
+    {
+        checkArgument(clientCount > 0, "clientCount must be at least 1: %s", clientCount);
+        // a client with an empty buffer always requests more data, so every client can hold at least one response
+        long bufferCapacity = Math.max(maxBufferedBytes.toBytes() / clientCount, 1);
+        return createExchangeClient(new DataSize(bufferCapacity, BYTE), systemMemoryUsageListener);
+    }
+
+    private ExchangeClient createExchangeClient(DataSize bufferCapacity, SystemMemoryUsageListener systemMemoryUsageListener)
     {
         return new ExchangeClient(
-                maxBufferedBytes,
+                bufferCapacity,
                 maxResponseSize,
                 concurrentRequestMultiplier,
                 minErrorDuration,
                 maxErrorDuration,
                 httpClient,
+                multiplexedTransport,
                 executor,
                 systemMemoryUsageListener);
     }
@@ -18,4 +18,14 @@ import com.facebook.presto.execution.SystemMemoryUsageListener;
 public interface ExchangeClientSupplier
 {
     ExchangeClient get(SystemMemoryUsageListener systemMemoryUsageListener);
+
+    /**
+     * Returns a client for one of {@code clientCount} clients which read the sources
+     * of a single exchange separately, and together should not buffer more than
+     * a single client.
+     */
+    default ExchangeClient get(SystemMemoryUsageListener systemMemoryUsageListener, int clientCount)
+    {
+        return get(systemMemoryUsageListener);
+    }
 }
@@ -105,7 +105,7 @@ public class ExchangeOperator
     }
 
     @NotThreadSafe
-    private static final class UpdateSystemMemory
+    static final class UpdateSystemMemory
             implements SystemMemoryUsageListener
     {
         private final PipelineContext pipelineContext;
@@ -16,6 +16,7 @@ package com.facebook.presto.operator;
 import com.facebook.presto.cost.CostCalculator;
 import com.facebook.presto.execution.QueryInfo;
 import com.facebook.presto.execution.QueryPerformanceFetcher;
+import com.facebook.presto.execution.QueryStats;
 import com.facebook.presto.execution.StageId;
 import com.facebook.presto.execution.StageInfo;
 import com.facebook.presto.metadata.Metadata;
@@ -23,20 +24,25 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.OptimizerStats;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.sql.planner.planPrinter.PlanPrinter.textDistributedPlan;
 import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 public class ExplainAnalyzeOperator
         implements Operator
 {
+    private static final int MAX_OPTIMIZER_STATS = 10;
+
     public static class ExplainAnalyzeOperatorFactory
             implements OperatorFactory
     {
@@ -154,7 +160,8 @@ public class ExplainAnalyzeOperator
             return null;
         }
 
-        String plan = textDistributedPlan(queryInfo.getOutputStage().get(), metadata, costCalculator, operatorContext.getSession(), verbose);
+        String plan = textPlanningStats(queryInfo.getQueryStats(), verbose) +
+                textDistributedPlan(queryInfo.getOutputStage().get(), metadata, costCalculator, operatorContext.getSession(), verbose);
         BlockBuilder builder = VARCHAR.createBlockBuilder(new BlockBuilderStatus(), 1);
         VARCHAR.writeString(builder, plan);
 
@@ -162,6 +169,36 @@ public class ExplainAnalyzeOperator
         return new Page(builder.build());
     }
 
+    private static String textPlanningStats(QueryStats queryStats, boolean verbose)
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(format("Analysis and planning: %s, logical planning: %s, distributed planning: %s\n",
+                queryStats.getAnalysisTime(),
+                queryStats.getLogicalPlanningTime(),
+                queryStats.getDistributedPlanningTime()));
+        appendOptimizerStats(builder, "Optimizers", queryStats.getOptimizerSummaries(), verbose);
+        appendOptimizerStats(builder, "Rules", queryStats.getRuleSummaries(), verbose);
+        return builder.append("\n").toString();
+    }
+
+    private static void appendOptimizerStats(StringBuilder builder, String title, List<OptimizerStats> stats, boolean verbose)
+    {
+        if (stats.isEmpty()) {
+            return;
+        }
+
+        // only the slowest are shown unless the output is verbose
+        builder.append(title).append(verbose ? ":\n" : format(" (top %s by wall time):\n", MAX_OPTIMIZER_STATS));
+        stats.stream()
+                .sorted(Comparator.comparing(OptimizerStats::getWallTime).reversed())
+                .limit(verbose ? Long.MAX_VALUE : MAX_OPTIMIZER_STATS)
+                .forEach(optimizer -> builder.append(format("    %s: %s, %s invocations, %s rewrites\n",
+                        optimizer.getName(),
+                        optimizer.getWallTime(),
+                        optimizer.getInvocations(),
+                        optimizer.getRewrites())));
+    }
+
     private boolean hasFinalStageInfo(StageInfo stageInfo)
     {
         boolean isFinalStageInfo = isFinalStageInfo(stageInfo);
@@ -48,11 +48,28 @@ public interface GroupByHash
             boolean processDictionary,
             JoinCompiler joinCompiler,
             UpdateMemory updateMemory)
+    {
+        return createGroupByHash(hashTypes, hashChannels, inputHashChannel, expectedSize, processDictionary, false, joinCompiler, updateMemory);
+    }
+
+    /**
+     * Creates a hash whose tables are allocated off-heap if {@code offHeap} is set. An off-heap
+     * hash only releases its memory when it is closed.
+     */
+    static GroupByHash createGroupByHash(
+            List<? extends Type> hashTypes,
+            int[] hashChannels,
+            Optional<Integer> inputHashChannel,
+            int expectedSize,
+            boolean processDictionary,
+            boolean offHeap,
+            JoinCompiler joinCompiler,
+            UpdateMemory updateMemory)
     {
         if (hashTypes.size() == 1 && hashTypes.get(0).equals(BIGINT) && hashChannels.length == 1) {
-            return new BigintGroupByHash(hashChannels[0], inputHashChannel.isPresent(), expectedSize, updateMemory);
+            return new BigintGroupByHash(hashChannels[0], inputHashChannel.isPresent(), expectedSize, offHeap, updateMemory);
         }
-        return new MultiChannelGroupByHash(hashTypes, hashChannels, inputHashChannel, expectedSize, processDictionary, joinCompiler, updateMemory);
+        return new MultiChannelGroupByHash(hashTypes, hashChannels, inputHashChannel, expectedSize, processDictionary, offHeap, joinCompiler, updateMemory);
     }
 
     long getEstimatedSize();
@@ -77,4 +94,9 @@ public interface GroupByHash
 
     @VisibleForTesting
     int getCapacity();
+
+    /**
+     * Frees the hash tables. The hash must not be used after it is closed.
+     */
+    void close();
 }
@@ -17,6 +17,7 @@ import com.facebook.presto.operator.aggregation.Accumulator;
 import com.facebook.presto.operator.aggregation.AccumulatorFactory;
 import com.facebook.presto.operator.aggregation.builder.HashAggregationBuilder;
 import com.facebook.presto.operator.aggregation.builder.InMemoryHashAggregationBuilder;
+import com.facebook.presto.operator.aggregation.builder.SkipAggregationBuilder;
 import com.facebook.presto.operator.aggregation.builder.SpillableHashAggregationBuilder;
 import com.facebook.presto.operator.scalar.CombineHashFunction;
 import com.facebook.presto.spi.Page;
@@ -37,6 +38,9 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static com.facebook.presto.SystemSessionProperties.getAdaptivePartialAggregationMinRows;
+import static com.facebook.presto.SystemSessionProperties.getAdaptivePartialAggregationUniqueRowsRatioThreshold;
+import static com.facebook.presto.SystemSessionProperties.isAdaptivePartialAggregationEnabled;
 import static com.facebook.presto.operator.aggregation.builder.InMemoryHashAggregationBuilder.toTypes;
 import static com.facebook.presto.sql.planner.optimizations.HashGenerationOptimizer.INITIAL_HASH_VALUE;
 import static com.facebook.presto.type.TypeUtils.NULL_HASH_CODE;
@@ -70,6 +74,7 @@ public class HashAggregationOperator
         private final DataSize memoryLimitForMerge;
         private final DataSize memoryLimitForMergeWithMemory;
         private final SpillerFactory spillerFactory;
+        private final boolean offHeapGroupByHash;
         private final JoinCompiler joinCompiler;
 
         private boolean closed;
@@ -126,6 +131,7 @@ public class HashAggregationOperator
                 boolean spillEnabled,
                 DataSize unspillMemoryLimit,
                 SpillerFactory spillerFactory,
+                boolean offHeapGroupByHash,
                 JoinCompiler joinCompiler)
         {
             this(operatorId,
@@ -144,6 +150,7 @@ public class HashAggregationOperator
                     unspillMemoryLimit,
                     DataSize.succinctBytes((long) (unspillMemoryLimit.toBytes() * MERGE_WITH_MEMORY_RATIO)),
                     spillerFactory,
+                    offHeapGroupByHash,
                     joinCompiler);
         }
 
@@ -166,6 +173,46 @@ public class HashAggregationOperator
                 DataSize memoryLimitForMergeWithMemory,
                 SpillerFactory spillerFactory,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId,
+                    planNodeId,
+                    groupByTypes,
+                    groupByChannels,
+                    globalAggregationGroupIds,
+                    step,
+                    produceDefaultOutput,
+                    accumulatorFactories,
+                    hashChannel,
+                    groupIdChannel,
+                    expectedGroups,
+                    maxPartialMemory,
+                    spillEnabled,
+                    memoryLimitForMerge,
+                    memoryLimitForMergeWithMemory,
+                    spillerFactory,
+                    false,
+                    joinCompiler);
+        }
+
+        private HashAggregationOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> groupByTypes,
+                List<Integer> groupByChannels,
+                List<Integer> globalAggregationGroupIds,
+                Step step,
+                boolean produceDefaultOutput,
+                List<AccumulatorFactory> accumulatorFactories,
+                Optional<Integer> hashChannel,
+                Optional<Integer> groupIdChannel,
+                int expectedGroups,
+                DataSize maxPartialMemory,
+                boolean spillEnabled,
+                DataSize memoryLimitForMerge,
+                DataSize memoryLimitForMergeWithMemory,
+                SpillerFactory spillerFactory,
+                boolean offHeapGroupByHash,
+                JoinCompiler joinCompiler)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -183,6 +230,7 @@ public class HashAggregationOperator
             this.memoryLimitForMerge = requireNonNull(memoryLimitForMerge, "memoryLimitForMerge is null");
             this.memoryLimitForMergeWithMemory = requireNonNull(memoryLimitForMergeWithMemory, "memoryLimitForMergeWithMemory is null");
             this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+            this.offHeapGroupByHash = offHeapGroupByHash;
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
 
             this.types = toTypes(groupByTypes, step, accumulatorFactories, hashChannel);
@@ -216,6 +264,7 @@ public class HashAggregationOperator
                     memoryLimitForMerge,
                     memoryLimitForMergeWithMemory,
                     spillerFactory,
+                    offHeapGroupByHash,
                     joinCompiler);
             return hashAggregationOperator;
         }
@@ -246,6 +295,7 @@ public class HashAggregationOperator
                     memoryLimitForMerge,
                     memoryLimitForMergeWithMemory,
                     spillerFactory,
+                    offHeapGroupByHash,
                     joinCompiler);
         }
     }
@@ -265,11 +315,20 @@ public class HashAggregationOperator
     private final DataSize memoryLimitForMerge;
     private final DataSize memoryLimitForMergeWithMemory;
     private final SpillerFactory spillerFactory;
+    private final boolean offHeapGroupByHash;
     private final JoinCompiler joinCompiler;
 
     private final List<Type> types;
     private final HashCollisionsCounter hashCollisionsCounter;
 
+    private final boolean adaptivePartialAggregation;
+    private final long adaptivePartialAggregationMinRows;
+    private final double adaptivePartialAggregationUniqueRowsRatioThreshold;
+    private long partialAggregationInputRows;
+    private long partialAggregationFlushedGroups;
+    private boolean partialAggregationChecked;
+    private boolean skipPartialAggregation;
+
     private HashAggregationBuilder aggregationBuilder;
     private Iterator<Page> outputIterator;
     private boolean inputProcessed;
@@ -295,6 +354,7 @@ public class HashAggregationOperator
             DataSize memoryLimitForMerge,
             DataSize memoryLimitForMergeWithMemory,
             SpillerFactory spillerFactory,
+            boolean offHeapGroupByHash,
             JoinCompiler joinCompiler)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
@@ -317,9 +377,15 @@ public class HashAggregationOperator
         this.memoryLimitForMerge = requireNonNull(memoryLimitForMerge, "memoryLimitForMerge is null");
         this.memoryLimitForMergeWithMemory = requireNonNull(memoryLimitForMergeWithMemory, "memoryLimitForMergeWithMemory is null");
         this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+        this.offHeapGroupByHash = offHeapGroupByHash;
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
         this.hashCollisionsCounter = new HashCollisionsCounter(operatorContext);
         operatorContext.setInfoSupplier(hashCollisionsCounter);
+
+        this.adaptivePartialAggregation = step.isInputRaw() && step.isOutputPartial() && !groupByChannels.isEmpty() &&
+                isAdaptivePartialAggregationEnabled(operatorContext.getSession());
+        this.adaptivePartialAggregationMinRows = getAdaptivePartialAggregationMinRows(operatorContext.getSession());
+        this.adaptivePartialAggregationUniqueRowsRatioThreshold = getAdaptivePartialAggregationUniqueRowsRatioThreshold(operatorContext.getSession());
     }
 
     @Override
@@ -352,7 +418,7 @@ public class HashAggregationOperator
         if (finishing || outputIterator != null) {
             return false;
         }
-        else if (aggregationBuilder != null && aggregationBuilder.isFull()) {
+        else if (isAggregationBuilderFull()) {
             return false;
         }
         else {
@@ -369,8 +435,11 @@ public class HashAggregationOperator
         inputProcessed = true;
 
         if (aggregationBuilder == null) {
+            if (skipPartialAggregation) {
+                aggregationBuilder = new SkipAggregationBuilder(accumulatorFactories, groupByChannels, hashChannel, operatorContext);
+            }
             // TODO: We ignore spillEnabled here if any aggregate has ORDER BY clause because ORDER BY is not yet implemented for spilling.
-            if (step.isOutputPartial() || !spillEnabled || hasOrderBy()) {
+            else if (step.isOutputPartial() || !spillEnabled || hasOrderBy()) {
                 aggregationBuilder = new InMemoryHashAggregationBuilder(
                         accumulatorFactories,
                         step,
@@ -381,7 +450,8 @@ public class HashAggregationOperator
                         operatorContext,
                         maxPartialMemory,
                         joinCompiler,
-                        true);
+                        true,
+                        offHeapGroupByHash);
             }
             else {
                 aggregationBuilder = new SpillableHashAggregationBuilder(
@@ -401,7 +471,7 @@ public class HashAggregationOperator
             // assume initial aggregationBuilder is not full
         }
         else {
-            checkState(!aggregationBuilder.isFull(), "Aggregation buffer is full");
+            checkState(!isAggregationBuilderFull(), "Aggregation buffer is full");
         }
 
         // process the current page; save the unfinished work if we are waiting for memory
@@ -410,6 +480,44 @@ public class HashAggregationOperator
             unfinishedWork = null;
         }
         aggregationBuilder.updateMemory();
+
+        if (adaptivePartialAggregation && !partialAggregationChecked) {
+            checkPartialAggregationReduction(page.getPositionCount());
+        }
+    }
+
+    /**
+     * Once enough input rows have been seen, compares the number of groups with the number of
+     * input rows. When nearly every row forms a group of its own the partial aggregation costs
+     * more than it saves, so the remaining input is passed through as intermediate state instead.
+     */
+    private void checkPartialAggregationReduction(int positionCount)
+    {
+        partialAggregationInputRows += positionCount;
+        if (partialAggregationInputRows < adaptivePartialAggregationMinRows) {
+            return;
+        }
+        partialAggregationChecked = true;
+
+        long uniqueRows = partialAggregationFlushedGroups + aggregationBuilder.getGroupCount();
+        if (uniqueRows > partialAggregationInputRows * adaptivePartialAggregationUniqueRowsRatioThreshold) {
+            // the rows aggregated so far are flushed before the next page is accepted
+            skipPartialAggregation = true;
+        }
+    }
+
+    private boolean isAggregationBuilderFull()
+    {
+        if (aggregationBuilder == null) {
+            return false;
+        }
+        return aggregationBuilder.isFull() || (skipPartialAggregation && !(aggregationBuilder instanceof SkipAggregationBuilder));
+    }
+
+    @VisibleForTesting
+    public boolean isPartialAggregationSkipped()
+    {
+        return skipPartialAggregation;
     }
 
     private boolean hasOrderBy()
@@ -469,7 +577,7 @@ public class HashAggregationOperator
             }
 
             // only flush if we are finishing or the aggregation builder is full
-            if (!finishing && (aggregationBuilder == null || !aggregationBuilder.isFull())) {
+            if (!finishing && !isAggregationBuilderFull()) {
                 return null;
             }
 
@@ -505,6 +613,9 @@ public class HashAggregationOperator
     {
         outputIterator = null;
         if (aggregationBuilder != null) {
+            if (adaptivePartialAggregation && !partialAggregationChecked) {
+                partialAggregationFlushedGroups += aggregationBuilder.getGroupCount();
+            }
             aggregationBuilder.recordHashCollisions(hashCollisionsCounter);
             aggregationBuilder.close();
             // aggregationBuilder.close() will release all memory reserved in memory accounting.
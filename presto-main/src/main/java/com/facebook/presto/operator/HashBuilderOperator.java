@@ -13,30 +13,35 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spiller.SingleStreamSpiller;
 import com.facebook.presto.spiller.SingleStreamSpillerFactory;
+import com.facebook.presto.spiller.SpilledPageStream;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler.JoinFilterFunctionFactory;
 import com.facebook.presto.sql.planner.Symbol;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Closer;
+import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
-import java.util.Queue;
 
+import static com.facebook.presto.SystemSessionProperties.getJoinOperatorUnspillMemoryLimit;
+import static com.facebook.presto.operator.UnspilledPartition.getSubPartitionPositions;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
@@ -44,6 +49,9 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.concurrent.MoreFutures.checkSuccess;
 import static io.airlift.concurrent.MoreFutures.getDone;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.Math.max;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
@@ -63,6 +71,10 @@ public class HashBuilderOperator
         private final Optional<JoinFilterFunctionFactory> filterFunctionFactory;
         private final Optional<Integer> sortChannel;
         private final List<JoinFilterFunctionFactory> searchFunctionFactories;
+        private final Optional<LocalDynamicFilter> dynamicFilter;
+        private final List<Integer> dynamicFilterChannels;
+        private final List<Type> dynamicFilterTypes;
+        private final List<ColumnHandle> dynamicFilterColumns;
         private final PagesIndex.Factory pagesIndexFactory;
 
         private final int expectedPositions;
@@ -84,6 +96,7 @@ public class HashBuilderOperator
                 Optional<JoinFilterFunctionFactory> filterFunctionFactory,
                 Optional<Integer> sortChannel,
                 List<JoinFilterFunctionFactory> searchFunctionFactories,
+                Optional<LocalDynamicFilter> dynamicFilter,
                 int expectedPositions,
                 int partitionCount,
                 PagesIndex.Factory pagesIndexFactory,
@@ -112,6 +125,24 @@ public class HashBuilderOperator
             this.filterFunctionFactory = requireNonNull(filterFunctionFactory, "filterFunctionFactory is null");
             this.sortChannel = sortChannel;
             this.searchFunctionFactories = ImmutableList.copyOf(searchFunctionFactories);
+
+            this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
+            ImmutableList.Builder<Integer> dynamicFilterChannels = ImmutableList.builder();
+            ImmutableList.Builder<Type> dynamicFilterTypes = ImmutableList.builder();
+            ImmutableList.Builder<ColumnHandle> dynamicFilterColumns = ImmutableList.builder();
+            dynamicFilter.ifPresent(filter -> {
+                filter.setPartitionCount(partitionCount);
+                for (Map.Entry<Symbol, ColumnHandle> entry : filter.getProbeColumns().entrySet()) {
+                    int channel = requireNonNull(layout.get(entry.getKey()), () -> "no channel for symbol " + entry.getKey());
+                    dynamicFilterChannels.add(channel);
+                    dynamicFilterTypes.add(types.get(channel));
+                    dynamicFilterColumns.add(entry.getValue());
+                }
+            });
+            this.dynamicFilterChannels = dynamicFilterChannels.build();
+            this.dynamicFilterTypes = dynamicFilterTypes.build();
+            this.dynamicFilterColumns = dynamicFilterColumns.build();
+
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
             this.spillEnabled = spillEnabled;
             this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
@@ -145,6 +176,8 @@ public class HashBuilderOperator
                     filterFunctionFactory,
                     sortChannel,
                     searchFunctionFactories,
+                    dynamicFilter,
+                    dynamicFilter.map(filter -> new DynamicFilterCollector(dynamicFilterChannels, dynamicFilterTypes, dynamicFilterColumns, filter.getMaxDistinctValues())),
                     expectedPositions,
                     pagesIndexFactory,
                     spillEnabled,
@@ -186,7 +219,7 @@ public class HashBuilderOperator
         LOOKUP_SOURCE_BUILT,
 
         /**
-         * Input has been finished and spilled
+         * Input has been finished and spilled. Also entered when the LookupSource built from a sub-partition of the input has been released
          */
         INPUT_SPILLED,
 
@@ -196,7 +229,7 @@ public class HashBuilderOperator
         INPUT_UNSPILLING,
 
         /**
-         * Spilled input has been unspilled, LookupSource built from it
+         * Spilled input, or a sub-partition of it, has been unspilled, LookupSource built from it
          */
         INPUT_UNSPILLED_AND_BUILT,
 
@@ -207,6 +240,7 @@ public class HashBuilderOperator
     }
 
     private static final double INDEX_COMPACTION_ON_REVOCATION_TARGET = 0.8;
+    private static final DataSize UNSPILL_READ_AHEAD = new DataSize(16, MEGABYTE);
 
     private final OperatorContext operatorContext;
     private final PartitionedLookupSourceFactory lookupSourceFactory;
@@ -219,10 +253,13 @@ public class HashBuilderOperator
     private final Optional<JoinFilterFunctionFactory> filterFunctionFactory;
     private final Optional<Integer> sortChannel;
     private final List<JoinFilterFunctionFactory> searchFunctionFactories;
+    private final Optional<LocalDynamicFilter> dynamicFilter;
 
     private final PagesIndex index;
+    private final HashGenerator hashGenerator;
 
     private final boolean spillEnabled;
+    private final long unspillMemoryLimit;
     private final SingleStreamSpillerFactory singleStreamSpillerFactory;
 
     private final HashCollisionsCounter hashCollisionsCounter;
@@ -232,12 +269,16 @@ public class HashBuilderOperator
     private SpilledLookupSourceHandle spilledLookupSourceHandle = new SpilledLookupSourceHandle();
     private Optional<SingleStreamSpiller> spiller = Optional.empty();
     private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
-    private Optional<ListenableFuture<List<Page>>> unspillInProgress = Optional.empty();
+    private Optional<SpilledPageStream> unspillInProgress = Optional.empty();
+    private int unspilledSubPartition;
+    private int unspilledSubPartitionCount;
+    private ListenableFuture<?> unspilledLookupSourceNotNeeded = NOT_BLOCKED;
     @Nullable
     private LookupSourceSupplier lookupSourceSupplier;
     private OptionalLong lookupSourceChecksum = OptionalLong.empty();
 
     private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private Optional<DynamicFilterCollector> dynamicFilterCollector;
 
     public HashBuilderOperator(
             OperatorContext operatorContext,
@@ -249,6 +290,8 @@ public class HashBuilderOperator
             Optional<JoinFilterFunctionFactory> filterFunctionFactory,
             Optional<Integer> sortChannel,
             List<JoinFilterFunctionFactory> searchFunctionFactories,
+            Optional<LocalDynamicFilter> dynamicFilter,
+            Optional<DynamicFilterCollector> dynamicFilterCollector,
             int expectedPositions,
             PagesIndex.Factory pagesIndexFactory,
             boolean spillEnabled,
@@ -261,6 +304,9 @@ public class HashBuilderOperator
         this.filterFunctionFactory = filterFunctionFactory;
         this.sortChannel = sortChannel;
         this.searchFunctionFactories = searchFunctionFactories;
+        this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
+        this.dynamicFilterCollector = requireNonNull(dynamicFilterCollector, "dynamicFilterCollector is null");
+        checkArgument(dynamicFilter.isPresent() == dynamicFilterCollector.isPresent(), "both or none dynamicFilter and dynamicFilterCollector must be set");
 
         this.index = pagesIndexFactory.newPagesIndex(lookupSourceFactory.getTypes(), expectedPositions);
         this.lookupSourceFactory = lookupSourceFactory;
@@ -269,11 +315,21 @@ public class HashBuilderOperator
         this.outputChannels = outputChannels;
         this.hashChannels = hashChannels;
         this.preComputedHashChannel = preComputedHashChannel;
+        if (preComputedHashChannel.isPresent()) {
+            this.hashGenerator = new PrecomputedHashGenerator(preComputedHashChannel.getAsInt());
+        }
+        else {
+            List<Type> hashTypes = hashChannels.stream()
+                    .map(lookupSourceFactory.getTypes()::get)
+                    .collect(toImmutableList());
+            this.hashGenerator = new InterpretedHashGenerator(hashTypes, hashChannels);
+        }
 
         this.hashCollisionsCounter = new HashCollisionsCounter(operatorContext);
         operatorContext.setInfoSupplier(hashCollisionsCounter);
 
         this.spillEnabled = spillEnabled;
+        this.unspillMemoryLimit = getJoinOperatorUnspillMemoryLimit(operatorContext.getSession()).toBytes();
         this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
     }
 
@@ -312,10 +368,11 @@ public class HashBuilderOperator
                 return spilledLookupSourceHandle.getUnspillingOrDisposeRequested();
 
             case INPUT_UNSPILLING:
-                return unspillInProgress.orElseThrow(() -> new IllegalStateException("Unspilling in progress, but unspilling future not set"));
+                return unspillInProgress.orElseThrow(() -> new IllegalStateException("Unspilling in progress, but unspilled page stream not set"))
+                        .isBlocked();
 
             case INPUT_UNSPILLED_AND_BUILT:
-                return spilledLookupSourceHandle.getDisposeRequested();
+                return unspilledLookupSourceNotNeeded;
 
             case DISPOSED:
                 return lookupSourceFactoryDestroyed;
@@ -342,6 +399,8 @@ public class HashBuilderOperator
             return;
         }
 
+        dynamicFilterCollector.ifPresent(collector -> collector.addPage(page));
+
         if (state == State.SPILLING_INPUT) {
             spillInput(page);
             return;
@@ -397,7 +456,7 @@ public class HashBuilderOperator
             });
             return spillIndex();
         }
-        else if (state == State.LOOKUP_SOURCE_BUILT) {
+        else if (state == State.LOOKUP_SOURCE_BUILT && !lookupSourceFactory.isOuter()) {
             finishMemoryRevoke = Optional.of(() -> {
                 lookupSourceFactory.setPartitionSpilledLookupSourceHandle(partitionIndex, spilledLookupSourceHandle);
                 lookupSourceNotNeeded = Optional.empty();
@@ -406,6 +465,8 @@ public class HashBuilderOperator
                 operatorContext.setRevocableMemoryReservation(0L);
                 lookupSourceChecksum = OptionalLong.of(lookupSourceSupplier.checksum());
                 lookupSourceSupplier = null;
+                // The partition fitted in memory and probe rows may refer to its positions, so it is unspilled as a whole
+                spilledLookupSourceHandle.setSubPartitionCount(1);
                 state = State.INPUT_SPILLED;
             });
             return spillIndex();
@@ -455,6 +516,10 @@ public class HashBuilderOperator
             return;
         }
 
+        if (state == State.CONSUMING_INPUT || state == State.SPILLING_INPUT) {
+            publishDynamicFilter();
+        }
+
         switch (state) {
             case CONSUMING_INPUT:
                 finishInput();
@@ -493,6 +558,14 @@ public class HashBuilderOperator
         throw new IllegalStateException("Unhandled state: " + state);
     }
 
+    private void publishDynamicFilter()
+    {
+        if (dynamicFilterCollector.isPresent()) {
+            dynamicFilter.get().addPartition(dynamicFilterCollector.get().getTupleDomain());
+            dynamicFilterCollector = Optional.empty();
+        }
+    }
+
     private void finishInput()
     {
         checkState(state == State.CONSUMING_INPUT);
@@ -502,10 +575,12 @@ public class HashBuilderOperator
         }
 
         LookupSourceSupplier partition = buildLookupSource();
-        if (spillEnabled) {
+        if (spillEnabled && !lookupSourceFactory.isOuter()) {
             operatorContext.setRevocableMemoryReservation(partition.get().getInMemorySizeInBytes());
         }
         else {
+            // Lookup source of an outer join tracks matched build rows, so it cannot be spilled once built
+            operatorContext.setRevocableMemoryReservation(0L);
             operatorContext.setMemoryReservation(partition.get().getInMemorySizeInBytes());
         }
         lookupSourceNotNeeded = Optional.of(lookupSourceFactory.lendPartitionLookupSource(partitionIndex, partition));
@@ -536,9 +611,16 @@ public class HashBuilderOperator
             return;
         }
         checkSuccess(spillInProgress, "spilling failed");
+        spilledLookupSourceHandle.setSubPartitionCount(getSubPartitionCount());
         state = State.INPUT_SPILLED;
     }
 
+    private int getSubPartitionCount()
+    {
+        long spilledSize = getSpiller().getSpilledPagesInMemorySize();
+        return toIntExact(max(1, (spilledSize + unspillMemoryLimit - 1) / unspillMemoryLimit));
+    }
+
     private void unspillLookupSourceIfRequested()
     {
         checkState(state == State.INPUT_SPILLED);
@@ -550,8 +632,10 @@ public class HashBuilderOperator
         verify(spiller.isPresent());
         verify(!unspillInProgress.isPresent());
 
-        operatorContext.setMemoryReservation(getSpiller().getSpilledPagesInMemorySize() + index.getEstimatedSize().toBytes());
-        unspillInProgress = Optional.of(getSpiller().getAllSpilledPages());
+        unspilledSubPartition = spilledLookupSourceHandle.getRequestedSubPartition();
+        unspilledSubPartitionCount = getDone(spilledLookupSourceHandle.getSubPartitionCount());
+        unspilledLookupSourceNotNeeded = spilledLookupSourceHandle.getReleaseOrDisposeRequested();
+        unspillInProgress = Optional.of(getSpiller().getSpilledPageStream(UNSPILL_READ_AHEAD.toBytes()));
 
         state = State.INPUT_UNSPILLING;
     }
@@ -559,25 +643,25 @@ public class HashBuilderOperator
     private void finishLookupSourceUnspilling()
     {
         checkState(state == State.INPUT_UNSPILLING);
-        if (!unspillInProgress.get().isDone()) {
-            // Pages have not be unspilled yet.
-            return;
-        }
-
-        // Use Queue so that Pages already consumed by Index are not retained by us.
-        Queue<Page> pages = new ArrayDeque<>(getDone(unspillInProgress.get()));
-        long memoryRetainedByRemainingPages = pages.stream()
-                .mapToLong(Page::getRetainedSizeInBytes)
-                .sum();
-        operatorContext.setMemoryReservation(memoryRetainedByRemainingPages + index.getEstimatedSize().toBytes());
+        SpilledPageStream pages = unspillInProgress.get();
 
-        while (!pages.isEmpty()) {
-            Page next = pages.remove();
-            index.addPage(next);
+        // Pages are added to the index as they are read, so only the read ahead of the spill is held in addition to the index.
+        Page page;
+        while ((page = pages.pollPage()) != null) {
+            if (unspilledSubPartitionCount > 1) {
+                page = getSubPartitionPage(page);
+            }
+            index.addPage(page);
             // There is no attempt to compact index, since unspilled pages are unlikely to have blocks with retained size > logical size.
-            memoryRetainedByRemainingPages -= next.getRetainedSizeInBytes();
-            operatorContext.setMemoryReservation(memoryRetainedByRemainingPages + index.getEstimatedSize().toBytes());
+            operatorContext.setMemoryReservation(pages.getBufferedBytes() + index.getEstimatedSize().toBytes());
+        }
+        if (!pages.isFinished()) {
+            // Remaining pages have not been unspilled yet.
+            operatorContext.setMemoryReservation(pages.getBufferedBytes() + index.getEstimatedSize().toBytes());
+            return;
         }
+        pages.close();
+        unspillInProgress = Optional.empty();
 
         LookupSourceSupplier partition = buildLookupSource();
         lookupSourceChecksum.ifPresent(checksum ->
@@ -589,17 +673,36 @@ public class HashBuilderOperator
         state = State.INPUT_UNSPILLED_AND_BUILT;
     }
 
+    private Page getSubPartitionPage(Page page)
+    {
+        int[] positions = getSubPartitionPositions(page, hashGenerator, unspilledSubPartition, unspilledSubPartitionCount);
+        List<Integer> retainedPositions = Ints.asList(positions);
+        Block[] blocks = new Block[page.getChannelCount()];
+        for (int channel = 0; channel < blocks.length; channel++) {
+            // copied, since the index retains the blocks
+            blocks[channel] = page.getBlock(channel).copyPositions(retainedPositions);
+        }
+        return new Page(positions.length, blocks);
+    }
+
     private void disposeUnspilledLookupSourceIfRequested()
     {
         checkState(state == State.INPUT_UNSPILLED_AND_BUILT);
-        if (!spilledLookupSourceHandle.getDisposeRequested().isDone()) {
+        if (!unspilledLookupSourceNotNeeded.isDone()) {
             return;
         }
 
         index.clear();
         operatorContext.setMemoryReservation(index.getEstimatedSize().toBytes());
+        lookupSourceSupplier = null;
 
-        state = State.DISPOSED;
+        if (spilledLookupSourceHandle.getDisposeRequested().isDone()) {
+            state = State.DISPOSED;
+        }
+        else {
+            // Sub-partition released, wait for the next one to be requested
+            state = State.INPUT_SPILLED;
+        }
     }
 
     private LookupSourceSupplier buildLookupSource()
@@ -640,6 +743,7 @@ public class HashBuilderOperator
         try (Closer closer = Closer.create()) {
             closer.register(index::clear);
             spiller.ifPresent(closer::register);
+            unspillInProgress.ifPresent(closer::register);
             closer.register(() -> operatorContext.setMemoryReservation(0));
             closer.register(() -> operatorContext.setRevocableMemoryReservation(0));
         }
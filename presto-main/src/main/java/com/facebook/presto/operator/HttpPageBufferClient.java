@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.net.MediaType;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.HttpStatus;
@@ -46,6 +47,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.concurrent.Future;
@@ -107,16 +109,18 @@ public final class HttpPageBufferClient
     }
 
     private final HttpClient httpClient;
+    private final Optional<MultiplexedPageTransport> multiplexedTransport;
     private final DataSize maxResponseSize;
     private final URI location;
     private final ClientCallback clientCallback;
     private final ScheduledExecutorService executor;
+    private final Ticker ticker;
     private final Backoff backoff;
 
     @GuardedBy("this")
     private boolean closed;
     @GuardedBy("this")
-    private HttpResponseFuture<?> future;
+    private ListenableFuture<?> future;
     @GuardedBy("this")
     private DateTime lastUpdate = DateTime.now();
     @GuardedBy("this")
@@ -130,6 +134,8 @@ public final class HttpPageBufferClient
 
     private final AtomicLong rowsReceived = new AtomicLong();
     private final AtomicInteger pagesReceived = new AtomicInteger();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong requestNanos = new AtomicLong();
 
     private final AtomicLong rowsRejected = new AtomicLong();
     private final AtomicInteger pagesRejected = new AtomicInteger();
@@ -147,7 +153,7 @@ public final class HttpPageBufferClient
             ClientCallback clientCallback,
             ScheduledExecutorService executor)
     {
-        this(httpClient, maxResponseSize, minErrorDuration, maxErrorDuration, location, clientCallback, executor, Ticker.systemTicker());
+        this(httpClient, Optional.empty(), maxResponseSize, minErrorDuration, maxErrorDuration, location, clientCallback, executor, Ticker.systemTicker());
     }
 
     public HttpPageBufferClient(
@@ -159,15 +165,43 @@ public final class HttpPageBufferClient
             ClientCallback clientCallback,
             ScheduledExecutorService executor,
             Ticker ticker)
+    {
+        this(httpClient, Optional.empty(), maxResponseSize, minErrorDuration, maxErrorDuration, location, clientCallback, executor, ticker);
+    }
+
+    public HttpPageBufferClient(
+            HttpClient httpClient,
+            Optional<MultiplexedPageTransport> multiplexedTransport,
+            DataSize maxResponseSize,
+            Duration minErrorDuration,
+            Duration maxErrorDuration,
+            URI location,
+            ClientCallback clientCallback,
+            ScheduledExecutorService executor)
+    {
+        this(httpClient, multiplexedTransport, maxResponseSize, minErrorDuration, maxErrorDuration, location, clientCallback, executor, Ticker.systemTicker());
+    }
+
+    public HttpPageBufferClient(
+            HttpClient httpClient,
+            Optional<MultiplexedPageTransport> multiplexedTransport,
+            DataSize maxResponseSize,
+            Duration minErrorDuration,
+            Duration maxErrorDuration,
+            URI location,
+            ClientCallback clientCallback,
+            ScheduledExecutorService executor,
+            Ticker ticker)
     {
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        this.multiplexedTransport = requireNonNull(multiplexedTransport, "multiplexedTransport is null");
         this.maxResponseSize = requireNonNull(maxResponseSize, "maxResponseSize is null");
         this.location = requireNonNull(location, "location is null");
         this.clientCallback = requireNonNull(clientCallback, "clientCallback is null");
         this.executor = requireNonNull(executor, "executor is null");
         requireNonNull(minErrorDuration, "minErrorDuration is null");
         requireNonNull(maxErrorDuration, "maxErrorDuration is null");
-        requireNonNull(ticker, "ticker is null");
+        this.ticker = requireNonNull(ticker, "ticker is null");
         this.backoff = new Backoff(
                 minErrorDuration,
                 maxErrorDuration,
@@ -198,19 +232,29 @@ public final class HttpPageBufferClient
             state = "queued";
         }
         String httpRequestState = "not scheduled";
-        if (future != null) {
-            httpRequestState = future.getState();
+        if (future instanceof HttpResponseFuture) {
+            httpRequestState = ((HttpResponseFuture<?>) future).getState();
+        }
+        else if (future != null) {
+            httpRequestState = "multiplexed";
         }
 
         long rejectedRows = rowsRejected.get();
         int rejectedPages = pagesRejected.get();
 
+        long receivedBytes = bytesReceived.get();
+        long requestTimeNanos = requestNanos.get();
+        long bytesPerSecond = requestTimeNanos == 0 ? 0 : (long) (receivedBytes * 1.0 / requestTimeNanos * SECONDS.toNanos(1));
+
         return new PageBufferClientStatus(
                 location,
                 state,
                 lastUpdate,
                 rowsReceived.get(),
                 pagesReceived.get(),
+                receivedBytes,
+                new Duration(requestTimeNanos, NANOSECONDS).convertToMostSuccinctTimeUnit(),
+                bytesPerSecond,
                 rejectedRows == 0 ? OptionalLong.empty() : OptionalLong.of(rejectedRows),
                 rejectedPages == 0 ? OptionalInt.empty() : OptionalInt.of(rejectedPages),
                 requestsScheduled.get(),
@@ -296,11 +340,18 @@ public final class HttpPageBufferClient
     private synchronized void sendGetResults()
     {
         URI uri = HttpUriBuilder.uriBuilderFrom(location).appendPath(String.valueOf(token)).build();
-        HttpResponseFuture<PagesResponse> resultFuture = httpClient.executeAsync(
-                prepareGet()
-                        .setHeader(PRESTO_MAX_SIZE, maxResponseSize.toString())
-                        .setUri(uri).build(),
-                new PageResponseHandler());
+        long requestStartNanos = ticker.read();
+        ListenableFuture<PagesResponse> resultFuture;
+        if (multiplexedTransport.isPresent()) {
+            resultFuture = multiplexedTransport.get().getPages(location, token);
+        }
+        else {
+            resultFuture = httpClient.executeAsync(
+                    prepareGet()
+                            .setHeader(PRESTO_MAX_SIZE, maxResponseSize.toString())
+                            .setUri(uri).build(),
+                    new PageResponseHandler());
+        }
 
         future = resultFuture;
         Futures.addCallback(resultFuture, new FutureCallback<PagesResponse>()
@@ -346,6 +397,8 @@ public final class HttpPageBufferClient
                 if (clientCallback.addPages(HttpPageBufferClient.this, pages)) {
                     pagesReceived.addAndGet(pages.size());
                     rowsReceived.addAndGet(pages.stream().mapToLong(SerializedPage::getPositionCount).sum());
+                    bytesReceived.addAndGet(pages.stream().mapToLong(SerializedPage::getSizeInBytes).sum());
+                    requestNanos.addAndGet(ticker.read() - requestStartNanos);
                 }
                 else {
                     pagesRejected.addAndGet(pages.size());
@@ -433,7 +486,7 @@ public final class HttpPageBufferClient
         }
     }
 
-    private void handleFailure(Throwable t, HttpResponseFuture<?> expectedFuture)
+    private void handleFailure(Throwable t, ListenableFuture<?> expectedFuture)
     {
         // Can not delegate to other callback while holding a lock on this
         checkNotHoldsLock();
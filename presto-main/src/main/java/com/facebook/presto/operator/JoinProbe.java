@@ -15,6 +15,9 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+
+import java.util.Optional;
 
 public interface JoinProbe
 {
@@ -31,4 +34,8 @@ public interface JoinProbe
     int getPosition();
 
     Page getPage();
+
+    Page getProbePage();
+
+    Optional<Block> getProbeHashBlock();
 }
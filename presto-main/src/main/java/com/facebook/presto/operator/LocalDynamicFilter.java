@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.sql.planner.Symbol;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Predicate on the probe side table scan of a join, derived from the join keys of
+ * the build side within a single task. The predicate is {@link TupleDomain#all()}
+ * until every partition of the hash build has consumed its input, after which it
+ * is the column-wise union of the key summaries of all partitions.
+ */
+@ThreadSafe
+public class LocalDynamicFilter
+{
+    private final Map<Symbol, ColumnHandle> probeColumns;
+    private final int maxDistinctValues;
+
+    @GuardedBy("this")
+    private int remainingPartitions = -1;
+    @GuardedBy("this")
+    private TupleDomain<ColumnHandle> summary = TupleDomain.none();
+
+    private volatile TupleDomain<ColumnHandle> currentPredicate = TupleDomain.all();
+
+    /**
+     * @param probeColumns the probe side columns, keyed by the build side symbol they are joined with
+     */
+    public LocalDynamicFilter(Map<Symbol, ColumnHandle> probeColumns, int maxDistinctValues)
+    {
+        this.probeColumns = ImmutableMap.copyOf(requireNonNull(probeColumns, "probeColumns is null"));
+        checkArgument(!this.probeColumns.isEmpty(), "probeColumns is empty");
+        checkArgument(maxDistinctValues >= 0, "maxDistinctValues is negative");
+        this.maxDistinctValues = maxDistinctValues;
+    }
+
+    public Map<Symbol, ColumnHandle> getProbeColumns()
+    {
+        return probeColumns;
+    }
+
+    public int getMaxDistinctValues()
+    {
+        return maxDistinctValues;
+    }
+
+    public synchronized void setPartitionCount(int partitionCount)
+    {
+        checkArgument(partitionCount > 0, "partitionCount must be positive");
+        checkState(remainingPartitions == -1, "partitionCount already set");
+        remainingPartitions = partitionCount;
+    }
+
+    public synchronized void addPartition(TupleDomain<ColumnHandle> partitionSummary)
+    {
+        requireNonNull(partitionSummary, "partitionSummary is null");
+        checkState(remainingPartitions > 0, "all partitions were already added");
+
+        summary = TupleDomain.columnWiseUnion(summary, partitionSummary);
+        remainingPartitions--;
+        if (remainingPartitions == 0) {
+            currentPredicate = summary;
+        }
+    }
+
+    public TupleDomain<ColumnHandle> getCurrentPredicate()
+    {
+        return currentPredicate;
+    }
+}
@@ -18,17 +18,20 @@ import com.facebook.presto.operator.LookupSourceProvider.LookupSourceLease;
 import com.facebook.presto.operator.PartitionedConsumption.Partition;
 import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spiller.PartitioningSpiller;
 import com.facebook.presto.spiller.PartitioningSpiller.PartitioningSpillResult;
 import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import com.google.common.io.Closer;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -36,11 +39,12 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.function.IntPredicate;
-import java.util.function.Supplier;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryProcessingJoinEnabled;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.FULL_OUTER;
+import static com.facebook.presto.operator.LookupJoinOperators.JoinType.LOOKUP_OUTER;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.PROBE_OUTER;
+import static com.facebook.presto.operator.UnspilledPartition.getSubPartitionPositions;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.concurrent.MoreFutures.checkSuccess;
@@ -67,6 +71,8 @@ public class LookupJoinOperator
     private final LookupJoinPageBuilder pageBuilder;
 
     private final boolean probeOnOuterSide;
+    private final boolean buildOnOuterSide;
+    private final int probeOutputChannelCount;
 
     private final ListenableFuture<LookupSourceProvider> lookupSourceProviderFuture;
     private LookupSourceProvider lookupSourceProvider;
@@ -86,17 +92,29 @@ public class LookupJoinOperator
     private long joinPosition = -1;
     private int joinSourcePositions = 0;
 
+    // join positions of all probe rows, looked up in one batch when the probe is first advanced
+    private long[] probeJoinPositions;
+    private LookupSource probeJoinPositionsLookupSource;
+
     private boolean currentProbePositionProducedRow;
 
     private final Map<Integer, SavedRow> savedRows = new HashMap<>();
     @Nullable
-    private ListenableFuture<PartitionedConsumption<Supplier<LookupSource>>> partitionedConsumption;
+    private ListenableFuture<PartitionedConsumption<UnspilledPartition>> partitionedConsumption;
+    @Nullable
+    private Iterator<Partition<UnspilledPartition>> lookupPartitions;
+    private Optional<Partition<UnspilledPartition>> currentPartition = Optional.empty();
+    private Optional<ListenableFuture<UnspilledPartition>> unspilledLookupSource = Optional.empty();
     @Nullable
-    private Iterator<Partition<Supplier<LookupSource>>> lookupPartitions;
-    private Optional<Partition<Supplier<LookupSource>>> currentPartition = Optional.empty();
-    private Optional<ListenableFuture<Supplier<LookupSource>>> unspilledLookupSource = Optional.empty();
+    private UnspilledPartition unspilledPartition;
     private Iterator<Page> unspilledInputPages = emptyIterator();
 
+    // build rows of the current unspilled partition which were not matched by any probe row, for outer join
+    @Nullable
+    private OuterPositionIterator outerPositions;
+    @Nullable
+    private PageBuilder outerPageBuilder;
+
     public LookupJoinOperator(
             OperatorContext operatorContext,
             List<Type> allTypes,
@@ -117,6 +135,8 @@ public class LookupJoinOperator
         requireNonNull(joinType, "joinType is null");
         // Cannot use switch case here, because javac will synthesize an inner class and cause IllegalAccessError
         probeOnOuterSide = joinType == PROBE_OUTER || joinType == FULL_OUTER;
+        buildOnOuterSide = joinType == LOOKUP_OUTER || joinType == FULL_OUTER;
+        probeOutputChannelCount = allTypes.size() - buildOutputTypes.size();
 
         this.joinProbeFactory = requireNonNull(joinProbeFactory, "joinProbeFactory is null");
         this.onClose = requireNonNull(onClose, "onClose is null");
@@ -188,6 +208,10 @@ public class LookupJoinOperator
             // Unspilling can happen only after lookupSourceProviderFuture was done.
             return unspilledLookupSource.get();
         }
+        if (partitionedConsumption != null && !partitionedConsumption.isDone()) {
+            // Partitioned consumption starts once all spilled partitions have been spilled completely.
+            return partitionedConsumption;
+        }
 
         return lookupSourceProviderFuture;
     }
@@ -228,6 +252,7 @@ public class LookupJoinOperator
         // create probe
         inputPageSpillEpoch = spillInfoSnapshot.getSpillEpoch();
         probe = joinProbeFactory.createJoinProbe(page);
+        clearProbeJoinPositions();
 
         // initialize to invalid join position to force output code to advance the cursors
         joinPosition = -1;
@@ -354,7 +379,8 @@ public class LookupJoinOperator
                 // Not unspilled yet
                 return;
             }
-            LookupSource lookupSource = getDone(unspilledLookupSource.get()).get();
+            unspilledPartition = getDone(unspilledLookupSource.get());
+            LookupSource lookupSource = unspilledPartition.getLookupSource();
             unspilledLookupSource = Optional.empty();
 
             // Close previous lookupSourceProvider (either supplied initially or for the previous partition)
@@ -363,11 +389,19 @@ public class LookupJoinOperator
             // If the partition was spilled during processing, its position count will be considered twice.
             statisticsCounter.updateLookupSourcePositions(lookupSource.getJoinPositionCount());
 
-            int partition = currentPartition.get().number();
+            int partition = unspilledPartition.getPartition();
             unspilledInputPages = spiller.map(spiller -> spiller.getSpilledPages(partition))
                     .orElse(emptyIterator());
+            if (unspilledPartition.getSubPartitionCount() > 1) {
+                UnspilledPartition subPartition = unspilledPartition;
+                unspilledInputPages = Iterators.filter(
+                        Iterators.transform(unspilledInputPages, page -> page.getPositions(getSubPartitionPositions(page, hashGenerator, subPartition.getSubPartition(), subPartition.getSubPartitionCount()))),
+                        page -> page.getPositionCount() > 0);
+            }
 
+            // Rows are saved only for partitions spilled after their lookup source was built, which are unspilled as a whole
             Optional.ofNullable(savedRows.remove(partition)).ifPresent(savedRow -> {
+                verify(unspilledPartition.getSubPartitionCount() == 1, "Saved row for a partition unspilled in multiple sub-partitions");
                 restoreProbe(
                         savedRow.row,
                         savedRow.joinPositionWithinPartition,
@@ -380,14 +414,18 @@ public class LookupJoinOperator
         }
 
         if (lookupPartitions.hasNext()) {
-            currentPartition.ifPresent(Partition::release);
+            if (!finishCurrentPartition()) {
+                return;
+            }
             currentPartition = Optional.of(lookupPartitions.next());
             unspilledLookupSource = Optional.of(currentPartition.get().load());
 
             return;
         }
 
-        currentPartition.ifPresent(Partition::release);
+        if (!finishCurrentPartition()) {
+            return;
+        }
         if (lookupSourceProvider != null) {
             // There are no more partitions to process, so clean up everything
             lookupSourceProvider.close();
@@ -397,6 +435,76 @@ public class LookupJoinOperator
         finished = true;
     }
 
+    /**
+     * Releases the current partition. For outer join, the last probe operator to release a partition produces the build rows of it,
+     * which were not matched by any probe row, before releasing it.
+     *
+     * @return whether the partition was released
+     */
+    private boolean finishCurrentPartition()
+    {
+        if (!currentPartition.isPresent()) {
+            return true;
+        }
+
+        if (buildOnOuterSide) {
+            if (outerPositions == null) {
+                if (currentPartition.get().releaseUnlessLast()) {
+                    currentPartition = Optional.empty();
+                    unspilledPartition = null;
+                    return true;
+                }
+                // All other probe operators are done with the partition, so all matched build rows have been visited
+                outerPositions = unspilledPartition.getOuterPositionIterator();
+            }
+            if (!buildOuterPage()) {
+                return false;
+            }
+            outerPositions = null;
+        }
+
+        currentPartition.get().release();
+        currentPartition = Optional.empty();
+        unspilledPartition = null;
+        return true;
+    }
+
+    /**
+     * Produces a page of unmatched build rows of the current partition, with nulls for the probe columns.
+     *
+     * @return whether all unmatched build rows have been produced
+     */
+    private boolean buildOuterPage()
+    {
+        verify(outputPage == null);
+        if (!pageBuilder.isEmpty()) {
+            // Flush rows of the last probe page first
+            outputPage = pageBuilder.build(null);
+            pageBuilder.reset();
+            return false;
+        }
+
+        if (outerPageBuilder == null) {
+            outerPageBuilder = new PageBuilder(allTypes);
+        }
+        boolean finished = false;
+        while (!outerPageBuilder.isFull()) {
+            if (!outerPositions.appendToNext(outerPageBuilder, probeOutputChannelCount)) {
+                finished = true;
+                break;
+            }
+            outerPageBuilder.declarePosition();
+            for (int probeChannel = 0; probeChannel < probeOutputChannelCount; probeChannel++) {
+                outerPageBuilder.getBlockBuilder(probeChannel).appendNull();
+            }
+        }
+        if (!outerPageBuilder.isEmpty()) {
+            outputPage = outerPageBuilder.build();
+            outerPageBuilder.reset();
+        }
+        return finished;
+    }
+
     private void processProbe()
     {
         verify(probe != null);
@@ -567,10 +675,60 @@ public class LookupJoinOperator
         }
 
         // update join position
-        joinPosition = probe.getCurrentJoinPosition(lookupSource);
+        joinPosition = getCurrentJoinPosition(lookupSource);
         return true;
     }
 
+    private long getCurrentJoinPosition(LookupSource lookupSource)
+    {
+        if (!lookupSource.isBatchLookupSupported()) {
+            return probe.getCurrentJoinPosition(lookupSource);
+        }
+        // the lookup source changes when the build side is spilled or unspilled while the probe page is processed
+        if (probeJoinPositions == null || probeJoinPositionsLookupSource != lookupSource) {
+            lookupProbeJoinPositions(lookupSource);
+        }
+        return probeJoinPositions[probe.getPosition()];
+    }
+
+    private void lookupProbeJoinPositions(LookupSource lookupSource)
+    {
+        Page probePage = probe.getProbePage();
+        int positionCount = probePage.getPositionCount();
+
+        // rows with a null in any join channel never match
+        int[] positions = new int[positionCount];
+        int nonNullPositionCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (!containsNull(probePage, position)) {
+                positions[nonNullPositionCount++] = position;
+            }
+        }
+
+        long[] joinPositions = new long[positionCount];
+        Arrays.fill(joinPositions, -1);
+        lookupSource.getJoinPositions(positions, nonNullPositionCount, probePage, probe.getPage(), probe.getProbeHashBlock(), joinPositions);
+
+        probeJoinPositions = joinPositions;
+        probeJoinPositionsLookupSource = lookupSource;
+    }
+
+    private static boolean containsNull(Page page, int position)
+    {
+        for (int channel = 0; channel < page.getChannelCount(); channel++) {
+            if (page.getBlock(channel).isNull(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void clearProbeJoinPositions()
+    {
+        probeJoinPositions = null;
+        probeJoinPositionsLookupSource = null;
+    }
+
     /**
      * Produce a row for the current probe position, if it doesn't match any row on lookup side and this is an outer join.
      *
@@ -693,5 +851,6 @@ public class LookupJoinOperator
             buildPage();
         }
         probe = null;
+        clearProbeJoinPositions();
     }
 }
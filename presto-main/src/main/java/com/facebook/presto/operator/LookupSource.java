@@ -15,10 +15,14 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
 import java.io.Closeable;
+import java.util.Optional;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
 
 @NotThreadSafe
 public interface LookupSource
@@ -36,6 +40,35 @@ public interface LookupSource
 
     long getJoinPosition(int position, Page hashChannelsPage, Page allChannelsPage);
 
+    /**
+     * Returns true if the join positions of all rows of a probe page can be looked up
+     * with {@link #getJoinPositions} before any of them is consumed.
+     */
+    default boolean isBatchLookupSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Finds the first join position of each of the first {@code positionCount} entries of
+     * {@code positions}, and stores it at the same position of {@code joinPositions}. The selected
+     * positions must not contain nulls in any of the hash channels. Implementations can look up all
+     * positions in one pass, which avoids a virtual call per position and lets the memory accesses of
+     * different positions overlap.
+     */
+    default void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, Optional<Block> rawHashBlock, long[] joinPositions)
+    {
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            if (rawHashBlock.isPresent()) {
+                joinPositions[position] = getJoinPosition(position, hashChannelsPage, allChannelsPage, BIGINT.getLong(rawHashBlock.get(), position));
+            }
+            else {
+                joinPositions[position] = getJoinPosition(position, hashChannelsPage, allChannelsPage);
+            }
+        }
+    }
+
     long getNextJoinPosition(long currentJoinPosition, int probePosition, Page allProbeChannelsPage);
 
     void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset);
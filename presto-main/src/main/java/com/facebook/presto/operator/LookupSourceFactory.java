@@ -20,7 +20,6 @@ import com.google.common.util.concurrent.ListenableFuture;
 import java.util.List;
 import java.util.Map;
 import java.util.OptionalInt;
-import java.util.function.Supplier;
 
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Collections.emptyList;
@@ -35,7 +34,7 @@ public interface LookupSourceFactory
 
     int partitions();
 
-    default ListenableFuture<PartitionedConsumption<Supplier<LookupSource>>> finishProbeOperator(OptionalInt lookupJoinsCount)
+    default ListenableFuture<PartitionedConsumption<UnspilledPartition>> finishProbeOperator(OptionalInt lookupJoinsCount)
     {
         return immediateFuture(new PartitionedConsumption<>(
                 1,
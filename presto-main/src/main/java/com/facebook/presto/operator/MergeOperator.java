@@ -0,0 +1,345 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.SystemMemoryUsageListener;
+import com.facebook.presto.execution.buffer.PagesSerde;
+import com.facebook.presto.execution.buffer.PagesSerdeFactory;
+import com.facebook.presto.execution.buffer.SerializedPage;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.operator.ExchangeOperator.UpdateSystemMemory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.UpdatablePageSource;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.split.RemoteSplit;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.operator.ExchangeOperator.REMOTE_CONNECTOR_ID;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Merges the sorted outputs of the upstream tasks into a single sorted stream.
+ * Every upstream task is read through its own {@link ExchangeClient}, and the
+ * head rows of the streams are kept in a heap ordered by the compiled comparator.
+ * The clients are created once all upstream tasks are known, so that together they
+ * buffer no more than a single exchange.
+ */
+public class MergeOperator
+        implements SourceOperator, Closeable
+{
+    public static class MergeOperatorFactory
+            implements SourceOperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId sourceId;
+        private final ExchangeClientSupplier exchangeClientSupplier;
+        private final PagesSerdeFactory serdeFactory;
+        private final List<Type> types;
+        private final PageWithPositionComparator comparator;
+        private boolean closed;
+
+        public MergeOperatorFactory(
+                int operatorId,
+                PlanNodeId sourceId,
+                ExchangeClientSupplier exchangeClientSupplier,
+                PagesSerdeFactory serdeFactory,
+                List<Type> types,
+                PageWithPositionComparator comparator)
+        {
+            this.operatorId = operatorId;
+            this.sourceId = requireNonNull(sourceId, "sourceId is null");
+            this.exchangeClientSupplier = requireNonNull(exchangeClientSupplier, "exchangeClientSupplier is null");
+            this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
+            this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+            this.comparator = requireNonNull(comparator, "comparator is null");
+        }
+
+        @Override
+        public PlanNodeId getSourceId()
+        {
+            return sourceId;
+        }
+
+        @Override
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        @Override
+        public SourceOperator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, sourceId, MergeOperator.class.getSimpleName());
+
+            return new MergeOperator(
+                    operatorContext,
+                    sourceId,
+                    exchangeClientSupplier,
+                    new UpdateSystemMemory(driverContext.getPipelineContext()),
+                    serdeFactory.createPagesSerde(),
+                    types,
+                    comparator);
+        }
+
+        @Override
+        public void noMoreOperators()
+        {
+            closed = true;
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final PlanNodeId sourceId;
+    private final ExchangeClientSupplier exchangeClientSupplier;
+    private final SystemMemoryUsageListener systemMemoryUsageListener;
+    private final PagesSerde serde;
+    private final List<Type> types;
+    private final PageBuilder pageBuilder;
+
+    private final List<URI> locations = new ArrayList<>();
+    private final List<ExchangeClient> exchangeClients = new ArrayList<>();
+    // streams which are positioned on a row, ordered by that row
+    private final PriorityQueue<SortedStream> heap;
+    // streams which need a new page before they can take part in the merge
+    private final List<SortedStream> pending = new ArrayList<>();
+    private final SettableFuture<?> noMoreSplitsFuture = SettableFuture.create();
+
+    private ListenableFuture<?> blocked = NOT_BLOCKED;
+    private boolean noMoreSplits;
+    private boolean closed;
+
+    public MergeOperator(
+            OperatorContext operatorContext,
+            PlanNodeId sourceId,
+            ExchangeClientSupplier exchangeClientSupplier,
+            SystemMemoryUsageListener systemMemoryUsageListener,
+            PagesSerde serde,
+            List<Type> types,
+            PageWithPositionComparator comparator)
+    {
+        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.sourceId = requireNonNull(sourceId, "sourceId is null");
+        this.exchangeClientSupplier = requireNonNull(exchangeClientSupplier, "exchangeClientSupplier is null");
+        this.systemMemoryUsageListener = requireNonNull(systemMemoryUsageListener, "systemMemoryUsageListener is null");
+        this.serde = requireNonNull(serde, "serde is null");
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.pageBuilder = new PageBuilder(types);
+
+        requireNonNull(comparator, "comparator is null");
+        this.heap = new PriorityQueue<>((left, right) -> comparator.compareTo(left.page, left.position, right.page, right.position));
+    }
+
+    @Override
+    public PlanNodeId getSourceId()
+    {
+        return sourceId;
+    }
+
+    @Override
+    public Supplier<Optional<UpdatablePageSource>> addSplit(Split split)
+    {
+        requireNonNull(split, "split is null");
+        checkArgument(split.getConnectorId().equals(REMOTE_CONNECTOR_ID), "split is not a remote split");
+        checkState(!noMoreSplits, "noMoreSplits has been already called");
+
+        locations.add(((RemoteSplit) split.getConnectorSplit()).getLocation());
+
+        return Optional::empty;
+    }
+
+    @Override
+    public void noMoreSplits()
+    {
+        if (noMoreSplits) {
+            return;
+        }
+        noMoreSplits = true;
+
+        if (!closed) {
+            for (URI location : locations) {
+                ExchangeClient exchangeClient = exchangeClientSupplier.get(systemMemoryUsageListener, locations.size());
+                exchangeClient.addLocation(location);
+                exchangeClient.noMoreLocations();
+                exchangeClients.add(exchangeClient);
+                pending.add(new SortedStream(exchangeClient));
+            }
+        }
+        noMoreSplitsFuture.set(null);
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public void finish()
+    {
+        close();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return closed || (noMoreSplits && pending.isEmpty() && heap.isEmpty() && pageBuilder.isEmpty());
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (!noMoreSplits) {
+            // the set of streams to merge is not known until all splits arrive
+            return noMoreSplitsFuture;
+        }
+        if (!blocked.isDone()) {
+            return blocked;
+        }
+        return NOT_BLOCKED;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return false;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        throw new UnsupportedOperationException(getClass().getName() + " can not take input");
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        if (closed || !noMoreSplits) {
+            return null;
+        }
+
+        while (!pageBuilder.isFull()) {
+            if (!advancePendingStreams()) {
+                // a stream is waiting for data, so the next row is not known yet
+                return null;
+            }
+
+            SortedStream stream = heap.poll();
+            if (stream == null) {
+                break;
+            }
+
+            for (int channel = 0; channel < types.size(); channel++) {
+                types.get(channel).appendTo(stream.page.getBlock(channel), stream.position, pageBuilder.getBlockBuilder(channel));
+            }
+            pageBuilder.declarePosition();
+
+            stream.position++;
+            if (stream.position < stream.page.getPositionCount()) {
+                heap.add(stream);
+            }
+            else {
+                pending.add(stream);
+            }
+        }
+
+        if (pageBuilder.isEmpty()) {
+            return null;
+        }
+
+        Page page = pageBuilder.build();
+        pageBuilder.reset();
+        return page;
+    }
+
+    /**
+     * Moves the pending streams which have data available into the heap and drops the
+     * exhausted ones.
+     *
+     * @return true if every remaining stream takes part in the merge
+     */
+    private boolean advancePendingStreams()
+    {
+        Iterator<SortedStream> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            SortedStream stream = iterator.next();
+            SerializedPage serializedPage = stream.exchangeClient.pollPage();
+            while (serializedPage != null && serializedPage.getPositionCount() == 0) {
+                serializedPage = stream.exchangeClient.pollPage();
+            }
+
+            if (serializedPage != null) {
+                operatorContext.recordGeneratedInput(serializedPage.getSizeInBytes(), serializedPage.getPositionCount());
+                stream.page = serde.deserialize(serializedPage);
+                stream.position = 0;
+                heap.add(stream);
+                iterator.remove();
+            }
+            else if (stream.exchangeClient.isClosed()) {
+                stream.page = null;
+                iterator.remove();
+            }
+            else {
+                blocked = stream.exchangeClient.isBlocked();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        heap.clear();
+        pending.clear();
+        pageBuilder.reset();
+        for (ExchangeClient exchangeClient : exchangeClients) {
+            exchangeClient.close();
+        }
+    }
+
+    private static class SortedStream
+    {
+        private final ExchangeClient exchangeClient;
+        private Page page;
+        private int position;
+
+        public SortedStream(ExchangeClient exchangeClient)
+        {
+            this.exchangeClient = requireNonNull(exchangeClient, "exchangeClient is null");
+        }
+    }
+}
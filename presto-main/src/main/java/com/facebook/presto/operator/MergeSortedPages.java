@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.memory.AggregatedMemoryContext;
+import com.facebook.presto.memory.LocalMemoryContext;
+import com.facebook.presto.operator.MergeHashSort.PagePosition;
+import com.facebook.presto.operator.MergeHashSort.SingleChannelPagePositions;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Performs a k-way merge of page streams which are already sorted
+ * according to the provided {@link PageWithPositionComparator}.
+ * <p>
+ * Only a single page per stream is retained at a time, so the memory
+ * needed by the merge is proportional to the number of streams.
+ */
+public final class MergeSortedPages
+{
+    private MergeSortedPages() {}
+
+    public static Iterator<Page> mergeSortedPages(
+            List<Iterator<Page>> sortedStreams,
+            PageWithPositionComparator comparator,
+            List<Type> outputTypes,
+            int[] outputChannels,
+            AggregatedMemoryContext memoryContext)
+    {
+        requireNonNull(sortedStreams, "sortedStreams is null");
+        requireNonNull(comparator, "comparator is null");
+        requireNonNull(outputTypes, "outputTypes is null");
+        requireNonNull(outputChannels, "outputChannels is null");
+        requireNonNull(memoryContext, "memoryContext is null");
+        checkArgument(outputTypes.size() == outputChannels.length, "outputTypes and outputChannels do not match");
+
+        List<Iterator<PagePosition>> streamPositions = sortedStreams.stream()
+                .map(stream -> Iterators.filter(stream, page -> page.getPositionCount() > 0))
+                .map(stream -> new SingleChannelPagePositions(stream, memoryContext.newLocalMemoryContext()))
+                .collect(toList());
+
+        Iterator<PagePosition> mergedPositions = Iterators.mergeSorted(
+                streamPositions,
+                (PagePosition left, PagePosition right) -> comparator.compareTo(left.getPage(), left.getPosition(), right.getPage(), right.getPosition()));
+
+        return new PageBuildingIterator(mergedPositions, outputTypes, outputChannels, memoryContext.newLocalMemoryContext());
+    }
+
+    private static class PageBuildingIterator
+            extends AbstractIterator<Page>
+    {
+        private final Iterator<PagePosition> positions;
+        private final List<Type> outputTypes;
+        private final int[] outputChannels;
+        private final PageBuilder pageBuilder;
+        private final LocalMemoryContext memoryContext;
+
+        public PageBuildingIterator(Iterator<PagePosition> positions, List<Type> outputTypes, int[] outputChannels, LocalMemoryContext memoryContext)
+        {
+            this.positions = requireNonNull(positions, "positions is null");
+            this.outputTypes = ImmutableList.copyOf(requireNonNull(outputTypes, "outputTypes is null"));
+            this.outputChannels = requireNonNull(outputChannels, "outputChannels is null");
+            this.pageBuilder = new PageBuilder(this.outputTypes);
+            this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        }
+
+        @Override
+        protected Page computeNext()
+        {
+            pageBuilder.reset();
+            while (!pageBuilder.isFull() && positions.hasNext()) {
+                PagePosition position = positions.next();
+                Page page = position.getPage();
+                pageBuilder.declarePosition();
+                for (int i = 0; i < outputChannels.length; i++) {
+                    outputTypes.get(i).appendTo(page.getBlock(outputChannels[i]), position.getPosition(), pageBuilder.getBlockBuilder(i));
+                }
+            }
+            memoryContext.setBytes(pageBuilder.getRetainedSizeInBytes());
+
+            if (pageBuilder.isEmpty()) {
+                memoryContext.setBytes(0);
+                return endOfData();
+            }
+            return pageBuilder.build();
+        }
+    }
+}
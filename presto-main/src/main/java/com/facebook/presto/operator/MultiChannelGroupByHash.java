@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.array.ByteBigArray;
+import com.facebook.presto.array.IntBigArray;
 import com.facebook.presto.array.LongBigArray;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
@@ -65,6 +67,7 @@ public class MultiChannelGroupByHash
     private final HashGenerator hashGenerator;
     private final OptionalInt precomputedHashChannel;
     private final boolean processDictionary;
+    private final boolean offHeap;
     private PageBuilder currentPageBuilder;
 
     private long completedPagesMemorySize;
@@ -72,9 +75,9 @@ public class MultiChannelGroupByHash
     private int hashCapacity;
     private int maxFill;
     private int mask;
-    private long[] groupAddressByHash;
-    private int[] groupIdsByHash;
-    private byte[] rawHashByHashPosition;
+    private LongBigArray groupAddressByHash;
+    private IntBigArray groupIdsByHash;
+    private ByteBigArray rawHashByHashPosition;
 
     private final LongBigArray groupAddressByGroupId;
 
@@ -94,6 +97,7 @@ public class MultiChannelGroupByHash
             Optional<Integer> inputHashChannel,
             int expectedSize,
             boolean processDictionary,
+            boolean offHeap,
             JoinCompiler joinCompiler,
             UpdateMemory updateMemory)
     {
@@ -110,6 +114,7 @@ public class MultiChannelGroupByHash
 
         this.hashGenerator = inputHashChannel.isPresent() ? new PrecomputedHashGenerator(inputHashChannel.get()) : new InterpretedHashGenerator(this.hashTypes, hashChannels);
         this.processDictionary = processDictionary;
+        this.offHeap = offHeap;
 
         // For each hashed channel, create an appendable list to hold the blocks (builders).  As we
         // add new values we append them to the existing block builder until it fills up and then
@@ -138,14 +143,16 @@ public class MultiChannelGroupByHash
 
         maxFill = calculateMaxFill(hashCapacity);
         mask = hashCapacity - 1;
-        groupAddressByHash = new long[hashCapacity];
-        Arrays.fill(groupAddressByHash, -1);
+        groupAddressByHash = new LongBigArray(-1, offHeap);
+        groupAddressByHash.ensureCapacity(hashCapacity);
 
-        rawHashByHashPosition = new byte[hashCapacity];
+        rawHashByHashPosition = new ByteBigArray((byte) 0, offHeap);
+        rawHashByHashPosition.ensureCapacity(hashCapacity);
 
-        groupIdsByHash = new int[hashCapacity];
+        groupIdsByHash = new IntBigArray(0, offHeap);
+        groupIdsByHash.ensureCapacity(hashCapacity);
 
-        groupAddressByGroupId = new LongBigArray();
+        groupAddressByGroupId = new LongBigArray(0, offHeap);
         groupAddressByGroupId.ensureCapacity(maxFill);
 
         // This interface is used for actively reserving memory (push model) for rehash.
@@ -169,10 +176,10 @@ public class MultiChannelGroupByHash
                 (sizeOf(channelBuilders.get(0).elements()) * channelBuilders.size()) +
                 completedPagesMemorySize +
                 currentPageBuilder.getRetainedSizeInBytes() +
-                sizeOf(groupAddressByHash) +
-                sizeOf(groupIdsByHash) +
+                groupAddressByHash.sizeOf() +
+                groupIdsByHash.sizeOf() +
                 groupAddressByGroupId.sizeOf() +
-                sizeOf(rawHashByHashPosition) +
+                rawHashByHashPosition.sizeOf() +
                 preallocatedMemoryInBytes;
     }
 
@@ -230,8 +237,8 @@ public class MultiChannelGroupByHash
         int hashPosition = (int) getHashPosition(rawHash, mask);
 
         // look for a slot containing this key
-        while (groupAddressByHash[hashPosition] != -1) {
-            if (positionEqualsCurrentRow(groupAddressByHash[hashPosition], hashPosition, position, page, (byte) rawHash, hashChannels)) {
+        while (groupAddressByHash.get(hashPosition) != -1) {
+            if (positionEqualsCurrentRow(groupAddressByHash.get(hashPosition), hashPosition, position, page, (byte) rawHash, hashChannels)) {
                 // found an existing slot for this key
                 return true;
             }
@@ -249,6 +256,15 @@ public class MultiChannelGroupByHash
         return hashCapacity;
     }
 
+    @Override
+    public void close()
+    {
+        groupAddressByHash.close();
+        groupIdsByHash.close();
+        rawHashByHashPosition.close();
+        groupAddressByGroupId.close();
+    }
+
     private int putIfAbsent(int position, Page page)
     {
         long rawHash = hashGenerator.hashPosition(position, page);
@@ -261,10 +277,10 @@ public class MultiChannelGroupByHash
 
         // look for an empty slot or a slot containing this key
         int groupId = -1;
-        while (groupAddressByHash[hashPosition] != -1) {
-            if (positionEqualsCurrentRow(groupAddressByHash[hashPosition], hashPosition, position, page, (byte) rawHash, channels)) {
+        while (groupAddressByHash.get(hashPosition) != -1) {
+            if (positionEqualsCurrentRow(groupAddressByHash.get(hashPosition), hashPosition, position, page, (byte) rawHash, channels)) {
                 // found an existing slot for this key
-                groupId = groupIdsByHash[hashPosition];
+                groupId = groupIdsByHash.get(hashPosition);
 
                 break;
             }
@@ -299,9 +315,9 @@ public class MultiChannelGroupByHash
         // record group id in hash
         int groupId = nextGroupId++;
 
-        groupAddressByHash[hashPosition] = address;
-        rawHashByHashPosition[hashPosition] = (byte) rawHash;
-        groupIdsByHash[hashPosition] = groupId;
+        groupAddressByHash.set(hashPosition, address);
+        rawHashByHashPosition.set(hashPosition, (byte) rawHash);
+        groupIdsByHash.set(hashPosition, groupId);
         groupAddressByGroupId.set(groupId, address);
 
         // create new page builder if this page is full
@@ -358,36 +374,42 @@ public class MultiChannelGroupByHash
         expectedHashCollisions += estimateNumberOfHashCollisions(getGroupCount(), hashCapacity);
 
         int newMask = newCapacity - 1;
-        long[] newKey = new long[newCapacity];
-        byte[] rawHashes = new byte[newCapacity];
-        Arrays.fill(newKey, -1);
-        int[] newValue = new int[newCapacity];
+        LongBigArray newKey = new LongBigArray(-1, offHeap);
+        newKey.ensureCapacity(newCapacity);
+        ByteBigArray rawHashes = new ByteBigArray((byte) 0, offHeap);
+        rawHashes.ensureCapacity(newCapacity);
+        IntBigArray newValue = new IntBigArray(0, offHeap);
+        newValue.ensureCapacity(newCapacity);
 
         int oldIndex = 0;
         for (int groupId = 0; groupId < nextGroupId; groupId++) {
             // seek to the next used slot
-            while (groupAddressByHash[oldIndex] == -1) {
+            while (groupAddressByHash.get(oldIndex) == -1) {
                 oldIndex++;
             }
 
             // get the address for this slot
-            long address = groupAddressByHash[oldIndex];
+            long address = groupAddressByHash.get(oldIndex);
 
             long rawHash = hashPosition(address);
             // find an empty slot for the address
             int pos = (int) getHashPosition(rawHash, newMask);
-            while (newKey[pos] != -1) {
+            while (newKey.get(pos) != -1) {
                 pos = (pos + 1) & newMask;
                 hashCollisions++;
             }
 
             // record the mapping
-            newKey[pos] = address;
-            rawHashes[pos] = (byte) rawHash;
-            newValue[pos] = groupIdsByHash[oldIndex];
+            newKey.set(pos, address);
+            rawHashes.set(pos, (byte) rawHash);
+            newValue.set(pos, groupIdsByHash.get(oldIndex));
             oldIndex++;
         }
 
+        groupAddressByHash.close();
+        rawHashByHashPosition.close();
+        groupIdsByHash.close();
+
         this.mask = newMask;
         this.hashCapacity = newCapacity;
         this.maxFill = calculateMaxFill(newCapacity);
@@ -415,7 +437,7 @@ public class MultiChannelGroupByHash
 
     private boolean positionEqualsCurrentRow(long address, int hashPosition, int position, Page page, byte rawHash, int[] hashChannels)
     {
-        if (rawHashByHashPosition[hashPosition] != rawHash) {
+        if (rawHashByHashPosition.get(hashPosition) != rawHash) {
             return false;
         }
         return hashStrategy.positionEqualsRow(decodeSliceIndex(address), decodePosition(address), position, page, hashChannels);
@@ -0,0 +1,369 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.buffer.BufferRequest;
+import com.facebook.presto.execution.buffer.BufferResult;
+import com.facebook.presto.execution.buffer.MultiplexedBufferResult;
+import com.facebook.presto.operator.HttpPageBufferClient.PagesResponse;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.MediaType;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpStatus;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.SliceInput;
+import io.airlift.units.DataSize;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES_TYPE;
+import static com.facebook.presto.execution.buffer.MultiplexedBufferSerde.readBufferResults;
+import static com.facebook.presto.execution.buffer.MultiplexedBufferSerde.writeBufferRequests;
+import static com.facebook.presto.operator.HttpPageBufferClient.PagesResponse.createPagesResponse;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
+import static io.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fetches pages of many output buffers with a single request per remote node.
+ * Requests for buffers on the same node which are issued while a flush is pending
+ * are combined into one request, and the response bytes the exchange is willing
+ * to accept are divided between the buffers of the request, which bounds the
+ * size of a response the same way a single buffer request is bounded. Requests
+ * use the keep-alive connections of the exchange http client, so the buffers of
+ * a pair of nodes share connections instead of each polling on its own.
+ */
+@ThreadSafe
+public class MultiplexedPageTransport
+{
+    private static final DataSize MIN_BUFFER_RESPONSE_SIZE = new DataSize(1, MEGABYTE);
+
+    private final HttpClient httpClient;
+    private final DataSize maxResponseSize;
+    private final int maxBuffersPerRequest;
+    private final Executor executor;
+
+    private final ConcurrentMap<URI, NodeChannel> channels = new ConcurrentHashMap<>();
+
+    public MultiplexedPageTransport(HttpClient httpClient, DataSize maxResponseSize, Executor executor)
+    {
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        this.maxResponseSize = requireNonNull(maxResponseSize, "maxResponseSize is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        checkArgument(maxResponseSize.toBytes() > 0, "maxResponseSize must be at least 1 byte: %s", maxResponseSize);
+        this.maxBuffersPerRequest = (int) max(1, min(Integer.MAX_VALUE, maxResponseSize.toBytes() / MIN_BUFFER_RESPONSE_SIZE.toBytes()));
+    }
+
+    public static boolean isSupported(URI location)
+    {
+        return BufferLocation.parse(location).isPresent();
+    }
+
+    public ListenableFuture<PagesResponse> getPages(URI location, long token)
+    {
+        BufferLocation bufferLocation = BufferLocation.parse(location)
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported buffer location: " + location));
+        NodeChannel channel = channels.computeIfAbsent(bufferLocation.getEndpoint(), NodeChannel::new);
+        return channel.getPages(location, bufferLocation.getTaskId(), bufferLocation.getBufferId(), token);
+    }
+
+    private class NodeChannel
+    {
+        private final URI endpoint;
+
+        @GuardedBy("this")
+        private List<PendingRequest> pendingRequests = new ArrayList<>();
+        @GuardedBy("this")
+        private boolean flushScheduled;
+
+        public NodeChannel(URI endpoint)
+        {
+            this.endpoint = requireNonNull(endpoint, "endpoint is null");
+        }
+
+        public ListenableFuture<PagesResponse> getPages(URI location, TaskId taskId, OutputBufferId bufferId, long token)
+        {
+            PendingRequest request = new PendingRequest(location, taskId, bufferId, token);
+            boolean scheduleFlush;
+            synchronized (this) {
+                pendingRequests.add(request);
+                scheduleFlush = !flushScheduled;
+                flushScheduled = true;
+            }
+            if (scheduleFlush) {
+                executor.execute(this::flush);
+            }
+            return request.getFuture();
+        }
+
+        private void flush()
+        {
+            List<PendingRequest> requests;
+            synchronized (this) {
+                requests = pendingRequests;
+                pendingRequests = new ArrayList<>();
+                flushScheduled = false;
+            }
+
+            // requests cancelled by a closed client are not sent
+            requests.removeIf(request -> request.getFuture().isDone());
+            for (int start = 0; start < requests.size(); start += maxBuffersPerRequest) {
+                send(requests.subList(start, min(start + maxBuffersPerRequest, requests.size())));
+            }
+        }
+
+        private void send(List<PendingRequest> requests)
+        {
+            DataSize maxBufferSize = new DataSize(max(1, maxResponseSize.toBytes() / requests.size()), BYTE);
+            List<BufferRequest> bufferRequests = requests.stream()
+                    .map(request -> new BufferRequest(request.getTaskId(), request.getBufferId(), request.getToken(), maxBufferSize))
+                    .collect(toImmutableList());
+
+            DynamicSliceOutput body = new DynamicSliceOutput(64 * requests.size());
+            writeBufferRequests(body, bufferRequests);
+
+            ListenableFuture<List<MultiplexedBufferResult>> resultsFuture = httpClient.executeAsync(
+                    preparePost()
+                            .setUri(endpoint)
+                            .setHeader(CONTENT_TYPE, PRESTO_PAGES)
+                            .setBodyGenerator(createStaticBodyGenerator(body.slice().getBytes()))
+                            .build(),
+                    new MultiplexedResponseHandler(requests.size()));
+
+            Futures.addCallback(resultsFuture, new FutureCallback<List<MultiplexedBufferResult>>()
+            {
+                @Override
+                public void onSuccess(List<MultiplexedBufferResult> results)
+                {
+                    for (int i = 0; i < requests.size(); i++) {
+                        PendingRequest request = requests.get(i);
+                        MultiplexedBufferResult multiplexedResult = results.get(i);
+                        if (multiplexedResult.isFailed()) {
+                            // only the client of the failed buffer sees the failure, and retries it like a failed request
+                            request.getFuture().setException(new PageTransportErrorException(format("Error fetching %s: %s",
+                                    request.getLocation().toASCIIString(),
+                                    multiplexedResult.getFailure())));
+                            continue;
+                        }
+                        BufferResult result = multiplexedResult.getResult();
+                        request.getFuture().set(createPagesResponse(
+                                result.getTaskInstanceId(),
+                                result.getToken(),
+                                result.getNextToken(),
+                                result.getSerializedPages(),
+                                result.isBufferComplete()));
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t)
+                {
+                    for (PendingRequest request : requests) {
+                        request.getFuture().setException(t);
+                    }
+                }
+            }, directExecutor());
+        }
+    }
+
+    private static class PendingRequest
+    {
+        private final URI location;
+        private final TaskId taskId;
+        private final OutputBufferId bufferId;
+        private final long token;
+        private final SettableFuture<PagesResponse> future = SettableFuture.create();
+
+        public PendingRequest(URI location, TaskId taskId, OutputBufferId bufferId, long token)
+        {
+            this.location = requireNonNull(location, "location is null");
+            this.taskId = requireNonNull(taskId, "taskId is null");
+            this.bufferId = requireNonNull(bufferId, "bufferId is null");
+            this.token = token;
+        }
+
+        public URI getLocation()
+        {
+            return location;
+        }
+
+        public TaskId getTaskId()
+        {
+            return taskId;
+        }
+
+        public OutputBufferId getBufferId()
+        {
+            return bufferId;
+        }
+
+        public long getToken()
+        {
+            return token;
+        }
+
+        public SettableFuture<PagesResponse> getFuture()
+        {
+            return future;
+        }
+    }
+
+    @VisibleForTesting
+    static class BufferLocation
+    {
+        private final URI endpoint;
+        private final TaskId taskId;
+        private final OutputBufferId bufferId;
+
+        private BufferLocation(URI endpoint, TaskId taskId, OutputBufferId bufferId)
+        {
+            this.endpoint = endpoint;
+            this.taskId = taskId;
+            this.bufferId = bufferId;
+        }
+
+        public static Optional<BufferLocation> parse(URI location)
+        {
+            // locations have the form .../task/{taskId}/results/{bufferId}
+            String path = location.getPath();
+            if (path == null || location.getQuery() != null) {
+                return Optional.empty();
+            }
+            String[] segments = path.split("/");
+            int length = segments.length;
+            if (length < 4 || !segments[length - 4].equals("task") || !segments[length - 2].equals("results")) {
+                return Optional.empty();
+            }
+
+            TaskId taskId;
+            OutputBufferId bufferId;
+            try {
+                // the parts of a task id are only validated when they are read
+                TaskId parsedTaskId = TaskId.valueOf(segments[length - 3]);
+                taskId = new TaskId(parsedTaskId.getStageId(), parsedTaskId.getId());
+                bufferId = OutputBufferId.fromString(segments[length - 1]);
+            }
+            catch (RuntimeException e) {
+                return Optional.empty();
+            }
+
+            String taskPath = String.join("/", ImmutableList.copyOf(segments).subList(0, length - 3));
+            URI endpoint = uriBuilderFrom(location).replacePath(taskPath).appendPath("results").build();
+            return Optional.of(new BufferLocation(endpoint, taskId, bufferId));
+        }
+
+        public URI getEndpoint()
+        {
+            return endpoint;
+        }
+
+        public TaskId getTaskId()
+        {
+            return taskId;
+        }
+
+        public OutputBufferId getBufferId()
+        {
+            return bufferId;
+        }
+    }
+
+    private static class MultiplexedResponseHandler
+            implements ResponseHandler<List<MultiplexedBufferResult>, RuntimeException>
+    {
+        private final int expectedResults;
+
+        public MultiplexedResponseHandler(int expectedResults)
+        {
+            this.expectedResults = expectedResults;
+        }
+
+        @Override
+        public List<MultiplexedBufferResult> handleException(Request request, Exception exception)
+        {
+            throw propagate(request, exception);
+        }
+
+        @Override
+        public List<MultiplexedBufferResult> handle(Request request, Response response)
+        {
+            if (response.getStatusCode() != HttpStatus.OK.code()) {
+                throw new PageTransportErrorException(format("Error fetching %s: Expected response code to be 200, but was %s %s",
+                        request.getUri().toASCIIString(),
+                        response.getStatusCode(),
+                        response.getStatusMessage()));
+            }
+
+            String contentType = response.getHeader(CONTENT_TYPE);
+            if (contentType == null || !mediaTypeMatches(contentType, PRESTO_PAGES_TYPE)) {
+                throw new PageTransportErrorException(format("Error fetching %s: Expected %s response from server but got %s", request.getUri().toASCIIString(), PRESTO_PAGES_TYPE, contentType));
+            }
+
+            List<MultiplexedBufferResult> results;
+            try (SliceInput input = new InputStreamSliceInput(response.getInputStream())) {
+                results = readBufferResults(input);
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (results.size() != expectedResults) {
+                throw new PageTransportErrorException(format("Error fetching %s: Expected %s buffer results but got %s", request.getUri().toASCIIString(), expectedResults, results.size()));
+            }
+            return results;
+        }
+
+        private static boolean mediaTypeMatches(String value, MediaType range)
+        {
+            try {
+                return MediaType.parse(value).is(range);
+            }
+            catch (IllegalArgumentException | IllegalStateException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -13,17 +13,29 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.memory.AggregatedMemoryContext;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
+import static com.facebook.presto.operator.MergeSortedPages.mergeSortedPages;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.concurrent.MoreFutures.checkSuccess;
 import static java.util.Objects.requireNonNull;
 
 public class OrderByOperator
@@ -42,6 +54,7 @@ public class OrderByOperator
         private final List<Type> types;
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
+        private final Optional<SpillerFactory> spillerFactory;
 
         public OrderByOperatorFactory(
                 int operatorId,
@@ -52,6 +65,28 @@ public class OrderByOperator
                 List<Integer> sortChannels,
                 List<SortOrder> sortOrder,
                 PagesIndex.Factory pagesIndexFactory)
+        {
+            this(operatorId,
+                    planNodeId,
+                    sourceTypes,
+                    outputChannels,
+                    expectedPositions,
+                    sortChannels,
+                    sortOrder,
+                    pagesIndexFactory,
+                    Optional.empty());
+        }
+
+        public OrderByOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                int expectedPositions,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                PagesIndex.Factory pagesIndexFactory,
+                Optional<SpillerFactory> spillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -63,6 +98,7 @@ public class OrderByOperator
 
             this.types = toTypes(sourceTypes, outputChannels);
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+            this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
         }
 
         @Override
@@ -84,7 +120,8 @@ public class OrderByOperator
                     expectedPositions,
                     sortChannels,
                     sortOrder,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillerFactory);
         }
 
         @Override
@@ -96,7 +133,7 @@ public class OrderByOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new OrderByOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, pagesIndexFactory);
+            return new OrderByOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, pagesIndexFactory, spillerFactory);
         }
     }
 
@@ -108,6 +145,7 @@ public class OrderByOperator
     }
 
     private final OperatorContext operatorContext;
+    private final List<Type> sourceTypes;
     private final List<Integer> sortChannels;
     private final List<SortOrder> sortOrder;
     private final int[] outputChannels;
@@ -118,6 +156,13 @@ public class OrderByOperator
     private final PageBuilder pageBuilder;
     private int currentPosition;
 
+    private final Optional<SpillerFactory> spillerFactory;
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private Optional<AggregatedMemoryContext> mergeMemoryContext = Optional.empty();
+    private Iterator<Page> sortedPages;
+
     private State state = State.NEEDS_INPUT;
 
     public OrderByOperator(
@@ -127,11 +172,13 @@ public class OrderByOperator
             int expectedPositions,
             List<Integer> sortChannels,
             List<SortOrder> sortOrder,
-            PagesIndex.Factory pagesIndexFactory)
+            PagesIndex.Factory pagesIndexFactory,
+            Optional<SpillerFactory> spillerFactory)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.sourceTypes = ImmutableList.copyOf(requireNonNull(sourceTypes, "sourceTypes is null"));
         this.outputChannels = Ints.toArray(requireNonNull(outputChannels, "outputChannels is null"));
         this.types = toTypes(sourceTypes, outputChannels);
         this.sortChannels = ImmutableList.copyOf(requireNonNull(sortChannels, "sortChannels is null"));
@@ -140,6 +187,8 @@ public class OrderByOperator
         this.pageIndex = pagesIndexFactory.newPagesIndex(sourceTypes, expectedPositions);
 
         this.pageBuilder = new PageBuilder(this.types);
+
+        this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
     }
 
     @Override
@@ -162,6 +211,11 @@ public class OrderByOperator
 
             // sort the index
             pageIndex.sort(sortChannels, sortOrder);
+
+            if (spiller.isPresent() && pageIndex.getPositionCount() > 0) {
+                // spill the last sorted run, so all runs can be merged from disk with bounded memory
+                spillInProgress = spiller.get().spill(pageIndex.getSortedPages());
+            }
         }
     }
 
@@ -171,6 +225,12 @@ public class OrderByOperator
         return state == State.FINISHED;
     }
 
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return spillInProgress;
+    }
+
     @Override
     public boolean needsInput()
     {
@@ -182,14 +242,57 @@ public class OrderByOperator
     {
         checkState(state == State.NEEDS_INPUT, "Operator is already finishing");
         requireNonNull(page, "page is null");
+        checkSuccess(spillInProgress, "spilling failed");
 
         pageIndex.addPage(page);
+        updateMemoryUsage();
+    }
 
-        if (!operatorContext.trySetMemoryReservation(pageIndex.getEstimatedSize().toBytes())) {
-            pageIndex.compact();
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillerFactory.isPresent(), "Spill not enabled, no revokable memory should be reserved");
+
+        if (state == State.NEEDS_INPUT && pageIndex.getPositionCount() > 0) {
+            // write the buffered input as a sorted run
+            pageIndex.sort(sortChannels, sortOrder);
+            return spillSortedPages(pageIndex.getSortedPages());
         }
 
-        operatorContext.setMemoryReservation(pageIndex.getEstimatedSize().toBytes());
+        if (state == State.HAS_OUTPUT && !spiller.isPresent() && currentPosition < pageIndex.getPositionCount()) {
+            // the index is already sorted, so the part that has not been output yet is a sorted run as well
+            return spillSortedPages(pageIndex.getSortedPages(currentPosition));
+        }
+
+        // nothing to revoke, probably a stale revoking request
+        finishMemoryRevoke = Optional.of(() -> {});
+        return immediateFuture(null);
+    }
+
+    private ListenableFuture<?> spillSortedPages(Iterator<Page> sortedRun)
+    {
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.getSystemMemoryContext().newAggregatedMemoryContext()));
+        }
+
+        finishMemoryRevoke = Optional.of(() -> {
+            pageIndex.clear();
+            currentPosition = 0;
+            updateMemoryUsage();
+        });
+        spillInProgress = spiller.get().spill(sortedRun);
+        return spillInProgress;
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
     }
 
     @Override
@@ -199,6 +302,10 @@ public class OrderByOperator
             return null;
         }
 
+        if (spiller.isPresent()) {
+            return getSpilledOutput();
+        }
+
         if (currentPosition >= pageIndex.getPositionCount()) {
             state = State.FINISHED;
             return null;
@@ -218,6 +325,69 @@ public class OrderByOperator
         return page;
     }
 
+    private Page getSpilledOutput()
+    {
+        if (!spillInProgress.isDone()) {
+            return null;
+        }
+        checkSuccess(spillInProgress, "spilling failed");
+
+        if (sortedPages == null) {
+            // all input is on disk now, so the index can be released before merging the sorted runs
+            pageIndex.clear();
+            updateMemoryUsage();
+
+            mergeMemoryContext = Optional.of(operatorContext.getSystemMemoryContext().newAggregatedMemoryContext());
+            sortedPages = mergeSortedPages(
+                    spiller.get().getSpills(),
+                    new SimplePageWithPositionComparator(getSortTypes(), sortChannels, sortOrder),
+                    types,
+                    outputChannels,
+                    mergeMemoryContext.get());
+        }
+
+        if (!sortedPages.hasNext()) {
+            state = State.FINISHED;
+            return null;
+        }
+        return sortedPages.next();
+    }
+
+    @Override
+    public void close()
+    {
+        pageIndex.clear();
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+            mergeMemoryContext.ifPresent(memoryContext -> closer.register(memoryContext::close));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void updateMemoryUsage()
+    {
+        long indexSize = pageIndex.getEstimatedSize().toBytes();
+        if (spillerFactory.isPresent()) {
+            operatorContext.setRevocableMemoryReservation(indexSize);
+            return;
+        }
+
+        if (!operatorContext.trySetMemoryReservation(indexSize)) {
+            pageIndex.compact();
+        }
+
+        operatorContext.setMemoryReservation(pageIndex.getEstimatedSize().toBytes());
+    }
+
+    private List<Type> getSortTypes()
+    {
+        return sortChannels.stream()
+                .map(sourceTypes::get)
+                .collect(toImmutableList());
+    }
+
     private static List<Type> toTypes(List<? extends Type> sourceTypes, List<Integer> outputChannels)
     {
         ImmutableList.Builder<Type> types = ImmutableList.builder();
@@ -15,6 +15,7 @@ package com.facebook.presto.operator;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.airlift.units.Duration;
 import org.joda.time.DateTime;
 
 import java.net.URI;
@@ -31,6 +32,9 @@ public class PageBufferClientStatus
     private final DateTime lastUpdate;
     private final long rowsReceived;
     private final int pagesReceived;
+    private final long bytesReceived;
+    private final Duration requestTime;
+    private final long bytesPerSecond;
     // use optional to keep the output size down, since this renders for every destination
     private final OptionalLong rowsRejected;
     private final OptionalInt pagesRejected;
@@ -45,6 +49,9 @@ public class PageBufferClientStatus
             @JsonProperty("lastUpdate") DateTime lastUpdate,
             @JsonProperty("rowsReceived") long rowsReceived,
             @JsonProperty("pagesReceived") int pagesReceived,
+            @JsonProperty("bytesReceived") long bytesReceived,
+            @JsonProperty("requestTime") Duration requestTime,
+            @JsonProperty("bytesPerSecond") long bytesPerSecond,
             @JsonProperty("rowsRejected") OptionalLong rowsRejected,
             @JsonProperty("pagesRejected") OptionalInt pagesRejected,
             @JsonProperty("requestsScheduled") int requestsScheduled,
@@ -57,6 +64,9 @@ public class PageBufferClientStatus
         this.lastUpdate = lastUpdate;
         this.rowsReceived = rowsReceived;
         this.pagesReceived = pagesReceived;
+        this.bytesReceived = bytesReceived;
+        this.requestTime = requireNonNull(requestTime, "requestTime is null");
+        this.bytesPerSecond = bytesPerSecond;
         this.rowsRejected = requireNonNull(rowsRejected, "rowsRejected is null");
         this.pagesRejected = requireNonNull(pagesRejected, "pagesRejected is null");
         this.requestsScheduled = requestsScheduled;
@@ -95,6 +105,27 @@ public class PageBufferClientStatus
         return pagesReceived;
     }
 
+    @JsonProperty
+    public long getBytesReceived()
+    {
+        return bytesReceived;
+    }
+
+    /**
+     * Time spent waiting for the responses of the requests whose pages were accepted.
+     */
+    @JsonProperty
+    public Duration getRequestTime()
+    {
+        return requestTime;
+    }
+
+    @JsonProperty
+    public long getBytesPerSecond()
+    {
+        return bytesPerSecond;
+    }
+
     @JsonProperty
     public OptionalLong getRowsRejected()
     {
@@ -140,6 +171,8 @@ public class PageBufferClientStatus
                 .add("lastUpdate", lastUpdate)
                 .add("rowsReceived", rowsReceived)
                 .add("pagesReceived", pagesReceived)
+                .add("bytesReceived", bytesReceived)
+                .add("bytesPerSecond", bytesPerSecond)
                 .add("httpRequestState", httpRequestState)
                 .toString();
     }
@@ -15,15 +15,18 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
 import io.airlift.units.DataSize;
 import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.openjdk.jol.info.ClassLayout;
 
 import java.util.Arrays;
+import java.util.Optional;
 
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.util.HashCollisionsEstimator.estimateNumberOfHashCollisions;
 import static io.airlift.slice.SizeOf.sizeOf;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
@@ -47,6 +50,11 @@ public final class PagesHash
     // to accessing values in blocks. We use bytes to reduce memory foot print
     // and there is no performance gain from storing full hashes
     private final byte[] positionToHashes;
+
+    // Native array of key values, only present if the key is a single BIGINT column.
+    // Lookups compare keys directly against this array instead of calling the hash strategy.
+    private final long[] bigintKeys;
+
     private final long hashCollisions;
     private final double expectedHashCollisions;
 
@@ -67,6 +75,7 @@ public final class PagesHash
         Arrays.fill(key, -1);
 
         positionToHashes = new byte[addresses.size()];
+        bigintKeys = pagesHashStrategy.isSingleBigintKey() ? new long[addresses.size()] : null;
 
         // We will process addresses in batches, to save memory on array of hashes.
         int positionsInStep = Math.min(addresses.size() + 1, (int) CACHE_SIZE.toBytes() / Integer.SIZE);
@@ -94,6 +103,9 @@ public final class PagesHash
                 if (isPositionNull(realPosition)) {
                     continue;
                 }
+                if (bigintKeys != null) {
+                    bigintKeys[realPosition] = readBigintKey(realPosition);
+                }
 
                 long hash = positionToFullHashes[position];
                 int pos = getHashPosition(hash, mask);
@@ -119,7 +131,7 @@ public final class PagesHash
         }
 
         size = sizeOf(addresses.elements()) + pagesHashStrategy.getSizeInBytes() +
-                sizeOf(key) + sizeOf(positionToHashes);
+                sizeOf(key) + sizeOf(positionToHashes) + (bigintKeys == null ? 0 : sizeOf(bigintKeys));
         hashCollisions = hashCollisionsLocal;
         expectedHashCollisions = estimateNumberOfHashCollisions(addresses.size(), hashSize);
     }
@@ -168,6 +180,73 @@ public final class PagesHash
         return -1;
     }
 
+    /**
+     * Looks up the address index of each of the first {@code positionCount} entries of {@code positions},
+     * and stores it at the same index of {@code addressIndexes}. The selected positions must not contain
+     * nulls. The lookup is split into separate passes, so the hash table loads of different positions do
+     * not depend on each other and the CPU can overlap their cache misses, instead of waiting for each
+     * miss in turn as {@link #getAddressIndex} does.
+     */
+    public void getAddressIndexes(int[] positions, int positionCount, Page hashChannelsPage, Optional<Block> rawHashBlock, int[] addressIndexes)
+    {
+        long[] rawHashes = new long[positionCount];
+        int[] hashPositions = new int[positionCount];
+
+        if (rawHashBlock.isPresent()) {
+            Block block = rawHashBlock.get();
+            for (int i = 0; i < positionCount; i++) {
+                rawHashes[i] = BIGINT.getLong(block, positions[i]);
+            }
+        }
+        else {
+            for (int i = 0; i < positionCount; i++) {
+                rawHashes[i] = pagesHashStrategy.hashRow(positions[i], hashChannelsPage);
+            }
+        }
+
+        for (int i = 0; i < positionCount; i++) {
+            hashPositions[i] = getHashPosition(rawHashes[i], mask);
+        }
+
+        for (int i = 0; i < positionCount; i++) {
+            addressIndexes[i] = key[hashPositions[i]];
+        }
+
+        if (bigintKeys != null) {
+            Block block = hashChannelsPage.getBlock(0);
+            for (int i = 0; i < positionCount; i++) {
+                int addressIndex = addressIndexes[i];
+                if (addressIndex == -1) {
+                    continue;
+                }
+                long value = BIGINT.getLong(block, positions[i]);
+                int pos = hashPositions[i];
+                while (addressIndex != -1 && bigintKeys[addressIndex] != value) {
+                    // increment position and mask to handler wrap around
+                    pos = (pos + 1) & mask;
+                    addressIndex = key[pos];
+                }
+                addressIndexes[i] = addressIndex;
+            }
+            return;
+        }
+
+        for (int i = 0; i < positionCount; i++) {
+            int addressIndex = addressIndexes[i];
+            if (addressIndex == -1) {
+                continue;
+            }
+            byte rawHash = (byte) rawHashes[i];
+            int pos = hashPositions[i];
+            while (addressIndex != -1 && !positionEqualsCurrentRowIgnoreNulls(addressIndex, rawHash, positions[i], hashChannelsPage)) {
+                // increment position and mask to handler wrap around
+                pos = (pos + 1) & mask;
+                addressIndex = key[pos];
+            }
+            addressIndexes[i] = addressIndex;
+        }
+    }
+
     public void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset)
     {
         long pageAddress = addresses.getLong(toIntExact(position));
@@ -195,12 +274,25 @@ public final class PagesHash
         return pagesHashStrategy.hashPosition(blockIndex, blockPosition);
     }
 
+    private long readBigintKey(int position)
+    {
+        long pageAddress = addresses.getLong(position);
+        int blockIndex = decodeSliceIndex(pageAddress);
+        int blockPosition = decodePosition(pageAddress);
+
+        return pagesHashStrategy.getBigintKey(blockIndex, blockPosition);
+    }
+
     private boolean positionEqualsCurrentRowIgnoreNulls(int leftPosition, byte rawHash, int rightPosition, Page rightPage)
     {
         if (positionToHashes[leftPosition] != rawHash) {
             return false;
         }
 
+        if (bigintKeys != null) {
+            return bigintKeys[leftPosition] == BIGINT.getLong(rightPage.getBlock(0), rightPosition);
+        }
+
         long pageAddress = addresses.getLong(leftPosition);
         int blockIndex = decodeSliceIndex(pageAddress);
         int blockPosition = decodePosition(pageAddress);
@@ -210,6 +302,10 @@ public final class PagesHash
 
     private boolean positionEqualsPositionIgnoreNulls(int leftPosition, int rightPosition)
     {
+        if (bigintKeys != null) {
+            return bigintKeys[leftPosition] == bigintKeys[rightPosition];
+        }
+
         long leftPageAddress = addresses.getLong(leftPosition);
         int leftBlockIndex = decodeSliceIndex(leftPageAddress);
         int leftBlockPosition = decodePosition(leftPageAddress);
@@ -93,6 +93,24 @@ public interface PagesHashStrategy
      */
     boolean isPositionNull(int blockIndex, int blockPosition);
 
+    /**
+     * Checks if the hashed columns consist of a single BIGINT column, in which case the keys
+     * can be compared using {@link #getBigintKey} instead of the generic comparison methods.
+     */
+    default boolean isSingleBigintKey()
+    {
+        return false;
+    }
+
+    /**
+     * Gets the value of the single BIGINT hashed column at the specified position. This method
+     * may only be called if {@link #isSingleBigintKey} returns true, and does not perform any null checks.
+     */
+    default long getBigintKey(int blockIndex, int blockPosition)
+    {
+        throw new UnsupportedOperationException("hashed columns are not a single BIGINT column");
+    }
+
     /**
      * Compares sort channel (if applicable) values at the specified positions.
      */
@@ -528,9 +528,14 @@ public class PagesIndex
 
     // TODO: This is similar to what OrderByOperator does, look into reusing this logic in OrderByOperator as well.
     public Iterator<Page> getSortedPages()
+    {
+        return getSortedPages(0);
+    }
+
+    public Iterator<Page> getSortedPages(int startPosition)
     {
         return new AbstractIterator<Page>() {
-            private int currentPosition = 0;
+            private int currentPosition = startPosition;
             private PageBuilder pageBuilder = new PageBuilder(types);
             private int[] outputChannels = new int[types.size()];
 
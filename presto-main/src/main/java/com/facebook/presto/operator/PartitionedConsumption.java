@@ -161,5 +161,23 @@ public final class PartitionedConsumption<T>
                 released.set(null);
             }
         }
+
+        /**
+         * Releases the partition, unless all other consumers have released it already. The last consumer
+         * keeps the partition loaded, so that it can still use it once no other consumer does, and calls
+         * {@link #release()} when done with it.
+         *
+         * @return whether the partition was released
+         */
+        public synchronized boolean releaseUnlessLast()
+        {
+            checkState(loaded.isDone());
+            checkState(pendingReleases > 0);
+            if (pendingReleases == 1) {
+                return false;
+            }
+            pendingReleases--;
+            return true;
+        }
     }
 }
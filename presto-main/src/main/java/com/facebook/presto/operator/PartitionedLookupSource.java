@@ -16,6 +16,7 @@ package com.facebook.presto.operator;
 import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.io.Closer;
 
@@ -32,6 +33,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.lang.Integer.numberOfTrailingZeros;
@@ -81,6 +83,7 @@ public class PartitionedLookupSource
     private final LocalPartitionGenerator partitionGenerator;
     private final int partitionMask;
     private final int shiftSize;
+    private final boolean batchLookupSupported;
     @Nullable
     private final OuterPositionTracker outerPositionTracker;
 
@@ -100,6 +103,7 @@ public class PartitionedLookupSource
 
         this.partitionMask = lookupSources.size() - 1;
         this.shiftSize = numberOfTrailingZeros(lookupSources.size()) + 1;
+        this.batchLookupSupported = lookupSources.stream().allMatch(LookupSource::isBatchLookupSupported);
         this.outerPositionTracker = outerPositionTracker.orElse(null);
     }
 
@@ -141,6 +145,50 @@ public class PartitionedLookupSource
         return encodePartitionedJoinPosition(partition, toIntExact(joinPosition));
     }
 
+    @Override
+    public boolean isBatchLookupSupported()
+    {
+        return batchLookupSupported;
+    }
+
+    @Override
+    public void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, Optional<Block> rawHashBlock, long[] joinPositions)
+    {
+        // group the positions by partition, so that every partition looks up all of its positions at once
+        int[] positionPartitions = new int[positionCount];
+        int[] partitionOffsets = new int[lookupSources.length + 1];
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            long rawHash = rawHashBlock.isPresent() ? BIGINT.getLong(rawHashBlock.get(), position) : partitionGenerator.getRawHash(hashChannelsPage, position);
+            int partition = partitionGenerator.getPartition(rawHash);
+            positionPartitions[i] = partition;
+            partitionOffsets[partition + 1]++;
+        }
+        for (int partition = 0; partition < lookupSources.length; partition++) {
+            partitionOffsets[partition + 1] += partitionOffsets[partition];
+        }
+
+        int[] partitionedPositions = new int[positionCount];
+        int[] nextOffsets = Arrays.copyOf(partitionOffsets, lookupSources.length);
+        for (int i = 0; i < positionCount; i++) {
+            partitionedPositions[nextOffsets[positionPartitions[i]]++] = positions[i];
+        }
+
+        for (int partition = 0; partition < lookupSources.length; partition++) {
+            int partitionPositionCount = partitionOffsets[partition + 1] - partitionOffsets[partition];
+            if (partitionPositionCount == 0) {
+                continue;
+            }
+            int[] partitionPositions = Arrays.copyOfRange(partitionedPositions, partitionOffsets[partition], partitionOffsets[partition + 1]);
+            lookupSources[partition].getJoinPositions(partitionPositions, partitionPositionCount, hashChannelsPage, allChannelsPage, rawHashBlock, joinPositions);
+            for (int position : partitionPositions) {
+                if (joinPositions[position] >= 0) {
+                    joinPositions[position] = encodePartitionedJoinPosition(partition, toIntExact(joinPositions[position]));
+                }
+            }
+        }
+    }
+
     @Override
     public long getNextJoinPosition(long currentJoinPosition, int probePosition, Page allProbeChannelsPage)
     {
@@ -40,6 +40,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.function.IntPredicate;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static com.facebook.presto.operator.OuterLookupSource.createOuterLookupSourceSupplier;
 import static com.facebook.presto.operator.PartitionedLookupSource.createPartitionedLookupSourceSupplier;
@@ -47,8 +48,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.allAsList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
+import static com.google.common.util.concurrent.Futures.transform;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 
@@ -94,7 +98,7 @@ public final class PartitionedLookupSourceFactory
     private OptionalInt partitionedConsumptionParticipants = OptionalInt.empty();
 
     @GuardedBy("lock")
-    private SettableFuture<PartitionedConsumption<Supplier<LookupSource>>> partitionedConsumption = SettableFuture.create();
+    private SettableFuture<PartitionedConsumption<UnspilledPartition>> partitionedConsumption = SettableFuture.create();
 
     /**
      * Cached LookupSource on behalf of LookupJoinOperator (represented by SpillAwareLookupSourceProvider). LookupSource instantiation has non-negligible cost.
@@ -280,7 +284,7 @@ public final class PartitionedLookupSourceFactory
     }
 
     @Override
-    public ListenableFuture<PartitionedConsumption<Supplier<LookupSource>>> finishProbeOperator(OptionalInt lookupJoinsCount)
+    public ListenableFuture<PartitionedConsumption<UnspilledPartition>> finishProbeOperator(OptionalInt lookupJoinsCount)
     {
         lock.writeLock().lock();
         try {
@@ -306,14 +310,12 @@ public final class PartitionedLookupSourceFactory
 
             finishedProbeOperators++;
             if (finishedProbeOperators == operatorsCount) {
-                // We can dispose partitions now since as right outer is not supported with spill
-                freePartitions();
+                if (!outer) {
+                    // In-memory partitions can be disposed now. For outer join they are needed until unmatched build rows are produced.
+                    freePartitions();
+                }
                 verify(!partitionedConsumption.isDone());
-                partitionedConsumption.set(new PartitionedConsumption<>(
-                        partitionedConsumptionParticipants.getAsInt(),
-                        spilledPartitions.keySet(),
-                        this::loadSpilledLookupSource,
-                        this::disposeSpilledLookupSource));
+                startPartitionedConsumption(partitionedConsumptionParticipants.getAsInt());
             }
 
             return partitionedConsumption;
@@ -323,27 +325,64 @@ public final class PartitionedLookupSourceFactory
         }
     }
 
-    private ListenableFuture<Supplier<LookupSource>> loadSpilledLookupSource(int partitionNumber)
+    @GuardedBy("lock")
+    private void startPartitionedConsumption(int participants)
     {
-        return getSpilledLookupSourceHandle(partitionNumber).getLookupSource();
+        List<Integer> partitionNumbers = spilledPartitions.keySet().stream()
+                .sorted()
+                .collect(toImmutableList());
+        List<SpilledLookupSourceHandle> handles = partitionNumbers.stream()
+                .map(spilledPartitions::get)
+                .collect(toImmutableList());
+
+        // Sub-partition counts are known once the partitions have been spilled completely
+        ListenableFuture<List<Integer>> subPartitionCounts = allAsList(handles.stream()
+                .map(SpilledLookupSourceHandle::getSubPartitionCount)
+                .collect(toImmutableList()));
+
+        partitionedConsumption.setFuture(transform(subPartitionCounts, counts -> {
+            ImmutableList.Builder<SpilledSubPartition> builder = ImmutableList.builder();
+            for (int i = 0; i < partitionNumbers.size(); i++) {
+                for (int subPartition = 0; subPartition < counts.get(i); subPartition++) {
+                    builder.add(new SpilledSubPartition(partitionNumbers.get(i), handles.get(i), subPartition, counts.get(i)));
+                }
+            }
+            List<SpilledSubPartition> subPartitions = builder.build();
+            return new PartitionedConsumption<>(
+                    participants,
+                    IntStream.range(0, subPartitions.size()).boxed().collect(toImmutableList()),
+                    i -> loadSpilledLookupSource(subPartitions.get(i)),
+                    i -> releaseSpilledLookupSource(subPartitions.get(i)));
+        }, directExecutor()));
     }
 
-    private void disposeSpilledLookupSource(int partitionNumber)
+    private ListenableFuture<UnspilledPartition> loadSpilledLookupSource(SpilledSubPartition subPartition)
     {
-        getSpilledLookupSourceHandle(partitionNumber).dispose();
+        return transform(
+                subPartition.getHandle().getLookupSource(subPartition.getSubPartition()),
+                lookupSource -> new UnspilledPartition(
+                        subPartition.getPartition(),
+                        subPartition.getSubPartition(),
+                        subPartition.getSubPartitionCount(),
+                        outer ? createOuterLookupSourceSupplier(lookupSource) : TrackingLookupSourceSupplier.nonTracking(lookupSource)),
+                directExecutor());
     }
 
-    private SpilledLookupSourceHandle getSpilledLookupSourceHandle(int partitionNumber)
+    private void releaseSpilledLookupSource(SpilledSubPartition subPartition)
     {
-        lock.readLock().lock();
-        try {
-            return requireNonNull(spilledPartitions.get(partitionNumber), "spilledPartitions.get(partitionNumber) is null");
+        if (subPartition.getSubPartition() == subPartition.getSubPartitionCount() - 1) {
+            subPartition.getHandle().dispose();
         }
-        finally {
-            lock.readLock().unlock();
+        else {
+            subPartition.getHandle().release();
         }
     }
 
+    public boolean isOuter()
+    {
+        return outer;
+    }
+
     @Override
     public OuterPositionIterator getOuterPositionIterator()
     {
@@ -554,6 +593,43 @@ public final class PartitionedLookupSourceFactory
         }
     }
 
+    @Immutable
+    private static final class SpilledSubPartition
+    {
+        private final int partition;
+        private final SpilledLookupSourceHandle handle;
+        private final int subPartition;
+        private final int subPartitionCount;
+
+        SpilledSubPartition(int partition, SpilledLookupSourceHandle handle, int subPartition, int subPartitionCount)
+        {
+            this.partition = partition;
+            this.handle = requireNonNull(handle, "handle is null");
+            this.subPartition = subPartition;
+            this.subPartitionCount = subPartitionCount;
+        }
+
+        int getPartition()
+        {
+            return partition;
+        }
+
+        SpilledLookupSourceHandle getHandle()
+        {
+            return handle;
+        }
+
+        int getSubPartition()
+        {
+            return subPartition;
+        }
+
+        int getSubPartitionCount()
+        {
+            return subPartitionCount;
+        }
+    }
+
     @Immutable
     private static final class SpillingInfo
     {
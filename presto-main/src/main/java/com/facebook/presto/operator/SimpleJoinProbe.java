@@ -145,4 +145,16 @@ public class SimpleJoinProbe
     {
         return page;
     }
+
+    @Override
+    public Page getProbePage()
+    {
+        return probePage;
+    }
+
+    @Override
+    public Optional<Block> getProbeHashBlock()
+    {
+        return probeHashBlock;
+    }
 }
@@ -27,6 +27,7 @@ import java.util.OptionalInt;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
 public class SimplePagesHashStrategy
@@ -219,6 +220,19 @@ public class SimplePagesHashStrategy
         return false;
     }
 
+    @Override
+    public boolean isSingleBigintKey()
+    {
+        return hashChannels.size() == 1 && types.get(hashChannels.get(0)).equals(BIGINT);
+    }
+
+    @Override
+    public long getBigintKey(int blockIndex, int blockPosition)
+    {
+        checkState(isSingleBigintKey(), "hashed columns are not a single BIGINT column");
+        return BIGINT.getLong(channels.get(hashChannels.get(0)).get(blockIndex), blockPosition);
+    }
+
     @Override
     public int compareSortChannelPositions(int leftBlockIndex, int leftBlockPosition, int rightBlockIndex, int rightBlockPosition)
     {
@@ -23,10 +23,17 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.function.Supplier;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.concurrent.MoreFutures.whenAnyComplete;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Handle of a spilled partition of the build side. A partition too large to be unspilled at once
+ * is unspilled as a number of sub-partitions, one after another: after the lookup source of a
+ * sub-partition has been produced and is released, the partition goes back to {@link State#SPILLED}
+ * and the next sub-partition can be requested.
+ */
 @ThreadSafe
 final class SpilledLookupSourceHandle
 {
@@ -41,24 +48,56 @@ final class SpilledLookupSourceHandle
     @GuardedBy("this")
     private State state = State.SPILLED;
 
-    private final SettableFuture<?> unspillingRequested = SettableFuture.create();
+    private final SettableFuture<Integer> subPartitionCount = SettableFuture.create();
+
+    @GuardedBy("this")
+    private SettableFuture<?> unspillingRequested = SettableFuture.create();
+
+    @GuardedBy("this")
+    private int requestedSubPartition = -1;
 
     @GuardedBy("this")
     @Nullable
     private SettableFuture<Supplier<LookupSource>> unspilledLookupSource;
 
+    @GuardedBy("this")
+    private SettableFuture<?> releaseRequested = SettableFuture.create();
+
     private final SettableFuture<?> disposeRequested = SettableFuture.create();
 
-    private final ListenableFuture<?> unspillingOrDisposeRequested = whenAnyComplete(ImmutableList.of(unspillingRequested, disposeRequested));
+    @GuardedBy("this")
+    private ListenableFuture<?> unspillingOrDisposeRequested = whenAnyComplete(ImmutableList.of(unspillingRequested, disposeRequested));
 
-    public SettableFuture<?> getUnspillingRequested()
+    /**
+     * Sets the number of sub-partitions the partition is unspilled as. Must be set once the partition has been spilled completely.
+     */
+    public void setSubPartitionCount(int subPartitionCount)
+    {
+        checkArgument(subPartitionCount > 0, "subPartitionCount must be positive");
+        checkState(this.subPartitionCount.set(subPartitionCount), "subPartitionCount already set");
+    }
+
+    public ListenableFuture<Integer> getSubPartitionCount()
+    {
+        return subPartitionCount;
+    }
+
+    public synchronized ListenableFuture<?> getUnspillingRequested()
     {
         return unspillingRequested;
     }
 
-    public synchronized ListenableFuture<Supplier<LookupSource>> getLookupSource()
+    public synchronized int getRequestedSubPartition()
+    {
+        return requestedSubPartition;
+    }
+
+    public synchronized ListenableFuture<Supplier<LookupSource>> getLookupSource(int subPartition)
     {
         assertState(State.SPILLED);
+        checkArgument(subPartition >= 0, "subPartition is negative");
+        requestedSubPartition = subPartition;
+        releaseRequested = SettableFuture.create();
         unspillingRequested.set(null);
         setState(State.UNSPILLING);
         checkState(unspilledLookupSource == null, "unspilledLookupSource already set");
@@ -81,6 +120,22 @@ final class SpilledLookupSourceHandle
         setState(State.PRODUCED);
     }
 
+    /**
+     * Releases the lookup source of the current sub-partition, so that the next sub-partition can be requested.
+     */
+    public synchronized void release()
+    {
+        if (state == State.DISPOSED) {
+            return;
+        }
+
+        assertState(State.PRODUCED);
+        setState(State.SPILLED);
+        unspillingRequested = SettableFuture.create();
+        unspillingOrDisposeRequested = whenAnyComplete(ImmutableList.of(unspillingRequested, disposeRequested));
+        releaseRequested.set(null);
+    }
+
     public synchronized void dispose()
     {
         disposeRequested.set(null);
@@ -93,11 +148,23 @@ final class SpilledLookupSourceHandle
         return disposeRequested;
     }
 
-    public ListenableFuture<?> getUnspillingOrDisposeRequested()
+    public synchronized ListenableFuture<?> getUnspillingOrDisposeRequested()
     {
         return unspillingOrDisposeRequested;
     }
 
+    /**
+     * Returns a future completed when the lookup source of the sub-partition being unspilled is released or the partition is disposed.
+     */
+    public synchronized ListenableFuture<?> getReleaseOrDisposeRequested()
+    {
+        if (state == State.DISPOSED) {
+            return disposeRequested;
+        }
+        assertState(State.UNSPILLING);
+        return whenAnyComplete(ImmutableList.of(releaseRequested, disposeRequested));
+    }
+
     @GuardedBy("this")
     private void assertState(State expectedState)
     {
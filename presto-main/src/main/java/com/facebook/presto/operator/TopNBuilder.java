@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the top N rows of the input according to the provided comparator.
+ * <p>
+ * Input pages are retained as is and candidate rows are referenced by
+ * synthetic addresses (see {@link SyntheticAddress}) stored in a primitive
+ * max-heap, so accepting a row does not allocate. Pages that no longer
+ * contain candidate rows are released immediately, and the remaining
+ * candidates are periodically compacted into new pages when the retained
+ * pages contain mostly rejected rows.
+ */
+public class TopNBuilder
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(TopNBuilder.class).instanceSize();
+
+    private static final int MAX_INITIAL_HEAP_SIZE = 10_000;
+    private static final int COMPACTION_RATIO = 4;
+    private static final int MIN_COMPACTION_POSITIONS = 1024;
+
+    private final int n;
+    private final List<Type> types;
+    private final PageWithPositionComparator comparator;
+
+    private final ObjectArrayList<Page> pages = new ObjectArrayList<>();
+    private final IntArrayList pageReferenceCounts = new IntArrayList();
+    private final IntArrayList freePageIndexes = new IntArrayList();
+
+    // max-heap of synthetic addresses ordered by the comparator; the root is the last row in the requested order
+    private long[] heap;
+    private int heapSize;
+
+    private long retainedPagesSizeInBytes;
+    private long retainedPositions;
+
+    public TopNBuilder(int n, List<Type> types, PageWithPositionComparator comparator)
+    {
+        checkArgument(n > 0, "n must be greater than zero");
+        this.n = n;
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.comparator = requireNonNull(comparator, "comparator is null");
+        this.heap = new long[min(n, MAX_INITIAL_HEAP_SIZE)];
+    }
+
+    public void processPage(Page page)
+    {
+        requireNonNull(page, "page is null");
+        if (page.getPositionCount() == 0) {
+            return;
+        }
+
+        int pageIndex = addPage(page);
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            if (heapSize < n) {
+                add(encodeSyntheticAddress(pageIndex, position));
+            }
+            else if (compare(page, position, heap[0]) < 0) {
+                replaceRoot(pageIndex, encodeSyntheticAddress(pageIndex, position));
+            }
+        }
+
+        if (pageReferenceCounts.getInt(pageIndex) == 0) {
+            releasePage(pageIndex);
+        }
+
+        if (retainedPositions >= max(MIN_COMPACTION_POSITIONS, (long) heapSize * COMPACTION_RATIO)) {
+            compact();
+        }
+    }
+
+    public long getEstimatedSizeInBytes()
+    {
+        return INSTANCE_SIZE +
+                retainedPagesSizeInBytes +
+                sizeOf(heap) +
+                sizeOf(pages.elements()) +
+                sizeOf(pageReferenceCounts.elements()) +
+                sizeOf(freePageIndexes.elements());
+    }
+
+    /**
+     * Returns the candidate rows in the requested order. The builder must not be used afterwards.
+     */
+    public Iterator<Page> build()
+    {
+        long[] sortedAddresses = new long[heapSize];
+        for (int i = sortedAddresses.length - 1; i >= 0; i--) {
+            sortedAddresses[i] = heap[0];
+            heapSize--;
+            heap[0] = heap[heapSize];
+            siftDown(0);
+        }
+
+        return new AbstractIterator<Page>()
+        {
+            private final PageBuilder pageBuilder = new PageBuilder(types);
+            private int nextAddress;
+
+            @Override
+            protected Page computeNext()
+            {
+                if (nextAddress == sortedAddresses.length) {
+                    return endOfData();
+                }
+
+                pageBuilder.reset();
+                while (!pageBuilder.isFull() && nextAddress < sortedAddresses.length) {
+                    appendRow(sortedAddresses[nextAddress], pageBuilder);
+                    nextAddress++;
+                }
+                return pageBuilder.build();
+            }
+        };
+    }
+
+    private int addPage(Page page)
+    {
+        int pageIndex;
+        if (freePageIndexes.isEmpty()) {
+            pageIndex = pages.size();
+            pages.add(page);
+            pageReferenceCounts.add(0);
+        }
+        else {
+            pageIndex = freePageIndexes.removeInt(freePageIndexes.size() - 1);
+            pages.set(pageIndex, page);
+        }
+        retainedPagesSizeInBytes += page.getRetainedSizeInBytes();
+        retainedPositions += page.getPositionCount();
+        return pageIndex;
+    }
+
+    private void releasePage(int pageIndex)
+    {
+        Page page = pages.get(pageIndex);
+        retainedPagesSizeInBytes -= page.getRetainedSizeInBytes();
+        retainedPositions -= page.getPositionCount();
+        pages.set(pageIndex, null);
+        freePageIndexes.add(pageIndex);
+    }
+
+    private void add(long address)
+    {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, (int) min(n, heap.length * 2L));
+        }
+        heap[heapSize] = address;
+        heapSize++;
+        siftUp(heapSize - 1);
+        incrementReferenceCount(decodeSliceIndex(address));
+    }
+
+    private void replaceRoot(int currentPageIndex, long address)
+    {
+        int evictedPageIndex = decodeSliceIndex(heap[0]);
+        heap[0] = address;
+        siftDown(0);
+        incrementReferenceCount(decodeSliceIndex(address));
+
+        int referenceCount = pageReferenceCounts.getInt(evictedPageIndex) - 1;
+        pageReferenceCounts.set(evictedPageIndex, referenceCount);
+        // the current page is released by the caller once all of its positions are processed
+        if (referenceCount == 0 && evictedPageIndex != currentPageIndex) {
+            releasePage(evictedPageIndex);
+        }
+    }
+
+    private void incrementReferenceCount(int pageIndex)
+    {
+        pageReferenceCounts.set(pageIndex, pageReferenceCounts.getInt(pageIndex) + 1);
+    }
+
+    /**
+     * Copies all candidate rows into new pages, so that rows that are no longer
+     * candidates do not keep their source pages alive.
+     */
+    private void compact()
+    {
+        ObjectArrayList<Page> compactedPages = new ObjectArrayList<>();
+        PageBuilder pageBuilder = new PageBuilder(types);
+        for (int i = 0; i < heapSize; i++) {
+            if (pageBuilder.isFull()) {
+                compactedPages.add(pageBuilder.build());
+                pageBuilder.reset();
+            }
+            long address = heap[i];
+            heap[i] = encodeSyntheticAddress(compactedPages.size(), pageBuilder.getPositionCount());
+            appendRow(address, pageBuilder);
+        }
+        if (!pageBuilder.isEmpty()) {
+            compactedPages.add(pageBuilder.build());
+        }
+
+        pages.clear();
+        pageReferenceCounts.clear();
+        freePageIndexes.clear();
+        retainedPagesSizeInBytes = 0;
+        retainedPositions = 0;
+        for (Page page : compactedPages) {
+            pages.add(page);
+            pageReferenceCounts.add(page.getPositionCount());
+            retainedPagesSizeInBytes += page.getRetainedSizeInBytes();
+            retainedPositions += page.getPositionCount();
+        }
+        pages.trim();
+        pageReferenceCounts.trim();
+        freePageIndexes.trim();
+    }
+
+    private void appendRow(long address, PageBuilder pageBuilder)
+    {
+        Page page = pages.get(decodeSliceIndex(address));
+        int position = decodePosition(address);
+        pageBuilder.declarePosition();
+        for (int channel = 0; channel < types.size(); channel++) {
+            types.get(channel).appendTo(page.getBlock(channel), position, pageBuilder.getBlockBuilder(channel));
+        }
+    }
+
+    private void siftUp(int index)
+    {
+        long address = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(address, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = address;
+    }
+
+    private void siftDown(int index)
+    {
+        if (heapSize == 0) {
+            return;
+        }
+        long address = heap[index];
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (compare(address, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = address;
+    }
+
+    private int compare(long leftAddress, long rightAddress)
+    {
+        return compare(pages.get(decodeSliceIndex(leftAddress)), decodePosition(leftAddress), rightAddress);
+    }
+
+    private int compare(Page leftPage, int leftPosition, long rightAddress)
+    {
+        return comparator.compareTo(leftPage, leftPosition, pages.get(decodeSliceIndex(rightAddress)), decodePosition(rightAddress));
+    }
+}
@@ -14,18 +14,14 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.spi.Page;
-import com.facebook.presto.spi.PageBuilder;
-import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Ordering;
-import io.airlift.units.DataSize;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -47,6 +43,7 @@ public class TopNOperator
         private final List<Type> sortTypes;
         private final List<Integer> sortChannels;
         private final List<SortOrder> sortOrders;
+        private final OrderingCompiler orderingCompiler;
         private boolean closed;
 
         public TopNOperatorFactory(
@@ -56,6 +53,18 @@ public class TopNOperator
                 int n,
                 List<Integer> sortChannels,
                 List<SortOrder> sortOrders)
+        {
+            this(operatorId, planNodeId, types, n, sortChannels, sortOrders, new OrderingCompiler());
+        }
+
+        public TopNOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> types,
+                int n,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrders,
+                OrderingCompiler orderingCompiler)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -68,6 +77,7 @@ public class TopNOperator
             this.sortTypes = sortTypes.build();
             this.sortChannels = ImmutableList.copyOf(requireNonNull(sortChannels, "sortChannels is null"));
             this.sortOrders = ImmutableList.copyOf(requireNonNull(sortOrders, "sortOrders is null"));
+            this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
         }
 
         @Override
@@ -85,9 +95,7 @@ public class TopNOperator
                     operatorContext,
                     sourceTypes,
                     n,
-                    sortTypes,
-                    sortChannels,
-                    sortOrders);
+                    orderingCompiler.compilePageWithPositionComparator(sortTypes, sortChannels, sortOrders));
         }
 
         @Override
@@ -99,34 +107,25 @@ public class TopNOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new TopNOperatorFactory(operatorId, planNodeId, sourceTypes, n, sortChannels, sortOrders);
+            return new TopNOperatorFactory(operatorId, planNodeId, sourceTypes, n, sortChannels, sortOrders, orderingCompiler);
         }
     }
 
-    private static final int MAX_INITIAL_PRIORITY_QUEUE_SIZE = 10000;
-    private static final DataSize OVERHEAD_PER_VALUE = new DataSize(100, DataSize.Unit.BYTE); // for estimating in-memory size. This is a completely arbitrary number
-
     private final OperatorContext operatorContext;
     private final List<Type> types;
     private final int n;
-    private final List<Type> sortTypes;
-    private final List<Integer> sortChannels;
-    private final List<SortOrder> sortOrders;
-
-    private final PageBuilder pageBuilder;
+    private final PageWithPositionComparator comparator;
 
     private TopNBuilder topNBuilder;
     private boolean finishing;
 
-    private Iterator<Block[]> outputIterator;
+    private Iterator<Page> outputIterator;
 
     public TopNOperator(
             OperatorContext operatorContext,
             List<Type> types,
             int n,
-            List<Type> sortTypes,
-            List<Integer> sortChannels,
-            List<SortOrder> sortOrders)
+            PageWithPositionComparator comparator)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.types = requireNonNull(types, "types is null");
@@ -134,11 +133,7 @@ public class TopNOperator
         checkArgument(n >= 0, "n must be positive");
         this.n = n;
 
-        this.sortTypes = requireNonNull(sortTypes, "sortTypes is null");
-        this.sortChannels = requireNonNull(sortChannels, "sortChannels is null");
-        this.sortOrders = requireNonNull(sortOrders, "sortOrders is null");
-
-        this.pageBuilder = new PageBuilder(types);
+        this.comparator = requireNonNull(comparator, "comparator is null");
 
         if (n == 0) {
             finishing = true;
@@ -181,15 +176,11 @@ public class TopNOperator
         checkState(!finishing, "Operator is already finishing");
         requireNonNull(page, "page is null");
         if (topNBuilder == null) {
-            topNBuilder = new TopNBuilder(
-                    n,
-                    sortTypes,
-                    sortChannels,
-                    sortOrders,
-                    operatorContext);
+            topNBuilder = new TopNBuilder(n, types, comparator);
         }
 
         topNBuilder.processPage(page);
+        operatorContext.setMemoryReservation(topNBuilder.getEstimatedSizeInBytes());
     }
 
     @Override
@@ -203,122 +194,11 @@ public class TopNOperator
 
             outputIterator = topNBuilder.build();
             topNBuilder = null;
-        }
-
-        pageBuilder.reset();
-        while (!pageBuilder.isFull() && outputIterator.hasNext()) {
-            Block[] next = outputIterator.next();
-            pageBuilder.declarePosition();
-            for (int i = 0; i < next.length; i++) {
-                Type type = types.get(i);
-                type.appendTo(next[i], 0, pageBuilder.getBlockBuilder(i));
-            }
-        }
-
-        return pageBuilder.build();
-    }
-
-    private static class TopNBuilder
-    {
-        private final int n;
-        private final List<Type> sortTypes;
-        private final List<Integer> sortChannels;
-        private final List<SortOrder> sortOrders;
-        private final OperatorContext operatorContext;
-        private final PriorityQueue<Block[]> globalCandidates;
-
-        private long memorySize;
-
-        private TopNBuilder(int n,
-                List<Type> sortTypes,
-                List<Integer> sortChannels,
-                List<SortOrder> sortOrders,
-                OperatorContext operatorContext)
-        {
-            this.n = n;
-
-            this.sortTypes = sortTypes;
-            this.sortChannels = sortChannels;
-            this.sortOrders = sortOrders;
-
-            this.operatorContext = operatorContext;
-
-            Ordering<Block[]> comparator = Ordering.from(new RowComparator(sortTypes, sortChannels, sortOrders)).reverse();
-            this.globalCandidates = new PriorityQueue<>(Math.min(n, MAX_INITIAL_PRIORITY_QUEUE_SIZE), comparator);
-        }
-
-        public void processPage(Page page)
-        {
-            long sizeDelta = mergeWithGlobalCandidates(page);
-            memorySize += sizeDelta;
-            operatorContext.setMemoryReservation(memorySize);
-        }
-
-        private long mergeWithGlobalCandidates(Page page)
-        {
-            long sizeDelta = 0;
-
-            Block[] blocks = page.getBlocks();
-            for (int position = 0; position < page.getPositionCount(); position++) {
-                if (globalCandidates.size() < n || compare(position, blocks, globalCandidates.peek()) < 0) {
-                    sizeDelta += addRow(position, page);
-                }
-            }
-
-            return sizeDelta;
-        }
-
-        private int compare(int position, Block[] blocks, Block[] currentMax)
-        {
-            for (int i = 0; i < sortChannels.size(); i++) {
-                Type type = sortTypes.get(i);
-                int sortChannel = sortChannels.get(i);
-                SortOrder sortOrder = sortOrders.get(i);
-
-                Block block = blocks[sortChannel];
-                Block currentMaxValue = currentMax[sortChannel];
-
-                // compare the right value to the left block but negate the result since we are evaluating in the opposite order
-                int compare = -sortOrder.compareBlockValue(type, currentMaxValue, 0, block, position);
-                if (compare != 0) {
-                    return compare;
-                }
-            }
-            return 0;
-        }
-
-        private long addRow(int position, Page page)
-        {
-            long sizeDelta = 0;
-            Block[] row = page.getSingleValuePage(position).getBlocks();
-
-            sizeDelta += sizeOfRow(row);
-            globalCandidates.add(row);
-
-            while (globalCandidates.size() > n) {
-                Block[] previous = globalCandidates.remove();
-                sizeDelta -= sizeOfRow(previous);
-            }
-            return sizeDelta;
-        }
-
-        private static long sizeOfRow(Block[] row)
-        {
-            long size = OVERHEAD_PER_VALUE.toBytes();
-            for (Block value : row) {
-                size += value.getRetainedSizeInBytes();
+            if (!outputIterator.hasNext()) {
+                return null;
             }
-            return size;
         }
 
-        public Iterator<Block[]> build()
-        {
-            ImmutableList.Builder<Block[]> minSortedGlobalCandidates = ImmutableList.builder();
-            while (!globalCandidates.isEmpty()) {
-                Block[] row = globalCandidates.remove();
-                minSortedGlobalCandidates.add(row);
-            }
-            return minSortedGlobalCandidates.build().reverse().iterator();
-        }
+        return outputIterator.next();
     }
 }
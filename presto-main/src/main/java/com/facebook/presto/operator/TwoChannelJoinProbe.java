@@ -32,6 +32,7 @@ import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.Type;
 
 import java.util.List;
+import java.util.Optional;
 
 // This class exists as template for code generation and for testing
 public class TwoChannelJoinProbe
@@ -141,4 +142,16 @@ public class TwoChannelJoinProbe
     {
         return page;
     }
+
+    @Override
+    public Page getProbePage()
+    {
+        return probePage;
+    }
+
+    @Override
+    public Optional<Block> getProbeHashBlock()
+    {
+        return Optional.empty();
+    }
 }
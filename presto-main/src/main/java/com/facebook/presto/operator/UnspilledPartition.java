@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import io.airlift.slice.XxHash64;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lookup source of an unspilled partition of the build side. A spilled partition too large to be
+ * unspilled at once is split into sub-partitions, which are unspilled one after another, and both
+ * sides of the join process only the rows which belong to the sub-partition being unspilled.
+ */
+// This class must be public because LookupJoinOperator is isolated.
+public final class UnspilledPartition
+{
+    private final int partition;
+    private final int subPartition;
+    private final int subPartitionCount;
+    private final TrackingLookupSourceSupplier lookupSourceSupplier;
+
+    public UnspilledPartition(int partition, int subPartition, int subPartitionCount, TrackingLookupSourceSupplier lookupSourceSupplier)
+    {
+        checkArgument(subPartition >= 0 && subPartition < subPartitionCount, "subPartition %s out of range [0, %s)", subPartition, subPartitionCount);
+        this.partition = partition;
+        this.subPartition = subPartition;
+        this.subPartitionCount = subPartitionCount;
+        this.lookupSourceSupplier = requireNonNull(lookupSourceSupplier, "lookupSourceSupplier is null");
+    }
+
+    public int getPartition()
+    {
+        return partition;
+    }
+
+    public int getSubPartition()
+    {
+        return subPartition;
+    }
+
+    public int getSubPartitionCount()
+    {
+        return subPartitionCount;
+    }
+
+    public LookupSource getLookupSource()
+    {
+        return lookupSourceSupplier.getLookupSource();
+    }
+
+    public OuterPositionIterator getOuterPositionIterator()
+    {
+        return lookupSourceSupplier.getOuterPositionIterator();
+    }
+
+    /**
+     * @return positions of the page which belong to the sub-partition
+     */
+    public static int[] getSubPartitionPositions(Page page, HashGenerator hashGenerator, int subPartition, int subPartitionCount)
+    {
+        int[] positions = new int[page.getPositionCount()];
+        int positionCount = 0;
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            if (getSubPartition(hashGenerator.hashPosition(position, page), subPartitionCount) == subPartition) {
+                positions[positionCount++] = position;
+            }
+        }
+        return Arrays.copyOf(positions, positionCount);
+    }
+
+    public static int getSubPartition(long rawHash, int subPartitionCount)
+    {
+        // All rows of a partition share the bits of the hash used to choose the partition, so the hash is mixed differently here
+        return (int) ((XxHash64.hash(rawHash) & Long.MAX_VALUE) % subPartitionCount);
+    }
+}
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.memory.AggregatedMemoryContext;
 import com.facebook.presto.operator.window.FramedWindowFunction;
 import com.facebook.presto.operator.window.WindowPartition;
 import com.facebook.presto.spi.Page;
@@ -20,26 +21,36 @@ import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.io.Closer;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiPredicate;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static com.facebook.presto.operator.MergeSortedPages.mergeSortedPages;
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.concat;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.concurrent.MoreFutures.checkSuccess;
 import static java.util.Collections.nCopies;
 import static java.util.Objects.requireNonNull;
 
@@ -63,6 +74,7 @@ public class WindowOperator
         private final List<Type> types;
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
+        private final Optional<SpillerFactory> spillerFactory;
 
         public WindowOperatorFactory(
                 int operatorId,
@@ -77,6 +89,36 @@ public class WindowOperator
                 int preSortedChannelPrefix,
                 int expectedPositions,
                 PagesIndex.Factory pagesIndexFactory)
+        {
+            this(operatorId,
+                    planNodeId,
+                    sourceTypes,
+                    outputChannels,
+                    windowFunctionDefinitions,
+                    partitionChannels,
+                    preGroupedChannels,
+                    sortChannels,
+                    sortOrder,
+                    preSortedChannelPrefix,
+                    expectedPositions,
+                    pagesIndexFactory,
+                    Optional.empty());
+        }
+
+        public WindowOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                List<WindowFunctionDefinition> windowFunctionDefinitions,
+                List<Integer> partitionChannels,
+                List<Integer> preGroupedChannels,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                int preSortedChannelPrefix,
+                int expectedPositions,
+                PagesIndex.Factory pagesIndexFactory,
+                Optional<SpillerFactory> spillerFactory)
         {
             requireNonNull(sourceTypes, "sourceTypes is null");
             requireNonNull(planNodeId, "planNodeId is null");
@@ -88,11 +130,13 @@ public class WindowOperator
             requireNonNull(sortChannels, "sortChannels is null");
             requireNonNull(sortOrder, "sortOrder is null");
             requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+            requireNonNull(spillerFactory, "spillerFactory is null");
             checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
             checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
             checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
 
             this.pagesIndexFactory = pagesIndexFactory;
+            this.spillerFactory = spillerFactory;
             this.operatorId = operatorId;
             this.planNodeId = planNodeId;
             this.sourceTypes = ImmutableList.copyOf(sourceTypes);
@@ -135,7 +179,8 @@ public class WindowOperator
                     sortOrder,
                     preSortedChannelPrefix,
                     expectedPositions,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillerFactory);
         }
 
         @Override
@@ -159,7 +204,8 @@ public class WindowOperator
                     sortOrder,
                     preSortedChannelPrefix,
                     expectedPositions,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillerFactory);
         }
     }
 
@@ -172,6 +218,7 @@ public class WindowOperator
     }
 
     private final OperatorContext operatorContext;
+    private final List<Type> sourceTypes;
     private final int[] outputChannels;
     private final List<FramedWindowFunction> windowFunctions;
     private final List<Integer> orderChannels;
@@ -179,6 +226,7 @@ public class WindowOperator
     private final List<Type> types;
 
     private final int[] preGroupedChannels;
+    private final int[] unGroupedPartitionChannels;
 
     private final PagesHashStrategy preGroupedPartitionHashStrategy;
     private final PagesHashStrategy unGroupedPartitionHashStrategy;
@@ -198,6 +246,18 @@ public class WindowOperator
 
     private Page pendingInput;
 
+    private final Optional<SpillerFactory> spillerFactory;
+    private final List<Integer> spillSortChannels;
+    private final List<SortOrder> spillSortOrder;
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    // pre-grouped channel values of the group that is partially spilled, used to detect the group end once pagesIndex is empty
+    private Optional<Page> spilledGroupKey = Optional.empty();
+    private Optional<AggregatedMemoryContext> mergeMemoryContext = Optional.empty();
+    private Iterator<Page> spilledPages;
+    private Page pendingSpilledPage;
+
     public WindowOperator(
             OperatorContext operatorContext,
             List<Type> sourceTypes,
@@ -209,7 +269,8 @@ public class WindowOperator
             List<SortOrder> sortOrder,
             int preSortedChannelPrefix,
             int expectedPositions,
-            PagesIndex.Factory pagesIndexFactory)
+            PagesIndex.Factory pagesIndexFactory,
+            Optional<SpillerFactory> spillerFactory)
     {
         requireNonNull(operatorContext, "operatorContext is null");
         requireNonNull(outputChannels, "outputChannels is null");
@@ -220,11 +281,14 @@ public class WindowOperator
         requireNonNull(sortChannels, "sortChannels is null");
         requireNonNull(sortOrder, "sortOrder is null");
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+        requireNonNull(spillerFactory, "spillerFactory is null");
         checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
         checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
         checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
 
         this.operatorContext = operatorContext;
+        this.sourceTypes = ImmutableList.copyOf(sourceTypes);
+        this.spillerFactory = spillerFactory;
         this.outputChannels = Ints.toArray(outputChannels);
         this.windowFunctions = windowFunctionDefinitions.stream()
                 .map(functionDefinition -> new FramedWindowFunction(functionDefinition.createWindowFunction(), functionDefinition.getFrameInfo()))
@@ -243,6 +307,7 @@ public class WindowOperator
         List<Integer> unGroupedPartitionChannels = partitionChannels.stream()
                 .filter(channel -> !preGroupedChannels.contains(channel))
                 .collect(toImmutableList());
+        this.unGroupedPartitionChannels = Ints.toArray(unGroupedPartitionChannels);
         this.unGroupedPartitionHashStrategy = pagesIndex.createPagesHashStrategy(unGroupedPartitionChannels, OptionalInt.empty());
         List<Integer> preSortedChannels = sortChannels.stream()
                 .limit(preSortedChannelPrefix)
@@ -263,6 +328,12 @@ public class WindowOperator
             this.ordering = ImmutableList.copyOf(concat(nCopies(unGroupedPartitionChannels.size(), ASC_NULLS_LAST), sortOrder));
         }
 
+        // Spilled runs are sorted within a group of rows with the same pre-grouped values. Pre-sorted channels
+        // are only allowed when all partition channels are pre-grouped, so in that case the list of un-grouped
+        // partition channels is empty and the runs are ordered by all sort channels.
+        this.spillSortChannels = ImmutableList.copyOf(concat(unGroupedPartitionChannels, sortChannels));
+        this.spillSortOrder = ImmutableList.copyOf(concat(nCopies(unGroupedPartitionChannels.size(), ASC_NULLS_LAST), sortOrder));
+
         windowInfo = new WindowInfo.DriverWindowInfoBuilder();
         operatorContext.setInfoSupplier(this::getWindowInfo);
     }
@@ -303,6 +374,12 @@ public class WindowOperator
         return state == State.FINISHED;
     }
 
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return spillInProgress;
+    }
+
     @Override
     public boolean needsInput()
     {
@@ -324,7 +401,7 @@ public class WindowOperator
         if (processPendingInput()) {
             state = State.HAS_OUTPUT;
         }
-        operatorContext.setMemoryReservation(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryUsage();
     }
 
     /**
@@ -347,7 +424,7 @@ public class WindowOperator
 
     /**
      * @return the unused section of the page, or null if fully applied.
-     * pagesIndex guaranteed to have at least one row after this method returns
+     * pagesIndex guaranteed to have at least one row after this method returns, unless the current group has been spilled
      */
     private Page updatePagesIndex(Page page)
     {
@@ -355,7 +432,7 @@ public class WindowOperator
 
         // TODO: Fix pagesHashStrategy to allow specifying channels for comparison, it currently requires us to rearrange the right side blocks in consecutive channel order
         Page preGroupedPage = rearrangePage(page, preGroupedChannels);
-        if (pagesIndex.getPositionCount() == 0 || pagesIndex.positionEqualsRow(preGroupedPartitionHashStrategy, 0, 0, preGroupedPage)) {
+        if (isCurrentGroup(preGroupedPage)) {
             // Find the position where the pre-grouped columns change
             int groupEnd = findGroupEnd(preGroupedPage, preGroupedPartitionHashStrategy, 0);
 
@@ -377,6 +454,16 @@ public class WindowOperator
         }
     }
 
+    private boolean isCurrentGroup(Page preGroupedPage)
+    {
+        if (pagesIndex.getPositionCount() > 0) {
+            return pagesIndex.positionEqualsRow(preGroupedPartitionHashStrategy, 0, 0, preGroupedPage);
+        }
+        return spilledGroupKey
+                .map(groupKey -> preGroupedPartitionHashStrategy.rowEqualsRow(0, groupKey, 0, preGroupedPage))
+                .orElse(true);
+    }
+
     private static Page rearrangePage(Page page, int[] channels)
     {
         Block[] newBlocks = new Block[channels.length];
@@ -393,8 +480,18 @@ public class WindowOperator
             return null;
         }
 
+        if (isSpilledGroupBuffered()) {
+            // the rest of the partially spilled group is being spilled, it can be merged once that has finished
+            if (!spillInProgress.isDone()) {
+                return null;
+            }
+            checkSuccess(spillInProgress, "spilling failed");
+            pagesIndex.clear();
+            mergeSpilledGroup();
+        }
+
         Page page = extractOutput();
-        operatorContext.setMemoryReservation(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryUsage();
         return page;
     }
 
@@ -412,8 +509,15 @@ public class WindowOperator
                     partition = null;
                     pagesIndex.clear();
 
-                    // Try to extract more partitions from the pendingInput
-                    if (pendingInput != null && processPendingInput()) {
+                    // Load the next partition of a spilled group, or try to extract more partitions from the pendingInput
+                    if (loadNextSpilledPartition()) {
+                        partitionStart = 0;
+                    }
+                    else if (pendingInput != null && processPendingInput()) {
+                        if (isSpilledGroupBuffered()) {
+                            // the group is loaded back once it has been fully spilled
+                            return null;
+                        }
                         partitionStart = 0;
                     }
                     else if (state == State.FINISHING) {
@@ -460,7 +564,161 @@ public class WindowOperator
     private void finishPagesIndex()
     {
         sortPagesIndexIfNecessary();
-        windowInfo.addIndex(pagesIndex);
+
+        if (!spiller.isPresent()) {
+            windowInfo.addIndex(pagesIndex);
+            return;
+        }
+
+        // Part of the current group is on disk. Spill the rest of it, so that all sorted runs
+        // can be merged with bounded memory. The group is loaded back one partition at a time
+        // once the spill has finished, see getOutput.
+        if (pagesIndex.getPositionCount() > 0) {
+            spillInProgress = spiller.get().spill(pagesIndex.getSortedPages());
+        }
+    }
+
+    /**
+     * @return true if all rows of the current group have been buffered after part of it has been spilled, and the spilled runs have not been merged yet
+     */
+    private boolean isSpilledGroupBuffered()
+    {
+        return state != State.NEEDS_INPUT && spiller.isPresent() && spilledPages == null;
+    }
+
+    private void mergeSpilledGroup()
+    {
+        mergeMemoryContext = Optional.of(operatorContext.getSystemMemoryContext().newAggregatedMemoryContext());
+        spilledPages = mergeSortedPages(
+                spiller.get().getSpills(),
+                new SimplePageWithPositionComparator(
+                        spillSortChannels.stream()
+                                .map(sourceTypes::get)
+                                .collect(toImmutableList()),
+                        spillSortChannels,
+                        spillSortOrder),
+                sourceTypes,
+                IntStream.range(0, sourceTypes.size()).toArray(),
+                mergeMemoryContext.get());
+        checkState(loadNextSpilledPartition(), "Spilled group is empty");
+    }
+
+    /**
+     * Loads the next partition of the spilled group into pagesIndex, which must be empty.
+     *
+     * @return true if a partition has been loaded, false if there is no spilled group or it has been fully consumed
+     */
+    private boolean loadNextSpilledPartition()
+    {
+        if (spilledPages == null) {
+            return false;
+        }
+        checkState(pagesIndex.getPositionCount() == 0, "pagesIndex is not empty");
+
+        while (true) {
+            if (pendingSpilledPage == null) {
+                if (!spilledPages.hasNext()) {
+                    break;
+                }
+                pendingSpilledPage = spilledPages.next();
+            }
+
+            Page partitionPage = rearrangePage(pendingSpilledPage, unGroupedPartitionChannels);
+            if (pagesIndex.getPositionCount() > 0 && !pagesIndex.positionEqualsRow(unGroupedPartitionHashStrategy, 0, 0, partitionPage)) {
+                // the pending page starts with the next partition
+                break;
+            }
+
+            int partitionEnd = findGroupEnd(partitionPage, unGroupedPartitionHashStrategy, 0);
+            pagesIndex.addPage(pendingSpilledPage.getRegion(0, partitionEnd));
+
+            int remainingPositions = pendingSpilledPage.getPositionCount() - partitionEnd;
+            if (remainingPositions > 0) {
+                pendingSpilledPage = pendingSpilledPage.getRegion(partitionEnd, remainingPositions);
+                break;
+            }
+            pendingSpilledPage = null;
+        }
+
+        if (pagesIndex.getPositionCount() > 0) {
+            windowInfo.addIndex(pagesIndex);
+            return true;
+        }
+
+        // the spilled group has been fully consumed
+        closeSpiller();
+        return false;
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillerFactory.isPresent(), "Spill not enabled, no revokable memory should be reserved");
+
+        // Only the group which is being buffered can be spilled, as the partitions of a finished
+        // group are referenced by the window partition that is being output.
+        if (state != State.NEEDS_INPUT || pagesIndex.getPositionCount() == 0) {
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.getSystemMemoryContext().newAggregatedMemoryContext()));
+        }
+
+        Block[] groupKeyBlocks = new Block[preGroupedChannels.length];
+        for (int i = 0; i < preGroupedChannels.length; i++) {
+            groupKeyBlocks[i] = pagesIndex.getSingleValueBlock(preGroupedChannels[i], 0);
+        }
+        spilledGroupKey = Optional.of(new Page(1, groupKeyBlocks));
+
+        sortPagesIndexIfNecessary();
+        finishMemoryRevoke = Optional.of(() -> {
+            pagesIndex.clear();
+            updateMemoryUsage();
+        });
+        return spiller.get().spill(pagesIndex.getSortedPages());
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private void updateMemoryUsage()
+    {
+        long indexSize = pagesIndex.getEstimatedSize().toBytes();
+        // the partitions loaded back from a spilled group cannot be spilled again
+        if (spillerFactory.isPresent() && spilledPages == null) {
+            operatorContext.setMemoryReservation(0);
+            operatorContext.setRevocableMemoryReservation(indexSize);
+        }
+        else {
+            operatorContext.setRevocableMemoryReservation(0);
+            operatorContext.setMemoryReservation(indexSize);
+        }
+    }
+
+    private void closeSpiller()
+    {
+        spilledPages = null;
+        pendingSpilledPage = null;
+        spilledGroupKey = Optional.empty();
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+            mergeMemoryContext.ifPresent(memoryContext -> closer.register(memoryContext::close));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        spiller = Optional.empty();
+        mergeMemoryContext = Optional.empty();
     }
 
     // Assumes input grouped on relevant pagesHashStrategy columns
@@ -543,5 +801,6 @@ public class WindowOperator
             throws Exception
     {
         driverWindowInfo.set(Optional.of(windowInfo.build()));
+        closeSpiller();
     }
 }
@@ -29,6 +29,11 @@ public interface HashAggregationBuilder
 
     boolean isFull();
 
+    /**
+     * Returns the number of groups currently held in memory by this builder.
+     */
+    long getGroupCount();
+
     void updateMemory();
 
     void recordHashCollisions(HashCollisionsCounter hashCollisionsCounter);
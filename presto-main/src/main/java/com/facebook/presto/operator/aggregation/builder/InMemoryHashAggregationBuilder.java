@@ -75,7 +75,8 @@ public class InMemoryHashAggregationBuilder
             OperatorContext operatorContext,
             DataSize maxPartialMemory,
             JoinCompiler joinCompiler,
-            boolean yieldForMemoryReservation)
+            boolean yieldForMemoryReservation,
+            boolean offHeap)
     {
         this(accumulatorFactories,
                 step,
@@ -87,7 +88,8 @@ public class InMemoryHashAggregationBuilder
                 maxPartialMemory,
                 Optional.empty(),
                 joinCompiler,
-                yieldForMemoryReservation);
+                yieldForMemoryReservation,
+                offHeap);
     }
 
     public InMemoryHashAggregationBuilder(
@@ -101,7 +103,8 @@ public class InMemoryHashAggregationBuilder
             DataSize maxPartialMemory,
             Optional<Integer> overwriteIntermediateChannelOffset,
             JoinCompiler joinCompiler,
-            boolean yieldForMemoryReservation)
+            boolean yieldForMemoryReservation,
+            boolean offHeap)
     {
         UpdateMemory updateMemory;
         if (yieldForMemoryReservation) {
@@ -116,12 +119,15 @@ public class InMemoryHashAggregationBuilder
                 return true;
             };
         }
+        // off-heap tables are freed by close(), so the caller may only request them
+        // when the result of this builder is consumed before the builder is closed
         this.groupByHash = createGroupByHash(
                 groupByTypes,
                 Ints.toArray(groupByChannels),
                 hashChannel,
                 expectedGroups,
                 isDictionaryAggregationEnabled(operatorContext.getSession()),
+                offHeap,
                 joinCompiler,
                 updateMemory);
         this.operatorContext = operatorContext;
@@ -146,6 +152,7 @@ public class InMemoryHashAggregationBuilder
     @Override
     public void close()
     {
+        groupByHash.close();
         if (partial) {
             systemMemoryContext.setBytes(0);
         }
@@ -243,6 +250,7 @@ public class InMemoryHashAggregationBuilder
         return groupByHash.getTypes().size();
     }
 
+    @Override
     public long getGroupCount()
     {
         return groupByHash.getGroupCount();
@@ -142,6 +142,7 @@ public class MergingHashAggregationBuilder
                 DataSize.succinctBytes(0),
                 Optional.of(overwriteIntermediateChannelOffset),
                 joinCompiler,
+                false,
                 false);
     }
 }
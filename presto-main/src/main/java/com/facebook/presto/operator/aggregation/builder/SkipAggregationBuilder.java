@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.aggregation.builder;
+
+import com.facebook.presto.memory.LocalMemoryContext;
+import com.facebook.presto.operator.CompletedWork;
+import com.facebook.presto.operator.GroupByIdBlock;
+import com.facebook.presto.operator.HashCollisionsCounter;
+import com.facebook.presto.operator.OperatorContext;
+import com.facebook.presto.operator.Work;
+import com.facebook.presto.operator.aggregation.AccumulatorFactory;
+import com.facebook.presto.operator.aggregation.GroupedAccumulator;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.LongArrayBlock;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Partial aggregation builder which does not aggregate at all. Every input row
+ * is converted to a row of intermediate aggregation state on its own, which is
+ * cheaper than hashing when almost every row has distinct grouping keys.
+ */
+public class SkipAggregationBuilder
+        implements HashAggregationBuilder
+{
+    private final List<AccumulatorFactory> accumulatorFactories;
+    private final List<Integer> groupByChannels;
+    private final Optional<Integer> hashChannel;
+    private final LocalMemoryContext systemMemoryContext;
+
+    private Page outputPage;
+
+    public SkipAggregationBuilder(List<AccumulatorFactory> accumulatorFactories, List<Integer> groupByChannels, Optional<Integer> hashChannel, OperatorContext operatorContext)
+    {
+        this.accumulatorFactories = ImmutableList.copyOf(requireNonNull(accumulatorFactories, "accumulatorFactories is null"));
+        this.groupByChannels = ImmutableList.copyOf(requireNonNull(groupByChannels, "groupByChannels is null"));
+        this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.systemMemoryContext = requireNonNull(operatorContext, "operatorContext is null").getSystemMemoryContext().newLocalMemoryContext();
+    }
+
+    @Override
+    public Work<?> processPage(Page page)
+    {
+        checkState(outputPage == null, "Previous page has not been consumed");
+        outputPage = toIntermediatePage(page);
+        updateMemory();
+        return new CompletedWork<>(outputPage);
+    }
+
+    @Override
+    public Iterator<Page> buildResult()
+    {
+        if (outputPage == null) {
+            return Collections.emptyIterator();
+        }
+        Page page = outputPage;
+        outputPage = null;
+        updateMemory();
+        return Collections.singletonList(page).iterator();
+    }
+
+    @Override
+    public boolean isFull()
+    {
+        return outputPage != null;
+    }
+
+    @Override
+    public long getGroupCount()
+    {
+        return outputPage == null ? 0 : outputPage.getPositionCount();
+    }
+
+    @Override
+    public void updateMemory()
+    {
+        // the intermediate page is retained until it is consumed
+        systemMemoryContext.setBytes(outputPage == null ? 0 : outputPage.getRetainedSizeInBytes());
+    }
+
+    @Override
+    public void recordHashCollisions(HashCollisionsCounter hashCollisionsCounter)
+    {
+        // no hashing is performed
+    }
+
+    @Override
+    public void close()
+    {
+        outputPage = null;
+        systemMemoryContext.setBytes(0);
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        throw new UnsupportedOperationException("startMemoryRevoke not supported for SkipAggregationBuilder");
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        throw new UnsupportedOperationException("finishMemoryRevoke not supported for SkipAggregationBuilder");
+    }
+
+    private Page toIntermediatePage(Page page)
+    {
+        int positionCount = page.getPositionCount();
+        Block[] blocks = new Block[groupByChannels.size() + (hashChannel.isPresent() ? 1 : 0) + accumulatorFactories.size()];
+
+        int outputChannel = 0;
+        for (int channel : groupByChannels) {
+            blocks[outputChannel++] = page.getBlock(channel);
+        }
+        if (hashChannel.isPresent()) {
+            blocks[outputChannel++] = page.getBlock(hashChannel.get());
+        }
+
+        // every row is a group of its own
+        long[] groupIds = new long[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            groupIds[position] = position;
+        }
+        GroupByIdBlock groupIdsBlock = new GroupByIdBlock(positionCount, new LongArrayBlock(positionCount, new boolean[positionCount], groupIds));
+
+        for (AccumulatorFactory accumulatorFactory : accumulatorFactories) {
+            GroupedAccumulator accumulator = accumulatorFactory.createGroupedAccumulator();
+            accumulator.addInput(groupIdsBlock, page);
+
+            BlockBuilder output = accumulator.getIntermediateType().createBlockBuilder(new BlockBuilderStatus(), positionCount);
+            for (int groupId = 0; groupId < positionCount; groupId++) {
+                accumulator.evaluateIntermediate(groupId, output);
+            }
+            blocks[outputChannel++] = output.build();
+        }
+        return new Page(positionCount, blocks);
+    }
+}
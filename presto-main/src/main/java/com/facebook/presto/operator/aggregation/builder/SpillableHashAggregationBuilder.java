@@ -127,6 +127,12 @@ public class SpillableHashAggregationBuilder
         expectedHashCollisions = 0;
     }
 
+    @Override
+    public long getGroupCount()
+    {
+        return hashAggregationBuilder.getGroupCount();
+    }
+
     @Override
     public boolean isFull()
     {
@@ -287,6 +293,7 @@ public class SpillableHashAggregationBuilder
                 operatorContext,
                 DataSize.succinctBytes(0),
                 joinCompiler,
+                false,
                 false);
         emptyHashAggregationBuilderSize = hashAggregationBuilder.getSizeInMemory();
     }
@@ -0,0 +1,363 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.sql.relational.CallExpression;
+import com.facebook.presto.sql.relational.ConstantExpression;
+import com.facebook.presto.sql.relational.DeterminismEvaluator;
+import com.facebook.presto.sql.relational.Expressions;
+import com.facebook.presto.sql.relational.InputReferenceExpression;
+import com.facebook.presto.sql.relational.LambdaDefinitionExpression;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.facebook.presto.sql.relational.RowExpressionVisitor;
+import com.facebook.presto.sql.relational.VariableReferenceExpression;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static com.facebook.presto.sql.relational.Signatures.TRY;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Extract the deterministic subexpressions that occur more than once in the projections
+ * (e.g. a parsed json value or a CASE expression used by several columns), so they are
+ * evaluated once per batch of positions instead of once for each projection. A common
+ * subexpression is read by the rewritten projections from an input channel following
+ * the channels of the input page.
+ * <p>
+ * A subexpression is only extracted if one of its occurrences is evaluated for every
+ * position, so that it is never evaluated for a position the projections would have
+ * skipped it for, such as in a branch of a conditional or in an argument following a
+ * null argument.
+ */
+public final class CommonSubExpressionRewriter
+{
+    private CommonSubExpressionRewriter() {}
+
+    public static Result rewriteCommonSubExpressions(List<? extends RowExpression> projections, DeterminismEvaluator determinismEvaluator)
+    {
+        requireNonNull(projections, "projections is null");
+        requireNonNull(determinismEvaluator, "determinismEvaluator is null");
+
+        int commonSubExpressionChannel = getInputChannelCount(projections);
+
+        // extract the largest common subexpression first, so its subexpressions are only
+        // extracted if they also occur outside of it
+        List<RowExpression> rewrittenProjections = ImmutableList.<RowExpression>copyOf(projections);
+        List<RowExpression> commonSubExpressions = new ArrayList<>();
+        while (true) {
+            Optional<RowExpression> commonSubExpression = findLargestCommonSubExpression(Iterables.concat(rewrittenProjections, commonSubExpressions), determinismEvaluator);
+            if (!commonSubExpression.isPresent()) {
+                break;
+            }
+            RowExpression reference = field(commonSubExpressionChannel + commonSubExpressions.size(), commonSubExpression.get().getType());
+            rewrittenProjections = replace(rewrittenProjections, commonSubExpression.get(), reference);
+            commonSubExpressions = new ArrayList<>(replace(commonSubExpressions, commonSubExpression.get(), reference));
+            commonSubExpressions.add(commonSubExpression.get());
+        }
+
+        if (commonSubExpressions.isEmpty()) {
+            return new Result(ImmutableList.of(), commonSubExpressionChannel, rewrittenProjections);
+        }
+
+        // a common subexpression can only contain the ones extracted after it, so they are evaluated in reverse order
+        int count = commonSubExpressions.size();
+        ChannelRewriter channelRewriter = new ChannelRewriter(channel -> {
+            if (channel < commonSubExpressionChannel) {
+                return channel;
+            }
+            return commonSubExpressionChannel + count - 1 - (channel - commonSubExpressionChannel);
+        });
+        return new Result(
+                Lists.reverse(commonSubExpressions).stream()
+                        .map(expression -> expression.accept(channelRewriter, null))
+                        .collect(toImmutableList()),
+                commonSubExpressionChannel,
+                rewrittenProjections.stream()
+                        .map(expression -> expression.accept(channelRewriter, null))
+                        .collect(toImmutableList()));
+    }
+
+    private static int getInputChannelCount(List<? extends RowExpression> projections)
+    {
+        int channelCount = 0;
+        for (RowExpression expression : Expressions.subExpressions(ImmutableList.<RowExpression>copyOf(projections))) {
+            if (expression instanceof InputReferenceExpression) {
+                channelCount = Math.max(channelCount, ((InputReferenceExpression) expression).getField() + 1);
+            }
+        }
+        return channelCount;
+    }
+
+    private static Optional<RowExpression> findLargestCommonSubExpression(Iterable<RowExpression> expressions, DeterminismEvaluator determinismEvaluator)
+    {
+        OccurrenceCounter counter = new OccurrenceCounter();
+        for (RowExpression expression : expressions) {
+            expression.accept(counter, true);
+        }
+
+        Optional<RowExpression> largest = Optional.empty();
+        int largestSize = 0;
+        for (Map.Entry<RowExpression, Occurrences> entry : counter.getOccurrences().entrySet()) {
+            Occurrences occurrences = entry.getValue();
+            if (occurrences.getCount() < 2 || !occurrences.isAlwaysEvaluated()) {
+                continue;
+            }
+            int size = Expressions.subExpressions(ImmutableList.of(entry.getKey())).size();
+            if (size > largestSize && determinismEvaluator.isDeterministic(entry.getKey())) {
+                largest = Optional.of(entry.getKey());
+                largestSize = size;
+            }
+        }
+        return largest;
+    }
+
+    private static List<RowExpression> replace(List<RowExpression> expressions, RowExpression target, RowExpression replacement)
+    {
+        Replacer replacer = new Replacer(target, replacement);
+        return expressions.stream()
+                .map(expression -> expression.accept(replacer, null))
+                .collect(toImmutableList());
+    }
+
+    private static boolean isOpaque(CallExpression call)
+    {
+        // the errors of the arguments of TRY are suppressed, so they must be evaluated inside of it
+        return call.getSignature().getName().equals(TRY);
+    }
+
+    private static class Occurrences
+    {
+        private int count;
+        private boolean alwaysEvaluated;
+
+        public void add(boolean evaluated)
+        {
+            count++;
+            alwaysEvaluated |= evaluated;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public boolean isAlwaysEvaluated()
+        {
+            return alwaysEvaluated;
+        }
+    }
+
+    private static class OccurrenceCounter
+            implements RowExpressionVisitor<Void, Boolean>
+    {
+        private final Map<RowExpression, Occurrences> occurrences = new LinkedHashMap<>();
+
+        public Map<RowExpression, Occurrences> getOccurrences()
+        {
+            return occurrences;
+        }
+
+        @Override
+        public Void visitCall(CallExpression call, Boolean alwaysEvaluated)
+        {
+            occurrences.computeIfAbsent(call, key -> new Occurrences()).add(alwaysEvaluated);
+            if (isOpaque(call)) {
+                return null;
+            }
+
+            // only the first argument is evaluated regardless of the values of the others: special forms
+            // choose which of the other arguments to evaluate, and the arguments of a function following
+            // a null argument are not evaluated
+            List<RowExpression> arguments = call.getArguments();
+            for (int i = 0; i < arguments.size(); i++) {
+                arguments.get(i).accept(this, alwaysEvaluated && i == 0);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitInputReference(InputReferenceExpression reference, Boolean alwaysEvaluated)
+        {
+            return null;
+        }
+
+        @Override
+        public Void visitConstant(ConstantExpression literal, Boolean alwaysEvaluated)
+        {
+            return null;
+        }
+
+        @Override
+        public Void visitLambda(LambdaDefinitionExpression lambda, Boolean alwaysEvaluated)
+        {
+            // the body of a lambda is evaluated for the arguments of the lambda
+            return null;
+        }
+
+        @Override
+        public Void visitVariableReference(VariableReferenceExpression reference, Boolean alwaysEvaluated)
+        {
+            return null;
+        }
+    }
+
+    private static class Replacer
+            implements RowExpressionVisitor<RowExpression, Void>
+    {
+        private final RowExpression target;
+        private final RowExpression replacement;
+
+        public Replacer(RowExpression target, RowExpression replacement)
+        {
+            this.target = requireNonNull(target, "target is null");
+            this.replacement = requireNonNull(replacement, "replacement is null");
+        }
+
+        @Override
+        public RowExpression visitCall(CallExpression call, Void context)
+        {
+            if (call.equals(target)) {
+                return replacement;
+            }
+            if (isOpaque(call)) {
+                return call;
+            }
+            return new CallExpression(
+                    call.getSignature(),
+                    call.getType(),
+                    call.getArguments().stream()
+                            .map(expression -> expression.accept(this, context))
+                            .collect(toImmutableList()));
+        }
+
+        @Override
+        public RowExpression visitInputReference(InputReferenceExpression reference, Void context)
+        {
+            return reference;
+        }
+
+        @Override
+        public RowExpression visitConstant(ConstantExpression literal, Void context)
+        {
+            return literal;
+        }
+
+        @Override
+        public RowExpression visitLambda(LambdaDefinitionExpression lambda, Void context)
+        {
+            return lambda;
+        }
+
+        @Override
+        public RowExpression visitVariableReference(VariableReferenceExpression reference, Void context)
+        {
+            return reference;
+        }
+    }
+
+    private static class ChannelRewriter
+            implements RowExpressionVisitor<RowExpression, Void>
+    {
+        private final Function<Integer, Integer> channelMapping;
+
+        public ChannelRewriter(Function<Integer, Integer> channelMapping)
+        {
+            this.channelMapping = requireNonNull(channelMapping, "channelMapping is null");
+        }
+
+        @Override
+        public RowExpression visitInputReference(InputReferenceExpression reference, Void context)
+        {
+            return field(channelMapping.apply(reference.getField()), reference.getType());
+        }
+
+        @Override
+        public RowExpression visitCall(CallExpression call, Void context)
+        {
+            return new CallExpression(
+                    call.getSignature(),
+                    call.getType(),
+                    call.getArguments().stream()
+                            .map(expression -> expression.accept(this, context))
+                            .collect(toImmutableList()));
+        }
+
+        @Override
+        public RowExpression visitConstant(ConstantExpression literal, Void context)
+        {
+            return literal;
+        }
+
+        @Override
+        public RowExpression visitLambda(LambdaDefinitionExpression lambda, Void context)
+        {
+            return new LambdaDefinitionExpression(
+                    lambda.getArgumentTypes(),
+                    lambda.getArguments(),
+                    lambda.getBody().accept(this, context));
+        }
+
+        @Override
+        public RowExpression visitVariableReference(VariableReferenceExpression reference, Void context)
+        {
+            return reference;
+        }
+    }
+
+    public static class Result
+    {
+        private final List<RowExpression> commonSubExpressions;
+        private final int commonSubExpressionChannel;
+        private final List<RowExpression> rewrittenProjections;
+
+        public Result(List<RowExpression> commonSubExpressions, int commonSubExpressionChannel, List<RowExpression> rewrittenProjections)
+        {
+            this.commonSubExpressions = ImmutableList.copyOf(requireNonNull(commonSubExpressions, "commonSubExpressions is null"));
+            this.commonSubExpressionChannel = commonSubExpressionChannel;
+            this.rewrittenProjections = ImmutableList.copyOf(requireNonNull(rewrittenProjections, "rewrittenProjections is null"));
+        }
+
+        /**
+         * Returns the common subexpressions in the order they must be evaluated in. A common
+         * subexpression may read the ones before it.
+         */
+        public List<RowExpression> getCommonSubExpressions()
+        {
+            return commonSubExpressions;
+        }
+
+        /**
+         * Returns the channel the first common subexpression is read from by the rewritten expressions.
+         */
+        public int getCommonSubExpressionChannel()
+        {
+            return commonSubExpressionChannel;
+        }
+
+        public List<RowExpression> getRewrittenProjections()
+        {
+            return rewrittenProjections;
+        }
+    }
+}
@@ -24,9 +24,12 @@ import com.facebook.presto.spi.block.DictionaryId;
 import com.facebook.presto.spi.block.LazyBlock;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +39,7 @@ import java.util.function.Function;
 import static com.facebook.presto.operator.project.PageProcessorOutput.EMPTY_PAGE_PROCESSOR_OUTPUT;
 import static com.facebook.presto.operator.project.SelectedPositions.positionsRange;
 import static com.facebook.presto.spi.block.DictionaryId.randomDictionaryId;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterators.singletonIterator;
@@ -50,12 +54,27 @@ public class PageProcessor
 
     private final DictionarySourceIdFunction dictionarySourceIdFunction = new DictionarySourceIdFunction();
     private final Optional<PageFilter> filter;
+    private final List<PageProjection> commonSubExpressions;
+    private final int commonSubExpressionChannel;
     private final List<PageProjection> projections;
+    // whether the projection at the index, counting the common subexpressions first, reads a common subexpression
+    private final boolean[] readsCommonSubExpressions;
 
     private int projectBatchSize = MAX_BATCH_SIZE;
 
     public PageProcessor(Optional<PageFilter> filter, List<? extends PageProjection> projections)
     {
+        this(filter, ImmutableList.of(), 0, projections);
+    }
+
+    /**
+     * The common subexpressions are evaluated in order for each batch of positions before the
+     * projections, which read them from the channels starting at {@code commonSubExpressionChannel}.
+     * A projection reading a common subexpression is evaluated over the positions of the batch only.
+     */
+    public PageProcessor(Optional<PageFilter> filter, List<? extends PageProjection> commonSubExpressions, int commonSubExpressionChannel, List<? extends PageProjection> projections)
+    {
+        checkArgument(commonSubExpressionChannel >= 0, "commonSubExpressionChannel is negative");
         this.filter = requireNonNull(filter, "filter is null")
                 .map(pageFilter -> {
                     if (pageFilter.getInputChannels().size() == 1 && pageFilter.isDeterministic()) {
@@ -63,14 +82,32 @@ public class PageProcessor
                     }
                     return pageFilter;
                 });
+        this.commonSubExpressions = requireNonNull(commonSubExpressions, "commonSubExpressions is null").stream()
+                .map(this::dictionaryAware)
+                .collect(toImmutableList());
+        this.commonSubExpressionChannel = commonSubExpressionChannel;
         this.projections = requireNonNull(projections, "projections is null").stream()
-                .map(projection -> {
-                    if (projection.getInputChannels().size() == 1 && projection.isDeterministic()) {
-                        return new DictionaryAwarePageProjection(projection, dictionarySourceIdFunction);
-                    }
-                    return projection;
-                })
+                .map(this::dictionaryAware)
                 .collect(toImmutableList());
+
+        this.readsCommonSubExpressions = new boolean[this.commonSubExpressions.size() + this.projections.size()];
+        if (!this.commonSubExpressions.isEmpty()) {
+            for (int i = 0; i < readsCommonSubExpressions.length; i++) {
+                PageProjection projection = i < this.commonSubExpressions.size() ? this.commonSubExpressions.get(i) : this.projections.get(i - this.commonSubExpressions.size());
+                readsCommonSubExpressions[i] = projection.getInputChannels().getInputChannels().stream()
+                        .anyMatch(channel -> channel >= commonSubExpressionChannel);
+            }
+        }
+    }
+
+    private PageProjection dictionaryAware(PageProjection projection)
+    {
+        // a view of the input page restricted to a batch is only read along with a common subexpression,
+        // so its dictionary, which holds positions outside of the batch, is never processed here
+        if (projection.getInputChannels().size() == 1 && projection.isDeterministic()) {
+            return new DictionaryAwarePageProjection(projection, dictionarySourceIdFunction);
+        }
+        return projection;
     }
 
     public PageProcessorOutput process(ConnectorSession session, DriverYieldSignal yieldSignal, Page page)
@@ -146,7 +183,7 @@ public class PageProcessor
             this.yieldSignal = yieldSignal;
             this.page = page;
             this.selectedPositions = selectedPositions;
-            this.previouslyComputedResults = new Block[projections.size()];
+            this.previouslyComputedResults = new Block[commonSubExpressions.size() + projections.size()];
             updateRetainedSize();
         }
 
@@ -250,10 +287,22 @@ public class PageProcessor
 
         private ProcessBatchResult processBatch(int batchSize)
         {
+            Block[] commonSubExpressionBlocks = new Block[commonSubExpressions.size()];
             Block[] blocks = new Block[projections.size()];
 
-            int pageSize = 0;
             SelectedPositions positionsBatch = selectedPositions.subRange(0, batchSize);
+            for (int i = 0; i < commonSubExpressions.size(); i++) {
+                if (yieldSignal.isSet()) {
+                    return ProcessBatchResult.processBatchYield();
+                }
+
+                commonSubExpressionBlocks[i] = project(i, commonSubExpressions.get(i), positionsBatch, commonSubExpressionBlocks);
+                if (commonSubExpressionBlocks[i] == null) {
+                    return ProcessBatchResult.processBatchYield();
+                }
+            }
+
+            int pageSize = 0;
             for (int i = 0; i < projections.size(); i++) {
                 if (yieldSignal.isSet()) {
                     return ProcessBatchResult.processBatchYield();
@@ -263,27 +312,74 @@ public class PageProcessor
                     return ProcessBatchResult.processBatchTooLarge();
                 }
 
-                // if possible, use previouslyComputedResults produced in prior optimistic failure attempt
-                PageProjection projection = projections.get(i);
-                if (previouslyComputedResults[i] != null && previouslyComputedResults[i].getPositionCount() >= batchSize) {
-                    blocks[i] = previouslyComputedResults[i].getRegion(0, batchSize);
-                }
-                else {
-                    if (pageProjectWork == null) {
-                        pageProjectWork = projection.project(session, yieldSignal, projection.getInputChannels().getInputChannels(page), positionsBatch);
-                    }
-                    if (!pageProjectWork.process()) {
-                        return ProcessBatchResult.processBatchYield();
-                    }
-                    previouslyComputedResults[i] = pageProjectWork.getResult();
-                    pageProjectWork = null;
-                    blocks[i] = previouslyComputedResults[i];
+                blocks[i] = project(commonSubExpressions.size() + i, projections.get(i), positionsBatch, commonSubExpressionBlocks);
+                if (blocks[i] == null) {
+                    return ProcessBatchResult.processBatchYield();
                 }
 
                 pageSize += blocks[i].getSizeInBytes();
             }
             return ProcessBatchResult.processBatchSuccess(new Page(positionsBatch.size(), blocks));
         }
+
+        /**
+         * Returns the result of the projection for the batch, or null if the projection yielded.
+         */
+        @Nullable
+        private Block project(int index, PageProjection projection, SelectedPositions positionsBatch, Block[] commonSubExpressionBlocks)
+        {
+            // if possible, use previouslyComputedResults produced in prior optimistic failure attempt
+            int batchSize = positionsBatch.size();
+            if (previouslyComputedResults[index] != null && previouslyComputedResults[index].getPositionCount() >= batchSize) {
+                return previouslyComputedResults[index].getRegion(0, batchSize);
+            }
+
+            if (pageProjectWork == null) {
+                if (readsCommonSubExpressions[index]) {
+                    // the common subexpressions only hold the positions of the batch
+                    Page batchPage = getBatchInputChannels(projection.getInputChannels(), positionsBatch, commonSubExpressionBlocks);
+                    pageProjectWork = projection.project(session, yieldSignal, batchPage, positionsRange(0, batchSize));
+                }
+                else {
+                    pageProjectWork = projection.project(session, yieldSignal, projection.getInputChannels().getInputChannels(page), positionsBatch);
+                }
+            }
+            if (!pageProjectWork.process()) {
+                return null;
+            }
+            previouslyComputedResults[index] = pageProjectWork.getResult();
+            pageProjectWork = null;
+            return previouslyComputedResults[index];
+        }
+
+        private Page getBatchInputChannels(InputChannels inputChannels, SelectedPositions positionsBatch, Block[] commonSubExpressionBlocks)
+        {
+            List<Integer> channels = inputChannels.getInputChannels();
+            Block[] blocks = new Block[channels.size()];
+            for (int i = 0; i < blocks.length; i++) {
+                int channel = channels.get(i);
+                if (channel >= commonSubExpressionChannel) {
+                    blocks[i] = commonSubExpressionBlocks[channel - commonSubExpressionChannel];
+                }
+                else {
+                    blocks[i] = getPositions(page.getBlock(channel), positionsBatch);
+                }
+            }
+            return new Page(positionsBatch.size(), blocks);
+        }
+    }
+
+    private static Block getPositions(Block block, SelectedPositions positions)
+    {
+        if (isUnloadedLazyBlock(block)) {
+            // the projection may not read the block for any of the positions
+            LazyBlock lazyBlock = (LazyBlock) block;
+            return new LazyBlock(positions.size(), loadedBlock -> loadedBlock.setBlock(getPositions(lazyBlock.getBlock(), positions)));
+        }
+        if (positions.isList()) {
+            return block.getPositions(Arrays.copyOfRange(positions.getPositions(), positions.getOffset(), positions.getOffset() + positions.size()));
+        }
+        return block.getRegion(positions.getOffset(), positions.size());
     }
 
     @NotThreadSafe
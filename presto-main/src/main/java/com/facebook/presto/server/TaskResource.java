@@ -20,7 +20,9 @@ import com.facebook.presto.execution.TaskInfo;
 import com.facebook.presto.execution.TaskManager;
 import com.facebook.presto.execution.TaskState;
 import com.facebook.presto.execution.TaskStatus;
+import com.facebook.presto.execution.buffer.BufferRequest;
 import com.facebook.presto.execution.buffer.BufferResult;
+import com.facebook.presto.execution.buffer.MultiplexedBufferResult;
 import com.facebook.presto.execution.buffer.SerializedPage;
 import com.facebook.presto.metadata.SessionPropertyManager;
 import com.facebook.presto.spi.Page;
@@ -28,7 +30,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.concurrent.BoundedExecutor;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceOutput;
 import io.airlift.stats.TimeStat;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
@@ -54,8 +60,10 @@ import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -69,9 +77,13 @@ import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_WAIT;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_TASK_INSTANCE_ID;
+import static com.facebook.presto.execution.buffer.MultiplexedBufferSerde.readBufferRequests;
+import static com.facebook.presto.execution.buffer.MultiplexedBufferSerde.writeBufferResults;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.concurrent.MoreFutures.addTimeout;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static io.airlift.http.server.AsyncResponseHandler.bindAsyncResponse;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -287,6 +299,65 @@ public class TaskResource
         asyncResponse.register((CompletionCallback) throwable -> resultsRequestTime.add(Duration.nanosSince(start)));
     }
 
+    @POST
+    @Path("results")
+    @Consumes(PRESTO_PAGES)
+    @Produces(PRESTO_PAGES)
+    public void getMultiplexedResults(InputStream requestBody, @Suspended AsyncResponse asyncResponse)
+    {
+        requireNonNull(requestBody, "requestBody is null");
+
+        long start = System.nanoTime();
+        List<BufferRequest> requests = readBufferRequests(new InputStreamSliceInput(requestBody));
+
+        // respond as soon as any of the buffers has data, the others are returned empty and requested again
+        SettableFuture<Boolean> anyDone = SettableFuture.create();
+        ImmutableList.Builder<ListenableFuture<BufferResult>> resultFutures = ImmutableList.builder();
+        for (BufferRequest request : requests) {
+            ListenableFuture<BufferResult> resultFuture;
+            try {
+                resultFuture = taskManager.getTaskResults(request.getTaskId(), request.getBufferId(), request.getToken(), request.getMaxSize());
+            }
+            catch (RuntimeException e) {
+                resultFuture = Futures.immediateFailedFuture(e);
+            }
+            resultFuture.addListener(() -> anyDone.set(true), directExecutor());
+            resultFutures.add(resultFuture);
+        }
+        List<ListenableFuture<BufferResult>> futures = resultFutures.build();
+        if (futures.isEmpty()) {
+            anyDone.set(true);
+        }
+
+        Duration waitTime = randomizeWaitTime(DEFAULT_MAX_WAIT_TIME);
+        ListenableFuture<Boolean> readyFuture = addTimeout(anyDone, () -> false, waitTime, timeoutExecutor);
+
+        ListenableFuture<Response> responseFuture = Futures.transform(readyFuture, ignored -> {
+            ImmutableList.Builder<MultiplexedBufferResult> results = ImmutableList.builder();
+            for (int i = 0; i < requests.size(); i++) {
+                ListenableFuture<BufferResult> future = futures.get(i);
+                if (future.isDone() && !future.isCancelled()) {
+                    results.add(getMultiplexedResult(future));
+                }
+                else {
+                    results.add(MultiplexedBufferResult.success(emptyResults(requests.get(i))));
+                }
+            }
+            return createMultiplexedResponse(results.build());
+        });
+
+        // For hard timeout, add an additional time to max wait for thread scheduling contention and GC
+        Duration timeout = new Duration(waitTime.toMillis() + ADDITIONAL_WAIT_TIME.toMillis(), MILLISECONDS);
+        bindAsyncResponse(asyncResponse, responseFuture, responseExecutor)
+                .withTimeout(timeout, createMultiplexedResponse(requests.stream()
+                        .map(this::emptyResults)
+                        .map(MultiplexedBufferResult::success)
+                        .collect(toImmutableList())));
+
+        responseFuture.addListener(() -> readFromOutputBufferTime.add(Duration.nanosSince(start)), directExecutor());
+        asyncResponse.register((CompletionCallback) throwable -> resultsRequestTime.add(Duration.nanosSince(start)));
+    }
+
     @DELETE
     @Path("{taskId}/results/{bufferId}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -312,6 +383,32 @@ public class TaskResource
         return resultsRequestTime;
     }
 
+    private BufferResult emptyResults(BufferRequest request)
+    {
+        return BufferResult.emptyResults(taskManager.getTaskInstanceId(request.getTaskId()), request.getToken(), false);
+    }
+
+    private static MultiplexedBufferResult getMultiplexedResult(ListenableFuture<BufferResult> future)
+    {
+        // a failed buffer is reported to its own client, the other buffers of the request are not affected
+        try {
+            return MultiplexedBufferResult.success(getFutureValue(future));
+        }
+        catch (RuntimeException e) {
+            return MultiplexedBufferResult.failure(e.toString());
+        }
+    }
+
+    private static Response createMultiplexedResponse(List<MultiplexedBufferResult> results)
+    {
+        StreamingOutput entity = output -> {
+            SliceOutput sliceOutput = new OutputStreamSliceOutput(output);
+            writeBufferResults(sliceOutput, results);
+            sliceOutput.flush();
+        };
+        return Response.ok(entity, PRESTO_PAGES).build();
+    }
+
     private static boolean shouldSummarize(UriInfo uriInfo)
     {
         return uriInfo.getQueryParameters().containsKey("summarize");
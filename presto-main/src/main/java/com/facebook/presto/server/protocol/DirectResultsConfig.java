@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server.protocol;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.NotNull;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class DirectResultsConfig
+{
+    private boolean enabled;
+    private String sharedSecret;
+    private Duration tokenExpiration = new Duration(5, MINUTES);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("direct-results.enabled")
+    @ConfigDescription("Allow clients to read query results directly from the output buffers of the workers")
+    public DirectResultsConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public String getSharedSecret()
+    {
+        return sharedSecret;
+    }
+
+    @Config("direct-results.shared-secret")
+    @ConfigDescription("Secret used by all nodes to sign and verify the tokens of result locations")
+    public DirectResultsConfig setSharedSecret(String sharedSecret)
+    {
+        this.sharedSecret = sharedSecret;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getTokenExpiration()
+    {
+        return tokenExpiration;
+    }
+
+    @Config("direct-results.token-expiration")
+    public DirectResultsConfig setTokenExpiration(Duration tokenExpiration)
+    {
+        this.tokenExpiration = tokenExpiration;
+        return this;
+    }
+}
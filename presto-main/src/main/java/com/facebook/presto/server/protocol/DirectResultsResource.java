@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server.protocol;
+
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.TaskManager;
+import com.facebook.presto.execution.buffer.BufferResult;
+import com.facebook.presto.execution.buffer.PagesSerde;
+import com.facebook.presto.execution.buffer.PagesSerdeFactory;
+import com.facebook.presto.server.ForAsyncHttp;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.concurrent.BoundedExecutor;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.presto.client.BinaryResults.BINARY_RESULTS_MEDIA_TYPE;
+import static com.facebook.presto.client.BinaryResults.serializePages;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_DIRECT_RESULTS_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_SIZE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.concurrent.MoreFutures.addTimeout;
+import static io.airlift.http.server.AsyncResponseHandler.bindAsyncResponse;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Serves the output buffers of the tasks on this node to clients, in the binary result
+ * format. The coordinator hands out the locations of these buffers with a signed token
+ * when a client asks to read the results of a query directly from the workers.
+ */
+@Path("/v1/results")
+public class DirectResultsResource
+{
+    private static final Duration MAX_WAIT_TIME = new Duration(1, SECONDS);
+    private static final Duration ADDITIONAL_WAIT_TIME = new Duration(5, SECONDS);
+    private static final DataSize DEFAULT_MAX_SIZE = new DataSize(1, MEGABYTE);
+
+    private final TaskManager taskManager;
+    private final DirectResultsTokenManager tokenManager;
+    private final PagesSerdeFactory serdeFactory;
+    private final BoundedExecutor responseExecutor;
+    private final ScheduledExecutorService timeoutExecutor;
+
+    @Inject
+    public DirectResultsResource(
+            TaskManager taskManager,
+            DirectResultsTokenManager tokenManager,
+            BlockEncodingSerde blockEncodingSerde,
+            @ForAsyncHttp BoundedExecutor responseExecutor,
+            @ForAsyncHttp ScheduledExecutorService timeoutExecutor)
+    {
+        this.taskManager = requireNonNull(taskManager, "taskManager is null");
+        this.tokenManager = requireNonNull(tokenManager, "tokenManager is null");
+        requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
+        // pages of any compression codec can be deserialized, so compression is not configured here
+        this.serdeFactory = new PagesSerdeFactory(blockEncodingSerde, false);
+        this.responseExecutor = requireNonNull(responseExecutor, "responseExecutor is null");
+        this.timeoutExecutor = requireNonNull(timeoutExecutor, "timeoutExecutor is null");
+    }
+
+    @GET
+    @Path("{taskId}/{bufferId}/{token}")
+    @Produces(BINARY_RESULTS_MEDIA_TYPE)
+    public void getResults(
+            @PathParam("taskId") TaskId taskId,
+            @PathParam("bufferId") OutputBufferId bufferId,
+            @PathParam("token") long token,
+            @HeaderParam(PRESTO_DIRECT_RESULTS_TOKEN) String authToken,
+            @HeaderParam(PRESTO_MAX_SIZE) DataSize maxSize,
+            @Suspended AsyncResponse asyncResponse)
+    {
+        requireNonNull(taskId, "taskId is null");
+        requireNonNull(bufferId, "bufferId is null");
+        checkAccess(authToken, taskId, bufferId);
+
+        ListenableFuture<BufferResult> bufferResultFuture = taskManager.getTaskResults(taskId, bufferId, token, maxSize == null ? DEFAULT_MAX_SIZE : maxSize);
+        bufferResultFuture = addTimeout(
+                bufferResultFuture,
+                () -> BufferResult.emptyResults(taskManager.getTaskInstanceId(taskId), token, false),
+                MAX_WAIT_TIME,
+                timeoutExecutor);
+
+        ListenableFuture<Response> responseFuture = Futures.transform(bufferResultFuture, result -> {
+            PagesSerde serde = serdeFactory.createPagesSerde();
+            List<Page> pages = result.getSerializedPages().stream()
+                    .map(serde::deserialize)
+                    .collect(toImmutableList());
+
+            return Response.ok(serializePages(pages), BINARY_RESULTS_MEDIA_TYPE)
+                    .header(PRESTO_PAGE_TOKEN, result.getToken())
+                    .header(PRESTO_PAGE_NEXT_TOKEN, result.getNextToken())
+                    .header(PRESTO_BUFFER_COMPLETE, result.isBufferComplete())
+                    .build();
+        });
+
+        // For hard timeout, add an additional time to max wait for thread scheduling contention and GC
+        Duration timeout = new Duration(MAX_WAIT_TIME.toMillis() + ADDITIONAL_WAIT_TIME.toMillis(), MILLISECONDS);
+        bindAsyncResponse(asyncResponse, responseFuture, responseExecutor)
+                .withTimeout(timeout,
+                        Response.ok(serializePages(ImmutableList.of()), BINARY_RESULTS_MEDIA_TYPE)
+                                .header(PRESTO_PAGE_TOKEN, token)
+                                .header(PRESTO_PAGE_NEXT_TOKEN, token)
+                                .header(PRESTO_BUFFER_COMPLETE, false)
+                                .build());
+    }
+
+    @DELETE
+    @Path("{taskId}/{bufferId}")
+    public void abortResults(
+            @PathParam("taskId") TaskId taskId,
+            @PathParam("bufferId") OutputBufferId bufferId,
+            @HeaderParam(PRESTO_DIRECT_RESULTS_TOKEN) String authToken)
+    {
+        requireNonNull(taskId, "taskId is null");
+        requireNonNull(bufferId, "bufferId is null");
+        checkAccess(authToken, taskId, bufferId);
+
+        taskManager.abortTaskResults(taskId, bufferId);
+    }
+
+    private void checkAccess(String authToken, TaskId taskId, OutputBufferId bufferId)
+    {
+        if (!tokenManager.isValid(authToken, taskId, bufferId)) {
+            throw new WebApplicationException(Status.FORBIDDEN);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server.protocol;
+
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.client.ResultLocation;
+import com.facebook.presto.execution.TaskId;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Signs and verifies the tokens that give a client access to the output buffer of a
+ * task. A token names the time it expires and is signed with a secret shared by all
+ * nodes, so a worker can verify a token issued by the coordinator without contacting it.
+ */
+public class DirectResultsTokenManager
+{
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final Optional<SecretKeySpec> key;
+    private final long tokenExpirationMillis;
+
+    @Inject
+    public DirectResultsTokenManager(DirectResultsConfig config)
+    {
+        requireNonNull(config, "config is null");
+        checkArgument(!config.isEnabled() || config.getSharedSecret() != null, "direct-results.shared-secret must be set when direct results are enabled");
+
+        this.enabled = config.isEnabled();
+        this.key = Optional.ofNullable(config.getSharedSecret())
+                .map(secret -> new SecretKeySpec(secret.getBytes(UTF_8), ALGORITHM));
+        this.tokenExpirationMillis = config.getTokenExpiration().toMillis();
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Creates the location a client reads the output buffer at the location
+     * {@code .../v1/task/{taskId}/results/{bufferId}} from, with a token for it.
+     */
+    public ResultLocation createResultLocation(URI bufferLocation)
+    {
+        List<String> segments = Splitter.on('/').omitEmptyStrings().splitToList(bufferLocation.getPath());
+        int length = segments.size();
+        checkArgument(length >= 4 && segments.get(length - 4).equals("task") && segments.get(length - 2).equals("results"), "Unsupported buffer location: %s", bufferLocation);
+
+        TaskId taskId = TaskId.valueOf(segments.get(length - 3));
+        OutputBufferId bufferId = OutputBufferId.fromString(segments.get(length - 1));
+        URI uri = uriBuilderFrom(bufferLocation)
+                .replacePath("/v1/results")
+                .appendPath(taskId.toString())
+                .appendPath(bufferId.toString())
+                .build();
+        return new ResultLocation(uri, createToken(taskId, bufferId, System.currentTimeMillis() + tokenExpirationMillis));
+    }
+
+    public boolean isValid(String token, TaskId taskId, OutputBufferId bufferId)
+    {
+        if (!enabled || token == null) {
+            return false;
+        }
+
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            return false;
+        }
+        long expiration;
+        try {
+            expiration = Long.parseLong(token.substring(0, separator));
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+        if (expiration < System.currentTimeMillis()) {
+            return false;
+        }
+
+        byte[] expected = sign(taskId, bufferId, expiration);
+        byte[] actual;
+        try {
+            actual = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+        }
+        catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    @VisibleForTesting
+    String createToken(TaskId taskId, OutputBufferId bufferId, long expiration)
+    {
+        return expiration + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(taskId, bufferId, expiration));
+    }
+
+    private byte[] sign(TaskId taskId, OutputBufferId bufferId, long expiration)
+    {
+        checkState(key.isPresent(), "direct results are not enabled");
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key.get());
+            return mac.doFinal((taskId + "/" + bufferId + "/" + expiration).getBytes(UTF_8));
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
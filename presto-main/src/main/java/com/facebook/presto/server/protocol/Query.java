@@ -19,6 +19,7 @@ import com.facebook.presto.client.Column;
 import com.facebook.presto.client.FailureInfo;
 import com.facebook.presto.client.QueryError;
 import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.ResultLocation;
 import com.facebook.presto.client.StageStats;
 import com.facebook.presto.client.StatementStats;
 import com.facebook.presto.execution.QueryExecution;
@@ -61,6 +62,7 @@ import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -71,9 +73,12 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.SystemSessionProperties.isExchangeCompressionEnabled;
+import static com.facebook.presto.client.BinaryResults.isSupportedType;
+import static com.facebook.presto.client.BinaryResults.serializePages;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.util.Failures.toFailure;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.concurrent.MoreFutures.addTimeout;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
@@ -98,6 +103,9 @@ class Query
     @GuardedBy("this")
     private final PagesSerde serde;
 
+    private final boolean binaryResultsRequested;
+    private final Optional<DirectResultsTokenManager> directResultsTokenManager;
+
     private final AtomicLong resultId = new AtomicLong();
     private final Session session;
 
@@ -113,6 +121,15 @@ class Query
     @GuardedBy("this")
     private List<Type> types;
 
+    @GuardedBy("this")
+    private boolean binaryResults;
+
+    @GuardedBy("this")
+    private boolean directResults;
+
+    @GuardedBy("this")
+    private final Set<URI> directResultBufferLocations = new LinkedHashSet<>();
+
     @GuardedBy("this")
     private Optional<String> setCatalog;
 
@@ -148,9 +165,11 @@ class Query
             ExchangeClient exchangeClient,
             Executor dataProcessorExecutor,
             ScheduledExecutorService timeoutExecutor,
-            BlockEncodingSerde blockEncodingSerde)
+            BlockEncodingSerde blockEncodingSerde,
+            boolean binaryResults,
+            Optional<DirectResultsTokenManager> directResultsTokenManager)
     {
-        Query result = new Query(sessionContext, query, queryManager, sessionPropertyManager, exchangeClient, dataProcessorExecutor, timeoutExecutor, blockEncodingSerde);
+        Query result = new Query(sessionContext, query, queryManager, sessionPropertyManager, exchangeClient, dataProcessorExecutor, timeoutExecutor, blockEncodingSerde, binaryResults, directResultsTokenManager);
         result.queryManager.addOutputInfoListener(result.queryId, result::setQueryOutputInfo);
         return result;
     }
@@ -163,7 +182,9 @@ class Query
             ExchangeClient exchangeClient,
             Executor resultsProcessorExecutor,
             ScheduledExecutorService timeoutExecutor,
-            BlockEncodingSerde blockEncodingSerde)
+            BlockEncodingSerde blockEncodingSerde,
+            boolean binaryResultsRequested,
+            Optional<DirectResultsTokenManager> directResultsTokenManager)
     {
         requireNonNull(sessionContext, "sessionContext is null");
         requireNonNull(query, "query is null");
@@ -182,6 +203,8 @@ class Query
         this.timeoutExecutor = timeoutExecutor;
         requireNonNull(blockEncodingSerde, "serde is null");
         this.serde = new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session)).createPagesSerde();
+        this.binaryResultsRequested = binaryResultsRequested;
+        this.directResultsTokenManager = requireNonNull(directResultsTokenManager, "directResultsTokenManager is null");
     }
 
     public void cancel()
@@ -313,7 +336,7 @@ class Query
         // client while holding the lock because the query may transition to the finished state when the
         // last page is removed.  If another thread observes this state before the response is cached
         // the pages will be lost.
-        ImmutableList.Builder<RowIterable> pages = ImmutableList.builder();
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
         long bytes = 0;
         long rows = 0;
         while (bytes < DESIRED_RESULT_BYTES) {
@@ -325,17 +348,35 @@ class Query
             Page page = serde.deserialize(serializedPage);
             bytes += page.getSizeInBytes();
             rows += page.getPositionCount();
-            pages.add(new RowIterable(session.toConnectorSession(), types, page));
+            pages.add(page);
         }
 
-        // client implementations do not properly handle empty list of data
-        Iterable<List<Object>> data = (rows == 0) ? null : Iterables.concat(pages.build());
-
         // get the query info before returning
         // force update if query manager is closed
         QueryInfo queryInfo = queryManager.getQueryInfo(queryId);
         queryManager.recordHeartbeat(queryId);
 
+        // client implementations do not properly handle empty list of data
+        Iterable<List<Object>> data = null;
+        byte[] binaryData = null;
+        if (rows > 0) {
+            // the update count is read from the rows, so results of updates are always sent as JSON
+            if (binaryResults && queryInfo.getUpdateType() == null) {
+                binaryData = serializePages(pages.build());
+            }
+            else {
+                data = Iterables.concat(Lists.transform(pages.build(), page -> new RowIterable(session.toConnectorSession(), types, page)));
+            }
+        }
+
+        // the client reads the rows from the workers, with a fresh token for each location
+        List<ResultLocation> resultLocations = null;
+        if (directResults) {
+            resultLocations = directResultBufferLocations.stream()
+                    .map(directResultsTokenManager.get()::createResultLocation)
+                    .collect(toImmutableList());
+        }
+
         // TODO: figure out a better way to do this
         // grab the update count for non-queries
         if ((data != null) && (queryInfo.getUpdateType() != null) && (updateCount == null) &&
@@ -398,7 +439,9 @@ class Query
                 toStatementStats(queryInfo),
                 toQueryError(queryInfo),
                 queryInfo.getUpdateType(),
-                updateCount);
+                updateCount,
+                binaryData,
+                resultLocations);
 
         // cache the last results
         if (lastResult != null && lastResult.getNextUri() != null) {
@@ -428,6 +471,21 @@ class Query
             }
             columns = list.build();
             types = outputInfo.getColumnTypes();
+            binaryResults = binaryResultsRequested && types.stream()
+                    .allMatch(type -> isSupportedType(type.getTypeSignature()));
+
+            // rows read directly from the workers are in the binary format, and the update
+            // count is read from the rows, so results of updates always pass through here
+            directResults = binaryResults && directResultsTokenManager.isPresent() && queryManager.getQueryInfo(queryId).getUpdateType() == null;
+            if (directResults) {
+                // nothing is read from the exchange, so results only wait for the query to finish
+                exchangeClient.close();
+            }
+        }
+
+        if (directResults) {
+            directResultBufferLocations.addAll(outputInfo.getBufferLocations());
+            return;
         }
 
         for (URI outputLocation : outputInfo.getBufferLocations()) {
@@ -14,7 +14,6 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.presto.execution.buffer.PagesSerde;
-import com.facebook.presto.execution.buffer.PagesSerdeUtil;
 import com.facebook.presto.execution.buffer.SerializedPage;
 import com.facebook.presto.memory.LocalMemoryContext;
 import com.facebook.presto.operator.SpillContext;
@@ -22,13 +21,14 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.util.PrestoIterators;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.io.Closer;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import io.airlift.slice.InputStreamSliceInput;
 import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
 
 import javax.annotation.concurrent.NotThreadSafe;
@@ -40,9 +40,8 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Iterator;
-import java.util.List;
 
-import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writeSerializedPage;
+import static com.facebook.presto.execution.buffer.PagesSerdeUtil.readSerializedPage;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
@@ -64,6 +63,7 @@ public class FileSingleStreamSpiller
     private final SpillerStats spillerStats;
     private final SpillContext localSpillContext;
     private final LocalMemoryContext memoryContext;
+    private final SpillDiskStats diskStats;
 
     private final ListeningExecutorService executor;
 
@@ -84,6 +84,7 @@ public class FileSingleStreamSpiller
         this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
         this.localSpillContext = spillContext.newLocalSpillContext();
         this.memoryContext = requireNonNull(memoryContext, "memoryContext can not be null");
+        this.diskStats = spillerStats.getDiskStats(spillPath);
         try {
             this.targetFile = closer.register(new FileHolder(Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX)));
         }
@@ -115,25 +116,26 @@ public class FileSingleStreamSpiller
     }
 
     @Override
-    public ListenableFuture<List<Page>> getAllSpilledPages()
+    public SpilledPageStream getSpilledPageStream(long maxReadAheadBytes)
     {
-        return executor.submit(() -> ImmutableList.copyOf(getSpilledPages()));
+        return new SpilledPageStream(getSpilledPages(), executor, maxReadAheadBytes);
     }
 
     private void writePages(Iterator<Page> pageIterator)
     {
         checkState(writable, "Spilling no longer allowed. The spiller has been made non-writable on first read for subsequent reads to be consistent");
 
+        long start = System.nanoTime();
+        long writtenBytes = 0;
         try (SliceOutput output = new OutputStreamSliceOutput(targetFile.newOutputStream(APPEND), BUFFER_SIZE)) {
             memoryContext.setBytes(BUFFER_SIZE);
             while (pageIterator.hasNext()) {
                 Page page = pageIterator.next();
                 spilledPagesInMemorySize += page.getSizeInBytes();
-                SerializedPage serializedPage = serde.serialize(page);
-                long pageSize = serializedPage.getSizeInBytes();
+                long pageSize = serde.serialize(page, output);
+                writtenBytes += pageSize;
                 localSpillContext.updateBytes(pageSize);
                 spillerStats.addToTotalSpilledBytes(pageSize);
-                writeSerializedPage(output, serializedPage);
             }
         }
         catch (UncheckedIOException | IOException e) {
@@ -141,19 +143,21 @@ public class FileSingleStreamSpiller
         }
         finally {
             memoryContext.setBytes(0);
+            diskStats.recordWrite(writtenBytes, System.nanoTime() - start);
         }
     }
 
     private Iterator<Page> readPages()
     {
-        checkState(writable, "Repeated reads are disallowed to prevent potential resource leaks");
+        // every read holds its own stream, which is released when the read is exhausted or the spiller is closed
         writable = false;
 
         try {
+            // compressed pages are copied out of the stream buffer once and decompressed from the heap
             InputStream input = targetFile.newInputStream();
             Closeable resources = closer.register(combineCloseables(input, () -> memoryContext.setBytes(0)));
             memoryContext.setBytes(BUFFER_SIZE);
-            Iterator<Page> pages = PagesSerdeUtil.readPages(serde, new InputStreamSliceInput(input, BUFFER_SIZE));
+            Iterator<Page> pages = new StreamPageReader(serde, new InputStreamSliceInput(input, BUFFER_SIZE), diskStats);
             return PrestoIterators.closeWhenExhausted(pages, resources);
         }
         catch (IOException e) {
@@ -181,4 +185,33 @@ public class FileSingleStreamSpiller
     {
         checkState(spillInProgress.isDone(), "spill in progress");
     }
+
+    private static class StreamPageReader
+            extends AbstractIterator<Page>
+    {
+        private final PagesSerde serde;
+        private final SliceInput input;
+        private final SpillDiskStats diskStats;
+
+        public StreamPageReader(PagesSerde serde, SliceInput input, SpillDiskStats diskStats)
+        {
+            this.serde = requireNonNull(serde, "serde is null");
+            this.input = requireNonNull(input, "input is null");
+            this.diskStats = requireNonNull(diskStats, "diskStats is null");
+        }
+
+        @Override
+        protected Page computeNext()
+        {
+            long start = System.nanoTime();
+            if (!input.isReadable()) {
+                return endOfData();
+            }
+
+            long position = input.position();
+            SerializedPage page = readSerializedPage(input);
+            diskStats.recordRead(input.position() - position, System.nanoTime() - start);
+            return serde.deserialize(page);
+        }
+    }
 }
@@ -22,22 +22,32 @@ import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
 import io.airlift.log.Logger;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.ObjectNames;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.management.ObjectName;
 
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static com.facebook.presto.spi.StandardErrorCode.OUT_OF_SPILL_SPACE;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.lang.Math.max;
 import static java.lang.String.format;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.delete;
@@ -45,6 +55,7 @@ import static java.nio.file.Files.getFileStore;
 import static java.nio.file.Files.newDirectoryStream;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.function.Function.identity;
 
 public class FileSingleStreamSpillerFactory
         implements SingleStreamSpillerFactory
@@ -57,24 +68,35 @@ public class FileSingleStreamSpillerFactory
     static final String SPILL_FILE_SUFFIX = ".bin";
     private static final String SPILL_FILE_GLOB = "spill*.bin";
 
-    private final ListeningExecutorService executor;
+    private final Map<Path, ListeningExecutorService> executors;
     private final PagesSerdeFactory serdeFactory;
     private final List<Path> spillPaths;
     private final SpillerStats spillerStats;
     private final double maxUsedSpaceThreshold;
+    private final Optional<MBeanExporter> exporter;
     private int roundRobinIndex;
 
     @Inject
+    public FileSingleStreamSpillerFactory(BlockEncodingSerde blockEncodingSerde, SpillerStats spillerStats, FeaturesConfig featuresConfig, MBeanExporter exporter)
+    {
+        this(blockEncodingSerde, spillerStats, featuresConfig, Optional.of(requireNonNull(exporter, "exporter is null")));
+    }
+
     public FileSingleStreamSpillerFactory(BlockEncodingSerde blockEncodingSerde, SpillerStats spillerStats, FeaturesConfig featuresConfig)
+    {
+        this(blockEncodingSerde, spillerStats, featuresConfig, Optional.empty());
+    }
+
+    private FileSingleStreamSpillerFactory(BlockEncodingSerde blockEncodingSerde, SpillerStats spillerStats, FeaturesConfig featuresConfig, Optional<MBeanExporter> exporter)
     {
         this(
-                listeningDecorator(newFixedThreadPool(
-                        requireNonNull(featuresConfig, "featuresConfig is null").getSpillerThreads(),
-                        daemonThreadsNamed("binary-spiller-%s"))),
+                createPerPathExecutors(requireNonNull(featuresConfig, "featuresConfig is null").getSpillerSpillPaths(), featuresConfig.getSpillerThreads()),
                 blockEncodingSerde,
                 spillerStats,
-                requireNonNull(featuresConfig, "featuresConfig is null").getSpillerSpillPaths(),
-                requireNonNull(featuresConfig, "featuresConfig is null").getSpillMaxUsedSpaceThreshold());
+                featuresConfig.getSpillerSpillPaths(),
+                featuresConfig.getSpillMaxUsedSpaceThreshold(),
+                featuresConfig.isSpillCompressionEnabled(),
+                exporter);
     }
 
     @VisibleForTesting
@@ -85,9 +107,43 @@ public class FileSingleStreamSpillerFactory
             List<Path> spillPaths,
             double maxUsedSpaceThreshold)
     {
-        this.serdeFactory = new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), false);
-        this.executor = requireNonNull(executor, "executor is null");
+        this(executor, blockEncodingSerde, spillerStats, spillPaths, maxUsedSpaceThreshold, false);
+    }
+
+    @VisibleForTesting
+    public FileSingleStreamSpillerFactory(
+            ListeningExecutorService executor,
+            BlockEncodingSerde blockEncodingSerde,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            boolean compressionEnabled)
+    {
+        this(
+                requireNonNull(spillPaths, "spillPaths is null").stream()
+                        .distinct()
+                        .collect(toImmutableMap(identity(), path -> requireNonNull(executor, "executor is null"))),
+                blockEncodingSerde,
+                spillerStats,
+                spillPaths,
+                maxUsedSpaceThreshold,
+                compressionEnabled,
+                Optional.empty());
+    }
+
+    private FileSingleStreamSpillerFactory(
+            Map<Path, ListeningExecutorService> executors,
+            BlockEncodingSerde blockEncodingSerde,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            boolean compressionEnabled,
+            Optional<MBeanExporter> exporter)
+    {
+        this.serdeFactory = new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), compressionEnabled);
+        this.executors = ImmutableMap.copyOf(requireNonNull(executors, "executors is null"));
         this.spillerStats = requireNonNull(spillerStats, "spillerStats can not be null");
+        this.exporter = requireNonNull(exporter, "exporter is null");
         requireNonNull(spillPaths, "spillPaths is null");
         this.spillPaths = ImmutableList.copyOf(spillPaths);
         spillPaths.forEach(path -> {
@@ -107,16 +163,60 @@ public class FileSingleStreamSpillerFactory
         this.roundRobinIndex = 0;
     }
 
+    /**
+     * Spill paths are usually on separate disks, so each path gets its own threads
+     * and a saturated disk does not hold up spills to the other disks. The spiller
+     * threads are split between the paths, but every path gets at least one thread,
+     * so there are more threads than configured when there are more paths than threads.
+     */
+    private static Map<Path, ListeningExecutorService> createPerPathExecutors(List<Path> spillPaths, int spillerThreads)
+    {
+        List<Path> distinctPaths = spillPaths.stream()
+                .distinct()
+                .collect(toImmutableList());
+        if (distinctPaths.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        ImmutableMap.Builder<Path, ListeningExecutorService> executors = ImmutableMap.builder();
+        for (int i = 0; i < distinctPaths.size(); i++) {
+            int threadsPerPath = getThreadsPerPath(spillerThreads, distinctPaths.size(), i);
+            executors.put(distinctPaths.get(i), listeningDecorator(newFixedThreadPool(threadsPerPath, daemonThreadsNamed("binary-spiller-" + i + "-%s"))));
+        }
+        return executors.build();
+    }
+
+    @VisibleForTesting
+    static int getThreadsPerPath(int spillerThreads, int pathCount, int pathIndex)
+    {
+        // the first paths take the remainder, so the threads add up to the configured count
+        int threadsPerPath = spillerThreads / pathCount + (pathIndex < spillerThreads % pathCount ? 1 : 0);
+        return max(1, threadsPerPath);
+    }
+
     @PostConstruct
     public void cleanupOldSpillFiles()
     {
         spillPaths.forEach(FileSingleStreamSpillerFactory::cleanupOldSpillFiles);
     }
 
+    @PostConstruct
+    public void exportDiskStats()
+    {
+        exporter.ifPresent(exporter -> executors.keySet().forEach(path -> exporter.export(getDiskStatsName(path), spillerStats.getDiskStats(path))));
+    }
+
     @PreDestroy
     public void destroy()
     {
-        executor.shutdownNow();
+        exporter.ifPresent(exporter -> executors.keySet().forEach(path -> exporter.unexport(getDiskStatsName(path))));
+        ImmutableSet.copyOf(executors.values()).forEach(ListeningExecutorService::shutdownNow);
+    }
+
+    private static String getDiskStatsName(Path path)
+    {
+        return ObjectNames.builder(SpillerStats.class)
+                .withProperty("path", ObjectName.quote(path.toString()))
+                .build();
     }
 
     private static void cleanupOldSpillFiles(Path path)
@@ -140,7 +240,8 @@ public class FileSingleStreamSpillerFactory
     @Override
     public SingleStreamSpiller create(List<Type> types, SpillContext spillContext, LocalMemoryContext memoryContext)
     {
-        return new FileSingleStreamSpiller(serdeFactory.createPagesSerde(), executor, getNextSpillPath(), spillerStats, spillContext, memoryContext);
+        Path spillPath = getNextSpillPath();
+        return new FileSingleStreamSpiller(serdeFactory.createPagesSerde(), executors.get(spillPath), spillPath, spillerStats, spillContext, memoryContext);
     }
 
     private synchronized Path getNextSpillPath()
@@ -18,8 +18,6 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.Closeable;
 import java.util.Iterator;
-import java.util.List;
-import java.util.concurrent.Future;
 
 import static com.google.common.collect.Iterators.singletonIterator;
 
@@ -44,18 +42,21 @@ public interface SingleStreamSpiller
     /**
      * Returns list of previously spilled Pages as a single stream. Pages are in the same order
      * as they were spilled. Method requires the issued spill request to be completed.
+     * Spilled pages can be read more than once, but no more pages can be spilled after the first read.
      */
     Iterator<Page> getSpilledPages();
 
     /**
-     * Returns estimate size of pages that would be returned by {@link #getAllSpilledPages()}.
+     * Returns estimate size of pages that would be returned by {@link #getSpilledPages()}.
      */
     long getSpilledPagesInMemorySize();
 
     /**
-     * Initiates read of previously spilled pages. The returned {@link Future} will be complete once all pages are read.
+     * Initiates read of previously spilled pages in the background. Pages are read ahead into a buffer
+     * of at most {@code maxReadAheadBytes} and can be consumed as they arrive, so the spilled pages do
+     * not need to fit in memory at once. Method requires the issued spill request to be completed.
      */
-    ListenableFuture<List<Page>> getAllSpilledPages();
+    SpilledPageStream getSpilledPageStream(long maxReadAheadBytes);
 
     /**
      * Close releases/removes all underlying resources used during spilling
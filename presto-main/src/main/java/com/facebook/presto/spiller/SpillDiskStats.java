@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Spill traffic of a single spill path. The byte counters expose decayed rates in
+ * bytes per second, and the timers the latency of spilling a batch of pages to,
+ * and reading a page back from, the disk of the path.
+ */
+public class SpillDiskStats
+{
+    private final CounterStat writtenBytes = new CounterStat();
+    private final CounterStat readBytes = new CounterStat();
+    private final TimeStat writeTime = new TimeStat();
+    private final TimeStat readTime = new TimeStat();
+
+    public void recordWrite(long bytes, long nanos)
+    {
+        writtenBytes.update(bytes);
+        writeTime.add(nanos, NANOSECONDS);
+    }
+
+    public void recordRead(long bytes, long nanos)
+    {
+        readBytes.update(bytes);
+        readTime.add(nanos, NANOSECONDS);
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getWrittenBytes()
+    {
+        return writtenBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getReadBytes()
+    {
+        return readBytes;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getWriteTime()
+    {
+        return writeTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getReadTime()
+    {
+        return readTime;
+    }
+}
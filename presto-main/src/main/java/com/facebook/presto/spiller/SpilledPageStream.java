@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.presto.spi.Page;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stream of unspilled pages, which are read ahead on the given executor into a buffer
+ * bounded by {@code maxBufferedBytes}. The buffer always admits at least one page, so
+ * a page larger than the limit does not stall the stream. Reading stops while the buffer
+ * is full and resumes as pages are polled, so a consumer which processes pages as they
+ * arrive never holds more than the read ahead of a spill in memory.
+ */
+@ThreadSafe
+public class SpilledPageStream
+        implements Closeable
+{
+    private static final ListenableFuture<?> NOT_BLOCKED = immediateFuture(null);
+
+    // only accessed by the single scheduled read task
+    private final Iterator<Page> pages;
+    private final Executor executor;
+    private final long maxBufferedBytes;
+
+    @GuardedBy("this")
+    private final Queue<Page> buffer = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long bufferedBytes;
+    // the constructor schedules the first read
+    @GuardedBy("this")
+    private boolean reading = true;
+    @GuardedBy("this")
+    private boolean exhausted;
+    @GuardedBy("this")
+    private boolean closed;
+    @GuardedBy("this")
+    private Throwable failure;
+    @GuardedBy("this")
+    private SettableFuture<?> pageAvailable = SettableFuture.create();
+
+    public SpilledPageStream(Iterator<Page> pages, Executor executor, long maxBufferedBytes)
+    {
+        this.pages = requireNonNull(pages, "pages is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        checkArgument(maxBufferedBytes > 0, "maxBufferedBytes must be positive");
+        this.maxBufferedBytes = maxBufferedBytes;
+        executor.execute(this::read);
+    }
+
+    /**
+     * Returns a future which completes when a page can be polled or the stream is finished.
+     */
+    public synchronized ListenableFuture<?> isBlocked()
+    {
+        if (!buffer.isEmpty() || exhausted || closed || failure != null) {
+            return NOT_BLOCKED;
+        }
+        if (pageAvailable.isDone()) {
+            pageAvailable = SettableFuture.create();
+        }
+        return pageAvailable;
+    }
+
+    /**
+     * Returns the next buffered page, or null if no page has been read yet.
+     */
+    @Nullable
+    public Page pollPage()
+    {
+        Page page;
+        boolean scheduleRead;
+        synchronized (this) {
+            checkFailure();
+            page = buffer.poll();
+            if (page == null) {
+                return null;
+            }
+            bufferedBytes -= page.getRetainedSizeInBytes();
+            scheduleRead = !reading && !exhausted && !closed && bufferedBytes < maxBufferedBytes;
+            reading |= scheduleRead;
+        }
+        if (scheduleRead) {
+            executor.execute(this::read);
+        }
+        return page;
+    }
+
+    public synchronized boolean isFinished()
+    {
+        checkFailure();
+        return exhausted && buffer.isEmpty();
+    }
+
+    public synchronized long getBufferedBytes()
+    {
+        return bufferedBytes;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        closed = true;
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+
+    private void read()
+    {
+        while (true) {
+            synchronized (this) {
+                if (closed || bufferedBytes >= maxBufferedBytes) {
+                    reading = false;
+                    return;
+                }
+            }
+
+            Page page = null;
+            Throwable readFailure = null;
+            try {
+                if (pages.hasNext()) {
+                    page = pages.next();
+                }
+            }
+            catch (Throwable t) {
+                readFailure = t;
+            }
+
+            SettableFuture<?> future;
+            synchronized (this) {
+                if (readFailure != null) {
+                    failure = readFailure;
+                }
+                else if (page == null) {
+                    exhausted = true;
+                }
+                else if (!closed) {
+                    buffer.add(page);
+                    bufferedBytes += page.getRetainedSizeInBytes();
+                }
+                reading = page != null;
+                future = pageAvailable;
+            }
+            // complete the future outside of the lock, as it runs the listeners of the consumer
+            future.set(null);
+            if (page == null) {
+                return;
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void checkFailure()
+    {
+        if (failure != null) {
+            throwIfUnchecked(failure);
+            throw new RuntimeException(failure);
+        }
+    }
+}
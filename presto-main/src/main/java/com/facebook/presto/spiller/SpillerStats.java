@@ -13,13 +13,19 @@
  */
 package com.facebook.presto.spiller;
 
+import com.google.common.collect.ImmutableMap;
 import org.weakref.jmx.Managed;
 
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class SpillerStats
 {
     protected final AtomicLong totalSpilledBytes = new AtomicLong();
+    private final ConcurrentMap<Path, SpillDiskStats> diskStats = new ConcurrentHashMap<>();
 
     @Managed
     public long getTotalSpilledBytes()
@@ -31,4 +37,14 @@ public class SpillerStats
     {
         totalSpilledBytes.addAndGet(delta);
     }
+
+    public SpillDiskStats getDiskStats(Path spillPath)
+    {
+        return diskStats.computeIfAbsent(spillPath, path -> new SpillDiskStats());
+    }
+
+    public Map<Path, SpillDiskStats> getAllDiskStats()
+    {
+        return ImmutableMap.copyOf(diskStats);
+    }
 }
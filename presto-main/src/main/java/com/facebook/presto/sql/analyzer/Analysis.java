@@ -16,6 +16,7 @@ package com.facebook.presto.sql.analyzer;
 import com.facebook.presto.metadata.QualifiedObjectName;
 import com.facebook.presto.metadata.Signature;
 import com.facebook.presto.metadata.TableHandle;
+import com.facebook.presto.metadata.ViewDefinition;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.tree.ExistsPredicate;
@@ -95,6 +96,7 @@ public class Analysis
     private final ListMultimap<NodeRef<Node>, QuantifiedComparisonExpression> quantifiedComparisonSubqueries = ArrayListMultimap.create();
 
     private final Map<NodeRef<Table>, TableHandle> tables = new LinkedHashMap<>();
+    private final Map<QualifiedObjectName, ViewDefinition> views = new LinkedHashMap<>();
 
     private final Map<NodeRef<Expression>, Type> types = new LinkedHashMap<>();
     private final Map<NodeRef<Expression>, Type> coercions = new LinkedHashMap<>();
@@ -419,6 +421,16 @@ public class Analysis
         tables.put(NodeRef.of(table), handle);
     }
 
+    public Map<QualifiedObjectName, ViewDefinition> getViews()
+    {
+        return unmodifiableMap(views);
+    }
+
+    public void registerView(QualifiedObjectName name, ViewDefinition view)
+    {
+        views.put(name, view);
+    }
+
     public Signature getFunctionSignature(FunctionCall function)
     {
         return functionSignature.get(NodeRef.of(function));
@@ -480,6 +492,11 @@ public class Analysis
         return columns.get(field);
     }
 
+    public Collection<ColumnHandle> getColumnHandles()
+    {
+        return unmodifiableCollection(columns.values());
+    }
+
     public void setCreateTableDestination(QualifiedObjectName destination)
     {
         this.createTableDestination = Optional.of(destination);
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.sql.analyzer;
 
+import com.facebook.presto.execution.buffer.ExchangeCompressionCodec;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import io.airlift.configuration.Config;
@@ -24,13 +25,16 @@ import io.airlift.units.MaxDataSize;
 
 import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
 import static com.facebook.presto.sql.analyzer.RegexLibrary.JONI;
+import static com.facebook.presto.sql.planner.iterative.rule.ReorderJoins.MAX_REORDERED_JOINS_LIMIT;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -55,6 +59,7 @@ public class FeaturesConfig
     private boolean enableIntermediateAggregations;
     private boolean pushTableWriteThroughUnion = true;
     private boolean exchangeCompressionEnabled;
+    private ExchangeCompressionCodec exchangeCompressionCodec = ExchangeCompressionCodec.LZ4;
     private boolean legacyArrayAgg;
     private boolean legacyOrderBy;
     private boolean legacyMapSubscript;
@@ -69,10 +74,14 @@ public class FeaturesConfig
     private int re2JDfaRetries = 5;
     private RegexLibrary regexLibrary = JONI;
     private boolean spillEnabled;
+    private boolean spillOrderBy = true;
+    private boolean spillWindowOperator = true;
     private DataSize aggregationOperatorUnspillMemoryLimit = new DataSize(4, DataSize.Unit.MEGABYTE);
+    private DataSize joinOperatorUnspillMemoryLimit = new DataSize(256, DataSize.Unit.MEGABYTE);
     private List<Path> spillerSpillPaths = ImmutableList.of();
     private int spillerThreads = 4;
     private double spillMaxUsedSpaceThreshold = 0.9;
+    private boolean spillCompressionEnabled;
     private boolean iterativeOptimizerEnabled = true;
     private boolean pushAggregationThroughJoin = true;
     private double memoryRevokingTarget = 0.5;
@@ -83,6 +92,17 @@ public class FeaturesConfig
 
     private DataSize filterAndProjectMinOutputPageSize = new DataSize(25, KILOBYTE);
     private int filterAndProjectMinOutputPageRowCount = 256;
+    private boolean dynamicFilteringEnabled;
+    private boolean costBasedJoinReorderingEnabled;
+    private int maxReorderedJoins = 9;
+    private boolean automaticJoinDistributionType;
+    private DataSize joinMaxBroadcastTableSize = new DataSize(100, DataSize.Unit.MEGABYTE);
+    private boolean distributedSort;
+    private boolean offHeapGroupByHashEnabled;
+    private boolean adaptivePartialAggregationEnabled;
+    private int adaptivePartialAggregationMinRows = 100_000;
+    private double adaptivePartialAggregationUniqueRowsRatioThreshold = 0.8;
+    private boolean optimizeCommonSubExpressions = true;
 
     public boolean isResourceGroupsEnabled()
     {
@@ -329,6 +349,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSpillOrderBy()
+    {
+        return spillOrderBy;
+    }
+
+    @Config("experimental.spill-order-by")
+    @ConfigDescription("Spill in OrderBy if spill-enabled is also set")
+    public FeaturesConfig setSpillOrderBy(boolean spillOrderBy)
+    {
+        this.spillOrderBy = spillOrderBy;
+        return this;
+    }
+
+    public boolean isSpillWindowOperator()
+    {
+        return spillWindowOperator;
+    }
+
+    @Config("experimental.spill-window-operator")
+    @ConfigDescription("Spill in WindowOperator if spill-enabled is also set")
+    public FeaturesConfig setSpillWindowOperator(boolean spillWindowOperator)
+    {
+        this.spillWindowOperator = spillWindowOperator;
+        return this;
+    }
+
     public boolean isIterativeOptimizerEnabled()
     {
         return iterativeOptimizerEnabled;
@@ -365,6 +411,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public DataSize getJoinOperatorUnspillMemoryLimit()
+    {
+        return joinOperatorUnspillMemoryLimit;
+    }
+
+    @Config("experimental.join-operator-unspill-memory-limit")
+    @ConfigDescription("Size of a spilled join partition above which it is unspilled in multiple parts")
+    public FeaturesConfig setJoinOperatorUnspillMemoryLimit(DataSize joinOperatorUnspillMemoryLimit)
+    {
+        this.joinOperatorUnspillMemoryLimit = joinOperatorUnspillMemoryLimit;
+        return this;
+    }
+
     public List<Path> getSpillerSpillPaths()
     {
         return spillerSpillPaths;
@@ -432,6 +491,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSpillCompressionEnabled()
+    {
+        return spillCompressionEnabled;
+    }
+
+    @Config("experimental.spill-compression-enabled")
+    @ConfigDescription("Compress pages written to spill files")
+    public FeaturesConfig setSpillCompressionEnabled(boolean spillCompressionEnabled)
+    {
+        this.spillCompressionEnabled = spillCompressionEnabled;
+        return this;
+    }
+
     public boolean isOptimizeMixedDistinctAggregations()
     {
         return optimizeMixedDistinctAggregations;
@@ -456,6 +528,20 @@ public class FeaturesConfig
         return this;
     }
 
+    @NotNull
+    public ExchangeCompressionCodec getExchangeCompressionCodec()
+    {
+        return exchangeCompressionCodec;
+    }
+
+    @Config("exchange.compression-codec")
+    @ConfigDescription("Codec used to compress pages in exchanges when compression is enabled")
+    public FeaturesConfig setExchangeCompressionCodec(ExchangeCompressionCodec exchangeCompressionCodec)
+    {
+        this.exchangeCompressionCodec = exchangeCompressionCodec;
+        return this;
+    }
+
     public boolean isEnableIntermediateAggregations()
     {
         return enableIntermediateAggregations;
@@ -541,4 +627,153 @@ public class FeaturesConfig
         this.filterAndProjectMinOutputPageRowCount = filterAndProjectMinOutputPageRowCount;
         return this;
     }
+
+    public boolean isDynamicFilteringEnabled()
+    {
+        return dynamicFilteringEnabled;
+    }
+
+    @Config("experimental.enable-dynamic-filtering")
+    @ConfigDescription("Prune probe side scans of joins using the values of the build side join keys")
+    public FeaturesConfig setDynamicFilteringEnabled(boolean dynamicFilteringEnabled)
+    {
+        this.dynamicFilteringEnabled = dynamicFilteringEnabled;
+        return this;
+    }
+
+    public boolean isCostBasedJoinReorderingEnabled()
+    {
+        return costBasedJoinReorderingEnabled;
+    }
+
+    @Config("optimizer.cost-based-join-reordering-enabled")
+    @ConfigDescription("Experimental: Reorder joins and choose their distribution type based on estimated cost")
+    public FeaturesConfig setCostBasedJoinReorderingEnabled(boolean costBasedJoinReorderingEnabled)
+    {
+        this.costBasedJoinReorderingEnabled = costBasedJoinReorderingEnabled;
+        return this;
+    }
+
+    @Min(2)
+    @Max(MAX_REORDERED_JOINS_LIMIT)
+    public int getMaxReorderedJoins()
+    {
+        return maxReorderedJoins;
+    }
+
+    @Config("optimizer.max-reordered-joins")
+    @ConfigDescription("Maximum number of joined relations reordered at once by the cost based join reordering")
+    public FeaturesConfig setMaxReorderedJoins(int maxReorderedJoins)
+    {
+        this.maxReorderedJoins = maxReorderedJoins;
+        return this;
+    }
+
+    public boolean isAutomaticJoinDistributionType()
+    {
+        return automaticJoinDistributionType;
+    }
+
+    @Config("optimizer.automatic-join-distribution-type")
+    @ConfigDescription("Choose between replicated and partitioned joins based on the estimated size of the build side")
+    public FeaturesConfig setAutomaticJoinDistributionType(boolean automaticJoinDistributionType)
+    {
+        this.automaticJoinDistributionType = automaticJoinDistributionType;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getJoinMaxBroadcastTableSize()
+    {
+        return joinMaxBroadcastTableSize;
+    }
+
+    @Config("optimizer.join-max-broadcast-table-size")
+    @ConfigDescription("Maximum estimated size of the build side of a replicated join")
+    public FeaturesConfig setJoinMaxBroadcastTableSize(DataSize joinMaxBroadcastTableSize)
+    {
+        this.joinMaxBroadcastTableSize = joinMaxBroadcastTableSize;
+        return this;
+    }
+
+    public boolean isDistributedSortEnabled()
+    {
+        return distributedSort;
+    }
+
+    @Config("distributed-sort")
+    @ConfigDescription("Sort each partition of the input in parallel and merge the sorted streams on the final stage")
+    public FeaturesConfig setDistributedSortEnabled(boolean enabled)
+    {
+        distributedSort = enabled;
+        return this;
+    }
+
+    public boolean isOffHeapGroupByHashEnabled()
+    {
+        return offHeapGroupByHashEnabled;
+    }
+
+    @Config("experimental.off-heap-group-by-hash-enabled")
+    @ConfigDescription("Allocate the hash tables of hash aggregations outside of the Java heap")
+    public FeaturesConfig setOffHeapGroupByHashEnabled(boolean offHeapGroupByHashEnabled)
+    {
+        this.offHeapGroupByHashEnabled = offHeapGroupByHashEnabled;
+        return this;
+    }
+
+    public boolean isAdaptivePartialAggregationEnabled()
+    {
+        return adaptivePartialAggregationEnabled;
+    }
+
+    @Config("experimental.adaptive-partial-aggregation-enabled")
+    @ConfigDescription("Stop partial aggregation when it does not reduce the number of rows")
+    public FeaturesConfig setAdaptivePartialAggregationEnabled(boolean adaptivePartialAggregationEnabled)
+    {
+        this.adaptivePartialAggregationEnabled = adaptivePartialAggregationEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getAdaptivePartialAggregationMinRows()
+    {
+        return adaptivePartialAggregationMinRows;
+    }
+
+    @Config("experimental.adaptive-partial-aggregation-min-rows")
+    @ConfigDescription("Number of input rows a partial aggregation processes before deciding whether to stop aggregating")
+    public FeaturesConfig setAdaptivePartialAggregationMinRows(int adaptivePartialAggregationMinRows)
+    {
+        this.adaptivePartialAggregationMinRows = adaptivePartialAggregationMinRows;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getAdaptivePartialAggregationUniqueRowsRatioThreshold()
+    {
+        return adaptivePartialAggregationUniqueRowsRatioThreshold;
+    }
+
+    @Config("experimental.adaptive-partial-aggregation-unique-rows-ratio-threshold")
+    @ConfigDescription("Ratio of groups to input rows above which partial aggregation is stopped")
+    public FeaturesConfig setAdaptivePartialAggregationUniqueRowsRatioThreshold(double adaptivePartialAggregationUniqueRowsRatioThreshold)
+    {
+        this.adaptivePartialAggregationUniqueRowsRatioThreshold = adaptivePartialAggregationUniqueRowsRatioThreshold;
+        return this;
+    }
+
+    public boolean isOptimizeCommonSubExpressions()
+    {
+        return optimizeCommonSubExpressions;
+    }
+
+    @Config("optimizer.optimize-common-sub-expressions")
+    @ConfigDescription("Evaluate the subexpressions shared by the projections of a filter and project once per batch")
+    public FeaturesConfig setOptimizeCommonSubExpressions(boolean optimizeCommonSubExpressions)
+    {
+        this.optimizeCommonSubExpressions = optimizeCommonSubExpressions;
+        return this;
+    }
 }
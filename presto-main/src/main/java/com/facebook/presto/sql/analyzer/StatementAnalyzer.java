@@ -790,6 +790,7 @@ class StatementAnalyzer
                     throw new SemanticException(VIEW_IS_RECURSIVE, table, "View is recursive");
                 }
                 ViewDefinition view = optionalView.get();
+                analysis.registerView(name, view);
 
                 Query query = parseView(view.getOriginalSql(), name, table);
 
@@ -16,11 +16,13 @@ package com.facebook.presto.sql.gen;
 import com.facebook.presto.bytecode.ClassDefinition;
 import com.facebook.presto.bytecode.CompilationException;
 import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.operator.project.CommonSubExpressionRewriter;
 import com.facebook.presto.operator.project.CursorProcessor;
 import com.facebook.presto.operator.project.PageFilter;
 import com.facebook.presto.operator.project.PageProcessor;
 import com.facebook.presto.operator.project.PageProjection;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.sql.relational.DeterminismEvaluator;
 import com.facebook.presto.sql.relational.RowExpression;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -42,6 +44,7 @@ import static com.facebook.presto.bytecode.Access.a;
 import static com.facebook.presto.bytecode.CompilerUtils.defineClass;
 import static com.facebook.presto.bytecode.CompilerUtils.makeClassName;
 import static com.facebook.presto.bytecode.ParameterizedType.type;
+import static com.facebook.presto.operator.project.CommonSubExpressionRewriter.rewriteCommonSubExpressions;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.sql.gen.BytecodeUtils.invoke;
@@ -53,6 +56,7 @@ import static java.util.Objects.requireNonNull;
 public class ExpressionCompiler
 {
     private final PageFunctionCompiler pageFunctionCompiler;
+    private final DeterminismEvaluator determinismEvaluator;
     private final LoadingCache<CacheKey, Class<? extends CursorProcessor>> cursorProcessors;
     private final CacheStatsMBean cacheStatsMBean;
 
@@ -61,6 +65,7 @@ public class ExpressionCompiler
     {
         requireNonNull(metadata, "metadata is null");
         this.pageFunctionCompiler = requireNonNull(pageFunctionCompiler, "pageFunctionCompiler is null");
+        this.determinismEvaluator = new DeterminismEvaluator(metadata.getFunctionRegistry());
         this.cursorProcessors = CacheBuilder.newBuilder()
                 .recordStats()
                 .maximumSize(1000)
@@ -89,18 +94,40 @@ public class ExpressionCompiler
     }
 
     public Supplier<PageProcessor> compilePageProcessor(Optional<RowExpression> filter, List<? extends RowExpression> projections, Optional<String> classNameSuffix)
+    {
+        return compilePageProcessor(filter, projections, classNameSuffix, true);
+    }
+
+    public Supplier<PageProcessor> compilePageProcessor(
+            Optional<RowExpression> filter,
+            List<? extends RowExpression> projections,
+            Optional<String> classNameSuffix,
+            boolean optimizeCommonSubExpressions)
     {
         Optional<Supplier<PageFilter>> filterFunctionSupplier = filter.map(expression -> pageFunctionCompiler.compileFilter(expression, classNameSuffix));
-        List<Supplier<PageProjection>> pageProjectionSuppliers = projections.stream()
+
+        // the filter is evaluated for all positions before the projections, so only the subexpressions
+        // shared by the projections are evaluated once
+        CommonSubExpressionRewriter.Result result = optimizeCommonSubExpressions
+                ? rewriteCommonSubExpressions(projections, determinismEvaluator)
+                : new CommonSubExpressionRewriter.Result(ImmutableList.of(), 0, ImmutableList.copyOf(projections));
+        List<Supplier<PageProjection>> commonSubExpressionSuppliers = result.getCommonSubExpressions().stream()
+                .map(expression -> pageFunctionCompiler.compileProjection(expression, classNameSuffix))
+                .collect(toImmutableList());
+        int commonSubExpressionChannel = result.getCommonSubExpressionChannel();
+        List<Supplier<PageProjection>> pageProjectionSuppliers = result.getRewrittenProjections().stream()
                 .map(projection -> pageFunctionCompiler.compileProjection(projection, classNameSuffix))
                 .collect(toImmutableList());
 
         return () -> {
             Optional<PageFilter> filterFunction = filterFunctionSupplier.map(Supplier::get);
+            List<PageProjection> commonSubExpressions = commonSubExpressionSuppliers.stream()
+                    .map(Supplier::get)
+                    .collect(toImmutableList());
             List<PageProjection> pageProjections = pageProjectionSuppliers.stream()
                     .map(Supplier::get)
                     .collect(toImmutableList());
-            return new PageProcessor(filterFunction, pageProjections);
+            return new PageProcessor(filterFunction, commonSubExpressions, commonSubExpressionChannel, pageProjections);
         };
     }
 
@@ -226,6 +226,7 @@ public class JoinCompiler
         generatePositionEqualsPositionMethod(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields, true);
         generatePositionEqualsPositionMethod(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields, false);
         generateIsPositionNull(classDefinition, joinChannelFields);
+        generateBigintKeyMethods(classDefinition, callSiteBinder, joinChannelTypes, joinChannelFields);
         generateCompareSortChannelPositionsMethod(classDefinition, callSiteBinder, types, channelFields, sortChannel);
         generateIsSortChannelPositionNull(classDefinition, channelFields, sortChannel);
 
@@ -396,6 +397,39 @@ public class JoinCompiler
                 .append(constantFalse().ret());
     }
 
+    private static void generateBigintKeyMethods(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, List<Type> joinChannelTypes, List<FieldDefinition> joinChannelFields)
+    {
+        // other key types inherit the defaults of PagesHashStrategy
+        if (joinChannelTypes.size() != 1 || !joinChannelTypes.get(0).equals(BigintType.BIGINT)) {
+            return;
+        }
+
+        classDefinition.declareMethod(
+                a(PUBLIC),
+                "isSingleBigintKey",
+                type(boolean.class))
+                .getBody()
+                .append(constantTrue().ret());
+
+        Parameter blockIndex = arg("blockIndex", int.class);
+        Parameter blockPosition = arg("blockPosition", int.class);
+        MethodDefinition getBigintKeyMethod = classDefinition.declareMethod(
+                a(PUBLIC),
+                "getBigintKey",
+                type(long.class),
+                blockIndex,
+                blockPosition);
+
+        BytecodeExpression block = getBigintKeyMethod
+                .getThis()
+                .getField(joinChannelFields.get(0))
+                .invoke("get", Object.class, blockIndex)
+                .cast(Block.class);
+
+        getBigintKeyMethod.getBody()
+                .append(constantType(callSiteBinder, BigintType.BIGINT).invoke("getLong", long.class, block, blockPosition).ret());
+    }
+
     private static void generateHashPositionMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, List<Type> joinChannelTypes, List<FieldDefinition> joinChannelFields, FieldDefinition hashChannelField)
     {
         Parameter blockIndex = arg("blockIndex", int.class);
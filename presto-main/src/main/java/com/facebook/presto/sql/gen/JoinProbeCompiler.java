@@ -56,6 +56,7 @@ import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.concurrent.ExecutionException;
 
@@ -69,6 +70,7 @@ import static com.facebook.presto.bytecode.Parameter.arg;
 import static com.facebook.presto.bytecode.ParameterizedType.type;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantInt;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantLong;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.invokeStatic;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newInstance;
 import static com.facebook.presto.bytecode.instruction.TypeInstruction.newPrimitiveArray;
 import static com.facebook.presto.sql.gen.SqlTypeBytecodeExpression.constantType;
@@ -221,6 +223,8 @@ public class JoinProbeCompiler
         generateCurrentRowContainsNull(classDefinition, probeBlockFields, positionField);
         generateGetPosition(classDefinition, positionField);
         generateGetPage(classDefinition, pageField);
+        generateGetProbePage(classDefinition, probePageField);
+        generateGetProbeHashBlock(classDefinition, probeHashChannel, probeHashBlockField);
 
         return defineClass(classDefinition, JoinProbe.class, callSiteBinder.getBindings(), getClass().getClassLoader());
     }
@@ -499,6 +503,37 @@ public class JoinProbeCompiler
                 .ret(Page.class);
     }
 
+    private static void generateGetProbePage(ClassDefinition classDefinition, FieldDefinition probePageField)
+    {
+        MethodDefinition method = classDefinition.declareMethod(
+                a(PUBLIC),
+                "getProbePage",
+                type(Page.class));
+        Variable thisVariable = method.getThis();
+        method.getBody()
+                .append(thisVariable.getField(probePageField))
+                .ret(Page.class);
+    }
+
+    private static void generateGetProbeHashBlock(ClassDefinition classDefinition, OptionalInt probeHashChannel, FieldDefinition probeHashBlockField)
+    {
+        MethodDefinition method = classDefinition.declareMethod(
+                a(PUBLIC),
+                "getProbeHashBlock",
+                type(Optional.class));
+        Variable thisVariable = method.getThis();
+        if (probeHashChannel.isPresent()) {
+            method.getBody()
+                    .append(invokeStatic(Optional.class, "of", Optional.class, ImmutableList.of(Object.class), thisVariable.getField(probeHashBlockField)))
+                    .ret(Optional.class);
+        }
+        else {
+            method.getBody()
+                    .append(invokeStatic(Optional.class, "empty", Optional.class))
+                    .ret(Optional.class);
+        }
+    }
+
     public static class ReflectionJoinProbeFactory
             implements JoinProbeFactory
     {
@@ -21,11 +21,14 @@ import com.facebook.presto.bytecode.Scope;
 import com.facebook.presto.bytecode.Variable;
 import com.facebook.presto.bytecode.expression.BytecodeExpression;
 import com.facebook.presto.bytecode.instruction.LabelNode;
+import com.facebook.presto.operator.PageWithPositionComparator;
 import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.operator.PagesIndexComparator;
 import com.facebook.presto.operator.PagesIndexOrdering;
+import com.facebook.presto.operator.SimplePageWithPositionComparator;
 import com.facebook.presto.operator.SimplePagesIndexComparator;
 import com.facebook.presto.operator.SyntheticAddress;
+import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
@@ -69,6 +72,11 @@ public class OrderingCompiler
             .maximumSize(1000)
             .build(CacheLoader.from(key -> internalCompilePagesIndexOrdering(key.getSortTypes(), key.getSortChannels(), key.getSortOrders())));
 
+    private final LoadingCache<PagesIndexComparatorCacheKey, PageWithPositionComparator> pageWithPositionComparators = CacheBuilder.newBuilder()
+            .recordStats()
+            .maximumSize(1000)
+            .build(CacheLoader.from(key -> internalCompilePageWithPositionComparator(key.getSortTypes(), key.getSortChannels(), key.getSortOrders())));
+
     @Managed
     @Nested
     public CacheStatsMBean getPagesIndexOrderingsStats()
@@ -76,6 +84,13 @@ public class OrderingCompiler
         return new CacheStatsMBean(pagesIndexOrderings);
     }
 
+    @Managed
+    @Nested
+    public CacheStatsMBean getPageWithPositionComparatorsStats()
+    {
+        return new CacheStatsMBean(pageWithPositionComparators);
+    }
+
     public PagesIndexOrdering compilePagesIndexOrdering(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
     {
         requireNonNull(sortTypes, "sortTypes is null");
@@ -225,6 +240,101 @@ public class OrderingCompiler
                 .retInt();
     }
 
+    public PageWithPositionComparator compilePageWithPositionComparator(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        requireNonNull(sortTypes, "sortTypes is null");
+        requireNonNull(sortChannels, "sortChannels is null");
+        requireNonNull(sortOrders, "sortOrders is null");
+
+        try {
+            return pageWithPositionComparators.get(new PagesIndexComparatorCacheKey(sortTypes, sortChannels, sortOrders));
+        }
+        catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @VisibleForTesting
+    public PageWithPositionComparator internalCompilePageWithPositionComparator(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        requireNonNull(sortChannels, "sortChannels is null");
+        requireNonNull(sortOrders, "sortOrders is null");
+
+        try {
+            return compilePageWithPositionComparatorClass(sortTypes, sortChannels, sortOrders).newInstance();
+        }
+        catch (Throwable e) {
+            log.error(e, "Error compiling comparator for channels %s with order %s", sortChannels, sortOrders);
+            return new SimplePageWithPositionComparator(sortTypes, sortChannels, sortOrders);
+        }
+    }
+
+    private Class<? extends PageWithPositionComparator> compilePageWithPositionComparatorClass(
+            List<Type> sortTypes,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrders)
+    {
+        CallSiteBinder callSiteBinder = new CallSiteBinder();
+
+        ClassDefinition classDefinition = new ClassDefinition(
+                a(PUBLIC, FINAL),
+                makeClassName("PageWithPositionComparator"),
+                type(Object.class),
+                type(PageWithPositionComparator.class));
+
+        classDefinition.declareDefaultConstructor(a(PUBLIC));
+        generatePageWithPositionCompareTo(classDefinition, callSiteBinder, sortTypes, sortChannels, sortOrders);
+
+        return defineClass(classDefinition, PageWithPositionComparator.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+    }
+
+    private static void generatePageWithPositionCompareTo(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        Parameter leftPage = arg("leftPage", Page.class);
+        Parameter leftPosition = arg("leftPosition", int.class);
+        Parameter rightPage = arg("rightPage", Page.class);
+        Parameter rightPosition = arg("rightPosition", int.class);
+        MethodDefinition compareToMethod = classDefinition.declareMethod(a(PUBLIC), "compareTo", type(int.class), leftPage, leftPosition, rightPage, rightPosition);
+
+        for (int i = 0; i < sortChannels.size(); i++) {
+            int sortChannel = sortChannels.get(i);
+            SortOrder sortOrder = sortOrders.get(i);
+
+            BytecodeBlock block = new BytecodeBlock()
+                    .setDescription("compare channel " + sortChannel + " " + sortOrder);
+
+            Type sortType = sortTypes.get(i);
+
+            BytecodeExpression leftBlock = leftPage.invoke("getBlock", Block.class, constantInt(sortChannel));
+            BytecodeExpression rightBlock = rightPage.invoke("getBlock", Block.class, constantInt(sortChannel));
+
+            block.append(getStatic(SortOrder.class, sortOrder.name())
+                    .invoke("compareBlockValue",
+                            int.class,
+                            ImmutableList.of(Type.class, Block.class, int.class, Block.class, int.class),
+                            constantType(callSiteBinder, sortType),
+                            leftBlock,
+                            leftPosition,
+                            rightBlock,
+                            rightPosition));
+
+            LabelNode equal = new LabelNode("equal");
+            block.comment("if (compare != 0) return compare")
+                    .dup()
+                    .ifZeroGoto(equal)
+                    .retInt()
+                    .visitLabel(equal)
+                    .pop(int.class);
+
+            compareToMethod.getBody().append(block);
+        }
+
+        // values are equal
+        compareToMethod.getBody()
+                .push(0)
+                .retInt();
+    }
+
     private static final class PagesIndexComparatorCacheKey
     {
         private final List<Type> sortTypes;
@@ -39,10 +39,12 @@ import com.facebook.presto.operator.HashBuilderOperator.HashBuilderOperatorFacto
 import com.facebook.presto.operator.HashSemiJoinOperator.HashSemiJoinOperatorFactory;
 import com.facebook.presto.operator.JoinOperatorFactory;
 import com.facebook.presto.operator.LimitOperator.LimitOperatorFactory;
+import com.facebook.presto.operator.LocalDynamicFilter;
 import com.facebook.presto.operator.LocalPlannerAware;
 import com.facebook.presto.operator.LookupJoinOperators;
 import com.facebook.presto.operator.LookupSourceFactory;
 import com.facebook.presto.operator.MarkDistinctOperator.MarkDistinctOperatorFactory;
+import com.facebook.presto.operator.MergeOperator.MergeOperatorFactory;
 import com.facebook.presto.operator.MetadataDeleteOperator.MetadataDeleteOperatorFactory;
 import com.facebook.presto.operator.NestedLoopJoinPagesSupplier;
 import com.facebook.presto.operator.OperatorFactory;
@@ -93,6 +95,7 @@ import com.facebook.presto.spi.RecordSet;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.predicate.NullableValue;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.spiller.SingleStreamSpillerFactory;
@@ -104,6 +107,7 @@ import com.facebook.presto.sql.gen.ExpressionCompiler;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler.JoinFilterFunctionFactory;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.facebook.presto.sql.gen.PageFunctionCompiler;
 import com.facebook.presto.sql.parser.SqlParser;
 import com.facebook.presto.sql.planner.Partitioning.ArgumentBinding;
@@ -125,6 +129,7 @@ import com.facebook.presto.sql.planner.plan.JoinNode;
 import com.facebook.presto.sql.planner.plan.LimitNode;
 import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
 import com.facebook.presto.sql.planner.plan.MetadataDeleteNode;
+import com.facebook.presto.sql.planner.plan.OrderingScheme;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
@@ -172,6 +177,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -184,12 +190,18 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.SystemSessionProperties.getAggregationOperatorUnspillMemoryLimit;
+import static com.facebook.presto.SystemSessionProperties.getExchangeCompressionCodec;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageRowCount;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageSize;
 import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
 import static com.facebook.presto.SystemSessionProperties.getTaskWriterCount;
+import static com.facebook.presto.SystemSessionProperties.isEnableDynamicFiltering;
 import static com.facebook.presto.SystemSessionProperties.isExchangeCompressionEnabled;
+import static com.facebook.presto.SystemSessionProperties.isOffHeapGroupByHashEnabled;
+import static com.facebook.presto.SystemSessionProperties.isOptimizeCommonSubExpressions;
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSpillOrderBy;
+import static com.facebook.presto.SystemSessionProperties.isSpillWindowOperator;
 import static com.facebook.presto.metadata.FunctionKind.SCALAR;
 import static com.facebook.presto.operator.DistinctLimitOperator.DistinctLimitOperatorFactory;
 import static com.facebook.presto.operator.NestedLoopBuildOperator.NestedLoopBuildOperatorFactory;
@@ -210,6 +222,7 @@ import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_BRO
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Scope.LOCAL;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.FULL;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.RIGHT;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.CreateHandle;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.InsertHandle;
@@ -231,6 +244,7 @@ import static java.util.stream.IntStream.range;
 public class LocalExecutionPlanner
 {
     private static final Logger log = Logger.get(LocalExecutionPlanner.class);
+    private static final int DYNAMIC_FILTER_MAX_DISTINCT_VALUES = 1_000;
 
     private final Metadata metadata;
     private final SqlParser sqlParser;
@@ -257,6 +271,7 @@ public class LocalExecutionPlanner
     private final PagesIndex.Factory pagesIndexFactory;
     private final JoinCompiler joinCompiler;
     private final LookupJoinOperators lookupJoinOperators;
+    private final OrderingCompiler orderingCompiler;
 
     @Inject
     public LocalExecutionPlanner(
@@ -281,7 +296,8 @@ public class LocalExecutionPlanner
             BlockEncodingSerde blockEncodingSerde,
             PagesIndex.Factory pagesIndexFactory,
             JoinCompiler joinCompiler,
-            LookupJoinOperators lookupJoinOperators)
+            LookupJoinOperators lookupJoinOperators,
+            OrderingCompiler orderingCompiler)
     {
         requireNonNull(compilerConfig, "compilerConfig is null");
         this.queryPerformanceFetcher = requireNonNull(queryPerformanceFetcher, "queryPerformanceFetcher is null");
@@ -307,6 +323,7 @@ public class LocalExecutionPlanner
         this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
         this.lookupJoinOperators = requireNonNull(lookupJoinOperators, "lookupJoinOperators is null");
+        this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
 
         interpreterEnabled = compilerConfig.isInterpreterEnabled();
     }
@@ -409,7 +426,7 @@ public class LocalExecutionPlanner
                                 plan.getId(),
                                 outputTypes,
                                 pagePreprocessor,
-                                new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session))))
+                                new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session), getExchangeCompressionCodec(session))))
                         .build(),
                 context.getDriverInstanceCount());
 
@@ -465,6 +482,7 @@ public class LocalExecutionPlanner
 
         // this is shared with all subContexts
         private AtomicInteger nextPipelineId;
+        private final Map<PlanNodeId, LocalDynamicFilter> dynamicFilters;
 
         private int nextOperatorId;
         private boolean inputDriver = true;
@@ -472,7 +490,7 @@ public class LocalExecutionPlanner
 
         public LocalExecutionPlanContext(TaskContext taskContext, Map<Symbol, Type> types)
         {
-            this(taskContext, types, new ArrayList<>(), Optional.empty(), new AtomicInteger(0));
+            this(taskContext, types, new ArrayList<>(), Optional.empty(), new AtomicInteger(0), new HashMap<>());
         }
 
         private LocalExecutionPlanContext(
@@ -480,13 +498,15 @@ public class LocalExecutionPlanner
                 Map<Symbol, Type> types,
                 List<DriverFactory> driverFactories,
                 Optional<IndexSourceContext> indexSourceContext,
-                AtomicInteger nextPipelineId)
+                AtomicInteger nextPipelineId,
+                Map<PlanNodeId, LocalDynamicFilter> dynamicFilters)
         {
             this.taskContext = taskContext;
             this.types = types;
             this.driverFactories = driverFactories;
             this.indexSourceContext = indexSourceContext;
             this.nextPipelineId = nextPipelineId;
+            this.dynamicFilters = dynamicFilters;
         }
 
         public void addDriverFactory(boolean inputDriver, boolean outputDriver, List<OperatorFactory> operatorFactories, OptionalInt driverInstances)
@@ -542,12 +562,26 @@ public class LocalExecutionPlanner
         public LocalExecutionPlanContext createSubContext()
         {
             checkState(!indexSourceContext.isPresent(), "index build plan can not have sub-contexts");
-            return new LocalExecutionPlanContext(taskContext, types, driverFactories, indexSourceContext, nextPipelineId);
+            return new LocalExecutionPlanContext(taskContext, types, driverFactories, indexSourceContext, nextPipelineId, dynamicFilters);
         }
 
         public LocalExecutionPlanContext createIndexSourceSubContext(IndexSourceContext indexSourceContext)
         {
-            return new LocalExecutionPlanContext(taskContext, types, driverFactories, Optional.of(indexSourceContext), nextPipelineId);
+            return new LocalExecutionPlanContext(taskContext, types, driverFactories, Optional.of(indexSourceContext), nextPipelineId, dynamicFilters);
+        }
+
+        public void addDynamicFilter(PlanNodeId tableScanId, LocalDynamicFilter dynamicFilter)
+        {
+            checkState(dynamicFilters.putIfAbsent(tableScanId, dynamicFilter) == null, "dynamic filter already registered for %s", tableScanId);
+        }
+
+        public Supplier<TupleDomain<ColumnHandle>> getDynamicFilter(PlanNodeId tableScanId)
+        {
+            LocalDynamicFilter dynamicFilter = dynamicFilters.get(tableScanId);
+            if (dynamicFilter == null) {
+                return TupleDomain::all;
+            }
+            return dynamicFilter::getCurrentPredicate;
         }
 
         public OptionalInt getDriverInstanceCount()
@@ -610,6 +644,10 @@ public class LocalExecutionPlanner
         {
             List<Type> types = getSourceOperatorTypes(node, context.getTypes());
 
+            if (node.getOrderingScheme().isPresent()) {
+                return createMergeSource(node, types, context);
+            }
+
             if (!context.getDriverInstanceCount().isPresent()) {
                 context.setDriverInstanceCount(getTaskConcurrency(session));
             }
@@ -618,12 +656,38 @@ public class LocalExecutionPlanner
                     context.getNextOperatorId(),
                     node.getId(),
                     exchangeClientSupplier,
-                    new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session)),
+                    new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session), getExchangeCompressionCodec(session)),
                     types);
 
             return new PhysicalOperation(operatorFactory, makeLayout(node));
         }
 
+        private PhysicalOperation createMergeSource(RemoteSourceNode node, List<Type> types, LocalExecutionPlanContext context)
+        {
+            // merging the sorted streams of all upstream tasks is inherently sequential
+            context.setDriverInstanceCount(1);
+
+            OrderingScheme orderingScheme = node.getOrderingScheme().get();
+            ImmutableMap<Symbol, Integer> layout = makeLayout(node);
+            List<Integer> sortChannels = getChannelsForSymbols(orderingScheme.getOrderBy(), layout);
+            List<Type> sortTypes = sortChannels.stream()
+                    .map(types::get)
+                    .collect(toImmutableList());
+            List<SortOrder> sortOrders = orderingScheme.getOrderBy().stream()
+                    .map(orderingScheme.getOrderings()::get)
+                    .collect(toImmutableList());
+
+            OperatorFactory operatorFactory = new MergeOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    exchangeClientSupplier,
+                    new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session), getExchangeCompressionCodec(session)),
+                    types,
+                    orderingCompiler.compilePageWithPositionComparator(sortTypes, sortChannels, sortOrders));
+
+            return new PhysicalOperation(operatorFactory, layout);
+        }
+
         @Override
         public PhysicalOperation visitExplainAnalyze(ExplainAnalyzeNode node, LocalExecutionPlanContext context)
         {
@@ -796,6 +860,11 @@ public class LocalExecutionPlanner
                 channel++;
             }
 
+            Optional<SpillerFactory> windowSpillerFactory = Optional.empty();
+            if (isSpillEnabled(context.getSession()) && isSpillWindowOperator(context.getSession())) {
+                windowSpillerFactory = Optional.of(spillerFactory);
+            }
+
             OperatorFactory operatorFactory = new WindowOperatorFactory(
                     context.getNextOperatorId(),
                     node.getId(),
@@ -808,7 +877,8 @@ public class LocalExecutionPlanner
                     sortOrder,
                     node.getPreSortedOrderPrefix(),
                     10_000,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    windowSpillerFactory);
 
             return new PhysicalOperation(operatorFactory, outputMappings.build(), source);
         }
@@ -833,7 +903,8 @@ public class LocalExecutionPlanner
                     source.getTypes(),
                     (int) node.getCount(),
                     sortChannels,
-                    sortOrders);
+                    sortOrders,
+                    orderingCompiler);
 
             return new PhysicalOperation(operator, source.getLayout(), source);
         }
@@ -857,6 +928,11 @@ public class LocalExecutionPlanner
                 outputChannels.add(i);
             }
 
+            Optional<SpillerFactory> orderBySpillerFactory = Optional.empty();
+            if (isSpillEnabled(context.getSession()) && isSpillOrderBy(context.getSession())) {
+                orderBySpillerFactory = Optional.of(spillerFactory);
+            }
+
             OperatorFactory operator = new OrderByOperatorFactory(
                     context.getNextOperatorId(),
                     node.getId(),
@@ -865,7 +941,8 @@ public class LocalExecutionPlanner
                     10_000,
                     orderByChannels,
                     sortOrder.build(),
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    orderBySpillerFactory);
 
             return new PhysicalOperation(operator, source.getLayout(), source);
         }
@@ -959,8 +1036,9 @@ public class LocalExecutionPlanner
 
             boolean spillEnabled = isSpillEnabled(context.getSession());
             DataSize unspillMemoryLimit = getAggregationOperatorUnspillMemoryLimit(context.getSession());
+            boolean offHeapGroupByHash = isOffHeapGroupByHashEnabled(context.getSession());
 
-            return planGroupByAggregation(node, source, context.getNextOperatorId(), spillEnabled, unspillMemoryLimit);
+            return planGroupByAggregation(node, source, context.getNextOperatorId(), spillEnabled, unspillMemoryLimit, offHeapGroupByHash);
         }
 
         @Override
@@ -1090,7 +1168,7 @@ public class LocalExecutionPlanner
             try {
                 if (columns != null) {
                     Supplier<CursorProcessor> cursorProcessor = expressionCompiler.compileCursorProcessor(translatedFilter, translatedProjections, sourceNode.getId());
-                    Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(translatedFilter, translatedProjections, Optional.of(context.getStageId() + "_" + planNodeId));
+                    Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(translatedFilter, translatedProjections, Optional.of(context.getStageId() + "_" + planNodeId), isOptimizeCommonSubExpressions(session));
 
                     SourceOperatorFactory operatorFactory = new ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory(
                             context.getNextOperatorId(),
@@ -1100,6 +1178,7 @@ public class LocalExecutionPlanner
                             cursorProcessor,
                             pageProcessor,
                             columns,
+                            context.getDynamicFilter(sourceNode.getId()),
                             getTypes(rewrittenProjections, expressionTypes),
                             getFilterAndProjectMinOutputPageSize(session),
                             getFilterAndProjectMinOutputPageRowCount(session));
@@ -1107,7 +1186,7 @@ public class LocalExecutionPlanner
                     return new PhysicalOperation(operatorFactory, outputMappings);
                 }
                 else {
-                    Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(translatedFilter, translatedProjections, Optional.of(context.getStageId() + "_" + planNodeId));
+                    Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(translatedFilter, translatedProjections, Optional.of(context.getStageId() + "_" + planNodeId), isOptimizeCommonSubExpressions(session));
 
                     OperatorFactory operatorFactory = new FilterAndProjectOperator.FilterAndProjectOperatorFactory(
                             context.getNextOperatorId(),
@@ -1156,6 +1235,7 @@ public class LocalExecutionPlanner
                         () -> cursorProcessor,
                         () -> pageProcessor,
                         columns,
+                        context.getDynamicFilter(sourceNode.getId()),
                         getTypes(rewrittenProjections, expressionTypes),
                         getFilterAndProjectMinOutputPageSize(session),
                         getFilterAndProjectMinOutputPageRowCount(session));
@@ -1213,7 +1293,7 @@ public class LocalExecutionPlanner
             }
 
             List<Type> types = getSourceOperatorTypes(node, context.getTypes());
-            OperatorFactory operatorFactory = new TableScanOperatorFactory(context.getNextOperatorId(), node.getId(), pageSourceProvider, types, columns);
+            OperatorFactory operatorFactory = new TableScanOperatorFactory(context.getNextOperatorId(), node.getId(), pageSourceProvider, types, columns, context.getDynamicFilter(node.getId()));
             return new PhysicalOperation(operatorFactory, makeLayout(node));
         }
 
@@ -1567,11 +1647,14 @@ public class LocalExecutionPlanner
                 Optional<Symbol> buildHashSymbol,
                 LocalExecutionPlanContext context)
         {
+            // The dynamic filter must be registered before the probe scan is planned
+            Optional<LocalDynamicFilter> dynamicFilter = createDynamicFilter(node, probeNode, probeSymbols, buildSymbols, context);
+
             // Plan probe
             PhysicalOperation probeSource = probeNode.accept(this, context);
 
             // Plan build
-            LookupSourceFactory lookupSourceFactory = createLookupSourceFactory(node, buildNode, buildSymbols, buildHashSymbol, probeSource.getLayout(), context);
+            LookupSourceFactory lookupSourceFactory = createLookupSourceFactory(node, buildNode, buildSymbols, buildHashSymbol, probeSource.getLayout(), dynamicFilter, context);
 
             OperatorFactory operator = createLookupJoin(node, probeSource, probeSymbols, probeHashSymbol, lookupSourceFactory, context);
 
@@ -1585,12 +1668,62 @@ public class LocalExecutionPlanner
             return new PhysicalOperation(operator, outputMappings.build(), probeSource);
         }
 
+        /**
+         * Creates a filter on the probe side table scan from the build side join keys, when
+         * the probe is a (possibly filtered and projected) table scan planned in this task
+         * and the join drops unmatched probe rows.
+         */
+        private Optional<LocalDynamicFilter> createDynamicFilter(
+                JoinNode node,
+                PlanNode probeNode,
+                List<Symbol> probeSymbols,
+                List<Symbol> buildSymbols,
+                LocalExecutionPlanContext context)
+        {
+            if (!isEnableDynamicFiltering(context.getSession()) || (node.getType() != INNER && node.getType() != RIGHT)) {
+                return Optional.empty();
+            }
+
+            // probe symbols must reach the join unchanged from the scan
+            Set<Symbol> passThroughSymbols = new HashSet<>(probeSymbols);
+            PlanNode source = probeNode;
+            while (source instanceof FilterNode || source instanceof ProjectNode) {
+                if (source instanceof ProjectNode) {
+                    Assignments assignments = ((ProjectNode) source).getAssignments();
+                    passThroughSymbols.removeIf(symbol -> !symbol.toSymbolReference().equals(assignments.get(symbol)));
+                }
+                source = getOnlyElement(source.getSources());
+            }
+            if (!(source instanceof TableScanNode)) {
+                return Optional.empty();
+            }
+            TableScanNode tableScan = (TableScanNode) source;
+
+            Map<Symbol, ColumnHandle> probeColumns = new LinkedHashMap<>();
+            for (int i = 0; i < probeSymbols.size(); i++) {
+                Symbol probeSymbol = probeSymbols.get(i);
+                Symbol buildSymbol = buildSymbols.get(i);
+                ColumnHandle column = tableScan.getAssignments().get(probeSymbol);
+                if (column != null && passThroughSymbols.contains(probeSymbol) && context.getTypes().get(probeSymbol).equals(context.getTypes().get(buildSymbol))) {
+                    probeColumns.putIfAbsent(buildSymbol, column);
+                }
+            }
+            if (probeColumns.isEmpty()) {
+                return Optional.empty();
+            }
+
+            LocalDynamicFilter dynamicFilter = new LocalDynamicFilter(probeColumns, DYNAMIC_FILTER_MAX_DISTINCT_VALUES);
+            context.addDynamicFilter(tableScan.getId(), dynamicFilter);
+            return Optional.of(dynamicFilter);
+        }
+
         private LookupSourceFactory createLookupSourceFactory(
                 JoinNode node,
                 PlanNode buildNode,
                 List<Symbol> buildSymbols,
                 Optional<Symbol> buildHashSymbol,
                 Map<Symbol, Integer> probeLayout,
+                Optional<LocalDynamicFilter> dynamicFilter,
                 LocalExecutionPlanContext context)
         {
             LocalExecutionPlanContext buildContext = context.createSubContext();
@@ -1648,10 +1781,11 @@ public class LocalExecutionPlanner
                     filterFunctionFactory,
                     sortChannel,
                     searchFunctionFactories,
+                    dynamicFilter,
                     10_000,
                     partitionCount,
                     pagesIndexFactory,
-                    spillEnabled && !buildOuter && partitionCount > 1,
+                    spillEnabled && partitionCount > 1,
                     singleStreamSpillerFactory);
 
             context.addDriverFactory(
@@ -2007,7 +2141,8 @@ public class LocalExecutionPlanner
                 PhysicalOperation source,
                 int operatorId,
                 boolean spillEnabled,
-                DataSize unspillMemoryLimit)
+                DataSize unspillMemoryLimit,
+                boolean offHeapGroupByHash)
         {
             List<Symbol> groupBySymbols = node.getGroupingKeys();
 
@@ -2071,6 +2206,7 @@ public class LocalExecutionPlanner
                     spillEnabled,
                     unspillMemoryLimit,
                     spillerFactory,
+                    offHeapGroupByHash,
                     joinCompiler);
 
             return new PhysicalOperation(operatorFactory, mappings, source);
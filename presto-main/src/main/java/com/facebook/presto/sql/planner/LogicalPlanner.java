@@ -94,6 +94,7 @@ public class LogicalPlanner
     private final Metadata metadata;
     private final SqlParser sqlParser;
     private final CostCalculator costCalculator;
+    private final OptimizerStatsRecorder optimizerStats;
 
     public LogicalPlanner(Session session,
             List<PlanOptimizer> planOptimizers,
@@ -101,6 +102,17 @@ public class LogicalPlanner
             Metadata metadata,
             SqlParser sqlParser,
             CostCalculator costCalculator)
+    {
+        this(session, planOptimizers, idAllocator, metadata, sqlParser, costCalculator, new OptimizerStatsRecorder());
+    }
+
+    public LogicalPlanner(Session session,
+            List<PlanOptimizer> planOptimizers,
+            PlanNodeIdAllocator idAllocator,
+            Metadata metadata,
+            SqlParser sqlParser,
+            CostCalculator costCalculator,
+            OptimizerStatsRecorder optimizerStats)
     {
         requireNonNull(session, "session is null");
         requireNonNull(planOptimizers, "planOptimizers is null");
@@ -108,6 +120,7 @@ public class LogicalPlanner
         requireNonNull(metadata, "metadata is null");
         requireNonNull(sqlParser, "sqlParser is null");
         requireNonNull(costCalculator, "costCalculator is null");
+        requireNonNull(optimizerStats, "optimizerStats is null");
 
         this.session = session;
         this.planOptimizers = planOptimizers;
@@ -115,6 +128,7 @@ public class LogicalPlanner
         this.metadata = metadata;
         this.sqlParser = sqlParser;
         this.costCalculator = costCalculator;
+        this.optimizerStats = optimizerStats;
     }
 
     public Plan plan(Analysis analysis)
@@ -130,8 +144,12 @@ public class LogicalPlanner
 
         if (stage.ordinal() >= Stage.OPTIMIZED.ordinal()) {
             for (PlanOptimizer optimizer : planOptimizers) {
-                root = optimizer.optimize(root, session, symbolAllocator.getTypes(), symbolAllocator, idAllocator);
-                requireNonNull(root, format("%s returned a null plan", optimizer.getClass().getName()));
+                long start = System.nanoTime();
+                PlanNode optimized = optimizer.optimize(root, session, symbolAllocator.getTypes(), symbolAllocator, idAllocator, optimizerStats);
+                requireNonNull(optimized, format("%s returned a null plan", optimizer.getClass().getName()));
+                // optimizers that do not change the plan generally return the same instance
+                optimizerStats.recordOptimizer(optimizer, System.nanoTime() - start, optimized != root);
+                root = optimized;
             }
         }
 
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.airlift.units.Duration;
+
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Time spent by an optimizer or an iterative rule while planning a query.
+ */
+@Immutable
+public class OptimizerStats
+{
+    private final String name;
+    private final long invocations;
+    private final long rewrites;
+    private final Duration wallTime;
+
+    @JsonCreator
+    public OptimizerStats(
+            @JsonProperty("name") String name,
+            @JsonProperty("invocations") long invocations,
+            @JsonProperty("rewrites") long rewrites,
+            @JsonProperty("wallTime") Duration wallTime)
+    {
+        this.name = requireNonNull(name, "name is null");
+        checkArgument(invocations >= 0, "invocations is negative");
+        this.invocations = invocations;
+        checkArgument(rewrites >= 0, "rewrites is negative");
+        this.rewrites = rewrites;
+        this.wallTime = requireNonNull(wallTime, "wallTime is null");
+    }
+
+    @JsonProperty
+    public String getName()
+    {
+        return name;
+    }
+
+    @JsonProperty
+    public long getInvocations()
+    {
+        return invocations;
+    }
+
+    /**
+     * Number of invocations that changed the plan.
+     */
+    @JsonProperty
+    public long getRewrites()
+    {
+        return rewrites;
+    }
+
+    @JsonProperty
+    public Duration getWallTime()
+    {
+        return wallTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("name", name)
+                .add("invocations", invocations)
+                .add("rewrites", rewrites)
+                .add("wallTime", wallTime)
+                .toString();
+    }
+}
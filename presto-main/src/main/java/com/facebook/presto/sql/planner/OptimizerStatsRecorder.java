@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.sql.planner.iterative.Rule;
+import com.facebook.presto.sql.planner.optimizations.PlanOptimizer;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.airlift.units.Duration.succinctNanos;
+
+/**
+ * Records the optimizers and rules run while planning a single query. Unlike the
+ * {@link StatsRecorder}, which aggregates rules across all queries, this tells which
+ * optimizers and rules a slowly planned query spent its time in.
+ */
+@ThreadSafe
+public class OptimizerStatsRecorder
+{
+    @GuardedBy("this")
+    private final Map<String, Stats> optimizers = new LinkedHashMap<>();
+    @GuardedBy("this")
+    private final Map<String, Stats> rules = new LinkedHashMap<>();
+
+    public synchronized void recordOptimizer(PlanOptimizer optimizer, long nanos, boolean rewritten)
+    {
+        optimizers.computeIfAbsent(getName(optimizer), name -> new Stats()).record(nanos, rewritten);
+    }
+
+    public synchronized void recordRule(Rule<?> rule, long nanos, boolean rewritten)
+    {
+        rules.computeIfAbsent(getName(rule), name -> new Stats()).record(nanos, rewritten);
+    }
+
+    private static String getName(Object optimizer)
+    {
+        // simple names are not unique across packages and are empty for anonymous classes
+        return optimizer.getClass().getName();
+    }
+
+    /**
+     * Returns the optimizers in the order they first ran.
+     */
+    public synchronized List<OptimizerStats> getOptimizerStats()
+    {
+        return toOptimizerStats(optimizers);
+    }
+
+    /**
+     * Returns the rules in the order they were first applied.
+     */
+    public synchronized List<OptimizerStats> getRuleStats()
+    {
+        return toOptimizerStats(rules);
+    }
+
+    private static List<OptimizerStats> toOptimizerStats(Map<String, Stats> stats)
+    {
+        ImmutableList.Builder<OptimizerStats> builder = ImmutableList.builder();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats value = entry.getValue();
+            builder.add(new OptimizerStats(entry.getKey(), value.invocations, value.rewrites, succinctNanos(value.nanos)));
+        }
+        return builder.build();
+    }
+
+    private static class Stats
+    {
+        private long invocations;
+        private long rewrites;
+        private long nanos;
+
+        public void record(long nanos, boolean rewritten)
+        {
+            invocations++;
+            if (rewritten) {
+                rewrites++;
+            }
+            this.nanos += nanos;
+        }
+    }
+}
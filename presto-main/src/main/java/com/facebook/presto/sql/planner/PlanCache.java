@@ -0,0 +1,397 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.connector.ConnectorId;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.metadata.QualifiedObjectName;
+import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.metadata.TableHandle;
+import com.facebook.presto.metadata.TableLayoutHandle;
+import com.facebook.presto.metadata.TableLayoutResult;
+import com.facebook.presto.metadata.ViewDefinition;
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.Constraint;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.type.TimeZoneKey;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.analyzer.Analysis;
+import com.facebook.presto.sql.gen.CacheStatsMBean;
+import com.facebook.presto.sql.planner.plan.IndexSourceNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.SimplePlanRewriter;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.tree.CurrentTime;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.FunctionCall;
+import com.facebook.presto.sql.tree.Node;
+import com.facebook.presto.sql.tree.NodeRef;
+import com.facebook.presto.sql.tree.Query;
+import com.facebook.presto.sql.tree.Statement;
+import com.facebook.presto.transaction.TransactionManager;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.stats.CounterStat;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.SystemSessionProperties.isOptimizeMetadataQueries;
+import static com.facebook.presto.sql.ExpressionUtils.stripNonDeterministicConjuncts;
+import static com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static com.facebook.presto.sql.tree.BooleanLiteral.TRUE_LITERAL;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Reuses the optimized plans of queries that are repeated with the same statement, parameters
+ * and session, such as the executions of a prepared statement. Queries are still analyzed, so
+ * access control and name resolution see the current metadata, and only logical planning and
+ * optimization are skipped.
+ * <p>
+ * A plan is not reused once a transaction that wrote to one of the catalogs it reads from has
+ * been committed. The table layouts of a plan are chosen again in the transaction of the query
+ * that reuses it, and the plan is made again when the connector returns different layouts,
+ * such as when partitions were added outside of this coordinator. Plans that depend on the
+ * start time of the query or on the contents of tables are never cached.
+ */
+@ThreadSafe
+public class PlanCache
+{
+    private static final Set<String> CURRENT_TIME_FUNCTIONS = ImmutableSet.of("now", "current_timestamp", "current_time", "current_date", "localtime", "localtimestamp");
+
+    private final Metadata metadata;
+    private final TransactionManager transactionManager;
+    private final boolean enabled;
+    private final Cache<PlanCacheKey, CachedPlan> cache;
+    private final CacheStatsMBean cacheStats;
+    private final CounterStat savedPlanningMillis = new CounterStat();
+    private final CounterStat stalePlans = new CounterStat();
+
+    @Inject
+    public PlanCache(PlanCacheConfig config, Metadata metadata, TransactionManager transactionManager)
+    {
+        requireNonNull(config, "config is null");
+        this.metadata = requireNonNull(metadata, "metadata is null");
+        this.transactionManager = requireNonNull(transactionManager, "transactionManager is null");
+        this.enabled = config.isEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .recordStats()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getExpiration().toMillis(), MILLISECONDS)
+                .build();
+        this.cacheStats = new CacheStatsMBean(cache);
+    }
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getCache()
+    {
+        return cacheStats;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getSavedPlanningMillis()
+    {
+        return savedPlanningMillis;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getStalePlans()
+    {
+        return stalePlans;
+    }
+
+    @VisibleForTesting
+    long getSize()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Returns the cached plan of the analyzed query, or plans it with the planner.
+     */
+    public Plan getPlan(Session session, Analysis analysis, Supplier<Plan> planner)
+    {
+        if (!isCacheable(session, analysis)) {
+            return planner.get();
+        }
+
+        PlanCacheKey key = new PlanCacheKey(session, analysis);
+        // the counts are read before planning, so a write committed while planning makes the plan stale
+        Map<ConnectorId, Long> writeCounts = getCommittedWriteCounts(session, analysis);
+
+        CachedPlan cachedPlan = cache.getIfPresent(key);
+        if (cachedPlan != null) {
+            Optional<Plan> plan = Optional.empty();
+            if (cachedPlan.getWriteCounts().equals(writeCounts)) {
+                plan = bindToTransaction(session, cachedPlan.getPlan());
+            }
+            if (plan.isPresent()) {
+                savedPlanningMillis.update(NANOSECONDS.toMillis(cachedPlan.getPlanningNanos()));
+                return plan.get();
+            }
+            stalePlans.update(1);
+        }
+
+        long planningStart = System.nanoTime();
+        Plan plan = planner.get();
+        // index handles are resolved for the index join they were planned for, and cannot be resolved again
+        if (!searchFrom(plan.getRoot()).where(IndexSourceNode.class::isInstance).matches()) {
+            cache.put(key, new CachedPlan(plan, System.nanoTime() - planningStart, writeCounts));
+        }
+        return plan;
+    }
+
+    private boolean isCacheable(Session session, Analysis analysis)
+    {
+        if (!enabled || !(analysis.getStatement() instanceof Query) || analysis.isDescribe()) {
+            return false;
+        }
+
+        // writes earlier in the transaction are not visible in the metadata the plan was made with
+        if (!transactionManager.getTransactionInfo(session.getRequiredTransactionId()).isAutoCommitContext()) {
+            return false;
+        }
+
+        // the plan contains values read from the tables
+        if (isOptimizeMetadataQueries(session)) {
+            return false;
+        }
+
+        // the current time is folded into the plan as a constant
+        for (NodeRef<Expression> expression : analysis.getTypes().keySet()) {
+            Node node = expression.getNode();
+            if (node instanceof CurrentTime) {
+                return false;
+            }
+            if (node instanceof FunctionCall) {
+                Signature signature = analysis.getFunctionSignature((FunctionCall) node);
+                if (signature != null && CURRENT_TIME_FUNCTIONS.contains(signature.getName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Map<ConnectorId, Long> getCommittedWriteCounts(Session session, Analysis analysis)
+    {
+        ImmutableSet.Builder<ConnectorId> connectorIds = ImmutableSet.builder();
+        analysis.getTables().stream()
+                .map(TableHandle::getConnectorId)
+                .forEach(connectorIds::add);
+        // views are defined in their own catalogs, which are not read from unless they contain one of the tables
+        analysis.getViews().keySet().stream()
+                .map(view -> metadata.getCatalogHandle(session, view.getCatalogName()))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .forEach(connectorIds::add);
+
+        return connectorIds.build().stream()
+                .collect(toImmutableMap(Function.identity(), transactionManager::getCommittedWriteCount));
+    }
+
+    private Optional<Plan> bindToTransaction(Session session, Plan plan)
+    {
+        LayoutBinder binder = new LayoutBinder(session, plan.getTypes());
+        PlanNode root = SimplePlanRewriter.rewriteWith(binder, plan.getRoot());
+        if (binder.isStale()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Plan(root, plan.getTypes(), plan.getPlanNodeCosts()));
+    }
+
+    /**
+     * Chooses the layouts of the table scans again in the transaction of the session. The layouts
+     * chosen by the planner determine the rest of the plan, such as the exchanges and the filters
+     * the connector does not enforce, so the plan is stale when the connector returns other layouts.
+     */
+    private class LayoutBinder
+            extends SimplePlanRewriter<Void>
+    {
+        private final Session session;
+        private final Map<Symbol, Type> types;
+        private boolean stale;
+
+        public LayoutBinder(Session session, Map<Symbol, Type> types)
+        {
+            this.session = requireNonNull(session, "session is null");
+            this.types = requireNonNull(types, "types is null");
+        }
+
+        public boolean isStale()
+        {
+            return stale;
+        }
+
+        @Override
+        public PlanNode visitTableScan(TableScanNode node, RewriteContext<Void> context)
+        {
+            if (!node.getLayout().isPresent()) {
+                return node;
+            }
+
+            Optional<TableLayoutHandle> layout = getLayout(node);
+            if (!layout.isPresent()) {
+                stale = true;
+                return node;
+            }
+
+            return new TableScanNode(
+                    node.getId(),
+                    node.getTable(),
+                    node.getOutputSymbols(),
+                    node.getAssignments(),
+                    layout,
+                    node.getCurrentConstraint(),
+                    node.getOriginalConstraint());
+        }
+
+        private Optional<TableLayoutHandle> getLayout(TableScanNode node)
+        {
+            Expression predicate = stripNonDeterministicConjuncts(Optional.ofNullable(node.getOriginalConstraint()).orElse(TRUE_LITERAL));
+            TupleDomain<ColumnHandle> constraint = DomainTranslator.fromPredicate(metadata, session, predicate, types)
+                    .getTupleDomain()
+                    .transform(node.getAssignments()::get);
+
+            List<TableLayoutResult> layouts = metadata.getLayouts(
+                    session,
+                    node.getTable(),
+                    new Constraint<>(constraint, bindings -> true),
+                    Optional.of(node.getOutputSymbols().stream()
+                            .map(node.getAssignments()::get)
+                            .collect(toImmutableSet())));
+
+            // connector handles do not contain the transaction, so the same layout has an equal handle
+            return layouts.stream()
+                    .map(result -> result.getLayout().getHandle())
+                    .filter(handle -> handle.getConnectorHandle().equals(node.getLayout().get().getConnectorHandle()))
+                    .findFirst();
+        }
+    }
+
+    private static class CachedPlan
+    {
+        private final Plan plan;
+        private final long planningNanos;
+        private final Map<ConnectorId, Long> writeCounts;
+
+        public CachedPlan(Plan plan, long planningNanos, Map<ConnectorId, Long> writeCounts)
+        {
+            this.plan = requireNonNull(plan, "plan is null");
+            this.planningNanos = planningNanos;
+            this.writeCounts = ImmutableMap.copyOf(requireNonNull(writeCounts, "writeCounts is null"));
+        }
+
+        public Plan getPlan()
+        {
+            return plan;
+        }
+
+        public long getPlanningNanos()
+        {
+            return planningNanos;
+        }
+
+        public Map<ConnectorId, Long> getWriteCounts()
+        {
+            return writeCounts;
+        }
+    }
+
+    private static final class PlanCacheKey
+    {
+        private final Statement statement;
+        private final List<Expression> parameters;
+        private final Set<TableHandle> tables;
+        private final Set<ColumnHandle> columns;
+        private final Map<QualifiedObjectName, ViewDefinition> views;
+        private final String user;
+        private final Optional<String> catalog;
+        private final Optional<String> schema;
+        private final TimeZoneKey timeZoneKey;
+        private final Locale locale;
+        private final Map<String, String> systemProperties;
+        private final Map<ConnectorId, Map<String, String>> connectorProperties;
+
+        public PlanCacheKey(Session session, Analysis analysis)
+        {
+            this.statement = analysis.getStatement();
+            this.parameters = ImmutableList.copyOf(analysis.getParameters());
+            // a table created again with other columns has the same handle in some connectors
+            this.tables = ImmutableSet.copyOf(analysis.getTables());
+            this.columns = ImmutableSet.copyOf(analysis.getColumnHandles());
+            this.views = ImmutableMap.copyOf(analysis.getViews());
+            this.user = session.getUser();
+            this.catalog = session.getCatalog();
+            this.schema = session.getSchema();
+            this.timeZoneKey = session.getTimeZoneKey();
+            this.locale = session.getLocale();
+            this.systemProperties = ImmutableMap.copyOf(session.getSystemProperties());
+            this.connectorProperties = ImmutableMap.copyOf(session.getConnectorProperties());
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PlanCacheKey that = (PlanCacheKey) o;
+            return Objects.equals(statement, that.statement) &&
+                    Objects.equals(parameters, that.parameters) &&
+                    Objects.equals(tables, that.tables) &&
+                    Objects.equals(columns, that.columns) &&
+                    Objects.equals(views, that.views) &&
+                    Objects.equals(user, that.user) &&
+                    Objects.equals(catalog, that.catalog) &&
+                    Objects.equals(schema, that.schema) &&
+                    Objects.equals(timeZoneKey, that.timeZoneKey) &&
+                    Objects.equals(locale, that.locale) &&
+                    Objects.equals(systemProperties, that.systemProperties) &&
+                    Objects.equals(connectorProperties, that.connectorProperties);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(statement, parameters, tables, columns, views, user, catalog, schema, timeZoneKey, locale, systemProperties, connectorProperties);
+        }
+    }
+}
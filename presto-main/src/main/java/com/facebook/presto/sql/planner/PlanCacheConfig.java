@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class PlanCacheConfig
+{
+    private boolean enabled;
+    private int maxSize = 1_000;
+    private Duration expiration = new Duration(1, MINUTES);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("plan-cache.enabled")
+    @ConfigDescription("Reuse the optimized plans of queries repeated with the same text, parameters and session")
+    public PlanCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    @Config("plan-cache.max-size")
+    public PlanCacheConfig setMaxSize(int maxSize)
+    {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getExpiration()
+    {
+        return expiration;
+    }
+
+    @Config("plan-cache.expiration")
+    @ConfigDescription("Time a plan is reused for, which bounds how long changes to table metadata and statistics go unnoticed")
+    public PlanCacheConfig setExpiration(Duration expiration)
+    {
+        this.expiration = expiration;
+        return this;
+    }
+}
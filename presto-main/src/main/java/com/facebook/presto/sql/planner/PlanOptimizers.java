@@ -13,6 +13,10 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.cost.CostComparator;
+import com.facebook.presto.cost.PlanNodeStatsCalculator;
+import com.facebook.presto.cost.StatsCalculator;
+import com.facebook.presto.cost.TaskCountEstimator;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.sql.parser.SqlParser;
@@ -70,6 +74,7 @@ import com.facebook.presto.sql.planner.iterative.rule.RemoveFullSample;
 import com.facebook.presto.sql.planner.iterative.rule.RemoveRedundantIdentityProjections;
 import com.facebook.presto.sql.planner.iterative.rule.RemoveTrivialFilters;
 import com.facebook.presto.sql.planner.iterative.rule.RemoveUnreferencedScalarApplyNodes;
+import com.facebook.presto.sql.planner.iterative.rule.ReorderJoins;
 import com.facebook.presto.sql.planner.iterative.rule.SimplifyCountOverConstant;
 import com.facebook.presto.sql.planner.iterative.rule.SimplifyExpressions;
 import com.facebook.presto.sql.planner.iterative.rule.SingleMarkDistinctToGroupBy;
@@ -120,9 +125,9 @@ public class PlanOptimizers
     private final MBeanExporter exporter;
 
     @Inject
-    public PlanOptimizers(Metadata metadata, SqlParser sqlParser, FeaturesConfig featuresConfig, MBeanExporter exporter)
+    public PlanOptimizers(Metadata metadata, SqlParser sqlParser, FeaturesConfig featuresConfig, TaskCountEstimator taskCountEstimator, MBeanExporter exporter)
     {
-        this(metadata, sqlParser, featuresConfig, false, exporter);
+        this(metadata, sqlParser, featuresConfig, taskCountEstimator, false, exporter);
     }
 
     @PostConstruct
@@ -137,10 +142,11 @@ public class PlanOptimizers
         stats.unexport(exporter);
     }
 
-    public PlanOptimizers(Metadata metadata, SqlParser sqlParser, FeaturesConfig featuresConfig, boolean forceSingleNode, MBeanExporter exporter)
+    public PlanOptimizers(Metadata metadata, SqlParser sqlParser, FeaturesConfig featuresConfig, TaskCountEstimator taskCountEstimator, boolean forceSingleNode, MBeanExporter exporter)
     {
         this.exporter = exporter;
         ImmutableList.Builder<PlanOptimizer> builder = ImmutableList.builder();
+        StatsCalculator statsCalculator = new PlanNodeStatsCalculator(metadata);
 
         Set<Rule<?>> predicatePushDownRules = ImmutableSet.of(
                 new MergeFilters());
@@ -288,6 +294,11 @@ public class PlanOptimizers
                         ImmutableList.of(new com.facebook.presto.sql.planner.optimizations.EliminateCrossJoins()), // This can pull up Filter and Project nodes from between Joins, so we need to push them down again
                         ImmutableSet.of(new EliminateCrossJoins())),
                 new PredicatePushDown(metadata, sqlParser),
+                projectionPushDown,
+                new IterativeOptimizer(
+                        stats,
+                        ImmutableSet.of(new ReorderJoins(new CostComparator(), statsCalculator, taskCountEstimator))),
+                new PredicatePushDown(metadata, sqlParser), // ReorderJoins can pull up Filter and Project nodes from between Joins
                 projectionPushDown);
 
         if (featuresConfig.isOptimizeSingleDistinct()) {
@@ -306,7 +317,7 @@ public class PlanOptimizers
                         new PushTopNThroughUnion())));
 
         if (!forceSingleNode) {
-            builder.add(new DetermineJoinDistributionType()); // Must run before AddExchanges
+            builder.add(new DetermineJoinDistributionType(statsCalculator, taskCountEstimator)); // Must run before AddExchanges
             builder.add(
                     new IterativeOptimizer(
                             stats,
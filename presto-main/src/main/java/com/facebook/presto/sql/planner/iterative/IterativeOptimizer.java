@@ -19,6 +19,7 @@ import com.facebook.presto.matching.Match;
 import com.facebook.presto.matching.Matcher;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.OptimizerStatsRecorder;
 import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
 import com.facebook.presto.sql.planner.StatsRecorder;
 import com.facebook.presto.sql.planner.Symbol;
@@ -65,11 +66,17 @@ public class IterativeOptimizer
 
     @Override
     public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
+    {
+        return optimize(plan, session, types, symbolAllocator, idAllocator, new OptimizerStatsRecorder());
+    }
+
+    @Override
+    public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator, OptimizerStatsRecorder statsRecorder)
     {
         // only disable new rules if we have legacy rules to fall back to
         if (!SystemSessionProperties.isNewOptimizerEnabled(session) && !legacyRules.isEmpty()) {
             for (PlanOptimizer optimizer : legacyRules) {
-                plan = optimizer.optimize(plan, session, symbolAllocator.getTypes(), symbolAllocator, idAllocator);
+                plan = optimizer.optimize(plan, session, symbolAllocator.getTypes(), symbolAllocator, idAllocator, statsRecorder);
             }
 
             return plan;
@@ -80,8 +87,11 @@ public class IterativeOptimizer
         Matcher matcher = new PlanNodeMatcher(lookup);
 
         Duration timeout = SystemSessionProperties.getOptimizerTimeout(session);
-        Context context = new Context(memo, lookup, idAllocator, symbolAllocator, System.nanoTime(), timeout.toMillis(), session);
-        exploreGroup(memo.getRootGroup(), context, matcher);
+        Context context = new Context(memo, lookup, idAllocator, symbolAllocator, System.nanoTime(), timeout.toMillis(), session, statsRecorder);
+        if (!exploreGroup(memo.getRootGroup(), context, matcher)) {
+            // callers recognize an unchanged plan by its identity
+            return plan;
+        }
 
         return memo.extract();
     }
@@ -162,6 +172,7 @@ public class IterativeOptimizer
             throw e;
         }
         stats.record(rule, duration, !result.isEmpty());
+        context.getStatsRecorder().recordRule(rule, duration, !result.isEmpty());
 
         return result;
     }
@@ -197,6 +208,7 @@ public class IterativeOptimizer
         private final long startTimeInNanos;
         private final long timeoutInMilliseconds;
         private final Session session;
+        private final OptimizerStatsRecorder statsRecorder;
 
         public Context(
                 Memo memo,
@@ -205,7 +217,8 @@ public class IterativeOptimizer
                 SymbolAllocator symbolAllocator,
                 long startTimeInNanos,
                 long timeoutInMilliseconds,
-                Session session)
+                Session session,
+                OptimizerStatsRecorder statsRecorder)
         {
             checkArgument(timeoutInMilliseconds >= 0, "Timeout has to be a non-negative number [milliseconds]");
 
@@ -216,6 +229,7 @@ public class IterativeOptimizer
             this.startTimeInNanos = startTimeInNanos;
             this.timeoutInMilliseconds = timeoutInMilliseconds;
             this.session = session;
+            this.statsRecorder = statsRecorder;
         }
 
         public Memo getMemo()
@@ -256,5 +270,10 @@ public class IterativeOptimizer
         {
             return session;
         }
+
+        public OptimizerStatsRecorder getStatsRecorder()
+        {
+            return statsRecorder;
+        }
     }
 }
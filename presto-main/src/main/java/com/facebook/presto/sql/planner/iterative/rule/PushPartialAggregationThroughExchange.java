@@ -96,7 +96,8 @@ public class PushPartialAggregationThroughExchange
         // partial aggregation can only be pushed through exchange that doesn't change
         // the cardinality of the stream (i.e., gather or repartition)
         if ((exchangeNode.getType() != GATHER && exchangeNode.getType() != REPARTITION) ||
-                exchangeNode.getPartitioningScheme().isReplicateNullsAndAny()) {
+                exchangeNode.getPartitioningScheme().isReplicateNullsAndAny() ||
+                exchangeNode.getOrderingScheme().isPresent()) {
             return Result.empty();
         }
 
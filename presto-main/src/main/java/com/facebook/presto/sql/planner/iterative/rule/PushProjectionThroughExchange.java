@@ -69,7 +69,9 @@ public class PushProjectionThroughExchange
 
     private static final Pattern<ProjectNode> PATTERN = project()
             .matching(project -> !isSymbolToSymbolProjection(project))
-            .with(source().matching(exchange().capturedAs(CHILD)));
+            .with(source().matching(exchange()
+                    .matching(exchange -> !exchange.getOrderingScheme().isPresent())
+                    .capturedAs(CHILD)));
 
     @Override
     public Pattern<ProjectNode> getPattern()
@@ -0,0 +1,439 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.iterative.rule;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.cost.CachingStatsProvider;
+import com.facebook.presto.cost.CostComparator;
+import com.facebook.presto.cost.PlanNodeCostEstimate;
+import com.facebook.presto.cost.PlanNodeStatsEstimate;
+import com.facebook.presto.cost.StatsCalculator;
+import com.facebook.presto.cost.StatsProvider;
+import com.facebook.presto.cost.TaskCountEstimator;
+import com.facebook.presto.matching.Captures;
+import com.facebook.presto.matching.Pattern;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.iterative.Rule;
+import com.facebook.presto.sql.planner.optimizations.joins.JoinGraph;
+import com.facebook.presto.sql.planner.plan.Assignments;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.JoinNode.DistributionType;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.SystemSessionProperties.getJoinMaxBroadcastTableSize;
+import static com.facebook.presto.SystemSessionProperties.getMaxReorderedJoins;
+import static com.facebook.presto.SystemSessionProperties.isCostBasedJoinReorderingEnabled;
+import static com.facebook.presto.SystemSessionProperties.isDistributedJoinEnabled;
+import static com.facebook.presto.sql.ExpressionUtils.combineConjuncts;
+import static com.facebook.presto.sql.ExpressionUtils.extractConjuncts;
+import static com.facebook.presto.sql.planner.DeterminismEvaluator.isDeterministic;
+import static com.facebook.presto.sql.planner.SymbolsExtractor.extractUnique;
+import static com.facebook.presto.sql.planner.iterative.rule.Util.restrictOutputs;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.PARTITIONED;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
+import static com.facebook.presto.sql.planner.plan.Patterns.join;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reorders a tree of inner joins and chooses the distribution type of every join
+ * based on the estimated cost of the resulting plan. All join orders of the
+ * {@link JoinGraph} are enumerated bottom up with dynamic programming, keeping the
+ * cheapest plan for every subset of the joined relations. Cross joins are only
+ * considered for subsets of relations that are not connected by join criteria.
+ * <p>
+ * When the statistics of any of the joined relations are unknown the rule does
+ * nothing, leaving the join order to {@link EliminateCrossJoins}.
+ */
+public class ReorderJoins
+        implements Rule<JoinNode>
+{
+    /**
+     * The subsets of the joined relations are int bitmasks, and the enumeration takes
+     * about 3^n steps, so no more relations than this are reordered at once.
+     */
+    public static final int MAX_REORDERED_JOINS_LIMIT = 16;
+
+    // joins with the distribution type already chosen were reordered before, or were planned explicitly
+    private static final Pattern<JoinNode> PATTERN = join().matching(node -> node.getType() == INNER && !node.getDistributionType().isPresent());
+
+    private final CostComparator costComparator;
+    private final StatsCalculator statsCalculator;
+    private final TaskCountEstimator taskCountEstimator;
+
+    public ReorderJoins(CostComparator costComparator, StatsCalculator statsCalculator, TaskCountEstimator taskCountEstimator)
+    {
+        this.costComparator = requireNonNull(costComparator, "costComparator is null");
+        this.statsCalculator = requireNonNull(statsCalculator, "statsCalculator is null");
+        this.taskCountEstimator = requireNonNull(taskCountEstimator, "taskCountEstimator is null");
+    }
+
+    @Override
+    public Pattern<JoinNode> getPattern()
+    {
+        return PATTERN;
+    }
+
+    @Override
+    public boolean isEnabled(Session session)
+    {
+        return isCostBasedJoinReorderingEnabled(session);
+    }
+
+    @Override
+    public Result apply(JoinNode node, Captures captures, Context context)
+    {
+        JoinGraph joinGraph = JoinGraph.buildShallowFrom(node, context.getLookup());
+        if (joinGraph.size() < 2 || joinGraph.size() > Math.min(getMaxReorderedJoins(context.getSession()), MAX_REORDERED_JOINS_LIMIT)) {
+            return Result.empty();
+        }
+
+        Map<Symbol, Type> types = context.getSymbolAllocator().getTypes();
+        StatsProvider statsProvider = new CachingStatsProvider(statsCalculator, context.getLookup(), context.getSession(), types);
+        JoinEnumerator enumerator = new JoinEnumerator(
+                joinGraph,
+                statsProvider,
+                costComparator,
+                taskCountEstimator.estimateSourceDistributedTaskCount(),
+                context.getSession(),
+                types,
+                context.getIdAllocator());
+
+        Optional<PlanNode> result = enumerator.chooseJoinOrder();
+        if (!result.isPresent()) {
+            return Result.empty();
+        }
+
+        PlanNode replacement = result.get();
+        for (Expression filter : enumerator.getRemainingFilters()) {
+            replacement = new FilterNode(context.getIdAllocator().getNextId(), replacement, filter);
+        }
+        if (joinGraph.getAssignments().isPresent()) {
+            replacement = new ProjectNode(context.getIdAllocator().getNextId(), replacement, Assignments.copyOf(joinGraph.getAssignments().get()));
+        }
+
+        // If needed, introduce a projection to constrain the outputs to what was originally expected
+        // Some nodes are sensitive to what's produced (e.g., DistinctLimit node)
+        return Result.ofPlanNode(restrictOutputs(context.getIdAllocator(), replacement, ImmutableSet.copyOf(node.getOutputSymbols())).orElse(replacement));
+    }
+
+    @VisibleForTesting
+    static PlanNodeCostEstimate calculateJoinCost(
+            PlanNodeStatsEstimate probeStats,
+            List<Symbol> probeSymbols,
+            PlanNodeStatsEstimate buildStats,
+            List<Symbol> buildSymbols,
+            PlanNodeStatsEstimate outputStats,
+            List<Symbol> outputSymbols,
+            DistributionType distributionType,
+            int nodesCount,
+            Map<Symbol, Type> types)
+    {
+        double probeSize = probeStats.getOutputSizeInBytes(probeSymbols, types);
+        double buildSize = buildStats.getOutputSizeInBytes(buildSymbols, types);
+        double outputSize = outputStats.getOutputSizeInBytes(outputSymbols, types);
+
+        if (distributionType == REPLICATED) {
+            // the build side is sent to, and kept in memory of, every node
+            return new PlanNodeCostEstimate(
+                    probeSize + buildSize * nodesCount + outputSize,
+                    buildSize * nodesCount,
+                    buildSize * nodesCount);
+        }
+        return new PlanNodeCostEstimate(
+                probeSize + buildSize + outputSize,
+                buildSize,
+                probeSize + buildSize);
+    }
+
+    private static class JoinEnumerator
+    {
+        private final JoinGraph graph;
+        private final StatsProvider statsProvider;
+        private final CostComparator costComparator;
+        private final int nodesCount;
+        private final Session session;
+        private final Map<Symbol, Type> types;
+        private final PlanNodeIdAllocator idAllocator;
+
+        private final Map<PlanNodeId, Integer> nodeIndexes = new HashMap<>();
+        private final int[] adjacentNodes;
+        private final List<Expression> pushableFilters = new ArrayList<>();
+        private final List<Integer> pushableFilterNodes = new ArrayList<>();
+        private final List<Expression> remainingFilters = new ArrayList<>();
+
+        public JoinEnumerator(JoinGraph graph, StatsProvider statsProvider, CostComparator costComparator, int nodesCount, Session session, Map<Symbol, Type> types, PlanNodeIdAllocator idAllocator)
+        {
+            this.graph = requireNonNull(graph, "graph is null");
+            this.statsProvider = requireNonNull(statsProvider, "statsProvider is null");
+            this.costComparator = requireNonNull(costComparator, "costComparator is null");
+            this.nodesCount = nodesCount;
+            this.session = requireNonNull(session, "session is null");
+            this.types = requireNonNull(types, "types is null");
+            this.idAllocator = requireNonNull(idAllocator, "idAllocator is null");
+
+            Map<Symbol, Integer> symbolSources = new HashMap<>();
+            for (int i = 0; i < graph.size(); i++) {
+                nodeIndexes.put(graph.getNode(i).getId(), i);
+                for (Symbol symbol : graph.getNode(i).getOutputSymbols()) {
+                    symbolSources.put(symbol, i);
+                }
+            }
+
+            adjacentNodes = new int[graph.size()];
+            for (int i = 0; i < graph.size(); i++) {
+                for (JoinGraph.Edge edge : graph.getEdges(graph.getNode(i))) {
+                    adjacentNodes[i] |= 1 << nodeIndexes.get(edge.getTargetNode().getId());
+                }
+            }
+
+            // deterministic conjuncts are evaluated right above the first join that produces all of their symbols
+            for (Expression filter : graph.getFilters()) {
+                for (Expression conjunct : extractConjuncts(filter)) {
+                    Set<Symbol> symbols = extractUnique(conjunct);
+                    if (!isDeterministic(conjunct) || symbols.isEmpty() || !symbolSources.keySet().containsAll(symbols)) {
+                        remainingFilters.add(conjunct);
+                        continue;
+                    }
+                    int referencedNodes = 0;
+                    for (Symbol symbol : symbols) {
+                        referencedNodes |= 1 << symbolSources.get(symbol);
+                    }
+                    pushableFilters.add(conjunct);
+                    pushableFilterNodes.add(referencedNodes);
+                }
+            }
+        }
+
+        public List<Expression> getRemainingFilters()
+        {
+            return remainingFilters;
+        }
+
+        public Optional<PlanNode> chooseJoinOrder()
+        {
+            checkState(graph.size() <= MAX_REORDERED_JOINS_LIMIT, "too many relations to reorder: %s", graph.size());
+            int subsetsCount = 1 << graph.size();
+            boolean[] connected = computeConnectedSubsets(subsetsCount);
+            JoinEnumerationResult[] bestPlans = new JoinEnumerationResult[subsetsCount];
+
+            for (int i = 0; i < graph.size(); i++) {
+                JoinEnumerationResult leaf = createLeaf(i);
+                if (leaf.getStats().isOutputRowCountUnknown()) {
+                    return Optional.empty();
+                }
+                bestPlans[1 << i] = leaf;
+            }
+
+            for (int subset = 1; subset < subsetsCount; subset++) {
+                if (Integer.bitCount(subset) < 2) {
+                    continue;
+                }
+                JoinEnumerationResult best = null;
+                // cross joins are only considered when the relations can not be joined using join criteria
+                for (boolean allowCrossJoins : new boolean[] {false, true}) {
+                    if (allowCrossJoins && connected[subset]) {
+                        break;
+                    }
+                    for (int left = (subset - 1) & subset; left > 0; left = (left - 1) & subset) {
+                        int right = subset & ~left;
+                        boolean joinable = connected[left] && connected[right] && (adjacentNodes(left) & right) != 0;
+                        if (!allowCrossJoins && !joinable) {
+                            continue;
+                        }
+                        Optional<JoinEnumerationResult> candidate = createJoin(bestPlans[left], bestPlans[right], left, right);
+                        if (!candidate.isPresent()) {
+                            return Optional.empty();
+                        }
+                        if (best == null || costComparator.compare(candidate.get().getCost(), best.getCost()) < 0) {
+                            best = candidate.get();
+                        }
+                    }
+                }
+                checkState(best != null, "no join order found for relations %s", subset);
+                bestPlans[subset] = best;
+            }
+
+            return Optional.of(bestPlans[subsetsCount - 1].getPlanNode());
+        }
+
+        private boolean[] computeConnectedSubsets(int subsetsCount)
+        {
+            boolean[] connected = new boolean[subsetsCount];
+            for (int subset = 1; subset < subsetsCount; subset++) {
+                int reached = Integer.lowestOneBit(subset);
+                int previous = 0;
+                while (reached != previous) {
+                    previous = reached;
+                    reached |= adjacentNodes(reached) & subset;
+                }
+                connected[subset] = reached == subset;
+            }
+            return connected;
+        }
+
+        private int adjacentNodes(int subset)
+        {
+            int result = 0;
+            for (int i = 0; i < graph.size(); i++) {
+                if ((subset & (1 << i)) != 0) {
+                    result |= adjacentNodes[i];
+                }
+            }
+            return result;
+        }
+
+        private JoinEnumerationResult createLeaf(int index)
+        {
+            int subset = 1 << index;
+            PlanNode planNode = addFilters(graph.getNode(index), subset, 0, 0);
+            return new JoinEnumerationResult(planNode, statsProvider.getStats(planNode), PlanNodeCostEstimate.ZERO_COST);
+        }
+
+        private Optional<JoinEnumerationResult> createJoin(JoinEnumerationResult left, JoinEnumerationResult right, int leftSubset, int rightSubset)
+        {
+            ImmutableList.Builder<JoinNode.EquiJoinClause> criteria = ImmutableList.builder();
+            for (int i = 0; i < graph.size(); i++) {
+                if ((leftSubset & (1 << i)) == 0) {
+                    continue;
+                }
+                for (JoinGraph.Edge edge : graph.getEdges(graph.getNode(i))) {
+                    if ((rightSubset & (1 << nodeIndexes.get(edge.getTargetNode().getId()))) != 0) {
+                        criteria.add(new JoinNode.EquiJoinClause(edge.getSourceSymbol(), edge.getTargetSymbol()));
+                    }
+                }
+            }
+
+            PlanNode leftNode = left.getPlanNode();
+            PlanNode rightNode = right.getPlanNode();
+            List<Symbol> outputSymbols = ImmutableList.<Symbol>builder()
+                    .addAll(leftNode.getOutputSymbols())
+                    .addAll(rightNode.getOutputSymbols())
+                    .build();
+            JoinNode partitionedJoin = createJoinNode(leftNode, rightNode, criteria.build(), outputSymbols, PARTITIONED);
+            PlanNodeStatsEstimate joinStats = statsProvider.getStats(partitionedJoin);
+
+            PlanNodeCostEstimate sourcesCost = left.getCost().add(right.getCost());
+            PlanNodeCostEstimate replicatedCost = sourcesCost.add(calculateJoinCost(left, right, joinStats, outputSymbols, REPLICATED));
+            PlanNodeCostEstimate partitionedCost = sourcesCost.add(calculateJoinCost(left, right, joinStats, outputSymbols, PARTITIONED));
+            if (replicatedCost.hasUnknownComponents() || partitionedCost.hasUnknownComponents()) {
+                return Optional.empty();
+            }
+
+            // a partitioned cross join is not supported
+            boolean partitioningAllowed = !partitionedJoin.getCriteria().isEmpty() && isDistributedJoinEnabled(session);
+            boolean replicationAllowed = !partitioningAllowed || right.getStats().getOutputSizeInBytes(rightNode.getOutputSymbols(), types) <= getJoinMaxBroadcastTableSize(session).toBytes();
+            JoinNode join = partitionedJoin;
+            PlanNodeCostEstimate cost = partitionedCost;
+            if (!partitioningAllowed || (replicationAllowed && costComparator.compare(replicatedCost, partitionedCost) < 0)) {
+                join = createJoinNode(leftNode, rightNode, partitionedJoin.getCriteria(), outputSymbols, REPLICATED);
+                cost = replicatedCost;
+            }
+
+            PlanNode planNode = addFilters(join, leftSubset | rightSubset, leftSubset, rightSubset);
+            return Optional.of(new JoinEnumerationResult(planNode, planNode == join ? joinStats : statsProvider.getStats(planNode), cost));
+        }
+
+        private PlanNodeCostEstimate calculateJoinCost(JoinEnumerationResult probe, JoinEnumerationResult build, PlanNodeStatsEstimate joinStats, List<Symbol> outputSymbols, DistributionType distributionType)
+        {
+            return ReorderJoins.calculateJoinCost(
+                    probe.getStats(),
+                    probe.getPlanNode().getOutputSymbols(),
+                    build.getStats(),
+                    build.getPlanNode().getOutputSymbols(),
+                    joinStats,
+                    outputSymbols,
+                    distributionType,
+                    nodesCount,
+                    types);
+        }
+
+        private JoinNode createJoinNode(PlanNode left, PlanNode right, List<JoinNode.EquiJoinClause> criteria, List<Symbol> outputSymbols, DistributionType distributionType)
+        {
+            return new JoinNode(
+                    idAllocator.getNextId(),
+                    INNER,
+                    left,
+                    right,
+                    criteria,
+                    outputSymbols,
+                    Optional.empty(),
+                    Optional.empty(),
+                    Optional.empty(),
+                    Optional.of(distributionType));
+        }
+
+        private PlanNode addFilters(PlanNode node, int subset, int leftSubset, int rightSubset)
+        {
+            ImmutableList.Builder<Expression> conjuncts = ImmutableList.builder();
+            for (int i = 0; i < pushableFilters.size(); i++) {
+                int referencedNodes = pushableFilterNodes.get(i);
+                if ((referencedNodes & ~subset) == 0 && (referencedNodes & ~leftSubset) != 0 && (referencedNodes & ~rightSubset) != 0) {
+                    conjuncts.add(pushableFilters.get(i));
+                }
+            }
+            List<Expression> filters = conjuncts.build();
+            if (filters.isEmpty()) {
+                return node;
+            }
+            return new FilterNode(idAllocator.getNextId(), node, combineConjuncts(filters));
+        }
+    }
+
+    private static class JoinEnumerationResult
+    {
+        private final PlanNode planNode;
+        private final PlanNodeStatsEstimate stats;
+        private final PlanNodeCostEstimate cost;
+
+        public JoinEnumerationResult(PlanNode planNode, PlanNodeStatsEstimate stats, PlanNodeCostEstimate cost)
+        {
+            this.planNode = requireNonNull(planNode, "planNode is null");
+            this.stats = requireNonNull(stats, "stats is null");
+            this.cost = requireNonNull(cost, "cost is null");
+        }
+
+        public PlanNode getPlanNode()
+        {
+            return planNode;
+        }
+
+        public PlanNodeStatsEstimate getStats()
+        {
+            return stats;
+        }
+
+        public PlanNodeCostEstimate getCost()
+        {
+            return cost;
+        }
+    }
+}
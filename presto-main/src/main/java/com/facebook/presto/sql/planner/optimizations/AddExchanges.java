@@ -51,6 +51,7 @@ import com.facebook.presto.sql.planner.plan.JoinNode;
 import com.facebook.presto.sql.planner.plan.LateralJoinNode;
 import com.facebook.presto.sql.planner.plan.LimitNode;
 import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
+import com.facebook.presto.sql.planner.plan.OrderingScheme;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.PlanVisitor;
@@ -117,6 +118,7 @@ import static com.facebook.presto.sql.planner.plan.ExchangeNode.Scope.REMOTE;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.GATHER;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPARTITION;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.gatheringExchange;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.mergingExchange;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.partitionedExchange;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.replicatedExchange;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -192,6 +194,7 @@ public class AddExchanges
         private final boolean distributedIndexJoins;
         private final boolean preferStreamingOperators;
         private final boolean redistributeWrites;
+        private final boolean distributedSort;
 
         public Rewriter(PlanNodeIdAllocator idAllocator, SymbolAllocator symbolAllocator, Session session)
         {
@@ -202,6 +205,7 @@ public class AddExchanges
             this.distributedIndexJoins = SystemSessionProperties.isDistributedIndexJoinEnabled(session);
             this.redistributeWrites = SystemSessionProperties.isRedistributeWrites(session);
             this.preferStreamingOperators = SystemSessionProperties.preferStreamingOperators(session);
+            this.distributedSort = SystemSessionProperties.isDistributedSortEnabled(session);
         }
 
         @Override
@@ -469,6 +473,13 @@ public class AddExchanges
             PlanWithProperties child = planChild(node, context.withPreferredProperties(PreferredProperties.undistributed()));
 
             if (!child.getProperties().isSingleNode()) {
+                if (distributedSort) {
+                    // sort each partition in place and merge the sorted streams while gathering them
+                    SortNode partialSort = new SortNode(idAllocator.getNextId(), child.getNode(), node.getOrderBy(), node.getOrderings());
+                    return withDerivedProperties(
+                            mergingExchange(idAllocator.getNextId(), REMOTE, partialSort, new OrderingScheme(node.getOrderBy(), node.getOrderings())),
+                            child.getProperties());
+                }
                 child = withDerivedProperties(
                         gatheringExchange(idAllocator.getNextId(), REMOTE, child.getNode()),
                         child.getProperties());
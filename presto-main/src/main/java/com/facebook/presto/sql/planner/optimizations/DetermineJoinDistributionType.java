@@ -14,10 +14,16 @@
 package com.facebook.presto.sql.planner.optimizations;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.cost.CachingStatsProvider;
+import com.facebook.presto.cost.PlanNodeStatsEstimate;
+import com.facebook.presto.cost.StatsCalculator;
+import com.facebook.presto.cost.StatsProvider;
+import com.facebook.presto.cost.TaskCountEstimator;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
 import com.facebook.presto.sql.planner.Symbol;
 import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.iterative.Lookup;
 import com.facebook.presto.sql.planner.plan.DeleteNode;
 import com.facebook.presto.sql.planner.plan.JoinNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
@@ -27,6 +33,8 @@ import com.facebook.presto.sql.planner.plan.SimplePlanRewriter;
 import java.util.Map;
 import java.util.Optional;
 
+import static com.facebook.presto.SystemSessionProperties.getJoinMaxBroadcastTableSize;
+import static com.facebook.presto.SystemSessionProperties.isAutomaticJoinDistributionType;
 import static com.facebook.presto.SystemSessionProperties.isDistributedJoinEnabled;
 import static com.facebook.presto.sql.planner.optimizations.QueryCardinalityUtil.isAtMostScalar;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.FULL;
@@ -37,24 +45,40 @@ import static java.util.Objects.requireNonNull;
 public class DetermineJoinDistributionType
         implements PlanOptimizer
 {
+    private final StatsCalculator statsCalculator;
+    private final TaskCountEstimator taskCountEstimator;
+
+    public DetermineJoinDistributionType(StatsCalculator statsCalculator, TaskCountEstimator taskCountEstimator)
+    {
+        this.statsCalculator = requireNonNull(statsCalculator, "statsCalculator is null");
+        this.taskCountEstimator = requireNonNull(taskCountEstimator, "taskCountEstimator is null");
+    }
+
     @Override
     public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
     {
         requireNonNull(plan, "plan is null");
         requireNonNull(session, "session is null");
 
-        return SimplePlanRewriter.rewriteWith(new Rewriter(session), plan);
+        StatsProvider statsProvider = new CachingStatsProvider(statsCalculator, Lookup.noLookup(), session, types);
+        return SimplePlanRewriter.rewriteWith(new Rewriter(session, statsProvider, taskCountEstimator.estimateSourceDistributedTaskCount(), types), plan);
     }
 
     private static class Rewriter
             extends SimplePlanRewriter<Void>
     {
         private final Session session;
+        private final StatsProvider statsProvider;
+        private final int nodesCount;
+        private final Map<Symbol, Type> types;
         private boolean isDeleteQuery;
 
-        public Rewriter(Session session)
+        public Rewriter(Session session, StatsProvider statsProvider, int nodesCount, Map<Symbol, Type> types)
         {
             this.session = session;
+            this.statsProvider = statsProvider;
+            this.nodesCount = nodesCount;
+            this.types = types;
         }
 
         @Override
@@ -81,7 +105,7 @@ public class DetermineJoinDistributionType
         {
             PlanNode sourceRewritten = context.rewrite(node.getSource(), context.get());
             PlanNode filteringSourceRewritten = context.rewrite(node.getFilteringSource(), context.get());
-            SemiJoinNode.DistributionType targetJoinDistributionType = getTargetSemiJoinDistributionType(isDeleteQuery);
+            SemiJoinNode.DistributionType targetJoinDistributionType = getTargetSemiJoinDistributionType(node, isDeleteQuery);
             return new SemiJoinNode(
                     node.getId(),
                     sourceRewritten,
@@ -113,13 +137,46 @@ public class DetermineJoinDistributionType
         {
             // The implementation of full outer join only works if the data is hash partitioned. See LookupJoinOperators#buildSideOuterJoinUnvisitedPositions
             JoinNode.Type type = node.getType();
-            if (type == RIGHT || type == FULL || (isDistributedJoinEnabled(session) && !mustBroadcastJoin(node))) {
+            if (type == RIGHT || type == FULL) {
+                return JoinNode.DistributionType.PARTITIONED;
+            }
+            if (mustBroadcastJoin(node)) {
+                return JoinNode.DistributionType.REPLICATED;
+            }
+
+            // keep the distribution type chosen by cost based join reordering
+            if (node.getDistributionType().isPresent()) {
+                return node.getDistributionType().get();
+            }
+            if (isDistributedJoinEnabled(session) && !(isAutomaticJoinDistributionType(session) && isBroadcastCheaper(node.getLeft(), node.getRight()))) {
                 return JoinNode.DistributionType.PARTITIONED;
             }
 
             return JoinNode.DistributionType.REPLICATED;
         }
 
+        /**
+         * Broadcasting is chosen when the estimated build side is small enough to fit in memory
+         * of every node, and sending it to every worker node transfers fewer bytes than partitioning
+         * both sides. When the size of either side is unknown the join is partitioned.
+         */
+        private boolean isBroadcastCheaper(PlanNode probe, PlanNode build)
+        {
+            PlanNodeStatsEstimate buildStats = statsProvider.getStats(build);
+            double buildSize = buildStats.getOutputSizeInBytes(build.getOutputSymbols(), types);
+            if (buildStats.isOutputRowCountUnknown() || buildSize > getJoinMaxBroadcastTableSize(session).toBytes()) {
+                return false;
+            }
+
+            PlanNodeStatsEstimate probeStats = statsProvider.getStats(probe);
+            if (probeStats.isOutputRowCountUnknown()) {
+                // a small build side may still be larger than the probe side
+                return false;
+            }
+            double probeSize = probeStats.getOutputSizeInBytes(probe.getOutputSymbols(), types);
+            return buildSize * nodesCount <= probeSize + buildSize;
+        }
+
         private static boolean mustBroadcastJoin(JoinNode node)
         {
             return isAtMostScalar(node.getRight()) || isCrossJoin(node);
@@ -130,9 +187,12 @@ public class DetermineJoinDistributionType
             return node.getType() == INNER && node.getCriteria().isEmpty();
         }
 
-        private SemiJoinNode.DistributionType getTargetSemiJoinDistributionType(boolean isDeleteQuery)
+        private SemiJoinNode.DistributionType getTargetSemiJoinDistributionType(SemiJoinNode node, boolean isDeleteQuery)
         {
-            if (isDistributedJoinEnabled(session) && !isDeleteQuery) {
+            if (isDeleteQuery) {
+                return SemiJoinNode.DistributionType.REPLICATED;
+            }
+            if (isDistributedJoinEnabled(session) && !(isAutomaticJoinDistributionType(session) && isBroadcastCheaper(node.getSource(), node.getFilteringSource()))) {
                 return SemiJoinNode.DistributionType.PARTITIONED;
             }
 
@@ -15,6 +15,7 @@ package com.facebook.presto.sql.planner.optimizations;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.OptimizerStatsRecorder;
 import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
 import com.facebook.presto.sql.planner.Symbol;
 import com.facebook.presto.sql.planner.SymbolAllocator;
@@ -29,4 +30,18 @@ public interface PlanOptimizer
             Map<Symbol, Type> types,
             SymbolAllocator symbolAllocator,
             PlanNodeIdAllocator idAllocator);
+
+    /**
+     * Optimizes the plan and records the optimizers nested in this one, such as iterative rules, in
+     * the stats of the query. The stats of this optimizer are recorded by the caller.
+     */
+    default PlanNode optimize(PlanNode plan,
+            Session session,
+            Map<Symbol, Type> types,
+            SymbolAllocator symbolAllocator,
+            PlanNodeIdAllocator idAllocator,
+            OptimizerStatsRecorder statsRecorder)
+    {
+        return optimize(plan, session, types, symbolAllocator, idAllocator);
+    }
 }
@@ -74,7 +74,8 @@ public class ProjectionPushDown
             if (source instanceof UnionNode) {
                 return pushProjectionThrough(node, (UnionNode) source);
             }
-            else if (source instanceof ExchangeNode) {
+            else if (source instanceof ExchangeNode && !((ExchangeNode) source).getOrderingScheme().isPresent()) {
+                // projections are not pushed through merging exchanges, as the ordering symbols could be projected away
                 return pushProjectionThrough(node, (ExchangeNode) source);
             }
             return replaceChildren(node, ImmutableList.of(source));
@@ -47,6 +47,7 @@ import com.facebook.presto.sql.planner.plan.JoinNode;
 import com.facebook.presto.sql.planner.plan.LateralJoinNode;
 import com.facebook.presto.sql.planner.plan.LimitNode;
 import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
+import com.facebook.presto.sql.planner.plan.OrderingScheme;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.PlanVisitor;
@@ -477,8 +478,16 @@ class PropertyDerivations
             switch (node.getType()) {
                 case GATHER:
                     boolean coordinatorOnly = node.getPartitioningScheme().getPartitioning().getHandle().isCoordinatorOnly();
+                    ImmutableList.Builder<LocalProperty<Symbol>> localProperties = ImmutableList.builder();
+                    if (node.getOrderingScheme().isPresent()) {
+                        OrderingScheme orderingScheme = node.getOrderingScheme().get();
+                        for (Symbol column : orderingScheme.getOrderBy()) {
+                            localProperties.add(new SortingProperty<>(column, orderingScheme.getOrderings().get(column)));
+                        }
+                    }
                     return ActualProperties.builder()
                             .global(coordinatorOnly ? coordinatorSingleStreamPartition() : singleStreamPartition())
+                            .local(localProperties.build())
                             .constants(constants)
                             .build();
                 case REPARTITION:
@@ -702,11 +711,9 @@ class PropertyDerivations
         switch (joinType) {
             case INNER:
             case LEFT:
-                return true;
             case RIGHT:
             case FULL:
-                // Currently there is no spill support for outer on the build side.
-                return false;
+                return true;
             default:
                 throw new IllegalStateException("Unknown join type: " + joinType);
         }
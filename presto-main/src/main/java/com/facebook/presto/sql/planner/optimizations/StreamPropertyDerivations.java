@@ -273,6 +273,10 @@ final class StreamPropertyDerivations
         public StreamProperties visitExchange(ExchangeNode node, List<StreamProperties> inputProperties)
         {
             if (node.getScope() == REMOTE) {
+                if (node.getOrderingScheme().isPresent()) {
+                    // a merging exchange produces a single sorted stream
+                    return StreamProperties.ordered();
+                }
                 return StreamProperties.fixedStreams();
             }
 
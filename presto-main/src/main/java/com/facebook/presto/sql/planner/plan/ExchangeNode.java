@@ -62,6 +62,20 @@ public class ExchangeNode
     // for each source, the list of inputs corresponding to each output
     private final List<List<Symbol>> inputs;
 
+    // when present, every source stream is sorted and the streams are merged preserving the order
+    private final Optional<OrderingScheme> orderingScheme;
+
+    public ExchangeNode(
+            PlanNodeId id,
+            Type type,
+            Scope scope,
+            PartitioningScheme partitioningScheme,
+            List<PlanNode> sources,
+            List<List<Symbol>> inputs)
+    {
+        this(id, type, scope, partitioningScheme, sources, inputs, Optional.empty());
+    }
+
     @JsonCreator
     public ExchangeNode(
             @JsonProperty("id") PlanNodeId id,
@@ -69,7 +83,8 @@ public class ExchangeNode
             @JsonProperty("scope") Scope scope,
             @JsonProperty("partitioningScheme") PartitioningScheme partitioningScheme,
             @JsonProperty("sources") List<PlanNode> sources,
-            @JsonProperty("inputs") List<List<Symbol>> inputs)
+            @JsonProperty("inputs") List<List<Symbol>> inputs,
+            @JsonProperty("orderingScheme") Optional<OrderingScheme> orderingScheme)
     {
         super(id);
 
@@ -78,6 +93,7 @@ public class ExchangeNode
         requireNonNull(sources, "sources is null");
         requireNonNull(partitioningScheme, "partitioningScheme is null");
         requireNonNull(inputs, "inputs is null");
+        requireNonNull(orderingScheme, "orderingScheme is null");
 
         checkArgument(!inputs.isEmpty(), "inputs is empty");
         checkArgument(inputs.stream().allMatch(inputSymbols -> inputSymbols.size() == partitioningScheme.getOutputLayout().size()), "Input symbols do not match output symbols");
@@ -91,11 +107,15 @@ public class ExchangeNode
 
         checkArgument(scope != REMOTE || type == Type.REPARTITION || !partitioningScheme.isReplicateNullsAndAny(), "Only REPARTITION can replicate remotely");
 
+        checkArgument(!orderingScheme.isPresent() || type == Type.GATHER, "Only GATHER can merge sorted streams");
+        checkArgument(!orderingScheme.isPresent() || partitioningScheme.getOutputLayout().containsAll(orderingScheme.get().getOrderBy()), "Exchange does not output all ordering symbols");
+
         this.type = type;
         this.sources = sources;
         this.scope = scope;
         this.partitioningScheme = partitioningScheme;
         this.inputs = listOfListsCopy(inputs);
+        this.orderingScheme = orderingScheme;
     }
 
     public static ExchangeNode partitionedExchange(PlanNodeId id, Scope scope, PlanNode child, List<Symbol> partitioningColumns, Optional<Symbol> hashColumns)
@@ -153,6 +173,18 @@ public class ExchangeNode
                 ImmutableList.of(child.getOutputSymbols()));
     }
 
+    public static ExchangeNode mergingExchange(PlanNodeId id, Scope scope, PlanNode child, OrderingScheme orderingScheme)
+    {
+        return new ExchangeNode(
+                id,
+                ExchangeNode.Type.GATHER,
+                scope,
+                new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), child.getOutputSymbols()),
+                ImmutableList.of(child),
+                ImmutableList.of(child.getOutputSymbols()),
+                Optional.of(orderingScheme));
+    }
+
     @JsonProperty
     public Type getType()
     {
@@ -190,6 +222,12 @@ public class ExchangeNode
         return inputs;
     }
 
+    @JsonProperty
+    public Optional<OrderingScheme> getOrderingScheme()
+    {
+        return orderingScheme;
+    }
+
     @Override
     public <R, C> R accept(PlanVisitor<R, C> visitor, C context)
     {
@@ -199,6 +237,6 @@ public class ExchangeNode
     @Override
     public PlanNode replaceChildren(List<PlanNode> newChildren)
     {
-        return new ExchangeNode(getId(), type, scope, partitioningScheme, newChildren, inputs);
+        return new ExchangeNode(getId(), type, scope, partitioningScheme, newChildren, inputs, orderingScheme);
     }
 }
@@ -62,6 +62,7 @@ import com.facebook.presto.sql.planner.plan.LateralJoinNode;
 import com.facebook.presto.sql.planner.plan.LimitNode;
 import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
 import com.facebook.presto.sql.planner.plan.MetadataDeleteNode;
+import com.facebook.presto.sql.planner.plan.OrderingScheme;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.PlanNode;
@@ -1012,6 +1013,16 @@ public class PlanPrinter
             return processChildren(node, indent + 1);
         }
 
+        private String formatOrderingScheme(Optional<OrderingScheme> orderingScheme)
+        {
+            if (!orderingScheme.isPresent()) {
+                return "";
+            }
+            OrderingScheme scheme = orderingScheme.get();
+            Iterable<String> keys = Iterables.transform(scheme.getOrderBy(), input -> input + " " + scheme.getOrderings().get(input));
+            return "[" + Joiner.on(", ").join(keys) + "]";
+        }
+
         @Override
         public Void visitSort(SortNode node, Integer indent)
         {
@@ -1026,7 +1037,11 @@ public class PlanPrinter
         @Override
         public Void visitRemoteSource(RemoteSourceNode node, Integer indent)
         {
-            print(indent, "- RemoteSource[%s] => [%s]", Joiner.on(',').join(node.getSourceFragmentIds()), formatOutputs(node.getOutputSymbols()));
+            print(indent, "- %s[%s]%s => [%s]",
+                    node.getOrderingScheme().isPresent() ? "RemoteMerge" : "RemoteSource",
+                    Joiner.on(',').join(node.getSourceFragmentIds()),
+                    formatOrderingScheme(node.getOrderingScheme()),
+                    formatOutputs(node.getOutputSymbols()));
             printCost(indent + 2, node);
             printStats(indent + 2, node.getId());
 
@@ -1110,11 +1125,12 @@ public class PlanPrinter
                         formatOutputs(node.getOutputSymbols()));
             }
             else {
-                print(indent, "- %sExchange[%s%s]%s => %s",
+                print(indent, "- %sExchange[%s%s]%s%s => %s",
                         UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, node.getScope().toString()),
                         node.getType(),
                         node.getPartitioningScheme().isReplicateNullsAndAny() ? " - REPLICATE NULLS AND ANY" : "",
                         formatHash(node.getPartitioningScheme().getHashColumn()),
+                        formatOrderingScheme(node.getOrderingScheme()),
                         formatOutputs(node.getOutputSymbols()));
             }
             printCost(indent + 2, node);
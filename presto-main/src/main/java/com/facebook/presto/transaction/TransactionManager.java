@@ -49,6 +49,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
@@ -84,6 +85,7 @@ public class TransactionManager
     private final int maxFinishingConcurrency;
 
     private final ConcurrentMap<TransactionId, TransactionMetadata> transactions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ConnectorId, AtomicLong> committedWriteCounts = new ConcurrentHashMap<>();
     private final CatalogManager catalogManager;
     private final Executor finishingExecutor;
 
@@ -156,6 +158,16 @@ public class TransactionManager
         return getTransactionMetadata(transactionId).getTransactionInfo();
     }
 
+    /**
+     * Returns the number of committed transactions that wrote to the connector. The tables of
+     * the connector are not changed through this coordinator while the count stays the same.
+     */
+    public long getCommittedWriteCount(ConnectorId connectorId)
+    {
+        AtomicLong count = committedWriteCounts.get(connectorId);
+        return count == null ? 0 : count.get();
+    }
+
     public List<TransactionInfo> getAllTransactionInfos()
     {
         return transactions.values().stream()
@@ -269,7 +281,17 @@ public class TransactionManager
 
     public ListenableFuture<?> asyncCommit(TransactionId transactionId)
     {
-        return nonCancellationPropagating(Futures.transformAsync(removeTransactionMetadataAsFuture(transactionId), TransactionMetadata::asyncCommit));
+        return nonCancellationPropagating(Futures.transformAsync(removeTransactionMetadataAsFuture(transactionId), this::commit));
+    }
+
+    private ListenableFuture<?> commit(TransactionMetadata transactionMetadata)
+    {
+        ListenableFuture<?> future = transactionMetadata.asyncCommit();
+        // a failed commit may have applied some of the writes
+        transactionMetadata.getWrittenConnectorId().ifPresent(connectorId -> future.addListener(
+                () -> committedWriteCounts.computeIfAbsent(connectorId, ignored -> new AtomicLong()).incrementAndGet(),
+                directExecutor()));
+        return future;
     }
 
     public ListenableFuture<?> asyncAbort(TransactionId transactionId)
@@ -447,6 +469,11 @@ public class TransactionManager
             }
         }
 
+        public synchronized Optional<ConnectorId> getWrittenConnectorId()
+        {
+            return Optional.ofNullable(writtenConnectorId.get());
+        }
+
         public synchronized ListenableFuture<?> asyncCommit()
         {
             if (!completedSuccessfully.compareAndSet(null, true)) {
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.iterative.Lookup;
+import com.facebook.presto.sql.planner.iterative.rule.test.PlanBuilder;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
+import static com.facebook.presto.sql.planner.iterative.rule.test.PlanBuilder.expression;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.LEFT;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
+
+public class TestPlanNodeStatsCalculator
+{
+    private static final Session SESSION = testSessionBuilder().build();
+
+    private final Metadata metadata = createTestMetadataManager();
+    private final StatsCalculator statsCalculator = new PlanNodeStatsCalculator(metadata);
+    private final PlanBuilder planBuilder = new PlanBuilder(new PlanNodeIdAllocator(), metadata);
+
+    private final Symbol x = planBuilder.symbol("x");
+    private final Symbol y = planBuilder.symbol("y");
+    private final ValuesNode left = planBuilder.values(x);
+    private final ValuesNode right = planBuilder.values(y);
+
+    private final Map<PlanNode, PlanNodeStatsEstimate> sourceStats = ImmutableMap.of(
+            left, PlanNodeStatsEstimate.builder()
+                    .setOutputRowCount(1000)
+                    .addSymbolStatistics(x, symbolStats(0, 100, 100))
+                    .build(),
+            right, PlanNodeStatsEstimate.builder()
+                    .setOutputRowCount(200)
+                    .addSymbolStatistics(y, symbolStats(50, 150, 50))
+                    .build());
+
+    @Test
+    public void testFilter()
+    {
+        PlanNodeStatsEstimate stats = calculateStats(planBuilder.filter(expression("x < BIGINT '50'"), left));
+
+        assertEquals(stats.getOutputRowCount(), 500.0);
+        assertEquals(stats.getSymbolStatistics(x).getDistinctValuesCount(), 50.0);
+        assertEquals(stats.getSymbolStatistics(x).getLowValue(), 0.0);
+        assertEquals(stats.getSymbolStatistics(x).getHighValue(), 50.0);
+    }
+
+    @Test
+    public void testUnknownFilter()
+    {
+        PlanNodeStatsEstimate stats = calculateStats(planBuilder.filter(expression("x % BIGINT '7' = BIGINT '3'"), left));
+
+        assertEquals(stats.getOutputRowCount(), 1000 * FilterStatsCalculator.UNKNOWN_FILTER_COEFFICIENT);
+    }
+
+    @Test
+    public void testInnerJoin()
+    {
+        PlanNodeStatsEstimate stats = calculateStats(planBuilder.join(INNER, left, right, new JoinNode.EquiJoinClause(x, y)));
+
+        assertEquals(stats.getOutputRowCount(), 2000.0);
+        assertEquals(stats.getSymbolStatistics(x).getDistinctValuesCount(), 50.0);
+        assertEquals(stats.getSymbolStatistics(y).getDistinctValuesCount(), 50.0);
+        assertEquals(stats.getSymbolStatistics(x).getLowValue(), 50.0);
+        assertEquals(stats.getSymbolStatistics(x).getHighValue(), 100.0);
+    }
+
+    @Test
+    public void testCrossJoin()
+    {
+        PlanNodeStatsEstimate stats = calculateStats(planBuilder.join(INNER, left, right));
+
+        assertEquals(stats.getOutputRowCount(), 200_000.0);
+        assertEquals(stats.getSymbolStatistics(x).getDistinctValuesCount(), 100.0);
+    }
+
+    @Test
+    public void testLeftJoinKeepsAllProbeRows()
+    {
+        PlanNodeStatsEstimate stats = calculateStats(planBuilder.join(LEFT, left, right, new JoinNode.EquiJoinClause(x, y), new JoinNode.EquiJoinClause(x, y)));
+
+        // each clause divides by the number of distinct values, so the inner join would produce only 20 rows
+        assertEquals(stats.getOutputRowCount(), 1000.0);
+    }
+
+    @Test
+    public void testAggregation()
+    {
+        PlanNodeStatsEstimate stats = calculateStats(planBuilder.aggregation(builder -> builder
+                .addGroupingSet(x)
+                .source(left)));
+
+        assertEquals(stats.getOutputRowCount(), 100.0);
+        assertEquals(stats.getSymbolStatistics(x).getDistinctValuesCount(), 100.0);
+    }
+
+    @Test
+    public void testGlobalAggregation()
+    {
+        PlanNodeStatsEstimate stats = calculateStats(planBuilder.aggregation(builder -> builder
+                .globalGrouping()
+                .source(left)));
+
+        assertEquals(stats.getOutputRowCount(), 1.0);
+    }
+
+    @Test
+    public void testLimit()
+    {
+        PlanNodeStatsEstimate stats = calculateStats(planBuilder.limit(10, left));
+
+        assertEquals(stats.getOutputRowCount(), 10.0);
+        assertEquals(stats.getSymbolStatistics(x).getDistinctValuesCount(), 10.0);
+    }
+
+    private PlanNodeStatsEstimate calculateStats(PlanNode node)
+    {
+        return statsCalculator.calculateStats(node, sourceStats::get, Lookup.noLookup(), SESSION, planBuilder.getSymbols());
+    }
+
+    private static SymbolStatsEstimate symbolStats(double lowValue, double highValue, double distinctValuesCount)
+    {
+        return SymbolStatsEstimate.builder()
+                .setLowValue(lowValue)
+                .setHighValue(highValue)
+                .setNullsFraction(0)
+                .setDistinctValuesCount(distinctValuesCount)
+                .build();
+    }
+}
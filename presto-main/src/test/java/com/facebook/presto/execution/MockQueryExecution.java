@@ -113,6 +113,7 @@ public class MockQueryExecution
                         new Duration(5, NANOSECONDS),
                         new Duration(7, NANOSECONDS),
                         new Duration(8, NANOSECONDS),
+                        new Duration(31, NANOSECONDS),
 
                         new Duration(100, NANOSECONDS),
                         new Duration(200, NANOSECONDS),
@@ -147,6 +148,8 @@ public class MockQueryExecution
 
                         new DataSize(28, BYTE),
                         29,
+                        ImmutableList.of(),
+                        ImmutableList.of(),
                         ImmutableList.of()),
                 Optional.empty(),
                 Optional.empty(),
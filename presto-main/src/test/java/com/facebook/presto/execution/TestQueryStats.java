@@ -16,6 +16,7 @@ package com.facebook.presto.execution;
 import com.facebook.presto.operator.FilterAndProjectOperator;
 import com.facebook.presto.operator.OperatorStats;
 import com.facebook.presto.operator.TableWriterOperator;
+import com.facebook.presto.sql.planner.OptimizerStats;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -134,6 +135,7 @@ public class TestQueryStats
             new Duration(5, NANOSECONDS),
             new Duration(7, NANOSECONDS),
             new Duration(8, NANOSECONDS),
+            new Duration(31, NANOSECONDS),
 
             new Duration(100, NANOSECONDS),
             new Duration(200, NANOSECONDS),
@@ -168,7 +170,10 @@ public class TestQueryStats
 
             new DataSize(28, BYTE),
             29,
-            operatorSummaries);
+            operatorSummaries,
+
+            ImmutableList.of(new OptimizerStats("PredicatePushDown", 32, 33, new Duration(34, NANOSECONDS))),
+            ImmutableList.of(new OptimizerStats("MergeFilters", 35, 36, new Duration(37, NANOSECONDS))));
 
     @Test
     public void testJson()
@@ -193,6 +198,7 @@ public class TestQueryStats
         assertEquals(actual.getExecutionTime(), new Duration(1, NANOSECONDS));
         assertEquals(actual.getAnalysisTime(), new Duration(7, NANOSECONDS));
         assertEquals(actual.getDistributedPlanningTime(), new Duration(8, NANOSECONDS));
+        assertEquals(actual.getLogicalPlanningTime(), new Duration(31, NANOSECONDS));
 
         assertEquals(actual.getTotalPlanningTime(), new Duration(100, NANOSECONDS));
         assertEquals(actual.getFinishingTime(), new Duration(200, NANOSECONDS));
@@ -227,5 +233,18 @@ public class TestQueryStats
 
         assertEquals(400L, actual.getWrittenPositions());
         assertEquals(1500L, actual.getWrittenDataSize().toBytes());
+
+        assertEquals(actual.getOptimizerSummaries().size(), 1);
+        assertExpectedOptimizerStats(actual.getOptimizerSummaries().get(0), "PredicatePushDown", 32, 33, new Duration(34, NANOSECONDS));
+        assertEquals(actual.getRuleSummaries().size(), 1);
+        assertExpectedOptimizerStats(actual.getRuleSummaries().get(0), "MergeFilters", 35, 36, new Duration(37, NANOSECONDS));
+    }
+
+    private static void assertExpectedOptimizerStats(OptimizerStats actual, String name, long invocations, long rewrites, Duration wallTime)
+    {
+        assertEquals(actual.getName(), name);
+        assertEquals(actual.getInvocations(), invocations);
+        assertEquals(actual.getRewrites(), rewrites);
+        assertEquals(actual.getWallTime(), wallTime);
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.block.BlockEncodingManager;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.type.TypeRegistry;
+import io.airlift.slice.DynamicSliceOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+/**
+ * Measures the pages per second serialized and deserialized by {@link PagesSerde}
+ * for the common block encodings, with each compression codec.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(SECONDS)
+@BenchmarkMode(Throughput)
+@Fork(3)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10, time = 2, timeUnit = SECONDS)
+public class BenchmarkPagesSerde
+{
+    private static final int ROWS_PER_PAGE = 10_000;
+    private static final int PAGE_COUNT = 100;
+
+    @Param({"LONG_ARRAY", "VARIABLE_WIDTH", "DICTIONARY", "RLE"})
+    private String encoding = "LONG_ARRAY";
+
+    @Param({"NONE", "LZ4", "SNAPPY", "ADAPTIVE"})
+    private String compression = "LZ4";
+
+    private PagesSerde serde;
+    private List<Page> pages;
+    private List<SerializedPage> serializedPages;
+    private DynamicSliceOutput output;
+
+    @Setup
+    public void setup()
+    {
+        BlockEncodingManager blockEncodingSerde = new BlockEncodingManager(new TypeRegistry());
+        if (compression.equals("NONE")) {
+            serde = new PagesSerdeFactory(blockEncodingSerde, false).createPagesSerde();
+        }
+        else {
+            serde = new PagesSerdeFactory(blockEncodingSerde, true, ExchangeCompressionCodec.valueOf(compression)).createPagesSerde();
+        }
+
+        Random random = new Random(42);
+        pages = new ArrayList<>();
+        serializedPages = new ArrayList<>();
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            Page page = new Page(createBlock(random));
+            pages.add(page);
+            serializedPages.add(serde.serialize(page));
+        }
+        output = new DynamicSliceOutput(serializedPages.stream().mapToInt(SerializedPage::getSizeInBytes).sum() * 2);
+    }
+
+    private Block createBlock(Random random)
+    {
+        switch (encoding) {
+            case "LONG_ARRAY": {
+                BlockBuilder blockBuilder = BIGINT.createFixedSizeBlockBuilder(ROWS_PER_PAGE);
+                for (int position = 0; position < ROWS_PER_PAGE; position++) {
+                    BIGINT.writeLong(blockBuilder, random.nextInt(1_000_000));
+                }
+                return blockBuilder.build();
+            }
+            case "VARIABLE_WIDTH":
+                return createVarcharBlock(random, ROWS_PER_PAGE);
+            case "DICTIONARY": {
+                Block dictionary = createVarcharBlock(random, 100);
+                int[] ids = new int[ROWS_PER_PAGE];
+                for (int position = 0; position < ROWS_PER_PAGE; position++) {
+                    ids[position] = random.nextInt(dictionary.getPositionCount());
+                }
+                return new DictionaryBlock(dictionary, ids);
+            }
+            case "RLE":
+                return new RunLengthEncodedBlock(createVarcharBlock(random, 1), ROWS_PER_PAGE);
+            default:
+                throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        }
+    }
+
+    private static Block createVarcharBlock(Random random, int positionCount)
+    {
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(new BlockBuilderStatus(), positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            VARCHAR.writeString(blockBuilder, "value_" + random.nextInt(1_000_000));
+        }
+        return blockBuilder.build();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_COUNT)
+    public List<SerializedPage> serialize()
+    {
+        List<SerializedPage> result = new ArrayList<>(PAGE_COUNT);
+        for (Page page : pages) {
+            result.add(serde.serialize(page));
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_COUNT)
+    public long serializeToOutput()
+    {
+        output.reset();
+        long size = 0;
+        for (Page page : pages) {
+            size += serde.serialize(page, output);
+        }
+        return size;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_COUNT)
+    public long deserialize()
+    {
+        long positions = 0;
+        for (SerializedPage serializedPage : serializedPages) {
+            positions += serde.deserialize(serializedPage).getPositionCount();
+        }
+        return positions;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPagesSerde.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.execution.buffer.PageCompression.LZ4;
+import static com.facebook.presto.execution.buffer.PageCompression.SNAPPY;
+import static com.facebook.presto.execution.buffer.PageCompression.UNCOMPRESSED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestAdaptivePageCompressionSelector
+{
+    @Test
+    public void testSamplesEveryCodec()
+    {
+        AdaptivePageCompressionSelector selector = new AdaptivePageCompressionSelector(2);
+        assertEquals(selector.getCompression(), LZ4);
+        assertEquals(selector.getCompression(), SNAPPY);
+        assertEquals(selector.getCompression(), LZ4);
+        assertEquals(selector.getCompression(), SNAPPY);
+        assertNull(selector.getSelectedCompression());
+    }
+
+    @Test
+    public void testSelectsSmallestOutput()
+    {
+        AdaptivePageCompressionSelector selector = new AdaptivePageCompressionSelector(2);
+        for (int i = 0; i < 2; i++) {
+            selector.recordCompression(LZ4, 1000, 500, 100);
+            selector.recordCompression(SNAPPY, 1000, 300, 200);
+        }
+        assertEquals(selector.getSelectedCompression(), SNAPPY);
+        assertEquals(selector.getCompression(), SNAPPY);
+
+        // samples recorded after the selection are ignored
+        selector.recordCompression(LZ4, 1000, 10, 1);
+        assertEquals(selector.getCompression(), SNAPPY);
+    }
+
+    @Test
+    public void testSelectsFasterCodecWithSimilarOutput()
+    {
+        AdaptivePageCompressionSelector selector = new AdaptivePageCompressionSelector(2);
+        for (int i = 0; i < 2; i++) {
+            selector.recordCompression(LZ4, 1000, 510, 100);
+            selector.recordCompression(SNAPPY, 1000, 500, 200);
+        }
+        assertEquals(selector.getCompression(), LZ4);
+    }
+
+    @Test
+    public void testIncompressibleData()
+    {
+        AdaptivePageCompressionSelector selector = new AdaptivePageCompressionSelector(2);
+        for (int i = 0; i < 2; i++) {
+            selector.recordCompression(LZ4, 1000, 950, 100);
+            selector.recordCompression(SNAPPY, 1000, 990, 100);
+        }
+        assertEquals(selector.getCompression(), UNCOMPRESSED);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.spi.Page;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.SliceInput;
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.execution.buffer.BufferResult.emptyResults;
+import static com.facebook.presto.execution.buffer.MultiplexedBufferSerde.readBufferRequests;
+import static com.facebook.presto.execution.buffer.MultiplexedBufferSerde.readBufferResults;
+import static com.facebook.presto.execution.buffer.MultiplexedBufferSerde.writeBufferRequests;
+import static com.facebook.presto.execution.buffer.MultiplexedBufferSerde.writeBufferResults;
+import static com.facebook.presto.execution.buffer.TestingPagesSerdeFactory.testingPagesSerde;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestMultiplexedBufferSerde
+{
+    private static final PagesSerde PAGES_SERDE = testingPagesSerde();
+    private static final List<Page> PAGES = ImmutableList.of(
+            createSequencePage(ImmutableList.of(BIGINT, VARCHAR), 10, 0, 100),
+            createSequencePage(ImmutableList.of(BIGINT, VARCHAR), 1000, 10, 200));
+
+    @Test
+    public void testRequestsRoundTrip()
+    {
+        List<BufferRequest> requests = ImmutableList.of(
+                new BufferRequest(new TaskId("query", 1, 0), new OutputBufferId(0), 0, new DataSize(1, MEGABYTE)),
+                new BufferRequest(new TaskId("query", 1, 1), new OutputBufferId(7), 42, new DataSize(16, MEGABYTE)),
+                new BufferRequest(new TaskId("other_query", 3, 12), new OutputBufferId(0), Long.MAX_VALUE, new DataSize(1, MEGABYTE)));
+
+        DynamicSliceOutput output = new DynamicSliceOutput(0);
+        writeBufferRequests(output, requests);
+        SliceInput input = output.slice().getInput();
+        List<BufferRequest> actual = readBufferRequests(input);
+        assertFalse(input.isReadable());
+
+        assertEquals(actual.size(), requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(actual.get(i).getTaskId(), requests.get(i).getTaskId());
+            assertEquals(actual.get(i).getBufferId(), requests.get(i).getBufferId());
+            assertEquals(actual.get(i).getToken(), requests.get(i).getToken());
+            assertEquals(actual.get(i).getMaxSize().toBytes(), requests.get(i).getMaxSize().toBytes());
+        }
+    }
+
+    @Test
+    public void testEmptyRequestsRoundTrip()
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(0);
+        writeBufferRequests(output, ImmutableList.of());
+        assertEquals(readBufferRequests(output.slice().getInput()), ImmutableList.of());
+    }
+
+    @Test
+    public void testEmptyBufferRoundTrip()
+    {
+        // a buffer without pages that may still produce more
+        assertResultsRoundTrip(ImmutableList.of(emptyResults("instance", 5, false)));
+    }
+
+    @Test
+    public void testPartialBufferRoundTrip()
+    {
+        assertResultsRoundTrip(ImmutableList.of(createResult("instance", 3, false, PAGES)));
+    }
+
+    @Test
+    public void testCompleteBufferRoundTrip()
+    {
+        assertResultsRoundTrip(ImmutableList.of(emptyResults("instance", 8, true)));
+        assertResultsRoundTrip(ImmutableList.of(createResult("instance", 6, true, PAGES)));
+    }
+
+    @Test
+    public void testMultipleBuffersRoundTrip()
+    {
+        // the results of all buffers are read back in the order of the requests
+        assertResultsRoundTrip(ImmutableList.of(
+                createResult("first", 0, false, PAGES),
+                emptyResults("second", 17, false),
+                createResult("third", 2, true, PAGES.subList(0, 1)),
+                emptyResults("fourth", 9, true)));
+    }
+
+    @Test
+    public void testFailedBufferRoundTrip()
+    {
+        // a failed buffer does not affect the frames of the other buffers
+        List<MultiplexedBufferResult> results = ImmutableList.of(
+                MultiplexedBufferResult.success(createResult("first", 0, false, PAGES)),
+                MultiplexedBufferResult.failure("java.lang.IllegalStateException: task failed"),
+                MultiplexedBufferResult.success(emptyResults("third", 4, true)));
+
+        DynamicSliceOutput output = new DynamicSliceOutput(0);
+        writeBufferResults(output, results);
+        SliceInput input = output.slice().getInput();
+        List<MultiplexedBufferResult> actual = readBufferResults(input);
+        assertFalse(input.isReadable());
+
+        assertEquals(actual.size(), 3);
+        assertResultEquals(actual.get(0), results.get(0).getResult());
+        assertTrue(actual.get(1).isFailed());
+        assertEquals(actual.get(1).getFailure(), "java.lang.IllegalStateException: task failed");
+        assertResultEquals(actual.get(2), results.get(2).getResult());
+    }
+
+    @Test
+    public void testNoBuffersRoundTrip()
+    {
+        assertResultsRoundTrip(ImmutableList.of());
+    }
+
+    private static BufferResult createResult(String taskInstanceId, long token, boolean bufferComplete, List<Page> pages)
+    {
+        ImmutableList.Builder<SerializedPage> serializedPages = ImmutableList.builder();
+        for (Page page : pages) {
+            serializedPages.add(PAGES_SERDE.serialize(page));
+        }
+        return new BufferResult(taskInstanceId, token, token + pages.size(), bufferComplete, serializedPages.build());
+    }
+
+    private static void assertResultsRoundTrip(List<BufferResult> results)
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(0);
+        writeBufferResults(output, results.stream()
+                .map(MultiplexedBufferResult::success)
+                .collect(toImmutableList()));
+        SliceInput input = output.slice().getInput();
+        List<MultiplexedBufferResult> actual = readBufferResults(input);
+        assertFalse(input.isReadable());
+
+        assertEquals(actual.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertResultEquals(actual.get(i), results.get(i));
+        }
+    }
+
+    private static void assertResultEquals(MultiplexedBufferResult actual, BufferResult expectedResult)
+    {
+        assertFalse(actual.isFailed());
+        BufferResult actualResult = actual.getResult();
+        assertEquals(actualResult.getTaskInstanceId(), expectedResult.getTaskInstanceId());
+        assertEquals(actualResult.getToken(), expectedResult.getToken());
+        assertEquals(actualResult.getNextToken(), expectedResult.getNextToken());
+        assertEquals(actualResult.isBufferComplete(), expectedResult.isBufferComplete());
+        assertEquals(actualResult.size(), expectedResult.size());
+        for (int page = 0; page < expectedResult.size(); page++) {
+            SerializedPage expectedPage = expectedResult.getSerializedPages().get(page);
+            SerializedPage actualPage = actualResult.getSerializedPages().get(page);
+            assertEquals(actualPage.getSlice(), expectedPage.getSlice());
+            assertEquals(actualPage.getCompression(), expectedPage.getCompression());
+            assertEquals(actualPage.getPositionCount(), expectedPage.getPositionCount());
+            assertEquals(actualPage.getUncompressedSizeInBytes(), expectedPage.getUncompressedSizeInBytes());
+            assertPageEquals(
+                    ImmutableList.of(BIGINT, VARCHAR),
+                    PAGES_SERDE.deserialize(actualPage),
+                    PAGES_SERDE.deserialize(expectedPage));
+        }
+    }
+}
@@ -17,6 +17,8 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.TestingBlockEncodingSerde;
+import com.facebook.presto.spi.type.TestingTypeManager;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
 import io.airlift.slice.DynamicSliceOutput;
@@ -26,13 +28,17 @@ import org.testng.annotations.Test;
 import java.util.Iterator;
 import java.util.List;
 
+import static com.facebook.presto.execution.buffer.PageCompression.SNAPPY;
+import static com.facebook.presto.execution.buffer.PageCompression.UNCOMPRESSED;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.readPages;
 import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writePages;
+import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writeSerializedPage;
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
 
 public class TestPagesSerde
 {
@@ -60,6 +66,63 @@ public class TestPagesSerde
         assertFalse(pageIterator.hasNext());
     }
 
+    @Test
+    public void testCompressionCodecs()
+    {
+        BlockBuilder builder = VARCHAR.createBlockBuilder(new BlockBuilderStatus(), 1000);
+        for (int i = 0; i < 1000; i++) {
+            VARCHAR.writeString(builder, "compressible value " + (i % 10));
+        }
+        Page expectedPage = new Page(builder.build());
+        List<Type> types = ImmutableList.of(VARCHAR);
+
+        for (ExchangeCompressionCodec codec : ExchangeCompressionCodec.values()) {
+            PagesSerdeFactory serdeFactory = new PagesSerdeFactory(new TestingBlockEncodingSerde(new TestingTypeManager()), true, codec);
+            PagesSerde writer = serdeFactory.createPagesSerde();
+            for (int i = 0; i < 100; i++) {
+                SerializedPage serializedPage = writer.serialize(expectedPage);
+                assertNotEquals(serializedPage.getCompression(), UNCOMPRESSED);
+
+                // the reader does not need to be configured with the codec of the writer
+                PagesSerde reader = new PagesSerdeFactory(new TestingBlockEncodingSerde(new TestingTypeManager()), false).createPagesSerde();
+                assertPageEquals(types, reader.deserialize(serializedPage), expectedPage);
+            }
+        }
+
+        PagesSerde serde = new PagesSerdeFactory(new TestingBlockEncodingSerde(new TestingTypeManager()), true, ExchangeCompressionCodec.SNAPPY).createPagesSerde();
+        assertEquals(serde.serialize(expectedPage).getCompression(), SNAPPY);
+    }
+
+    @Test
+    public void testSerializeToOutput()
+    {
+        PagesSerde serde = new TestingPagesSerdeFactory().createPagesSerde();
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR);
+
+        // pages of growing size are serialized with the same scratch buffers
+        for (int positions : new int[] {0, 10, 10_000, 5}) {
+            BlockBuilder bigintBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), positions);
+            BlockBuilder varcharBuilder = VARCHAR.createBlockBuilder(new BlockBuilderStatus(), positions);
+            for (int i = 0; i < positions; i++) {
+                BIGINT.writeLong(bigintBuilder, i % 7);
+                VARCHAR.writeString(varcharBuilder, "value" + (i % 3));
+            }
+            Page expectedPage = new Page(bigintBuilder.build(), varcharBuilder.build());
+
+            DynamicSliceOutput expected = new DynamicSliceOutput(1024);
+            SerializedPage serializedPage = serde.serialize(expectedPage);
+            writeSerializedPage(expected, serializedPage);
+
+            DynamicSliceOutput actual = new DynamicSliceOutput(1024);
+            assertEquals(serde.serialize(expectedPage, actual), serializedPage.getSizeInBytes());
+            assertEquals(actual.slice(), expected.slice());
+
+            Iterator<Page> pageIterator = readPages(serde, actual.slice().getInput());
+            assertPageEquals(types, pageIterator.next(), expectedPage);
+            assertFalse(pageIterator.hasNext());
+        }
+    }
+
     @Test
     public void testBigintSerializedSize()
     {
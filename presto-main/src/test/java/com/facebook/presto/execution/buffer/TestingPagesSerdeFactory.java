@@ -17,12 +17,10 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.block.TestingBlockEncodingSerde;
 import com.facebook.presto.spi.type.TestingTypeManager;
-import io.airlift.compress.Compressor;
-import io.airlift.compress.Decompressor;
-import io.airlift.compress.lz4.Lz4Compressor;
-import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.slice.SliceOutput;
 
-import java.util.Optional;
+import static com.facebook.presto.execution.buffer.PageCompression.LZ4;
+import static com.facebook.presto.execution.buffer.PageCompressionSelector.fixedCompression;
 
 public class TestingPagesSerdeFactory
         extends PagesSerdeFactory
@@ -37,16 +35,15 @@ public class TestingPagesSerdeFactory
     {
         return new SynchronizedPagesSerde(
                 new TestingBlockEncodingSerde(new TestingTypeManager()),
-                Optional.of(new Lz4Compressor()),
-                Optional.of(new Lz4Decompressor()));
+                fixedCompression(LZ4));
     }
 
     private static class SynchronizedPagesSerde
             extends PagesSerde
     {
-        public SynchronizedPagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<Compressor> compressor, Optional<Decompressor> decompressor)
+        public SynchronizedPagesSerde(BlockEncodingSerde blockEncodingSerde, PageCompressionSelector compressionSelector)
         {
-            super(blockEncodingSerde, compressor, decompressor);
+            super(blockEncodingSerde, compressionSelector);
         }
 
         @Override
@@ -55,6 +52,12 @@ public class TestingPagesSerdeFactory
             return super.serialize(page);
         }
 
+        @Override
+        public synchronized long serialize(Page page, SliceOutput output)
+        {
+            return super.serialize(page, output);
+        }
+
         @Override
         public synchronized Page deserialize(SerializedPage serializedPage)
         {
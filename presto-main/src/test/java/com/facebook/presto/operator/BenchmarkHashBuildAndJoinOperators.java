@@ -294,6 +294,7 @@ public class BenchmarkHashBuildAndJoinOperators
                 Optional.empty(),
                 Optional.empty(),
                 ImmutableList.of(),
+                Optional.empty(),
                 10_000,
                 1,
                 new PagesIndex.TestingFactory(false),
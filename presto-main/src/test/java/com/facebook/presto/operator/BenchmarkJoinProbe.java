@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Random;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+/**
+ * Measures the probe rows per second of a hash join on a single BIGINT key, for build
+ * sides ranging from a hash table that fits in the L2 cache to one of about 1GB.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(SECONDS)
+@BenchmarkMode(Throughput)
+@Fork(value = 3, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 10, time = 2, timeUnit = SECONDS)
+public class BenchmarkJoinProbe
+{
+    private static final int ROWS_PER_PAGE = 1024;
+    private static final int PROBE_PAGES = 100;
+    private static final int PROBE_ROWS = ROWS_PER_PAGE * PROBE_PAGES;
+
+    @Param({"1000", "100000", "1000000", "10000000", "30000000"})
+    private int buildRows = 1000;
+
+    private LookupSource lookupSource;
+    private List<Page> probePages;
+    private int[] positions;
+    private long[] joinPositions;
+
+    @Setup
+    public void setup()
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(types, buildRows);
+        for (int start = 0; start < buildRows; start += ROWS_PER_PAGE) {
+            pagesIndex.addPage(new Page(createLongSequenceBlock(start, min(start + ROWS_PER_PAGE, buildRows))));
+        }
+        lookupSource = pagesIndex.createLookupSourceSupplier(TEST_SESSION, ImmutableList.of(0), OptionalInt.empty(), Optional.empty(), Optional.empty(), ImmutableList.of()).get();
+
+        // about half of the probe rows have a match
+        Random random = new Random(42);
+        probePages = new ArrayList<>();
+        for (int page = 0; page < PROBE_PAGES; page++) {
+            BlockBuilder blockBuilder = BIGINT.createFixedSizeBlockBuilder(ROWS_PER_PAGE);
+            for (int position = 0; position < ROWS_PER_PAGE; position++) {
+                BIGINT.writeLong(blockBuilder, random.nextInt(buildRows * 2));
+            }
+            probePages.add(new Page(blockBuilder.build()));
+        }
+
+        positions = new int[ROWS_PER_PAGE];
+        for (int position = 0; position < ROWS_PER_PAGE; position++) {
+            positions[position] = position;
+        }
+        joinPositions = new long[ROWS_PER_PAGE];
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        lookupSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBE_ROWS)
+    public long probeRowAtATime()
+    {
+        long matches = 0;
+        for (Page page : probePages) {
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                if (lookupSource.getJoinPosition(position, page, page) >= 0) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBE_ROWS)
+    public long probeBatch()
+    {
+        long matches = 0;
+        for (Page page : probePages) {
+            lookupSource.getJoinPositions(positions, page.getPositionCount(), page, page, Optional.empty(), joinPositions);
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                if (joinPositions[position] >= 0) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkJoinProbe.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
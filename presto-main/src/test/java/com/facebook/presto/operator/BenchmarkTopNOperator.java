@@ -0,0 +1,265 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.operator.TopNOperator.TopNOperatorFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.SortOrder;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.gen.OrderingCompiler;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.testing.TestingTaskContext;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import io.airlift.units.DataSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.spi.block.SortOrder.DESC_NULLS_FIRST;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(MILLISECONDS)
+@BenchmarkMode(AverageTime)
+@Fork(3)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10, time = 2, timeUnit = SECONDS)
+public class BenchmarkTopNOperator
+{
+    private static final int TOTAL_POSITIONS = 1_000_000;
+    private static final int ROWS_PER_PAGE = 1024;
+    private static final int MAX_INITIAL_PRIORITY_QUEUE_SIZE = 10000;
+    private static final PlanNodeId TEST_PLAN_NODE_ID = new PlanNodeId("test");
+    private static final OrderingCompiler ORDERING_COMPILER = new OrderingCompiler();
+    private static final List<Integer> SORT_CHANNELS = ImmutableList.of(1, 2);
+    private static final List<SortOrder> SORT_ORDERS = ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_FIRST);
+
+    @State(Thread)
+    public static class BenchmarkContext
+    {
+        @Param({"100", "10000", "100000"})
+        private int topN = 100;
+
+        private ExecutorService executor;
+        private ScheduledExecutorService scheduledExecutor;
+        private List<Type> types;
+        private List<Page> pages;
+        private OperatorFactory operatorFactory;
+
+        @Setup
+        public void setup()
+        {
+            executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+            scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+
+            RowPagesBuilder pagesBuilder = rowPagesBuilder(VARCHAR, BIGINT, DOUBLE);
+            Random random = new Random(42);
+            for (int position = 0; position < TOTAL_POSITIONS; position++) {
+                if (position > 0 && position % ROWS_PER_PAGE == 0) {
+                    pagesBuilder.pageBreak();
+                }
+                pagesBuilder.row("value_" + random.nextInt(1000), random.nextLong(), random.nextDouble());
+            }
+            types = pagesBuilder.getTypes();
+            pages = pagesBuilder.build();
+
+            operatorFactory = new TopNOperatorFactory(
+                    0,
+                    TEST_PLAN_NODE_ID,
+                    types,
+                    topN,
+                    SORT_CHANNELS,
+                    SORT_ORDERS,
+                    ORDERING_COMPILER);
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            executor.shutdownNow();
+            scheduledExecutor.shutdownNow();
+        }
+
+        public DriverContext createDriverContext()
+        {
+            return TestingTaskContext.createTaskContext(executor, scheduledExecutor, TEST_SESSION, new DataSize(2, GIGABYTE))
+                    .addPipelineContext(0, true, true)
+                    .addDriverContext();
+        }
+
+        public OperatorFactory getOperatorFactory()
+        {
+            return operatorFactory;
+        }
+
+        public int getTopN()
+        {
+            return topN;
+        }
+
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        public List<Page> getPages()
+        {
+            return pages;
+        }
+    }
+
+    @Benchmark
+    public List<Page> topN(BenchmarkContext context)
+    {
+        Operator operator = context.getOperatorFactory().createOperator(context.createDriverContext());
+
+        Iterator<Page> input = context.getPages().iterator();
+        ImmutableList.Builder<Page> outputPages = ImmutableList.builder();
+
+        boolean finishing = false;
+        for (int loops = 0; !operator.isFinished() && loops < 1_000_000; loops++) {
+            if (operator.needsInput()) {
+                if (input.hasNext()) {
+                    operator.addInput(input.next());
+                }
+                else if (!finishing) {
+                    operator.finish();
+                    finishing = true;
+                }
+            }
+
+            Page outputPage = operator.getOutput();
+            if (outputPage != null) {
+                outputPages.add(outputPage);
+            }
+        }
+
+        return outputPages.build();
+    }
+
+    /**
+     * The previous implementation, which keeps each candidate row as an array of single
+     * position blocks in a priority queue, as a baseline for {@link #topN}.
+     */
+    @Benchmark
+    public List<Page> topNBaseline(BenchmarkContext context)
+    {
+        List<Type> types = context.getTypes();
+        List<Type> sortTypes = SORT_CHANNELS.stream()
+                .map(types::get)
+                .collect(toImmutableList());
+        int n = context.getTopN();
+
+        PriorityQueue<Block[]> candidates = new PriorityQueue<>(
+                Math.min(n, MAX_INITIAL_PRIORITY_QUEUE_SIZE),
+                Ordering.from(new RowComparator(sortTypes, SORT_CHANNELS, SORT_ORDERS)).reverse());
+        for (Page page : context.getPages()) {
+            Block[] blocks = page.getBlocks();
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                if (candidates.size() < n || compare(sortTypes, position, blocks, candidates.peek()) < 0) {
+                    candidates.add(page.getSingleValuePage(position).getBlocks());
+                    while (candidates.size() > n) {
+                        candidates.remove();
+                    }
+                }
+            }
+        }
+
+        ImmutableList.Builder<Block[]> rows = ImmutableList.builder();
+        while (!candidates.isEmpty()) {
+            rows.add(candidates.remove());
+        }
+
+        ImmutableList.Builder<Page> outputPages = ImmutableList.builder();
+        PageBuilder pageBuilder = new PageBuilder(types);
+        for (Block[] row : rows.build().reverse()) {
+            if (pageBuilder.isFull()) {
+                outputPages.add(pageBuilder.build());
+                pageBuilder.reset();
+            }
+            pageBuilder.declarePosition();
+            for (int channel = 0; channel < row.length; channel++) {
+                types.get(channel).appendTo(row[channel], 0, pageBuilder.getBlockBuilder(channel));
+            }
+        }
+        if (!pageBuilder.isEmpty()) {
+            outputPages.add(pageBuilder.build());
+        }
+        return outputPages.build();
+    }
+
+    private static int compare(List<Type> sortTypes, int position, Block[] blocks, Block[] currentMax)
+    {
+        for (int i = 0; i < SORT_CHANNELS.size(); i++) {
+            int sortChannel = SORT_CHANNELS.get(i);
+            // compare the right value to the left block but negate the result since we are evaluating in the opposite order
+            int compare = -SORT_ORDERS.get(i).compareBlockValue(sortTypes.get(i), currentMax[sortChannel], 0, blocks[sortChannel], position);
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return 0;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkTopNOperator.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
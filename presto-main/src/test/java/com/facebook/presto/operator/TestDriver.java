@@ -25,6 +25,7 @@ import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.HostAddress;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.split.PageSourceProvider;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
@@ -162,7 +163,8 @@ public class TestDriver
                     }
                 },
                 types,
-                ImmutableList.of());
+                ImmutableList.of(),
+                TupleDomain::all);
 
         PageConsumerOperator sink = createSinkOperator(source);
         Driver driver = new Driver(driverContext, source, sink);
@@ -486,7 +488,7 @@ public class TestDriver
                 List<Type> types,
                 Iterable<ColumnHandle> columns)
         {
-            super(operatorContext, planNodeId, pageSourceProvider, types, columns);
+            super(operatorContext, planNodeId, pageSourceProvider, types, columns, TupleDomain::all);
         }
 
         @Override
@@ -510,7 +512,7 @@ public class TestDriver
                 List<Type> types,
                 Iterable<ColumnHandle> columns)
         {
-            super(operatorContext, planNodeId, pageSourceProvider, types, columns);
+            super(operatorContext, planNodeId, pageSourceProvider, types, columns, TupleDomain::all);
         }
 
         @Override
@@ -161,6 +161,45 @@ public class TestExchangeClient
         assertStatus(statuses.get(location2), location2, "closed", 3, 3, 3, "not scheduled");
     }
 
+    @Test(timeOut = 60000)
+    public void testManyLocations()
+            throws Exception
+    {
+        DataSize maxResponseSize = new DataSize(10, Unit.MEGABYTE);
+        MockExchangeRequestProcessor processor = new MockExchangeRequestProcessor(maxResponseSize);
+
+        @SuppressWarnings("resource")
+        ExchangeClient exchangeClient = new ExchangeClient(new DataSize(32, Unit.MEGABYTE), maxResponseSize, 1, new Duration(1, TimeUnit.MINUTES), new Duration(1, TimeUnit.MINUTES), new TestingHttpClient(processor, newCachedThreadPool(daemonThreadsNamed("test-%s"))), executor, deltaMemoryInBytes -> {});
+
+        int locationCount = 200;
+        int pagesPerLocation = 5;
+        for (int i = 0; i < locationCount; i++) {
+            URI location = URI.create("http://localhost:8080/" + i);
+            for (int page = 0; page < pagesPerLocation; page++) {
+                processor.addPage(location, createPage(page + 1));
+            }
+            processor.setComplete(location);
+            exchangeClient.addLocation(location);
+        }
+        exchangeClient.noMoreLocations();
+
+        int pageCount = 0;
+        while (getNextPage(exchangeClient) != null) {
+            pageCount++;
+        }
+        assertEquals(pageCount, locationCount * pagesPerLocation);
+        assertEquals(exchangeClient.isClosed(), true);
+
+        ExchangeClientStatus status = exchangeClient.getStatus();
+        assertEquals(status.getBufferedPages(), 0);
+        assertEquals(status.getBufferedBytes(), 0);
+        assertEquals(status.getPageBufferClientStatuses().size(), locationCount);
+        for (PageBufferClientStatus clientStatus : status.getPageBufferClientStatuses()) {
+            assertEquals(clientStatus.getPagesReceived(), pagesPerLocation);
+            assertTrue(clientStatus.getBytesReceived() > 0);
+        }
+    }
+
     @Test
     public void testBufferLimit()
             throws Exception
@@ -305,6 +344,7 @@ public class TestExchangeClient
         assertEquals(clientStatus.getUri(), location);
         assertEquals(clientStatus.getState(), status, "status");
         assertEquals(clientStatus.getPagesReceived(), pagesReceived, "pagesReceived");
+        assertEquals(clientStatus.getBytesReceived() > 0, pagesReceived > 0, "bytesReceived");
         assertEquals(clientStatus.getRequestsScheduled(), requestsScheduled, "requestsScheduled");
         assertEquals(clientStatus.getRequestsCompleted(), requestsCompleted, "requestsCompleted");
         assertEquals(clientStatus.getHttpRequestState(), httpRequestState, "httpRequestState");
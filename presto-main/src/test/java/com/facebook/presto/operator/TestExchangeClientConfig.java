@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.operator.ExchangeClientConfig.ExchangeTransport;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.units.DataSize;
@@ -38,7 +39,8 @@ public class TestExchangeClientConfig
                 .setMinErrorDuration(new Duration(1, TimeUnit.MINUTES))
                 .setMaxErrorDuration(new Duration(5, TimeUnit.MINUTES))
                 .setMaxResponseSize(new HttpClientConfig().getMaxContentLength())
-                .setClientThreads(25));
+                .setClientThreads(25)
+                .setTransport(ExchangeTransport.HTTP));
     }
 
     @Test
@@ -51,6 +53,7 @@ public class TestExchangeClientConfig
                 .put("exchange.max-error-duration", "33s")
                 .put("exchange.max-response-size", "1MB")
                 .put("exchange.client-threads", "2")
+                .put("exchange.transport", "MULTIPLEXED")
                 .build();
 
         ExchangeClientConfig expected = new ExchangeClientConfig()
@@ -59,7 +62,8 @@ public class TestExchangeClientConfig
                 .setMinErrorDuration(new Duration(13, TimeUnit.SECONDS))
                 .setMaxErrorDuration(new Duration(33, TimeUnit.SECONDS))
                 .setMaxResponseSize(new DataSize(1, Unit.MEGABYTE))
-                .setClientThreads(2);
+                .setClientThreads(2)
+                .setTransport(ExchangeTransport.MULTIPLEXED);
 
         assertFullMapping(properties, expected);
     }
@@ -39,6 +39,7 @@ import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
 import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.block.BlockAssertions.createStringSequenceBlock;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
+import static com.facebook.presto.operator.UpdateMemory.NOOP;
 import static com.facebook.presto.spi.block.DictionaryId.randomDictionaryId;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
@@ -256,6 +257,27 @@ public class TestGroupByHash
         }
     }
 
+    @Test(dataProvider = "dataType")
+    public void testOffHeap(Type type)
+    {
+        // the hash starts small, so the values are rehashed into new off-heap tables several times
+        Block valuesBlock = type == VARCHAR ? createStringSequenceBlock(0, 10_000) : createLongSequenceBlock(0, 10_000);
+        Block hashBlock = getHashBlock(ImmutableList.of(type), valuesBlock);
+        Page page = new Page(valuesBlock, hashBlock);
+
+        GroupByHash groupByHash = createGroupByHash(ImmutableList.of(type), new int[] {0}, Optional.of(1), 4, false, true, JOIN_COMPILER, NOOP);
+        Work<GroupByIdBlock> work = groupByHash.getGroupIds(page);
+        assertTrue(work.process());
+        GroupByIdBlock groupIds = work.getResult();
+
+        assertEquals(groupByHash.getGroupCount(), valuesBlock.getPositionCount());
+        for (int position = 0; position < valuesBlock.getPositionCount(); position++) {
+            assertEquals(groupIds.getGroupId(position), position);
+            assertTrue(groupByHash.contains(position, page, CONTAINS_CHANNELS));
+        }
+        groupByHash.close();
+    }
+
     @Test(dataProvider = "dataType")
     public void testUpdateMemory(Type type)
             throws Exception
@@ -15,6 +15,7 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.Session;
 import com.facebook.presto.memory.AggregatedMemoryContext;
 import com.facebook.presto.memory.MemoryPool;
 import com.facebook.presto.memory.QueryContext;
@@ -61,6 +62,9 @@ import java.util.concurrent.ScheduledExecutorService;
 
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.SystemSessionProperties.ADAPTIVE_PARTIAL_AGGREGATION;
+import static com.facebook.presto.SystemSessionProperties.ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS;
+import static com.facebook.presto.SystemSessionProperties.ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD;
 import static com.facebook.presto.metadata.FunctionKind.AGGREGATE;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
 import static com.facebook.presto.operator.OperatorAssertion.dropChannel;
@@ -75,11 +79,10 @@ import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static com.google.common.base.Strings.nullToEmpty;
-import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
-import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
 import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
@@ -685,6 +688,81 @@ public class TestHashAggregationOperator
         }
     }
 
+    @Test(dataProvider = "hashEnabled")
+    public void testAdaptivePartialAggregation(boolean hashEnabled)
+    {
+        // every key of the first 1000 rows is unique, so the remaining rows are passed through
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 500)
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 500)
+                .build();
+        MaterializedResult expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT)
+                .pages(rowPagesBuilder(BIGINT, BIGINT)
+                        .addSequencePage(1000, 0, 0)
+                        .addSequencePage(1000, 0, 0)
+                        .build())
+                .build();
+        assertAdaptivePartialAggregation(rowPagesBuilder, input, expected, true);
+    }
+
+    @Test(dataProvider = "hashEnabled")
+    public void testAdaptivePartialAggregationWithReduction(boolean hashEnabled)
+    {
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 0)
+                .build();
+        MaterializedResult.Builder expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT);
+        for (long key = 0; key < 500; key++) {
+            expected.row(key, key * 4);
+        }
+        assertAdaptivePartialAggregation(rowPagesBuilder, input, expected.build(), false);
+    }
+
+    private void assertAdaptivePartialAggregation(RowPagesBuilder rowPagesBuilder, List<Page> input, MaterializedResult expected, boolean expectSkipped)
+    {
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                Ints.asList(0),
+                ImmutableList.of(),
+                Step.PARTIAL,
+                ImmutableList.of(LONG_SUM.bind(ImmutableList.of(0), Optional.empty())),
+                rowPagesBuilder.getHashChannel(),
+                Optional.empty(),
+                100_000,
+                new DataSize(16, MEGABYTE),
+                joinCompiler);
+
+        Session session = testSessionBuilder()
+                .setSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION, "true")
+                .setSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_MIN_ROWS, "1000")
+                .setSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD, "0.8")
+                .build();
+        DriverContext driverContext = TestingTaskContext.builder(executor, scheduledExecutor, session)
+                .build()
+                .addPipelineContext(0, true, true)
+                .addDriverContext();
+
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            List<Page> outputPages = toPages(operator, input.iterator());
+            assertEquals(((HashAggregationOperator) operator).isPartialAggregationSkipped(), expectSkipped);
+
+            if (rowPagesBuilder.getHashChannel().isPresent()) {
+                outputPages = dropChannel(outputPages, ImmutableList.of(1));
+            }
+            MaterializedResult actual = toMaterializedResult(session, ImmutableList.of(BIGINT, BIGINT), outputPages);
+            assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+        }
+    }
+
     @Test
     public void testMergeWithMemorySpill()
     {
@@ -815,47 +893,6 @@ public class TestHashAggregationOperator
         return ((InMemoryHashAggregationBuilder) aggregationBuilder).getCapacity();
     }
 
-    private static class DummySpillerFactory
-            implements SpillerFactory
-    {
-        private long spillsCount;
-
-        @Override
-        public Spiller create(List<Type> types, SpillContext spillContext, AggregatedMemoryContext memoryContext)
-        {
-            return new Spiller()
-            {
-                private final List<Iterable<Page>> spills = new ArrayList<>();
-
-                @Override
-                public ListenableFuture<?> spill(Iterator<Page> pageIterator)
-                {
-                    spillsCount++;
-                    spills.add(ImmutableList.copyOf(pageIterator));
-                    return immediateFuture(null);
-                }
-
-                @Override
-                public List<Iterator<Page>> getSpills()
-                {
-                    return spills.stream()
-                            .map(Iterable::iterator)
-                            .collect(toImmutableList());
-                }
-
-                @Override
-                public void close()
-                {
-                }
-            };
-        }
-
-        public long getSpillsCount()
-        {
-            return spillsCount;
-        }
-    }
-
     private static class FailingSpillerFactory
             implements SpillerFactory
     {
@@ -35,11 +35,13 @@ import com.facebook.presto.spiller.GenericPartitioningSpillerFactory;
 import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.spiller.SingleStreamSpiller;
 import com.facebook.presto.spiller.SingleStreamSpillerFactory;
+import com.facebook.presto.spiller.SpilledPageStream;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler.JoinFilterFunctionFactory;
 import com.facebook.presto.sql.gen.JoinProbeCompiler;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.testing.MaterializedResult;
 import com.facebook.presto.testing.TestingTaskContext;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -71,8 +73,10 @@ import java.util.stream.IntStream;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.SystemSessionProperties.DICTIONARY_PROCESSING_JOIN;
+import static com.facebook.presto.SystemSessionProperties.JOIN_OPERATOR_UNSPILL_MEMORY_LIMIT;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
 import static com.facebook.presto.operator.OperatorAssertion.dropChannel;
+import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.operator.OperatorAssertion.without;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
@@ -87,6 +91,7 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterators.unmodifiableIterator;
 import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.testing.Assertions.assertEqualsIgnoreOrder;
@@ -311,7 +316,14 @@ public class TestHashJoinOperator
     public void testInnerJoinWithSpill(boolean probeHashEnabled, List<WhenSpill> whenSpill, boolean isDictionaryProcessingJoinEnabled)
             throws Exception
     {
-        innerJoinWithSpill(probeHashEnabled, isDictionaryProcessingJoinEnabled, whenSpill, SINGLE_STREAM_SPILLER_FACTORY, PARTITIONING_SPILLER_FACTORY);
+        innerJoinWithSpill(probeHashEnabled, createTestSession(isDictionaryProcessingJoinEnabled), whenSpill, SINGLE_STREAM_SPILLER_FACTORY, PARTITIONING_SPILLER_FACTORY);
+    }
+
+    @Test(dataProvider = "joinWithSpillValues")
+    public void testInnerJoinWithSpillUnspilledInSubPartitions(boolean probeHashEnabled, List<WhenSpill> whenSpill, boolean isDictionaryProcessingJoinEnabled)
+            throws Exception
+    {
+        innerJoinWithSpill(probeHashEnabled, createTestSession(isDictionaryProcessingJoinEnabled, true), whenSpill, SINGLE_STREAM_SPILLER_FACTORY, PARTITIONING_SPILLER_FACTORY);
     }
 
     @Test(dataProvider = "joinWithFailingSpillValues")
@@ -344,7 +356,7 @@ public class TestHashJoinOperator
                 throw new IllegalArgumentException(format("Unsupported option: %s", whenSpillFails));
         }
         try {
-            innerJoinWithSpill(probeHashEnabled, isDictionaryProcessingJoinEnabled, whenSpill, buildSpillerFactory, partitioningSpillerFactory);
+            innerJoinWithSpill(probeHashEnabled, createTestSession(isDictionaryProcessingJoinEnabled), whenSpill, buildSpillerFactory, partitioningSpillerFactory);
             fail("Exception not thrown");
         }
         catch (RuntimeException exception) {
@@ -352,11 +364,11 @@ public class TestHashJoinOperator
         }
     }
 
-    private void innerJoinWithSpill(boolean probeHashEnabled, boolean isDictionaryProcessingJoinEnabled, List<WhenSpill> whenSpill, SingleStreamSpillerFactory buildSpillerFactory, PartitioningSpillerFactory joinSpillerFactory)
+    private void innerJoinWithSpill(boolean probeHashEnabled, Session session, List<WhenSpill> whenSpill, SingleStreamSpillerFactory buildSpillerFactory, PartitioningSpillerFactory joinSpillerFactory)
             throws Exception
     {
         TaskStateMachine taskStateMachine = new TaskStateMachine(new TaskId("query", 0, 0), executor);
-        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, createTestSession(isDictionaryProcessingJoinEnabled), taskStateMachine);
+        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, session, taskStateMachine);
 
         DriverContext joinDriverContext = taskContext.addPipelineContext(2, true, true).addDriverContext();
 
@@ -376,7 +388,7 @@ public class TestHashJoinOperator
                 .addSequencePage(4, 30, 300)
                 .addSequencePage(4, 40, 400);
 
-        BuildSideSetup buildSideSetup = setupBuildSide(true, taskContext, Ints.asList(0), buildPages, Optional.of(filterFunction), true, buildSpillerFactory);
+        BuildSideSetup buildSideSetup = setupBuildSide(true, taskContext, Ints.asList(0), buildPages, Optional.of(filterFunction), false, true, buildSpillerFactory);
         List<Driver> buildDrivers = buildSideSetup.getBuildDrivers();
         int buildOperatorCount = buildDrivers.size();
         checkState(buildOperatorCount == whenSpill.size());
@@ -469,6 +481,131 @@ public class TestHashJoinOperator
         }
     }
 
+    @DataProvider
+    public Object[][] fullOuterJoinWithSpillValues()
+    {
+        List<List<Object>> booleanValues = ImmutableList.of(ImmutableList.of(true), ImmutableList.of(false));
+        return product(product(booleanValues, booleanValues), booleanValues).stream()
+                .map(List::toArray)
+                .toArray(Object[][]::new);
+    }
+
+    @Test(dataProvider = "fullOuterJoinWithSpillValues")
+    public void testFullOuterJoinWithSpill(boolean probeHashEnabled, boolean unspillInSubPartitions, boolean isDictionaryProcessingJoinEnabled)
+            throws Exception
+    {
+        TaskStateMachine taskStateMachine = new TaskStateMachine(new TaskId("query", 0, 0), executor);
+        TaskContext taskContext = TestingTaskContext.createTaskContext(executor, scheduledExecutor, createTestSession(isDictionaryProcessingJoinEnabled, unspillInSubPartitions), taskStateMachine);
+
+        // build side
+        RowPagesBuilder buildPages = rowPagesBuilder(ImmutableList.of(VARCHAR, BIGINT))
+                .addSequencePage(4, 20, 200)
+                .addSequencePage(4, 20, 200)
+                .addSequencePage(4, 30, 300)
+                .addSequencePage(4, 40, 400);
+
+        BuildSideSetup buildSideSetup = setupBuildSide(true, taskContext, Ints.asList(0), buildPages, Optional.empty(), true, true, SINGLE_STREAM_SPILLER_FACTORY);
+        List<Driver> buildDrivers = buildSideSetup.getBuildDrivers();
+        LookupSourceFactory lookupSourceFactory = buildSideSetup.getLookupSourceFactory();
+
+        // a partition of an outer join can be spilled only while it is built
+        ListenableFuture<LookupSourceProvider> lookupSourceProvider = lookupSourceFactory.createLookupSourceProvider();
+        HashBuilderOperator spilledOperator = buildSideSetup.getBuildOperators().get(0);
+        boolean revoked = false;
+        while (!lookupSourceProvider.isDone()) {
+            for (Driver buildDriver : buildDrivers) {
+                checkErrors(taskStateMachine);
+                buildDriver.process();
+                if (!revoked && spilledOperator.getOperatorContext().getReservedRevocableBytes() > 0) {
+                    checkState(!lookupSourceProvider.isDone(), "Too late, LookupSource already done");
+                    revokeMemory(spilledOperator);
+                    revoked = true;
+                }
+            }
+        }
+        getFutureValue(lookupSourceProvider).close();
+        assertTrue(revoked, "Operator not spilled before LookupSource built");
+        for (HashBuilderOperator buildOperator : buildSideSetup.getBuildOperators()) {
+            assertEquals(buildOperator.getOperatorContext().getReservedRevocableBytes(), 0L, "Built partition of outer join is revocable");
+        }
+
+        for (Driver buildDriver : buildDrivers) {
+            runDriverInThread(executor, buildDriver);
+        }
+
+        // probe side
+        RowPagesBuilder probePages = rowPagesBuilder(probeHashEnabled, Ints.asList(0), ImmutableList.of(VARCHAR, BIGINT))
+                .row("20", 123_000L)
+                .row("20", 123_000L)
+                .pageBreak()
+                .addSequencePage(20, 0, 123_000)
+                .addSequencePage(10, 30, 123_000);
+
+        JoinOperatorFactory joinOperatorFactory = (JoinOperatorFactory) LOOKUP_JOIN_OPERATORS.fullOuterJoin(
+                0,
+                new PlanNodeId("test"),
+                lookupSourceFactory,
+                probePages.getTypes(),
+                Ints.asList(0),
+                getHashChannelAsInt(probePages),
+                Optional.empty(),
+                OptionalInt.of(1),
+                PARTITIONING_SPILLER_FACTORY);
+        OperatorFactory outerOperatorFactory = joinOperatorFactory.createOuterOperatorFactory().get();
+
+        List<Page> actualPages = new ArrayList<>();
+        DriverContext joinDriverContext = taskContext.addPipelineContext(2, true, true).addDriverContext();
+        Operator joinOperator = joinOperatorFactory.createOperator(joinDriverContext);
+        ValuesOperatorFactory valuesOperatorFactory = new ValuesOperatorFactory(17, new PlanNodeId("values"), probePages.getTypes(), probePages.build());
+        PageBuffer pageBuffer = new PageBuffer(10);
+        PageBufferOperatorFactory pageBufferOperatorFactory = new PageBufferOperatorFactory(18, new PlanNodeId("pageBuffer"), pageBuffer);
+        try (Driver joinDriver = new Driver(
+                joinDriverContext,
+                valuesOperatorFactory.createOperator(joinDriverContext),
+                joinOperator,
+                pageBufferOperatorFactory.createOperator(joinDriverContext))) {
+            joinDriver.initialize();
+            while (!joinDriver.isFinished()) {
+                processRow(joinDriver, taskStateMachine);
+                actualPages.addAll(getPages(pageBuffer));
+            }
+            actualPages.addAll(getPages(pageBuffer));
+        }
+        finally {
+            joinOperatorFactory.noMoreOperators();
+        }
+
+        // unmatched rows of the partitions which were not spilled are produced by the outer operator
+        actualPages.addAll(toPages(outerOperatorFactory, taskContext.addPipelineContext(3, false, true).addDriverContext()));
+        outerOperatorFactory.noMoreOperators();
+
+        MaterializedResult.Builder expected = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probePages.getTypesWithoutHash(), buildPages.getTypesWithoutHash()))
+                .row("20", 123_000L, "20", 200L)
+                .row("20", 123_000L, "20", 200L)
+                .row("20", 123_000L, "20", 200L)
+                .row("20", 123_000L, "20", 200L);
+        for (int i = 0; i < 20; i++) {
+            expected.row(String.valueOf(i), 123_000L + i, null, null);
+        }
+        for (int i = 0; i < 10; i++) {
+            if (i < 4) {
+                expected.row(String.valueOf(30 + i), 123_000L + i, String.valueOf(30 + i), 300L + i);
+            }
+            else {
+                expected.row(String.valueOf(30 + i), 123_000L + i, null, null);
+            }
+        }
+        for (int i = 1; i < 4; i++) {
+            expected.row(null, null, String.valueOf(20 + i), 200L + i);
+            expected.row(null, null, String.valueOf(20 + i), 200L + i);
+        }
+        for (int i = 0; i < 4; i++) {
+            expected.row(null, null, String.valueOf(40 + i), 400L + i);
+        }
+
+        assertEqualsIgnoreOrder(getProperColumns(joinOperator, probePages, actualPages).getMaterializedRows(), expected.build().getMaterializedRows());
+    }
+
     private static void processRow(final Driver joinDriver, final TaskStateMachine taskStateMachine)
             throws Exception
     {
@@ -991,11 +1128,18 @@ public class TestHashJoinOperator
     }
 
     private Session createTestSession(boolean isDictionaryProcessingJoinEnabled)
+    {
+        return createTestSession(isDictionaryProcessingJoinEnabled, false);
+    }
+
+    private Session createTestSession(boolean isDictionaryProcessingJoinEnabled, boolean unspillInSubPartitions)
     {
         return testSessionBuilder()
                 .setCatalog("tpch")
                 .setSchema(TINY_SCHEMA_NAME)
                 .setSystemProperty(DICTIONARY_PROCESSING_JOIN, String.valueOf(isDictionaryProcessingJoinEnabled))
+                // spilled partitions of the tests are a few hundred bytes
+                .setSystemProperty(JOIN_OPERATOR_UNSPILL_MEMORY_LIMIT, unspillInSubPartitions ? "64B" : "1GB")
                 .build();
     }
 
@@ -1046,7 +1190,7 @@ public class TestHashJoinOperator
             RowPagesBuilder buildPages,
             Optional<InternalJoinFilterFunction> filterFunction)
     {
-        BuildSideSetup buildSideSetup = setupBuildSide(parallelBuild, taskContext, hashChannels, buildPages, filterFunction, false, SINGLE_STREAM_SPILLER_FACTORY);
+        BuildSideSetup buildSideSetup = setupBuildSide(parallelBuild, taskContext, hashChannels, buildPages, filterFunction, false, false, SINGLE_STREAM_SPILLER_FACTORY);
         buildLookupSource(buildSideSetup);
         return buildSideSetup.getLookupSourceFactory();
     }
@@ -1057,6 +1201,7 @@ public class TestHashJoinOperator
             List<Integer> hashChannels,
             RowPagesBuilder buildPages,
             Optional<InternalJoinFilterFunction> filterFunction,
+            boolean buildOuter,
             boolean spillEnabled,
             SingleStreamSpillerFactory singleStreamSpillerFactory)
     {
@@ -1094,10 +1239,11 @@ public class TestHashJoinOperator
                 hashChannels,
                 buildPages.getHashChannel()
                         .map(OptionalInt::of).orElse(OptionalInt.empty()),
-                false,
+                buildOuter,
                 filterFunctionFactory,
                 Optional.empty(),
                 ImmutableList.of(),
+                Optional.empty(),
                 100,
                 partitionCount,
                 new PagesIndex.TestingFactory(false),
@@ -1295,13 +1441,21 @@ public class TestHashJoinOperator
                 }
 
                 @Override
-                public ListenableFuture<List<Page>> getAllSpilledPages()
+                public SpilledPageStream getSpilledPageStream(long maxReadAheadBytes)
                 {
                     if (failUnspill) {
-                        return immediateFailedFuture(new PrestoException(GENERIC_INTERNAL_ERROR, "Unspill failed"));
+                        Iterator<Page> failingPages = new AbstractIterator<Page>()
+                        {
+                            @Override
+                            protected Page computeNext()
+                            {
+                                throw new PrestoException(GENERIC_INTERNAL_ERROR, "Unspill failed");
+                            }
+                        };
+                        return new SpilledPageStream(failingPages, directExecutor(), maxReadAheadBytes);
                     }
                     writing = false;
-                    return immediateFuture(ImmutableList.copyOf(spills));
+                    return new SpilledPageStream(ImmutableList.copyOf(spills).iterator(), directExecutor(), maxReadAheadBytes);
                 }
 
                 @Override
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.testing.TestingMetadata.TestingColumnHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+
+public class TestLocalDynamicFilter
+{
+    private static final ColumnHandle FIRST = new TestingColumnHandle("first");
+    private static final ColumnHandle SECOND = new TestingColumnHandle("second");
+
+    @Test
+    public void testDistinctValues()
+    {
+        DynamicFilterCollector collector = new DynamicFilterCollector(ImmutableList.of(0, 1), ImmutableList.of(BIGINT, VARCHAR), ImmutableList.of(FIRST, SECOND), 10);
+        rowPagesBuilder(BIGINT, VARCHAR)
+                .row(1L, "a")
+                .row(3L, null)
+                .row(1L, "b")
+                .build()
+                .forEach(collector::addPage);
+
+        assertEquals(collector.getTupleDomain(), TupleDomain.withColumnDomains(ImmutableMap.of(
+                FIRST, Domain.multipleValues(BIGINT, ImmutableList.of(1L, 3L)),
+                SECOND, Domain.multipleValues(VARCHAR, ImmutableList.of(utf8Slice("a"), utf8Slice("b"))))));
+    }
+
+    @Test
+    public void testRangeAfterTooManyDistinctValues()
+    {
+        DynamicFilterCollector collector = new DynamicFilterCollector(ImmutableList.of(0), ImmutableList.of(BIGINT), ImmutableList.of(FIRST), 2);
+        rowPagesBuilder(BIGINT)
+                .addSequencePage(5, 10)
+                .build()
+                .forEach(collector::addPage);
+
+        assertEquals(collector.getTupleDomain(), TupleDomain.withColumnDomains(ImmutableMap.of(
+                FIRST, Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 10L, true, 14L, true)), false))));
+    }
+
+    @Test
+    public void testFloatingPointKeys()
+    {
+        DynamicFilterCollector collector = new DynamicFilterCollector(ImmutableList.of(0), ImmutableList.of(DOUBLE), ImmutableList.of(FIRST), 10);
+        rowPagesBuilder(DOUBLE)
+                .row(1.0)
+                .row(Double.NaN)
+                .build()
+                .forEach(collector::addPage);
+
+        assertEquals(collector.getTupleDomain(), TupleDomain.withColumnDomains(ImmutableMap.of(FIRST, Domain.notNull(DOUBLE))));
+    }
+
+    @Test
+    public void testEmptyBuild()
+    {
+        DynamicFilterCollector collector = new DynamicFilterCollector(ImmutableList.of(0), ImmutableList.of(BIGINT), ImmutableList.of(FIRST), 10);
+        rowPagesBuilder(BIGINT)
+                .row((Object) null)
+                .build()
+                .forEach(collector::addPage);
+
+        assertEquals(collector.getTupleDomain(), TupleDomain.none());
+    }
+
+    @Test
+    public void testPartitionsAreMerged()
+    {
+        LocalDynamicFilter dynamicFilter = new LocalDynamicFilter(ImmutableMap.of(new Symbol("build"), FIRST), 10);
+        dynamicFilter.setPartitionCount(2);
+
+        dynamicFilter.addPartition(TupleDomain.withColumnDomains(ImmutableMap.of(FIRST, Domain.singleValue(BIGINT, 1L))));
+        assertEquals(dynamicFilter.getCurrentPredicate(), TupleDomain.all());
+
+        dynamicFilter.addPartition(TupleDomain.withColumnDomains(ImmutableMap.of(FIRST, Domain.singleValue(BIGINT, 5L))));
+        assertEquals(dynamicFilter.getCurrentPredicate(), TupleDomain.withColumnDomains(ImmutableMap.of(
+                FIRST, Domain.multipleValues(BIGINT, ImmutableList.of(1L, 5L)))));
+    }
+
+    @Test
+    public void testEmptyPartitionsAreIgnored()
+    {
+        LocalDynamicFilter dynamicFilter = new LocalDynamicFilter(ImmutableMap.of(new Symbol("build"), FIRST), 10);
+        dynamicFilter.setPartitionCount(2);
+
+        dynamicFilter.addPartition(TupleDomain.none());
+        dynamicFilter.addPartition(TupleDomain.withColumnDomains(ImmutableMap.of(FIRST, Domain.singleValue(BIGINT, 5L))));
+        assertEquals(dynamicFilter.getCurrentPredicate(), TupleDomain.withColumnDomains(ImmutableMap.of(FIRST, Domain.singleValue(BIGINT, 5L))));
+    }
+}
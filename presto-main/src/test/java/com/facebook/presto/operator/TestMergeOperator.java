@@ -0,0 +1,364 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.SystemMemoryUsageListener;
+import com.facebook.presto.execution.buffer.PagesSerde;
+import com.facebook.presto.execution.buffer.TestingPagesSerdeFactory;
+import com.facebook.presto.metadata.RemoteTransactionHandle;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.operator.MergeOperator.MergeOperatorFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.split.RemoteSplit;
+import com.facebook.presto.sql.gen.OrderingCompiler;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.base.Splitter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableListMultimap.Builder;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpStatus;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.testing.TestingHttpClient;
+import io.airlift.http.client.testing.TestingResponse;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_TASK_INSTANCE_ID;
+import static com.facebook.presto.execution.buffer.PagesSerdeUtil.writePages;
+import static com.facebook.presto.execution.buffer.TestingPagesSerdeFactory.testingPagesSerde;
+import static com.facebook.presto.operator.ExchangeOperator.REMOTE_CONNECTOR_ID;
+import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_FIRST;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestMergeOperator
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT);
+    private static final PagesSerde PAGES_SERDE = testingPagesSerde();
+
+    private static final String TASK_1_ID = "task1";
+    private static final String TASK_2_ID = "task2";
+    private static final String TASK_3_ID = "task3";
+
+    private final LoadingCache<String, TaskBuffer> taskBuffers = CacheBuilder.newBuilder().build(CacheLoader.from(TaskBuffer::new));
+
+    private ScheduledExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private HttpClient httpClient;
+    private ExchangeClientSupplier exchangeClientSupplier;
+
+    @SuppressWarnings("resource")
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        executor = newScheduledThreadPool(4, daemonThreadsNamed("test-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+
+        httpClient = new TestingHttpClient(new HttpClientHandler(taskBuffers), executor);
+
+        exchangeClientSupplier = (systemMemoryUsageListener) -> new ExchangeClient(
+                new DataSize(32, MEGABYTE),
+                new DataSize(10, MEGABYTE),
+                3,
+                new Duration(1, TimeUnit.MINUTES),
+                new Duration(1, TimeUnit.MINUTES),
+                httpClient,
+                executor,
+                systemMemoryUsageListener);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        httpClient.close();
+        httpClient = null;
+
+        executor.shutdownNow();
+        executor = null;
+
+        scheduledExecutor.shutdownNow();
+        scheduledExecutor = null;
+    }
+
+    @BeforeMethod
+    public void setUpMethod()
+    {
+        taskBuffers.invalidateAll();
+    }
+
+    @Test
+    public void testMerge()
+            throws Exception
+    {
+        SourceOperator operator = createMergeOperator();
+
+        operator.addSplit(newRemoteSplit(TASK_1_ID));
+        operator.addSplit(newRemoteSplit(TASK_2_ID));
+        operator.addSplit(newRemoteSplit(TASK_3_ID));
+        operator.noMoreSplits();
+
+        taskBuffers.getUnchecked(TASK_1_ID).addPages(rowPagesBuilder(TYPES)
+                .row(1L).row(4L)
+                .pageBreak()
+                .row(7L)
+                .build(), true);
+        taskBuffers.getUnchecked(TASK_2_ID).addPages(rowPagesBuilder(TYPES)
+                .row(2L).row(5L).row(8L)
+                .build(), true);
+        taskBuffers.getUnchecked(TASK_3_ID).addPages(rowPagesBuilder(TYPES)
+                .row(3L)
+                .pageBreak()
+                .row(6L)
+                .pageBreak()
+                .row(9L)
+                .build(), true);
+
+        assertEquals(readValues(operator), ImmutableList.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L));
+        assertTrue(operator.isFinished());
+    }
+
+    @Test
+    public void testWaitForAllStreams()
+            throws Exception
+    {
+        SourceOperator operator = createMergeOperator();
+
+        operator.addSplit(newRemoteSplit(TASK_1_ID));
+        operator.addSplit(newRemoteSplit(TASK_2_ID));
+        operator.noMoreSplits();
+
+        // the first row can not be produced until every stream has data
+        taskBuffers.getUnchecked(TASK_1_ID).addPages(rowPagesBuilder(TYPES).row(2L).build(), true);
+        Thread.sleep(100);
+        assertNull(operator.getOutput());
+        assertFalse(operator.isFinished());
+
+        taskBuffers.getUnchecked(TASK_2_ID).addPages(rowPagesBuilder(TYPES).row(1L).row(3L).build(), true);
+
+        assertEquals(readValues(operator), ImmutableList.of(1L, 2L, 3L));
+        assertTrue(operator.isFinished());
+    }
+
+    @Test
+    public void testWaitForNoMoreSplits()
+            throws Exception
+    {
+        SourceOperator operator = createMergeOperator();
+
+        operator.addSplit(newRemoteSplit(TASK_1_ID));
+        taskBuffers.getUnchecked(TASK_1_ID).addPages(rowPagesBuilder(TYPES).row(1L).build(), true);
+
+        assertFalse(operator.isBlocked().isDone());
+        assertNull(operator.getOutput());
+
+        operator.noMoreSplits();
+        assertEquals(readValues(operator), ImmutableList.of(1L));
+    }
+
+    @Test
+    public void testExchangeClientsShareBuffer()
+            throws Exception
+    {
+        List<Integer> clientCounts = new ArrayList<>();
+        SourceOperator operator = createMergeOperator(new ExchangeClientSupplier()
+        {
+            @Override
+            public ExchangeClient get(SystemMemoryUsageListener systemMemoryUsageListener)
+            {
+                throw new UnsupportedOperationException("clients of a merge share the exchange buffer");
+            }
+
+            @Override
+            public ExchangeClient get(SystemMemoryUsageListener systemMemoryUsageListener, int clientCount)
+            {
+                clientCounts.add(clientCount);
+                return exchangeClientSupplier.get(systemMemoryUsageListener);
+            }
+        });
+
+        operator.addSplit(newRemoteSplit(TASK_1_ID));
+        operator.addSplit(newRemoteSplit(TASK_2_ID));
+        taskBuffers.getUnchecked(TASK_1_ID).addPages(rowPagesBuilder(TYPES).row(2L).build(), true);
+        taskBuffers.getUnchecked(TASK_2_ID).addPages(rowPagesBuilder(TYPES).row(1L).build(), true);
+
+        // the clients are only created once the number of upstream tasks is known
+        assertEquals(clientCounts, ImmutableList.of());
+        operator.noMoreSplits();
+        assertEquals(clientCounts, ImmutableList.of(2, 2));
+
+        assertEquals(readValues(operator), ImmutableList.of(1L, 2L));
+        operator.close();
+    }
+
+    private SourceOperator createMergeOperator()
+    {
+        return createMergeOperator(exchangeClientSupplier);
+    }
+
+    private SourceOperator createMergeOperator(ExchangeClientSupplier exchangeClientSupplier)
+    {
+        MergeOperatorFactory operatorFactory = new MergeOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                exchangeClientSupplier,
+                new TestingPagesSerdeFactory(),
+                TYPES,
+                new OrderingCompiler().compilePageWithPositionComparator(TYPES, ImmutableList.of(0), ImmutableList.of(ASC_NULLS_FIRST)));
+
+        DriverContext driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
+                .addPipelineContext(0, true, true)
+                .addDriverContext();
+
+        return operatorFactory.createOperator(driverContext);
+    }
+
+    private static Split newRemoteSplit(String taskId)
+    {
+        return new Split(REMOTE_CONNECTOR_ID, new RemoteTransactionHandle(), new RemoteSplit(URI.create("http://localhost/" + taskId)));
+    }
+
+    private static List<Long> readValues(Operator operator)
+            throws Exception
+    {
+        // read until finished or until 10 seconds has passed
+        long endTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<Long> values = new ArrayList<>();
+        while (!operator.isFinished() && System.nanoTime() < endTime) {
+            Page page = operator.getOutput();
+            if (page == null) {
+                operator.isBlocked().get(10, TimeUnit.SECONDS);
+                continue;
+            }
+            Block block = page.getBlock(0);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                values.add(BIGINT.getLong(block, position));
+            }
+        }
+        return values;
+    }
+
+    private static class HttpClientHandler
+            implements TestingHttpClient.Processor
+    {
+        private final LoadingCache<String, TaskBuffer> taskBuffers;
+
+        public HttpClientHandler(LoadingCache<String, TaskBuffer> taskBuffers)
+        {
+            this.taskBuffers = taskBuffers;
+        }
+
+        @Override
+        public Response handle(Request request)
+        {
+            ImmutableList<String> parts = ImmutableList.copyOf(Splitter.on("/").omitEmptyStrings().split(request.getUri().getPath()));
+            if (request.getMethod().equals("DELETE")) {
+                assertEquals(parts.size(), 1);
+                return new TestingResponse(HttpStatus.OK, ImmutableListMultimap.of(), new byte[0]);
+            }
+
+            assertEquals(parts.size(), 2);
+            String taskId = parts.get(0);
+            int pageToken = Integer.parseInt(parts.get(1));
+
+            Builder<String, String> headers = ImmutableListMultimap.builder();
+            headers.put(PRESTO_TASK_INSTANCE_ID, "task-instance-id");
+            headers.put(PRESTO_PAGE_TOKEN, String.valueOf(pageToken));
+
+            TaskBuffer taskBuffer = taskBuffers.getUnchecked(taskId);
+            Page page = taskBuffer.getPage(pageToken);
+            headers.put(CONTENT_TYPE, PRESTO_PAGES);
+            if (page != null) {
+                headers.put(PRESTO_PAGE_NEXT_TOKEN, String.valueOf(pageToken + 1));
+                headers.put(PRESTO_BUFFER_COMPLETE, String.valueOf(false));
+                DynamicSliceOutput output = new DynamicSliceOutput(256);
+                writePages(PAGES_SERDE, output, page);
+                return new TestingResponse(HttpStatus.OK, headers.build(), output.slice().getInput());
+            }
+            else if (taskBuffer.isFinished()) {
+                headers.put(PRESTO_PAGE_NEXT_TOKEN, String.valueOf(pageToken));
+                headers.put(PRESTO_BUFFER_COMPLETE, String.valueOf(true));
+                return new TestingResponse(HttpStatus.OK, headers.build(), new byte[0]);
+            }
+            else {
+                headers.put(PRESTO_PAGE_NEXT_TOKEN, String.valueOf(pageToken));
+                headers.put(PRESTO_BUFFER_COMPLETE, String.valueOf(false));
+                return new TestingResponse(HttpStatus.NO_CONTENT, headers.build(), new byte[0]);
+            }
+        }
+    }
+
+    private static class TaskBuffer
+    {
+        private final List<Page> buffer = new ArrayList<>();
+        private int acknowledgedPages;
+        private boolean closed;
+
+        public synchronized void addPages(List<Page> pages, boolean close)
+        {
+            buffer.addAll(pages);
+            if (close) {
+                closed = true;
+            }
+        }
+
+        public synchronized Page getPage(int pageSequenceId)
+        {
+            acknowledgedPages = Math.max(acknowledgedPages, pageSequenceId);
+            if (pageSequenceId >= buffer.size()) {
+                return null;
+            }
+            return buffer.get(pageSequenceId);
+        }
+
+        private synchronized boolean isFinished()
+        {
+            return closed && acknowledgedPages == buffer.size();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.MultiplexedPageTransport.BufferLocation;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Optional;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestMultiplexedPageTransport
+{
+    @Test
+    public void testParse()
+    {
+        Optional<BufferLocation> location = BufferLocation.parse(URI.create("http://localhost:8080/v1/task/query.1.2/results/3"));
+        assertTrue(location.isPresent());
+        assertEquals(location.get().getEndpoint(), URI.create("http://localhost:8080/v1/task/query.1.2/results"));
+        assertEquals(location.get().getTaskId(), new TaskId("query", 1, 2));
+        assertEquals(location.get().getBufferId(), new OutputBufferId(3));
+
+        assertTrue(MultiplexedPageTransport.isSupported(URI.create("https://worker:8443/v1/task/query.0.0/results/0")));
+    }
+
+    @Test
+    public void testParseMalformedPath()
+    {
+        assertNotParsed("http://localhost:8080");
+        assertNotParsed("http://localhost:8080/");
+        assertNotParsed("http://localhost:8080/results/3");
+        assertNotParsed("http://localhost:8080/query.1.2/results/3");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results/");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/status/3");
+        assertNotParsed("http://localhost:8080/v1/stage/query.1.2/results/3");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results/3/acknowledge");
+        assertNotParsed("mailto:presto@example.com");
+    }
+
+    @Test
+    public void testParseMalformedTaskId()
+    {
+        assertNotParsed("http://localhost:8080/v1/task/query/results/3");
+        assertNotParsed("http://localhost:8080/v1/task/query.1/results/3");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2.3/results/3");
+        assertNotParsed("http://localhost:8080/v1/task/query.stage.2/results/3");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.task/results/3");
+        assertNotParsed("http://localhost:8080/v1/task/query..2/results/3");
+        assertNotParsed("http://localhost:8080/v1/task/Query.1.2/results/3");
+    }
+
+    @Test
+    public void testParseMalformedBufferId()
+    {
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results/buffer");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results/-1");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results/1.5");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results/99999999999");
+    }
+
+    @Test
+    public void testParseWithQuery()
+    {
+        // the multiplexed transport cannot carry the parameters of a location
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results/3?summarize");
+        assertNotParsed("http://localhost:8080/v1/task/query.1.2/results/3?token=1");
+    }
+
+    private static void assertNotParsed(String location)
+    {
+        URI uri = URI.create(location);
+        assertFalse(BufferLocation.parse(uri).isPresent(), location);
+        assertFalse(MultiplexedPageTransport.isSupported(uri), location);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Math.floorMod;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Verifies that looking up the positions of a probe page in one batch finds the
+ * same addresses as looking up every position on its own.
+ */
+public class TestPagesHash
+{
+    // the precomputed hashes only take a few distinct values, so most keys collide
+    private static final int DISTINCT_HASHES = 16;
+    private static final int BUILD_PAGE_COUNT = 3;
+    private static final int BUILD_PAGE_SIZE = 200;
+    private static final int PROBE_PAGE_SIZE = 300;
+
+    @Test
+    public void testSingleBigintKey()
+    {
+        assertBatchLookup(ImmutableList.of(BIGINT), true);
+        assertBatchLookup(ImmutableList.of(BIGINT), false);
+    }
+
+    @Test
+    public void testSingleVarcharKey()
+    {
+        assertBatchLookup(ImmutableList.of(VARCHAR), true);
+        assertBatchLookup(ImmutableList.of(VARCHAR), false);
+    }
+
+    @Test
+    public void testMultiChannelKey()
+    {
+        assertBatchLookup(ImmutableList.of(BIGINT, VARCHAR), true);
+        assertBatchLookup(ImmutableList.of(BIGINT, VARCHAR), false);
+    }
+
+    private static void assertBatchLookup(List<Type> keyTypes, boolean precomputedHash)
+    {
+        List<Page> buildPages = new ArrayList<>();
+        for (int i = 0; i < BUILD_PAGE_COUNT; i++) {
+            buildPages.add(createPage(keyTypes, createBuildRows(i * BUILD_PAGE_SIZE, BUILD_PAGE_SIZE, keyTypes.size())));
+        }
+        PagesHash pagesHash = createPagesHash(keyTypes, buildPages, precomputedHash, ArrayPositionLinks.builder(BUILD_PAGE_COUNT * BUILD_PAGE_SIZE));
+
+        Page probePage = createPage(keyTypes, createProbeRows(PROBE_PAGE_SIZE, keyTypes.size()));
+        Page hashChannelsPage = getHashChannelsPage(probePage, keyTypes.size());
+        Optional<Block> rawHashBlock = precomputedHash ? Optional.of(probePage.getBlock(keyTypes.size())) : Optional.empty();
+
+        int[] positions = getNonNullPositions(hashChannelsPage);
+        int[] addressIndexes = new int[positions.length];
+        pagesHash.getAddressIndexes(positions, positions.length, hashChannelsPage, rawHashBlock, addressIndexes);
+
+        int found = 0;
+        for (int i = 0; i < positions.length; i++) {
+            int position = positions[i];
+            int expected = rawHashBlock.isPresent()
+                    ? pagesHash.getAddressIndex(position, hashChannelsPage, BIGINT.getLong(rawHashBlock.get(), position))
+                    : pagesHash.getAddressIndex(position, hashChannelsPage);
+            assertEquals(addressIndexes[i], expected, "position " + position);
+            if (expected != -1) {
+                found++;
+            }
+        }
+        assertTrue(found > 0, "no probe position is found");
+        assertTrue(found < positions.length, "every probe position is found");
+
+        // only the first positionCount positions are looked up
+        int positionCount = positions.length / 2;
+        int[] subsetAddressIndexes = new int[positions.length];
+        pagesHash.getAddressIndexes(positions, positionCount, hashChannelsPage, rawHashBlock, subsetAddressIndexes);
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(subsetAddressIndexes[i], i < positionCount ? addressIndexes[i] : 0);
+        }
+    }
+
+    static PagesHash createPagesHash(List<Type> keyTypes, List<Page> pages, boolean precomputedHash, PositionLinks.FactoryBuilder positionLinks)
+    {
+        ImmutableList.Builder<Integer> keyChannels = ImmutableList.builder();
+        for (int channel = 0; channel < keyTypes.size(); channel++) {
+            keyChannels.add(channel);
+        }
+        List<Type> types = ImmutableList.<Type>builder()
+                .addAll(keyTypes)
+                .add(BIGINT)
+                .build();
+
+        List<List<Block>> channels = new ArrayList<>();
+        for (int channel = 0; channel < types.size(); channel++) {
+            List<Block> blocks = new ArrayList<>();
+            for (Page page : pages) {
+                blocks.add(page.getBlock(channel));
+            }
+            channels.add(blocks);
+        }
+
+        LongArrayList addresses = new LongArrayList();
+        for (int pageIndex = 0; pageIndex < pages.size(); pageIndex++) {
+            for (int position = 0; position < pages.get(pageIndex).getPositionCount(); position++) {
+                addresses.add(encodeSyntheticAddress(pageIndex, position));
+            }
+        }
+
+        PagesHashStrategy pagesHashStrategy = new SimplePagesHashStrategy(
+                types,
+                keyChannels.build(),
+                channels,
+                keyChannels.build(),
+                precomputedHash ? OptionalInt.of(keyTypes.size()) : OptionalInt.empty(),
+                Optional.empty());
+        return new PagesHash(addresses, pagesHashStrategy, positionLinks);
+    }
+
+    /**
+     * Creates the values of the key channels of the build rows. Every channel has
+     * a different number of distinct values and nulls at different positions.
+     */
+    static List<Integer[]> createBuildRows(int start, int count, int channelCount)
+    {
+        List<Integer[]> rows = new ArrayList<>();
+        for (int row = start; row < start + count; row++) {
+            Integer[] values = new Integer[channelCount];
+            for (int channel = 0; channel < channelCount; channel++) {
+                values[channel] = (row + channel) % 11 == 0 ? null : (row + channel * 3) % (channel == 0 ? 200 : 7);
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * Creates the values of the key channels of the probe rows, some of which
+     * are not present on the build side.
+     */
+    static List<Integer[]> createProbeRows(int count, int channelCount)
+    {
+        List<Integer[]> rows = new ArrayList<>();
+        for (int row = 0; row < count; row++) {
+            Integer[] values = new Integer[channelCount];
+            for (int channel = 0; channel < channelCount; channel++) {
+                values[channel] = (row + channel) % 13 == 0 ? null : (row + channel * 3) % (channel == 0 ? 250 : 9);
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * Creates a page with the key channels followed by a precomputed hash channel.
+     */
+    static Page createPage(List<Type> keyTypes, List<Integer[]> rows)
+    {
+        Block[] blocks = new Block[keyTypes.size() + 1];
+        for (int channel = 0; channel < keyTypes.size(); channel++) {
+            Type type = keyTypes.get(channel);
+            BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), rows.size());
+            for (Integer[] row : rows) {
+                Integer value = row[channel];
+                if (value == null) {
+                    blockBuilder.appendNull();
+                }
+                else if (type.equals(BIGINT)) {
+                    BIGINT.writeLong(blockBuilder, value);
+                }
+                else {
+                    type.writeSlice(blockBuilder, utf8Slice("value" + value));
+                }
+            }
+            blocks[channel] = blockBuilder.build();
+        }
+
+        BlockBuilder hashBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), rows.size());
+        for (Integer[] row : rows) {
+            BIGINT.writeLong(hashBuilder, getCollidingHash(row));
+        }
+        blocks[keyTypes.size()] = hashBuilder.build();
+        return new Page(blocks);
+    }
+
+    static Page getHashChannelsPage(Page page, int channelCount)
+    {
+        Block[] blocks = new Block[channelCount];
+        for (int channel = 0; channel < channelCount; channel++) {
+            blocks[channel] = page.getBlock(channel);
+        }
+        return new Page(page.getPositionCount(), blocks);
+    }
+
+    static int[] getNonNullPositions(Page hashChannelsPage)
+    {
+        int[] positions = new int[hashChannelsPage.getPositionCount()];
+        int positionCount = 0;
+        for (int position = 0; position < hashChannelsPage.getPositionCount(); position++) {
+            boolean hasNull = false;
+            for (int channel = 0; channel < hashChannelsPage.getChannelCount(); channel++) {
+                hasNull |= hashChannelsPage.getBlock(channel).isNull(position);
+            }
+            if (!hasNull) {
+                positions[positionCount++] = position;
+            }
+        }
+        int[] nonNullPositions = new int[positionCount];
+        System.arraycopy(positions, 0, nonNullPositions, 0, positionCount);
+        return nonNullPositions;
+    }
+
+    private static long getCollidingHash(Integer[] row)
+    {
+        // equal keys have equal hashes
+        long hash = 0;
+        for (Integer value : row) {
+            if (value != null) {
+                hash += value;
+            }
+        }
+        return floorMod(hash, DISTINCT_HASHES);
+    }
+}
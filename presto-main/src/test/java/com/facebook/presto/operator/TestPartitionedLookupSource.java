@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.operator.PartitionedLookupSource.createPartitionedLookupSourceSupplier;
+import static com.facebook.presto.operator.TestPagesHash.createBuildRows;
+import static com.facebook.presto.operator.TestPagesHash.createPage;
+import static com.facebook.presto.operator.TestPagesHash.createPagesHash;
+import static com.facebook.presto.operator.TestPagesHash.createProbeRows;
+import static com.facebook.presto.operator.TestPagesHash.getHashChannelsPage;
+import static com.facebook.presto.operator.TestPagesHash.getNonNullPositions;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestPartitionedLookupSource
+{
+    private static final int PARTITION_COUNT = 4;
+    private static final int BUILD_ROW_COUNT = 600;
+    private static final int PROBE_PAGE_SIZE = 300;
+
+    @Test
+    public void testSingleBigintKey()
+    {
+        assertBatchLookup(ImmutableList.of(BIGINT), true);
+        assertBatchLookup(ImmutableList.of(BIGINT), false);
+    }
+
+    @Test
+    public void testMultiChannelKey()
+    {
+        assertBatchLookup(ImmutableList.of(BIGINT, VARCHAR), true);
+        assertBatchLookup(ImmutableList.of(BIGINT, VARCHAR), false);
+    }
+
+    private static void assertBatchLookup(List<Type> keyTypes, boolean precomputedHash)
+    {
+        int[] keyChannels = new int[keyTypes.size()];
+        for (int channel = 0; channel < keyChannels.length; channel++) {
+            keyChannels[channel] = channel;
+        }
+        LocalPartitionGenerator partitionGenerator = new LocalPartitionGenerator(new InterpretedHashGenerator(keyTypes, keyChannels), PARTITION_COUNT);
+
+        // split the build rows the way the build side of a partitioned join is split
+        List<Integer[]> buildRows = createBuildRows(0, BUILD_ROW_COUNT, keyTypes.size());
+        Page buildPage = createPage(keyTypes, buildRows);
+        List<List<Integer[]>> partitionRows = new ArrayList<>();
+        for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+            partitionRows.add(new ArrayList<>());
+        }
+        for (int position = 0; position < buildRows.size(); position++) {
+            long rawHash = getRawHash(partitionGenerator, buildPage, keyTypes.size(), position, precomputedHash);
+            partitionRows.get(partitionGenerator.getPartition(rawHash)).add(buildRows.get(position));
+        }
+
+        ImmutableList.Builder<Supplier<LookupSource>> partitions = ImmutableList.builder();
+        int nonEmptyPartitions = 0;
+        for (List<Integer[]> rows : partitionRows) {
+            ArrayPositionLinks.FactoryBuilder positionLinks = ArrayPositionLinks.builder(rows.size());
+            PagesHash pagesHash = createPagesHash(keyTypes, ImmutableList.of(createPage(keyTypes, rows)), precomputedHash, positionLinks);
+            LookupSource lookupSource = new JoinHash(pagesHash, Optional.empty(), Optional.of(positionLinks.build().create(ImmutableList.of())));
+            partitions.add(() -> lookupSource);
+            if (!rows.isEmpty()) {
+                nonEmptyPartitions++;
+            }
+        }
+        assertTrue(nonEmptyPartitions > 1, "the build rows are not split across partitions");
+
+        LookupSource lookupSource = createPartitionedLookupSourceSupplier(partitions.build(), keyTypes, false).getLookupSource();
+        assertTrue(lookupSource.isBatchLookupSupported());
+
+        Page probePage = createPage(keyTypes, createProbeRows(PROBE_PAGE_SIZE, keyTypes.size()));
+        Page hashChannelsPage = getHashChannelsPage(probePage, keyTypes.size());
+        Optional<Block> rawHashBlock = precomputedHash ? Optional.of(probePage.getBlock(keyTypes.size())) : Optional.empty();
+
+        int[] positions = getNonNullPositions(hashChannelsPage);
+        long[] joinPositions = new long[probePage.getPositionCount()];
+        lookupSource.getJoinPositions(positions, positions.length, hashChannelsPage, probePage, rawHashBlock, joinPositions);
+
+        int found = 0;
+        for (int position : positions) {
+            long expected = rawHashBlock.isPresent()
+                    ? lookupSource.getJoinPosition(position, hashChannelsPage, probePage, BIGINT.getLong(rawHashBlock.get(), position))
+                    : lookupSource.getJoinPosition(position, hashChannelsPage, probePage);
+            assertEquals(joinPositions[position], expected, "position " + position);
+            if (expected >= 0) {
+                found++;
+            }
+        }
+        assertTrue(found > 0, "no probe position is found");
+        assertTrue(found < positions.length, "every probe position is found");
+    }
+
+    private static long getRawHash(LocalPartitionGenerator partitionGenerator, Page page, int keyChannelCount, int position, boolean precomputedHash)
+    {
+        if (precomputedHash) {
+            return BIGINT.getLong(page.getBlock(keyChannelCount), position);
+        }
+        return partitionGenerator.getRawHash(page, position);
+    }
+}
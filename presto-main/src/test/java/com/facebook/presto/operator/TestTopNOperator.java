@@ -14,6 +14,7 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.RowPagesBuilder;
 import com.facebook.presto.operator.TopNOperator.TopNOperatorFactory;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
@@ -31,6 +32,8 @@ import java.util.concurrent.ScheduledExecutorService;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.finishOperator;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
 import static com.facebook.presto.spi.block.SortOrder.DESC_NULLS_LAST;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
@@ -41,8 +44,10 @@ import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static com.facebook.presto.testing.assertions.Assert.assertEquals;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.lang.String.format;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 @Test(singleThreaded = true)
@@ -168,6 +173,83 @@ public class TestTopNOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
+    @Test
+    public void testManyPages()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
+                .addSequencePage(500, 0, 0)
+                .addSequencePage(500, 2000, 2000)
+                .addSequencePage(500, 1000, 1000)
+                .addSequencePage(500, 1500, 1500)
+                .addSequencePage(500, 500, 500)
+                .build();
+
+        TopNOperatorFactory operatorFactory = new TopNOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT, DOUBLE),
+                3,
+                ImmutableList.of(0),
+                ImmutableList.of(DESC_NULLS_LAST));
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, DOUBLE)
+                .row(2499L, 2499.0)
+                .row(2498L, 2498.0)
+                .row(2497L, 2497.0)
+                .build();
+
+        assertOperatorEquals(operatorFactory, driverContext, input, expected);
+    }
+
+    @Test
+    public void testCompaction()
+            throws Exception
+    {
+        int pageCount = 40;
+        int positionsPerPage = 1000;
+        int n = 2000;
+
+        // every page contains some of the top rows, so no page is released until the candidates are compacted
+        RowPagesBuilder pagesBuilder = rowPagesBuilder(BIGINT);
+        for (int page = 0; page < pageCount; page++) {
+            for (int position = 0; position < positionsPerPage; position++) {
+                pagesBuilder.row((long) position * pageCount + page);
+            }
+            pagesBuilder.pageBreak();
+        }
+        List<Page> input = pagesBuilder.build();
+
+        TopNOperatorFactory operatorFactory = new TopNOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                n,
+                ImmutableList.of(0),
+                ImmutableList.of(DESC_NULLS_LAST));
+
+        long inputSizeInBytes = 0;
+        long maxMemoryReservation = 0;
+        ImmutableList.Builder<Page> output = ImmutableList.builder();
+        try (Operator operator = operatorFactory.createOperator(driverContext)) {
+            for (Page page : input) {
+                operator.addInput(page);
+                inputSizeInBytes += page.getRetainedSizeInBytes();
+                maxMemoryReservation = Math.max(maxMemoryReservation, operator.getOperatorContext().getOperatorStats().getMemoryReservation().toBytes());
+            }
+            output.addAll(finishOperator(operator));
+        }
+
+        // without compaction all input pages would be retained
+        assertTrue(maxMemoryReservation < inputSizeInBytes / 2, format("memory reservation %s is not less than half of the input size %s", maxMemoryReservation, inputSizeInBytes));
+
+        MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), BIGINT);
+        for (long value = pageCount * positionsPerPage - 1; value >= pageCount * positionsPerPage - n; value--) {
+            expected.row(value);
+        }
+        assertEquals(toMaterializedResult(driverContext.getSession(), ImmutableList.of(BIGINT), output.build()), expected.build());
+    }
+
     @Test
     public void testLimitZero()
             throws Exception
@@ -14,6 +14,7 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.memory.AggregatedMemoryContext;
 import com.facebook.presto.operator.WindowOperator.WindowOperatorFactory;
 import com.facebook.presto.operator.window.FirstValueFunction;
 import com.facebook.presto.operator.window.FrameInfo;
@@ -26,16 +27,24 @@ import com.facebook.presto.operator.window.RowNumberFunction;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
@@ -45,6 +54,7 @@ import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.operator.WindowFunctionDefinition.window;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
@@ -56,10 +66,17 @@ import static com.facebook.presto.sql.tree.FrameBound.Type.UNBOUNDED_PRECEDING;
 import static com.facebook.presto.sql.tree.WindowFrame.Type.RANGE;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static com.google.common.base.Throwables.getRootCause;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.lang.String.format;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 @Test(singleThreaded = true)
 public class TestWindowOperator
@@ -87,6 +104,13 @@ public class TestWindowOperator
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
     private DriverContext driverContext;
+    private DummySpillerFactory spillerFactory;
+
+    @DataProvider
+    public static Object[][] spillEnabled()
+    {
+        return new Object[][] {{false}, {true}};
+    }
 
     @BeforeMethod
     public void setUp()
@@ -96,6 +120,7 @@ public class TestWindowOperator
         driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
                 .addPipelineContext(0, true, true)
                 .addDriverContext();
+        spillerFactory = new DummySpillerFactory();
     }
 
     @AfterMethod
@@ -105,8 +130,8 @@ public class TestWindowOperator
         scheduledExecutor.shutdownNow();
     }
 
-    @Test
-    public void testRowNumber()
+    @Test(dataProvider = "spillEnabled")
+    public void testRowNumber(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
@@ -124,7 +149,8 @@ public class TestWindowOperator
                 ROW_NUMBER,
                 Ints.asList(),
                 Ints.asList(0),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), DOUBLE, BIGINT, BIGINT)
                 .row(-0.1, -1L, 1L)
@@ -137,8 +163,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testRowNumberPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testRowNumberPartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(VARCHAR, BIGINT, DOUBLE, BOOLEAN)
@@ -156,7 +182,8 @@ public class TestWindowOperator
                 ROW_NUMBER,
                 Ints.asList(0),
                 Ints.asList(1),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, DOUBLE, BOOLEAN, BIGINT)
                 .row("a", 2L, 0.3, false, 1L)
@@ -167,10 +194,11 @@ public class TestWindowOperator
                 .build();
 
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        assertTrue(spillEnabled == (spillerFactory.getSpillsCount() > 0), format("Spill state mismatch. Expected spill: %s, spill count: %s", spillEnabled, spillerFactory.getSpillsCount()));
     }
 
-    @Test
-    public void testRowNumberArbitrary()
+    @Test(dataProvider = "spillEnabled")
+    public void testRowNumberArbitrary(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(BIGINT)
@@ -191,7 +219,8 @@ public class TestWindowOperator
                 ROW_NUMBER,
                 Ints.asList(),
                 Ints.asList(),
-                ImmutableList.copyOf(new SortOrder[] {}));
+                ImmutableList.copyOf(new SortOrder[] {}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT)
                 .row(1L, 1L)
@@ -229,13 +258,14 @@ public class TestWindowOperator
                 ROW_NUMBER,
                 Ints.asList(),
                 Ints.asList(0),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                false);
 
         toPages(operatorFactory, driverContext, input);
     }
 
-    @Test
-    public void testFirstValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFirstValuePartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
@@ -254,7 +284,8 @@ public class TestWindowOperator
                 FIRST_VALUE,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "A2")
@@ -268,8 +299,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLastValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLastValuePartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
@@ -288,7 +319,8 @@ public class TestWindowOperator
                 LAST_VALUE,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "C2")
@@ -301,8 +333,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testNthValuePartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testNthValuePartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, BOOLEAN, VARCHAR)
@@ -321,7 +353,8 @@ public class TestWindowOperator
                 NTH_VALUE,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "C2")
@@ -335,8 +368,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLagPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLagPartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR, BOOLEAN, VARCHAR)
@@ -355,7 +388,8 @@ public class TestWindowOperator
                 LAG,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "D")
@@ -369,8 +403,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testLeadPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testLeadPartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(VARCHAR, VARCHAR, BIGINT, BIGINT, VARCHAR, BOOLEAN, VARCHAR)
@@ -389,7 +423,8 @@ public class TestWindowOperator
                 LEAD,
                 Ints.asList(0),
                 Ints.asList(2),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, VARCHAR, BIGINT, BOOLEAN, VARCHAR)
                 .row("a", "A2", 1L, false, "C2")
@@ -403,8 +438,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testPartiallyPreGroupedPartitionWithEmptyInput()
+    @Test(dataProvider = "spillEnabled")
+    public void testPartiallyPreGroupedPartitionWithEmptyInput(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
@@ -420,7 +455,8 @@ public class TestWindowOperator
                 Ints.asList(1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                0);
+                0,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .build();
@@ -428,8 +464,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testPartiallyPreGroupedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testPartiallyPreGroupedPartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
@@ -453,7 +489,8 @@ public class TestWindowOperator
                 Ints.asList(1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                0);
+                0,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -467,8 +504,8 @@ public class TestWindowOperator
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testFullyPreGroupedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFullyPreGroupedPartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
@@ -493,7 +530,8 @@ public class TestWindowOperator
                 Ints.asList(0, 1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                0);
+                0,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -508,8 +546,8 @@ public class TestWindowOperator
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testFullyPreGroupedAndPartiallySortedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFullyPreGroupedAndPartiallySortedPartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
@@ -535,7 +573,8 @@ public class TestWindowOperator
                 Ints.asList(0, 1),
                 Ints.asList(3, 2),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST, SortOrder.ASC_NULLS_LAST),
-                1);
+                1,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -551,8 +590,8 @@ public class TestWindowOperator
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testFullyPreGroupedAndFullySortedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testFullyPreGroupedAndFullySortedPartition(boolean spillEnabled)
             throws Exception
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
@@ -578,7 +617,8 @@ public class TestWindowOperator
                 Ints.asList(0, 1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                1);
+                1,
+                spillEnabled);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -595,6 +635,86 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
+    @Test
+    public void testSpillGroupEndDoesNotBlock()
+    {
+        ControlledSpillerFactory spillerFactory = new ControlledSpillerFactory();
+        Operator operator = createPartiallySpilledGroup(spillerFactory);
+
+        // the rest of the partially spilled group is spilled once the next group arrives
+        assertFalse(operator.isBlocked().isDone());
+        assertNull(operator.getOutput());
+
+        spillerFactory.getSpill(1).set(null);
+        assertTrue(operator.isBlocked().isDone());
+
+        operator.finish();
+        Page output = operator.getOutput();
+        assertTrue(operator.isFinished());
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT)
+                .row(1L, "a", 1L)
+                .row(2L, "a", 2L)
+                .row(3L, "a", 3L)
+                .row(1L, "b", 1L)
+                .build();
+        assertEquals(toMaterializedResult(driverContext.getSession(), expected.getTypes(), ImmutableList.of(output)), expected);
+    }
+
+    @Test
+    public void testSpillGroupEndFailure()
+    {
+        ControlledSpillerFactory spillerFactory = new ControlledSpillerFactory();
+        Operator operator = createPartiallySpilledGroup(spillerFactory);
+
+        spillerFactory.getSpill(1).setException(new IOException("Failed to spill"));
+        assertTrue(operator.isBlocked().isDone());
+        try {
+            operator.getOutput();
+            fail("expected exception");
+        }
+        catch (RuntimeException e) {
+            assertEquals(getRootCause(e).getMessage(), "Failed to spill");
+        }
+    }
+
+    private Operator createPartiallySpilledGroup(ControlledSpillerFactory spillerFactory)
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, VARCHAR)
+                .row(1L, "a")
+                .row(3L, "a")
+                .pageBreak()
+                .row(2L, "a")
+                .row(1L, "b")
+                .build();
+
+        Operator operator = new WindowOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT, VARCHAR),
+                Ints.asList(0, 1),
+                ROW_NUMBER,
+                Ints.asList(1),
+                Ints.asList(1),
+                Ints.asList(0),
+                ImmutableList.of(SortOrder.ASC_NULLS_LAST),
+                0,
+                10,
+                new PagesIndex.TestingFactory(false),
+                Optional.of(spillerFactory))
+                .createOperator(driverContext);
+
+        operator.addInput(input.get(0));
+        assertTrue(operator.getOperatorContext().getReservedRevocableBytes() > 0);
+        operator.startMemoryRevoke();
+        spillerFactory.getSpill(0).set(null);
+        operator.finishMemoryRevoke();
+
+        operator.addInput(input.get(1));
+        assertFalse(operator.needsInput());
+        return operator;
+    }
+
     @Test
     public void testFindEndPosition()
     {
@@ -628,13 +748,56 @@ public class TestWindowOperator
         assertEquals(WindowOperator.findEndPosition(0, array.length, (first, second) -> array[first] == array[second]), expected);
     }
 
-    private static WindowOperatorFactory createFactoryUnbounded(
+    private static class ControlledSpillerFactory
+            implements SpillerFactory
+    {
+        private final List<SettableFuture<?>> spills = new ArrayList<>();
+
+        public SettableFuture<?> getSpill(int index)
+        {
+            return spills.get(index);
+        }
+
+        @Override
+        public Spiller create(List<Type> types, SpillContext spillContext, AggregatedMemoryContext memoryContext)
+        {
+            return new Spiller()
+            {
+                private final List<List<Page>> pages = new ArrayList<>();
+
+                @Override
+                public ListenableFuture<?> spill(Iterator<Page> pageIterator)
+                {
+                    pages.add(ImmutableList.copyOf(pageIterator));
+                    SettableFuture<?> future = SettableFuture.create();
+                    spills.add(future);
+                    return future;
+                }
+
+                @Override
+                public List<Iterator<Page>> getSpills()
+                {
+                    return pages.stream()
+                            .map(List::iterator)
+                            .collect(toImmutableList());
+                }
+
+                @Override
+                public void close()
+                {
+                }
+            };
+        }
+    }
+
+    private WindowOperatorFactory createFactoryUnbounded(
             List<? extends Type> sourceTypes,
             List<Integer> outputChannels,
             List<WindowFunctionDefinition> functions,
             List<Integer> partitionChannels,
             List<Integer> sortChannels,
-            List<SortOrder> sortOrder)
+            List<SortOrder> sortOrder,
+            boolean spillEnabled)
     {
         return createFactoryUnbounded(
                 sourceTypes,
@@ -644,10 +807,11 @@ public class TestWindowOperator
                 ImmutableList.of(),
                 sortChannels,
                 sortOrder,
-                0);
+                0,
+                spillEnabled);
     }
 
-    private static WindowOperatorFactory createFactoryUnbounded(
+    private WindowOperatorFactory createFactoryUnbounded(
             List<? extends Type> sourceTypes,
             List<Integer> outputChannels,
             List<WindowFunctionDefinition> functions,
@@ -655,7 +819,8 @@ public class TestWindowOperator
             List<Integer> preGroupedChannels,
             List<Integer> sortChannels,
             List<SortOrder> sortOrder,
-            int preSortedChannelPrefix)
+            int preSortedChannelPrefix,
+            boolean spillEnabled)
     {
         return new WindowOperatorFactory(
                 0,
@@ -669,6 +834,7 @@ public class TestWindowOperator
                 sortOrder,
                 preSortedChannelPrefix,
                 10,
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled ? Optional.of(spillerFactory) : Optional.empty());
     }
 }
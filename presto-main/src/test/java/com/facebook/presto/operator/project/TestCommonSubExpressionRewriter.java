@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.metadata.FunctionRegistry;
+import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.sql.relational.DeterminismEvaluator;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.facebook.presto.sql.tree.QualifiedName;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
+import static com.facebook.presto.operator.project.CommonSubExpressionRewriter.rewriteCommonSubExpressions;
+import static com.facebook.presto.spi.function.OperatorType.ADD;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static com.facebook.presto.sql.relational.Signatures.ifSignature;
+import static org.testng.Assert.assertEquals;
+
+public class TestCommonSubExpressionRewriter
+{
+    private static final Signature ADD_SIGNATURE = Signature.internalOperator(ADD, BIGINT.getTypeSignature(), ImmutableList.of(BIGINT.getTypeSignature(), BIGINT.getTypeSignature()));
+
+    private final FunctionRegistry functionRegistry = createTestMetadataManager().getFunctionRegistry();
+    private final DeterminismEvaluator determinismEvaluator = new DeterminismEvaluator(functionRegistry);
+
+    @Test
+    public void testNoCommonSubExpressions()
+    {
+        List<RowExpression> projections = ImmutableList.of(add(field(0, BIGINT), constant(1L, BIGINT)), add(field(0, BIGINT), constant(2L, BIGINT)));
+
+        CommonSubExpressionRewriter.Result result = rewriteCommonSubExpressions(projections, determinismEvaluator);
+        assertEquals(result.getCommonSubExpressions(), ImmutableList.of());
+        assertEquals(result.getCommonSubExpressionChannel(), 1);
+        assertEquals(result.getRewrittenProjections(), projections);
+    }
+
+    @Test
+    public void testCommonSubExpression()
+    {
+        RowExpression sum = add(field(0, BIGINT), field(1, BIGINT));
+
+        CommonSubExpressionRewriter.Result result = rewriteCommonSubExpressions(
+                ImmutableList.of(add(sum, constant(1L, BIGINT)), add(sum, constant(2L, BIGINT)), field(1, BIGINT)),
+                determinismEvaluator);
+        assertEquals(result.getCommonSubExpressions(), ImmutableList.of(sum));
+        assertEquals(result.getCommonSubExpressionChannel(), 2);
+        assertEquals(result.getRewrittenProjections(), ImmutableList.of(
+                add(field(2, BIGINT), constant(1L, BIGINT)),
+                add(field(2, BIGINT), constant(2L, BIGINT)),
+                field(1, BIGINT)));
+    }
+
+    @Test
+    public void testNestedCommonSubExpressions()
+    {
+        RowExpression sum = add(field(0, BIGINT), field(1, BIGINT));
+        RowExpression outer = add(sum, constant(10L, BIGINT));
+
+        // the inner expression also occurs outside of the outer one, so it is evaluated first and read by the outer one
+        CommonSubExpressionRewriter.Result result = rewriteCommonSubExpressions(ImmutableList.of(outer, outer, sum), determinismEvaluator);
+        assertEquals(result.getCommonSubExpressions(), ImmutableList.of(sum, add(field(2, BIGINT), constant(10L, BIGINT))));
+        assertEquals(result.getCommonSubExpressionChannel(), 2);
+        assertEquals(result.getRewrittenProjections(), ImmutableList.of(field(3, BIGINT), field(3, BIGINT), field(2, BIGINT)));
+
+        // the inner expression only occurs within the outer one
+        result = rewriteCommonSubExpressions(ImmutableList.of(outer, outer), determinismEvaluator);
+        assertEquals(result.getCommonSubExpressions(), ImmutableList.of(outer));
+        assertEquals(result.getRewrittenProjections(), ImmutableList.of(field(2, BIGINT), field(2, BIGINT)));
+    }
+
+    @Test
+    public void testConditionallyEvaluated()
+    {
+        RowExpression sum = add(field(0, BIGINT), field(1, BIGINT));
+        RowExpression first = call(ifSignature(BIGINT), BIGINT, field(2, BOOLEAN), sum, constant(0L, BIGINT));
+        RowExpression second = add(field(1, BIGINT), sum);
+
+        // the expression is not evaluated for all positions by any of the projections
+        CommonSubExpressionRewriter.Result result = rewriteCommonSubExpressions(ImmutableList.of(first, second), determinismEvaluator);
+        assertEquals(result.getCommonSubExpressions(), ImmutableList.of());
+        assertEquals(result.getRewrittenProjections(), ImmutableList.of(first, second));
+
+        // once it is evaluated for all positions, the conditional occurrences read it as well
+        result = rewriteCommonSubExpressions(ImmutableList.of(first, second, add(sum, constant(1L, BIGINT))), determinismEvaluator);
+        assertEquals(result.getCommonSubExpressions(), ImmutableList.of(sum));
+        assertEquals(result.getCommonSubExpressionChannel(), 3);
+        assertEquals(result.getRewrittenProjections(), ImmutableList.of(
+                call(ifSignature(BIGINT), BIGINT, field(2, BOOLEAN), field(3, BIGINT), constant(0L, BIGINT)),
+                add(field(1, BIGINT), field(3, BIGINT)),
+                add(field(3, BIGINT), constant(1L, BIGINT))));
+    }
+
+    @Test
+    public void testNonDeterministic()
+    {
+        Signature random = functionRegistry.resolveFunction(QualifiedName.of("random"), ImmutableList.of());
+        List<RowExpression> projections = ImmutableList.of(call(random, DOUBLE), call(random, DOUBLE));
+
+        CommonSubExpressionRewriter.Result result = rewriteCommonSubExpressions(projections, determinismEvaluator);
+        assertEquals(result.getCommonSubExpressions(), ImmutableList.of());
+        assertEquals(result.getRewrittenProjections(), projections);
+    }
+
+    private static RowExpression add(RowExpression left, RowExpression right)
+    {
+        return call(ADD_SIGNATURE, BIGINT, left, right);
+    }
+}
@@ -19,6 +19,8 @@ import com.facebook.presto.operator.Work;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.block.LazyBlock;
 import com.facebook.presto.spi.block.SliceArrayBlock;
 import com.facebook.presto.spi.block.VariableWidthBlock;
@@ -34,17 +36,21 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.LongStream;
 
 import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.block.BlockAssertions.createStringsBlock;
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
 import static com.facebook.presto.operator.project.PageProcessor.MAX_BATCH_SIZE;
 import static com.facebook.presto.operator.project.PageProcessor.MAX_PAGE_SIZE_IN_BYTES;
 import static com.facebook.presto.operator.project.PageProcessor.MIN_PAGE_SIZE_IN_BYTES;
+import static com.facebook.presto.operator.project.SelectedPositions.positionsList;
 import static com.facebook.presto.operator.project.SelectedPositions.positionsRange;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.lang.String.join;
 import static java.util.Collections.nCopies;
@@ -366,6 +372,151 @@ public class TestPageProcessor
         assertFalse(output.hasNext());
     }
 
+    @Test
+    public void testCommonSubExpressions()
+            throws Exception
+    {
+        // both projections read the common subexpression, and the first one also reads an input channel
+        InvocationCountPageProjection commonSubExpression = new InvocationCountPageProjection(new InputPageProjection(0, BIGINT));
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.of(new TestingPageFilter(positionsList(new int[] {10, 20, 30, 40}, 1, 3))),
+                ImmutableList.of(commonSubExpression),
+                2,
+                ImmutableList.of(new AddPageProjection(1, 2), new InputPageProjection(2, BIGINT)));
+
+        Page inputPage = new Page(createLongSequenceBlock(0, 100), createLongSequenceBlock(100, 200));
+
+        PageProcessorOutput output = pageProcessor.process(SESSION, new DriverYieldSignal(), inputPage);
+
+        List<Optional<Page>> outputPages = ImmutableList.copyOf(output);
+        assertEquals(outputPages.size(), 1);
+        assertPageEquals(ImmutableList.of(BIGINT, BIGINT), outputPages.get(0).orElse(null), new Page(createLongsBlock(140, 160, 180), createLongsBlock(20, 30, 40)));
+        assertEquals(commonSubExpression.getInvocationCount(), 1);
+    }
+
+    @Test
+    public void testCommonSubExpressionsLazyLoad()
+            throws Exception
+    {
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.of(new TestingPageFilter(positionsRange(25, 50))),
+                ImmutableList.of(new InputPageProjection(0, BIGINT)),
+                2,
+                ImmutableList.of(new AddPageProjection(1, 2)));
+
+        LazyBlock lazyBlock = new LazyBlock(100, lazy -> lazy.setBlock(createLongSequenceBlock(100, 200)));
+        Page inputPage = new Page(createLongSequenceBlock(0, 100), lazyBlock);
+
+        PageProcessorOutput output = pageProcessor.process(SESSION, new DriverYieldSignal(), inputPage);
+
+        List<Optional<Page>> outputPages = ImmutableList.copyOf(output);
+        assertEquals(outputPages.size(), 1);
+        Block expected = createLongsBlock(LongStream.range(25, 75)
+                .map(position -> position + (100 + position))
+                .boxed()
+                .collect(toImmutableList()));
+        assertPageEquals(ImmutableList.of(BIGINT), outputPages.get(0).orElse(null), new Page(expected));
+        assertTrue(lazyBlock.isLoaded());
+    }
+
+    @Test
+    public void testYieldProjectionWithCommonSubExpressions()
+            throws Exception
+    {
+        // the common subexpression and every projection reading it yield after they finish
+        int rows = 128;
+        int columns = 20;
+        DriverYieldSignal yieldSignal = new DriverYieldSignal();
+        InvocationCountPageProjection commonSubExpression = new InvocationCountPageProjection(new YieldPageProjection(new InputPageProjection(0, VARCHAR)));
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.empty(),
+                ImmutableList.of(commonSubExpression),
+                1,
+                Collections.nCopies(columns, new YieldPageProjection(new InputPageProjection(1, VARCHAR))));
+
+        Slice[] slices = createDistinctSlices(rows, rows);
+        Page inputPage = new Page(new SliceArrayBlock(slices.length, slices));
+
+        PageProcessorOutput output = pageProcessor.process(SESSION, yieldSignal, inputPage);
+
+        // the page processor yields once after the common subexpression and once between two projections
+        for (int i = 0; i < columns; i++) {
+            assertTrue(output.hasNext());
+            assertNull(output.next().orElse(null));
+            assertTrue(yieldSignal.isSet());
+            yieldSignal.reset();
+        }
+        assertTrue(output.hasNext());
+        Page actualPage = output.next().orElse(null);
+        assertNotNull(actualPage);
+        assertTrue(yieldSignal.isSet());
+        yieldSignal.reset();
+
+        Block[] blocks = new Block[columns];
+        Arrays.fill(blocks, new SliceArrayBlock(rows, slices));
+        assertPageEquals(Collections.nCopies(columns, VARCHAR), actualPage, new Page(blocks));
+        assertFalse(output.hasNext());
+
+        // the result of the common subexpression computed before the first yield is reused after it
+        assertEquals(commonSubExpression.getInvocationCount(), 1);
+    }
+
+    @Test
+    public void testOptimisticProcessingWithCommonSubExpressions()
+            throws Exception
+    {
+        InvocationCountPageProjection commonSubExpression = new InvocationCountPageProjection(new InputPageProjection(0, VARCHAR));
+        InvocationCountPageProjection firstProjection = new InvocationCountPageProjection(new InputPageProjection(1, VARCHAR));
+        InvocationCountPageProjection secondProjection = new InvocationCountPageProjection(new InputPageProjection(1, VARCHAR));
+        PageProcessor pageProcessor = new PageProcessor(Optional.empty(), ImmutableList.of(commonSubExpression), 1, ImmutableList.of(firstProjection, secondProjection));
+
+        // process large page which will reduce batch size
+        Slice[] slices = createDistinctSlices((int) (MAX_BATCH_SIZE * 2.5), 1024);
+        Page inputPage = new Page(new SliceArrayBlock(slices.length, slices));
+
+        PageProcessorOutput output = pageProcessor.process(SESSION, new DriverYieldSignal(), inputPage);
+
+        // batch size will be reduced before the first page is produced until the first block is within the page size bounds
+        int batchSize = MAX_BATCH_SIZE;
+        while (inputPage.getBlock(0).getRegionSizeInBytes(0, batchSize) > MAX_PAGE_SIZE_IN_BYTES) {
+            batchSize /= 2;
+        }
+
+        int pageCount = 0;
+        int offset = 0;
+        while (output.hasNext()) {
+            Page actualPage = output.next().orElse(null);
+            int positionCount = Math.min(slices.length - offset, batchSize);
+            Slice[] expectedSlices = Arrays.copyOfRange(slices, offset, offset + positionCount);
+            Page expectedPage = new Page(new SliceArrayBlock(positionCount, expectedSlices), new SliceArrayBlock(positionCount, expectedSlices));
+            assertPageEquals(ImmutableList.of(VARCHAR, VARCHAR), actualPage, expectedPage);
+            pageCount++;
+            offset += positionCount;
+
+            // batch size will be further reduced to fit withing the bounds
+            if (actualPage.getSizeInBytes() > MAX_PAGE_SIZE_IN_BYTES) {
+                batchSize = batchSize / 2;
+            }
+        }
+        assertEquals(offset, slices.length);
+        assertEquals(secondProjection.getInvocationCount(), pageCount);
+
+        // the results of the common subexpression computed for a batch that is too large are
+        // reused for the smaller batches, like the results of the first projection
+        assertTrue(commonSubExpression.getInvocationCount() < secondProjection.getInvocationCount());
+        assertTrue(commonSubExpression.getInvocationCount() <= firstProjection.getInvocationCount());
+    }
+
+    private static Slice[] createDistinctSlices(int count, int size)
+    {
+        Slice[] slices = new Slice[count];
+        for (int i = 0; i < count; i++) {
+            slices[i] = Slices.allocate(size);
+            slices[i].setInt(0, i);
+        }
+        return slices;
+    }
+
     private static class InvocationCountPageProjection
             implements PageProjection
     {
@@ -456,6 +607,46 @@ public class TestPageProcessor
         }
     }
 
+    private static class AddPageProjection
+            implements PageProjection
+    {
+        private final InputChannels inputChannels;
+
+        public AddPageProjection(int leftChannel, int rightChannel)
+        {
+            this.inputChannels = new InputChannels(leftChannel, rightChannel);
+        }
+
+        @Override
+        public Type getType()
+        {
+            return BIGINT;
+        }
+
+        @Override
+        public boolean isDeterministic()
+        {
+            return true;
+        }
+
+        @Override
+        public InputChannels getInputChannels()
+        {
+            return inputChannels;
+        }
+
+        @Override
+        public Work<Block> project(ConnectorSession session, DriverYieldSignal yieldSignal, Page page, SelectedPositions selectedPositions)
+        {
+            BlockBuilder blockBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), selectedPositions.size());
+            for (int i = selectedPositions.getOffset(); i < selectedPositions.getOffset() + selectedPositions.size(); i++) {
+                int position = selectedPositions.isList() ? selectedPositions.getPositions()[i] : i;
+                BIGINT.writeLong(blockBuilder, BIGINT.getLong(page.getBlock(0), position) + BIGINT.getLong(page.getBlock(1), position));
+            }
+            return new CompletedWork<>(blockBuilder.build());
+        }
+    }
+
     public static class LazyPagePageProjection
             implements PageProjection
     {
@@ -90,13 +90,6 @@ public class BenchmarkBinaryFileSpiller
     public static class BenchmarkData
     {
         private final SpillerStats spillerStats = new SpillerStats();
-        private final FileSingleStreamSpillerFactory singleStreamSpillerFactory = new FileSingleStreamSpillerFactory(
-                MoreExecutors.newDirectExecutorService(),
-                BLOCK_ENCODING_MANAGER,
-                spillerStats,
-                ImmutableList.of(SPILL_PATH),
-                1.0);
-        private final SpillerFactory spillerFactory = new GenericSpillerFactory(singleStreamSpillerFactory);
 
         @Param({"10000"})
         private int rowsPerPage = 10000;
@@ -104,6 +97,11 @@ public class BenchmarkBinaryFileSpiller
         @Param({"10"})
         private int pagesCount = 10;
 
+        @Param({"false", "true"})
+        private boolean compressionEnabled;
+
+        private FileSingleStreamSpillerFactory singleStreamSpillerFactory;
+        private SpillerFactory spillerFactory;
         private List<Page> pages;
         private Spiller readSpiller;
 
@@ -111,6 +109,14 @@ public class BenchmarkBinaryFileSpiller
         public void setup()
                 throws ExecutionException, InterruptedException
         {
+            singleStreamSpillerFactory = new FileSingleStreamSpillerFactory(
+                    MoreExecutors.newDirectExecutorService(),
+                    BLOCK_ENCODING_MANAGER,
+                    spillerStats,
+                    ImmutableList.of(SPILL_PATH),
+                    1.0,
+                    compressionEnabled);
+            spillerFactory = new GenericSpillerFactory(singleStreamSpillerFactory);
             pages = createInputPages();
             readSpiller = spillerFactory.create(TYPES, bytes -> {}, new AggregatedMemoryContext());
             readSpiller.spill(pages.iterator()).get();
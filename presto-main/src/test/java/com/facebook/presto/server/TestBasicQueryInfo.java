@@ -59,6 +59,7 @@ public class TestBasicQueryInfo
                                 Duration.valueOf("7m"),
                                 Duration.valueOf("9m"),
                                 Duration.valueOf("10m"),
+                                Duration.valueOf("35m"),
                                 Duration.valueOf("11m"),
                                 Duration.valueOf("12m"),
                                 13,
@@ -85,6 +86,8 @@ public class TestBasicQueryInfo
                                 30,
                                 DataSize.valueOf("31GB"),
                                 32,
+                                ImmutableList.of(),
+                                ImmutableList.of(),
                                 ImmutableList.of()),
                         Optional.empty(),
                         Optional.empty(),
@@ -239,6 +239,7 @@ public class TestQueryStateInfo
                         Duration.valueOf("7m"),
                         Duration.valueOf("9m"),
                         Duration.valueOf("10m"),
+                        Duration.valueOf("35m"),
                         Duration.valueOf("11m"),
                         Duration.valueOf("12m"),
                         13,
@@ -265,6 +266,8 @@ public class TestQueryStateInfo
                         30,
                         DataSize.valueOf("31GB"),
                         32,
+                        ImmutableList.of(),
+                        ImmutableList.of(),
                         ImmutableList.of()),
                 Optional.empty(),
                 Optional.empty(),
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server.protocol;
+
+import com.facebook.presto.client.ClientTypeSignature;
+import com.facebook.presto.client.Column;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.ResultPage;
+import com.facebook.presto.client.StatementStats;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.RecordPageSource;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.tpch.TpchRecordSet;
+import com.google.common.collect.ImmutableList;
+import io.airlift.json.JsonCodec;
+import io.airlift.tpch.LineItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.facebook.presto.client.BinaryResults.serializePages;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static com.facebook.presto.tpch.TpchRecordSet.createTpchRecordSet;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.tpch.TpchTable.LINE_ITEM;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+/**
+ * Measures the rows per second of TPCH lineitem sent to a client as JSON and in the
+ * binary result format. Each operation encodes the responses on the server side,
+ * decodes them as the client does, and reads every value of every row.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(SECONDS)
+@BenchmarkMode(Throughput)
+@Fork(3)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10, time = 2, timeUnit = SECONDS)
+public class BenchmarkResultFormat
+{
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+    private static final ConnectorSession SESSION = testSessionBuilder().build().toConnectorSession();
+    private static final int ROWS = 60_175;
+
+    private List<Type> types;
+    private List<Column> columns;
+    private List<Page> pages;
+
+    @Setup
+    public void setup()
+    {
+        TpchRecordSet<LineItem> recordSet = createTpchRecordSet(LINE_ITEM, 0.01);
+        types = recordSet.getColumnTypes();
+
+        ImmutableList.Builder<Column> columns = ImmutableList.builder();
+        for (int i = 0; i < types.size(); i++) {
+            Type type = types.get(i);
+            columns.add(new Column(LINE_ITEM.getColumns().get(i).getColumnName(), type.getTypeSignature().toString(), new ClientTypeSignature(type.getTypeSignature())));
+        }
+        this.columns = columns.build();
+
+        pages = new ArrayList<>();
+        int rows = 0;
+        RecordPageSource pageSource = new RecordPageSource(recordSet);
+        while (!pageSource.isFinished()) {
+            Page page = pageSource.getNextPage();
+            if (page != null) {
+                pages.add(page);
+                rows += page.getPositionCount();
+            }
+        }
+        if (rows != ROWS) {
+            throw new IllegalStateException("Expected " + ROWS + " rows but lineitem has " + rows);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long json()
+    {
+        long values = 0;
+        for (Page page : pages) {
+            byte[] response = QUERY_RESULTS_CODEC.toJsonBytes(createQueryResults(new RowIterable(SESSION, types, page), null));
+            for (List<Object> row : QUERY_RESULTS_CODEC.fromJson(response).getData()) {
+                values += countValues(row);
+            }
+        }
+        return values;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long binary()
+    {
+        long values = 0;
+        for (Page page : pages) {
+            byte[] response = QUERY_RESULTS_CODEC.toJsonBytes(createQueryResults(null, serializePages(ImmutableList.of(page))));
+            for (ResultPage resultPage : QUERY_RESULTS_CODEC.fromJson(response).getResultPages()) {
+                for (int position = 0; position < resultPage.getPositionCount(); position++) {
+                    values += countValues(resultPage.getRow(position));
+                }
+            }
+        }
+        return values;
+    }
+
+    private QueryResults createQueryResults(Iterable<List<Object>> data, byte[] binaryData)
+    {
+        return new QueryResults(
+                "query",
+                URI.create("http://localhost/query.html?query"),
+                null,
+                null,
+                columns,
+                data,
+                new StatementStats("RUNNING", false, true, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, null),
+                null,
+                null,
+                null,
+                binaryData,
+                null);
+    }
+
+    private static long countValues(List<Object> row)
+    {
+        long values = 0;
+        for (Object value : row) {
+            if (value != null) {
+                values++;
+            }
+        }
+        return values;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkResultFormat.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
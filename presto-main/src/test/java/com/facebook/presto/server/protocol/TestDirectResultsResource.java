@@ -0,0 +1,499 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server.protocol;
+
+import com.facebook.presto.OutputBuffers;
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.Session;
+import com.facebook.presto.TaskSource;
+import com.facebook.presto.execution.StateMachine;
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.TaskInfo;
+import com.facebook.presto.execution.TaskManager;
+import com.facebook.presto.execution.TaskState;
+import com.facebook.presto.execution.TaskStatus;
+import com.facebook.presto.execution.buffer.BufferInfo;
+import com.facebook.presto.execution.buffer.BufferResult;
+import com.facebook.presto.execution.buffer.PagesSerde;
+import com.facebook.presto.execution.buffer.PartitionedOutputBuffer;
+import com.facebook.presto.memory.MemoryPoolAssignmentsRequest;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.TestingBlockEncodingSerde;
+import com.facebook.presto.spi.type.TestingTypeManager;
+import com.facebook.presto.sql.planner.PlanFragment;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.concurrent.BoundedExecutor;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.OutputBuffers.BufferType.PARTITIONED;
+import static com.facebook.presto.OutputBuffers.createInitialEmptyOutputBuffers;
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.client.BinaryResults.deserializePages;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
+import static com.facebook.presto.execution.buffer.BufferState.OPEN;
+import static com.facebook.presto.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
+import static com.facebook.presto.execution.buffer.TestingPagesSerdeFactory.testingPagesSerde;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.MoreCollectors.onlyElement;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.ws.rs.core.Response.Status.FORBIDDEN;
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(singleThreaded = true)
+public class TestDirectResultsResource
+{
+    private static final PagesSerde PAGES_SERDE = testingPagesSerde();
+    private static final TaskId TASK_ID = TaskId.valueOf("query.1.0");
+    private static final OutputBufferId BUFFER_ID = new OutputBufferId(0);
+    private static final String TASK_INSTANCE_ID = "task-instance-id";
+    private static final DataSize MAX_SIZE = new DataSize(1, MEGABYTE);
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private DirectResultsTokenManager tokenManager;
+    private PartitionedOutputBuffer outputBuffer;
+    private DirectResultsResource resource;
+
+    @BeforeClass
+    public void setUpClass()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduled-%s"));
+        tokenManager = new DirectResultsTokenManager(new DirectResultsConfig()
+                .setEnabled(true)
+                .setSharedSecret("secret"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDownClass()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @BeforeMethod
+    public void setUp()
+    {
+        outputBuffer = new PartitionedOutputBuffer(
+                TASK_INSTANCE_ID,
+                new StateMachine<>("bufferState", scheduledExecutor, OPEN, TERMINAL_BUFFER_STATES),
+                createInitialEmptyOutputBuffers(PARTITIONED)
+                        .withBuffer(BUFFER_ID, 0)
+                        .withNoMoreBufferIds(),
+                MAX_SIZE,
+                ignored -> {},
+                scheduledExecutor);
+        resource = new DirectResultsResource(
+                new TestingTaskManager(outputBuffer),
+                tokenManager,
+                new TestingBlockEncodingSerde(new TestingTypeManager()),
+                new BoundedExecutor(executor, 4),
+                scheduledExecutor);
+    }
+
+    @Test
+    public void testGetResults()
+            throws Exception
+    {
+        List<Page> pages = ImmutableList.of(createPage(0), createPage(10), createPage(20));
+        addPages(pages);
+        String token = createToken();
+
+        Response response = getResults(0, token, new DataSize(1, MEGABYTE));
+        assertResponse(response, 0, 3, false);
+        assertPagesEqual(response, pages);
+        // pages are only acknowledged by the next request
+        assertEquals(getBufferInfo().getBufferedPages(), 3);
+
+        // reading from the next token acknowledges the pages read before it
+        outputBuffer.setNoMorePages();
+        response = getResults(3, token, new DataSize(1, MEGABYTE));
+        assertResponse(response, 3, 3, true);
+        assertPagesEqual(response, ImmutableList.of());
+        assertEquals(getBufferInfo().getBufferedPages(), 0);
+    }
+
+    @Test
+    public void testGetResultsWithoutMaxSize()
+            throws Exception
+    {
+        List<Page> pages = ImmutableList.of(createPage(0), createPage(10));
+        addPages(pages);
+
+        // the default maximum response size applies
+        Response response = getResults(0, createToken(), null);
+        assertResponse(response, 0, 2, false);
+        assertPagesEqual(response, pages);
+    }
+
+    @Test
+    public void testGetResultsRepeatsUnacknowledgedPages()
+            throws Exception
+    {
+        List<Page> pages = ImmutableList.of(createPage(0), createPage(10));
+        addPages(pages);
+        String token = createToken();
+
+        // a client retrying a failed request reads the same pages again
+        assertPagesEqual(getResults(0, token, MAX_SIZE), pages);
+        assertPagesEqual(getResults(0, token, MAX_SIZE), pages);
+        assertPagesEqual(getResults(1, token, MAX_SIZE), pages.subList(1, 2));
+    }
+
+    @Test
+    public void testGetResultsTimesOut()
+            throws Exception
+    {
+        // no pages arrive, so an empty response is returned after the maximum wait
+        Response response = getResults(0, createToken(), MAX_SIZE);
+        assertResponse(response, 0, 0, false);
+        assertPagesEqual(response, ImmutableList.of());
+    }
+
+    @Test
+    public void testAbortResults()
+            throws Exception
+    {
+        addPages(ImmutableList.of(createPage(0)));
+        assertFalse(getBufferInfo().isFinished());
+
+        resource.abortResults(TASK_ID, BUFFER_ID, createToken());
+        assertTrue(getBufferInfo().isFinished());
+        assertEquals(getBufferInfo().getBufferedPages(), 0);
+
+        // an aborted buffer is complete
+        Response response = getResults(0, createToken(), MAX_SIZE);
+        assertResponse(response, 0, 0, true);
+    }
+
+    @Test
+    public void testInvalidToken()
+    {
+        addPages(ImmutableList.of(createPage(0)));
+        long expiration = System.currentTimeMillis() + 60_000;
+
+        List<String> invalidTokens = ImmutableList.of(
+                "",
+                "garbage",
+                // expired
+                tokenManager.createToken(TASK_ID, BUFFER_ID, System.currentTimeMillis() - 1),
+                // other buffers
+                tokenManager.createToken(TaskId.valueOf("query.1.1"), BUFFER_ID, expiration),
+                tokenManager.createToken(TASK_ID, new OutputBufferId(1), expiration),
+                // other secrets
+                new DirectResultsTokenManager(new DirectResultsConfig().setEnabled(true).setSharedSecret("other")).createToken(TASK_ID, BUFFER_ID, expiration));
+
+        assertForbidden(null);
+        for (String token : invalidTokens) {
+            assertForbidden(token);
+        }
+
+        // nothing is read or aborted without a valid token
+        assertEquals(getBufferInfo().getBufferedPages(), 1);
+        assertFalse(getBufferInfo().isFinished());
+    }
+
+    private void assertForbidden(String token)
+    {
+        try {
+            resource.getResults(TASK_ID, BUFFER_ID, 0, token, MAX_SIZE, new TestingAsyncResponse());
+            fail("expected WebApplicationException");
+        }
+        catch (WebApplicationException e) {
+            assertEquals(e.getResponse().getStatus(), FORBIDDEN.getStatusCode());
+        }
+
+        try {
+            resource.abortResults(TASK_ID, BUFFER_ID, token);
+            fail("expected WebApplicationException");
+        }
+        catch (WebApplicationException e) {
+            assertEquals(e.getResponse().getStatus(), FORBIDDEN.getStatusCode());
+        }
+    }
+
+    private Response getResults(long token, String authToken, DataSize maxSize)
+            throws Exception
+    {
+        TestingAsyncResponse asyncResponse = new TestingAsyncResponse();
+        resource.getResults(TASK_ID, BUFFER_ID, token, authToken, maxSize, asyncResponse);
+        Object response = asyncResponse.getResponse().get(10, SECONDS);
+        assertTrue(response instanceof Response, "unexpected response: " + response);
+        return (Response) response;
+    }
+
+    private static void assertResponse(Response response, long token, long nextToken, boolean bufferComplete)
+    {
+        assertEquals(response.getStatus(), OK.getStatusCode());
+        assertEquals(response.getHeaderString(PRESTO_PAGE_TOKEN), String.valueOf(token));
+        assertEquals(response.getHeaderString(PRESTO_PAGE_NEXT_TOKEN), String.valueOf(nextToken));
+        assertEquals(response.getHeaderString(PRESTO_BUFFER_COMPLETE), String.valueOf(bufferComplete));
+    }
+
+    private static void assertPagesEqual(Response response, List<Page> expectedPages)
+    {
+        List<Page> actualPages = deserializePages((byte[]) response.getEntity());
+        assertEquals(actualPages.size(), expectedPages.size());
+        for (int i = 0; i < actualPages.size(); i++) {
+            assertPageEquals(ImmutableList.of(BIGINT), actualPages.get(i), expectedPages.get(i));
+        }
+    }
+
+    private String createToken()
+    {
+        return tokenManager.createToken(TASK_ID, BUFFER_ID, System.currentTimeMillis() + 60_000);
+    }
+
+    private void addPages(List<Page> pages)
+    {
+        for (Page page : pages) {
+            outputBuffer.enqueue(0, ImmutableList.of(PAGES_SERDE.serialize(page)));
+        }
+    }
+
+    private BufferInfo getBufferInfo()
+    {
+        return outputBuffer.getInfo().getBuffers().stream()
+                .filter(bufferInfo -> bufferInfo.getBufferId().equals(BUFFER_ID))
+                .collect(onlyElement());
+    }
+
+    private static Page createPage(int start)
+    {
+        return createSequencePage(ImmutableList.of(BIGINT), 10, start);
+    }
+
+    /**
+     * Serves the results of a single task from an output buffer.
+     */
+    private static class TestingTaskManager
+            implements TaskManager
+    {
+        private final PartitionedOutputBuffer outputBuffer;
+
+        public TestingTaskManager(PartitionedOutputBuffer outputBuffer)
+        {
+            this.outputBuffer = outputBuffer;
+        }
+
+        @Override
+        public String getTaskInstanceId(TaskId taskId)
+        {
+            checkArgument(taskId.equals(TASK_ID), "unknown task %s", taskId);
+            return TASK_INSTANCE_ID;
+        }
+
+        @Override
+        public ListenableFuture<BufferResult> getTaskResults(TaskId taskId, OutputBufferId bufferId, long startingSequenceId, DataSize maxSize)
+        {
+            checkArgument(taskId.equals(TASK_ID), "unknown task %s", taskId);
+            return outputBuffer.get(bufferId, startingSequenceId, maxSize);
+        }
+
+        @Override
+        public TaskInfo abortTaskResults(TaskId taskId, OutputBufferId bufferId)
+        {
+            checkArgument(taskId.equals(TASK_ID), "unknown task %s", taskId);
+            outputBuffer.abort(bufferId);
+            return null;
+        }
+
+        @Override
+        public List<TaskInfo> getAllTaskInfo()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo getTaskInfo(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskStatus getTaskStatus(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenableFuture<TaskInfo> getTaskInfo(TaskId taskId, TaskState currentState)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenableFuture<TaskStatus> getTaskStatus(TaskId taskId, TaskState currentState)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo updateTask(Session session, TaskId taskId, Optional<PlanFragment> fragment, List<TaskSource> sources, OutputBuffers outputBuffers)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo cancelTask(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskInfo abortTask(TaskId taskId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addStateChangeListener(TaskId taskId, StateChangeListener<TaskState> stateChangeListener)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class TestingAsyncResponse
+            implements AsyncResponse
+    {
+        private final SettableFuture<Object> response = SettableFuture.create();
+
+        public SettableFuture<Object> getResponse()
+        {
+            return response;
+        }
+
+        @Override
+        public boolean resume(Object response)
+        {
+            return this.response.set(response);
+        }
+
+        @Override
+        public boolean resume(Throwable response)
+        {
+            return this.response.setException(response);
+        }
+
+        @Override
+        public boolean cancel()
+        {
+            return response.cancel(false);
+        }
+
+        @Override
+        public boolean cancel(int retryAfter)
+        {
+            return cancel();
+        }
+
+        @Override
+        public boolean cancel(Date retryAfter)
+        {
+            return cancel();
+        }
+
+        @Override
+        public boolean isSuspended()
+        {
+            return !response.isDone();
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return response.isCancelled();
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return response.isDone();
+        }
+
+        @Override
+        public boolean setTimeout(long time, TimeUnit unit)
+        {
+            return true;
+        }
+
+        @Override
+        public void setTimeoutHandler(TimeoutHandler handler)
+        {
+        }
+
+        @Override
+        public Collection<Class<?>> register(Class<?> callback)
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<Class<?>> register(Object callback)
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
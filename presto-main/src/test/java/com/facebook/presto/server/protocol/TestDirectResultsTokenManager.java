@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server.protocol;
+
+import com.facebook.presto.OutputBuffers.OutputBufferId;
+import com.facebook.presto.client.ResultLocation;
+import com.facebook.presto.execution.TaskId;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestDirectResultsTokenManager
+{
+    private static final TaskId TASK_ID = TaskId.valueOf("query.0.0");
+    private static final OutputBufferId BUFFER_ID = new OutputBufferId(0);
+
+    @Test
+    public void testResultLocation()
+    {
+        DirectResultsTokenManager tokenManager = createTokenManager("secret");
+        ResultLocation location = tokenManager.createResultLocation(URI.create("http://worker:8080/v1/task/query.0.0/results/0"));
+
+        // the token is sent in a header, so it is not part of the location
+        assertEquals(location.getUri(), URI.create("http://worker:8080/v1/results/query.0.0/0"));
+        assertTrue(tokenManager.isValid(location.getToken(), TASK_ID, BUFFER_ID));
+    }
+
+    @Test
+    public void testInvalidTokens()
+    {
+        DirectResultsTokenManager tokenManager = createTokenManager("secret");
+        long expiration = System.currentTimeMillis() + 60_000;
+        String token = tokenManager.createToken(TASK_ID, BUFFER_ID, expiration);
+        assertTrue(tokenManager.isValid(token, TASK_ID, BUFFER_ID));
+
+        // other buffers
+        assertFalse(tokenManager.isValid(token, TaskId.valueOf("query.0.1"), BUFFER_ID));
+        assertFalse(tokenManager.isValid(token, TASK_ID, new OutputBufferId(1)));
+
+        // other secrets
+        assertFalse(createTokenManager("other").isValid(token, TASK_ID, BUFFER_ID));
+
+        // expired
+        assertFalse(tokenManager.isValid(tokenManager.createToken(TASK_ID, BUFFER_ID, System.currentTimeMillis() - 1), TASK_ID, BUFFER_ID));
+
+        // changed expiration
+        assertFalse(tokenManager.isValid((expiration + 1) + token.substring(token.indexOf('.')), TASK_ID, BUFFER_ID));
+
+        // malformed
+        assertFalse(tokenManager.isValid(null, TASK_ID, BUFFER_ID));
+        assertFalse(tokenManager.isValid("", TASK_ID, BUFFER_ID));
+        assertFalse(tokenManager.isValid("abc.def", TASK_ID, BUFFER_ID));
+        assertFalse(tokenManager.isValid(expiration + ".%%%", TASK_ID, BUFFER_ID));
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        DirectResultsTokenManager enabled = createTokenManager("secret");
+        DirectResultsTokenManager disabled = new DirectResultsTokenManager(new DirectResultsConfig().setSharedSecret("secret"));
+        String token = enabled.createToken(TASK_ID, BUFFER_ID, System.currentTimeMillis() + 60_000);
+
+        assertFalse(disabled.isEnabled());
+        assertFalse(disabled.isValid(token, TASK_ID, BUFFER_ID));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "direct-results.shared-secret must be set when direct results are enabled")
+    public void testMissingSecret()
+    {
+        new DirectResultsTokenManager(new DirectResultsConfig().setEnabled(true));
+    }
+
+    private static DirectResultsTokenManager createTokenManager(String secret)
+    {
+        return new DirectResultsTokenManager(new DirectResultsConfig()
+                .setEnabled(true)
+                .setSharedSecret(secret));
+    }
+}
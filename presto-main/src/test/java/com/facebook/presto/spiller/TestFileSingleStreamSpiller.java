@@ -66,7 +66,20 @@ public class TestFileSingleStreamSpiller
     public void testSpill()
             throws Exception
     {
-        PagesSerdeFactory serdeFactory = new PagesSerdeFactory(new BlockEncodingManager(new TypeRegistry(ImmutableSet.copyOf(TYPES))), false);
+        assertSpill(false);
+    }
+
+    @Test
+    public void testSpillCompressed()
+            throws Exception
+    {
+        assertSpill(true);
+    }
+
+    private void assertSpill(boolean compression)
+            throws Exception
+    {
+        PagesSerdeFactory serdeFactory = new PagesSerdeFactory(new BlockEncodingManager(new TypeRegistry(ImmutableSet.copyOf(TYPES))), compression);
         PagesSerde serde = serdeFactory.createPagesSerde();
         SpillerStats spillerStats = new SpillerStats();
         LocalMemoryContext memoryContext = new AggregatedMemoryContext().newLocalMemoryContext();
@@ -92,6 +105,11 @@ public class TestFileSingleStreamSpiller
             PageAssertions.assertPageEquals(TYPES, page, spilledPages.get(i));
         }
 
+        SpillDiskStats diskStats = spillerStats.getDiskStats(spillPath.toPath());
+        assertEquals(diskStats.getWrittenBytes().getTotalCount(), spillerStats.getTotalSpilledBytes());
+        assertEquals(diskStats.getWriteTime().getAllTime().getCount(), 2.0);
+        assertEquals(diskStats.getReadTime().getAllTime().getCount(), 4.0);
+
         spiller.close();
         assertEquals(listFiles(spillPath.toPath()).size(), 0);
         assertEquals(memoryContext.getBytes(), 0);
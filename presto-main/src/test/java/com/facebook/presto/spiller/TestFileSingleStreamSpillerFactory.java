@@ -112,6 +112,27 @@ public class TestFileSingleStreamSpillerFactory
         return new Page(col1.build());
     }
 
+    @Test
+    public void testSplitsThreadsBetweenPaths()
+    {
+        assertThreadsPerPath(4, 1, 4);
+        assertThreadsPerPath(4, 2, 2, 2);
+        assertThreadsPerPath(4, 3, 2, 1, 1);
+        assertThreadsPerPath(7, 3, 3, 2, 2);
+
+        // every path gets a thread even when there are fewer threads than paths
+        assertThreadsPerPath(2, 3, 1, 1, 1);
+    }
+
+    private static void assertThreadsPerPath(int spillerThreads, int pathCount, int... expectedThreads)
+    {
+        int[] threads = new int[pathCount];
+        for (int i = 0; i < pathCount; i++) {
+            threads[i] = FileSingleStreamSpillerFactory.getThreadsPerPath(spillerThreads, pathCount, i);
+        }
+        assertEquals(threads, expectedThreads);
+    }
+
     @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = "No free space available for spill")
     public void throwsIfNoDiskSpace()
     {
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.presto.spi.Page;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestSpilledPageStream
+{
+    @Test
+    public void testReadAheadIsBounded()
+    {
+        List<Page> pages = createPages(10);
+        long pageSize = pages.get(0).getRetainedSizeInBytes();
+        AtomicInteger pagesRead = new AtomicInteger();
+        Iterator<Page> iterator = pages.stream()
+                .peek(page -> pagesRead.incrementAndGet())
+                .iterator();
+        QueuedExecutor executor = new QueuedExecutor();
+
+        SpilledPageStream stream = new SpilledPageStream(iterator, executor, 2 * pageSize);
+        ListenableFuture<?> blocked = stream.isBlocked();
+        assertFalse(blocked.isDone());
+        assertNull(stream.pollPage());
+
+        executor.runAll();
+        assertTrue(blocked.isDone());
+        assertEquals(pagesRead.get(), 2);
+        assertEquals(stream.getBufferedBytes(), 2 * pageSize);
+
+        for (int i = 0; i < pages.size(); i++) {
+            assertSame(stream.pollPage(), pages.get(i));
+            executor.runAll();
+            assertTrue(stream.getBufferedBytes() <= 2 * pageSize);
+        }
+        assertTrue(stream.isFinished());
+        assertNull(stream.pollPage());
+        assertTrue(stream.isBlocked().isDone());
+    }
+
+    @Test
+    public void testPageLargerThanReadAhead()
+    {
+        List<Page> pages = createPages(3);
+        QueuedExecutor executor = new QueuedExecutor();
+
+        SpilledPageStream stream = new SpilledPageStream(pages.iterator(), executor, 1);
+        for (Page page : pages) {
+            executor.runAll();
+            assertSame(stream.pollPage(), page);
+        }
+        executor.runAll();
+        assertTrue(stream.isFinished());
+    }
+
+    @Test
+    public void testReadFailure()
+    {
+        Iterator<Page> iterator = new AbstractIterator<Page>()
+        {
+            @Override
+            protected Page computeNext()
+            {
+                throw new IllegalStateException("read failed");
+            }
+        };
+        QueuedExecutor executor = new QueuedExecutor();
+
+        SpilledPageStream stream = new SpilledPageStream(iterator, executor, 1024);
+        ListenableFuture<?> blocked = stream.isBlocked();
+        executor.runAll();
+        assertTrue(blocked.isDone());
+        try {
+            stream.pollPage();
+            fail("expected exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "read failed");
+        }
+    }
+
+    @Test
+    public void testClose()
+    {
+        List<Page> pages = createPages(10);
+        QueuedExecutor executor = new QueuedExecutor();
+
+        SpilledPageStream stream = new SpilledPageStream(pages.iterator(), executor, Long.MAX_VALUE);
+        stream.close();
+        executor.runAll();
+        assertEquals(stream.getBufferedBytes(), 0);
+        assertNull(stream.pollPage());
+        assertTrue(stream.isBlocked().isDone());
+    }
+
+    private static List<Page> createPages(int count)
+    {
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            pages.add(new Page(createLongSequenceBlock(i * 100, (i + 1) * 100)));
+        }
+        return pages.build();
+    }
+
+    private static class QueuedExecutor
+            implements Executor
+    {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task)
+        {
+            tasks.add(task);
+        }
+
+        public void runAll()
+        {
+            while (!tasks.isEmpty()) {
+                tasks.remove().run();
+            }
+        }
+    }
+}
@@ -13,18 +13,25 @@
  */
 package com.facebook.presto.sql.analyzer;
 
+import com.facebook.presto.execution.buffer.ExchangeCompressionCodec;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
 import java.util.Map;
 
 import static com.facebook.presto.sql.analyzer.RegexLibrary.JONI;
 import static com.facebook.presto.sql.analyzer.RegexLibrary.RE2J;
 import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static io.airlift.testing.ValidationAssertions.assertFailsValidation;
+import static io.airlift.testing.ValidationAssertions.assertValidates;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -55,10 +62,14 @@ public class TestFeaturesConfig
                 .setRe2JDfaStatesLimit(Integer.MAX_VALUE)
                 .setRe2JDfaRetries(5)
                 .setSpillEnabled(false)
+                .setSpillOrderBy(true)
+                .setSpillWindowOperator(true)
                 .setAggregationOperatorUnspillMemoryLimit(DataSize.valueOf("4MB"))
+                .setJoinOperatorUnspillMemoryLimit(DataSize.valueOf("256MB"))
                 .setSpillerSpillPaths("")
                 .setSpillerThreads(4)
                 .setSpillMaxUsedSpaceThreshold(0.9)
+                .setSpillCompressionEnabled(false)
                 .setMemoryRevokingThreshold(0.9)
                 .setMemoryRevokingTarget(0.5)
                 .setOptimizeMixedDistinctAggregations(false)
@@ -66,13 +77,25 @@ public class TestFeaturesConfig
                 .setIterativeOptimizerEnabled(true)
                 .setIterativeOptimizerTimeout(new Duration(3, MINUTES))
                 .setExchangeCompressionEnabled(false)
+                .setExchangeCompressionCodec(ExchangeCompressionCodec.LZ4)
                 .setEnableIntermediateAggregations(false)
                 .setPushAggregationThroughJoin(true)
                 .setParseDecimalLiteralsAsDouble(true)
                 .setForceSingleNodeOutput(true)
                 .setPagesIndexEagerCompactionEnabled(false)
                 .setFilterAndProjectMinOutputPageSize(new DataSize(25, KILOBYTE))
-                .setFilterAndProjectMinOutputPageRowCount(256));
+                .setFilterAndProjectMinOutputPageRowCount(256)
+                .setDynamicFilteringEnabled(false)
+                .setCostBasedJoinReorderingEnabled(false)
+                .setMaxReorderedJoins(9)
+                .setAutomaticJoinDistributionType(false)
+                .setJoinMaxBroadcastTableSize(new DataSize(100, MEGABYTE))
+                .setDistributedSortEnabled(false)
+                .setOffHeapGroupByHashEnabled(false)
+                .setAdaptivePartialAggregationEnabled(false)
+                .setAdaptivePartialAggregationMinRows(100_000)
+                .setAdaptivePartialAggregationUniqueRowsRatioThreshold(0.8)
+                .setOptimizeCommonSubExpressions(true));
     }
 
     @Test
@@ -103,19 +126,35 @@ public class TestFeaturesConfig
                 .put("re2j.dfa-states-limit", "42")
                 .put("re2j.dfa-retries", "42")
                 .put("experimental.spill-enabled", "true")
+                .put("experimental.spill-order-by", "false")
+                .put("experimental.spill-window-operator", "false")
                 .put("experimental.aggregation-operator-unspill-memory-limit", "100MB")
+                .put("experimental.join-operator-unspill-memory-limit", "1GB")
                 .put("experimental.spiller-spill-path", "/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .put("experimental.spiller-threads", "42")
                 .put("experimental.spiller-max-used-space-threshold", "0.8")
+                .put("experimental.spill-compression-enabled", "true")
                 .put("experimental.memory-revoking-threshold", "0.2")
                 .put("experimental.memory-revoking-target", "0.8")
                 .put("exchange.compression-enabled", "true")
+                .put("exchange.compression-codec", "ADAPTIVE")
                 .put("optimizer.enable-intermediate-aggregations", "true")
                 .put("parse-decimal-literals-as-double", "false")
                 .put("optimizer.force-single-node-output", "false")
                 .put("pages-index.eager-compaction-enabled", "true")
                 .put("experimental.filter-and-project-min-output-page-size", "1MB")
                 .put("experimental.filter-and-project-min-output-page-row-count", "2048")
+                .put("experimental.enable-dynamic-filtering", "true")
+                .put("optimizer.cost-based-join-reordering-enabled", "true")
+                .put("optimizer.max-reordered-joins", "5")
+                .put("optimizer.automatic-join-distribution-type", "true")
+                .put("optimizer.join-max-broadcast-table-size", "1GB")
+                .put("distributed-sort", "true")
+                .put("experimental.off-heap-group-by-hash-enabled", "true")
+                .put("experimental.adaptive-partial-aggregation-enabled", "true")
+                .put("experimental.adaptive-partial-aggregation-min-rows", "1000")
+                .put("experimental.adaptive-partial-aggregation-unique-rows-ratio-threshold", "0.5")
+                .put("optimizer.optimize-common-sub-expressions", "false")
                 .build();
 
         FeaturesConfig expected = new FeaturesConfig()
@@ -142,21 +181,45 @@ public class TestFeaturesConfig
                 .setRe2JDfaStatesLimit(42)
                 .setRe2JDfaRetries(42)
                 .setSpillEnabled(true)
+                .setSpillOrderBy(false)
+                .setSpillWindowOperator(false)
                 .setAggregationOperatorUnspillMemoryLimit(DataSize.valueOf("100MB"))
+                .setJoinOperatorUnspillMemoryLimit(DataSize.valueOf("1GB"))
                 .setSpillerSpillPaths("/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .setSpillerThreads(42)
                 .setSpillMaxUsedSpaceThreshold(0.8)
+                .setSpillCompressionEnabled(true)
                 .setMemoryRevokingThreshold(0.2)
                 .setMemoryRevokingTarget(0.8)
                 .setLegacyOrderBy(true)
                 .setExchangeCompressionEnabled(true)
+                .setExchangeCompressionCodec(ExchangeCompressionCodec.ADAPTIVE)
                 .setEnableIntermediateAggregations(true)
                 .setParseDecimalLiteralsAsDouble(false)
                 .setForceSingleNodeOutput(false)
                 .setPagesIndexEagerCompactionEnabled(true)
                 .setFilterAndProjectMinOutputPageSize(new DataSize(1, MEGABYTE))
-                .setFilterAndProjectMinOutputPageRowCount(2048);
+                .setFilterAndProjectMinOutputPageRowCount(2048)
+                .setDynamicFilteringEnabled(true)
+                .setCostBasedJoinReorderingEnabled(true)
+                .setMaxReorderedJoins(5)
+                .setAutomaticJoinDistributionType(true)
+                .setJoinMaxBroadcastTableSize(new DataSize(1, GIGABYTE))
+                .setDistributedSortEnabled(true)
+                .setOffHeapGroupByHashEnabled(true)
+                .setAdaptivePartialAggregationEnabled(true)
+                .setAdaptivePartialAggregationMinRows(1000)
+                .setAdaptivePartialAggregationUniqueRowsRatioThreshold(0.5)
+                .setOptimizeCommonSubExpressions(false);
 
         assertFullMapping(properties, expected);
     }
+
+    @Test
+    public void testValidations()
+    {
+        assertFailsValidation(new FeaturesConfig().setMaxReorderedJoins(1), "maxReorderedJoins", "must be greater than or equal to 2", Min.class);
+        assertFailsValidation(new FeaturesConfig().setMaxReorderedJoins(17), "maxReorderedJoins", "must be less than or equal to 16", Max.class);
+        assertValidates(new FeaturesConfig().setMaxReorderedJoins(16));
+    }
 }
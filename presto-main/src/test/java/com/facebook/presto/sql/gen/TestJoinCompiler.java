@@ -41,6 +41,7 @@ import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.type.TypeUtils.hashPosition;
 import static com.facebook.presto.type.TypeUtils.positionEqualsPosition;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class TestJoinCompiler
@@ -83,6 +84,7 @@ public class TestJoinCompiler
 
         // verify channel count
         assertEquals(hashStrategy.getChannelCount(), 1);
+        assertFalse(hashStrategy.isSingleBigintKey());
 
         // verify hashStrategy is consistent with equals and hash code from block
         for (int leftBlockIndex = 0; leftBlockIndex < channel.size(); leftBlockIndex++) {
@@ -133,6 +135,40 @@ public class TestJoinCompiler
         }
     }
 
+    @Test
+    public void testSingleBigintChannel()
+    {
+        List<Type> joinTypes = ImmutableList.of(BIGINT);
+        List<Integer> joinChannels = Ints.asList(0);
+
+        PagesHashStrategyFactory pagesHashStrategyFactory = joinCompiler.compilePagesHashStrategyFactory(joinTypes, joinChannels);
+
+        List<Block> channel = ImmutableList.of(
+                BlockAssertions.createLongSequenceBlock(10, 20),
+                BlockAssertions.createLongSequenceBlock(20, 30));
+        PagesHashStrategy hashStrategy = pagesHashStrategyFactory.createPagesHashStrategy(ImmutableList.of(channel), OptionalInt.empty());
+
+        assertTrue(hashStrategy.isSingleBigintKey());
+        for (int blockIndex = 0; blockIndex < channel.size(); blockIndex++) {
+            Block block = channel.get(blockIndex);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                assertEquals(hashStrategy.getBigintKey(blockIndex, position), BIGINT.getLong(block, position));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class, expectedExceptionsMessageRegExp = "hashed columns are not a single BIGINT column")
+    public void testBigintKeyOfNonBigintChannel()
+    {
+        PagesHashStrategyFactory pagesHashStrategyFactory = joinCompiler.compilePagesHashStrategyFactory(ImmutableList.of(DOUBLE), Ints.asList(0));
+
+        List<Block> channel = ImmutableList.of(BlockAssertions.createDoubleSequenceBlock(10, 20));
+        PagesHashStrategy hashStrategy = pagesHashStrategyFactory.createPagesHashStrategy(ImmutableList.of(channel), OptionalInt.empty());
+
+        assertFalse(hashStrategy.isSingleBigintKey());
+        hashStrategy.getBigintKey(0, 0);
+    }
+
     @Test(dataProvider = "hashEnabledValues")
     public void testMultiChannel(boolean hashEnabled)
             throws Exception
@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.matching.Captures;
+import com.facebook.presto.matching.Pattern;
+import com.facebook.presto.sql.analyzer.Analysis;
+import com.facebook.presto.sql.analyzer.Analyzer;
+import com.facebook.presto.sql.parser.SqlParser;
+import com.facebook.presto.sql.planner.iterative.IterativeOptimizer;
+import com.facebook.presto.sql.planner.iterative.Rule;
+import com.facebook.presto.sql.planner.iterative.rule.MergeFilters;
+import com.facebook.presto.sql.planner.optimizations.PredicatePushDown;
+import com.facebook.presto.sql.planner.optimizations.PruneUnreferencedOutputs;
+import com.facebook.presto.sql.planner.optimizations.UnaliasSymbolReferences;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.testing.LocalQueryRunner;
+import com.facebook.presto.tpch.TpchConnectorFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.sql.ParsingUtil.createParsingOptions;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestOptimizerStatsRecorder
+{
+    private static final SqlParser SQL_PARSER = new SqlParser();
+
+    @Test
+    public void testRecord()
+    {
+        OptimizerStatsRecorder recorder = new OptimizerStatsRecorder();
+        recorder.recordOptimizer(new UnaliasSymbolReferences(), 10, true);
+        recorder.recordOptimizer(new PruneUnreferencedOutputs(), 20, false);
+        recorder.recordOptimizer(new UnaliasSymbolReferences(), 30, false);
+        recorder.recordRule(new MergeFilters(), 40, true);
+
+        List<OptimizerStats> optimizers = recorder.getOptimizerStats();
+        assertEquals(optimizers.size(), 2);
+        assertStats(optimizers.get(0), UnaliasSymbolReferences.class.getName(), 2, 1, 40);
+        assertStats(optimizers.get(1), PruneUnreferencedOutputs.class.getName(), 1, 0, 20);
+
+        List<OptimizerStats> rules = recorder.getRuleStats();
+        assertEquals(rules.size(), 1);
+        assertStats(rules.get(0), MergeFilters.class.getName(), 1, 1, 40);
+    }
+
+    @Test
+    public void testRecordSameNamedRules()
+    {
+        OptimizerStatsRecorder recorder = new OptimizerStatsRecorder();
+        recorder.recordRule(new MergeFilters(), 10, true);
+        recorder.recordRule(new TestingRules.MergeFilters(), 20, false);
+        recorder.recordRule(new Rule<PlanNode>()
+        {
+            @Override
+            public Pattern<PlanNode> getPattern()
+            {
+                return Pattern.typeOf(PlanNode.class);
+            }
+
+            @Override
+            public Result apply(PlanNode node, Captures captures, Context context)
+            {
+                return Result.empty();
+            }
+        }, 30, false);
+
+        List<OptimizerStats> rules = recorder.getRuleStats();
+        assertEquals(rules.size(), 3);
+        assertStats(rules.get(0), MergeFilters.class.getName(), 1, 1, 10);
+        assertStats(rules.get(1), TestingRules.MergeFilters.class.getName(), 1, 0, 20);
+        assertStats(rules.get(2), TestOptimizerStatsRecorder.class.getName() + "$1", 1, 0, 30);
+    }
+
+    @Test
+    public void testLogicalPlanner()
+    {
+        try (LocalQueryRunner queryRunner = new LocalQueryRunner(testSessionBuilder()
+                .setCatalog("tpch")
+                .setSchema("tiny")
+                .build())) {
+            queryRunner.createCatalog("tpch", new TpchConnectorFactory(1), ImmutableMap.of());
+
+            OptimizerStatsRecorder recorder = new OptimizerStatsRecorder();
+            queryRunner.inTransaction(session -> {
+                Analyzer analyzer = new Analyzer(session, queryRunner.getMetadata(), SQL_PARSER, queryRunner.getAccessControl(), Optional.empty(), ImmutableList.of());
+                Analysis analysis = analyzer.analyze(SQL_PARSER.createStatement("SELECT orderkey FROM (SELECT * FROM orders WHERE orderkey > 10) WHERE custkey > 10", createParsingOptions(session)));
+                LogicalPlanner logicalPlanner = new LogicalPlanner(
+                        session,
+                        queryRunner.getPlanOptimizers(true),
+                        new PlanNodeIdAllocator(),
+                        queryRunner.getMetadata(),
+                        SQL_PARSER,
+                        queryRunner.getCostCalculator(),
+                        recorder);
+                return logicalPlanner.plan(analysis);
+            });
+
+            // the iterative optimizers are aggregated
+            Map<String, OptimizerStats> optimizers = recorder.getOptimizerStats().stream()
+                    .collect(toMap(OptimizerStats::getName, identity()));
+            assertTrue(optimizers.get(IterativeOptimizer.class.getName()).getInvocations() > 1);
+            assertTrue(optimizers.get(IterativeOptimizer.class.getName()).getRewrites() > 0);
+            assertTrue(optimizers.get(PredicatePushDown.class.getName()).getRewrites() > 0);
+
+            // the rules they apply are recorded by the iterative optimizers
+            List<OptimizerStats> rules = recorder.getRuleStats();
+            assertFalse(rules.isEmpty());
+            assertTrue(rules.stream().anyMatch(rule -> rule.getRewrites() > 0));
+            for (OptimizerStats stats : rules) {
+                assertTrue(stats.getInvocations() >= stats.getRewrites());
+            }
+        }
+    }
+
+    private static void assertStats(OptimizerStats stats, String name, long invocations, long rewrites, long wallNanos)
+    {
+        assertEquals(stats.getName(), name);
+        assertEquals(stats.getInvocations(), invocations);
+        assertEquals(stats.getRewrites(), rewrites);
+        assertEquals(stats.getWallTime().roundTo(NANOSECONDS), wallNanos);
+    }
+
+    private static class TestingRules
+    {
+        private static class MergeFilters
+                implements Rule<PlanNode>
+        {
+            @Override
+            public Pattern<PlanNode> getPattern()
+            {
+                return Pattern.typeOf(PlanNode.class);
+            }
+
+            @Override
+            public Result apply(PlanNode node, Captures captures, Context context)
+            {
+                return Result.empty();
+            }
+        }
+    }
+}
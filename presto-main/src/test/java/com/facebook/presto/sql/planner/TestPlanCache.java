@@ -0,0 +1,247 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.connector.ConnectorId;
+import com.facebook.presto.metadata.TableLayoutHandle;
+import com.facebook.presto.spi.security.Identity;
+import com.facebook.presto.sql.analyzer.Analysis;
+import com.facebook.presto.sql.analyzer.Analyzer;
+import com.facebook.presto.sql.parser.SqlParser;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.LongLiteral;
+import com.facebook.presto.testing.LocalQueryRunner;
+import com.facebook.presto.tpch.TpchConnectorFactory;
+import com.facebook.presto.transaction.TransactionId;
+import com.facebook.presto.transaction.TransactionManager;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.presto.SystemSessionProperties.HASH_PARTITION_COUNT;
+import static com.facebook.presto.SystemSessionProperties.OPTIMIZE_METADATA_QUERIES;
+import static com.facebook.presto.sql.ParsingUtil.createParsingOptions;
+import static com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static com.facebook.presto.transaction.TransactionBuilder.transaction;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+
+@Test(singleThreaded = true)
+public class TestPlanCache
+{
+    private static final SqlParser SQL_PARSER = new SqlParser();
+    private static final ConnectorId TPCH_CONNECTOR_ID = new ConnectorId("tpch");
+
+    private LocalQueryRunner queryRunner;
+    private PlanCache planCache;
+    private final AtomicInteger plannerCalls = new AtomicInteger();
+
+    @BeforeMethod
+    public void setUp()
+    {
+        queryRunner = new LocalQueryRunner(testSessionBuilder()
+                .setCatalog("tpch")
+                .setSchema("tiny")
+                .build());
+        queryRunner.createCatalog("tpch", new TpchConnectorFactory(1), ImmutableMap.of());
+        planCache = new PlanCache(new PlanCacheConfig().setEnabled(true), queryRunner.getMetadata(), queryRunner.getTransactionManager());
+        plannerCalls.set(0);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+    {
+        queryRunner.close();
+        queryRunner = null;
+        planCache = null;
+    }
+
+    @Test
+    public void testHitAndMiss()
+    {
+        Session session = queryRunner.getDefaultSession();
+
+        assertPlannerCalls(session, "SELECT orderkey, totalprice FROM orders WHERE orderkey < 100", 1);
+        assertPlannerCalls(session, "SELECT orderkey, totalprice FROM orders WHERE orderkey < 100", 1);
+        assertPlannerCalls(session, "SELECT orderkey, totalprice FROM orders WHERE orderkey < 200", 2);
+        assertPlannerCalls(session, "SELECT orderkey, totalprice FROM orders WHERE orderkey < 100", 2);
+        assertEquals(planCache.getSize(), 2);
+    }
+
+    @Test
+    public void testMissOnDifferentParameters()
+    {
+        Session session = queryRunner.getDefaultSession();
+        String sql = "SELECT orderkey, totalprice FROM orders WHERE orderkey < ?";
+
+        assertPlannerCalls(session, sql, ImmutableList.of(new LongLiteral("100")), 1);
+        assertPlannerCalls(session, sql, ImmutableList.of(new LongLiteral("100")), 1);
+        assertPlannerCalls(session, sql, ImmutableList.of(new LongLiteral("200")), 2);
+    }
+
+    @Test
+    public void testMissOnDifferentSession()
+    {
+        // the tables are qualified, so only the session differs between the queries
+        String sql = "SELECT orderkey, totalprice FROM tpch.tiny.orders";
+        Session session = queryRunner.getDefaultSession();
+        assertPlannerCalls(session, sql, 1);
+        assertPlannerCalls(session, sql, 1);
+
+        Session otherProperty = Session.builder(session)
+                .setSystemProperty(HASH_PARTITION_COUNT, "7")
+                .build();
+        assertPlannerCalls(otherProperty, sql, 2);
+        assertPlannerCalls(otherProperty, sql, 2);
+
+        Session otherUser = Session.builder(session)
+                .setIdentity(new Identity("other_user", Optional.empty()))
+                .build();
+        assertPlannerCalls(otherUser, sql, 3);
+
+        Session otherSchema = Session.builder(session)
+                .setSchema("sf1")
+                .build();
+        assertPlannerCalls(otherSchema, sql, 4);
+
+        assertPlannerCalls(session, sql, 4);
+    }
+
+    @Test
+    public void testBypassCurrentTime()
+    {
+        Session session = queryRunner.getDefaultSession();
+
+        assertPlannerCalls(session, "SELECT orderkey, now() FROM orders", 1);
+        assertPlannerCalls(session, "SELECT orderkey, now() FROM orders", 2);
+        assertPlannerCalls(session, "SELECT orderkey FROM orders WHERE orderdate < current_date", 3);
+        assertPlannerCalls(session, "SELECT orderkey FROM orders WHERE orderdate < current_date", 4);
+        assertEquals(planCache.getSize(), 0);
+    }
+
+    @Test
+    public void testBypassOptimizeMetadataQueries()
+    {
+        Session session = Session.builder(queryRunner.getDefaultSession())
+                .setSystemProperty(OPTIMIZE_METADATA_QUERIES, "true")
+                .build();
+
+        assertPlannerCalls(session, "SELECT max(orderkey) FROM orders", 1);
+        assertPlannerCalls(session, "SELECT max(orderkey) FROM orders", 2);
+        assertEquals(planCache.getSize(), 0);
+    }
+
+    @Test
+    public void testBypassExplicitTransaction()
+    {
+        String sql = "SELECT orderkey, totalprice FROM orders";
+        for (int i = 1; i <= 2; i++) {
+            transaction(queryRunner.getTransactionManager(), queryRunner.getAccessControl())
+                    .execute(queryRunner.getDefaultSession(), transactionSession -> {
+                        plan(transactionSession, sql, ImmutableList.of());
+                    });
+            assertEquals(plannerCalls.get(), i);
+        }
+        assertEquals(planCache.getSize(), 0);
+    }
+
+    @Test
+    public void testLayoutsRebound()
+    {
+        Session session = queryRunner.getDefaultSession();
+        String sql = "SELECT orderkey, totalprice FROM orders WHERE orderstatus = 'F'";
+
+        TableLayoutHandle first = queryRunner.inTransaction(session, transactionSession -> getBoundLayout(transactionSession, sql));
+        TableLayoutHandle second = queryRunner.inTransaction(session, transactionSession -> getBoundLayout(transactionSession, sql));
+        assertEquals(plannerCalls.get(), 1);
+
+        // the layout is chosen again by the connector instead of being copied from the cached plan
+        assertEquals(second.getConnectorHandle(), first.getConnectorHandle());
+        assertNotSame(second.getConnectorHandle(), first.getConnectorHandle());
+    }
+
+    @Test
+    public void testMissAfterCommittedWrite()
+    {
+        Session session = queryRunner.getDefaultSession();
+        String sql = "SELECT orderkey, totalprice FROM orders";
+
+        assertPlannerCalls(session, sql, 1);
+        assertPlannerCalls(session, sql, 1);
+
+        commitWrite(TPCH_CONNECTOR_ID);
+        assertPlannerCalls(session, sql, 2);
+        assertPlannerCalls(session, sql, 2);
+    }
+
+    private TableLayoutHandle getBoundLayout(Session transactionSession, @Language("SQL") String sql)
+    {
+        Plan plan = plan(transactionSession, sql, ImmutableList.of());
+        TableScanNode tableScan = searchFrom(plan.getRoot())
+                .where(TableScanNode.class::isInstance)
+                .findOnlyElement();
+        TableLayoutHandle layout = tableScan.getLayout().get();
+
+        TransactionId transactionId = transactionSession.getRequiredTransactionId();
+        assertEquals(layout.getTransactionHandle(), queryRunner.getTransactionManager().getConnectorTransaction(transactionId, layout.getConnectorId()));
+        return layout;
+    }
+
+    private void commitWrite(ConnectorId connectorId)
+    {
+        TransactionManager transactionManager = queryRunner.getTransactionManager();
+        TransactionId transactionId = transactionManager.beginTransaction(true);
+        transactionManager.getCatalogMetadataForWrite(transactionId, connectorId);
+        getFutureValue(transactionManager.asyncCommit(transactionId));
+    }
+
+    private void assertPlannerCalls(Session session, @Language("SQL") String sql, int expectedPlannerCalls)
+    {
+        assertPlannerCalls(session, sql, ImmutableList.of(), expectedPlannerCalls);
+    }
+
+    private void assertPlannerCalls(Session session, @Language("SQL") String sql, List<Expression> parameters, int expectedPlannerCalls)
+    {
+        queryRunner.inTransaction(session, transactionSession -> plan(transactionSession, sql, parameters));
+        assertEquals(plannerCalls.get(), expectedPlannerCalls, "planner calls after " + sql);
+    }
+
+    private Plan plan(Session transactionSession, @Language("SQL") String sql, List<Expression> parameters)
+    {
+        Analyzer analyzer = new Analyzer(transactionSession, queryRunner.getMetadata(), SQL_PARSER, queryRunner.getAccessControl(), Optional.empty(), parameters);
+        Analysis analysis = analyzer.analyze(SQL_PARSER.createStatement(sql, createParsingOptions(transactionSession)));
+        return planCache.getPlan(transactionSession, analysis, () -> {
+            plannerCalls.incrementAndGet();
+            LogicalPlanner logicalPlanner = new LogicalPlanner(
+                    transactionSession,
+                    queryRunner.getPlanOptimizers(true),
+                    new PlanNodeIdAllocator(),
+                    queryRunner.getMetadata(),
+                    SQL_PARSER,
+                    queryRunner.getCostCalculator());
+            return logicalPlanner.plan(analysis);
+        });
+    }
+}
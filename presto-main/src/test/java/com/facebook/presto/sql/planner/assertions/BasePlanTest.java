@@ -44,6 +44,7 @@ import static org.testng.Assert.fail;
 public class BasePlanTest
 {
     private final Map<String, String> sessionProperties;
+    private final int nodeCountForStats;
 
     private LocalQueryRunner queryRunner;
 
@@ -53,8 +54,14 @@ public class BasePlanTest
     }
 
     public BasePlanTest(Map<String, String> sessionProperties)
+    {
+        this(sessionProperties, 1);
+    }
+
+    public BasePlanTest(Map<String, String> sessionProperties, int nodeCountForStats)
     {
         this.sessionProperties = ImmutableMap.copyOf(requireNonNull(sessionProperties, "sessionProperties is null"));
+        this.nodeCountForStats = nodeCountForStats;
     }
 
     @BeforeClass
@@ -67,7 +74,7 @@ public class BasePlanTest
 
         sessionProperties.entrySet().forEach(entry -> sessionBuilder.setSystemProperty(entry.getKey(), entry.getValue()));
 
-        queryRunner = new LocalQueryRunner(sessionBuilder.build());
+        queryRunner = LocalQueryRunner.queryRunnerWithFakeNodeCountForStats(sessionBuilder.build(), nodeCountForStats);
 
         queryRunner.createCatalog(queryRunner.getDefaultSession().getCatalog().get(),
                 new TpchConnectorFactory(1),
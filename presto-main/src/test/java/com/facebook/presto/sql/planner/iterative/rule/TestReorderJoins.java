@@ -0,0 +1,263 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.iterative.rule;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.cost.CostComparator;
+import com.facebook.presto.cost.PlanNodeStatsCalculator;
+import com.facebook.presto.cost.PlanNodeStatsEstimate;
+import com.facebook.presto.cost.StatsCalculator;
+import com.facebook.presto.cost.StatsProvider;
+import com.facebook.presto.cost.SymbolStatsEstimate;
+import com.facebook.presto.cost.TaskCountEstimator;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.iterative.Lookup;
+import com.facebook.presto.sql.planner.iterative.rule.test.BaseRuleTest;
+import com.facebook.presto.sql.planner.plan.JoinNode.EquiJoinClause;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.SystemSessionProperties.COST_BASED_JOIN_REORDERING;
+import static com.facebook.presto.SystemSessionProperties.MAX_REORDERED_JOINS;
+import static com.facebook.presto.cost.PlanNodeStatsEstimate.UNKNOWN_STATS_ESTIMATE;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.equiJoinClause;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.filter;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.join;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.project;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.values;
+import static com.facebook.presto.sql.planner.iterative.rule.test.PlanBuilder.expression;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
+import static java.util.Objects.requireNonNull;
+
+@Test(singleThreaded = true)
+public class TestReorderJoins
+        extends BaseRuleTest
+{
+    private static final int NODES_COUNT = 100;
+
+    @Test
+    public void testReordersJoinsUsingStatistics()
+    {
+        // a relation joined with a large relation is joined after the one reducing it
+        Map<String, PlanNodeStatsEstimate> stats = ImmutableMap.of(
+                "a1", statistics(10, ImmutableMap.of("a1", 10.0)),
+                "b1", statistics(100, ImmutableMap.of("b1", 100.0)),
+                "c1", statistics(100_000_000, ImmutableMap.of("c1", 100.0, "c2", 100.0)));
+
+        tester().assertThat(reorderJoins(stats))
+                .setSystemProperty(COST_BASED_JOIN_REORDERING, "true")
+                .on(p -> p.join(
+                        INNER,
+                        p.values(p.symbol("a1")),
+                        p.join(
+                                INNER,
+                                p.values(p.symbol("b1")),
+                                p.values(p.symbol("c1"), p.symbol("c2")),
+                                new EquiJoinClause(p.symbol("b1"), p.symbol("c2"))),
+                        new EquiJoinClause(p.symbol("a1"), p.symbol("c1"))))
+                .matches(
+                        join(
+                                INNER,
+                                ImmutableList.of(equiJoinClause("C2", "B1")),
+                                Optional.empty(),
+                                Optional.of(REPLICATED),
+                                join(
+                                        INNER,
+                                        ImmutableList.of(equiJoinClause("C1", "A1")),
+                                        Optional.empty(),
+                                        Optional.of(REPLICATED),
+                                        values("C1", "C2"),
+                                        values("A1")),
+                                values("B1")));
+    }
+
+    @Test
+    public void testDoesNotFireWithUnknownStatistics()
+    {
+        // the statistics of b are unknown
+        Map<String, PlanNodeStatsEstimate> stats = ImmutableMap.of(
+                "a1", statistics(10, ImmutableMap.of("a1", 10.0)),
+                "c1", statistics(100_000_000, ImmutableMap.of("c1", 100.0, "c2", 100.0)));
+
+        tester().assertThat(reorderJoins(stats))
+                .setSystemProperty(COST_BASED_JOIN_REORDERING, "true")
+                .on(p -> p.join(
+                        INNER,
+                        p.values(p.symbol("a1")),
+                        p.join(
+                                INNER,
+                                p.values(p.symbol("b1")),
+                                p.values(p.symbol("c1"), p.symbol("c2")),
+                                new EquiJoinClause(p.symbol("b1"), p.symbol("c2"))),
+                        new EquiJoinClause(p.symbol("a1"), p.symbol("c1"))))
+                .doesNotFire();
+    }
+
+    @Test
+    public void testDoesNotFireWhenDisabled()
+    {
+        Map<String, PlanNodeStatsEstimate> stats = ImmutableMap.of(
+                "a1", statistics(10, ImmutableMap.of("a1", 10.0)),
+                "c1", statistics(100_000_000, ImmutableMap.of("c1", 100.0)));
+
+        tester().assertThat(reorderJoins(stats))
+                .setSystemProperty(COST_BASED_JOIN_REORDERING, "false")
+                .on(p -> p.join(
+                        INNER,
+                        p.values(p.symbol("a1")),
+                        p.values(p.symbol("c1")),
+                        new EquiJoinClause(p.symbol("a1"), p.symbol("c1"))))
+                .doesNotFire();
+    }
+
+    @Test
+    public void testKeepsCrossJoin()
+    {
+        // b is not joined with any of the other relations, so it is cross joined with the result of their join
+        Map<String, PlanNodeStatsEstimate> stats = ImmutableMap.of(
+                "a1", statistics(1000, ImmutableMap.of("a1", 1000.0)),
+                "b1", statistics(10, ImmutableMap.of("b1", 10.0)),
+                "c1", statistics(10_000_000, ImmutableMap.of("c1", 10_000_000.0)));
+
+        tester().assertThat(reorderJoins(stats))
+                .setSystemProperty(COST_BASED_JOIN_REORDERING, "true")
+                .on(p -> p.join(
+                        INNER,
+                        p.join(
+                                INNER,
+                                p.values(p.symbol("a1")),
+                                p.values(p.symbol("b1"))),
+                        p.values(p.symbol("c1")),
+                        new EquiJoinClause(p.symbol("a1"), p.symbol("c1"))))
+                .matches(
+                        join(
+                                INNER,
+                                ImmutableList.of(),
+                                Optional.empty(),
+                                Optional.of(REPLICATED),
+                                join(
+                                        INNER,
+                                        ImmutableList.of(equiJoinClause("C1", "A1")),
+                                        Optional.empty(),
+                                        Optional.of(REPLICATED),
+                                        values("C1"),
+                                        values("A1")),
+                                values("B1")));
+    }
+
+    @Test
+    public void testPreservesFiltersAndOutputs()
+    {
+        Map<String, PlanNodeStatsEstimate> stats = ImmutableMap.of(
+                "a1", statistics(10, ImmutableMap.of("a1", 10.0, "a2", 10.0)),
+                "c1", statistics(10_000_000, ImmutableMap.of("c1", 10_000_000.0, "c2", 1000.0)));
+
+        tester().assertThat(reorderJoins(stats))
+                .setSystemProperty(COST_BASED_JOIN_REORDERING, "true")
+                .on(p -> p.join(
+                        INNER,
+                        p.values(p.symbol("a1"), p.symbol("a2")),
+                        p.values(p.symbol("c1"), p.symbol("c2")),
+                        ImmutableList.of(new EquiJoinClause(p.symbol("a1"), p.symbol("c1"))),
+                        ImmutableList.of(p.symbol("a2"), p.symbol("c2")),
+                        Optional.of(expression("a2 > c2")),
+                        Optional.empty(),
+                        Optional.empty()))
+                .matches(
+                        project(
+                                filter(
+                                        "A2 > C2",
+                                        join(
+                                                INNER,
+                                                ImmutableList.of(equiJoinClause("C1", "A1")),
+                                                Optional.empty(),
+                                                Optional.of(REPLICATED),
+                                                values("C1", "C2"),
+                                                values("A1", "A2"))))
+                                .withExactOutputs("A2", "C2"));
+    }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "max_reordered_joins must be between 2 and 16: 31")
+    public void testRejectsTooManyReorderedJoins()
+    {
+        // more relations would overflow the bitmasks of the joined subsets
+        tester().assertThat(reorderJoins(ImmutableMap.of()))
+                .setSystemProperty(COST_BASED_JOIN_REORDERING, "true")
+                .setSystemProperty(MAX_REORDERED_JOINS, "31")
+                .on(p -> p.join(
+                        INNER,
+                        p.values(p.symbol("a1")),
+                        p.values(p.symbol("c1")),
+                        new EquiJoinClause(p.symbol("a1"), p.symbol("c1"))))
+                .doesNotFire();
+    }
+
+    private ReorderJoins reorderJoins(Map<String, PlanNodeStatsEstimate> valuesStats)
+    {
+        return new ReorderJoins(
+                new CostComparator(),
+                new ValuesStatsCalculator(new PlanNodeStatsCalculator(tester().getMetadata()), valuesStats),
+                new TaskCountEstimator(() -> NODES_COUNT));
+    }
+
+    private static PlanNodeStatsEstimate statistics(double rowCount, Map<String, Double> distinctValuesCounts)
+    {
+        PlanNodeStatsEstimate.Builder stats = PlanNodeStatsEstimate.builder()
+                .setOutputRowCount(rowCount);
+        distinctValuesCounts.forEach((symbol, distinctValuesCount) -> stats.addSymbolStatistics(
+                new Symbol(symbol),
+                SymbolStatsEstimate.builder()
+                        .setLowValue(0)
+                        .setHighValue(distinctValuesCount)
+                        .setNullsFraction(0)
+                        .setDistinctValuesCount(distinctValuesCount)
+                        .build()));
+        return stats.build();
+    }
+
+    /**
+     * Provides the statistics of values nodes, identified by their first output symbol,
+     * as if they were large tables. The statistics of values nodes without them are unknown.
+     */
+    private static class ValuesStatsCalculator
+            implements StatsCalculator
+    {
+        private final StatsCalculator delegate;
+        private final Map<String, PlanNodeStatsEstimate> valuesStats;
+
+        public ValuesStatsCalculator(StatsCalculator delegate, Map<String, PlanNodeStatsEstimate> valuesStats)
+        {
+            this.delegate = requireNonNull(delegate, "delegate is null");
+            this.valuesStats = ImmutableMap.copyOf(requireNonNull(valuesStats, "valuesStats is null"));
+        }
+
+        @Override
+        public PlanNodeStatsEstimate calculateStats(PlanNode node, StatsProvider sourceStats, Lookup lookup, Session session, Map<Symbol, Type> types)
+        {
+            if (node instanceof ValuesNode) {
+                return valuesStats.getOrDefault(node.getOutputSymbols().get(0).getName(), UNKNOWN_STATS_ESTIMATE);
+            }
+            return delegate.calculateStats(node, sourceStats, lookup, session, types);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.SystemSessionProperties;
+import com.facebook.presto.sql.planner.assertions.BasePlanTest;
+import com.facebook.presto.sql.planner.assertions.PlanMatchPattern;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anyTree;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.equiJoinClause;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.join;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.tableScan;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
+
+/**
+ * Verifies the join orders chosen using the statistics of the tpch tiny schema:
+ * 25 nations, 1500 customers and 15000 orders of 1000 distinct customers.
+ */
+public class TestCostBasedJoinReordering
+        extends BasePlanTest
+{
+    private static final PlanMatchPattern NATION_TABLESCAN = tableScan("nation", ImmutableMap.of("N_NATIONKEY", "nationkey"));
+    private static final PlanMatchPattern CUSTOMER_TABLESCAN = tableScan(
+            "customer",
+            ImmutableMap.of(
+                    "C_CUSTKEY", "custkey",
+                    "C_NATIONKEY", "nationkey"));
+    private static final PlanMatchPattern ORDERS_TABLESCAN = tableScan("orders", ImmutableMap.of("O_CUSTKEY", "custkey"));
+
+    public TestCostBasedJoinReordering()
+    {
+        super(ImmutableMap.of(SystemSessionProperties.COST_BASED_JOIN_REORDERING, "true"));
+    }
+
+    @Test
+    public void testLargerRelationIsProbeSide()
+    {
+        assertPlan("SELECT c.custkey FROM nation n JOIN customer c ON n.nationkey = c.nationkey",
+                anyTree(
+                        join(INNER, ImmutableList.of(equiJoinClause("C_NATIONKEY", "N_NATIONKEY")),
+                                anyTree(CUSTOMER_TABLESCAN),
+                                anyTree(NATION_TABLESCAN))));
+    }
+
+    @Test
+    public void testJoinOrder()
+    {
+        // joining customers with nations first keeps the intermediate result small,
+        // and the orders are the probe side of the join with it
+        assertPlan("SELECT c.custkey FROM nation n JOIN customer c ON n.nationkey = c.nationkey JOIN orders o ON c.custkey = o.custkey",
+                anyTree(
+                        join(INNER, ImmutableList.of(equiJoinClause("O_CUSTKEY", "C_CUSTKEY")),
+                                anyTree(ORDERS_TABLESCAN),
+                                anyTree(
+                                        join(INNER, ImmutableList.of(equiJoinClause("C_NATIONKEY", "N_NATIONKEY")),
+                                                anyTree(CUSTOMER_TABLESCAN),
+                                                anyTree(NATION_TABLESCAN))))));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.sql.planner.assertions.BasePlanTest;
+import com.facebook.presto.sql.planner.assertions.PlanMatchPattern;
+import com.facebook.presto.sql.planner.plan.JoinNode.DistributionType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static com.facebook.presto.SystemSessionProperties.AUTOMATIC_JOIN_DISTRIBUTION_TYPE;
+import static com.facebook.presto.SystemSessionProperties.JOIN_MAX_BROADCAST_TABLE_SIZE;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anyTree;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.equiJoinClause;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.join;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.tableScan;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.PARTITIONED;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
+
+/**
+ * Verifies the distribution types chosen using the statistics of the tpch tiny schema
+ * for a cluster of 20 nodes: 25 nations, 15000 orders and 60175 line items.
+ */
+public class TestDetermineJoinDistributionType
+        extends BasePlanTest
+{
+    private static final int NODE_COUNT = 20;
+
+    private static final PlanMatchPattern ORDERS_TABLESCAN = tableScan("orders", ImmutableMap.of("O_ORDERKEY", "orderkey", "O_CUSTKEY", "custkey"));
+    private static final PlanMatchPattern NATION_TABLESCAN = tableScan("nation", ImmutableMap.of("N_NATIONKEY", "nationkey"));
+    private static final PlanMatchPattern LINEITEM_TABLESCAN = tableScan("lineitem", ImmutableMap.of("L_ORDERKEY", "orderkey"));
+
+    public TestDetermineJoinDistributionType()
+    {
+        super(ImmutableMap.of(AUTOMATIC_JOIN_DISTRIBUTION_TYPE, "true"), NODE_COUNT);
+    }
+
+    @Test
+    public void testBroadcastSmallBuildSide()
+    {
+        // sending 25 nations to every node is cheaper than partitioning the orders
+        assertJoinDistributionType(
+                getQueryRunner().getDefaultSession(),
+                "SELECT o.orderkey FROM orders o JOIN nation n ON o.custkey = n.nationkey",
+                REPLICATED,
+                ORDERS_TABLESCAN,
+                NATION_TABLESCAN);
+    }
+
+    @Test
+    public void testPartitionLargeBuildSide()
+    {
+        // sending 15000 orders to every node is more expensive than partitioning both sides
+        assertPlanWithSession(
+                "SELECT l.partkey FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey",
+                getQueryRunner().getDefaultSession(),
+                false,
+                anyTree(
+                        join(INNER, ImmutableList.of(equiJoinClause("L_ORDERKEY", "O_ORDERKEY")), Optional.empty(), Optional.of(PARTITIONED),
+                                anyTree(LINEITEM_TABLESCAN),
+                                anyTree(tableScan("orders", ImmutableMap.of("O_ORDERKEY", "orderkey"))))));
+    }
+
+    @Test
+    public void testPartitionWithUnknownStatistics()
+    {
+        // the statistics of the output of window functions are unknown
+        assertJoinDistributionType(
+                getQueryRunner().getDefaultSession(),
+                "SELECT o.orderkey, o.r FROM (SELECT orderkey, custkey, rank() OVER (ORDER BY orderkey) r FROM orders) o JOIN nation n ON o.custkey = n.nationkey",
+                PARTITIONED,
+                ORDERS_TABLESCAN,
+                NATION_TABLESCAN);
+        assertJoinDistributionType(
+                getQueryRunner().getDefaultSession(),
+                "SELECT o.orderkey, n.r FROM orders o JOIN (SELECT nationkey, rank() OVER (ORDER BY nationkey) r FROM nation) n ON o.custkey = n.nationkey",
+                PARTITIONED,
+                ORDERS_TABLESCAN,
+                NATION_TABLESCAN);
+    }
+
+    @Test
+    public void testJoinMaxBroadcastTableSize()
+    {
+        Session session = Session.builder(getQueryRunner().getDefaultSession())
+                .setSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, "100B")
+                .build();
+
+        // the 200 bytes of nation keys are too large to be broadcast
+        assertJoinDistributionType(
+                session,
+                "SELECT o.orderkey FROM orders o JOIN nation n ON o.custkey = n.nationkey",
+                PARTITIONED,
+                ORDERS_TABLESCAN,
+                NATION_TABLESCAN);
+    }
+
+    private void assertJoinDistributionType(Session session, @Language("SQL") String sql, DistributionType distributionType, PlanMatchPattern probe, PlanMatchPattern build)
+    {
+        assertPlanWithSession(sql, session, false,
+                anyTree(
+                        join(INNER, ImmutableList.of(equiJoinClause("O_CUSTKEY", "N_NATIONKEY")), Optional.empty(), Optional.of(distributionType),
+                                anyTree(probe),
+                                anyTree(build))));
+    }
+}
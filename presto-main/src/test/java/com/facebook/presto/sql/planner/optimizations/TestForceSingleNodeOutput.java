@@ -24,6 +24,7 @@ import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anyTre
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.exchange;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.node;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.output;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.sort;
 import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.tableScan;
 
 public class TestForceSingleNodeOutput
@@ -67,13 +68,13 @@ public class TestForceSingleNodeOutput
                 output(
                         anyTree(
                                 exchange(ExchangeNode.Scope.REMOTE, ExchangeNode.Type.GATHER,
-                                        tableScan("orders")))));
+                                        anyTree(sort(anyTree(tableScan("orders"))))))));
         // force gather, same result
         assertPlanWithSession("SELECT orderkey FROM orders ORDER BY orderkey", singleNodeOutput(true), false,
                 output(
                         anyTree(
                                 exchange(ExchangeNode.Scope.REMOTE, ExchangeNode.Type.GATHER,
-                                        tableScan("orders")))));
+                                        anyTree(sort(anyTree(tableScan("orders"))))))));
     }
 
     private Session singleNodeOutput(boolean force)
@@ -98,6 +98,38 @@ public class TestTransactionManager
         }
     }
 
+    @Test
+    public void testCommittedWriteCount()
+            throws Exception
+    {
+        try (IdleCheckExecutor executor = new IdleCheckExecutor()) {
+            CatalogManager catalogManager = new CatalogManager();
+            TransactionManager transactionManager = TransactionManager.create(new TransactionManagerConfig(), executor.getExecutor(), catalogManager, finishingExecutor);
+
+            Connector c1 = new TpchConnectorFactory().create(CATALOG_NAME, ImmutableMap.of(), new TestingConnectorContext());
+            registerConnector(catalogManager, transactionManager, CATALOG_NAME, CONNECTOR_ID, c1);
+            assertEquals(transactionManager.getCommittedWriteCount(CONNECTOR_ID), 0);
+
+            // transactions that only read are not counted
+            TransactionId transactionId = transactionManager.beginTransaction(true);
+            transactionManager.getCatalogMetadata(transactionId, CONNECTOR_ID);
+            getFutureValue(transactionManager.asyncCommit(transactionId));
+            assertEquals(transactionManager.getCommittedWriteCount(CONNECTOR_ID), 0);
+
+            // aborted writes are not counted
+            transactionId = transactionManager.beginTransaction(true);
+            transactionManager.getCatalogMetadataForWrite(transactionId, CONNECTOR_ID);
+            getFutureValue(transactionManager.asyncAbort(transactionId));
+            assertEquals(transactionManager.getCommittedWriteCount(CONNECTOR_ID), 0);
+
+            transactionId = transactionManager.beginTransaction(true);
+            transactionManager.getCatalogMetadataForWrite(transactionId, CONNECTOR_ID);
+            getFutureValue(transactionManager.asyncCommit(transactionId));
+            assertEquals(transactionManager.getCommittedWriteCount(CONNECTOR_ID), 1);
+            assertEquals(transactionManager.getCommittedWriteCount(SYSTEM_TABLES_ID), 0);
+        }
+    }
+
     @Test
     public void testAbortedTransactionWorkflow()
             throws Exception
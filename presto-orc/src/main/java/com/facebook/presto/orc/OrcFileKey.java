@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Identifies one version of an ORC file. A file which is rewritten in place
+ * gets a new length or modification time, so stale cache entries are never hit.
+ */
+public final class OrcFileKey
+{
+    private final String path;
+    private final long length;
+    private final long modificationTime;
+
+    public OrcFileKey(String path, long length, long modificationTime)
+    {
+        this.path = requireNonNull(path, "path is null");
+        this.length = length;
+        this.modificationTime = modificationTime;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public long getLength()
+    {
+        return length;
+    }
+
+    public long getModificationTime()
+    {
+        return modificationTime;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        OrcFileKey that = (OrcFileKey) o;
+        return length == that.length &&
+                modificationTime == that.modificationTime &&
+                Objects.equals(path, that.path);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(path, length, modificationTime);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("path", path)
+                .add("length", length)
+                .add("modificationTime", modificationTime)
+                .toString();
+    }
+}
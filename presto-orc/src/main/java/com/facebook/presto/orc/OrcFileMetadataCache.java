@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.presto.orc.metadata.StripeFooter;
+import com.facebook.presto.orc.metadata.StripeInformation;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * View of an {@link OrcMetadataCache} for a single file.
+ */
+public final class OrcFileMetadataCache
+{
+    private final OrcMetadataCache cache;
+    private final OrcFileKey fileKey;
+
+    OrcFileMetadataCache(OrcMetadataCache cache, OrcFileKey fileKey)
+    {
+        this.cache = requireNonNull(cache, "cache is null");
+        this.fileKey = requireNonNull(fileKey, "fileKey is null");
+    }
+
+    OrcFileTail getFileTail(Callable<OrcFileTail> loader)
+            throws IOException
+    {
+        return cache.getFileTail(fileKey, loader);
+    }
+
+    StripeFooter getStripeFooter(StripeInformation stripe, Callable<StripeFooter> loader)
+            throws IOException
+    {
+        return cache.getStripeFooter(fileKey, stripe.getOffset(), toIntExact(stripe.getFooterLength()), loader);
+    }
+}
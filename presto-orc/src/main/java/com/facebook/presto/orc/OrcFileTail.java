@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.presto.orc.metadata.Footer;
+import com.facebook.presto.orc.metadata.Metadata;
+import com.facebook.presto.orc.metadata.PostScript;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The parsed postscript, footer and metadata of an ORC file.
+ */
+class OrcFileTail
+{
+    private final PostScript postScript;
+    private final Footer footer;
+    private final Metadata metadata;
+    private final int serializedSize;
+
+    public OrcFileTail(PostScript postScript, Footer footer, Metadata metadata, int serializedSize)
+    {
+        this.postScript = requireNonNull(postScript, "postScript is null");
+        this.footer = requireNonNull(footer, "footer is null");
+        this.metadata = requireNonNull(metadata, "metadata is null");
+        this.serializedSize = serializedSize;
+    }
+
+    public PostScript getPostScript()
+    {
+        return postScript;
+    }
+
+    public Footer getFooter()
+    {
+        return footer;
+    }
+
+    public Metadata getMetadata()
+    {
+        return metadata;
+    }
+
+    /**
+     * Size of the tail as stored in the file, used to weigh cache entries.
+     */
+    public int getSerializedSize()
+    {
+        return serializedSize;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.presto.orc.metadata.StripeFooter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.airlift.units.DataSize;
+import org.weakref.jmx.Managed;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Throwables.propagateIfPossible;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Node level cache of the parsed file tails and stripe footers of ORC files,
+ * shared by all readers of a file. Entries are weighed by their size in the
+ * file, which is a lower bound of the memory used by the parsed objects.
+ */
+public class OrcMetadataCache
+{
+    private final Cache<OrcFileKey, OrcFileTail> fileTails;
+    private final Cache<StripeFooterKey, StripeFooter> stripeFooters;
+
+    public OrcMetadataCache(DataSize maxFileTailCacheSize, DataSize maxStripeFooterCacheSize)
+    {
+        requireNonNull(maxFileTailCacheSize, "maxFileTailCacheSize is null");
+        requireNonNull(maxStripeFooterCacheSize, "maxStripeFooterCacheSize is null");
+
+        this.fileTails = CacheBuilder.newBuilder()
+                .maximumWeight(maxFileTailCacheSize.toBytes())
+                .weigher((OrcFileKey key, OrcFileTail tail) -> tail.getSerializedSize())
+                .recordStats()
+                .build();
+        this.stripeFooters = CacheBuilder.newBuilder()
+                .maximumWeight(maxStripeFooterCacheSize.toBytes())
+                .weigher((StripeFooterKey key, StripeFooter footer) -> key.getFooterLength())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a view of the cache for a single file.
+     */
+    public OrcFileMetadataCache forFile(OrcFileKey fileKey)
+    {
+        return new OrcFileMetadataCache(this, fileKey);
+    }
+
+    OrcFileTail getFileTail(OrcFileKey fileKey, Callable<OrcFileTail> loader)
+            throws IOException
+    {
+        return get(fileTails, fileKey, loader);
+    }
+
+    StripeFooter getStripeFooter(OrcFileKey fileKey, long offset, int footerLength, Callable<StripeFooter> loader)
+            throws IOException
+    {
+        return get(stripeFooters, new StripeFooterKey(fileKey, offset, footerLength), loader);
+    }
+
+    private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader)
+            throws IOException
+    {
+        try {
+            return cache.get(key, loader);
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Managed
+    public long getFileTailCacheSize()
+    {
+        return fileTails.size();
+    }
+
+    @Managed
+    public long getFileTailCacheHitCount()
+    {
+        return fileTails.stats().hitCount();
+    }
+
+    @Managed
+    public long getFileTailCacheMissCount()
+    {
+        return fileTails.stats().missCount();
+    }
+
+    @Managed
+    public long getFileTailCacheEvictionCount()
+    {
+        return fileTails.stats().evictionCount();
+    }
+
+    @Managed
+    public double getFileTailCacheHitRate()
+    {
+        return fileTails.stats().hitRate();
+    }
+
+    @Managed
+    public long getStripeFooterCacheSize()
+    {
+        return stripeFooters.size();
+    }
+
+    @Managed
+    public long getStripeFooterCacheHitCount()
+    {
+        return stripeFooters.stats().hitCount();
+    }
+
+    @Managed
+    public long getStripeFooterCacheMissCount()
+    {
+        return stripeFooters.stats().missCount();
+    }
+
+    @Managed
+    public long getStripeFooterCacheEvictionCount()
+    {
+        return stripeFooters.stats().evictionCount();
+    }
+
+    @Managed
+    public double getStripeFooterCacheHitRate()
+    {
+        return stripeFooters.stats().hitRate();
+    }
+
+    private static final class StripeFooterKey
+    {
+        private final OrcFileKey fileKey;
+        private final long offset;
+        private final int footerLength;
+
+        public StripeFooterKey(OrcFileKey fileKey, long offset, int footerLength)
+        {
+            this.fileKey = requireNonNull(fileKey, "fileKey is null");
+            this.offset = offset;
+            this.footerLength = footerLength;
+        }
+
+        public int getFooterLength()
+        {
+            return footerLength;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            StripeFooterKey that = (StripeFooterKey) o;
+            return offset == that.offset &&
+                    footerLength == that.footerLength &&
+                    Objects.equals(fileKey, that.fileKey);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(fileKey, offset, footerLength);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("fileKey", fileKey)
+                    .add("offset", offset)
+                    .add("footerLength", footerLength)
+                    .toString();
+        }
+    }
+}
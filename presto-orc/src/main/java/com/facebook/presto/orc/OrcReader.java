@@ -37,11 +37,13 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 
 import static com.facebook.presto.orc.OrcDecompressor.createOrcDecompressor;
 import static com.facebook.presto.orc.metadata.PostScript.MAGIC;
 import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
@@ -67,6 +69,7 @@ public class OrcReader
     private final Optional<OrcDecompressor> decompressor;
     private final Footer footer;
     private final Metadata metadata;
+    private final Optional<OrcFileMetadataCache> metadataCache;
 
     private final Optional<OrcWriteValidation> writeValidation;
 
@@ -74,10 +77,27 @@ public class OrcReader
     public OrcReader(OrcDataSource orcDataSource, MetadataReader delegate, DataSize maxMergeDistance, DataSize maxReadSize, DataSize maxBlockSize)
             throws IOException
     {
-        this(orcDataSource, delegate, maxMergeDistance, maxReadSize, maxBlockSize, Optional.empty());
+        this(orcDataSource, delegate, maxMergeDistance, maxReadSize, maxBlockSize, Optional.empty(), Optional.empty());
     }
 
-    OrcReader(OrcDataSource orcDataSource, MetadataReader delegate, DataSize maxMergeDistance, DataSize maxReadSize, DataSize maxBlockSize, Optional<OrcWriteValidation> writeValidation)
+    /**
+     * Creates a reader which, when {@code metadataCache} is present, shares the
+     * parsed file tail and stripe footers with other readers of the same file.
+     */
+    public OrcReader(OrcDataSource orcDataSource, MetadataReader delegate, DataSize maxMergeDistance, DataSize maxReadSize, DataSize maxBlockSize, Optional<OrcFileMetadataCache> metadataCache)
+            throws IOException
+    {
+        this(orcDataSource, delegate, maxMergeDistance, maxReadSize, maxBlockSize, metadataCache, Optional.empty());
+    }
+
+    OrcReader(
+            OrcDataSource orcDataSource,
+            MetadataReader delegate,
+            DataSize maxMergeDistance,
+            DataSize maxReadSize,
+            DataSize maxBlockSize,
+            Optional<OrcFileMetadataCache> metadataCache,
+            Optional<OrcWriteValidation> writeValidation)
             throws IOException
     {
         orcDataSource = wrapWithCacheIfTiny(requireNonNull(orcDataSource, "orcDataSource is null"), maxMergeDistance);
@@ -86,9 +106,46 @@ public class OrcReader
         this.maxMergeDistance = requireNonNull(maxMergeDistance, "maxMergeDistance is null");
         this.maxReadSize = requireNonNull(maxReadSize, "maxReadSize is null");
         this.maxBlockSize = requireNonNull(maxBlockSize, "maxBlockSize is null");
+        this.metadataCache = requireNonNull(metadataCache, "metadataCache is null");
 
         this.writeValidation = requireNonNull(writeValidation, "writeValidation is null");
 
+        OrcFileTail fileTail;
+        if (metadataCache.isPresent()) {
+            OrcDataSource dataSource = orcDataSource;
+            fileTail = metadataCache.get().getFileTail(() -> readFileTail(dataSource, metadataReader));
+        }
+        else {
+            fileTail = readFileTail(orcDataSource, metadataReader);
+        }
+
+        PostScript postScript = fileTail.getPostScript();
+        validateWrite(validation -> validation.getVersion().equals(postScript.getVersion()), "Unexpected version");
+
+        this.bufferSize = toIntExact(postScript.getCompressionBlockSize());
+
+        // the decompressor is not thread safe, so every reader gets its own
+        CompressionKind compressionKind = postScript.getCompression();
+        this.decompressor = createOrcDecompressor(orcDataSource.getId(), compressionKind, bufferSize);
+        validateWrite(validation -> validation.getCompression() == compressionKind, "Unexpected compression");
+
+        this.hiveWriterVersion = postScript.getHiveWriterVersion();
+        this.footer = fileTail.getFooter();
+        this.metadata = fileTail.getMetadata();
+
+        validateWrite(validation -> validation.getMetadata().equals(footer.getUserMetadata()), "Unexpected metadata");
+        validateWrite(validation -> validation.getColumnNames().equals(getColumnNames()), "Unexpected column names");
+        validateWrite(validation -> validation.getRowGroupMaxRowCount() == footer.getRowsInRowGroup(), "Unexpected rows in group");
+        if (writeValidation.isPresent()) {
+            writeValidation.get().validateFileStatistics(orcDataSource.getId(), footer.getFileStats());
+            writeValidation.get().validateStripeStatistics(orcDataSource.getId(), footer.getStripes(), metadata.getStripeStatsList());
+        }
+    }
+
+    // This is based on the Apache Hive ORC code
+    private static OrcFileTail readFileTail(OrcDataSource orcDataSource, MetadataReader metadataReader)
+            throws IOException
+    {
         //
         // Read the file tail:
         //
@@ -120,16 +177,11 @@ public class OrcReader
 
         // verify this is a supported version
         checkOrcVersion(orcDataSource, postScript.getVersion());
-        validateWrite(validation -> validation.getVersion().equals(postScript.getVersion()), "Unexpected version");
-
-        this.bufferSize = toIntExact(postScript.getCompressionBlockSize());
 
         // check compression codec is supported
-        CompressionKind compressionKind = postScript.getCompression();
-        this.decompressor = createOrcDecompressor(orcDataSource.getId(), compressionKind, bufferSize);
-        validateWrite(validation -> validation.getCompression() == compressionKind, "Unexpected compression");
+        Optional<OrcDecompressor> decompressor = createOrcDecompressor(orcDataSource.getId(), postScript.getCompression(), toIntExact(postScript.getCompressionBlockSize()));
 
-        this.hiveWriterVersion = postScript.getHiveWriterVersion();
+        HiveWriterVersion hiveWriterVersion = postScript.getHiveWriterVersion();
 
         int footerSize = toIntExact(postScript.getFooterLength());
         int metadataSize = toIntExact(postScript.getMetadataLength());
@@ -154,24 +206,20 @@ public class OrcReader
         }
 
         // read metadata
+        Metadata metadata;
         Slice metadataSlice = completeFooterSlice.slice(0, metadataSize);
         try (InputStream metadataInputStream = new OrcInputStream(orcDataSource.getId(), metadataSlice.getInput(), decompressor, new AggregatedMemoryContext())) {
-            this.metadata = metadataReader.readMetadata(hiveWriterVersion, metadataInputStream);
+            metadata = metadataReader.readMetadata(hiveWriterVersion, metadataInputStream);
         }
 
         // read footer
+        Footer footer;
         Slice footerSlice = completeFooterSlice.slice(metadataSize, footerSize);
         try (InputStream footerInputStream = new OrcInputStream(orcDataSource.getId(), footerSlice.getInput(), decompressor, new AggregatedMemoryContext())) {
-            this.footer = metadataReader.readFooter(hiveWriterVersion, footerInputStream);
+            footer = metadataReader.readFooter(hiveWriterVersion, footerInputStream);
         }
 
-        validateWrite(validation -> validation.getMetadata().equals(footer.getUserMetadata()), "Unexpected metadata");
-        validateWrite(validation -> validation.getColumnNames().equals(getColumnNames()), "Unexpected column names");
-        validateWrite(validation -> validation.getRowGroupMaxRowCount() == footer.getRowsInRowGroup(), "Unexpected rows in group");
-        if (writeValidation.isPresent()) {
-            writeValidation.get().validateFileStatistics(orcDataSource.getId(), footer.getFileStats());
-            writeValidation.get().validateStripeStatistics(orcDataSource.getId(), footer.getStripes(), metadata.getStripeStatsList());
-        }
+        return new OrcFileTail(postScript, footer, metadata, completeFooterSize);
     }
 
     public List<String> getColumnNames()
@@ -208,6 +256,26 @@ public class OrcReader
             DateTimeZone hiveStorageTimeZone,
             AbstractAggregatedMemoryContext systemMemoryUsage)
             throws IOException
+    {
+        return createRecordReader(includedColumns, predicate, offset, length, hiveStorageTimeZone, systemMemoryUsage, Optional.empty(), new DataSize(0, BYTE));
+    }
+
+    /**
+     * Creates a record reader which, when {@code stripePrefetchExecutor} is present,
+     * reads the next stripe in the background while the current stripe is decoded.
+     * A stripe is only prefetched when the memory of the reader, including the
+     * prefetched stripe, stays within {@code stripePrefetchMaxMemory}.
+     */
+    public OrcRecordReader createRecordReader(
+            Map<Integer, Type> includedColumns,
+            OrcPredicate predicate,
+            long offset,
+            long length,
+            DateTimeZone hiveStorageTimeZone,
+            AbstractAggregatedMemoryContext systemMemoryUsage,
+            Optional<Executor> stripePrefetchExecutor,
+            DataSize stripePrefetchMaxMemory)
+            throws IOException
     {
         return new OrcRecordReader(
                 requireNonNull(includedColumns, "includedColumns is null"),
@@ -230,7 +298,10 @@ public class OrcReader
                 maxBlockSize,
                 footer.getUserMetadata(),
                 systemMemoryUsage,
-                writeValidation);
+                writeValidation,
+                requireNonNull(stripePrefetchExecutor, "stripePrefetchExecutor is null"),
+                requireNonNull(stripePrefetchMaxMemory, "stripePrefetchMaxMemory is null"),
+                metadataCache);
     }
 
     private static OrcDataSource wrapWithCacheIfTiny(OrcDataSource dataSource, DataSize maxCacheSize)
@@ -318,7 +389,7 @@ public class OrcReader
             readTypes.put(columnIndex, types.get(columnIndex));
         }
         try {
-            OrcReader orcReader = new OrcReader(input, metadataReader, new DataSize(1, MEGABYTE), new DataSize(8, MEGABYTE), new DataSize(16, MEGABYTE), Optional.of(writeValidation));
+            OrcReader orcReader = new OrcReader(input, metadataReader, new DataSize(1, MEGABYTE), new DataSize(8, MEGABYTE), new DataSize(16, MEGABYTE), Optional.empty(), Optional.of(writeValidation));
             try (OrcRecordReader orcRecordReader = orcReader.createRecordReader(readTypes.build(), OrcPredicate.TRUE, hiveStorageTimeZone, new AggregatedMemoryContext())) {
                 while (orcRecordReader.nextBatch() >= 0) {
                     // ignored
@@ -17,6 +17,7 @@ import com.facebook.presto.orc.OrcWriteValidation.WriteChecksum;
 import com.facebook.presto.orc.OrcWriteValidation.WriteChecksumBuilder;
 import com.facebook.presto.orc.memory.AbstractAggregatedMemoryContext;
 import com.facebook.presto.orc.memory.AggregatedMemoryContext;
+import com.facebook.presto.orc.memory.LocalMemoryContext;
 import com.facebook.presto.orc.metadata.ColumnEncoding;
 import com.facebook.presto.orc.metadata.MetadataReader;
 import com.facebook.presto.orc.metadata.OrcType;
@@ -37,6 +38,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
@@ -51,6 +53,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import static com.facebook.presto.orc.OrcDataSourceUtils.mergeAdjacentDiskRanges;
@@ -58,6 +61,7 @@ import static com.facebook.presto.orc.OrcReader.MAX_BATCH_SIZE;
 import static com.facebook.presto.orc.OrcRecordReader.LinearProbeRangeFinder.createTinyStripesRangeFinder;
 import static com.facebook.presto.orc.OrcWriteValidation.WriteChecksumBuilder.createWriteChecksumBuilder;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
@@ -67,7 +71,10 @@ import static java.util.Objects.requireNonNull;
 public class OrcRecordReader
         implements Closeable
 {
+    private static final ListenableFuture<?> NOT_BLOCKED = immediateFuture(null);
+
     private final OrcDataSource orcDataSource;
+    private final Optional<PrefetchingOrcDataSource> prefetchingDataSource;
 
     private final StreamReader[] streamReaders;
     private final long[] maxBytesPerCell;
@@ -98,7 +105,9 @@ public class OrcRecordReader
 
     private final Map<String, Slice> userMetadata;
 
-    private final AbstractAggregatedMemoryContext systemMemoryUsage;
+    private final AggregatedMemoryContext systemMemoryUsage;
+    private final LocalMemoryContext prefetchSystemMemoryUsage;
+    private final long stripePrefetchMaxMemoryBytes;
 
     private final Optional<OrcWriteValidation> writeValidation;
     private final Optional<WriteChecksumBuilder> writeChecksumBuilder;
@@ -124,7 +133,10 @@ public class OrcRecordReader
             DataSize maxBlockSize,
             Map<String, Slice> userMetadata,
             AbstractAggregatedMemoryContext systemMemoryUsage,
-            Optional<OrcWriteValidation> writeValidation)
+            Optional<OrcWriteValidation> writeValidation,
+            Optional<Executor> stripePrefetchExecutor,
+            DataSize stripePrefetchMaxMemory,
+            Optional<OrcFileMetadataCache> metadataCache)
             throws IOException
     {
         requireNonNull(includedColumns, "includedColumns is null");
@@ -193,6 +205,15 @@ public class OrcRecordReader
         this.stripeFilePositions = stripeFilePositions.build();
 
         orcDataSource = wrapWithCacheIfTinyStripes(orcDataSource, this.stripes, maxMergeDistance, maxReadSize);
+        // tiny stripes are already read in large merged regions, so prefetching would not overlap any more I/O
+        if (stripePrefetchExecutor.isPresent() && !(orcDataSource instanceof CachingOrcDataSource)) {
+            PrefetchingOrcDataSource prefetchingDataSource = new PrefetchingOrcDataSource(orcDataSource, stripePrefetchExecutor.get());
+            this.prefetchingDataSource = Optional.of(prefetchingDataSource);
+            orcDataSource = prefetchingDataSource;
+        }
+        else {
+            this.prefetchingDataSource = Optional.empty();
+        }
         this.orcDataSource = orcDataSource;
         this.splitLength = splitLength;
 
@@ -205,6 +226,8 @@ public class OrcRecordReader
 
         this.systemMemoryUsage = requireNonNull(systemMemoryUsage, "systemMemoryUsage is null").newAggregatedMemoryContext();
         this.currentStripeSystemMemoryContext = systemMemoryUsage.newAggregatedMemoryContext();
+        this.prefetchSystemMemoryUsage = this.systemMemoryUsage.newLocalMemoryContext();
+        this.stripePrefetchMaxMemoryBytes = requireNonNull(stripePrefetchMaxMemory, "stripePrefetchMaxMemory is null").toBytes();
 
         stripeReader = new StripeReader(
                 orcDataSource,
@@ -215,6 +238,7 @@ public class OrcRecordReader
                 predicate,
                 hiveWriterVersion,
                 metadataReader,
+                metadataCache,
                 writeValidation);
 
         streamReaders = createStreamReaders(orcDataSource, types, hiveStorageTimeZone, presentColumnsAndTypes.build());
@@ -311,11 +335,24 @@ public class OrcRecordReader
         return maxCombinedBytesPerRow;
     }
 
+    /**
+     * Returns a future that is done when the next call to {@link #nextBatch()} will
+     * not wait for the read of a prefetched stripe.
+     */
+    public ListenableFuture<?> isBlocked()
+    {
+        if (!prefetchingDataSource.isPresent() || nextRowInGroup < currentGroupRowCount || rowGroups.hasNext()) {
+            return NOT_BLOCKED;
+        }
+        return prefetchingDataSource.get().getPrefetchFuture();
+    }
+
     @Override
     public void close()
             throws IOException
     {
         orcDataSource.close();
+        prefetchSystemMemoryUsage.setBytes(0);
 
         if (writeChecksumBuilder.isPresent()) {
             WriteChecksum actualChecksum = writeChecksumBuilder.get().build();
@@ -456,6 +493,32 @@ public class OrcRecordReader
 
             rowGroups = stripe.getRowGroups().iterator();
         }
+
+        prefetchNextStripe();
+    }
+
+    private void prefetchNextStripe()
+    {
+        if (!prefetchingDataSource.isPresent()) {
+            return;
+        }
+
+        prefetchSystemMemoryUsage.setBytes(0);
+        int nextStripe = currentStripe + 1;
+        if (nextStripe >= stripes.size()) {
+            return;
+        }
+
+        // the prefetched stripe is held in memory next to the current one, so it is only
+        // prefetched if the reader stays within its budget; otherwise it is read when needed
+        StripeInformation stripeInformation = stripes.get(nextStripe);
+        if (systemMemoryUsage.getBytes() + stripeInformation.getTotalLength() > stripePrefetchMaxMemoryBytes) {
+            return;
+        }
+
+        DiskRange stripeRange = new DiskRange(stripeInformation.getOffset(), toIntExact(stripeInformation.getTotalLength()));
+        prefetchingDataSource.get().prefetch(stripeRange);
+        prefetchSystemMemoryUsage.setBytes(stripeRange.getLength());
     }
 
     private void validateWrite(Predicate<OrcWriteValidation> test, String messageFormat, Object... args)
@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import io.airlift.slice.FixedLengthSliceInput;
+import io.airlift.slice.Slices;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Throwables.propagateIfPossible;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Data source which reads one region of the file ahead in the background.
+ * Reads contained in the prefetched region are served from memory, waiting
+ * for the background read if it has not finished yet. All other reads are
+ * passed through to the underlying data source.
+ * <p>
+ * A background read that has already started when its region is replaced or the
+ * data source is closed runs to completion, and {@link #close()} waits for it
+ * before closing the underlying data source. Reads that have not started yet
+ * are skipped.
+ */
+public class PrefetchingOrcDataSource
+        implements OrcDataSource
+{
+    private final OrcDataSource dataSource;
+    private final Executor executor;
+
+    private final Object closeLock = new Object();
+    @GuardedBy("closeLock")
+    private boolean closed;
+
+    private DiskRange prefetchedRange;
+    private ListenableFuture<byte[]> prefetchedData = immediateFuture(new byte[0]);
+
+    public PrefetchingOrcDataSource(OrcDataSource dataSource, Executor executor)
+    {
+        this.dataSource = requireNonNull(dataSource, "dataSource is null");
+        this.executor = requireNonNull(executor, "executor is null");
+    }
+
+    /**
+     * Starts reading the specified region in the background. Any previously
+     * prefetched region is discarded.
+     */
+    public void prefetch(DiskRange diskRange)
+    {
+        requireNonNull(diskRange, "diskRange is null");
+        prefetchedData.cancel(false);
+
+        byte[] buffer = new byte[diskRange.getLength()];
+        ListenableFutureTask<byte[]> task = ListenableFutureTask.create(() -> {
+            synchronized (closeLock) {
+                if (closed) {
+                    throw new IOException("Data source is closed: " + dataSource.getId());
+                }
+                dataSource.readFully(diskRange.getOffset(), buffer);
+            }
+            return buffer;
+        });
+        prefetchedRange = diskRange;
+        prefetchedData = task;
+        executor.execute(task);
+    }
+
+    /**
+     * Returns a future that is done when the prefetched region has been read.
+     */
+    public ListenableFuture<?> getPrefetchFuture()
+    {
+        return prefetchedData;
+    }
+
+    @Override
+    public OrcDataSourceId getId()
+    {
+        return dataSource.getId();
+    }
+
+    @Override
+    public long getReadBytes()
+    {
+        return dataSource.getReadBytes();
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return dataSource.getReadTimeNanos();
+    }
+
+    @Override
+    public long getSize()
+    {
+        return dataSource.getSize();
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer)
+            throws IOException
+    {
+        readFully(position, buffer, 0, buffer.length);
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer, int bufferOffset, int bufferLength)
+            throws IOException
+    {
+        if (!isPrefetched(new DiskRange(position, bufferLength))) {
+            dataSource.readFully(position, buffer, bufferOffset, bufferLength);
+            return;
+        }
+        System.arraycopy(getPrefetchedData(), toIntExact(position - prefetchedRange.getOffset()), buffer, bufferOffset, bufferLength);
+    }
+
+    @Override
+    public <K> Map<K, FixedLengthSliceInput> readFully(Map<K, DiskRange> diskRanges)
+            throws IOException
+    {
+        ImmutableMap.Builder<K, FixedLengthSliceInput> slices = ImmutableMap.builder();
+        ImmutableMap.Builder<K, DiskRange> remainingRanges = ImmutableMap.builder();
+        for (Entry<K, DiskRange> entry : diskRanges.entrySet()) {
+            DiskRange diskRange = entry.getValue();
+            if (isPrefetched(diskRange)) {
+                int offset = toIntExact(diskRange.getOffset() - prefetchedRange.getOffset());
+                slices.put(entry.getKey(), Slices.wrappedBuffer(getPrefetchedData(), offset, diskRange.getLength()).getInput());
+            }
+            else {
+                remainingRanges.put(entry);
+            }
+        }
+        Map<K, DiskRange> remaining = remainingRanges.build();
+        if (!remaining.isEmpty()) {
+            slices.putAll(dataSource.readFully(remaining));
+        }
+        return slices.build();
+    }
+
+    private boolean isPrefetched(DiskRange diskRange)
+    {
+        return prefetchedRange != null && prefetchedRange.contains(diskRange);
+    }
+
+    private byte[] getPrefetchedData()
+            throws IOException
+    {
+        try {
+            return prefetchedData.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException e) {
+            propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        prefetchedData.cancel(false);
+        prefetchedRange = null;
+        // wait for a background read which is still using the underlying data source
+        synchronized (closeLock) {
+            closed = true;
+            dataSource.close();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return dataSource.toString();
+    }
+}
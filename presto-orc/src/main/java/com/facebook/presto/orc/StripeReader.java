@@ -79,6 +79,7 @@ public class StripeReader
     private final int rowsInRowGroup;
     private final OrcPredicate predicate;
     private final MetadataReader metadataReader;
+    private final Optional<OrcFileMetadataCache> metadataCache;
     private final Optional<OrcWriteValidation> writeValidation;
 
     public StripeReader(OrcDataSource orcDataSource,
@@ -89,6 +90,7 @@ public class StripeReader
             OrcPredicate predicate,
             HiveWriterVersion hiveWriterVersion,
             MetadataReader metadataReader,
+            Optional<OrcFileMetadataCache> metadataCache,
             Optional<OrcWriteValidation> writeValidation)
     {
         this.orcDataSource = requireNonNull(orcDataSource, "orcDataSource is null");
@@ -99,6 +101,7 @@ public class StripeReader
         this.predicate = requireNonNull(predicate, "predicate is null");
         this.hiveWriterVersion = requireNonNull(hiveWriterVersion, "hiveWriterVersion is null");
         this.metadataReader = requireNonNull(metadataReader, "metadataReader is null");
+        this.metadataCache = requireNonNull(metadataCache, "metadataCache is null");
         this.writeValidation = requireNonNull(writeValidation, "writeValidation is null");
     }
 
@@ -356,6 +359,15 @@ public class StripeReader
 
     public StripeFooter readStripeFooter(StripeInformation stripe, AbstractAggregatedMemoryContext systemMemoryUsage)
             throws IOException
+    {
+        if (metadataCache.isPresent()) {
+            return metadataCache.get().getStripeFooter(stripe, () -> loadStripeFooter(stripe, systemMemoryUsage));
+        }
+        return loadStripeFooter(stripe, systemMemoryUsage);
+    }
+
+    private StripeFooter loadStripeFooter(StripeInformation stripe, AbstractAggregatedMemoryContext systemMemoryUsage)
+            throws IOException
     {
         long offset = stripe.getOffset() + stripe.getIndexLength() + stripe.getDataLength();
         int tailLength = toIntExact(stripe.getFooterLength());
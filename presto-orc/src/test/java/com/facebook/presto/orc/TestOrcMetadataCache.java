@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.facebook.presto.orc.memory.AggregatedMemoryContext;
+import com.facebook.presto.orc.metadata.OrcMetadataReader;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static com.facebook.presto.orc.OrcTester.Format.ORC_12;
+import static com.facebook.presto.orc.OrcTester.HIVE_STORAGE_TIME_ZONE;
+import static com.facebook.presto.orc.OrcTester.writeOrcColumnOld;
+import static com.facebook.presto.orc.metadata.CompressionKind.ZLIB;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestOrcMetadataCache
+{
+    private static final int POSITION_COUNT = 50000;
+
+    private TempFile tempFile;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        tempFile = new TempFile();
+        writeOrcColumnOld(tempFile.getFile(), ORC_12, ZLIB, BIGINT, IntStream.range(0, POSITION_COUNT).mapToObj(Long::valueOf).iterator());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        tempFile.close();
+    }
+
+    @Test
+    public void testSharedBetweenReaders()
+            throws IOException
+    {
+        File file = tempFile.getFile();
+        OrcMetadataCache cache = new OrcMetadataCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        OrcFileKey fileKey = new OrcFileKey(file.getPath(), file.length(), file.lastModified());
+
+        TestingOrcDataSource firstDataSource = createDataSource(file);
+        OrcReader firstReader = createReader(firstDataSource, Optional.of(cache.forFile(fileKey)));
+        assertTrue(firstDataSource.getReadCount() > 0);
+        assertEquals(cache.getFileTailCacheMissCount(), 1);
+        assertEquals(cache.getFileTailCacheHitCount(), 0);
+        int stripeCount = firstReader.getFooter().getStripes().size();
+        assertEquals(readPositions(firstReader), POSITION_COUNT);
+        assertEquals(cache.getStripeFooterCacheMissCount(), stripeCount);
+        assertEquals(cache.getStripeFooterCacheHitCount(), 0);
+
+        // the tail of the file is not read again
+        TestingOrcDataSource secondDataSource = createDataSource(file);
+        OrcReader secondReader = createReader(secondDataSource, Optional.of(cache.forFile(fileKey)));
+        assertEquals(secondDataSource.getReadCount(), 0);
+        assertEquals(cache.getFileTailCacheHitCount(), 1);
+        assertSame(secondReader.getFooter(), firstReader.getFooter());
+        assertEquals(readPositions(secondReader), POSITION_COUNT);
+        assertEquals(cache.getStripeFooterCacheMissCount(), stripeCount);
+        assertEquals(cache.getStripeFooterCacheHitCount(), stripeCount);
+
+        // a file rewritten in place is a different entry
+        OrcFileKey modifiedFileKey = new OrcFileKey(file.getPath(), file.length(), file.lastModified() + 1);
+        createReader(createDataSource(file), Optional.of(cache.forFile(modifiedFileKey)));
+        assertEquals(cache.getFileTailCacheMissCount(), 2);
+        assertEquals(cache.getFileTailCacheSize(), 2);
+    }
+
+    @Test
+    public void testEmptyCache()
+            throws IOException
+    {
+        File file = tempFile.getFile();
+        OrcMetadataCache cache = new OrcMetadataCache(new DataSize(0, MEGABYTE), new DataSize(0, MEGABYTE));
+        OrcFileKey fileKey = new OrcFileKey(file.getPath(), file.length(), file.lastModified());
+
+        createReader(createDataSource(file), Optional.of(cache.forFile(fileKey)));
+        TestingOrcDataSource dataSource = createDataSource(file);
+        OrcReader reader = createReader(dataSource, Optional.of(cache.forFile(fileKey)));
+        assertTrue(dataSource.getReadCount() > 0);
+        assertEquals(cache.getFileTailCacheHitCount(), 0);
+        assertEquals(cache.getFileTailCacheSize(), 0);
+        assertEquals(readPositions(reader), POSITION_COUNT);
+    }
+
+    private static TestingOrcDataSource createDataSource(File file)
+            throws IOException
+    {
+        return new TestingOrcDataSource(new FileOrcDataSource(file, new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), true));
+    }
+
+    private static OrcReader createReader(OrcDataSource dataSource, Optional<OrcFileMetadataCache> metadataCache)
+            throws IOException
+    {
+        // a tiny merge distance keeps the reader from caching the whole file in the data source
+        DataSize maxMergeDistance = new DataSize(1, DataSize.Unit.BYTE);
+        return new OrcReader(dataSource, new OrcMetadataReader(), maxMergeDistance, new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), metadataCache);
+    }
+
+    private static int readPositions(OrcReader reader)
+            throws IOException
+    {
+        int positionCount = 0;
+        try (OrcRecordReader recordReader = reader.createRecordReader(ImmutableMap.of(0, BIGINT), OrcPredicate.TRUE, HIVE_STORAGE_TIME_ZONE, new AggregatedMemoryContext())) {
+            while (true) {
+                int batchSize = recordReader.nextBatch();
+                if (batchSize <= 0) {
+                    break;
+                }
+                positionCount += batchSize;
+            }
+        }
+        return positionCount;
+    }
+}
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.orc;
 
+import com.facebook.presto.orc.memory.AggregatedMemoryContext;
 import com.facebook.presto.orc.metadata.CompressionKind;
 import com.facebook.presto.orc.metadata.Footer;
 import com.facebook.presto.orc.metadata.OrcMetadataReader;
@@ -43,16 +44,24 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.facebook.presto.orc.OrcReader.MAX_BATCH_SIZE;
 import static com.facebook.presto.orc.OrcTester.Format.ORC_12;
+import static com.facebook.presto.orc.OrcTester.HIVE_STORAGE_TIME_ZONE;
 import static com.facebook.presto.orc.OrcTester.MAX_BLOCK_SIZE;
 import static com.facebook.presto.orc.OrcTester.createCustomOrcRecordReader;
 import static com.facebook.presto.orc.OrcTester.createOrcRecordWriter;
 import static com.facebook.presto.orc.OrcTester.createSettableStructObjectInspector;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.apache.hadoop.hive.ql.io.orc.CompressionKind.SNAPPY;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -86,6 +95,49 @@ public class TestOrcReaderPositions
         }
     }
 
+    @Test
+    public void testEntireFileWithStripePrefetch()
+            throws Exception
+    {
+        ExecutorService executor = newCachedThreadPool();
+        try (TempFile tempFile = new TempFile()) {
+            createMultiStripeFile(tempFile.getFile());
+
+            AtomicInteger prefetchCount = new AtomicInteger();
+            Executor countingExecutor = command -> {
+                prefetchCount.incrementAndGet();
+                executor.execute(command);
+            };
+
+            try (OrcRecordReader reader = createPrefetchingOrcRecordReader(tempFile, countingExecutor, new DataSize(1, MEGABYTE))) {
+                for (int i = 0; i < 5; i++) {
+                    reader.isBlocked().get();
+                    assertEquals(reader.nextBatch(), 20);
+                    assertEquals(reader.getReaderPosition(), i * 20L);
+                    assertCurrentBatch(reader, i);
+                }
+                assertEquals(reader.nextBatch(), -1);
+                assertEquals(reader.getReaderPosition(), 100);
+            }
+            // every stripe but the first is prefetched
+            assertEquals(prefetchCount.get(), 4);
+
+            // stripes exceeding the memory budget are read when needed
+            prefetchCount.set(0);
+            try (OrcRecordReader reader = createPrefetchingOrcRecordReader(tempFile, countingExecutor, new DataSize(1, BYTE))) {
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(reader.nextBatch(), 20);
+                    assertCurrentBatch(reader, i);
+                }
+                assertEquals(reader.nextBatch(), -1);
+            }
+            assertEquals(prefetchCount.get(), 0);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testStripeSkipping()
             throws Exception
@@ -299,6 +351,24 @@ public class TestOrcReaderPositions
         }
     }
 
+    private static OrcRecordReader createPrefetchingOrcRecordReader(TempFile tempFile, Executor executor, DataSize stripePrefetchMaxMemory)
+            throws IOException
+    {
+        // the stripes must not be merged or cached, since prefetching is disabled for tiny stripes
+        DataSize tinyReadSize = new DataSize(1, BYTE);
+        OrcDataSource orcDataSource = new FileOrcDataSource(tempFile.getFile(), tinyReadSize, new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE), true);
+        OrcReader orcReader = new OrcReader(orcDataSource, new OrcMetadataReader(), tinyReadSize, tinyReadSize, MAX_BLOCK_SIZE);
+        return orcReader.createRecordReader(
+                ImmutableMap.of(0, BIGINT),
+                OrcPredicate.TRUE,
+                0,
+                orcDataSource.getSize(),
+                HIVE_STORAGE_TIME_ZONE,
+                new AggregatedMemoryContext(),
+                Optional.of(executor),
+                stripePrefetchMaxMemory);
+    }
+
     private static void assertCurrentBatch(OrcRecordReader reader, int stripe)
             throws IOException
     {
@@ -0,0 +1,271 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.slice.FixedLengthSliceInput;
+import io.airlift.slice.Slices;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TestPrefetchingOrcDataSource
+{
+    private static final byte[] DATA = createData(1024);
+
+    @Test
+    public void testReadPrefetched()
+            throws IOException
+    {
+        TestingOrcDataSource testingOrcDataSource = new TestingOrcDataSource(new MemoryOrcDataSource(DATA));
+        PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(testingOrcDataSource, directExecutor());
+
+        dataSource.prefetch(new DiskRange(100, 200));
+        assertTrue(dataSource.getPrefetchFuture().isDone());
+        assertEquals(testingOrcDataSource.getReadCount(), 1);
+        assertEquals(testingOrcDataSource.getLastReadRanges(), ImmutableList.of(new DiskRange(100, 200)));
+
+        // contained in the prefetched range
+        byte[] buffer = new byte[50];
+        dataSource.readFully(150, buffer);
+        assertEquals(buffer, Arrays.copyOfRange(DATA, 150, 200));
+        assertEquals(testingOrcDataSource.getReadCount(), 1);
+
+        // crosses the end of the prefetched range
+        buffer = new byte[50];
+        dataSource.readFully(280, buffer);
+        assertEquals(buffer, Arrays.copyOfRange(DATA, 280, 330));
+        assertEquals(testingOrcDataSource.getReadCount(), 2);
+        assertEquals(testingOrcDataSource.getLastReadRanges(), ImmutableList.of(new DiskRange(280, 50)));
+    }
+
+    @Test
+    public void testReadRanges()
+            throws IOException
+    {
+        TestingOrcDataSource testingOrcDataSource = new TestingOrcDataSource(new MemoryOrcDataSource(DATA));
+        PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(testingOrcDataSource, directExecutor());
+        dataSource.prefetch(new DiskRange(0, 100));
+
+        Map<String, FixedLengthSliceInput> slices = dataSource.readFully(ImmutableMap.of(
+                "prefetched", new DiskRange(10, 20),
+                "other", new DiskRange(500, 20)));
+        assertEquals(slices.get("prefetched").readSlice(20), Slices.wrappedBuffer(DATA, 10, 20));
+        assertEquals(slices.get("other").readSlice(20), Slices.wrappedBuffer(DATA, 500, 20));
+        assertEquals(testingOrcDataSource.getLastReadRanges(), ImmutableList.of(new DiskRange(500, 20)));
+    }
+
+    @Test
+    public void testPrefetchReplacesPreviousRange()
+            throws IOException
+    {
+        TestingOrcDataSource testingOrcDataSource = new TestingOrcDataSource(new MemoryOrcDataSource(DATA));
+        PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(testingOrcDataSource, directExecutor());
+        dataSource.prefetch(new DiskRange(0, 100));
+        dataSource.prefetch(new DiskRange(200, 100));
+        assertEquals(testingOrcDataSource.getReadCount(), 2);
+
+        byte[] buffer = new byte[10];
+        dataSource.readFully(0, buffer);
+        assertEquals(buffer, Arrays.copyOfRange(DATA, 0, 10));
+        assertEquals(testingOrcDataSource.getReadCount(), 3);
+
+        dataSource.readFully(250, buffer);
+        assertEquals(buffer, Arrays.copyOfRange(DATA, 250, 260));
+        assertEquals(testingOrcDataSource.getReadCount(), 3);
+    }
+
+    @Test(timeOut = 10_000)
+    public void testAsyncPrefetch()
+            throws Exception
+    {
+        ExecutorService executor = newSingleThreadExecutor();
+        try {
+            BlockingOrcDataSource blockingDataSource = new BlockingOrcDataSource(DATA);
+            PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(blockingDataSource, executor);
+
+            dataSource.prefetch(new DiskRange(100, 200));
+            blockingDataSource.awaitReadStarted();
+            assertFalse(dataSource.getPrefetchFuture().isDone());
+
+            blockingDataSource.finishRead();
+            byte[] buffer = new byte[50];
+            dataSource.readFully(150, buffer);
+            assertEquals(buffer, Arrays.copyOfRange(DATA, 150, 200));
+            assertTrue(dataSource.getPrefetchFuture().isDone());
+            assertEquals(blockingDataSource.getReadCount(), 1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeOut = 10_000)
+    public void testCloseWaitsForPrefetch()
+            throws Exception
+    {
+        ExecutorService executor = newCachedThreadPool();
+        try {
+            BlockingOrcDataSource blockingDataSource = new BlockingOrcDataSource(DATA);
+            PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(blockingDataSource, executor);
+
+            dataSource.prefetch(new DiskRange(100, 200));
+            blockingDataSource.awaitReadStarted();
+
+            Future<?> close = executor.submit(() -> {
+                dataSource.close();
+                return null;
+            });
+            // the underlying data source is not closed while it is read
+            assertThrows(TimeoutException.class, () -> close.get(100, MILLISECONDS));
+            assertFalse(blockingDataSource.isClosed());
+
+            blockingDataSource.finishRead();
+            close.get();
+            assertTrue(blockingDataSource.isClosed());
+            assertFalse(blockingDataSource.isReadAfterClose());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCloseSkipsPendingPrefetch()
+            throws IOException
+    {
+        List<Runnable> pendingTasks = new ArrayList<>();
+        TestingOrcDataSource testingOrcDataSource = new TestingOrcDataSource(new MemoryOrcDataSource(DATA));
+        PrefetchingOrcDataSource dataSource = new PrefetchingOrcDataSource(testingOrcDataSource, pendingTasks::add);
+
+        dataSource.prefetch(new DiskRange(100, 200));
+        dataSource.close();
+
+        // the prefetch is run only after the data source is closed
+        pendingTasks.forEach(Runnable::run);
+        assertTrue(dataSource.getPrefetchFuture().isCancelled());
+        assertEquals(testingOrcDataSource.getReadCount(), 0);
+    }
+
+    private static byte[] createData(int size)
+    {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static class MemoryOrcDataSource
+            extends AbstractOrcDataSource
+    {
+        private final byte[] data;
+
+        public MemoryOrcDataSource(byte[] data)
+        {
+            super(new OrcDataSourceId("memory"), data.length, new DataSize(1, Unit.MEGABYTE), new DataSize(1, Unit.MEGABYTE), new DataSize(1, Unit.MEGABYTE), false);
+            this.data = data;
+        }
+
+        @Override
+        protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+        {
+            System.arraycopy(data, (int) position, buffer, bufferOffset, bufferLength);
+        }
+    }
+
+    private static class BlockingOrcDataSource
+            extends MemoryOrcDataSource
+    {
+        private final CountDownLatch readStarted = new CountDownLatch(1);
+        private final CountDownLatch readFinished = new CountDownLatch(1);
+        private final AtomicInteger readCount = new AtomicInteger();
+        private volatile boolean closed;
+        private volatile boolean readAfterClose;
+
+        public BlockingOrcDataSource(byte[] data)
+        {
+            super(data);
+        }
+
+        public void awaitReadStarted()
+                throws InterruptedException
+        {
+            readStarted.await();
+        }
+
+        public void finishRead()
+        {
+            readFinished.countDown();
+        }
+
+        public int getReadCount()
+        {
+            return readCount.get();
+        }
+
+        public boolean isClosed()
+        {
+            return closed;
+        }
+
+        public boolean isReadAfterClose()
+        {
+            return readAfterClose;
+        }
+
+        @Override
+        protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+        {
+            readCount.incrementAndGet();
+            readStarted.countDown();
+            try {
+                readFinished.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            readAfterClose |= closed;
+            super.readInternal(position, buffer, bufferOffset, bufferLength);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+}
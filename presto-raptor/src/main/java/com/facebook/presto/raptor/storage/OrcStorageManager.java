@@ -15,6 +15,8 @@ package com.facebook.presto.raptor.storage;
 
 import com.facebook.presto.orc.FileOrcDataSource;
 import com.facebook.presto.orc.OrcDataSource;
+import com.facebook.presto.orc.OrcFileKey;
+import com.facebook.presto.orc.OrcMetadataCache;
 import com.facebook.presto.orc.OrcPredicate;
 import com.facebook.presto.orc.OrcReader;
 import com.facebook.presto.orc.OrcRecordReader;
@@ -143,6 +145,7 @@ public class OrcStorageManager
     private final DataSize maxShardSize;
     private final DataSize minAvailableSpace;
     private final TypeManager typeManager;
+    private final OrcMetadataCache metadataCache;
     private final ExecutorService deletionExecutor;
     private final ExecutorService commitExecutor;
 
@@ -157,7 +160,8 @@ public class OrcStorageManager
             BackupManager backgroundBackupManager,
             ShardRecoveryManager recoveryManager,
             ShardRecorder shardRecorder,
-            TypeManager typeManager)
+            TypeManager typeManager,
+            OrcMetadataCache metadataCache)
     {
         this(nodeManager.getCurrentNode().getNodeIdentifier(),
                 storageService,
@@ -172,7 +176,8 @@ public class OrcStorageManager
                 config.getShardRecoveryTimeout(),
                 config.getMaxShardRows(),
                 config.getMaxShardSize(),
-                config.getMinAvailableSpace());
+                config.getMinAvailableSpace(),
+                metadataCache);
     }
 
     public OrcStorageManager(
@@ -189,7 +194,8 @@ public class OrcStorageManager
             Duration shardRecoveryTimeout,
             long maxShardRows,
             DataSize maxShardSize,
-            DataSize minAvailableSpace)
+            DataSize minAvailableSpace,
+            OrcMetadataCache metadataCache)
     {
         this.nodeId = requireNonNull(nodeId, "nodeId is null");
         this.storageService = requireNonNull(storageService, "storageService is null");
@@ -206,6 +212,7 @@ public class OrcStorageManager
         this.minAvailableSpace = requireNonNull(minAvailableSpace, "minAvailableSpace is null");
         this.shardRecorder = requireNonNull(shardRecorder, "shardRecorder is null");
         this.typeManager = requireNonNull(typeManager, "typeManager is null");
+        this.metadataCache = requireNonNull(metadataCache, "metadataCache is null");
         this.deletionExecutor = newFixedThreadPool(deletionThreads, daemonThreadsNamed("raptor-delete-" + connectorId + "-%s"));
         this.commitExecutor = newCachedThreadPool(daemonThreadsNamed("raptor-commit-" + connectorId + "-%s"));
     }
@@ -232,7 +239,9 @@ public class OrcStorageManager
         AggregatedMemoryContext systemMemoryUsage = new AggregatedMemoryContext();
 
         try {
-            OrcReader reader = new OrcReader(dataSource, new OrcMetadataReader(), readerAttributes.getMaxMergeDistance(), readerAttributes.getMaxReadSize(), HUGE_MAX_READ_BLOCK_SIZE);
+            // shard files are never modified in place, so the file size is enough to identify a version
+            OrcFileKey fileKey = new OrcFileKey(dataSource.getId().toString(), dataSource.getSize(), 0);
+            OrcReader reader = new OrcReader(dataSource, new OrcMetadataReader(), readerAttributes.getMaxMergeDistance(), readerAttributes.getMaxReadSize(), HUGE_MAX_READ_BLOCK_SIZE, Optional.of(metadataCache.forFile(fileKey)));
 
             Map<Long, Integer> indexMap = columnIdIndex(reader.getColumnNames());
             ImmutableMap.Builder<Integer, Type> includedColumns = ImmutableMap.builder();
@@ -49,6 +49,8 @@ public class StorageManagerConfig
     private DataSize orcMaxReadSize = new DataSize(8, MEGABYTE);
     private DataSize orcStreamBufferSize = new DataSize(8, MEGABYTE);
     private boolean orcLazyReadSmallRanges = true;
+    private DataSize orcFileTailCacheSize = new DataSize(16, MEGABYTE);
+    private DataSize orcStripeFooterCacheSize = new DataSize(16, MEGABYTE);
     private int deletionThreads = max(1, getRuntime().availableProcessors() / 2);
     private int recoveryThreads = 10;
     private int organizationThreads = 5;
@@ -142,6 +144,34 @@ public class StorageManagerConfig
         return this;
     }
 
+    @NotNull
+    public DataSize getOrcFileTailCacheSize()
+    {
+        return orcFileTailCacheSize;
+    }
+
+    @Config("storage.orc.file-tail-cache-size")
+    @ConfigDescription("Maximum size of the cache of parsed ORC file footers")
+    public StorageManagerConfig setOrcFileTailCacheSize(DataSize orcFileTailCacheSize)
+    {
+        this.orcFileTailCacheSize = orcFileTailCacheSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getOrcStripeFooterCacheSize()
+    {
+        return orcStripeFooterCacheSize;
+    }
+
+    @Config("storage.orc.stripe-footer-cache-size")
+    @ConfigDescription("Maximum size of the cache of parsed ORC stripe footers")
+    public StorageManagerConfig setOrcStripeFooterCacheSize(DataSize orcStripeFooterCacheSize)
+    {
+        this.orcStripeFooterCacheSize = orcStripeFooterCacheSize;
+        return this;
+    }
+
     @Min(1)
     public int getDeletionThreads()
     {
@@ -14,6 +14,7 @@
 package com.facebook.presto.raptor.storage;
 
 import com.facebook.presto.orc.OrcDataSource;
+import com.facebook.presto.orc.OrcMetadataCache;
 import com.facebook.presto.orc.OrcRecordReader;
 import com.facebook.presto.raptor.RaptorColumnHandle;
 import com.facebook.presto.raptor.backup.BackupManager;
@@ -620,7 +621,8 @@ public class TestOrcStorageManager
                 SHARD_RECOVERY_TIMEOUT,
                 maxShardRows,
                 maxFileSize,
-                new DataSize(0, BYTE));
+                new DataSize(0, BYTE),
+                new OrcMetadataCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE)));
     }
 
     private static void assertFileEquals(File actual, File expected)
@@ -50,6 +50,8 @@ public class TestStorageManagerConfig
                 .setOrcMaxReadSize(new DataSize(8, MEGABYTE))
                 .setOrcStreamBufferSize(new DataSize(8, MEGABYTE))
                 .setOrcLazyReadSmallRanges(true)
+                .setOrcFileTailCacheSize(new DataSize(16, MEGABYTE))
+                .setOrcStripeFooterCacheSize(new DataSize(16, MEGABYTE))
                 .setDeletionThreads(max(1, getRuntime().availableProcessors() / 2))
                 .setShardRecoveryTimeout(new Duration(30, SECONDS))
                 .setMissingShardDiscoveryInterval(new Duration(5, MINUTES))
@@ -76,6 +78,8 @@ public class TestStorageManagerConfig
                 .put("storage.orc.max-read-size", "16kB")
                 .put("storage.orc.stream-buffer-size", "16kB")
                 .put("storage.orc.lazy-read-small-ranges", "false")
+                .put("storage.orc.file-tail-cache-size", "32MB")
+                .put("storage.orc.stripe-footer-cache-size", "8MB")
                 .put("storage.max-deletion-threads", "999")
                 .put("storage.shard-recovery-timeout", "1m")
                 .put("storage.missing-shard-discovery-interval", "4m")
@@ -99,6 +103,8 @@ public class TestStorageManagerConfig
                 .setOrcMaxReadSize(new DataSize(16, KILOBYTE))
                 .setOrcStreamBufferSize(new DataSize(16, KILOBYTE))
                 .setOrcLazyReadSmallRanges(false)
+                .setOrcFileTailCacheSize(new DataSize(32, MEGABYTE))
+                .setOrcStripeFooterCacheSize(new DataSize(8, MEGABYTE))
                 .setDeletionThreads(999)
                 .setShardRecoveryTimeout(new Duration(1, MINUTES))
                 .setMissingShardDiscoveryInterval(new Duration(4, MINUTES))
@@ -26,6 +26,7 @@ public class QueryStatistics
     private final Duration queuedTime;
     private final Optional<Duration> analysisTime;
     private final Optional<Duration> distributedPlanningTime;
+    private final Optional<Duration> logicalPlanningTime;
 
     private final long peakMemoryBytes;
     private final long totalBytes;
@@ -43,6 +44,8 @@ public class QueryStatistics
     private final List<StageCpuDistribution> cpuTimeDistribution;
 
     private final List<String> operatorSummaries;
+    private final List<String> optimizerSummaries;
+    private final List<String> ruleSummaries;
 
     public QueryStatistics(
             Duration cpuTime,
@@ -50,6 +53,7 @@ public class QueryStatistics
             Duration queuedTime,
             Optional<Duration> analysisTime,
             Optional<Duration> distributedPlanningTime,
+            Optional<Duration> logicalPlanningTime,
             long peakMemoryBytes,
             long totalBytes,
             long totalRows,
@@ -61,13 +65,16 @@ public class QueryStatistics
             int completedSplits,
             boolean complete,
             List<StageCpuDistribution> cpuTimeDistribution,
-            List<String> operatorSummaries)
+            List<String> operatorSummaries,
+            List<String> optimizerSummaries,
+            List<String> ruleSummaries)
     {
         this.cpuTime = requireNonNull(cpuTime, "cpuTime is null");
         this.wallTime = requireNonNull(wallTime, "wallTime is null");
         this.queuedTime = requireNonNull(queuedTime, "queuedTime is null");
         this.analysisTime = requireNonNull(analysisTime, "analysisTime is null");
         this.distributedPlanningTime = requireNonNull(distributedPlanningTime, "distributedPlanningTime is null");
+        this.logicalPlanningTime = requireNonNull(logicalPlanningTime, "logicalPlanningTime is null");
         this.peakMemoryBytes = peakMemoryBytes;
         this.totalBytes = totalBytes;
         this.totalRows = totalRows;
@@ -80,6 +87,8 @@ public class QueryStatistics
         this.complete = complete;
         this.cpuTimeDistribution = requireNonNull(cpuTimeDistribution, "cpuTimeDistribution is null");
         this.operatorSummaries = requireNonNull(operatorSummaries, "operatorSummaries is null");
+        this.optimizerSummaries = requireNonNull(optimizerSummaries, "optimizerSummaries is null");
+        this.ruleSummaries = requireNonNull(ruleSummaries, "ruleSummaries is null");
     }
 
     public Duration getCpuTime()
@@ -107,6 +116,14 @@ public class QueryStatistics
         return distributedPlanningTime;
     }
 
+    /**
+     * Time spent in the optimizers, which is part of the analysis time.
+     */
+    public Optional<Duration> getLogicalPlanningTime()
+    {
+        return logicalPlanningTime;
+    }
+
     public long getPeakMemoryBytes()
     {
         return peakMemoryBytes;
@@ -166,4 +183,20 @@ public class QueryStatistics
     {
         return operatorSummaries;
     }
+
+    /**
+     * Wall time, invocations and rewrites of each optimizer that planned the query, as JSON.
+     */
+    public List<String> getOptimizerSummaries()
+    {
+        return optimizerSummaries;
+    }
+
+    /**
+     * Wall time, invocations and rewrites of each iterative optimizer rule that planned the query, as JSON.
+     */
+    public List<String> getRuleSummaries()
+    {
+        return ruleSummaries;
+    }
 }
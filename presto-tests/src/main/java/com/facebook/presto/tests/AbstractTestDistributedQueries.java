@@ -19,6 +19,7 @@ import com.facebook.presto.execution.QueryInfo;
 import com.facebook.presto.execution.QueryManager;
 import com.facebook.presto.spi.QueryId;
 import com.facebook.presto.spi.security.Identity;
+import com.facebook.presto.sql.planner.optimizations.AddExchanges;
 import com.facebook.presto.testing.MaterializedResult;
 import com.facebook.presto.testing.MaterializedRow;
 import com.facebook.presto.testing.TestingSession;
@@ -290,6 +291,19 @@ public abstract class AbstractTestDistributedQueries
         assertExplainAnalyze("EXPLAIN ANALYZE SHOW SESSION");
     }
 
+    @Test
+    public void testExplainAnalyzePlanningStats()
+    {
+        String value = getOnlyElement(computeActual("EXPLAIN ANALYZE SELECT count(*), clerk FROM orders GROUP BY clerk").getOnlyColumnAsSet());
+        assertTrue(value.startsWith("Analysis and planning: "), format("Expected output to start with the planning times, but it is %s", value));
+        assertTrue(value.contains("\nOptimizers (top 10 by wall time):\n"), format("Expected output to contain the optimizers, but it is %s", value));
+        assertTrue(value.contains("\nRules (top 10 by wall time):\n"), format("Expected output to contain the rules, but it is %s", value));
+
+        value = getOnlyElement(computeActual("EXPLAIN ANALYZE VERBOSE SELECT count(*), clerk FROM orders GROUP BY clerk").getOnlyColumnAsSet());
+        assertTrue(value.contains("\nOptimizers:\n"), format("Expected output to contain all optimizers, but it is %s", value));
+        assertTrue(value.contains("    " + AddExchanges.class.getName() + ": "), format("Expected output to contain AddExchanges, but it is %s", value));
+    }
+
     @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = "EXPLAIN ANALYZE only supported for statements that are queries")
     public void testExplainAnalyzeDDL()
     {
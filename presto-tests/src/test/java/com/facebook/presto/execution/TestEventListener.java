@@ -19,13 +19,18 @@ import com.facebook.presto.resourceGroups.ResourceGroupManagerPlugin;
 import com.facebook.presto.spi.QueryId;
 import com.facebook.presto.spi.eventlistener.QueryCompletedEvent;
 import com.facebook.presto.spi.eventlistener.QueryCreatedEvent;
+import com.facebook.presto.spi.eventlistener.QueryStatistics;
 import com.facebook.presto.spi.eventlistener.SplitCompletedEvent;
+import com.facebook.presto.sql.planner.OptimizerStats;
+import com.facebook.presto.sql.planner.iterative.IterativeOptimizer;
+import com.facebook.presto.sql.planner.optimizations.AddExchanges;
 import com.facebook.presto.testing.MaterializedResult;
 import com.facebook.presto.tests.DistributedQueryRunner;
 import com.facebook.presto.tpch.TpchPlugin;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import io.airlift.json.JsonCodec;
 import org.intellij.lang.annotations.Language;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -39,14 +44,18 @@ import java.util.concurrent.TimeUnit;
 
 import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.airlift.json.JsonCodec.jsonCodec;
 import static java.util.stream.Collectors.toSet;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestEventListener
 {
     private static final int SPLITS_PER_NODE = 3;
+    private static final JsonCodec<OptimizerStats> OPTIMIZER_STATS_CODEC = jsonCodec(OptimizerStats.class);
     private final EventsBuilder generatedEvents = new EventsBuilder();
 
     private DistributedQueryRunner queryRunner;
@@ -194,6 +203,35 @@ public class TestEventListener
         assertEquals(1L, queryCompletedEvent.getStatistics().getOutputRows());
     }
 
+    @Test
+    public void testPlanningStats()
+            throws Exception
+    {
+        // QueryCreated: 1, QueryCompleted: 1, Splits: SPLITS_PER_NODE (leaf splits) + LocalExchange[SINGLE] split + Aggregation/Output split
+        int expectedEvents = 1 + 1 + SPLITS_PER_NODE + 1 + 1;
+        runQueryAndWaitForEvents("SELECT sum(linenumber) FROM lineitem WHERE orderkey > 10", expectedEvents);
+        QueryCompletedEvent queryCompletedEvent = getOnlyElement(generatedEvents.getQueryCompletedEvents());
+        QueryStats queryStats = queryRunner.getQueryInfo(new QueryId(queryCompletedEvent.getMetadata().getQueryId())).getQueryStats();
+
+        assertNotNull(queryStats.getLogicalPlanningTime());
+        Set<String> optimizers = queryStats.getOptimizerSummaries().stream()
+                .map(OptimizerStats::getName)
+                .collect(toSet());
+        assertTrue(optimizers.contains(IterativeOptimizer.class.getName()), "optimizers: " + optimizers);
+        assertTrue(optimizers.contains(AddExchanges.class.getName()), "optimizers: " + optimizers);
+        assertFalse(queryStats.getRuleSummaries().isEmpty());
+
+        QueryStatistics statistics = queryCompletedEvent.getStatistics();
+        assertTrue(statistics.getLogicalPlanningTime().isPresent());
+        assertEquals(statistics.getOptimizerSummaries().size(), queryStats.getOptimizerSummaries().size());
+        assertEquals(statistics.getRuleSummaries().size(), queryStats.getRuleSummaries().size());
+        assertEquals(
+                statistics.getOptimizerSummaries().stream()
+                        .map(summary -> OPTIMIZER_STATS_CODEC.fromJson(summary).getName())
+                        .collect(toSet()),
+                optimizers);
+    }
+
     static class EventsBuilder
     {
         private ImmutableList.Builder<QueryCreatedEvent> queryCreatedEvents;
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.tests;
+package com.facebook.presto.tests;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.client.ClientSession;
+import com.facebook.presto.client.QueryData;
+import com.facebook.presto.client.QueryError;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.ResultLocation;
+import com.facebook.presto.client.ResultPage;
+import com.facebook.presto.client.StatementClient;
+import com.facebook.presto.testing.MaterializedRow;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multiset;
+import io.airlift.units.Duration;
+import okhttp3.OkHttpClient;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.facebook.presto.SystemSessionProperties.FORCE_SINGLE_NODE_OUTPUT;
+import static com.facebook.presto.tests.tpch.TpchQueryRunner.createQueryRunner;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Verifies that the rows read by a client directly from the output buffers of the
+ * workers are the rows the coordinator returns for the same query.
+ */
+@Test(singleThreaded = true)
+public class TestDirectResults
+{
+    private DistributedQueryRunner queryRunner;
+    private OkHttpClient httpClient;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        queryRunner = createQueryRunner(ImmutableMap.of(
+                "direct-results.enabled", "true",
+                "direct-results.shared-secret", "secret"));
+        httpClient = new OkHttpClient();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        if (queryRunner != null) {
+            queryRunner.close();
+            queryRunner = null;
+        }
+        if (httpClient != null) {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+            httpClient = null;
+        }
+    }
+
+    @Test
+    public void testDistributedOutput()
+    {
+        Session session = distributedOutputSession();
+
+        // the rows of a source stage are read from a buffer on every worker
+        assertDirectResults(session, "SELECT orderkey, custkey, orderstatus, totalprice FROM orders", 2);
+        assertDirectResults(session, "SELECT custkey, count(*), sum(totalprice) FROM orders GROUP BY custkey", 2);
+        assertDirectResults(session, "SELECT n.name, r.name FROM nation n JOIN region r ON n.regionkey = r.regionkey", 2);
+    }
+
+    @Test
+    public void testSingleNodeOutput()
+    {
+        assertDirectResults(queryRunner.getDefaultSession(), "SELECT orderkey, custkey, orderstatus, totalprice FROM orders", 1);
+        assertDirectResults(queryRunner.getDefaultSession(), "SELECT orderkey FROM orders ORDER BY orderkey LIMIT 10", 1);
+    }
+
+    @Test
+    public void testEmptyResult()
+    {
+        assertDirectResults(distributedOutputSession(), "SELECT nationkey, name FROM nation WHERE nationkey < 0", 1);
+    }
+
+    private Session distributedOutputSession()
+    {
+        return Session.builder(queryRunner.getDefaultSession())
+                .setSystemProperty(FORCE_SINGLE_NODE_OUTPUT, "false")
+                .build();
+    }
+
+    private void assertDirectResults(Session session, @Language("SQL") String sql, int minBufferCount)
+    {
+        Multiset<List<Object>> expected = HashMultiset.create();
+        for (MaterializedRow row : queryRunner.execute(session, sql).getMaterializedRows()) {
+            expected.add(row.getFields());
+        }
+
+        Multiset<List<Object>> actual = HashMultiset.create();
+        Set<URI> bufferLocations = new HashSet<>();
+        try (StatementClient client = new StatementClient(httpClient, toClientSession(session), sql, true, true)) {
+            while (client.isValid()) {
+                List<ResultLocation> resultLocations = ((QueryResults) client.currentStatusInfo()).getResultLocations();
+                if (resultLocations != null) {
+                    resultLocations.forEach(location -> bufferLocations.add(location.getUri()));
+                }
+
+                QueryData data = client.currentData();
+                // rows read from the workers are never returned by the coordinator
+                assertTrue(resultLocations == null || data.getData() == null, "coordinator returned rows of a direct query");
+                if (data.getResultPages() != null) {
+                    for (ResultPage page : data.getResultPages()) {
+                        for (int position = 0; position < page.getPositionCount(); position++) {
+                            actual.add(ImmutableList.copyOf(page.getRow(position)));
+                        }
+                    }
+                }
+                client.advance();
+            }
+
+            if (client.isFailed()) {
+                QueryError error = client.finalStatusInfo().getError();
+                fail("query failed: " + error.getMessage());
+            }
+        }
+
+        assertTrue(bufferLocations.size() >= minBufferCount, "rows were read from " + bufferLocations.size() + " buffers: " + sql);
+        assertEquals(actual, expected);
+    }
+
+    private ClientSession toClientSession(Session session)
+    {
+        return new ClientSession(
+                queryRunner.getCoordinator().getBaseUrl(),
+                session.getIdentity().getUser(),
+                session.getSource().orElse(null),
+                session.getClientTags(),
+                session.getClientInfo().orElse(null),
+                session.getCatalog().orElse(null),
+                session.getSchema().orElse(null),
+                session.getTimeZoneKey().getId(),
+                session.getLocale(),
+                session.getSystemProperties(),
+                session.getPreparedStatements(),
+                null,
+                false,
+                new Duration(2, MINUTES));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.tests;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.tests.tpch.TpchQueryRunner;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.SystemSessionProperties.DISTRIBUTED_JOIN;
+import static com.facebook.presto.SystemSessionProperties.ENABLE_DYNAMIC_FILTERING;
+
+public class TestDistributedDynamicFiltering
+        extends AbstractTestQueryFramework
+{
+    public TestDistributedDynamicFiltering()
+    {
+        super(TpchQueryRunner::createQueryRunner);
+    }
+
+    @Test
+    public void testInnerJoin()
+    {
+        assertDynamicFiltering("SELECT l.orderkey, l.linenumber, o.orderstatus " +
+                "FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey " +
+                "WHERE o.custkey = 100");
+    }
+
+    @Test
+    public void testSemiJoin()
+    {
+        assertDynamicFiltering("SELECT orderkey, linenumber FROM lineitem " +
+                "WHERE orderkey IN (SELECT orderkey FROM orders WHERE custkey = 100)");
+        assertDynamicFiltering("SELECT orderkey, linenumber FROM lineitem " +
+                "WHERE orderkey NOT IN (SELECT orderkey FROM orders WHERE custkey <> 100)");
+    }
+
+    @Test
+    public void testEmptyBuildSide()
+    {
+        assertDynamicFiltering("SELECT l.orderkey, l.linenumber " +
+                "FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey " +
+                "WHERE o.totalprice < 0");
+        // the build side only has null keys
+        assertDynamicFiltering("SELECT l.orderkey, l.linenumber " +
+                "FROM lineitem l JOIN (SELECT CAST(NULL AS bigint) orderkey FROM orders WHERE custkey = 100) o ON l.orderkey = o.orderkey");
+    }
+
+    @Test
+    public void testBuildSideWithAllValues()
+    {
+        // more distinct values than are retained, so only their range is kept
+        assertDynamicFiltering("SELECT count(*), sum(l.quantity) " +
+                "FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey");
+        // floating point keys are only summarized as not null
+        assertDynamicFiltering("SELECT l.orderkey, l.linenumber " +
+                "FROM lineitem l JOIN orders o ON l.extendedprice = o.totalprice");
+        assertDynamicFiltering("SELECT l.orderkey, l.linenumber, o.orderstatus " +
+                "FROM lineitem l JOIN (SELECT CASE WHEN orderkey % 2 = 0 THEN NULL ELSE orderkey END orderkey, orderstatus FROM orders) o " +
+                "ON l.orderkey = o.orderkey");
+    }
+
+    @Test
+    public void testMultiColumnKey()
+    {
+        assertDynamicFiltering("SELECT l.orderkey, l.linenumber, ps.availqty " +
+                "FROM lineitem l JOIN partsupp ps ON l.partkey = ps.partkey AND l.suppkey = ps.suppkey " +
+                "WHERE ps.availqty < 100");
+        assertDynamicFiltering("SELECT l.orderkey, l.linenumber " +
+                "FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey AND l.orderkey = o.custkey");
+    }
+
+    private void assertDynamicFiltering(@Language("SQL") String sql)
+    {
+        // the build side of a broadcast join shares a task with the probe side scan
+        for (boolean distributedJoin : new boolean[] {false, true}) {
+            Session session = Session.builder(getSession())
+                    .setSystemProperty(ENABLE_DYNAMIC_FILTERING, "true")
+                    .setSystemProperty(DISTRIBUTED_JOIN, Boolean.toString(distributedJoin))
+                    .build();
+            assertQuery(session, sql);
+        }
+    }
+}
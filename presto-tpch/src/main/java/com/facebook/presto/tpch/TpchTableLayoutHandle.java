@@ -19,6 +19,7 @@ import com.facebook.presto.spi.predicate.TupleDomain;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Objects;
 import java.util.Optional;
 
 public class TpchTableLayoutHandle
@@ -51,6 +52,26 @@ public class TpchTableLayoutHandle
         return table.getConnectorId();
     }
 
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(table, predicate);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        TpchTableLayoutHandle other = (TpchTableLayoutHandle) obj;
+        return Objects.equals(this.table, other.table) &&
+                Objects.equals(this.predicate, other.predicate);
+    }
+
     @Override
     public String toString()
     {